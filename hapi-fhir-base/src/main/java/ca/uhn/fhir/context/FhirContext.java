@@ -32,6 +32,7 @@ import ca.uhn.fhir.model.api.annotation.ResourceDef;
 import ca.uhn.fhir.model.view.ViewGenerator;
 import ca.uhn.fhir.narrative.INarrativeGenerator;
 import ca.uhn.fhir.parser.DataFormatException;
+import ca.uhn.fhir.parser.EncodingPlanCache;
 import ca.uhn.fhir.parser.IParser;
 import ca.uhn.fhir.parser.IParserErrorHandler;
 import ca.uhn.fhir.parser.JsonParser;
@@ -126,6 +127,7 @@ public class FhirContext {
 	private volatile INarrativeGenerator myNarrativeGenerator;
 	private volatile IParserErrorHandler myParserErrorHandler = new LenientErrorHandler();
 	private ParserOptions myParserOptions = new ParserOptions();
+	private final EncodingPlanCache myEncodingPlanCache = new EncodingPlanCache();
 	private volatile IRestfulClientFactory myRestfulClientFactory;
 	private volatile RuntimeChildUndeclaredExtensionDefinition myRuntimeChildUndeclaredExtensionDefinition;
 	private IValidationSupport myValidationSupport;
@@ -444,6 +446,18 @@ public class FhirContext {
 		myParserOptions = theParserOptions;
 	}
 
+	/**
+	 * Returns the cache of encoding plans which is shared by all parsers created by this context.
+	 * This is used internally by the parsers and is not generally useful to callers, although
+	 * {@link EncodingPlanCache#clear()} may be used to discard any plans which have been built.
+	 *
+	 * @see ParserOptions#setEncodingPlanCacheEnabled(boolean)
+	 * @since 8.4.0
+	 */
+	public EncodingPlanCache getEncodingPlanCache() {
+		return myEncodingPlanCache;
+	}
+
 	/**
 	 * Get the configured performance options
 	 */
@@ -48,6 +48,8 @@ public class ParserOptions {
 	private boolean myAutoContainReferenceTargetsWithNoId = true;
 	private Set<String> myEncodeElementsForSummaryMode = null;
 	private Set<String> myDontEncodeElementsForSummaryMode = null;
+	private boolean myStreamingJsonParsingEnabled = false;
+	private boolean myEncodingPlanCacheEnabled = true;
 
 	/**
 	 * If set to {@literal true} (which is the default), contained resources may be specified by
@@ -337,4 +339,66 @@ public class ParserOptions {
 	public Set<String> getDontEncodeElementsForSummaryMode() {
 		return myDontEncodeElementsForSummaryMode;
 	}
+
+	/**
+	 * If set to <code>true</code> (default is <code>false</code>), the JSON parser will feed
+	 * tokens from the underlying JSON reader directly into the parser state machine instead
+	 * of first reading the complete document into an in-memory tree. This substantially
+	 * reduces peak memory use when parsing very large documents such as transaction
+	 * Bundles. Small values (primitives, extensions and the <code>_element</code> properties
+	 * which accompany primitives) are still read as small trees so that the parsed result is
+	 * the same as with the tree-based parser.
+	 *
+	 * @since 8.4.0
+	 */
+	public boolean isStreamingJsonParsingEnabled() {
+		return myStreamingJsonParsingEnabled;
+	}
+
+	/**
+	 * If set to <code>true</code> (default is <code>false</code>), the JSON parser will feed
+	 * tokens from the underlying JSON reader directly into the parser state machine instead
+	 * of first reading the complete document into an in-memory tree. This substantially
+	 * reduces peak memory use when parsing very large documents such as transaction
+	 * Bundles. Small values (primitives, extensions and the <code>_element</code> properties
+	 * which accompany primitives) are still read as small trees so that the parsed result is
+	 * the same as with the tree-based parser.
+	 *
+	 * @since 8.4.0
+	 */
+	@SuppressWarnings("UnusedReturnValue")
+	public ParserOptions setStreamingJsonParsingEnabled(boolean theStreamingJsonParsingEnabled) {
+		myStreamingJsonParsingEnabled = theStreamingJsonParsingEnabled;
+		return this;
+	}
+
+	/**
+	 * If set to <code>true</code> (which is the default), the list of children which will be
+	 * encoded for each element type is computed once per {@link FhirContext} and encoder
+	 * configuration and then reused, instead of being recomputed for every encoded element.
+	 * Plans are only used when no element filtering (e.g. {@link IParser#setEncodeElements(Set)})
+	 * is in effect.
+	 *
+	 * @see FhirContext#getEncodingPlanCache()
+	 * @since 8.4.0
+	 */
+	public boolean isEncodingPlanCacheEnabled() {
+		return myEncodingPlanCacheEnabled;
+	}
+
+	/**
+	 * If set to <code>true</code> (which is the default), the list of children which will be
+	 * encoded for each element type is computed once per {@link FhirContext} and encoder
+	 * configuration and then reused, instead of being recomputed for every encoded element.
+	 * Plans are only used when no element filtering (e.g. {@link IParser#setEncodeElements(Set)})
+	 * is in effect.
+	 *
+	 * @see FhirContext#getEncodingPlanCache()
+	 * @since 8.4.0
+	 */
+	@SuppressWarnings("UnusedReturnValue")
+	public ParserOptions setEncodingPlanCacheEnabled(boolean theEncodingPlanCacheEnabled) {
+		myEncodingPlanCacheEnabled = theEncodingPlanCacheEnabled;
+		return this;
+	}
 }
@@ -306,6 +306,43 @@ public interface IValidationSupport {
 		return null;
 	}
 
+	/**
+	 * Validates a collection of codes at once. Each request is handled with the same semantics as
+	 * {@link #validateCode(ValidationSupportContext, ConceptValidationOptions, String, String, String, String)},
+	 * but implementations which can resolve many codes more efficiently than one at a time (for example
+	 * using a single database query or a single remote request) should override this method.
+	 * <p>
+	 * The default implementation simply invokes
+	 * {@link #validateCode(ValidationSupportContext, ConceptValidationOptions, String, String, String, String)}
+	 * for each request.
+	 * </p>
+	 *
+	 * @param theValidationSupportContext The validation support module will be passed in to this method. This is convenient in cases where the operation needs to make calls to
+	 *                                    other method in the support chain, so that they can be passed through the entire chain. Implementations of this interface may always safely ignore this parameter.
+	 * @param theOptions                  Provides options controlling the validation
+	 * @param theRequests                 The codes to validate
+	 * @return Returns a list containing one entry for each request, in the same order as the requests. An entry
+	 *         is <code>null</code> if this validation support module can not handle the corresponding request.
+	 * @since 8.4.0
+	 */
+	@Nonnull
+	default List<CodeValidationResult> validateCodes(
+			ValidationSupportContext theValidationSupportContext,
+			ConceptValidationOptions theOptions,
+			@Nonnull List<ValidateCodeRequest> theRequests) {
+		List<CodeValidationResult> retVal = new ArrayList<>(theRequests.size());
+		for (ValidateCodeRequest next : theRequests) {
+			retVal.add(validateCode(
+					theValidationSupportContext,
+					theOptions,
+					next.getSystem(),
+					next.getCode(),
+					next.getDisplay(),
+					next.getValueSetUrl()));
+		}
+		return retVal;
+	}
+
 	/**
 	 * Validates that the given code exists and if possible returns a display
 	 * name. This method is called to check codes which are found in "example"
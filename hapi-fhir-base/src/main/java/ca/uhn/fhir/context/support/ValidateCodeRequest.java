@@ -0,0 +1,86 @@
+/*-
+ * #%L
+ * HAPI FHIR - Core Library
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.context.support;
+
+import java.util.Objects;
+
+/**
+ * Represents a single code to be validated using
+ * {@link IValidationSupport#validateCodes(ValidationSupportContext, ConceptValidationOptions, java.util.List)}.
+ *
+ * @since 8.4.0
+ */
+public class ValidateCodeRequest {
+	private final String mySystem;
+	private final String myCode;
+	private final String myDisplay;
+	private final String myValueSetUrl;
+
+	/**
+	 * @param theSystem      The code system, e.g. "<code>http://loinc.org</code>"
+	 * @param theCode        The code, e.g. "<code>1234-5</code>"
+	 * @param theDisplay     The display name, if it should also be validated
+	 * @param theValueSetUrl The URL of the ValueSet to validate the code against, or <code>null</code> to validate the code in its code system
+	 */
+	public ValidateCodeRequest(String theSystem, String theCode, String theDisplay, String theValueSetUrl) {
+		mySystem = theSystem;
+		myCode = theCode;
+		myDisplay = theDisplay;
+		myValueSetUrl = theValueSetUrl;
+	}
+
+	public String getSystem() {
+		return mySystem;
+	}
+
+	public String getCode() {
+		return myCode;
+	}
+
+	public String getDisplay() {
+		return myDisplay;
+	}
+
+	public String getValueSetUrl() {
+		return myValueSetUrl;
+	}
+
+	@Override
+	public boolean equals(Object theO) {
+		if (this == theO) return true;
+		if (!(theO instanceof ValidateCodeRequest)) return false;
+		ValidateCodeRequest that = (ValidateCodeRequest) theO;
+		return Objects.equals(mySystem, that.mySystem)
+				&& Objects.equals(myCode, that.myCode)
+				&& Objects.equals(myDisplay, that.myDisplay)
+				&& Objects.equals(myValueSetUrl, that.myValueSetUrl);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(mySystem, myCode, myDisplay, myValueSetUrl);
+	}
+
+	@Override
+	public String toString() {
+		return "ValidateCodeRequest{system=" + mySystem + ", code=" + myCode + ", display=" + myDisplay
+				+ ", valueSetUrl=" + myValueSetUrl + "}";
+	}
+}
@@ -45,20 +45,24 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.AnnotatedElement;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -74,13 +78,22 @@ public abstract class BaseInterceptorService<POINTCUT extends Enum<POINTCUT> & I
 			AttributeKey.stringKey("hapifhir.interceptor.class_name");
 	private static final AttributeKey<String> OTEL_INTERCEPTOR_METHOD_NAME_ATT_KEY =
 			AttributeKey.stringKey("hapifhir.interceptor.method_name");
-
+	private static final MethodType INVOKER_METHOD_TYPE = MethodType.methodType(Object.class, Object[].class);
+	private static final Object[] EMPTY_ARGS = new Object[0];
+	private static final int POINTCUT_PARAMETER_INDEX = -1;
+
+	/*
+	 * The interceptor and invoker collections below are only read and modified while
+	 * holding myRegistryMutex. After every modification an immutable snapshot of them is
+	 * published to myInvokerSnapshot, which is all that the hook invocation methods read,
+	 * so calling hooks never requires acquiring a lock.
+	 */
 	private final List<Object> myInterceptors = new ArrayList<>();
 	private final ListMultimap<POINTCUT, IInvoker> myGlobalInvokers = ArrayListMultimap.create();
 	private final ListMultimap<POINTCUT, IInvoker> myAnonymousInvokers = ArrayListMultimap.create();
 	private final Object myRegistryMutex = new Object();
 	private final Class<POINTCUT> myPointcutType;
-	private volatile EnumSet<POINTCUT> myRegisteredPointcuts;
+	private volatile InvokerSnapshot<POINTCUT> myInvokerSnapshot;
 	private boolean myWarnOnInterceptorWithNoHooks = true;
 
 	/**
@@ -100,7 +113,8 @@ public abstract class BaseInterceptorService<POINTCUT extends Enum<POINTCUT> & I
 	public BaseInterceptorService(Class<POINTCUT> thePointcutType, String theName) {
 		super();
 		myPointcutType = thePointcutType;
-		rebuildRegisteredPointcutSet();
+		myInvokerSnapshot = new InvokerSnapshot<>(
+				EnumSet.noneOf(myPointcutType), new EnumMap<>(myPointcutType), Collections.emptyList());
 	}
 
 	/**
@@ -112,7 +126,7 @@ public abstract class BaseInterceptorService<POINTCUT extends Enum<POINTCUT> & I
 
 	@VisibleForTesting
 	List<Object> getGlobalInterceptorsForUnitTest() {
-		return myInterceptors;
+		return myInvokerSnapshot.interceptors();
 	}
 
 	/**
@@ -132,16 +146,13 @@ public abstract class BaseInterceptorService<POINTCUT extends Enum<POINTCUT> & I
 				myInterceptors.add(theInterceptor);
 			}
 
-			rebuildRegisteredPointcutSet();
+			rebuildInvokerSnapshot(Collections.singleton(thePointcut));
 		}
 	}
 
 	@Override
 	public List<Object> getAllRegisteredInterceptors() {
-		synchronized (myRegistryMutex) {
-			List<Object> retVal = new ArrayList<>(myInterceptors);
-			return Collections.unmodifiableList(retVal);
-		}
+		return myInvokerSnapshot.interceptors();
 	}
 
 	@Override
@@ -192,8 +203,6 @@ public abstract class BaseInterceptorService<POINTCUT extends Enum<POINTCUT> & I
 					unregisterInterceptor(nextInvoker.getValue().getInterceptor());
 				}
 			}
-
-			rebuildRegisteredPointcutSet();
 		}
 	}
 
@@ -218,17 +227,54 @@ public abstract class BaseInterceptorService<POINTCUT extends Enum<POINTCUT> & I
 			myInterceptors.add(theInterceptor);
 			sortByOrderAnnotation(myInterceptors);
 
-			rebuildRegisteredPointcutSet();
+			rebuildInvokerSnapshot(
+					addedInvokers.stream().map(HookInvoker::getPointcut).collect(Collectors.toSet()));
 
 			return true;
 		}
 	}
 
-	private void rebuildRegisteredPointcutSet() {
+	private boolean removeInvokersForInterceptor(
+			ListMultimap<POINTCUT, IInvoker> theInvokers, Object theInterceptor, Set<POINTCUT> theChangedPointcuts) {
+		return theInvokers.entries().removeIf(t -> {
+			if (t.getValue().getInterceptor() == theInterceptor) {
+				theChangedPointcuts.add(t.getKey());
+				return true;
+			}
+			return false;
+		});
+	}
+
+	/**
+	 * Publishes a new immutable snapshot of the registry. Must be called while holding
+	 * {@link #myRegistryMutex} after any change to the registered interceptors or invokers.
+	 * Invoker lists for pointcuts other than the given ones are carried over from the
+	 * previous snapshot.
+	 *
+	 * @param theChangedPointcuts The pointcuts whose invokers were added or removed
+	 */
+	private void rebuildInvokerSnapshot(Collection<POINTCUT> theChangedPointcuts) {
+		EnumMap<POINTCUT, List<IInvoker>> invokers = new EnumMap<>(myInvokerSnapshot.invokers());
+		for (POINTCUT nextPointcut : theChangedPointcuts) {
+			List<IInvoker> globalInvokers = myGlobalInvokers.get(nextPointcut);
+			List<IInvoker> anonymousInvokers = myAnonymousInvokers.get(nextPointcut);
+			if (globalInvokers.isEmpty() && anonymousInvokers.isEmpty()) {
+				invokers.remove(nextPointcut);
+				continue;
+			}
+
+			List<IInvoker> merged = new ArrayList<>(globalInvokers.size() + anonymousInvokers.size());
+			merged.addAll(globalInvokers);
+			merged.addAll(anonymousInvokers);
+			merged.sort(Comparator.naturalOrder());
+			invokers.put(nextPointcut, Collections.unmodifiableList(merged));
+		}
+
 		EnumSet<POINTCUT> registeredPointcuts = EnumSet.noneOf(myPointcutType);
-		registeredPointcuts.addAll(myAnonymousInvokers.keySet());
-		registeredPointcuts.addAll(myGlobalInvokers.keySet());
-		myRegisteredPointcuts = registeredPointcuts;
+		registeredPointcuts.addAll(invokers.keySet());
+
+		myInvokerSnapshot = new InvokerSnapshot<>(
+				registeredPointcuts, invokers, Collections.unmodifiableList(new ArrayList<>(myInterceptors)));
 	}
 
 	private boolean isInterceptorAlreadyRegistered(Object theInterceptor) {
@@ -243,10 +289,13 @@ public abstract class BaseInterceptorService<POINTCUT extends Enum<POINTCUT> & I
 	@Override
 	public boolean unregisterInterceptor(Object theInterceptor) {
 		synchronized (myRegistryMutex) {
+			Set<POINTCUT> changedPointcuts = EnumSet.noneOf(myPointcutType);
 			boolean removed = myInterceptors.removeIf(t -> t == theInterceptor);
-			removed |= myGlobalInvokers.entries().removeIf(t -> t.getValue().getInterceptor() == theInterceptor);
-			removed |= myAnonymousInvokers.entries().removeIf(t -> t.getValue().getInterceptor() == theInterceptor);
-			rebuildRegisteredPointcutSet();
+			removed |= removeInvokersForInterceptor(myGlobalInvokers, theInterceptor, changedPointcuts);
+			removed |= removeInvokersForInterceptor(myAnonymousInvokers, theInterceptor, changedPointcuts);
+			if (removed) {
+				rebuildInvokerSnapshot(changedPointcuts);
+			}
 			return removed;
 		}
 	}
@@ -276,7 +325,7 @@ public abstract class BaseInterceptorService<POINTCUT extends Enum<POINTCUT> & I
 
 	@Override
 	public boolean hasHooks(POINTCUT thePointcut) {
-		return myRegisteredPointcuts.contains(thePointcut);
+		return myInvokerSnapshot.registeredPointcuts().contains(thePointcut);
 	}
 
 	protected Class<?> getBooleanReturnType() {
@@ -310,19 +359,13 @@ public abstract class BaseInterceptorService<POINTCUT extends Enum<POINTCUT> & I
 	 * is ordered by the invoker order (specified on the {@link Interceptor#order()}
 	 * and {@link Hook#order()} values.
 	 *
-	 * @return The list returned by this method will always be a newly created list, so it will be stable and can be modified.
+	 * @return The list returned by this method is an unmodifiable snapshot of the registry, so it
+	 * 	will be stable even if interceptors are registered or unregistered while it is being used.
 	 */
 	@Override
 	public List<IInvoker> getInvokersForPointcut(POINTCUT thePointcut) {
-		List<IInvoker> invokers;
-
-		synchronized (myRegistryMutex) {
-			List<IInvoker> globalInvokers = myGlobalInvokers.get(thePointcut);
-			List<IInvoker> anonymousInvokers = myAnonymousInvokers.get(thePointcut);
-			invokers = union(Arrays.asList(globalInvokers, anonymousInvokers));
-		}
-
-		return invokers;
+		List<IInvoker> retVal = myInvokerSnapshot.invokers().get(thePointcut);
+		return retVal != null ? retVal : Collections.emptyList();
 	}
 
 	/**
@@ -525,6 +568,7 @@ public abstract class BaseInterceptorService<POINTCUT extends Enum<POINTCUT> & I
 	private class HookInvoker extends BaseInvoker {
 
 		private final Method myMethod;
+		private final MethodHandle myMethodHandle;
 		private final Class<?>[] myParameterTypes;
 		private final int[] myParameterIndexes;
 		private final POINTCUT myPointcut;
@@ -556,14 +600,46 @@ public abstract class BaseInterceptorService<POINTCUT extends Enum<POINTCUT> & I
 						theHookMethod);
 			}
 
+			/*
+			 * Work out up front where each hook method argument comes from: either the
+			 * pointcut itself (flagged with an index of -1), or the Nth parameter of the
+			 * given type in the supplied HookParams
+			 */
 			myParameterIndexes = new int[myParameterTypes.length];
 			Map<Class<?>, AtomicInteger> typeToCount = new HashMap<>();
 			for (int i = 0; i < myParameterTypes.length; i++) {
+				if (myParameterTypes[i].equals(Pointcut.class)) {
+					myParameterIndexes[i] = POINTCUT_PARAMETER_INDEX;
+					continue;
+				}
 				AtomicInteger counter = typeToCount.computeIfAbsent(myParameterTypes[i], t -> new AtomicInteger(0));
 				myParameterIndexes[i] = counter.getAndIncrement();
 			}
 
 			myMethod.setAccessible(true);
+			myMethodHandle = createMethodHandle(theInterceptor, theHookMethod);
+		}
+
+		/**
+		 * Creates a method handle for the hook method which is bound to the interceptor instance
+		 * and accepts the hook arguments as a single array, i.e. a handle of type
+		 * <code>(Object[])Object</code>. Hook methods returning <code>void</code> return
+		 * <code>null</code> through this handle.
+		 */
+		private MethodHandle createMethodHandle(Object theInterceptor, Method theHookMethod) {
+			MethodHandle retVal;
+			try {
+				retVal = MethodHandles.lookup().unreflect(theHookMethod);
+			} catch (IllegalAccessException e) {
+				throw new InternalErrorException(
+						Msg.code(2740) + "Unable to access interceptor hook method: " + theHookMethod, e);
+			}
+
+			if (!Modifier.isStatic(theHookMethod.getModifiers())) {
+				retVal = retVal.bindTo(theInterceptor);
+			}
+
+			return retVal.asSpreader(Object[].class, myParameterTypes.length).asType(INVOKER_METHOD_TYPE);
 		}
 
 		@Override
@@ -588,23 +664,21 @@ public abstract class BaseInterceptorService<POINTCUT extends Enum<POINTCUT> & I
 		@Override
 		public Object invoke(HookParams theParams) {
 
-			Object[] args = new Object[myParameterTypes.length];
-			for (int i = 0; i < myParameterTypes.length; i++) {
-				Class<?> nextParamType = myParameterTypes[i];
-				if (nextParamType.equals(Pointcut.class)) {
+			int parameterCount = myParameterTypes.length;
+			Object[] args = parameterCount > 0 ? new Object[parameterCount] : EMPTY_ARGS;
+			for (int i = 0; i < parameterCount; i++) {
+				int nextParamIndex = myParameterIndexes[i];
+				if (nextParamIndex == POINTCUT_PARAMETER_INDEX) {
 					args[i] = myPointcut;
 				} else {
-					int nextParamIndex = myParameterIndexes[i];
-					Object nextParamValue = theParams.get(nextParamType, nextParamIndex);
-					args[i] = nextParamValue;
+					args[i] = theParams.get(myParameterTypes[i], nextParamIndex);
 				}
 			}
 
 			// Invoke the method
 			try {
 				return invokeMethod(args);
-			} catch (InvocationTargetException e) {
-				Throwable targetException = e.getTargetException();
+			} catch (Throwable targetException) {
 				if (myPointcut.isShouldLogAndSwallowException(targetException)) {
 					ourLog.error("Exception thrown by interceptor: " + targetException.toString(), targetException);
 					return null;
@@ -617,13 +691,11 @@ public abstract class BaseInterceptorService<POINTCUT extends Enum<POINTCUT> & I
 							Msg.code(1910) + "Failure invoking interceptor for pointcut(s) " + getPointcut(),
 							targetException);
 				}
-			} catch (Exception e) {
-				throw new InternalErrorException(Msg.code(1911) + e);
 			}
 		}
 
 		@WithSpan("hapifhir.interceptor")
-		private Object invokeMethod(Object[] args) throws InvocationTargetException, IllegalAccessException {
+		private Object invokeMethod(Object[] args) throws Throwable {
 			// Add attributes to the opentelemetry span
 			Span currentSpan = Span.current();
 			currentSpan.setAttribute(OTEL_INTERCEPTOR_POINTCUT_NAME_ATT_KEY, myPointcut.name());
@@ -632,10 +704,20 @@ public abstract class BaseInterceptorService<POINTCUT extends Enum<POINTCUT> & I
 					myMethod.getDeclaringClass().getName());
 			currentSpan.setAttribute(OTEL_INTERCEPTOR_METHOD_NAME_ATT_KEY, myMethod.getName());
 
-			return myMethod.invoke(getInterceptor(), args);
+			return (Object) myMethodHandle.invokeExact(args);
 		}
 	}
 
+	/**
+	 * An immutable view of the registry, replaced as a whole whenever the registry changes
+	 *
+	 * @param registeredPointcuts The pointcuts having at least one invoker
+	 * @param invokers            The global and anonymous invokers for each pointcut, merged and sorted by order
+	 * @param interceptors        The registered interceptors
+	 */
+	private record InvokerSnapshot<P extends Enum<P>>(
+			EnumSet<P> registeredPointcuts, EnumMap<P, List<IInvoker>> invokers, List<Object> interceptors) {}
+
 	protected class HookDescriptor {
 
 		private final POINTCUT myPointcut;
@@ -155,34 +155,64 @@ public abstract class BaseParser implements IParser {
 		return theEncodeContext
 				.getCompositeChildrenCache()
 				.computeIfAbsent(new Key(elementDef, theContainedResource, theParent, theEncodeContext), (k) -> {
-					final List<BaseRuntimeChildDefinition> children = elementDef.getChildrenAndExtension();
-					final List<CompositeChildElement> result = new ArrayList<>(children.size());
-
-					for (final BaseRuntimeChildDefinition child : children) {
-						CompositeChildElement myNext = new CompositeChildElement(theParent, child, theEncodeContext);
-
-						/*
-						 * There are lots of reasons we might skip encoding a particular child
-						 */
-						if (myNext.getDef().getElementName().equals("id")) {
-							continue;
-						} else if (!myNext.shouldBeEncoded(theContainedResource)) {
-							continue;
-						} else if (myNext.getDef() instanceof RuntimeChildNarrativeDefinition) {
-							if (isSuppressNarratives() || isSummaryMode()) {
-								continue;
-							}
-						} else if (myNext.getDef() instanceof RuntimeChildContainedResources) {
-							if (theContainedResource) {
-								continue;
-							}
+					if (theEncodeContext.isEncodingPlanApplicable()) {
+						List<BaseRuntimeChildDefinition> children = myContext
+								.getEncodingPlanCache()
+								.getChildrenToEncode(
+										elementDef,
+										theContainedResource,
+										isSummaryMode(),
+										isSuppressNarratives(),
+										() -> filterChildrenToEncode(
+												elementDef, theContainedResource, theParent, theEncodeContext));
+						List<CompositeChildElement> result = new ArrayList<>(children.size());
+						for (BaseRuntimeChildDefinition child : children) {
+							result.add(new CompositeChildElement(theParent, child, theEncodeContext));
 						}
-						result.add(myNext);
+						return result;
+					}
+
+					List<CompositeChildElement> result = new ArrayList<>();
+					for (BaseRuntimeChildDefinition child :
+							filterChildrenToEncode(elementDef, theContainedResource, theParent, theEncodeContext)) {
+						result.add(new CompositeChildElement(theParent, child, theEncodeContext));
 					}
 					return result;
 				});
 	}
 
+	private List<BaseRuntimeChildDefinition> filterChildrenToEncode(
+			BaseRuntimeElementCompositeDefinition<?> theElementDef,
+			boolean theContainedResource,
+			CompositeChildElement theParent,
+			EncodeContext theEncodeContext) {
+		final List<BaseRuntimeChildDefinition> children = theElementDef.getChildrenAndExtension();
+		final List<BaseRuntimeChildDefinition> result = new ArrayList<>(children.size());
+
+		for (final BaseRuntimeChildDefinition child : children) {
+			CompositeChildElement myNext = new CompositeChildElement(theParent, child, theEncodeContext);
+
+			/*
+			 * There are lots of reasons we might skip encoding a particular child
+			 */
+			if (myNext.getDef().getElementName().equals("id")) {
+				continue;
+			} else if (!myNext.shouldBeEncoded(theContainedResource)) {
+				continue;
+			} else if (myNext.getDef() instanceof RuntimeChildNarrativeDefinition) {
+				if (isSuppressNarratives() || isSummaryMode()) {
+					continue;
+				}
+			} else if (myNext.getDef() instanceof RuntimeChildContainedResources) {
+				if (theContainedResource) {
+					continue;
+				}
+			}
+			result.add(child);
+		}
+		return result;
+	}
+
 	/**
 	 * We add the reference to the input resources to ensure it doesn't get
 	 * overwritten if it wasn't there.
@@ -1107,6 +1137,7 @@ public abstract class BaseParser implements IParser {
 		private final List<EncodeContextPath> myEncodeElementPaths;
 		private final Set<String> myEncodeElementsAppliesToResourceTypes;
 		private final List<EncodeContextPath> myDontEncodeElementPaths;
+		private final boolean myEncodingPlanCacheEnabled;
 		private FhirTerser.ContainedResources myContainedResources;
 
 		public EncodeContext(
@@ -1136,6 +1167,7 @@ public abstract class BaseParser implements IParser {
 			}
 
 			myContainedResources = theContainedResources;
+			myEncodingPlanCacheEnabled = theParserOptions.isEncodingPlanCacheEnabled();
 
 			myEncodeElementsAppliesToResourceTypes =
 					ParserUtil.determineApplicableResourceTypesForTerserPaths(myEncodeElementPaths);
@@ -1145,6 +1177,26 @@ public abstract class BaseParser implements IParser {
 			return myCompositeChildrenCache;
 		}
 
+		/**
+		 * Cached encoding plans can only be used if the decision about whether to encode a
+		 * child doesn't depend on where in the document that child is. That isn't the case
+		 * if element filters are in use, or for the summary mode exception which keeps
+		 * extensions on CapabilityStatement.
+		 */
+		private boolean isEncodingPlanApplicable() {
+			if (!myEncodingPlanCacheEnabled) {
+				return false;
+			}
+			if (myEncodeElementPaths != null || myDontEncodeElementPaths != null) {
+				return false;
+			}
+			if (isSummaryMode()) {
+				String resourceName = getLeafResourceName();
+				return !"Conformance".equals(resourceName) && !"CapabilityStatement".equals(resourceName);
+			}
+			return true;
+		}
+
 		public FhirTerser.ContainedResources getContainedResources() {
 			return myContainedResources;
 		}
@@ -0,0 +1,93 @@
+/*-
+ * #%L
+ * HAPI FHIR - Core Library
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.parser;
+
+import ca.uhn.fhir.context.BaseRuntimeChildDefinition;
+import ca.uhn.fhir.context.BaseRuntimeElementCompositeDefinition;
+import ca.uhn.fhir.context.FhirContext;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Caches the ordered list of children that the parsers will encode for a given
+ * composite element definition under a given encoder configuration (an "encoding plan").
+ * <p>
+ * Deciding whether each child should be encoded requires examining the summary mode,
+ * narrative suppression and contained resource rules for every child of every element
+ * being encoded. When no <code>_elements</code> style filtering is in use the outcome of
+ * these checks depends only on the definition and the configuration, so it is computed
+ * once and then shared by all parsers created by the same {@link FhirContext}.
+ * </p>
+ * <p>
+ * This class is used internally by the parsers and is not considered a part of the
+ * public API.
+ * </p>
+ *
+ * @see FhirContext#getEncodingPlanCache()
+ * @since 8.4.0
+ */
+public class EncodingPlanCache {
+
+	private final ConcurrentHashMap<PlanKey, List<BaseRuntimeChildDefinition>> myPlans = new ConcurrentHashMap<>();
+
+	/**
+	 * Returns the children to encode for the given definition and configuration, invoking
+	 * <code>thePlanBuilder</code> to create (and cache) the list if it has not already been created.
+	 */
+	List<BaseRuntimeChildDefinition> getChildrenToEncode(
+			BaseRuntimeElementCompositeDefinition<?> theDefinition,
+			boolean theContainedResource,
+			boolean theSummaryMode,
+			boolean theSuppressNarratives,
+			Supplier<List<BaseRuntimeChildDefinition>> thePlanBuilder) {
+		PlanKey key = new PlanKey(theDefinition, theContainedResource, theSummaryMode, theSuppressNarratives);
+		List<BaseRuntimeChildDefinition> retVal = myPlans.get(key);
+		if (retVal == null) {
+			retVal = List.copyOf(thePlanBuilder.get());
+			List<BaseRuntimeChildDefinition> existing = myPlans.putIfAbsent(key, retVal);
+			if (existing != null) {
+				retVal = existing;
+			}
+		}
+		return retVal;
+	}
+
+	/**
+	 * Returns the number of plans currently held in the cache
+	 */
+	public int size() {
+		return myPlans.size();
+	}
+
+	/**
+	 * Discards all cached plans
+	 */
+	public void clear() {
+		myPlans.clear();
+	}
+
+	private record PlanKey(
+			BaseRuntimeElementCompositeDefinition<?> definition,
+			boolean containedResource,
+			boolean summaryMode,
+			boolean suppressNarratives) {}
+}
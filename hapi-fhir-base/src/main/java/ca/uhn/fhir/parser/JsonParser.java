@@ -55,9 +55,13 @@ import ca.uhn.fhir.parser.json.jackson.JacksonStructure;
 import ca.uhn.fhir.rest.api.EncodingEnum;
 import ca.uhn.fhir.util.ElementUtil;
 import ca.uhn.fhir.util.FhirTerser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import jakarta.annotation.Nonnull;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.text.WordUtils;
 import org.hl7.fhir.instance.model.api.IBase;
 import org.hl7.fhir.instance.model.api.IBaseBooleanDatatype;
@@ -78,9 +82,13 @@ import java.io.Writer;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static ca.uhn.fhir.context.BaseRuntimeElementDefinition.ChildTypeEnum.ID_DATATYPE;
 import static ca.uhn.fhir.context.BaseRuntimeElementDefinition.ChildTypeEnum.PRIMITIVE_DATATYPE;
@@ -238,6 +246,11 @@ public class JsonParser extends BaseParser implements IJsonLikeParser {
 
 	@Override
 	protected void doParseIntoComplexStructure(Reader theSource, IBase theTarget) {
+		if (isStreamingJsonParsingEnabled()) {
+			doParseIntoComplexStructureStreaming(theSource, theTarget);
+			return;
+		}
+
 		JsonLikeStructure jsonStructure = new JacksonStructure();
 		jsonStructure.load(theSource);
 
@@ -250,8 +263,31 @@ public class JsonParser extends BaseParser implements IJsonLikeParser {
 		state.endingElement();
 	}
 
+	private void doParseIntoComplexStructureStreaming(Reader theSource, IBase theTarget) {
+		try (com.fasterxml.jackson.core.JsonParser jsonParser = JacksonStructure.createStreamingParser(theSource)) {
+			jsonParser.nextToken();
+			jsonParser.nextToken();
+
+			ParserState<IBase> state = ParserState.getComplexObjectState(
+					this, getContext(), getContext(), true, theTarget, getErrorHandler());
+			state.enteringNewElement(null, null);
+
+			parseChildrenStreaming(jsonParser, state);
+
+			state.endingElement();
+
+			verifyNoTrailingTokens(jsonParser);
+		} catch (IOException e) {
+			throw JacksonStructure.newParseException(e);
+		}
+	}
+
 	@Override
 	public <T extends IBaseResource> T doParseResource(Class<T> theResourceType, Reader theReader) {
+		if (isStreamingJsonParsingEnabled()) {
+			return doParseResourceStreaming(theResourceType, theReader);
+		}
+
 		JsonLikeStructure jsonStructure = new JacksonStructure();
 		jsonStructure.load(theReader);
 
@@ -260,6 +296,65 @@ public class JsonParser extends BaseParser implements IJsonLikeParser {
 		return retVal;
 	}
 
+	/**
+	 * Parses a resource by feeding Jackson tokens directly into the {@link ParserState} instead of
+	 * first reading the whole document into a tree. Objects and arrays of objects (which is where
+	 * the bulk of a large document lives, e.g. <code>Bundle.entry</code>) are streamed. Everything
+	 * else is read into small trees and handed to the tree-based methods in this class so that
+	 * the two modes behave identically.
+	 *
+	 * @see ca.uhn.fhir.context.ParserOptions#setStreamingJsonParsingEnabled(boolean)
+	 */
+	private <T extends IBaseResource> T doParseResourceStreaming(Class<T> theResourceType, Reader theReader) {
+		try (com.fasterxml.jackson.core.JsonParser jsonParser = JacksonStructure.createStreamingParser(theReader)) {
+			jsonParser.nextToken();
+			JsonToken token = jsonParser.nextToken();
+
+			/*
+			 * We need the resource type before we can create the resource state. Practically every
+			 * encoder puts it first, but if it isn't there we fall back to reading the whole
+			 * document as a tree.
+			 */
+			T retVal;
+			if (token == JsonToken.FIELD_NAME && "resourceType".equals(jsonParser.currentName())) {
+				token = jsonParser.nextToken();
+				String resourceType = token == JsonToken.VALUE_STRING ? jsonParser.getText() : null;
+				if (isNotBlank(resourceType)) {
+					jsonParser.nextToken();
+
+					ParserState<? extends IBaseResource> state = ParserState.getPreResourceInstance(
+							this, theResourceType, getContext(), true, getErrorHandler());
+					state.enteringNewElement(null, resourceType);
+
+					parseChildrenStreaming(jsonParser, state);
+
+					state.endingElement();
+					state.endingElement();
+
+					@SuppressWarnings("unchecked")
+					T resource = (T) state.getObject();
+					retVal = resource;
+				} else {
+					retVal = doParseResource(
+							theResourceType, JacksonStructure.readObjectRemainder(jsonParser, "resourceType"));
+				}
+			} else {
+				retVal = doParseResource(theResourceType, JacksonStructure.readObjectRemainder(jsonParser, null));
+			}
+
+			verifyNoTrailingTokens(jsonParser);
+			return retVal;
+		} catch (IOException e) {
+			throw JacksonStructure.newParseException(e);
+		}
+	}
+
+	private <T extends IBaseResource> T doParseResource(Class<T> theResourceType, ObjectNode theObject) {
+		JacksonStructure jsonStructure = new JacksonStructure();
+		jsonStructure.setNativeObject(theObject);
+		return doParseResource(theResourceType, jsonStructure);
+	}
+
 	public <T extends IBaseResource> T doParseResource(Class<T> theResourceType, JsonLikeStructure theJsonStructure) {
 		BaseJsonLikeObject object = theJsonStructure.getRootObject();
 
@@ -562,10 +657,14 @@ public class JsonParser extends BaseParser implements IJsonLikeParser {
 			String currentChildName = null;
 			boolean inArray = false;
 
-			ArrayList<ArrayList<HeldExtension>> extensions = new ArrayList<>(0);
-			ArrayList<ArrayList<HeldExtension>> modifierExtensions = new ArrayList<>(0);
-			ArrayList<ArrayList<String>> comments = new ArrayList<>(0);
-			ArrayList<String> ids = new ArrayList<>(0);
+			/*
+			 * These hold the content which goes into the "_name" property for primitives, so
+			 * they are only created when we actually encounter a primitive value
+			 */
+			ArrayList<ArrayList<HeldExtension>> extensions = null;
+			ArrayList<ArrayList<HeldExtension>> modifierExtensions = null;
+			ArrayList<ArrayList<String>> comments = null;
+			ArrayList<String> ids = null;
 
 			int valueIdx = 0;
 			for (IBase nextValue : values) {
@@ -609,6 +708,12 @@ public class JsonParser extends BaseParser implements IJsonLikeParser {
 
 				boolean force = false;
 				if (primitive) {
+					if (extensions == null) {
+						extensions = new ArrayList<>(0);
+						modifierExtensions = new ArrayList<>(0);
+						comments = new ArrayList<>(0);
+						ids = new ArrayList<>(0);
+					}
 					if (nextValue instanceof ISupportsUndeclaredExtensions) {
 						List<ExtensionDt> ext = ((ISupportsUndeclaredExtensions) nextValue).getUndeclaredExtensions();
 						force |= addToHeldExtensions(
@@ -730,9 +835,10 @@ public class JsonParser extends BaseParser implements IJsonLikeParser {
 				theEventWriter.endArray();
 			}
 
-			if (!extensions.isEmpty()
-					|| !modifierExtensions.isEmpty()
-					|| (!comments.isEmpty() && isSupportsFhirComment())) {
+			if (extensions != null
+					&& (!extensions.isEmpty()
+							|| !modifierExtensions.isEmpty()
+							|| (!comments.isEmpty() && isSupportsFhirComment()))) {
 				if (inArray) {
 					// If this is a repeatable field, the extensions go in an array too
 					beginArray(theEventWriter, '_' + currentChildName);
@@ -1251,7 +1357,10 @@ public class JsonParser extends BaseParser implements IJsonLikeParser {
 	}
 
 	private BaseJsonLikeArray grabJsonArray(BaseJsonLikeObject theObject, String nextName, String thePosition) {
-		BaseJsonLikeValue object = theObject.get(nextName);
+		return grabJsonArray(theObject.get(nextName), thePosition);
+	}
+
+	private BaseJsonLikeArray grabJsonArray(BaseJsonLikeValue object, String thePosition) {
 		if (object == null || object.isNull()) {
 			return null;
 		}
@@ -1460,8 +1569,7 @@ public class JsonParser extends BaseParser implements IJsonLikeParser {
 			if (theState.isPreResource()) {
 				BaseJsonLikeValue resType = nextObject.get("resourceType");
 				if (resType == null || !resType.isString()) {
-					throw new DataFormatException(Msg.code(1843)
-							+ "Missing required element 'resourceType' from JSON resource object, unable to parse");
+					throw newMissingResourceTypeException();
 				}
 				theState.enteringNewElement(null, resType.getAsString());
 				preResource = true;
@@ -1485,6 +1593,346 @@ public class JsonParser extends BaseParser implements IJsonLikeParser {
 		}
 	}
 
+	/**
+	 * Streaming counterpart to {@link #parseChildren(BaseJsonLikeObject, ParserState)}. The parser must be
+	 * positioned on the first field name of the object (or on its closing token), and is left positioned
+	 * on the closing token of the object.
+	 * <p>
+	 * Primitive values (and arrays of primitives) are held back until the end of the object because
+	 * the matching <code>_name</code> property may appear after them. They are then processed using
+	 * the tree-based logic, so the only values which are fully streamed are complex elements. A
+	 * <code>_name</code> property which follows a streamed complex element is applied by re-entering
+	 * the element which was created for it.
+	 * </p>
+	 */
+	private void parseChildrenStreaming(com.fasterxml.jackson.core.JsonParser theParser, ParserState<?> theState)
+			throws IOException {
+		Map<String, JsonNode> alternates = null;
+		List<Pair<String, JsonNode>> deferredValues = null;
+		Map<String, Object> streamedObjects = null;
+		Map<String, List<Object>> streamedArrays = null;
+
+		for (JsonToken token = theParser.currentToken(); token == JsonToken.FIELD_NAME; token = theParser.nextToken()) {
+			String nextName = theParser.currentName();
+			JsonToken valueToken = theParser.nextToken();
+
+			if ("resourceType".equals(nextName) && theState.isToplevelResourceElement()) {
+				theParser.skipChildren();
+				continue;
+			} else if ("extension".equals(nextName)) {
+				BaseJsonLikeValue value = JacksonStructure.toJsonLikeValue(JacksonStructure.readValueAsTree(theParser));
+				parseExtension(theState, grabJsonArray(value, "extension"), false);
+				continue;
+			} else if ("modifierExtension".equals(nextName)) {
+				BaseJsonLikeValue value = JacksonStructure.toJsonLikeValue(JacksonStructure.readValueAsTree(theParser));
+				parseExtension(theState, grabJsonArray(value, "modifierExtension"), true);
+				continue;
+			} else if (nextName.equals("fhir_comments")) {
+				parseFhirComments(
+						JacksonStructure.toJsonLikeValue(JacksonStructure.readValueAsTree(theParser)), theState);
+				continue;
+			} else if (nextName.charAt(0) == '_') {
+				if (alternates == null) {
+					alternates = new LinkedHashMap<>();
+				}
+				JsonNode alternateVal = JacksonStructure.readValueAsTree(theParser);
+				alternates.put(nextName, alternateVal);
+				String name = nextName.substring(1);
+				if (streamedObjects != null && streamedObjects.containsKey(name)) {
+					parseLateAlternate(
+							theState,
+							streamedObjects.get(name),
+							JacksonStructure.toJsonLikeValue(alternateVal),
+							nextName);
+				} else if (streamedArrays != null && streamedArrays.containsKey(name)) {
+					parseLateAlternates(theState, streamedArrays.get(name), alternateVal, nextName);
+				}
+				continue;
+			}
+
+			String alternateName = '_' + nextName;
+			if (valueToken == JsonToken.START_OBJECT) {
+				JsonNode alternateVal = alternates != null ? alternates.get(alternateName) : null;
+				Object elementHandle = parseObjectStreaming(
+						theParser,
+						theState,
+						nextName,
+						JacksonStructure.toJsonLikeValue(alternateVal),
+						alternateName,
+						false);
+				if (streamedObjects == null) {
+					streamedObjects = new HashMap<>();
+				}
+				streamedObjects.put(nextName, elementHandle);
+			} else if (valueToken == JsonToken.START_ARRAY && theParser.nextToken() == JsonToken.START_OBJECT) {
+				JsonNode alternateVal = alternates != null ? alternates.get(alternateName) : null;
+				List<Object> elementHandles =
+						parseArrayStreaming(theParser, theState, nextName, alternateVal, alternateName);
+				if (streamedArrays == null) {
+					streamedArrays = new HashMap<>();
+				}
+				streamedArrays.put(nextName, elementHandles);
+			} else {
+				JsonNode value;
+				if (valueToken == JsonToken.START_ARRAY) {
+					value = JacksonStructure.readArrayRemainder(theParser);
+				} else {
+					value = JacksonStructure.readValueAsTree(theParser);
+				}
+				if (deferredValues == null) {
+					deferredValues = new ArrayList<>();
+				}
+				deferredValues.add(Pair.of(nextName, value));
+			}
+		}
+
+		Set<String> handledNames = null;
+		if (streamedObjects != null) {
+			handledNames = new HashSet<>(streamedObjects.keySet());
+		}
+		if (streamedArrays != null) {
+			handledNames = addAllToSet(handledNames, streamedArrays.keySet());
+		}
+		if (deferredValues != null) {
+			for (Pair<String, JsonNode> next : deferredValues) {
+				String nextName = next.getKey();
+				String alternateName = '_' + nextName;
+				JsonNode alternateVal = alternates != null ? alternates.get(alternateName) : null;
+				parseChildren(
+						theState,
+						nextName,
+						JacksonStructure.toJsonLikeValue(next.getValue()),
+						JacksonStructure.toJsonLikeValue(alternateVal),
+						alternateName,
+						false);
+				handledNames = addToSet(handledNames, nextName);
+			}
+		}
+
+		/*
+		 * This happens if an element has an extension but no actual value. I.e.
+		 * if a resource has a "_status" element but no corresponding "status"
+		 * element.
+		 */
+		if (alternates != null) {
+			for (Map.Entry<String, JsonNode> next : alternates.entrySet()) {
+				String alternateName = next.getKey();
+				if (alternateName.length() > 1) {
+					String nextName = alternateName.substring(1);
+					if (handledNames != null && handledNames.contains(nextName)) {
+						continue;
+					}
+
+					BaseJsonLikeValue nextValue = JacksonStructure.toJsonLikeValue(next.getValue());
+					if (nextValue.isObject()) {
+						theState.enteringNewElement(null, nextName);
+						parseAlternates(nextValue, theState, alternateName, alternateName);
+						theState.endingElement();
+					} else {
+						getErrorHandler()
+								.incorrectJsonType(
+										null, alternateName, ValueType.OBJECT, null, nextValue.getJsonType(), null);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Streams an array whose first element is an object. The parser must be positioned on the
+	 * opening token of that first element, and is left positioned on the closing token of the array.
+	 *
+	 * @return The handles of the elements which were created, as returned by {@link #parseObjectStreaming}
+	 */
+	private List<Object> parseArrayStreaming(
+			com.fasterxml.jackson.core.JsonParser theParser,
+			ParserState<?> theState,
+			String theName,
+			JsonNode theAlternateVal,
+			String theAlternateName)
+			throws IOException {
+		JsonNode alternateVal = theAlternateVal;
+		if (alternateVal != null && !alternateVal.isArray()) {
+			getErrorHandler()
+					.incorrectJsonType(
+							null,
+							theAlternateName,
+							ValueType.ARRAY,
+							null,
+							JacksonStructure.toJsonLikeValue(alternateVal).getJsonType(),
+							null);
+			alternateVal = null;
+		}
+
+		List<Object> elementHandles = new ArrayList<>();
+		int index = 0;
+		for (JsonToken token = theParser.currentToken();
+				token != null && token != JsonToken.END_ARRAY;
+				token = theParser.nextToken(), index++) {
+			BaseJsonLikeValue nextAlternate = null;
+			if (alternateVal != null && alternateVal.size() >= (index + 1)) {
+				nextAlternate = JacksonStructure.toJsonLikeValue(alternateVal.get(index));
+			}
+
+			if (token == JsonToken.START_OBJECT) {
+				elementHandles.add(
+						parseObjectStreaming(theParser, theState, theName, nextAlternate, theAlternateName, true));
+			} else {
+				BaseJsonLikeValue nextValue =
+						JacksonStructure.toJsonLikeValue(JacksonStructure.readValueAsTree(theParser));
+				parseChildren(theState, theName, nextValue, nextAlternate, theAlternateName, true);
+				elementHandles.add(null);
+			}
+		}
+		return elementHandles;
+	}
+
+	/**
+	 * Applies a <code>_name</code> array which appears after the array of objects it belongs to has
+	 * already been streamed, matching each entry to the element at the same index.
+	 */
+	private void parseLateAlternates(
+			ParserState<?> theState,
+			List<Object> theElementHandles,
+			JsonNode theAlternateVal,
+			String theAlternateName) {
+		if (!theAlternateVal.isArray()) {
+			getErrorHandler()
+					.incorrectJsonType(
+							null,
+							theAlternateName,
+							ValueType.ARRAY,
+							null,
+							JacksonStructure.toJsonLikeValue(theAlternateVal).getJsonType(),
+							null);
+			return;
+		}
+
+		for (int i = 0; i < theElementHandles.size() && i < theAlternateVal.size(); i++) {
+			parseLateAlternate(
+					theState,
+					theElementHandles.get(i),
+					JacksonStructure.toJsonLikeValue(theAlternateVal.get(i)),
+					theAlternateName);
+		}
+	}
+
+	/**
+	 * Applies a <code>_name</code> property which appears after the object it belongs to has already
+	 * been streamed, by re-entering the element which was created for that object. Any extensions it
+	 * contains are added after the extensions declared by the object itself.
+	 */
+	private void parseLateAlternate(
+			ParserState<?> theState,
+			Object theElementHandle,
+			BaseJsonLikeValue theAlternateVal,
+			String theAlternateName) {
+		if (theElementHandle == null) {
+			// The element isn't a composite (e.g. it was unknown and has been swallowed)
+			return;
+		}
+		theState.reenteringElement(theElementHandle);
+		parseAlternates(theAlternateVal, theState, theAlternateName, theAlternateName);
+		theState.endingElement();
+	}
+
+	/**
+	 * Streaming counterpart to the object branch of
+	 * {@link #parseChildren(ParserState, String, BaseJsonLikeValue, BaseJsonLikeValue, String, boolean)}.
+	 * The parser must be positioned on the opening token of the object, and is left positioned on
+	 * its closing token.
+	 *
+	 * @return A handle to the element which was created, as returned by
+	 * 	{@link ParserState#getCurrentElementHandle()}, so that a <code>_name</code> property which
+	 * 	follows the object can still be applied to it
+	 */
+	private Object parseObjectStreaming(
+			com.fasterxml.jackson.core.JsonParser theParser,
+			ParserState<?> theState,
+			String theName,
+			BaseJsonLikeValue theAlternateVal,
+			String theAlternateName,
+			boolean theInArray)
+			throws IOException {
+		if (theName.equals("id")) {
+			getErrorHandler()
+					.incorrectJsonType(null, "id", ValueType.SCALAR, ScalarType.STRING, ValueType.OBJECT, null);
+		}
+		if (!theInArray && theState.elementIsRepeating(theName)) {
+			getErrorHandler().incorrectJsonType(null, theName, ValueType.ARRAY, null, ValueType.OBJECT, null);
+		}
+
+		theState.enteringNewElement(null, theName);
+		Object elementHandle = theState.getCurrentElementHandle();
+		parseAlternates(theAlternateVal, theState, theAlternateName, theAlternateName);
+
+		JsonToken token = theParser.nextToken();
+		if (theState.isPreResource()) {
+			if (token == JsonToken.FIELD_NAME && "resourceType".equals(theParser.currentName())) {
+				if (theParser.nextToken() != JsonToken.VALUE_STRING) {
+					throw newMissingResourceTypeException();
+				}
+				theState.enteringNewElement(null, theParser.getText());
+				theParser.nextToken();
+				parseChildrenStreaming(theParser, theState);
+			} else {
+				// The resource type isn't first, so this resource can't be streamed
+				BaseJsonLikeObject nextObject = JacksonStructure.toJsonLikeValue(
+								JacksonStructure.readObjectRemainder(theParser, null))
+						.getAsObject();
+				BaseJsonLikeValue resType = nextObject.get("resourceType");
+				if (resType == null || !resType.isString()) {
+					throw newMissingResourceTypeException();
+				}
+				theState.enteringNewElement(null, resType.getAsString());
+				parseChildren(nextObject, theState);
+			}
+			theState.endingElement();
+		} else {
+			parseChildrenStreaming(theParser, theState);
+		}
+		theState.endingElement();
+		return elementHandle;
+	}
+
+	private static Set<String> addToSet(Set<String> theSet, String theValue) {
+		Set<String> retVal = theSet;
+		if (retVal == null) {
+			retVal = new HashSet<>();
+		}
+		retVal.add(theValue);
+		return retVal;
+	}
+
+	private static Set<String> addAllToSet(Set<String> theSet, Set<String> theValues) {
+		Set<String> retVal = theSet;
+		if (retVal == null) {
+			retVal = new HashSet<>();
+		}
+		retVal.addAll(theValues);
+		return retVal;
+	}
+
+	private static DataFormatException newMissingResourceTypeException() {
+		return new DataFormatException(
+				Msg.code(1843) + "Missing required element 'resourceType' from JSON resource object, unable to parse");
+	}
+
+	private void verifyNoTrailingTokens(com.fasterxml.jackson.core.JsonParser theParser) throws IOException {
+		JsonToken trailingToken = theParser.nextToken();
+		if (trailingToken != null) {
+			throw new DataFormatException(
+					Msg.code(2739) + "Failed to parse JSON encoded FHIR content: Trailing token (of type "
+							+ trailingToken + ") found after value\n at ["
+							+ theParser.currentLocation().offsetDescription()
+							+ "]");
+		}
+	}
+
+	private boolean isStreamingJsonParsingEnabled() {
+		return getContext().getParserOptions().isStreamingJsonParsingEnabled();
+	}
+
 	private void parseExtension(ParserState<?> theState, BaseJsonLikeArray theValues, boolean theIsModifier) {
 		int allUnderscoreNames = 0;
 		int handledUnderscoreNames = 0;
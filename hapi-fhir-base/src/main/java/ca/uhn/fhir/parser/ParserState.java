@@ -144,6 +144,25 @@ class ParserState<T> {
 		myState.enteringNewElementExtension(theElem, theUrlAttr, theIsModifier, baseServerUrl);
 	}
 
+	/**
+	 * Returns a handle to the composite element currently being parsed, or <code>null</code> if the
+	 * current element isn't a composite. The handle can be passed to {@link #reenteringElement(Object)}
+	 * once the element has ended in order to add content which appears later in the source, such as a
+	 * JSON <code>_name</code> property which follows its <code>name</code> property.
+	 */
+	Object getCurrentElementHandle() {
+		return myState instanceof ParserState.ElementCompositeState ? myState : null;
+	}
+
+	/**
+	 * Re-enters an element which has already ended, using a handle returned by
+	 * {@link #getCurrentElementHandle()} while that element was current. This must be called while
+	 * the parent of that element is current, and must be followed by a call to {@link #endingElement()}.
+	 */
+	void reenteringElement(Object theElementHandle) {
+		push((BaseState) theElementHandle);
+	}
+
 	public T getObject() {
 		return myObject;
 	}
@@ -29,11 +29,13 @@ import ca.uhn.fhir.parser.json.JsonLikeStructure;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.StreamReadConstraints;
 import com.fasterxml.jackson.core.json.JsonReadFeature;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.json.JsonMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.DecimalNode;
@@ -54,6 +56,13 @@ import java.util.Map;
 public class JacksonStructure implements JsonLikeStructure {
 
 	private static final ObjectMapper OBJECT_MAPPER = createObjectMapper();
+	/**
+	 * Used by the streaming parser, which reads individual values as trees from the middle of a
+	 * document, so trailing content is expected after each value.
+	 */
+	private static final ObjectReader STREAMING_READER =
+			OBJECT_MAPPER.reader().without(DeserializationFeature.FAIL_ON_TRAILING_TOKENS);
+
 	private JacksonWriter jacksonWriter;
 	private ROOT_TYPE rootType = null;
 	private JsonNode nativeRoot = null;
@@ -82,72 +91,165 @@ public class JacksonStructure implements JsonLikeStructure {
 	@Override
 	public void load(Reader theReader, boolean allowArray) throws DataFormatException {
 		PushbackReader pbr = new PushbackReader(theReader);
-		int nextInt;
 		try {
-			while (true) {
-				nextInt = pbr.read();
-				if (nextInt == -1) {
-					throw new DataFormatException(Msg.code(1857) + "Did not find any content to parse");
-				}
-				if (nextInt == '{') {
-					pbr.unread(nextInt);
-					break;
-				}
-				if (Character.isWhitespace(nextInt)) {
-					continue;
-				}
-				if (allowArray) {
-					if (nextInt == '[') {
-						pbr.unread(nextInt);
-						break;
-					}
-					throw new DataFormatException(Msg.code(1858)
-							+ "Content does not appear to be FHIR JSON, first non-whitespace character was: '"
-							+ (char) nextInt + "' (must be '{' or '[')");
-				}
-				throw new DataFormatException(Msg.code(1859)
-						+ "Content does not appear to be FHIR JSON, first non-whitespace character was: '"
-						+ (char) nextInt + "' (must be '{')");
-			}
-
+			int nextInt = readFirstCharacter(pbr, allowArray);
 			if (nextInt == '{') {
 				setNativeObject((ObjectNode) OBJECT_MAPPER.readTree(pbr));
 			} else {
 				setNativeArray((ArrayNode) OBJECT_MAPPER.readTree(pbr));
 			}
 		} catch (Exception e) {
-			String message;
-			if (e instanceof JsonProcessingException) {
-				/*
-				 * Currently there is no way of preventing Jackson from adding this
-				 * annoying REDACTED message from certain messages we get back from
-				 * the parser, so we just manually strip them. Hopefully Jackson
-				 * will accept this request at some point:
-				 * https://github.com/FasterXML/jackson-core/issues/1158
-				 */
-				JsonProcessingException jpe = (JsonProcessingException) e;
-				StringBuilder messageBuilder = new StringBuilder();
-				String originalMessage = jpe.getOriginalMessage();
-				originalMessage = originalMessage.replace(
-						"Source: REDACTED (`StreamReadFeature.INCLUDE_SOURCE_IN_LOCATION` disabled); ", "");
-				messageBuilder.append(originalMessage);
-				if (jpe.getLocation() != null) {
-					messageBuilder.append("\n at [");
-					jpe.getLocation().appendOffsetDescription(messageBuilder);
-					messageBuilder.append("]");
-				}
-				message = messageBuilder.toString();
-			} else {
-				message = e.getMessage();
+			throw newParseException(e);
+		}
+	}
+
+	/**
+	 * Creates a Jackson token parser over the given content without building a tree. The same
+	 * leading-content checks that {@link #load(Reader)} applies are performed before the parser
+	 * is returned, and the returned parser has not yet been advanced to its first token.
+	 *
+	 * @since 8.4.0
+	 */
+	public static JsonParser createStreamingParser(Reader theReader) throws DataFormatException {
+		PushbackReader pbr = new PushbackReader(theReader);
+		try {
+			readFirstCharacter(pbr, false);
+			return OBJECT_MAPPER.createParser(pbr);
+		} catch (Exception e) {
+			throw newParseException(e);
+		}
+	}
+
+	/**
+	 * Reads the remainder of the JSON object the parser is currently inside of into a tree.
+	 * If <code>theFieldName</code> is supplied, the parser must be positioned on the value of that
+	 * field, otherwise it must be positioned on a field name or on the closing token of the object.
+	 * On return the parser is positioned on the closing token of the object.
+	 *
+	 * @since 8.4.0
+	 */
+	public static ObjectNode readObjectRemainder(JsonParser theParser, String theFieldName) throws IOException {
+		ObjectNode retVal = OBJECT_MAPPER.createObjectNode();
+		JsonToken token = theParser.currentToken();
+		if (theFieldName != null) {
+			retVal.set(theFieldName, readValueAsTree(theParser));
+			token = theParser.nextToken();
+		}
+		while (token == JsonToken.FIELD_NAME) {
+			String name = theParser.currentName();
+			theParser.nextToken();
+			retVal.set(name, readValueAsTree(theParser));
+			token = theParser.nextToken();
+		}
+		return retVal;
+	}
+
+	/**
+	 * Reads the remainder of the JSON array the parser is currently inside of into a tree. The
+	 * parser must be positioned on the first element which has not yet been read, or on the
+	 * closing token of the array. On return the parser is positioned on the closing token of the array.
+	 *
+	 * @since 8.4.0
+	 */
+	public static ArrayNode readArrayRemainder(JsonParser theParser) throws IOException {
+		ArrayNode retVal = OBJECT_MAPPER.createArrayNode();
+		for (JsonToken token = theParser.currentToken();
+				token != null && token != JsonToken.END_ARRAY;
+				token = theParser.nextToken()) {
+			retVal.add(readValueAsTree(theParser));
+		}
+		return retVal;
+	}
+
+	/**
+	 * Reads the value the parser is currently positioned on into a tree. On return the parser
+	 * is positioned on the last token of the value.
+	 *
+	 * @since 8.4.0
+	 */
+	public static JsonNode readValueAsTree(JsonParser theParser) throws IOException {
+		return STREAMING_READER.readTree(theParser);
+	}
+
+	/**
+	 * Wraps a native Jackson node so that it can be consumed by code which works against
+	 * the {@link BaseJsonLikeValue} abstraction.
+	 *
+	 * @since 8.4.0
+	 */
+	public static BaseJsonLikeValue toJsonLikeValue(JsonNode theNode) {
+		if (theNode == null) {
+			return null;
+		}
+		return new JacksonJsonValue(theNode);
+	}
+
+	/**
+	 * Converts an exception thrown by Jackson while reading content into the
+	 * {@link DataFormatException} that is thrown to parser callers.
+	 *
+	 * @since 8.4.0
+	 */
+	public static DataFormatException newParseException(Exception e) {
+		String message;
+		if (e instanceof JsonProcessingException) {
+			/*
+			 * Currently there is no way of preventing Jackson from adding this
+			 * annoying REDACTED message from certain messages we get back from
+			 * the parser, so we just manually strip them. Hopefully Jackson
+			 * will accept this request at some point:
+			 * https://github.com/FasterXML/jackson-core/issues/1158
+			 */
+			JsonProcessingException jpe = (JsonProcessingException) e;
+			StringBuilder messageBuilder = new StringBuilder();
+			String originalMessage = jpe.getOriginalMessage();
+			originalMessage = originalMessage.replace(
+					"Source: REDACTED (`StreamReadFeature.INCLUDE_SOURCE_IN_LOCATION` disabled); ", "");
+			messageBuilder.append(originalMessage);
+			if (jpe.getLocation() != null) {
+				messageBuilder.append("\n at [");
+				jpe.getLocation().appendOffsetDescription(messageBuilder);
+				messageBuilder.append("]");
 			}
+			message = messageBuilder.toString();
+		} else {
+			message = e.getMessage();
+		}
+
+		if (message.startsWith("Unexpected char 39")) {
+			return new DataFormatException(
+					Msg.code(1860) + "Failed to parse JSON encoded FHIR content: " + message + " - "
+							+ "This may indicate that single quotes are being used as JSON escapes where double quotes are required",
+					e);
+		}
+		return new DataFormatException(Msg.code(1861) + "Failed to parse JSON encoded FHIR content: " + message, e);
+	}
 
-			if (message.startsWith("Unexpected char 39")) {
-				throw new DataFormatException(
-						Msg.code(1860) + "Failed to parse JSON encoded FHIR content: " + message + " - "
-								+ "This may indicate that single quotes are being used as JSON escapes where double quotes are required",
-						e);
+	private static int readFirstCharacter(PushbackReader thePushbackReader, boolean theAllowArray) throws IOException {
+		while (true) {
+			int nextInt = thePushbackReader.read();
+			if (nextInt == -1) {
+				throw new DataFormatException(Msg.code(1857) + "Did not find any content to parse");
+			}
+			if (nextInt == '{') {
+				thePushbackReader.unread(nextInt);
+				return nextInt;
+			}
+			if (Character.isWhitespace(nextInt)) {
+				continue;
+			}
+			if (theAllowArray) {
+				if (nextInt == '[') {
+					thePushbackReader.unread(nextInt);
+					return nextInt;
+				}
+				throw new DataFormatException(Msg.code(1858)
+						+ "Content does not appear to be FHIR JSON, first non-whitespace character was: '"
+						+ (char) nextInt + "' (must be '{' or '[')");
 			}
-			throw new DataFormatException(Msg.code(1861) + "Failed to parse JSON encoded FHIR content: " + message, e);
+			throw new DataFormatException(Msg.code(1859)
+					+ "Content does not appear to be FHIR JSON, first non-whitespace character was: '"
+					+ (char) nextInt + "' (must be '{')");
 		}
 	}
 
@@ -22,6 +22,7 @@ package ca.uhn.fhir.parser.json.jackson;
 import ca.uhn.fhir.parser.json.BaseJsonLikeWriter;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
 import com.fasterxml.jackson.core.util.DefaultIndenter;
 import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
 import com.fasterxml.jackson.core.util.Separators;
@@ -30,9 +31,19 @@ import java.io.IOException;
 import java.io.Writer;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class JacksonWriter extends BaseJsonLikeWriter {
 
+	private static final int MAX_CACHED_NAMES = 10000;
+
+	/**
+	 * Property names are drawn from the (finite) set of element names in the FHIR model, so we
+	 * keep a pre-quoted copy of each one. This lets Jackson copy the already escaped characters
+	 * straight into its output buffer instead of re-escaping the name every time it is written.
+	 */
+	private static final ConcurrentHashMap<String, SerializedString> ourSerializedNames = new ConcurrentHashMap<>();
+
 	private JsonGenerator myJsonGenerator;
 
 	public JacksonWriter(JsonFactory theJsonFactory, Writer theWriter) throws IOException {
@@ -79,55 +90,61 @@ public class JacksonWriter extends BaseJsonLikeWriter {
 
 	@Override
 	public BaseJsonLikeWriter beginObject(String name) throws IOException {
-		myJsonGenerator.writeObjectFieldStart(name);
+		myJsonGenerator.writeFieldName(toSerializedName(name));
+		myJsonGenerator.writeStartObject();
 		return this;
 	}
 
 	@Override
 	public BaseJsonLikeWriter beginArray(String name) throws IOException {
-		myJsonGenerator.writeArrayFieldStart(name);
+		myJsonGenerator.writeFieldName(toSerializedName(name));
+		myJsonGenerator.writeStartArray();
 		return this;
 	}
 
 	@Override
 	public BaseJsonLikeWriter write(String value) throws IOException {
-		myJsonGenerator.writeObject(value);
+		myJsonGenerator.writeString(value);
 		return this;
 	}
 
 	@Override
 	public BaseJsonLikeWriter write(BigInteger value) throws IOException {
-		myJsonGenerator.writeObject(value);
+		myJsonGenerator.writeNumber(value);
 		return this;
 	}
 
 	@Override
 	public BaseJsonLikeWriter write(BigDecimal value) throws IOException {
-		myJsonGenerator.writeObject(value);
+		myJsonGenerator.writeNumber(value);
 		return this;
 	}
 
 	@Override
 	public BaseJsonLikeWriter write(long value) throws IOException {
-		myJsonGenerator.writeObject(value);
+		myJsonGenerator.writeNumber(value);
 		return this;
 	}
 
 	@Override
 	public BaseJsonLikeWriter write(double value) throws IOException {
-		myJsonGenerator.writeObject(value);
+		myJsonGenerator.writeNumber(value);
 		return this;
 	}
 
 	@Override
 	public BaseJsonLikeWriter write(Boolean value) throws IOException {
-		myJsonGenerator.writeObject(value);
+		if (value == null) {
+			myJsonGenerator.writeNull();
+		} else {
+			myJsonGenerator.writeBoolean(value);
+		}
 		return this;
 	}
 
 	@Override
 	public BaseJsonLikeWriter write(boolean value) throws IOException {
-		myJsonGenerator.writeObject(value);
+		myJsonGenerator.writeBoolean(value);
 		return this;
 	}
 
@@ -139,43 +156,50 @@ public class JacksonWriter extends BaseJsonLikeWriter {
 
 	@Override
 	public BaseJsonLikeWriter write(String name, String value) throws IOException {
-		myJsonGenerator.writeObjectField(name, value);
+		myJsonGenerator.writeFieldName(toSerializedName(name));
+		write(value);
 		return this;
 	}
 
 	@Override
 	public BaseJsonLikeWriter write(String name, BigInteger value) throws IOException {
-		myJsonGenerator.writeObjectField(name, value);
+		myJsonGenerator.writeFieldName(toSerializedName(name));
+		write(value);
 		return this;
 	}
 
 	@Override
 	public BaseJsonLikeWriter write(String name, BigDecimal value) throws IOException {
-		myJsonGenerator.writeObjectField(name, value);
+		myJsonGenerator.writeFieldName(toSerializedName(name));
+		write(value);
 		return this;
 	}
 
 	@Override
 	public BaseJsonLikeWriter write(String name, long value) throws IOException {
-		myJsonGenerator.writeObjectField(name, value);
+		myJsonGenerator.writeFieldName(toSerializedName(name));
+		write(value);
 		return this;
 	}
 
 	@Override
 	public BaseJsonLikeWriter write(String name, double value) throws IOException {
-		myJsonGenerator.writeObjectField(name, value);
+		myJsonGenerator.writeFieldName(toSerializedName(name));
+		write(value);
 		return this;
 	}
 
 	@Override
 	public BaseJsonLikeWriter write(String name, Boolean value) throws IOException {
-		myJsonGenerator.writeObjectField(name, value);
+		myJsonGenerator.writeFieldName(toSerializedName(name));
+		write(value);
 		return this;
 	}
 
 	@Override
 	public BaseJsonLikeWriter write(String name, boolean value) throws IOException {
-		myJsonGenerator.writeObjectField(name, value);
+		myJsonGenerator.writeFieldName(toSerializedName(name));
+		write(value);
 		return this;
 	}
 
@@ -196,4 +220,15 @@ public class JacksonWriter extends BaseJsonLikeWriter {
 		myJsonGenerator.writeEndObject();
 		return this;
 	}
+
+	private static SerializedString toSerializedName(String theName) {
+		SerializedString retVal = ourSerializedNames.get(theName);
+		if (retVal == null) {
+			retVal = new SerializedString(theName);
+			if (ourSerializedNames.size() < MAX_CACHED_NAMES) {
+				ourSerializedNames.putIfAbsent(theName, retVal);
+			}
+		}
+		return retVal;
+	}
 }
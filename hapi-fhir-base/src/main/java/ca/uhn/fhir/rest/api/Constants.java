@@ -220,6 +220,13 @@ public class Constants {
 	public static final String PARAM_CONTENT_URL = "http://hl7.org/fhir/SearchParameter/Resource-content";
 	public static final String PARAM_COUNT = "_count";
 	public static final String PARAM_OFFSET = "_offset";
+	/**
+	 * Opaque continuation token used by servers supporting keyset (seek) paging
+	 * for offset searches. The value is generated by the server and should be
+	 * treated as opaque by clients.
+	 */
+	public static final String PARAM_SEARCH_AFTER = "_searchAfter";
+
 	public static final String PARAM_DELETE = "_delete";
 	public static final String PARAM_ELEMENTS = "_elements";
 	public static final String PARAM_ELEMENTS_EXCLUDE_MODIFIER = ":exclude";
@@ -292,6 +299,7 @@ public class Constants {
 
 	public static final int STATUS_HTTP_404_NOT_FOUND = 404;
 	public static final int STATUS_HTTP_405_METHOD_NOT_ALLOWED = 405;
+	public static final int STATUS_HTTP_406_NOT_ACCEPTABLE = 406;
 	public static final int STATUS_HTTP_409_CONFLICT = 409;
 	public static final int STATUS_HTTP_410_GONE = 410;
 	public static final int STATUS_HTTP_412_PRECONDITION_FAILED = 412;
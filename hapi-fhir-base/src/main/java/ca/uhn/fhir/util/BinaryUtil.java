@@ -24,8 +24,11 @@ import ca.uhn.fhir.context.BaseRuntimeElementDefinition;
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.context.FhirVersionEnum;
 import ca.uhn.fhir.context.RuntimeResourceDefinition;
+import jakarta.annotation.Nullable;
 import org.hl7.fhir.instance.model.api.IBase;
 import org.hl7.fhir.instance.model.api.IBaseBinary;
+import org.hl7.fhir.instance.model.api.IBaseExtension;
+import org.hl7.fhir.instance.model.api.IBaseHasExtensions;
 import org.hl7.fhir.instance.model.api.IBaseReference;
 import org.hl7.fhir.instance.model.api.IPrimitiveType;
 
@@ -57,6 +60,41 @@ public class BinaryUtil {
 		});
 	}
 
+	/**
+	 * Returns the HTTP content coding (e.g. <code>gzip</code>) that has been applied to the content
+	 * of the given Binary, as declared by the {@link HapiExtensions#EXT_BINARY_CONTENT_ENCODING}
+	 * extension on <code>Binary.meta</code>, or <code>null</code> if the content is not encoded.
+	 *
+	 * @since 8.4.0
+	 */
+	@Nullable
+	public static String getContentEncoding(IBaseBinary theBinary) {
+		if (theBinary.getMeta() instanceof IBaseHasExtensions) {
+			for (IBaseExtension<?, ?> next : ((IBaseHasExtensions) theBinary.getMeta()).getExtension()) {
+				if (HapiExtensions.EXT_BINARY_CONTENT_ENCODING.equals(next.getUrl())
+						&& next.getValue() instanceof IPrimitiveType) {
+					return ((IPrimitiveType<?>) next.getValue()).getValueAsString();
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Declares that the content of the given Binary has been compressed using the given HTTP
+	 * content coding (e.g. <code>gzip</code>). Note that this has no effect on DSTU2 structures,
+	 * since their metadata can not carry extensions.
+	 *
+	 * @since 8.4.0
+	 */
+	public static void setContentEncoding(FhirContext theCtx, IBaseBinary theBinary, String theContentEncoding) {
+		if (theBinary.getMeta() instanceof IBaseHasExtensions) {
+			IBaseExtension<?, ?> extension = ((IBaseHasExtensions) theBinary.getMeta()).addExtension();
+			extension.setUrl(HapiExtensions.EXT_BINARY_CONTENT_ENCODING);
+			extension.setValue(theCtx.newPrimitiveString(theContentEncoding));
+		}
+	}
+
 	public static IBaseReference getSecurityContext(FhirContext theCtx, IBaseBinary theBinary) {
 		RuntimeResourceDefinition def = theCtx.getResourceDefinition("Binary");
 		BaseRuntimeChildDefinition child = def.getChildByName("securityContext");
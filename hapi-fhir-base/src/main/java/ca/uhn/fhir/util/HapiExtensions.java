@@ -81,6 +81,15 @@ public class HapiExtensions {
 	public static final String EXT_EXTERNALIZED_BINARY_ID =
 			"http://hapifhir.io/fhir/StructureDefinition/externalized-binary-id";
 
+	/**
+	 * Extension placed on <code>Binary.meta</code> to indicate that the Binary content has been
+	 * compressed using the given HTTP content coding (e.g. <code>gzip</code>)
+	 *
+	 * @since 8.4.0
+	 */
+	public static final String EXT_BINARY_CONTENT_ENCODING =
+			"http://hapifhir.io/fhir/StructureDefinition/binary-content-encoding";
+
 	/**
 	 * For subscription, deliver a bundle containing a search result instead of just a single resource
 	 */
@@ -70,6 +70,72 @@ class InterceptorServiceTest {
 
 	}
 
+	@Test
+	void testInterceptorArgumentsBoundByTypeAndPosition() {
+
+		class InterceptorCapturingArguments {
+			private final List<Object> myArguments = new ArrayList<>();
+
+			@Hook(Pointcut.TEST_RB)
+			public boolean test(String theValue0, Pointcut thePointcut, String theValue1) {
+				myArguments.add(theValue0);
+				myArguments.add(thePointcut);
+				myArguments.add(theValue1);
+				return false;
+			}
+		}
+
+		InterceptorService svc = new InterceptorService();
+		InterceptorCapturingArguments interceptor = new InterceptorCapturingArguments();
+		svc.registerInterceptor(interceptor);
+
+		assertFalse(svc.callHooks(Pointcut.TEST_RB, new HookParams("A", "B")));
+		assertThat(interceptor.myArguments).containsExactly("A", Pointcut.TEST_RB, "B");
+	}
+
+	@Test
+	void testInterceptorThrowsCheckedException() {
+
+		class InterceptorThrowingCheckedException {
+			@Hook(Pointcut.TEST_RB)
+			public void test(String theValue) throws Exception {
+				throw new Exception(theValue);
+			}
+		}
+
+		InterceptorService svc = new InterceptorService();
+		svc.registerInterceptor(new InterceptorThrowingCheckedException());
+
+		assertThatThrownBy(() -> svc.callHooks(Pointcut.TEST_RB, new HookParams("A MESSAGE", "B")))
+			.isInstanceOf(InternalErrorException.class)
+			.hasMessageStartingWith(Msg.code(1910) + "Failure invoking interceptor for pointcut(s) TEST_RB")
+			.hasRootCauseMessage("A MESSAGE");
+	}
+
+	@Test
+	void testInvokersForPointcutAreStableSnapshot() {
+
+		class InterceptorWithOrder {
+			@Hook(value = Pointcut.TEST_RB, order = 10)
+			public void test(String theValue) {
+				// nothing
+			}
+		}
+
+		InterceptorService svc = new InterceptorService();
+		svc.registerInterceptor(new InterceptorWithOrder());
+		svc.registerAnonymousInterceptor(Pointcut.TEST_RB, 5, (thePointcut, theArgs) -> {});
+
+		List<IBaseInterceptorBroadcaster.IInvoker> invokers = svc.getInvokersForPointcut(Pointcut.TEST_RB);
+		assertThat(invokers).extracting(IBaseInterceptorBroadcaster.IInvoker::getOrder).containsExactly(5, 10);
+		assertThatThrownBy(() -> invokers.remove(0)).isInstanceOf(UnsupportedOperationException.class);
+
+		svc.unregisterAllInterceptors();
+		assertThat(invokers).hasSize(2);
+		assertThat(svc.getInvokersForPointcut(Pointcut.TEST_RB)).isEmpty();
+		assertFalse(svc.hasHooks(Pointcut.TEST_RB));
+	}
+
 	@Test
 	void testInterceptorReturnsClass() {
 
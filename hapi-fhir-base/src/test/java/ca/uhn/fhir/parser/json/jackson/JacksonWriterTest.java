@@ -0,0 +1,47 @@
+package ca.uhn.fhir.parser.json.jackson;
+
+import ca.uhn.fhir.parser.json.BaseJsonLikeWriter;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class JacksonWriterTest {
+
+	@Test
+	public void testWriteAllValueTypes() throws Exception {
+		StringWriter stringWriter = new StringWriter();
+		BaseJsonLikeWriter writer = new JacksonStructure().getJsonLikeWriter(stringWriter);
+		writer.init();
+
+		writer.beginObject();
+		writer.write("string", "a \"quoted\" value");
+		writer.write("nullString", (String) null);
+		writer.write("bigInteger", new BigInteger("12345678901234567890"));
+		writer.write("bigDecimal", new BigDecimal("1.500"));
+		writer.write("long", 123L);
+		writer.write("double", 1.5d);
+		writer.write("boolean", true);
+		writer.write("boxedBoolean", Boolean.FALSE);
+		writer.write("nullBoolean", (Boolean) null);
+		writer.beginArray("array");
+		writer.write("element");
+		writer.write(new BigDecimal("0.10"));
+		writer.write(false);
+		writer.writeNull();
+		writer.endArray();
+		writer.beginObject("na\"me");
+		writer.endObject();
+		writer.endObject();
+		writer.close();
+
+		assertEquals("{\"string\":\"a \\\"quoted\\\" value\",\"nullString\":null,"
+				+ "\"bigInteger\":12345678901234567890,\"bigDecimal\":1.500,\"long\":123,\"double\":1.5,"
+				+ "\"boolean\":true,\"boxedBoolean\":false,\"nullBoolean\":null,"
+				+ "\"array\":[\"element\",0.10,false,null],\"na\\\"me\":{}}", stringWriter.toString());
+	}
+
+}
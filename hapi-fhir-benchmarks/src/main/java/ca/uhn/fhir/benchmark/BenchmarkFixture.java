@@ -0,0 +1,62 @@
+package ca.uhn.fhir.benchmark;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.util.ClasspathUtil;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Resource;
+
+/**
+ * Realistic R4 content used as input by the benchmark suites. The fixtures are
+ * loaded from the classpath (or derived deterministically from classpath content)
+ * so that results are comparable between runs and between releases.
+ */
+public enum BenchmarkFixture {
+
+	/**
+	 * A single US Core Patient with extensions, identifiers, names and addresses
+	 */
+	US_CORE_PATIENT("/benchmark-fixtures/us-core-patient.json", 1),
+
+	/**
+	 * A US Core transaction Bundle containing a mix of clinical and administrative resources
+	 */
+	US_CORE_TRANSACTION_BUNDLE("/benchmark-fixtures/us-core-transaction-bundle.json", 1),
+
+	/**
+	 * A large searchset Bundle made by repeating the entries of {@link #US_CORE_TRANSACTION_BUNDLE}
+	 */
+	LARGE_SEARCHSET_BUNDLE("/benchmark-fixtures/us-core-transaction-bundle.json", 50);
+
+	private final String myClasspath;
+	private final int myRepetitions;
+
+	BenchmarkFixture(String theClasspath, int theRepetitions) {
+		myClasspath = theClasspath;
+		myRepetitions = theRepetitions;
+	}
+
+	/**
+	 * Returns a newly parsed copy of this fixture
+	 */
+	public IBaseResource load(FhirContext theCtx) {
+		String json = ClasspathUtil.loadResource(myClasspath);
+		IBaseResource resource = theCtx.newJsonParser().parseResource(json);
+		if (myRepetitions == 1) {
+			return resource;
+		}
+
+		Bundle source = (Bundle) resource;
+		Bundle retVal = new Bundle();
+		retVal.setType(Bundle.BundleType.SEARCHSET);
+		for (int i = 0; i < myRepetitions; i++) {
+			for (Bundle.BundleEntryComponent nextEntry : source.getEntry()) {
+				Resource copy = nextEntry.getResource().copy();
+				copy.setId(copy.fhirType() + "/" + copy.getIdElement().getIdPart() + "-" + i);
+				retVal.addEntry().setFullUrl(copy.getId()).setResource(copy);
+			}
+		}
+		retVal.setTotal(retVal.getEntry().size());
+		return retVal;
+	}
+}
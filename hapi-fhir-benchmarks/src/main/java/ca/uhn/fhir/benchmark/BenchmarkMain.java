@@ -0,0 +1,39 @@
+package ca.uhn.fhir.benchmark;
+
+import ca.uhn.fhir.util.VersionUtil;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point for <code>benchmarks.jar</code>. Accepts the standard JMH command line
+ * options, but unless a result format is explicitly requested (using <code>-rf</code>)
+ * results are written as JSON to <code>jmh-result-[HAPI FHIR version].json</code> so
+ * that runs against different releases can be compared directly.
+ */
+public class BenchmarkMain {
+
+	public static void main(String[] theArgs) throws Exception {
+		CommandLineOptions commandLineOptions = new CommandLineOptions(theArgs);
+		if (commandLineOptions.shouldHelp()
+				|| commandLineOptions.shouldList()
+				|| commandLineOptions.shouldListWithParams()
+				|| commandLineOptions.shouldListProfilers()
+				|| commandLineOptions.shouldListResultFormats()) {
+			org.openjdk.jmh.Main.main(theArgs);
+			return;
+		}
+
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLineOptions);
+		if (!commandLineOptions.getResultFormat().hasValue()) {
+			options.resultFormat(ResultFormatType.JSON);
+			if (!commandLineOptions.getResult().hasValue()) {
+				options.result("jmh-result-" + VersionUtil.getVersion() + ".json");
+			}
+		}
+
+		new Runner(options.build()).run();
+	}
+}
@@ -0,0 +1,96 @@
+package ca.uhn.fhir.benchmark;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.IParser;
+import ca.uhn.fhir.rest.api.server.bulk.BulkExportOutputCompressionEnum;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
+import org.hl7.fhir.r4.model.Bundle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of the bulk export output compression codecs
+ * ({@link BulkExportOutputCompressionEnum}) when compressing and decompressing an
+ * NDJSON file containing 2000 synthetic Patient and Observation pairs. Each operation
+ * processes the whole file, so the throughput is the file size divided by the average time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BulkExportCompressionBenchmark {
+	@Param({"none", "gzip", "zstd"})
+	private String myCompression;
+
+	private BulkExportOutputCompressionEnum myCodec;
+	private byte[] myNdJson;
+	private byte[] myCompressed;
+
+	@Setup
+	public void setup() throws IOException {
+		FhirContext ctx = FhirContext.forR4Cached();
+		Bundle bundle = EncodingPlanBenchmark.createBundle(2000);
+		IParser parser = ctx.newJsonParser();
+		StringBuilder ndJson = new StringBuilder();
+		for (Bundle.BundleEntryComponent next : bundle.getEntry()) {
+			ndJson.append(parser.encodeResourceToString(next.getResource())).append('\n');
+		}
+		myNdJson = ndJson.toString().getBytes(StandardCharsets.UTF_8);
+
+		myCodec = BulkExportOutputCompressionEnum.fromContentEncoding(myCompression);
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		try (OutputStream os = newCompressingStream(compressed)) {
+			os.write(myNdJson);
+		}
+		myCompressed = compressed.toByteArray();
+	}
+
+	@Benchmark
+	public long compress() throws IOException {
+		CountingOutputStream counter = new CountingOutputStream(NullOutputStream.INSTANCE);
+		try (OutputStream os = newCompressingStream(counter)) {
+			// Written in resource sized chunks, the same way the export steps write
+			int chunkSize = 2048;
+			for (int offset = 0; offset < myNdJson.length; offset += chunkSize) {
+				os.write(myNdJson, offset, Math.min(chunkSize, myNdJson.length - offset));
+			}
+		}
+		return counter.getByteCount();
+	}
+
+	@Benchmark
+	public long decompress() throws IOException {
+		InputStream compressed = new ByteArrayInputStream(myCompressed);
+		try (InputStream is = myCodec != null ? myCodec.newDecompressingStream(compressed) : compressed) {
+			return IOUtils.consume(is);
+		}
+	}
+
+	private OutputStream newCompressingStream(OutputStream theOutputStream) throws IOException {
+		if (myCodec == null) {
+			return theOutputStream;
+		}
+		return myCodec.newCompressingStream(theOutputStream);
+	}
+}
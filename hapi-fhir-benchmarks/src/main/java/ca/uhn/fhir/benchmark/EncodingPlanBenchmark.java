@@ -0,0 +1,89 @@
+package ca.uhn.fhir.benchmark;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.IParser;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Enumerations;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.Quantity;
+import org.hl7.fhir.r4.model.Reference;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures encoding throughput with the precompiled encoding plans held by
+ * {@link FhirContext#getEncodingPlanCache()} enabled and disabled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EncodingPlanBenchmark {
+
+	@Param({"true", "false"})
+	private boolean myEncodingPlanCacheEnabled;
+
+	@Param({"false", "true"})
+	private boolean mySummaryMode;
+
+	private FhirContext myCtx;
+	private Bundle myBundle;
+
+	@Setup
+	public void setup() {
+		myCtx = FhirContext.forR4Cached();
+		myCtx.getParserOptions().setEncodingPlanCacheEnabled(myEncodingPlanCacheEnabled);
+		myBundle = createBundle(100);
+	}
+
+	@Benchmark
+	public String encodeJson() {
+		IParser parser = myCtx.newJsonParser().setSummaryMode(mySummaryMode);
+		return parser.encodeResourceToString(myBundle);
+	}
+
+	@Benchmark
+	public String encodeXml() {
+		IParser parser = myCtx.newXmlParser().setSummaryMode(mySummaryMode);
+		return parser.encodeResourceToString(myBundle);
+	}
+
+	static Bundle createBundle(int thePatientCount) {
+		Bundle bundle = new Bundle();
+		bundle.setType(Bundle.BundleType.SEARCHSET);
+		for (int i = 0; i < thePatientCount; i++) {
+			Patient patient = new Patient();
+			patient.setId("Patient/" + i);
+			patient.setActive(true);
+			patient.setGender(Enumerations.AdministrativeGender.FEMALE);
+			patient.addName().setFamily("Family" + i).addGiven("Given" + i);
+			patient.addIdentifier().setSystem("http://example.com/mrn").setValue("MRN" + i);
+			patient.addAddress().addLine(i + " Main Street").setCity("Toronto").setCountry("CA");
+			patient.getText().setDivAsString("<div>Patient " + i + "</div>");
+			bundle.addEntry().setFullUrl(patient.getId()).setResource(patient);
+
+			Observation observation = new Observation();
+			observation.setId("Observation/" + i);
+			observation.setStatus(Observation.ObservationStatus.FINAL);
+			observation.getCode().addCoding().setSystem("http://loinc.org").setCode("8867-4");
+			observation.setSubject(new Reference(patient.getId()));
+			observation.setValue(new Quantity().setValue(60 + (i % 40)).setUnit("/min"));
+			bundle.addEntry().setFullUrl(observation.getId()).setResource(observation);
+		}
+		return bundle;
+	}
+}
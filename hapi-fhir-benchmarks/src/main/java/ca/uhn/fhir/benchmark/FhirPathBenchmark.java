@@ -0,0 +1,62 @@
+package ca.uhn.fhir.benchmark;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.fhirpath.IFhirPath;
+import org.hl7.fhir.instance.model.api.IBase;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures FHIRPath evaluation against the {@link BenchmarkFixture#LARGE_SEARCHSET_BUNDLE} fixture,
+ * both with the expression parsed on every call and with a pre-parsed expression.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FhirPathBenchmark {
+
+	@Param({
+		"Bundle.entry.resource.ofType(Condition).code.coding.where(system = 'http://hl7.org/fhir/sid/icd-10-cm').code",
+		"Bundle.entry.resource.ofType(Encounter).where(status = 'finished').count()",
+		"Bundle.entry.resource.descendants().ofType(Reference).reference"
+	})
+	private String myExpression;
+
+	private IFhirPath myFhirPath;
+	private IFhirPath.IParsedExpression myParsedExpression;
+	private IBaseResource myResource;
+
+	@Setup
+	public void setup() throws Exception {
+		FhirContext ctx = FhirContext.forR4Cached();
+		myFhirPath = ctx.newFhirPath();
+		myParsedExpression = myFhirPath.parse(myExpression);
+		myResource = BenchmarkFixture.LARGE_SEARCHSET_BUNDLE.load(ctx);
+	}
+
+	@Benchmark
+	public List<IBase> evaluate() {
+		return myFhirPath.evaluate(myResource, myExpression, IBase.class);
+	}
+
+	@Benchmark
+	public List<IBase> evaluatePreParsed() {
+		return myFhirPath.evaluate(myResource, myParsedExpression, IBase.class);
+	}
+}
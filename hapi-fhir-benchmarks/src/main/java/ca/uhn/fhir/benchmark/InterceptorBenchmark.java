@@ -0,0 +1,113 @@
+package ca.uhn.fhir.benchmark;
+
+import ca.uhn.fhir.interceptor.api.Hook;
+import ca.uhn.fhir.interceptor.api.HookParams;
+import ca.uhn.fhir.interceptor.api.IAnonymousInterceptor;
+import ca.uhn.fhir.interceptor.api.Interceptor;
+import ca.uhn.fhir.interceptor.api.Pointcut;
+import ca.uhn.fhir.interceptor.executor.InterceptorService;
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.rest.api.server.SystemRequestDetails;
+import ca.uhn.fhir.rest.api.server.storage.TransactionDetails;
+import ca.uhn.fhir.rest.server.servlet.ServletRequestDetails;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.Patient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of invoking hooks through {@link InterceptorService#callHooks(Pointcut, HookParams)}
+ * using the same parameters the JPA server supplies for
+ * {@link Pointcut#STORAGE_PRESTORAGE_RESOURCE_CREATED}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InterceptorBenchmark {
+
+	@Param({"0", "1", "10"})
+	private int myInterceptorCount;
+
+	private InterceptorService myInterceptorService;
+	private HookParams myHookParams;
+	private final IAnonymousInterceptor myAnonymousInterceptor = (thePointcut, theArgs) -> {};
+
+	@Setup
+	public void setup() {
+		myInterceptorService = new InterceptorService();
+		for (int i = 0; i < myInterceptorCount; i++) {
+			myInterceptorService.registerInterceptor(new PreStorageInterceptor());
+		}
+
+		RequestDetails requestDetails = new SystemRequestDetails();
+		myHookParams = new HookParams()
+				.add(IBaseResource.class, new Patient().setActive(true))
+				.add(RequestDetails.class, requestDetails)
+				.addIfMatchesType(ServletRequestDetails.class, requestDetails)
+				.add(RequestPartitionId.class, RequestPartitionId.defaultPartition())
+				.add(TransactionDetails.class, new TransactionDetails());
+	}
+
+	@Benchmark
+	public boolean callHooks() {
+		return myInterceptorService.callHooks(Pointcut.STORAGE_PRESTORAGE_RESOURCE_CREATED, myHookParams);
+	}
+
+	@Benchmark
+	public boolean hasHooks() {
+		return myInterceptorService.hasHooks(Pointcut.STORAGE_PRESTORAGE_RESOURCE_CREATED);
+	}
+
+	/**
+	 * Calls hooks while another thread continuously registers and unregisters an anonymous
+	 * interceptor, which is the access pattern generated by request-scoped interceptors.
+	 */
+	@Benchmark
+	@Group("contended")
+	@GroupThreads(3)
+	public boolean contendedCallHooks() {
+		return myInterceptorService.callHooks(Pointcut.STORAGE_PRESTORAGE_RESOURCE_CREATED, myHookParams);
+	}
+
+	@Benchmark
+	@Group("contended")
+	@GroupThreads(1)
+	public boolean contendedRegisterAndUnregister() {
+		myInterceptorService.registerAnonymousInterceptor(Pointcut.SERVER_INCOMING_REQUEST_PRE_HANDLED, myAnonymousInterceptor);
+		return myInterceptorService.unregisterInterceptor(myAnonymousInterceptor);
+	}
+
+	@Interceptor
+	public static class PreStorageInterceptor {
+
+		private int myInvocationCount;
+
+		@Hook(Pointcut.STORAGE_PRESTORAGE_RESOURCE_CREATED)
+		public void resourcePreCreate(IBaseResource theResource, RequestDetails theRequestDetails) {
+			if (theResource != null && theRequestDetails != null) {
+				myInvocationCount++;
+			}
+		}
+
+		public int getInvocationCount() {
+			return myInvocationCount;
+		}
+	}
+}
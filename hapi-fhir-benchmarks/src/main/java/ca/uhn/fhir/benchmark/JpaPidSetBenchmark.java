@@ -0,0 +1,102 @@
+package ca.uhn.fhir.benchmark;
+
+import ca.uhn.fhir.jpa.model.dao.JpaPid;
+import ca.uhn.fhir.jpa.model.dao.JpaPidSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a {@link HashSet} of {@link JpaPid} against a {@link JpaPidSet} for the
+ * de-duplication pattern used by the search builder: adding every PID found by a
+ * query, then checking each PID found by a later query for membership. PIDs are
+ * mostly ascending with gaps, as they are in a real database.
+ * <p>
+ * Run with <code>-prof gc</code> to compare the memory allocated to build each set
+ * (<code>gc.alloc.rate.norm</code> for the <code>build</code> benchmark).
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JpaPidSetBenchmark {
+
+	@Param({"1000000"})
+	private int myPidCount;
+
+	@Param({"HashSet", "JpaPidSet"})
+	private String mySetType;
+
+	private List<JpaPid> myPids;
+	private List<JpaPid> myLookups;
+	private Set<JpaPid> myPopulatedSet;
+
+	@Setup
+	public void setup() {
+		myPids = new ArrayList<>(myPidCount);
+		long nextId = 1000;
+		for (int i = 0; i < myPidCount; i++) {
+			nextId += 1 + (i % 7 == 0 ? 3 : 0);
+			myPids.add(JpaPid.fromId(nextId));
+		}
+
+		// Half of the lookups hit, half miss
+		myLookups = new ArrayList<>(myPidCount);
+		for (int i = 0; i < myPidCount; i++) {
+			JpaPid next = myPids.get(i);
+			myLookups.add(i % 2 == 0 ? next : JpaPid.fromId(next.getId() + nextId));
+		}
+
+		myPopulatedSet = build();
+	}
+
+	@Benchmark
+	public Set<JpaPid> build() {
+		Set<JpaPid> retVal = newSet();
+		for (JpaPid next : myPids) {
+			retVal.add(next);
+		}
+		return retVal;
+	}
+
+	@Benchmark
+	public int contains() {
+		int retVal = 0;
+		for (JpaPid next : myLookups) {
+			if (myPopulatedSet.contains(next)) {
+				retVal++;
+			}
+		}
+		return retVal;
+	}
+
+	@Benchmark
+	public long iterate() {
+		long retVal = 0;
+		for (JpaPid next : myPopulatedSet) {
+			retVal += next.getId();
+		}
+		return retVal;
+	}
+
+	private Set<JpaPid> newSet() {
+		return "JpaPidSet".equals(mySetType) ? new JpaPidSet() : new HashSet<>();
+	}
+}
@@ -0,0 +1,91 @@
+package ca.uhn.fhir.benchmark;
+
+import ca.uhn.fhir.context.FhirContext;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing and encoding of the {@link BenchmarkFixture fixtures} using the
+ * JSON and XML parsers. JSON parsing is measured both with and without the streaming
+ * parse mode.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+
+	@Benchmark
+	public IBaseResource parseJson(JsonParsingState theState) {
+		return theState.myCtx.newJsonParser().parseResource(theState.myJson);
+	}
+
+	@Benchmark
+	public IBaseResource parseXml(FixtureState theState) {
+		return theState.myCtx.newXmlParser().parseResource(theState.myXml);
+	}
+
+	@Benchmark
+	public String encodeJson(FixtureState theState) {
+		return theState.myCtx.newJsonParser().encodeResourceToString(theState.myResource);
+	}
+
+	@Benchmark
+	public String encodeXml(FixtureState theState) {
+		return theState.myCtx.newXmlParser().encodeResourceToString(theState.myResource);
+	}
+
+	@State(Scope.Benchmark)
+	public static class FixtureState {
+
+		@Param({"US_CORE_PATIENT", "US_CORE_TRANSACTION_BUNDLE", "LARGE_SEARCHSET_BUNDLE"})
+		private BenchmarkFixture myFixture;
+
+		private FhirContext myCtx;
+		private IBaseResource myResource;
+		private String myXml;
+
+		@Setup
+		public void setup() {
+			myCtx = FhirContext.forR4();
+			myResource = myFixture.load(myCtx);
+			myXml = myCtx.newXmlParser().encodeResourceToString(myResource);
+		}
+	}
+
+	/**
+	 * Uses its own FhirContext, since the parse mode is a context-wide parser option
+	 */
+	@State(Scope.Benchmark)
+	public static class JsonParsingState {
+
+		@Param({"US_CORE_PATIENT", "US_CORE_TRANSACTION_BUNDLE", "LARGE_SEARCHSET_BUNDLE"})
+		private BenchmarkFixture myFixture;
+
+		@Param({"false", "true"})
+		private boolean myStreamingJsonParsingEnabled;
+
+		private FhirContext myCtx;
+		private String myJson;
+
+		@Setup
+		public void setup() {
+			myCtx = FhirContext.forR4();
+			myCtx.getParserOptions().setStreamingJsonParsingEnabled(myStreamingJsonParsingEnabled);
+			myJson = myCtx.newJsonParser().encodeResourceToString(myFixture.load(myCtx));
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package ca.uhn.fhir.benchmark;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.jpa.model.config.PartitionSettings;
+import ca.uhn.fhir.jpa.model.entity.StorageSettings;
+import ca.uhn.fhir.jpa.searchparam.extractor.SearchParamExtractorR4;
+import ca.uhn.fhir.rest.server.util.FhirContextSearchParamRegistry;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.Bundle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures search parameter extraction (as performed by the JPA server when indexing a
+ * resource) for every resource in the {@link BenchmarkFixture#US_CORE_TRANSACTION_BUNDLE} fixture.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchParamExtractionBenchmark {
+
+	private SearchParamExtractorR4 myExtractor;
+	private List<IBaseResource> myResources;
+
+	@Setup
+	public void setup() {
+		FhirContext ctx = FhirContext.forR4Cached();
+		myExtractor = new SearchParamExtractorR4(
+				new StorageSettings(),
+				new PartitionSettings(),
+				ctx,
+				new FhirContextSearchParamRegistry(ctx));
+
+		Bundle bundle = (Bundle) BenchmarkFixture.US_CORE_TRANSACTION_BUNDLE.load(ctx);
+		myResources = new ArrayList<>();
+		bundle.getEntry().forEach(t -> myResources.add(t.getResource()));
+	}
+
+	@Benchmark
+	public void extractTokens(Blackhole theBlackhole) {
+		for (IBaseResource next : myResources) {
+			theBlackhole.consume(myExtractor.extractSearchParamTokens(next));
+		}
+	}
+
+	@Benchmark
+	public void extractStrings(Blackhole theBlackhole) {
+		for (IBaseResource next : myResources) {
+			theBlackhole.consume(myExtractor.extractSearchParamStrings(next));
+		}
+	}
+
+	@Benchmark
+	public void extractDates(Blackhole theBlackhole) {
+		for (IBaseResource next : myResources) {
+			theBlackhole.consume(myExtractor.extractSearchParamDates(next));
+		}
+	}
+
+	@Benchmark
+	public void extractReferences(Blackhole theBlackhole) {
+		for (IBaseResource next : myResources) {
+			theBlackhole.consume(myExtractor.extractResourceLinks(next, false));
+		}
+	}
+}
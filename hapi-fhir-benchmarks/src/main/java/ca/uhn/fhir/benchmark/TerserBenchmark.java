@@ -0,0 +1,70 @@
+package ca.uhn.fhir.benchmark;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.util.FhirTerser;
+import org.hl7.fhir.instance.model.api.IBase;
+import org.hl7.fhir.instance.model.api.IBaseReference;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.Coding;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link FhirTerser} traversal over the {@link BenchmarkFixture fixtures}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TerserBenchmark {
+
+	@Param({"US_CORE_PATIENT", "US_CORE_TRANSACTION_BUNDLE", "LARGE_SEARCHSET_BUNDLE"})
+	private BenchmarkFixture myFixture;
+
+	private FhirTerser myTerser;
+	private IBaseResource myResource;
+
+	@Setup
+	public void setup() {
+		FhirContext ctx = FhirContext.forR4Cached();
+		myTerser = ctx.newTerser();
+		myResource = myFixture.load(ctx);
+	}
+
+	@Benchmark
+	public List<Coding> getAllPopulatedCodings() {
+		return myTerser.getAllPopulatedChildElementsOfType(myResource, Coding.class);
+	}
+
+	@Benchmark
+	public List<IBaseReference> getAllResourceReferences() {
+		return myTerser.getAllPopulatedChildElementsOfType(myResource, IBaseReference.class);
+	}
+
+	@Benchmark
+	public List<IBase> getValuesByPath() {
+		String path = myResource.fhirType().equals("Bundle") ? "Bundle.entry.fullUrl" : "Patient.name.given";
+		return myTerser.getValues(myResource, path);
+	}
+
+	@Benchmark
+	public int visitAllElements() {
+		int[] count = new int[1];
+		myTerser.visit(myResource, (theResource, theElement, thePath, theChildDef, theDef) -> count[0]++);
+		return count[0];
+	}
+}
@@ -36,6 +36,7 @@ import ca.uhn.fhir.batch2.models.JobInstanceFetchRequest;
 import ca.uhn.fhir.interceptor.api.HookParams;
 import ca.uhn.fhir.interceptor.api.IInterceptorBroadcaster;
 import ca.uhn.fhir.interceptor.api.Pointcut;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
 import ca.uhn.fhir.jpa.dao.data.IBatch2JobInstanceRepository;
 import ca.uhn.fhir.jpa.dao.data.IBatch2WorkChunkMetadataViewRepository;
 import ca.uhn.fhir.jpa.dao.data.IBatch2WorkChunkRepository;
@@ -59,6 +60,7 @@ import jakarta.persistence.LockModeType;
 import org.apache.commons.collections4.ListUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
+import org.hibernate.Session;
 import org.slf4j.Logger;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -68,6 +70,8 @@ import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
 import java.time.Instant;
 import java.util.Collections;
 import java.util.Date;
@@ -88,6 +92,9 @@ import static org.apache.commons.lang3.StringUtils.isBlank;
 public class JpaJobPersistenceImpl implements IJobPersistence {
 	private static final Logger ourLog = Logs.getBatchTroubleshootingLog();
 	public static final String CREATE_TIME = "myCreateTime";
+	private static final String COMPLETE_WORK_CHUNK_SQL = "UPDATE BT2_WORK_CHUNK SET STAT = ?, END_TIME = ?, "
+			+ "RECORDS_PROCESSED = ?, ERROR_COUNT = ERROR_COUNT + ?, CHUNK_DATA = NULL, CHUNK_DATA_VC = NULL, "
+			+ "WARNING_MSG = ? WHERE ID = ?";
 
 	private final IBatch2JobInstanceRepository myJobInstanceRepository;
 	private final IBatch2WorkChunkRepository myWorkChunkRepository;
@@ -95,6 +102,9 @@ public class JpaJobPersistenceImpl implements IJobPersistence {
 	private final EntityManager myEntityManager;
 	private final IHapiTransactionService myTransactionService;
 	private final IInterceptorBroadcaster myInterceptorBroadcaster;
+	private final JpaStorageSettings myStorageSettings;
+	private final WorkChunkGroupCommitter<Batch2WorkChunkEntity> myWorkChunkCreateCommitter;
+	private final WorkChunkGroupCommitter<WorkChunkCompletionEvent> myWorkChunkCompletionCommitter;
 
 	/**
 	 * Constructor
@@ -105,19 +115,25 @@ public class JpaJobPersistenceImpl implements IJobPersistence {
 			IBatch2WorkChunkMetadataViewRepository theWorkChunkMetadataViewRepo,
 			IHapiTransactionService theTransactionService,
 			EntityManager theEntityManager,
-			IInterceptorBroadcaster theInterceptorBroadcaster) {
+			IInterceptorBroadcaster theInterceptorBroadcaster,
+			JpaStorageSettings theStorageSettings) {
 		Validate.notNull(theJobInstanceRepository, "theJobInstanceRepository");
 		Validate.notNull(theWorkChunkRepository, "theWorkChunkRepository");
+		Validate.notNull(theStorageSettings, "theStorageSettings");
 		myJobInstanceRepository = theJobInstanceRepository;
 		myWorkChunkRepository = theWorkChunkRepository;
 		myWorkChunkMetadataViewRepo = theWorkChunkMetadataViewRepo;
 		myTransactionService = theTransactionService;
 		myEntityManager = theEntityManager;
 		myInterceptorBroadcaster = theInterceptorBroadcaster;
+		myStorageSettings = theStorageSettings;
+		myWorkChunkCreateCommitter =
+				new WorkChunkGroupCommitter<>("work chunk creations", theTransactionService, this::writeNewWorkChunks);
+		myWorkChunkCompletionCommitter = new WorkChunkGroupCommitter<>(
+				"work chunk completions", theTransactionService, this::writeWorkChunkCompletions);
 	}
 
 	@Override
-	@Transactional(propagation = Propagation.REQUIRED)
 	public String onWorkChunkCreate(WorkChunkCreateEvent theBatchWorkChunk) {
 		Batch2WorkChunkEntity entity = new Batch2WorkChunkEntity();
 		entity.setId(UUID.randomUUID().toString());
@@ -134,11 +150,40 @@ public class JpaJobPersistenceImpl implements IJobPersistence {
 		ourLog.debug("Create work chunk {}/{}/{}", entity.getInstanceId(), entity.getId(), entity.getTargetStepId());
 		ourLog.trace(
 				"Create work chunk data {}/{}: {}", entity.getInstanceId(), entity.getId(), entity.getSerializedData());
-		myTransactionService.withSystemRequestOnDefaultPartition().execute(() -> myWorkChunkRepository.save(entity));
+		if (isGroupCommitEligible()) {
+			myWorkChunkCreateCommitter.submit(entity, myStorageSettings.getWorkChunkGroupCommitWindowMillis());
+		} else {
+			myTransactionService
+					.withSystemRequestOnDefaultPartition()
+					.execute(() -> myWorkChunkRepository.save(entity));
+		}
 
 		return entity.getId();
 	}
 
+	private void writeNewWorkChunks(List<Batch2WorkChunkEntity> theEntities) {
+		Session session = myEntityManager.unwrap(Session.class);
+		Integer previousBatchSize = session.getJdbcBatchSize();
+		session.setJdbcBatchSize(theEntities.size());
+		try {
+			theEntities.forEach(myEntityManager::persist);
+			myEntityManager.flush();
+		} finally {
+			session.setJdbcBatchSize(previousBatchSize);
+		}
+	}
+
+	/**
+	 * Work chunk creations and completions may be grouped with those from other threads
+	 * and committed together, but only if group commit is enabled and the caller has no
+	 * transaction open. Callers with a transaction may depend on uncommitted rows, and
+	 * waiting for the group while holding a transaction would also hold its connection.
+	 */
+	private boolean isGroupCommitEligible() {
+		return myStorageSettings.getWorkChunkGroupCommitWindowMillis() > 0
+				&& !TransactionSynchronizationManager.isActualTransactionActive();
+	}
+
 	/**
 	 * Gets the initial onCreate state for the given workchunk.
 	 * Gated job chunks start in GATE_WAITING; they will be transitioned to READY during maintenance pass when all
@@ -422,6 +467,11 @@ public class JpaJobPersistenceImpl implements IJobPersistence {
 
 	@Override
 	public void onWorkChunkCompletion(WorkChunkCompletionEvent theEvent) {
+		if (isGroupCommitEligible()) {
+			myWorkChunkCompletionCommitter.submit(theEvent, myStorageSettings.getWorkChunkGroupCommitWindowMillis());
+			return;
+		}
+
 		myTransactionService
 				.withSystemRequestOnDefaultPartition()
 				.execute(() -> myWorkChunkRepository.updateChunkStatusAndClearDataForEndSuccess(
@@ -433,6 +483,24 @@ public class JpaJobPersistenceImpl implements IJobPersistence {
 						theEvent.getRecoveredWarningMessage()));
 	}
 
+	private void writeWorkChunkCompletions(List<WorkChunkCompletionEvent> theEvents) {
+		Timestamp endTime = new Timestamp(System.currentTimeMillis());
+		myEntityManager.unwrap(Session.class).doWork(connection -> {
+			try (PreparedStatement statement = connection.prepareStatement(COMPLETE_WORK_CHUNK_SQL)) {
+				for (WorkChunkCompletionEvent event : theEvents) {
+					statement.setString(1, WorkChunkStatusEnum.COMPLETED.name());
+					statement.setTimestamp(2, endTime);
+					statement.setInt(3, event.getRecordsProcessed());
+					statement.setInt(4, event.getRecoveredErrorCount());
+					statement.setString(5, event.getRecoveredWarningMessage());
+					statement.setString(6, event.getChunkId());
+					statement.addBatch();
+				}
+				statement.executeBatch();
+			}
+		});
+	}
+
 	@Nullable
 	private static String truncateErrorMessage(String theErrorMessage) {
 		String errorMessage;
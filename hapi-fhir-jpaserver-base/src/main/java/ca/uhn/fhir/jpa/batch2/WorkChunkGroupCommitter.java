@@ -0,0 +1,162 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.batch2;
+
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.jpa.dao.tx.IHapiTransactionService;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import ca.uhn.fhir.util.Logs;
+import com.google.common.annotations.VisibleForTesting;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Coalesces work chunk state transitions which arrive on different threads within a short window,
+ * so that they are written using a single database transaction and batched statements.
+ * <p>
+ * The first caller to arrive opens a new group and becomes its leader. If other callers are
+ * currently submitting items, the leader waits for the window to elapse (or for the group to fill
+ * up) so that they can join; a caller which is alone writes its item straight away. The leader
+ * then writes every item in the group within a new transaction. The other callers block until
+ * that transaction has completed, so every caller still only returns once its own item has been
+ * committed, and throws if it was not.
+ * </p>
+ * <p>
+ * Callers must not have a transaction open when they submit an item, so that waiting callers
+ * don't hold a database connection and so that the grouped transaction contains nothing else.
+ * </p>
+ */
+class WorkChunkGroupCommitter<T> {
+	static final int MAX_GROUP_SIZE = 1000;
+	private static final Logger ourLog = Logs.getBatchTroubleshootingLog();
+
+	private final String myDescription;
+	private final IHapiTransactionService myTransactionService;
+	private final Consumer<List<T>> myWriter;
+	private Group<T> myOpenGroup;
+	private int mySubmittingCount;
+
+	/**
+	 * Constructor
+	 *
+	 * @param theDescription        A description of the items, used for logging
+	 * @param theTransactionService Used to open the transaction each group is written in
+	 * @param theWriter             Writes a group of items within the current transaction
+	 */
+	WorkChunkGroupCommitter(
+			String theDescription, IHapiTransactionService theTransactionService, Consumer<List<T>> theWriter) {
+		myDescription = theDescription;
+		myTransactionService = theTransactionService;
+		myWriter = theWriter;
+	}
+
+	/**
+	 * Adds an item to the currently open group, and returns once the group has been committed.
+	 */
+	void submit(T theItem, long theWindowMillis) {
+		Group<T> group;
+		boolean leader;
+		synchronized (this) {
+			mySubmittingCount++;
+			leader = myOpenGroup == null;
+			if (leader) {
+				myOpenGroup = new Group<>();
+			}
+			group = myOpenGroup;
+			group.myItems.add(theItem);
+
+			// Nobody else is submitting, so there's nothing to wait for
+			boolean alone = leader && mySubmittingCount == 1;
+			if (alone || group.myItems.size() >= MAX_GROUP_SIZE) {
+				myOpenGroup = null;
+				group.myFull.countDown();
+			}
+		}
+
+		try {
+			if (leader) {
+				writeGroup(group, theWindowMillis);
+			} else {
+				group.awaitCommit();
+			}
+		} finally {
+			synchronized (this) {
+				mySubmittingCount--;
+			}
+		}
+	}
+
+	private void writeGroup(Group<T> theGroup, long theWindowMillis) {
+		try {
+			theGroup.myFull.await(theWindowMillis, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			// Write what we have now rather than leaving the other callers waiting
+			Thread.currentThread().interrupt();
+		}
+
+		List<T> items;
+		synchronized (this) {
+			if (myOpenGroup == theGroup) {
+				myOpenGroup = null;
+			}
+			items = new ArrayList<>(theGroup.myItems);
+		}
+
+		ourLog.debug("Writing group of {} {}", items.size(), myDescription);
+		try {
+			myTransactionService.withSystemRequestOnDefaultPartition().execute(() -> myWriter.accept(items));
+		} catch (RuntimeException e) {
+			theGroup.myResult.completeExceptionally(new InternalErrorException(
+					Msg.code(2758) + "Grouped write of " + items.size() + " " + myDescription + " was not committed",
+					e));
+			throw e;
+		}
+		theGroup.myResult.complete(null);
+	}
+
+	@VisibleForTesting
+	synchronized int getSubmittingCount() {
+		return mySubmittingCount;
+	}
+
+	private static class Group<T> {
+		private final List<T> myItems = new ArrayList<>();
+		private final CountDownLatch myFull = new CountDownLatch(1);
+		private final CompletableFuture<Void> myResult = new CompletableFuture<>();
+
+		private void awaitCommit() {
+			try {
+				myResult.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InternalErrorException(Msg.code(2759) + "Interrupted while waiting for grouped write", e);
+			} catch (ExecutionException e) {
+				throw (RuntimeException) e.getCause();
+			}
+		}
+	}
+}
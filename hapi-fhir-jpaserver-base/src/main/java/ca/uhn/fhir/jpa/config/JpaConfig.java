@@ -24,6 +24,7 @@ import ca.uhn.fhir.batch2.api.IJobPersistence;
 import ca.uhn.fhir.batch2.jobs.export.BulkDataExportProvider;
 import ca.uhn.fhir.batch2.jobs.expunge.DeleteExpungeJobSubmitterImpl;
 import ca.uhn.fhir.batch2.util.Batch2TaskHelper;
+import ca.uhn.fhir.broker.api.IBrokerClient;
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.context.FhirVersionEnum;
 import ca.uhn.fhir.context.support.IValidationSupport;
@@ -57,9 +58,12 @@ import ca.uhn.fhir.jpa.dao.IJpaStorageResourceParser;
 import ca.uhn.fhir.jpa.dao.ISearchBuilder;
 import ca.uhn.fhir.jpa.dao.JpaStorageResourceParser;
 import ca.uhn.fhir.jpa.dao.MatchResourceUrlService;
+import ca.uhn.fhir.jpa.dao.ResourceEncodingDictionarySvc;
 import ca.uhn.fhir.jpa.dao.ResourceHistoryCalculator;
 import ca.uhn.fhir.jpa.dao.SearchBuilderFactory;
 import ca.uhn.fhir.jpa.dao.TransactionProcessor;
+import ca.uhn.fhir.jpa.dao.data.IResourceEncodingDictionaryDao;
+import ca.uhn.fhir.jpa.dao.data.IResourceHistoryTableDao;
 import ca.uhn.fhir.jpa.dao.data.IResourceIndexedSearchParamIdentityDao;
 import ca.uhn.fhir.jpa.dao.data.IResourceLinkDao;
 import ca.uhn.fhir.jpa.dao.data.IResourceModifiedDao;
@@ -76,6 +80,7 @@ import ca.uhn.fhir.jpa.dao.expunge.ResourceTableFKProvider;
 import ca.uhn.fhir.jpa.dao.index.DaoResourceLinkResolver;
 import ca.uhn.fhir.jpa.dao.index.DaoSearchParamSynchronizer;
 import ca.uhn.fhir.jpa.dao.index.IdHelperService;
+import ca.uhn.fhir.jpa.dao.index.IndexRowBulkInserter;
 import ca.uhn.fhir.jpa.dao.index.SearchParamWithInlineReferencesExtractor;
 import ca.uhn.fhir.jpa.dao.tx.HapiTransactionService;
 import ca.uhn.fhir.jpa.dao.tx.IHapiTransactionService;
@@ -147,10 +152,13 @@ import ca.uhn.fhir.jpa.search.builder.sql.SearchQueryBuilder;
 import ca.uhn.fhir.jpa.search.builder.sql.SearchQueryExecutor;
 import ca.uhn.fhir.jpa.search.builder.sql.SqlObjectFactory;
 import ca.uhn.fhir.jpa.search.builder.tasks.SearchTask;
+import ca.uhn.fhir.jpa.search.cache.DatabaseBlockSearchResultCacheSvcImpl;
 import ca.uhn.fhir.jpa.search.cache.DatabaseSearchCacheSvcImpl;
 import ca.uhn.fhir.jpa.search.cache.DatabaseSearchResultCacheSvcImpl;
 import ca.uhn.fhir.jpa.search.cache.ISearchCacheSvc;
 import ca.uhn.fhir.jpa.search.cache.ISearchResultCacheSvc;
+import ca.uhn.fhir.jpa.search.cache.LocalSearchCacheSvcImpl;
+import ca.uhn.fhir.jpa.search.cache.LocalSearchResultCacheSvcImpl;
 import ca.uhn.fhir.jpa.search.elastic.IndexNamePrefixLayoutStrategy;
 import ca.uhn.fhir.jpa.search.reindex.IInstanceReindexService;
 import ca.uhn.fhir.jpa.search.reindex.IResourceReindexingSvc;
@@ -179,6 +187,7 @@ import ca.uhn.fhir.jpa.term.api.ITermReadSvc;
 import ca.uhn.fhir.jpa.term.api.ITermReindexingSvc;
 import ca.uhn.fhir.jpa.term.config.TermCodeSystemConfig;
 import ca.uhn.fhir.jpa.util.JpaHapiTransactionService;
+import ca.uhn.fhir.jpa.util.MemoryCacheInvalidationBus;
 import ca.uhn.fhir.jpa.util.MemoryCacheService;
 import ca.uhn.fhir.jpa.util.PartitionedIdModeVerificationSvc;
 import ca.uhn.fhir.jpa.util.PersistenceContextProvider;
@@ -207,7 +216,11 @@ import org.hl7.fhir.common.hapi.validation.support.UnknownCodeSystemWarningValid
 import org.hl7.fhir.common.hapi.validation.support.ValidationSupportChain;
 import org.hl7.fhir.common.hapi.validation.validator.WorkerContextValidationSupportAdapter;
 import org.hl7.fhir.utilities.graphql.IGraphQLStorageServices;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
@@ -242,6 +255,7 @@ import java.util.Date;
 	MdmJpaConfig.class
 })
 public class JpaConfig {
+	private static final Logger ourLog = LoggerFactory.getLogger(JpaConfig.class);
 	public static final String JPA_VALIDATION_SUPPORT_CHAIN = "myJpaValidationSupportChain";
 	public static final String JPA_VALIDATION_SUPPORT = "myJpaValidationSupport";
 	public static final String TASK_EXECUTOR_NAME = "hapiJpaTaskExecutor";
@@ -404,6 +418,24 @@ public class JpaConfig {
 		return new MemoryCacheService(theStorageSettings);
 	}
 
+	@Bean
+	public MemoryCacheInvalidationBus memoryCacheInvalidationBus(
+			JpaStorageSettings theStorageSettings,
+			MemoryCacheService theMemoryCacheService,
+			ObjectProvider<IBrokerClient> theBrokerClientProvider) {
+		MemoryCacheInvalidationBus retVal = new MemoryCacheInvalidationBus(theMemoryCacheService);
+		if (theStorageSettings.isMemoryCacheInvalidationBusEnabled()) {
+			IBrokerClient brokerClient = theBrokerClientProvider.getIfAvailable();
+			if (brokerClient != null) {
+				retVal.start(brokerClient);
+			} else {
+				ourLog.warn(
+						"Memory cache invalidation bus is enabled but no IBrokerClient is available, so it will not be started");
+			}
+		}
+		return retVal;
+	}
+
 	@Bean
 	@Primary
 	public IResourceLinkResolver daoResourceLinkResolver() {
@@ -426,12 +458,31 @@ public class JpaConfig {
 	}
 
 	@Bean
-	public ISearchCacheSvc searchCacheSvc() {
+	public ISearchCacheSvc searchCacheSvc(AutowireCapableBeanFactory theBeanFactory) {
+		long localCacheSize = myStorageSettings.getLocalSearchCacheMaxSizeBytes();
+		if (localCacheSize > 0) {
+			ISearchCacheSvc delegate = theBeanFactory.createBean(DatabaseSearchCacheSvcImpl.class);
+			return new LocalSearchCacheSvcImpl(delegate, myStorageSettings, localCacheSize);
+		}
 		return new DatabaseSearchCacheSvcImpl();
 	}
 
 	@Bean
-	public ISearchResultCacheSvc searchResultCacheSvc() {
+	public ISearchResultCacheSvc searchResultCacheSvc(AutowireCapableBeanFactory theBeanFactory) {
+		long localCacheSize = myStorageSettings.getLocalSearchCacheMaxSizeBytes();
+		if (localCacheSize > 0) {
+			ISearchResultCacheSvc delegate;
+			if (myStorageSettings.isSearchResultBlockStorageEnabled()) {
+				delegate = theBeanFactory.createBean(DatabaseBlockSearchResultCacheSvcImpl.class);
+			} else {
+				delegate = theBeanFactory.createBean(DatabaseSearchResultCacheSvcImpl.class);
+			}
+			return new LocalSearchResultCacheSvcImpl(delegate, localCacheSize);
+		}
+
+		if (myStorageSettings.isSearchResultBlockStorageEnabled()) {
+			return new DatabaseBlockSearchResultCacheSvcImpl();
+		}
 		return new DatabaseSearchResultCacheSvcImpl();
 	}
 
@@ -866,6 +917,11 @@ public class JpaConfig {
 		return new DaoSearchParamSynchronizer();
 	}
 
+	@Bean
+	public IndexRowBulkInserter indexRowBulkInserter() {
+		return new IndexRowBulkInserter();
+	}
+
 	@Bean
 	public ResourceTableFKProvider resourceTableFKProvider() {
 		return new ResourceTableFKProvider();
@@ -977,10 +1033,23 @@ public class JpaConfig {
 		return new MetaTagSorterAlphabetical();
 	}
 
+	@Bean
+	public ResourceEncodingDictionarySvc resourceEncodingDictionarySvc(
+			IResourceEncodingDictionaryDao theDictionaryDao,
+			IResourceHistoryTableDao theResourceHistoryTableDao,
+			IHapiTransactionService theTransactionService,
+			MemoryCacheService theMemoryCacheService) {
+		return new ResourceEncodingDictionarySvc(
+				theDictionaryDao, theResourceHistoryTableDao, theTransactionService, theMemoryCacheService);
+	}
+
 	@Bean
 	public ResourceHistoryCalculator resourceHistoryCalculator(
-			FhirContext theFhirContext, HibernatePropertiesProvider theHibernatePropertiesProvider) {
-		return new ResourceHistoryCalculator(theFhirContext, theHibernatePropertiesProvider.isOracleDialect());
+			FhirContext theFhirContext,
+			HibernatePropertiesProvider theHibernatePropertiesProvider,
+			ResourceEncodingDictionarySvc theResourceEncodingDictionarySvc) {
+		return new ResourceHistoryCalculator(
+				theFhirContext, theHibernatePropertiesProvider.isOracleDialect(), theResourceEncodingDictionarySvc);
 	}
 
 	@Bean
@@ -483,6 +483,8 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 
 			if (thePerformIndexing) {
 
+				PreEncodedResource preEncodedResource = PreEncodedResource.remove(theTransactionDetails, theResource);
+
 				ExternallyStoredResourceAddress address = null;
 				if (myExternallyStoredResourceServiceRegistry.hasProviders()) {
 					address = ExternallyStoredResourceAddressMetadataKey.INSTANCE.get(theResource);
@@ -510,8 +512,11 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 
 					// TODO:  LD: Once 2024-02 it out the door we should consider further refactoring here to move
 					// more of this logic within the calculator and eliminate more local variables
+					String preEncodedText = preEncodedResource != null
+							? preEncodedResource.getResourceTextIfMatching(encoding, excludeElements)
+							: null;
 					final ResourceHistoryState calculate = myResourceHistoryCalculator.calculateResourceHistoryState(
-							theResource, encoding, excludeElements);
+							theResource, encoding, excludeElements, preEncodedText);
 
 					resourceText = calculate.getResourceText();
 					resourceBinary = calculate.getResourceBinary();
@@ -580,7 +585,7 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 					// TODO:  LD: Once 2024-02 it out the door we should consider further refactoring here to move
 					// more of this logic within the calculator and eliminate more local variables
 					changed = myResourceHistoryCalculator.isResourceHistoryChanged(
-							currentHistoryVersion, resourceBinary, resourceText);
+							currentHistoryVersion, resourceBinary, resourceText, encoding);
 				}
 			}
 		}
@@ -633,26 +638,10 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 			}
 		}
 
-		theExcludeElements.add("id");
 		boolean inlineTagMode =
 				getStorageSettings().getTagStorageMode() == JpaStorageSettings.TagStorageModeEnum.INLINE;
-		if (hasExtensions || inlineTagMode) {
-			if (!inlineTagMode) {
-				theExcludeElements.add(theResourceType + ".meta.profile");
-				theExcludeElements.add(theResourceType + ".meta.tag");
-				theExcludeElements.add(theResourceType + ".meta.security");
-			}
-			theExcludeElements.add(theResourceType + ".meta.versionId");
-			theExcludeElements.add(theResourceType + ".meta.lastUpdated");
-			theExcludeElements.add(theResourceType + ".meta.source");
-		} else {
-			/*
-			 * If there are no extensions in the meta element, we can just exclude the
-			 * whole meta element, which avoids adding an empty "meta":{}
-			 * from showing up in the serialized JSON.
-			 */
-			theExcludeElements.add(theResourceType + ".meta");
-		}
+		theExcludeElements.addAll(
+				ResourceHistoryCalculator.getExcludedElements(theResourceType, hasExtensions, inlineTagMode));
 		return sourceExtension;
 	}
 
@@ -886,6 +875,13 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 
 		ResourceTable entity = (ResourceTable) theEntity;
 
+		/*
+		 * If index rows were queued for bulk insertion by an earlier write to this
+		 * resource in the same transaction, they need to become managed entities
+		 * before the resource entity is merged or its indexes are modified
+		 */
+		myDaoSearchParamSynchronizer.persistPendingIndexRows(entity);
+
 		/*
 		 * This should be the very first thing..
 		 */
@@ -1097,7 +1093,7 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 				// Synchronize search param indexes
 				AddRemoveCount searchParamAddRemoveCount =
 						myDaoSearchParamSynchronizer.synchronizeSearchParamsToDatabase(
-								newParams, entity, existingParams);
+								newParams, entity, existingParams, theRequest);
 
 				newParams.populateResourceTableParamCollections(entity);
 
@@ -1252,9 +1248,10 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 			getExcludedElements(historyEntity.getResourceType(), excludeElements, theResource.getMeta());
 			String encodedResourceString =
 					myResourceHistoryCalculator.encodeResource(theResource, encoding, excludeElements);
-			byte[] resourceBinary = ResourceHistoryCalculator.getResourceBinary(encoding, encodedResourceString);
+			byte[] resourceBinary = myResourceHistoryCalculator.getResourceBinary(
+					myContext.getResourceType(theResource), encoding, encodedResourceString);
 			final boolean changed = myResourceHistoryCalculator.isResourceHistoryChanged(
-					historyEntity, resourceBinary, encodedResourceString);
+					historyEntity, resourceBinary, encodedResourceString, encoding);
 
 			historyEntity.setUpdated(theTransactionDetails.getTransactionDate());
 
@@ -1781,6 +1778,18 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 	}
 
 	public static String decodeResource(byte[] theResourceBytes, ResourceEncodingEnum theResourceEncoding) {
+		return decodeResource(theResourceBytes, theResourceEncoding, null);
+	}
+
+	/**
+	 * @param theDictionarySvc If not <code>null</code>, used to decompress resources stored using
+	 *                         {@link ResourceEncodingEnum#JSONZ}. Must be supplied if the resource may have
+	 *                         been compressed using a dictionary.
+	 */
+	public static String decodeResource(
+			byte[] theResourceBytes,
+			ResourceEncodingEnum theResourceEncoding,
+			@Nullable ResourceEncodingDictionarySvc theDictionarySvc) {
 		String resourceText = null;
 		switch (theResourceEncoding) {
 			case JSON:
@@ -1789,6 +1798,13 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 			case JSONC:
 				resourceText = GZipUtil.decompress(theResourceBytes);
 				break;
+			case JSONZ:
+				if (theDictionarySvc != null) {
+					resourceText = theDictionarySvc.decompress(theResourceBytes);
+				} else {
+					resourceText = ZstdUtil.decompress(theResourceBytes, null);
+				}
+				break;
 			case DEL:
 			case ESR:
 				break;
@@ -1054,10 +1054,18 @@ public abstract class BaseHapiFhirResourceDao<T extends IBaseResource> extends B
 	protected ResourceTable updateEntityForDelete(
 			RequestDetails theRequest, TransactionDetails theTransactionDetails, ResourceTable theEntity) {
 		myResourceSearchUrlSvc.deleteByResId(theEntity.getPersistentId());
+		myIdHelperService.invalidateResolvedFhirIdAfterCommit(
+				getEntityRequestPartitionId(theEntity), theEntity.getResourceType(), theEntity.getFhirId());
 		Date updateTime = new Date();
 		return updateEntity(theRequest, null, theEntity, updateTime, true, true, theTransactionDetails, false, true);
 	}
 
+	private static RequestPartitionId getEntityRequestPartitionId(ResourceTable theEntity) {
+		return theEntity.getPartitionId() == null
+				? RequestPartitionId.defaultPartition()
+				: theEntity.getPartitionId().toPartitionId();
+	}
+
 	private void validateDeleteEnabled() {
 		if (!getStorageSettings().isDeleteEnabled()) {
 			String msg = getContext().getLocalizer().getMessage(BaseStorageDao.class, "deleteBlockedBecauseDisabled");
@@ -1774,11 +1782,15 @@ public abstract class BaseHapiFhirResourceDao<T extends IBaseResource> extends B
 	 * in order to avoid growing the number of resources in memory to be too big
 	 */
 	private void reindexOptimizeStorageHistoryEntity(ResourceTable entity, ResourceHistoryTable historyEntity) {
-		if (historyEntity.getEncoding() == ResourceEncodingEnum.JSONC
-				|| historyEntity.getEncoding() == ResourceEncodingEnum.JSON) {
+		if (myStorageSettings.getResourceEncoding() == ResourceEncodingEnum.JSONZ) {
+			myResourceHistoryCalculator.conditionallyReencodeHistoryEntity(historyEntity);
+		} else if (historyEntity.getEncoding() == ResourceEncodingEnum.JSONC
+				|| historyEntity.getEncoding() == ResourceEncodingEnum.JSON
+				|| historyEntity.getEncoding() == ResourceEncodingEnum.JSONZ) {
 			byte[] resourceBytes = historyEntity.getResource();
 			if (resourceBytes != null) {
-				String resourceText = decodeResource(resourceBytes, historyEntity.getEncoding());
+				String resourceText =
+						myResourceHistoryCalculator.decodeResource(resourceBytes, historyEntity.getEncoding());
 				myResourceHistoryCalculator.conditionallyAlterHistoryEntity(entity, historyEntity, resourceText);
 			}
 		}
@@ -2113,6 +2125,10 @@ public abstract class BaseHapiFhirResourceDao<T extends IBaseResource> extends B
 					Validate.inclusiveBetween(0, Integer.MAX_VALUE, offset, "Offset must be a positive integer");
 				}
 				theParams.setOffset(offset);
+				String[] searchAfter = theRequest.getParameters().get(Constants.PARAM_SEARCH_AFTER);
+				if (offset != null && searchAfter != null && searchAfter.length > 0) {
+					theParams.setSearchAfter(searchAfter[0]);
+				}
 			}
 
 			Integer count = RestfulServerUtils.extractCountParameter(theRequest);
@@ -2597,14 +2613,11 @@ public abstract class BaseHapiFhirResourceDao<T extends IBaseResource> extends B
 
 		if (entity.isDeleted()) {
 			// We're un-deleting this entity so let's inform the memory cache service
+			RequestPartitionId entityPartitionId = getEntityRequestPartitionId(entity);
+			myIdHelperService.invalidateResolvedFhirIdAfterCommit(
+					entityPartitionId, entity.getResourceType(), entity.getFhirId());
 			myIdHelperService.addResolvedPidToFhirIdAfterCommit(
-					entity.getPersistentId(),
-					entity.getPartitionId() == null
-							? RequestPartitionId.defaultPartition()
-							: entity.getPartitionId().toPartitionId(),
-					entity.getResourceType(),
-					entity.getFhirId(),
-					null);
+					entity.getPersistentId(), entityPartitionId, entity.getResourceType(), entity.getFhirId(), null);
 		}
 
 		boolean shouldForcePopulateOldResourceForProcessing = myInterceptorBroadcaster instanceof InterceptorService
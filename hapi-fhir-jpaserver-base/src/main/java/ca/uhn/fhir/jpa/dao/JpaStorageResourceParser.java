@@ -108,6 +108,9 @@ public class JpaStorageResourceParser implements IJpaStorageResourceParser {
 	@Autowired
 	IMetaTagSorter myMetaTagSorter;
 
+	@Autowired(required = false)
+	private ResourceEncodingDictionarySvc myResourceEncodingDictionarySvc;
+
 	@Override
 	public IBaseResource toResource(IBasePersistedResource theEntity, boolean theForHistoryOperation) {
 		RuntimeResourceDefinition type = myFhirContext.getResourceDefinition(theEntity.getResourceType());
@@ -564,13 +567,13 @@ public class JpaStorageResourceParser implements IJpaStorageResourceParser {
 		return FhirContext.forCached(theVersion);
 	}
 
-	private static String decodedResourceText(
+	private String decodedResourceText(
 			byte[] resourceBytes, String resourceText, ResourceEncodingEnum resourceEncoding) {
 		String decodedResourceText;
 		if (resourceText != null) {
 			decodedResourceText = resourceText;
 		} else {
-			decodedResourceText = decodeResource(resourceBytes, resourceEncoding);
+			decodedResourceText = decodeResource(resourceBytes, resourceEncoding, myResourceEncodingDictionarySvc);
 		}
 		return decodedResourceText;
 	}
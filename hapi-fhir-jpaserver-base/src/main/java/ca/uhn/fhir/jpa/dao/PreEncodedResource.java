@@ -0,0 +1,94 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.dao;
+
+import ca.uhn.fhir.jpa.model.entity.ResourceEncodingEnum;
+import ca.uhn.fhir.rest.api.server.storage.TransactionDetails;
+import jakarta.annotation.Nullable;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The text of a resource which has been encoded ahead of time (e.g. in parallel with
+ * other resources in the same transaction) by
+ * {@link ResourceHistoryCalculator#preEncodeResource(IBaseResource, ResourceEncodingEnum, boolean)}, and which will be used
+ * instead of encoding the resource again when it is stored if the encoding options
+ * still match.
+ *
+ * @since 8.4.0
+ */
+class PreEncodedResource {
+
+	private static final String USER_DATA_KEY = PreEncodedResource.class.getName();
+
+	private final ResourceEncodingEnum myEncoding;
+	private final List<String> myExcludeElements;
+	private final String myResourceText;
+
+	PreEncodedResource(ResourceEncodingEnum theEncoding, List<String> theExcludeElements, String theResourceText) {
+		myEncoding = theEncoding;
+		myExcludeElements = theExcludeElements;
+		myResourceText = theResourceText;
+	}
+
+	/**
+	 * Returns the encoded text if it was produced using the given encoding options,
+	 * or <code>null</code> otherwise
+	 */
+	@Nullable
+	String getResourceTextIfMatching(ResourceEncodingEnum theEncoding, List<String> theExcludeElements) {
+		if (myEncoding == theEncoding && myExcludeElements.equals(theExcludeElements)) {
+			return myResourceText;
+		}
+		return null;
+	}
+
+	/**
+	 * Registers the pre-encoded text for the given resource. This method is not thread safe
+	 * and should be called from the thread processing the transaction.
+	 */
+	static void store(
+			TransactionDetails theTransactionDetails,
+			IBaseResource theResource,
+			PreEncodedResource thePreEncodedResource) {
+		Map<IBaseResource, PreEncodedResource> map =
+				theTransactionDetails.getOrCreateUserData(USER_DATA_KEY, IdentityHashMap::new);
+		map.put(theResource, thePreEncodedResource);
+	}
+
+	/**
+	 * Removes and returns the pre-encoded text for the given resource (matched by
+	 * object identity), or returns <code>null</code> if there is none
+	 */
+	@Nullable
+	static PreEncodedResource remove(@Nullable TransactionDetails theTransactionDetails, IBaseResource theResource) {
+		if (theTransactionDetails == null) {
+			return null;
+		}
+		Map<IBaseResource, PreEncodedResource> map = theTransactionDetails.getUserData(USER_DATA_KEY);
+		if (map == null) {
+			return null;
+		}
+		return map.remove(theResource);
+	}
+}
@@ -0,0 +1,280 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.dao;
+
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.jpa.dao.data.IResourceEncodingDictionaryDao;
+import ca.uhn.fhir.jpa.dao.data.IResourceHistoryTableDao;
+import ca.uhn.fhir.jpa.dao.tx.IHapiTransactionService;
+import ca.uhn.fhir.jpa.entity.ResourceEncodingDictionaryEntity;
+import ca.uhn.fhir.jpa.model.entity.ResourceEncodingEnum;
+import ca.uhn.fhir.jpa.model.entity.ResourceHistoryTable;
+import ca.uhn.fhir.jpa.util.MemoryCacheService;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import com.github.luben.zstd.ZstdDictTrainer;
+import com.github.luben.zstd.ZstdException;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Compresses and decompresses resource bodies stored using the {@link ResourceEncodingEnum#JSONZ}
+ * encoding, and manages the Zstandard dictionaries which can be trained for individual resource
+ * types in order to improve the compression ratio of small resources.
+ * <p>
+ * When a dictionary exists for a resource type, the most recently trained one is used to
+ * compress new resource versions. Because the dictionary ID is written to the header of each
+ * compressed frame, older dictionaries remain usable for reading existing data and no
+ * additional column is needed on <code>HFJ_RES_VER</code>.
+ * </p>
+ *
+ * @since 8.4.0
+ */
+public class ResourceEncodingDictionarySvc {
+
+	public static final int DEFAULT_DICTIONARY_SIZE = 32 * 1024;
+	public static final int DEFAULT_SAMPLE_COUNT = 1000;
+	/**
+	 * Training a dictionary with fewer samples than this will generally fail, or produce
+	 * a dictionary which is not useful
+	 */
+	public static final int MINIMUM_SAMPLE_COUNT = 10;
+
+	private static final Logger ourLog = LoggerFactory.getLogger(ResourceEncodingDictionarySvc.class);
+
+	private final IResourceEncodingDictionaryDao myDictionaryDao;
+	private final IResourceHistoryTableDao myResourceHistoryTableDao;
+	private final IHapiTransactionService myTransactionService;
+	private final MemoryCacheService myMemoryCacheService;
+
+	/**
+	 * Constructor
+	 */
+	public ResourceEncodingDictionarySvc(
+			IResourceEncodingDictionaryDao theDictionaryDao,
+			IResourceHistoryTableDao theResourceHistoryTableDao,
+			IHapiTransactionService theTransactionService,
+			MemoryCacheService theMemoryCacheService) {
+		myDictionaryDao = theDictionaryDao;
+		myResourceHistoryTableDao = theResourceHistoryTableDao;
+		myTransactionService = theTransactionService;
+		myMemoryCacheService = theMemoryCacheService;
+	}
+
+	/**
+	 * Compresses the given encoded resource using the newest dictionary trained for
+	 * the given resource type, or without a dictionary if none has been trained
+	 */
+	public byte[] compress(String theResourceType, String theEncodedResource) {
+		ZstdDictCompress dictionary = getCompressionDictionary(theResourceType)
+				.map(CompressionDictionary::dictionary)
+				.orElse(null);
+		return ZstdUtil.compress(theEncodedResource, dictionary);
+	}
+
+	/**
+	 * Decompresses a resource body which was compressed using {@link #compress(String, String)}
+	 */
+	public String decompress(byte[] theCompressed) {
+		long dictionaryId = ZstdUtil.getDictionaryId(theCompressed);
+		ZstdDictDecompress dictionary = null;
+		if (dictionaryId != 0) {
+			dictionary = myMemoryCacheService.get(
+					MemoryCacheService.CacheEnum.ENCODING_DICTIONARY_ID_TO_DICTIONARY,
+					dictionaryId,
+					this::loadDecompressionDictionary);
+		}
+		return ZstdUtil.decompress(theCompressed, dictionary);
+	}
+
+	/**
+	 * Returns the ID of the dictionary which will currently be used to compress resources
+	 * of the given type, or <code>0</code> if no dictionary exists for the type
+	 */
+	public long getCurrentDictionaryId(String theResourceType) {
+		return getCompressionDictionary(theResourceType)
+				.map(CompressionDictionary::id)
+				.orElse(0L);
+	}
+
+	/**
+	 * Trains a new dictionary for the given resource type using the bodies of the most
+	 * recently updated versions of resources of that type as samples, and stores it as
+	 * the current dictionary for the type. Existing resource versions are not re-encoded
+	 * by this method, use a <code>$reindex</code> with storage optimization for that.
+	 *
+	 * @param theResourceType The resource type, e.g. <code>"Observation"</code>
+	 * @param theSampleCount  The maximum number of resource versions to sample
+	 * @return The ID of the new dictionary
+	 */
+	public long trainDictionary(String theResourceType, int theSampleCount) {
+		Validate.notBlank(theResourceType, "theResourceType must not be blank");
+		Validate.isTrue(
+				theSampleCount >= MINIMUM_SAMPLE_COUNT, "theSampleCount must be at least %d", MINIMUM_SAMPLE_COUNT);
+
+		List<String> samples = myTransactionService
+				.withSystemRequest()
+				.readOnly()
+				.execute(() -> loadSamples(theResourceType, theSampleCount));
+
+		return trainDictionary(theResourceType, samples);
+	}
+
+	/**
+	 * Trains a new dictionary for the given resource type using the supplied encoded
+	 * resources as samples, and stores it as the current dictionary for the type.
+	 *
+	 * @return The ID of the new dictionary
+	 */
+	public long trainDictionary(String theResourceType, List<String> theSamples) {
+		if (theSamples.size() < MINIMUM_SAMPLE_COUNT) {
+			throw new InvalidRequestException(
+					Msg.code(2747) + "Unable to train an encoding dictionary for resource type "
+							+ theResourceType + ", found " + theSamples.size() + " samples but at least "
+							+ MINIMUM_SAMPLE_COUNT + " are required");
+		}
+
+		List<byte[]> sampleBytes = new ArrayList<>(theSamples.size());
+		int totalSize = 0;
+		for (String next : theSamples) {
+			byte[] nextBytes = next.getBytes(StandardCharsets.UTF_8);
+			sampleBytes.add(nextBytes);
+			totalSize += nextBytes.length;
+		}
+
+		byte[] dictionary;
+		try {
+			ZstdDictTrainer trainer = new ZstdDictTrainer(totalSize, DEFAULT_DICTIONARY_SIZE);
+			sampleBytes.forEach(trainer::addSample);
+			dictionary = trainer.trainSamples();
+		} catch (ZstdException e) {
+			throw new InternalErrorException(
+					Msg.code(2748) + "Failed to train encoding dictionary for resource type " + theResourceType + ": "
+							+ e.getMessage(),
+					e);
+		}
+
+		long dictionaryId = storeDictionary(theResourceType, dictionary);
+		ourLog.info(
+				"Trained encoding dictionary {} of {} bytes for resource type {} using {} samples",
+				dictionaryId,
+				dictionary.length,
+				theResourceType,
+				sampleBytes.size());
+		return dictionaryId;
+	}
+
+	/**
+	 * Stores a previously trained dictionary as the current dictionary for the given resource type
+	 *
+	 * @return The ID of the dictionary, as embedded in the dictionary itself
+	 */
+	public long storeDictionary(String theResourceType, byte[] theDictionary) {
+		long dictionaryId = Zstd.getDictIdFromDict(theDictionary);
+		if (dictionaryId == 0) {
+			throw new InvalidRequestException(Msg.code(2749) + "Encoding dictionary does not contain a dictionary ID");
+		}
+
+		myTransactionService.withSystemRequest().execute(() -> {
+			if (myDictionaryDao.existsById(dictionaryId)) {
+				throw new InvalidRequestException(
+						Msg.code(2750) + "An encoding dictionary with ID " + dictionaryId + " already exists");
+			}
+			ResourceEncodingDictionaryEntity entity = new ResourceEncodingDictionaryEntity()
+					.setId(dictionaryId)
+					.setResourceType(theResourceType)
+					.setCreated(new Date())
+					.setContent(theDictionary);
+			myDictionaryDao.save(entity);
+		});
+
+		myMemoryCacheService.invalidateCaches(MemoryCacheService.CacheEnum.RES_TYPE_TO_ENCODING_DICTIONARY);
+		return dictionaryId;
+	}
+
+	private Optional<CompressionDictionary> getCompressionDictionary(String theResourceType) {
+		return myMemoryCacheService.get(
+				MemoryCacheService.CacheEnum.RES_TYPE_TO_ENCODING_DICTIONARY,
+				theResourceType,
+				this::loadCompressionDictionary);
+	}
+
+	@Nonnull
+	private Optional<CompressionDictionary> loadCompressionDictionary(String theResourceType) {
+		List<ResourceEncodingDictionaryEntity> newest =
+				myDictionaryDao.findNewestForResourceType(PageRequest.of(0, 1), theResourceType);
+		if (newest.isEmpty()) {
+			return Optional.empty();
+		}
+		ResourceEncodingDictionaryEntity entity = newest.get(0);
+		ZstdDictCompress dictionary = new ZstdDictCompress(entity.getContent(), ZstdUtil.DEFAULT_COMPRESSION_LEVEL);
+		return Optional.of(new CompressionDictionary(entity.getId(), dictionary));
+	}
+
+	@Nonnull
+	private ZstdDictDecompress loadDecompressionDictionary(Long theDictionaryId) {
+		ResourceEncodingDictionaryEntity entity = myDictionaryDao
+				.findById(theDictionaryId)
+				.orElseThrow(() -> new InternalErrorException(
+						Msg.code(2751) + "Unknown resource encoding dictionary ID: " + theDictionaryId));
+		return new ZstdDictDecompress(entity.getContent());
+	}
+
+	private List<String> loadSamples(String theResourceType, int theSampleCount) {
+		List<String> retVal = new ArrayList<>(theSampleCount);
+		List<ResourceHistoryTable> versions = myResourceHistoryTableDao
+				.findNewestVersionsForResourceType(PageRequest.of(0, theSampleCount), theResourceType)
+				.getContent();
+		for (ResourceHistoryTable next : versions) {
+			String text = decodeSample(next);
+			if (text != null) {
+				retVal.add(text);
+			}
+		}
+		return retVal;
+	}
+
+	@Nullable
+	private String decodeSample(ResourceHistoryTable theVersion) {
+		if (theVersion.getResourceTextVc() != null) {
+			return theVersion.getResourceTextVc();
+		}
+		byte[] resourceBytes = theVersion.getResource();
+		if (resourceBytes == null) {
+			return null;
+		}
+		return BaseHapiFhirDao.decodeResource(resourceBytes, theVersion.getEncoding(), this);
+	}
+
+	private record CompressionDictionary(long id, ZstdDictCompress dictionary) {}
+}
@@ -20,19 +20,26 @@
 package ca.uhn.fhir.jpa.dao;
 
 import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.FhirVersionEnum;
+import ca.uhn.fhir.jpa.esr.ExternallyStoredResourceAddressMetadataKey;
 import ca.uhn.fhir.jpa.model.entity.ResourceEncodingEnum;
 import ca.uhn.fhir.jpa.model.entity.ResourceHistoryTable;
 import ca.uhn.fhir.jpa.model.entity.ResourceTable;
 import ca.uhn.fhir.parser.IParser;
+import ca.uhn.fhir.util.HapiExtensions;
 import com.google.common.hash.HashCode;
 import com.google.common.hash.HashFunction;
 import com.google.common.hash.Hashing;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
 import org.apache.commons.lang3.StringUtils;
+import org.hl7.fhir.instance.model.api.IBaseExtension;
+import org.hl7.fhir.instance.model.api.IBaseHasExtensions;
+import org.hl7.fhir.instance.model.api.IBaseMetaType;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -40,6 +47,11 @@ import java.util.List;
  * Responsible for various resource history-centric and {@link FhirContext} aware operations called by
  * {@link BaseHapiFhirDao} or {@link BaseHapiFhirResourceDao} that require knowledge of whether an Oracle database is
  * being used.
+ * <p>
+ * Resource bodies are stored in the binary <code>RES_TEXT</code> column when an Oracle database is being used, or
+ * when the {@link ResourceEncodingEnum#JSONZ} encoding is selected (on any database). Otherwise they are stored
+ * uncompressed in the <code>RES_TEXT_VC</code> column.
+ * </p>
  */
 public class ResourceHistoryCalculator {
 	private static final org.slf4j.Logger ourLog = org.slf4j.LoggerFactory.getLogger(ResourceHistoryCalculator.class);
@@ -48,24 +60,61 @@ public class ResourceHistoryCalculator {
 	private final FhirContext myFhirContext;
 	private final boolean myIsOracleDialect;
 
+	@Nullable
+	private final ResourceEncodingDictionarySvc myDictionarySvc;
+
 	public ResourceHistoryCalculator(FhirContext theFhirContext, boolean theIsOracleDialect) {
+		this(theFhirContext, theIsOracleDialect, null);
+	}
+
+	/**
+	 * @param theDictionarySvc If not <code>null</code>, used to compress and decompress resource bodies stored
+	 *                         using {@link ResourceEncodingEnum#JSONZ} with a per-resource-type dictionary
+	 * @since 8.4.0
+	 */
+	public ResourceHistoryCalculator(
+			FhirContext theFhirContext,
+			boolean theIsOracleDialect,
+			@Nullable ResourceEncodingDictionarySvc theDictionarySvc) {
 		myFhirContext = theFhirContext;
 		myIsOracleDialect = theIsOracleDialect;
+		myDictionarySvc = theDictionarySvc;
 	}
 
 	ResourceHistoryState calculateResourceHistoryState(
 			IBaseResource theResource, ResourceEncodingEnum theEncoding, List<String> theExcludeElements) {
-		final String encodedResource = encodeResource(theResource, theEncoding, theExcludeElements);
+		return calculateResourceHistoryState(theResource, theEncoding, theExcludeElements, null);
+	}
+
+	/**
+	 * @param thePreEncodedResource If not null, the resource text previously produced by
+	 *                              {@link #encodeResource(IBaseResource, ResourceEncodingEnum, List)}
+	 *                              using the same encoding and excluded elements
+	 */
+	ResourceHistoryState calculateResourceHistoryState(
+			IBaseResource theResource,
+			ResourceEncodingEnum theEncoding,
+			List<String> theExcludeElements,
+			@Nullable String thePreEncodedResource) {
+		final String encodedResource = thePreEncodedResource != null
+				? thePreEncodedResource
+				: encodeResource(theResource, theEncoding, theExcludeElements);
 		final byte[] resourceBinary;
 		final String resourceText;
 		final ResourceEncodingEnum encoding;
 		final HashCode hashCode;
 
-		if (myIsOracleDialect) {
+		if (isStoredAsBinary(theEncoding)) {
 			resourceText = null;
-			resourceBinary = getResourceBinary(theEncoding, encodedResource);
+			resourceBinary =
+					getResourceBinary(myFhirContext.getResourceType(theResource), theEncoding, encodedResource);
 			encoding = theEncoding;
-			hashCode = SHA_256.hashBytes(resourceBinary);
+			if (theEncoding == ResourceEncodingEnum.JSONZ) {
+				// The compressed bytes depend on the dictionary in use, so hash the content itself
+				hashCode = SHA_256.hashUnencodedChars(encodedResource);
+			} else {
+				hashCode = SHA_256.hashBytes(resourceBinary);
+			}
 		} else {
 			resourceText = encodedResource;
 			resourceBinary = null;
@@ -92,17 +141,133 @@ public class ResourceHistoryCalculator {
 		return false;
 	}
 
+	/**
+	 * Re-encodes the body of the given history entity using {@link ResourceEncodingEnum#JSONZ} and the
+	 * current dictionary for its resource type, unless it is already encoded that way.
+	 *
+	 * @return <code>true</code> if the entity was modified
+	 * @since 8.4.0
+	 */
+	boolean conditionallyReencodeHistoryEntity(ResourceHistoryTable theHistoryEntity) {
+		ResourceEncodingEnum encoding = theHistoryEntity.getEncoding();
+		if (encoding != ResourceEncodingEnum.JSON
+				&& encoding != ResourceEncodingEnum.JSONC
+				&& encoding != ResourceEncodingEnum.JSONZ) {
+			return false;
+		}
+
+		String resourceType = theHistoryEntity.getResourceType();
+		String resourceText = theHistoryEntity.getResourceTextVc();
+		if (resourceText == null) {
+			byte[] resourceBytes = theHistoryEntity.getResource();
+			if (resourceBytes == null) {
+				return false;
+			}
+			if (encoding == ResourceEncodingEnum.JSONZ
+					&& ZstdUtil.getDictionaryId(resourceBytes) == getCurrentDictionaryId(resourceType)) {
+				return false;
+			}
+			resourceText = decodeResource(resourceBytes, encoding);
+		}
+
+		ourLog.debug(
+				"Re-encoding text of resource {} version {} as {}",
+				theHistoryEntity.getResourceId(),
+				theHistoryEntity.getVersion(),
+				ResourceEncodingEnum.JSONZ);
+		theHistoryEntity.setResource(getResourceBinary(resourceType, ResourceEncodingEnum.JSONZ, resourceText));
+		theHistoryEntity.setResourceTextVc(null);
+		theHistoryEntity.setEncoding(ResourceEncodingEnum.JSONZ);
+		return true;
+	}
+
 	boolean isResourceHistoryChanged(
 			ResourceHistoryTable theCurrentHistoryVersion,
 			@Nullable byte[] theResourceBinary,
-			@Nullable String resourceText) {
-		if (myIsOracleDialect) {
-			return !Arrays.equals(theCurrentHistoryVersion.getResource(), theResourceBinary);
+			@Nullable String resourceText,
+			ResourceEncodingEnum theEncoding) {
+		if (isStoredAsBinary(theEncoding)) {
+			byte[] currentBinary = theCurrentHistoryVersion.getResource();
+			if (Arrays.equals(currentBinary, theResourceBinary)) {
+				return false;
+			}
+			if (currentBinary != null
+					&& theResourceBinary != null
+					&& theEncoding == ResourceEncodingEnum.JSONZ
+					&& theCurrentHistoryVersion.getEncoding() == ResourceEncodingEnum.JSONZ
+					&& ZstdUtil.getDictionaryId(currentBinary) != ZstdUtil.getDictionaryId(theResourceBinary)) {
+				// The same content compressed using a different dictionary
+				return !decodeResource(currentBinary, ResourceEncodingEnum.JSONZ)
+						.equals(decodeResource(theResourceBinary, ResourceEncodingEnum.JSONZ));
+			}
+			return true;
 		}
 
 		return !StringUtils.equals(theCurrentHistoryVersion.getResourceTextVc(), resourceText);
 	}
 
+	/**
+	 * Encodes the given resource in the same way that {@link BaseHapiFhirDao} will when it is stored,
+	 * so that this work can be done ahead of time. This method does not access the database and may
+	 * be called from any thread, as long as the resource is not being modified concurrently.
+	 *
+	 * @return The encoded resource, or <code>null</code> if the resource can not be encoded ahead of time
+	 * @since 8.4.0
+	 */
+	@Nullable
+	PreEncodedResource preEncodeResource(
+			IBaseResource theResource, ResourceEncodingEnum theEncoding, boolean theInlineTagMode) {
+		if (ExternallyStoredResourceAddressMetadataKey.INSTANCE.get(theResource) != null) {
+			return null;
+		}
+
+		boolean hasExtensions = false;
+		IBaseMetaType meta = theResource.getMeta();
+		if (meta instanceof IBaseHasExtensions) {
+			List<? extends IBaseExtension<?, ?>> extensions = ((IBaseHasExtensions) meta).getExtension();
+			if (myFhirContext.getVersion().getVersion().equals(FhirVersionEnum.DSTU3)
+					&& extensions.stream().anyMatch(t -> HapiExtensions.EXT_META_SOURCE.equals(t.getUrl()))) {
+				// The source extension is removed temporarily while the resource is encoded
+				return null;
+			}
+			hasExtensions = !extensions.isEmpty();
+		}
+
+		String resourceType = myFhirContext.getResourceType(theResource);
+		List<String> excludeElements = getExcludedElements(resourceType, hasExtensions, theInlineTagMode);
+		String resourceText = encodeResource(theResource, theEncoding, excludeElements);
+		return new PreEncodedResource(theEncoding, excludeElements, resourceText);
+	}
+
+	/**
+	 * Returns the elements which are not encoded when a resource is stored
+	 *
+	 * @param theMetaHasExtensions Does <code>Resource.meta</code> have any extensions (after removing any which are stored separately)
+	 */
+	static List<String> getExcludedElements(
+			String theResourceType, boolean theMetaHasExtensions, boolean theInlineTagMode) {
+		List<String> retVal = new ArrayList<>(8);
+		retVal.add("id");
+		if (theMetaHasExtensions || theInlineTagMode) {
+			if (!theInlineTagMode) {
+				retVal.add(theResourceType + ".meta.profile");
+				retVal.add(theResourceType + ".meta.tag");
+				retVal.add(theResourceType + ".meta.security");
+			}
+			retVal.add(theResourceType + ".meta.versionId");
+			retVal.add(theResourceType + ".meta.lastUpdated");
+			retVal.add(theResourceType + ".meta.source");
+		} else {
+			/*
+			 * If there are no extensions in the meta element, we can just exclude the
+			 * whole meta element, which avoids adding an empty "meta":{}
+			 * from showing up in the serialized JSON.
+			 */
+			retVal.add(theResourceType + ".meta");
+		}
+		return retVal;
+	}
+
 	String encodeResource(
 			IBaseResource theResource, ResourceEncodingEnum theEncoding, List<String> theExcludeElements) {
 		final IParser parser = theEncoding.newParser(myFhirContext);
@@ -124,23 +289,52 @@ public class ResourceHistoryCalculator {
 				return theEncodedResource.getBytes(StandardCharsets.UTF_8);
 			case JSONC:
 				return GZipUtil.compress(theEncodedResource);
+			case JSONZ:
+				return ZstdUtil.compress(theEncodedResource);
 			default:
 				return new byte[0];
 		}
 	}
 
+	/**
+	 * As {@link #getResourceBinary(ResourceEncodingEnum, String)}, but uses the dictionary trained for the
+	 * given resource type (if any) when the encoding is {@link ResourceEncodingEnum#JSONZ}
+	 */
+	@Nonnull
+	byte[] getResourceBinary(String theResourceType, ResourceEncodingEnum theEncoding, String theEncodedResource) {
+		if (theEncoding == ResourceEncodingEnum.JSONZ && myDictionarySvc != null) {
+			return myDictionarySvc.compress(theResourceType, theEncodedResource);
+		}
+		return getResourceBinary(theEncoding, theEncodedResource);
+	}
+
+	/**
+	 * Decodes a resource body stored in the binary column
+	 */
+	String decodeResource(byte[] theResourceBytes, ResourceEncodingEnum theEncoding) {
+		return BaseHapiFhirDao.decodeResource(theResourceBytes, theEncoding, myDictionarySvc);
+	}
+
 	void populateEncodedResource(
 			EncodedResource theEncodedResource,
 			String theEncodedResourceString,
 			@Nullable byte[] theResourceBinary,
 			ResourceEncodingEnum theEncoding) {
-		if (myIsOracleDialect) {
+		if (isStoredAsBinary(theEncoding)) {
 			populateEncodedResourceInner(theEncodedResource, null, theResourceBinary, theEncoding);
 		} else {
 			populateEncodedResourceInner(theEncodedResource, theEncodedResourceString, null, ResourceEncodingEnum.JSON);
 		}
 	}
 
+	private boolean isStoredAsBinary(ResourceEncodingEnum theEncoding) {
+		return myIsOracleDialect || theEncoding == ResourceEncodingEnum.JSONZ;
+	}
+
+	private long getCurrentDictionaryId(String theResourceType) {
+		return myDictionarySvc != null ? myDictionarySvc.getCurrentDictionaryId(theResourceType) : 0;
+	}
+
 	private void populateEncodedResourceInner(
 			EncodedResource encodedResource,
 			String encodedResourceString,
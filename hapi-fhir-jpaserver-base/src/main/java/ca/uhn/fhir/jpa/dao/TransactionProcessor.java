@@ -21,6 +21,7 @@ package ca.uhn.fhir.jpa.dao;
 
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.context.RuntimeResourceDefinition;
+import ca.uhn.fhir.i18n.Msg;
 import ca.uhn.fhir.interceptor.model.RequestPartitionId;
 import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
 import ca.uhn.fhir.jpa.api.dao.IFhirSystemDao;
@@ -30,6 +31,7 @@ import ca.uhn.fhir.jpa.api.svc.ResolveIdentityMode;
 import ca.uhn.fhir.jpa.config.HapiFhirHibernateJpaDialect;
 import ca.uhn.fhir.jpa.model.cross.IResourceLookup;
 import ca.uhn.fhir.jpa.model.dao.JpaPid;
+import ca.uhn.fhir.jpa.model.entity.ResourceEncodingEnum;
 import ca.uhn.fhir.jpa.model.entity.ResourceIndexedSearchParamToken;
 import ca.uhn.fhir.jpa.model.entity.ResourceTable;
 import ca.uhn.fhir.jpa.model.entity.StorageSettings;
@@ -37,6 +39,8 @@ import ca.uhn.fhir.jpa.partition.IRequestPartitionHelperSvc;
 import ca.uhn.fhir.jpa.search.ResourceSearchUrlSvc;
 import ca.uhn.fhir.jpa.searchparam.MatchUrlService;
 import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
+import ca.uhn.fhir.jpa.searchparam.extractor.PreExtractedSearchParams;
+import ca.uhn.fhir.jpa.searchparam.extractor.SearchParamExtractorService;
 import ca.uhn.fhir.jpa.util.MemoryCacheService;
 import ca.uhn.fhir.jpa.util.QueryChunker;
 import ca.uhn.fhir.model.api.IQueryParameterType;
@@ -44,14 +48,18 @@ import ca.uhn.fhir.rest.api.server.RequestDetails;
 import ca.uhn.fhir.rest.api.server.storage.IResourcePersistentId;
 import ca.uhn.fhir.rest.api.server.storage.TransactionDetails;
 import ca.uhn.fhir.rest.param.TokenParam;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
 import ca.uhn.fhir.util.FhirTerser;
 import ca.uhn.fhir.util.ResourceReferenceInfo;
 import ca.uhn.fhir.util.StopWatch;
 import ca.uhn.fhir.util.TaskChunker;
+import ca.uhn.fhir.util.ThreadPoolUtil;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ListMultimap;
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.annotation.PreDestroy;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.FlushModeType;
 import jakarta.persistence.PersistenceContext;
@@ -73,6 +81,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -84,6 +93,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -134,6 +145,15 @@ public class TransactionProcessor extends BaseTransactionProcessor {
 	@Autowired
 	private IRequestPartitionHelperSvc myRequestPartitionHelperSvc;
 
+	@Autowired
+	private SearchParamExtractorService mySearchParamExtractorService;
+
+	@Autowired
+	private ResourceHistoryCalculator myResourceHistoryCalculator;
+
+	private ThreadPoolTaskExecutor myPreIndexingExecutor;
+	private int myPreIndexingExecutorThreadCount;
+
 	public void setEntityManagerForUnitTest(EntityManager theEntityManager) {
 		myEntityManager = theEntityManager;
 	}
@@ -841,6 +861,94 @@ public class TransactionProcessor extends BaseTransactionProcessor {
 		return hashToSearch;
 	}
 
+	@Override
+	protected boolean isPreIndexingEnabled(RequestDetails theRequestDetails, int theResourceCount) {
+		return myStorageSettings.getTransactionParallelIndexingThreadCount() > 0
+				&& theResourceCount >= myStorageSettings.getTransactionParallelIndexingMinimumResourceCount();
+	}
+
+	/**
+	 * Extracts the search parameter indexes for, and encodes, the given resources using
+	 * a pool of worker threads. Neither of these steps accesses the database. The results
+	 * are stored in the {@link TransactionDetails} and picked up when each resource is
+	 * subsequently saved. Any resource which can't be pre-indexed is simply indexed
+	 * normally when it is saved.
+	 */
+	@Override
+	protected void preIndexResources(
+			RequestDetails theRequestDetails,
+			TransactionDetails theTransactionDetails,
+			List<IBaseResource> theResources) {
+		FhirTerser terser = myFhirContext.newTerser();
+		List<IBaseResource> resources = new ArrayList<>(theResources.size());
+		for (IBaseResource next : theResources) {
+			// Inline match URL references are resolved (using the database) during indexing
+			boolean hasMatchUrlReference = terser.getAllResourceReferences(next).stream()
+					.map(t -> t.getResourceReference().getReferenceElement().getValue())
+					.anyMatch(t -> t != null && t.contains("?"));
+			if (!hasMatchUrlReference) {
+				// This can modify the resource so it needs to happen on this thread
+				terser.containResources(next, null, true);
+				resources.add(next);
+			}
+		}
+		if (resources.isEmpty()) {
+			return;
+		}
+
+		// Each resource is handled by a single task, since reading a resource can lazily create elements
+		ThreadPoolTaskExecutor executor = getPreIndexingExecutor();
+		ResourceEncodingEnum encoding = myStorageSettings.getResourceEncoding();
+		boolean inlineTagMode = myStorageSettings.getTagStorageMode() == JpaStorageSettings.TagStorageModeEnum.INLINE;
+		List<Future<PreIndexedResource>> futures = new ArrayList<>(resources.size());
+		for (IBaseResource next : resources) {
+			futures.add(executor.submit(() -> new PreIndexedResource(
+					mySearchParamExtractorService.preExtractSearchParams(next),
+					myResourceHistoryCalculator.preEncodeResource(next, encoding, inlineTagMode))));
+		}
+
+		for (int i = 0; i < resources.size(); i++) {
+			IBaseResource next = resources.get(i);
+			PreIndexedResource preIndexed;
+			try {
+				preIndexed = futures.get(i).get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InternalErrorException(Msg.code(2757) + e, e);
+			} catch (ExecutionException e) {
+				ourLog.warn("Failed to pre-index resource, it will be indexed when it is saved: {}", e.toString());
+				continue;
+			}
+			PreExtractedSearchParams.store(theTransactionDetails, next, preIndexed.searchParams());
+			if (preIndexed.encodedResource() != null) {
+				PreEncodedResource.store(theTransactionDetails, next, preIndexed.encodedResource());
+			}
+		}
+	}
+
+	private synchronized ThreadPoolTaskExecutor getPreIndexingExecutor() {
+		int threadCount = myStorageSettings.getTransactionParallelIndexingThreadCount();
+		if (myPreIndexingExecutor == null || myPreIndexingExecutorThreadCount != threadCount) {
+			if (myPreIndexingExecutor != null) {
+				myPreIndexingExecutor.shutdown();
+			}
+			myPreIndexingExecutor = ThreadPoolUtil.newThreadPool(threadCount, threadCount, "transaction-indexing-");
+			myPreIndexingExecutorThreadCount = threadCount;
+		}
+		return myPreIndexingExecutor;
+	}
+
+	@PreDestroy
+	public synchronized void stop() {
+		if (myPreIndexingExecutor != null) {
+			myPreIndexingExecutor.shutdown();
+			myPreIndexingExecutor = null;
+		}
+	}
+
+	private record PreIndexedResource(
+			PreExtractedSearchParams searchParams, @Nullable PreEncodedResource encodedResource) {}
+
 	@Override
 	protected void flushSession(Map<IIdType, DaoMethodOutcome> theIdToPersistedOutcome) {
 		try {
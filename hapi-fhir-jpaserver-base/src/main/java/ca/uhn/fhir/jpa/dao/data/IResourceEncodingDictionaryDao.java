@@ -0,0 +1,37 @@
+/*
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.dao.data;
+
+import ca.uhn.fhir.jpa.entity.ResourceEncodingDictionaryEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface IResourceEncodingDictionaryDao
+		extends JpaRepository<ResourceEncodingDictionaryEntity, Long>, IHapiFhirJpaRepository {
+
+	@Query(
+			"SELECT d FROM ResourceEncodingDictionaryEntity d WHERE d.myResourceType = :type ORDER BY d.myCreated DESC, d.myId DESC")
+	List<ResourceEncodingDictionaryEntity> findNewestForResourceType(
+			Pageable thePage, @Param("type") String theResourceType);
+}
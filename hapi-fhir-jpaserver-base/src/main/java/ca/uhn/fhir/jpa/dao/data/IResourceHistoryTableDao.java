@@ -74,6 +74,16 @@ public interface IResourceHistoryTableDao
 			+ "WHERE v.myResourceVersion <> t.myVersion")
 	Slice<ResourceHistoryTablePk> findIdsOfPreviousVersionsOfResources(Pageable thePage);
 
+	/**
+	 * Returns the most recently updated versions of resources of the given type, across all
+	 * partitions. Used to gather samples for training resource compression dictionaries.
+	 *
+	 * @since 8.4.0
+	 */
+	@Query("SELECT v FROM ResourceHistoryTable v WHERE v.myResourceType = :restype ORDER BY v.myUpdated DESC")
+	Slice<ResourceHistoryTable> findNewestVersionsForResourceType(
+			Pageable thePage, @Param("restype") String theResourceName);
+
 	@Modifying
 	@Query(
 			"UPDATE ResourceHistoryTable r SET r.myResourceVersion = :newVersion WHERE r.myResourcePid = :id AND r.myResourceVersion = :oldVersion")
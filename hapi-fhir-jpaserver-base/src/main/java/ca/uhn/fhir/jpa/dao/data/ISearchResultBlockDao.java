@@ -0,0 +1,50 @@
+/*
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.dao.data;
+
+import ca.uhn.fhir.jpa.entity.SearchResultBlock;
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ISearchResultBlockDao extends JpaRepository<SearchResultBlock, Long>, IHapiFhirJpaRepository {
+
+	/**
+	 * Returns the blocks which contain at least one result in the range <code>theFrom</code> (inclusive)
+	 * to <code>theTo</code> (exclusive), ordered by their position in the search results
+	 */
+	@Query(
+			"SELECT b FROM SearchResultBlock b WHERE b.mySearchPid = :search AND b.myFirstOrder < :to AND b.myFirstOrder + b.myPidCount > :from ORDER BY b.myFirstOrder ASC")
+	List<SearchResultBlock> findWithSearchPidInRange(
+			@Param("search") Long theSearchPid, @Param("from") int theFrom, @Param("to") int theTo);
+
+	@Query("SELECT b FROM SearchResultBlock b WHERE b.mySearchPid = :search ORDER BY b.myFirstOrder ASC")
+	List<SearchResultBlock> findWithSearchPid(@Param("search") Long theSearchPid);
+
+	@Modifying
+	@Query("DELETE FROM SearchResultBlock b WHERE b.mySearchPid IN (:search)")
+	@CanIgnoreReturnValue
+	int deleteForSearch(@Param("search") Collection<Long> theSearchPids);
+}
@@ -29,6 +29,7 @@ import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface ITermValueSetConceptDao
 		extends JpaRepository<TermValueSetConcept, IdAndPartitionId>, IHapiFhirJpaRepository {
@@ -69,6 +70,13 @@ public interface ITermValueSetConceptDao
 			@Param("system_url") String theSystem,
 			@Param("codeval") String theCode);
 
+	@Query(
+			"SELECT vsc FROM TermValueSetConcept vsc WHERE vsc.myValueSet.myResourcePid = :resource_pid AND vsc.mySystem = :system_url AND vsc.myCode IN (:codes)")
+	List<TermValueSetConcept> findByValueSetResourcePidSystemAndCodes(
+			@Param("resource_pid") Long theValueSetId,
+			@Param("system_url") String theSystem,
+			@Param("codes") List<String> theCodes);
+
 	@Query(
 			"SELECT vsc FROM TermValueSetConcept vsc WHERE vsc.myValueSet.myResourcePid = :resource_pid AND vsc.mySystem = :system_url AND vsc.mySystemVer = :system_version AND vsc.myCode = :codeval")
 	Optional<TermValueSetConcept> findByValueSetResourcePidSystemAndCodeWithVersion(
@@ -77,6 +85,10 @@ public interface ITermValueSetConceptDao
 			@Param("system_version") String theSystemVersion,
 			@Param("codeval") String theCode);
 
+	@Query(
+			"SELECT vsc.myCode, vsc.mySystem, vsc.mySystemVer, vsc.myDisplay FROM TermValueSetConcept vsc WHERE vsc.myValueSetPid = :pid")
+	Stream<Object[]> streamCodesByTermValueSetId(@Param("pid") Long theValueSetId);
+
 	@Query("SELECT vsc.myId FROM TermValueSetConcept vsc WHERE vsc.myValueSetPid = :pid ORDER BY vsc.myId")
 	List<Long> findIdsByTermValueSetId(@Param("pid") Long theValueSetId);
 
@@ -34,6 +34,7 @@ import ca.uhn.fhir.jpa.model.entity.StorageSettings;
 import ca.uhn.fhir.jpa.searchparam.extractor.ResourceIndexedSearchParams;
 import ca.uhn.fhir.jpa.sp.SearchParamIdentityCacheSvcImpl;
 import ca.uhn.fhir.jpa.util.AddRemoveCount;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
 import ca.uhn.fhir.rest.server.exceptions.ResourceVersionConflictException;
 import com.google.common.annotations.VisibleForTesting;
 import jakarta.annotation.Nullable;
@@ -69,33 +70,62 @@ public class DaoSearchParamSynchronizer {
 	@Autowired
 	private FhirContext myFhirContext;
 
+	@Autowired(required = false)
+	private IndexRowBulkInserter myIndexRowBulkInserter;
+
 	public AddRemoveCount synchronizeSearchParamsToDatabase(
 			ResourceIndexedSearchParams theParams,
 			ResourceTable theEntity,
 			ResourceIndexedSearchParams existingParams) {
+		return synchronizeSearchParamsToDatabase(theParams, theEntity, existingParams, null);
+	}
+
+	/**
+	 * @param theRequestDetails If the request has opted in to bulk index row insertion (see
+	 *                          {@link IndexRowBulkInserter}), new index rows for tables where the
+	 *                          resource has no existing rows are written using the bulk inserter
+	 *                          instead of being persisted individually
+	 * @since 8.4.0
+	 */
+	public AddRemoveCount synchronizeSearchParamsToDatabase(
+			ResourceIndexedSearchParams theParams,
+			ResourceTable theEntity,
+			ResourceIndexedSearchParams existingParams,
+			@Nullable RequestDetails theRequestDetails) {
 		AddRemoveCount retVal = new AddRemoveCount();
 
-		synchronize(theEntity, retVal, theParams.myStringParams, existingParams.myStringParams, null);
-		synchronize(theEntity, retVal, theParams.myTokenParams, existingParams.myTokenParams, null);
-		synchronize(theEntity, retVal, theParams.myNumberParams, existingParams.myNumberParams, null);
-		synchronize(theEntity, retVal, theParams.myQuantityParams, existingParams.myQuantityParams, null);
+		persistPendingIndexRows(theEntity);
+		boolean bulkInsert = myIndexRowBulkInserter != null && myIndexRowBulkInserter.isEnabled(theRequestDetails);
+
+		synchronize(theEntity, retVal, theParams.myStringParams, existingParams.myStringParams, null, bulkInsert);
+		synchronize(theEntity, retVal, theParams.myTokenParams, existingParams.myTokenParams, null, bulkInsert);
+		synchronize(theEntity, retVal, theParams.myNumberParams, existingParams.myNumberParams, null, bulkInsert);
+		synchronize(theEntity, retVal, theParams.myQuantityParams, existingParams.myQuantityParams, null, bulkInsert);
 		synchronize(
 				theEntity,
 				retVal,
 				theParams.myQuantityNormalizedParams,
 				existingParams.myQuantityNormalizedParams,
-				null);
-		synchronize(theEntity, retVal, theParams.myDateParams, existingParams.myDateParams, null);
-		synchronize(theEntity, retVal, theParams.myUriParams, existingParams.myUriParams, null);
-		synchronize(theEntity, retVal, theParams.myCoordsParams, existingParams.myCoordsParams, null);
-		synchronize(theEntity, retVal, theParams.myLinks, existingParams.myLinks, null);
-		synchronize(theEntity, retVal, theParams.myComboTokenNonUnique, existingParams.myComboTokenNonUnique, null);
+				null,
+				bulkInsert);
+		synchronize(theEntity, retVal, theParams.myDateParams, existingParams.myDateParams, null, bulkInsert);
+		synchronize(theEntity, retVal, theParams.myUriParams, existingParams.myUriParams, null, bulkInsert);
+		synchronize(theEntity, retVal, theParams.myCoordsParams, existingParams.myCoordsParams, null, bulkInsert);
+		synchronize(theEntity, retVal, theParams.myLinks, existingParams.myLinks, null, bulkInsert);
+		synchronize(
+				theEntity,
+				retVal,
+				theParams.myComboTokenNonUnique,
+				existingParams.myComboTokenNonUnique,
+				null,
+				bulkInsert);
 		synchronize(
 				theEntity,
 				retVal,
 				theParams.myComboStringUniques,
 				existingParams.myComboStringUniques,
-				new UniqueIndexPreExistenceChecker());
+				new UniqueIndexPreExistenceChecker(),
+				bulkInsert);
 
 		// make sure links are indexed
 		theEntity.setResourceLinks(theParams.myLinks);
@@ -103,6 +133,24 @@ public class DaoSearchParamSynchronizer {
 		return retVal;
 	}
 
+	/**
+	 * Any index rows for the given resource which have been queued for bulk insertion
+	 * but not yet written are persisted normally, so that they can be modified or removed
+	 * within the current transaction.
+	 *
+	 * @since 8.4.0
+	 */
+	public void persistPendingIndexRows(ResourceTable theEntity) {
+		if (myIndexRowBulkInserter != null) {
+			myIndexRowBulkInserter.persistPendingRows(theEntity);
+		}
+	}
+
+	@VisibleForTesting
+	public void setIndexRowBulkInserter(IndexRowBulkInserter theIndexRowBulkInserter) {
+		myIndexRowBulkInserter = theIndexRowBulkInserter;
+	}
+
 	@VisibleForTesting
 	public void setEntityManager(EntityManager theEntityManager) {
 		myEntityManager = theEntityManager;
@@ -123,7 +171,8 @@ public class DaoSearchParamSynchronizer {
 			AddRemoveCount theAddRemoveCount,
 			Collection<T> theNewParams,
 			Collection<T> theExistingParams,
-			@Nullable IPreSaveHook<T> theAddParamPreSaveHook) {
+			@Nullable IPreSaveHook<T> theAddParamPreSaveHook,
+			boolean theBulkInsert) {
 		Collection<T> newParams = theNewParams;
 		for (T next : newParams) {
 			next.setResourceId(theEntity.getId().getId());
@@ -180,14 +229,27 @@ public class DaoSearchParamSynchronizer {
 			myEntityManager.remove(next);
 		}
 
+		/*
+		 * Rows can only be bulk inserted if there's nothing already in the table
+		 * for this resource, since otherwise we might need to reuse or delete rows
+		 */
+		boolean bulkInsert = theBulkInsert && theExistingParams.isEmpty() && theAddParamPreSaveHook == null;
+		List<T> paramsToBulkInsert = new ArrayList<>();
 		for (T next : paramsToAdd) {
 			findOrCreateSearchParamIdentity(next);
 			if (next.getId() == null) {
-				myEntityManager.persist(next);
+				if (bulkInsert) {
+					paramsToBulkInsert.add(next);
+				} else {
+					myEntityManager.persist(next);
+				}
 			} else {
 				myEntityManager.merge(next);
 			}
 		}
+		if (!paramsToBulkInsert.isEmpty()) {
+			myIndexRowBulkInserter.queue(theEntity, paramsToBulkInsert);
+		}
 
 		// TODO:  are there any unintended consequences to fixing this bug?
 		theAddRemoveCount.addToAddCount(paramsToAdd.size());
@@ -572,6 +572,26 @@ public class IdHelperService implements IIdHelperService<JpaPid> {
 		}
 	}
 
+	@Override
+	public void invalidateResolvedFhirIdAfterCommit(
+			@Nonnull RequestPartitionId theRequestPartitionId,
+			@Nonnull String theResourceType,
+			@Nonnull String theFhirId) {
+		// Lookups may have been cached using either the partition of the resource or all partitions
+		List<RequestPartitionId> partitionIds = List.of(theRequestPartitionId, RequestPartitionId.allPartitions());
+		for (RequestPartitionId nextPartitionId : partitionIds) {
+			myMemoryCacheService.invalidateAfterCommit(
+					MemoryCacheService.CacheEnum.RESOURCE_LOOKUP_BY_FORCED_ID,
+					new MemoryCacheService.ForcedIdCacheKey(theResourceType, theFhirId, nextPartitionId));
+			if (myStorageSettings.getResourceClientIdStrategy() == JpaStorageSettings.ClientIdStrategyEnum.ALPHANUMERIC
+					&& isValidLong(theFhirId)) {
+				myMemoryCacheService.invalidateAfterCommit(
+						MemoryCacheService.CacheEnum.RESOURCE_LOOKUP_BY_FORCED_ID,
+						new MemoryCacheService.ForcedIdCacheKey(null, theFhirId, nextPartitionId));
+			}
+		}
+	}
+
 	@VisibleForTesting
 	public void setPartitionSettingsForUnitTest(PartitionSettings thePartitionSettings) {
 		myPartitionSettings = thePartitionSettings;
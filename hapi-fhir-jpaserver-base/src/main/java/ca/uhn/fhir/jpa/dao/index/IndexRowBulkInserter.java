@@ -0,0 +1,432 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.dao.index;
+
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.model.entity.BaseResourceIndex;
+import ca.uhn.fhir.jpa.model.entity.ResourceTable;
+import ca.uhn.fhir.jpa.model.util.JpaConstants;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import com.google.common.annotations.VisibleForTesting;
+import jakarta.annotation.Nullable;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceContextType;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.OracleDialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.dialect.SQLServerDialect;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.metamodel.mapping.PluralAttributeMapping;
+import org.hibernate.metamodel.mapping.SelectableMapping;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.descriptor.ValueBinder;
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes newly created index rows (e.g. {@literal ResourceIndexedSearchParamToken} or
+ * {@literal ResourceLink}) directly to the database using multi-row
+ * <code>INSERT ... VALUES</code> statements (or <code>COPY</code> on Postgres) instead of
+ * persisting each row as an individual entity.
+ * <p>
+ * Rows are queued by {@link DaoSearchParamSynchronizer} and are written just before the
+ * current transaction commits, after all pending entity changes have been flushed. Rows
+ * which are queued for a given resource are only visible to database queries issued
+ * later in the same transaction after they have been written, so this path is only used
+ * when {@link JpaStorageSettings#isIndexRowBulkInsertEnabled() enabled} and when the request
+ * has opted in using {@link JpaConstants#BULK_INDEX_ROW_INSERT}, as is done by bulk import
+ * and reindexing.
+ * </p>
+ *
+ * @since 8.4.0
+ */
+public class IndexRowBulkInserter {
+
+	/**
+	 * The maximum number of rows written by a single multi-row insert statement
+	 */
+	static final int MAX_ROWS_PER_STATEMENT = 500;
+	/**
+	 * The maximum number of bind parameters used by a single multi-row insert statement
+	 * (SQL Server supports a maximum of 2100)
+	 */
+	static final int MAX_PARAMS_PER_STATEMENT = 2000;
+
+	private static final Logger ourLog = LoggerFactory.getLogger(IndexRowBulkInserter.class);
+	private final Object myPendingRowsResourceKey = new Object();
+
+	@PersistenceContext(type = PersistenceContextType.TRANSACTION)
+	private EntityManager myEntityManager;
+
+	@Autowired
+	private JpaStorageSettings myStorageSettings;
+
+	/**
+	 * Returns <code>true</code> if index rows created while processing the given request
+	 * may be written using this class
+	 */
+	public boolean isEnabled(@Nullable RequestDetails theRequestDetails) {
+		return myStorageSettings.isIndexRowBulkInsertEnabled()
+				&& theRequestDetails != null
+				&& Boolean.TRUE.equals(theRequestDetails.getUserData().get(JpaConstants.BULK_INDEX_ROW_INSERT))
+				&& TransactionSynchronizationManager.isSynchronizationActive();
+	}
+
+	/**
+	 * Queues new (not yet persisted) index rows belonging to the given resource, to be written
+	 * when the current transaction commits. If the pending rows have already been written
+	 * (because the transaction is in the process of committing), the rows are persisted
+	 * normally instead.
+	 */
+	public <T extends BaseResourceIndex> void queue(ResourceTable theEntity, Collection<T> theRows) {
+		if (theRows.isEmpty()) {
+			return;
+		}
+		PendingRows pending = (PendingRows) TransactionSynchronizationManager.getResource(myPendingRowsResourceKey);
+		if (pending == null) {
+			pending = new PendingRows();
+			TransactionSynchronizationManager.bindResource(myPendingRowsResourceKey, pending);
+			TransactionSynchronizationManager.registerSynchronization(pending);
+		}
+		if (pending.myWritten) {
+			theRows.forEach(myEntityManager::persist);
+			return;
+		}
+		pending.myRows
+				.computeIfAbsent(theEntity.getId().getId(), t -> new ArrayList<>())
+				.addAll(theRows);
+	}
+
+	/**
+	 * Any rows which have been queued for the given resource but not yet written are
+	 * persisted as normal entities. This must be called before the existing index rows
+	 * of a resource are loaded or modified (e.g. because the resource is being updated
+	 * or deleted a second time within the same transaction) so that they can be
+	 * managed by the persistence context.
+	 */
+	public void persistPendingRows(ResourceTable theEntity) {
+		PendingRows pending = (PendingRows) TransactionSynchronizationManager.getResource(myPendingRowsResourceKey);
+		if (pending != null && theEntity.getId() != null) {
+			List<BaseResourceIndex> rows =
+					pending.myRows.remove(theEntity.getId().getId());
+			if (rows != null) {
+				rows.forEach(myEntityManager::persist);
+			}
+		}
+	}
+
+	@VisibleForTesting
+	public void setStorageSettingsForUnitTest(JpaStorageSettings theStorageSettings) {
+		myStorageSettings = theStorageSettings;
+	}
+
+	private void writeRows(Collection<List<BaseResourceIndex>> theRows) {
+		// Make sure the resources the rows belong to have been written
+		myEntityManager.flush();
+
+		Map<Class<?>, List<BaseResourceIndex>> rowsByType = new LinkedHashMap<>();
+		for (List<BaseResourceIndex> nextRows : theRows) {
+			for (BaseResourceIndex next : nextRows) {
+				rowsByType
+						.computeIfAbsent(next.getClass(), t -> new ArrayList<>())
+						.add(next);
+			}
+		}
+
+		SessionImplementor session = myEntityManager.unwrap(SessionImplementor.class);
+		Dialect dialect = session.getFactory().getJdbcServices().getDialect();
+		for (Map.Entry<Class<?>, List<BaseResourceIndex>> next : rowsByType.entrySet()) {
+			TableRows tableRows = toTableRows(session, next.getKey(), next.getValue());
+			session.doWork(connection -> writeTableRows(session, dialect, connection, tableRows));
+			ourLog.debug("Bulk inserted {} rows into {}", tableRows.myRows.size(), tableRows.myTableName);
+		}
+	}
+
+	/**
+	 * Assigns IDs to the given rows and converts them into the values for each column
+	 * using the Hibernate mapping metadata, exactly as Hibernate would do if the rows
+	 * were persisted
+	 */
+	private TableRows toTableRows(SessionImplementor theSession, Class<?> theType, List<BaseResourceIndex> theRows) {
+		EntityPersister persister =
+				theSession.getFactory().getMappingMetamodel().getEntityDescriptor(theType);
+		BeforeExecutionGenerator generator = (BeforeExecutionGenerator) persister.getGenerator();
+
+		TableRows retVal = new TableRows();
+		for (BaseResourceIndex nextRow : theRows) {
+			theSession.getFactory().getEventEngine().getCallbackRegistry().preCreate(nextRow);
+			persister.setIdentifier(
+					nextRow, generator.generate(theSession, nextRow, null, EventType.INSERT), theSession);
+			Object id = persister.getIdentifier(nextRow, theSession);
+
+			Map<String, Object> values = new LinkedHashMap<>();
+			persister
+					.getIdentifierMapping()
+					.breakDownJdbcValues(
+							id, (index, value, column) -> addValue(retVal, values, value, column), theSession);
+			persister.forEachAttributeMapping(attribute -> {
+				if (attribute instanceof PluralAttributeMapping
+						|| !attribute.getAttributeMetadata().isInsertable()) {
+					return;
+				}
+				attribute.breakDownJdbcValues(
+						attribute.getValue(nextRow),
+						(index, value, column) -> addValue(retVal, values, value, column),
+						theSession);
+			});
+			retVal.myRows.add(values);
+		}
+		return retVal;
+	}
+
+	private static void addValue(
+			TableRows theTableRows, Map<String, Object> theValues, Object theValue, SelectableMapping theColumn) {
+		if (!theColumn.isInsertable()) {
+			return;
+		}
+		String columnName = theColumn.getSelectionExpression();
+		if (theTableRows.myTableName == null) {
+			theTableRows.myTableName = theColumn.getContainingTableExpression();
+		}
+		theTableRows.myColumns.putIfAbsent(columnName, theColumn);
+		theValues.putIfAbsent(columnName, theValue);
+	}
+
+	private void writeTableRows(
+			SessionImplementor theSession, Dialect theDialect, Connection theConnection, TableRows theTableRows)
+			throws SQLException {
+		if (theDialect instanceof PostgreSQLDialect && theConnection.isWrapperFor(PGConnection.class)) {
+			String csv = toCsv(theTableRows);
+			if (csv != null) {
+				copyIn(theConnection, theTableRows, csv);
+				return;
+			}
+		}
+		if (theDialect instanceof OracleDialect) {
+			// Multi-row VALUES lists are only supported by recent versions of Oracle
+			insertUsingJdbcBatch(theSession, theConnection, theTableRows);
+			return;
+		}
+		insertUsingMultiRowValues(theSession, theDialect, theConnection, theTableRows);
+	}
+
+	private void insertUsingMultiRowValues(
+			SessionImplementor theSession, Dialect theDialect, Connection theConnection, TableRows theTableRows)
+			throws SQLException {
+		int columnCount = theTableRows.myColumns.size();
+		int maxParams = MAX_PARAMS_PER_STATEMENT;
+		if (theDialect instanceof SQLServerDialect) {
+			// SQL Server also limits a VALUES list to 1000 rows
+			maxParams = Math.min(maxParams, 1000 * columnCount);
+		}
+		int rowsPerStatement = Math.max(1, Math.min(MAX_ROWS_PER_STATEMENT, maxParams / columnCount));
+
+		List<Map<String, Object>> rows = theTableRows.myRows;
+		for (int from = 0; from < rows.size(); from += rowsPerStatement) {
+			List<Map<String, Object>> chunk = rows.subList(from, Math.min(rows.size(), from + rowsPerStatement));
+			String sql = buildInsertSql(theTableRows, chunk.size());
+			try (PreparedStatement statement = theConnection.prepareStatement(sql)) {
+				int paramIndex = 1;
+				for (Map<String, Object> nextRow : chunk) {
+					paramIndex = bindRow(theSession, statement, theTableRows, nextRow, paramIndex);
+				}
+				statement.executeUpdate();
+			}
+		}
+	}
+
+	private void insertUsingJdbcBatch(SessionImplementor theSession, Connection theConnection, TableRows theTableRows)
+			throws SQLException {
+		String sql = buildInsertSql(theTableRows, 1);
+		try (PreparedStatement statement = theConnection.prepareStatement(sql)) {
+			int batchCount = 0;
+			for (Map<String, Object> nextRow : theTableRows.myRows) {
+				bindRow(theSession, statement, theTableRows, nextRow, 1);
+				statement.addBatch();
+				if (++batchCount == MAX_ROWS_PER_STATEMENT) {
+					statement.executeBatch();
+					batchCount = 0;
+				}
+			}
+			if (batchCount > 0) {
+				statement.executeBatch();
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static int bindRow(
+			SessionImplementor theSession,
+			PreparedStatement theStatement,
+			TableRows theTableRows,
+			Map<String, Object> theRow,
+			int theFirstParamIndex)
+			throws SQLException {
+		int paramIndex = theFirstParamIndex;
+		for (Map.Entry<String, SelectableMapping> nextColumn : theTableRows.myColumns.entrySet()) {
+			ValueBinder<Object> binder =
+					(ValueBinder<Object>) nextColumn.getValue().getJdbcMapping().getJdbcValueBinder();
+			binder.bind(theStatement, theRow.get(nextColumn.getKey()), paramIndex++, theSession);
+		}
+		return paramIndex;
+	}
+
+	static String buildInsertSql(TableRows theTableRows, int theRowCount) {
+		StringBuilder sql = new StringBuilder();
+		sql.append("INSERT INTO ").append(theTableRows.myTableName).append(" (");
+		sql.append(String.join(", ", theTableRows.myColumns.keySet()));
+		sql.append(") VALUES ");
+		String placeholders = "(" + String.join(", ", Collections.nCopies(theTableRows.myColumns.size(), "?")) + ")";
+		for (int i = 0; i < theRowCount; i++) {
+			if (i > 0) {
+				sql.append(", ");
+			}
+			sql.append(placeholders);
+		}
+		return sql.toString();
+	}
+
+	private static void copyIn(Connection theConnection, TableRows theTableRows, String theCsv) throws SQLException {
+		String sql = "COPY " + theTableRows.myTableName + " (" + String.join(", ", theTableRows.myColumns.keySet())
+				+ ") FROM STDIN WITH (FORMAT csv)";
+		try {
+			theConnection.unwrap(PGConnection.class).getCopyAPI().copyIn(sql, new StringReader(theCsv));
+		} catch (IOException e) {
+			throw new SQLException(e);
+		}
+	}
+
+	/**
+	 * Converts the rows to Postgres CSV <code>COPY</code> input, or returns <code>null</code>
+	 * if any of the values are of a type which can't be represented
+	 */
+	@Nullable
+	static String toCsv(TableRows theTableRows) {
+		StringBuilder retVal = new StringBuilder();
+		for (Map<String, Object> nextRow : theTableRows.myRows) {
+			boolean first = true;
+			for (String nextColumn : theTableRows.myColumns.keySet()) {
+				if (!first) {
+					retVal.append(',');
+				}
+				first = false;
+				if (!appendCsvValue(retVal, nextRow.get(nextColumn))) {
+					return null;
+				}
+			}
+			retVal.append('\n');
+		}
+		return retVal.toString();
+	}
+
+	private static boolean appendCsvValue(StringBuilder theBuilder, Object theValue) {
+		if (theValue == null) {
+			// An unquoted empty value is a null in CSV mode
+			return true;
+		}
+		if (theValue instanceof String) {
+			theBuilder
+					.append('"')
+					.append(((String) theValue).replace("\"", "\"\""))
+					.append('"');
+		} else if (theValue instanceof BigDecimal) {
+			theBuilder.append(((BigDecimal) theValue).toPlainString());
+		} else if (theValue instanceof Number || theValue instanceof Boolean) {
+			theBuilder.append(theValue);
+		} else if (theValue instanceof java.sql.Date
+				|| theValue instanceof Timestamp
+				|| theValue instanceof LocalDate) {
+			theBuilder.append(theValue);
+		} else if (theValue instanceof Date) {
+			// Matches the local time representation used by PreparedStatement#setTimestamp
+			theBuilder.append(new Timestamp(((Date) theValue).getTime()));
+		} else {
+			return false;
+		}
+		return true;
+	}
+
+	static class TableRows {
+		private final LinkedHashMap<String, SelectableMapping> myColumns = new LinkedHashMap<>();
+		private final List<Map<String, Object>> myRows = new ArrayList<>();
+		private String myTableName;
+	}
+
+	/**
+	 * The rows queued by a single database transaction
+	 */
+	private class PendingRows implements TransactionSynchronization {
+
+		private final Map<Long, List<BaseResourceIndex>> myRows = new LinkedHashMap<>();
+		private boolean myWritten;
+
+		/**
+		 * Run after any other synchronizations which might still create resources
+		 */
+		@Override
+		public int getOrder() {
+			return Ordered.LOWEST_PRECEDENCE;
+		}
+
+		@Override
+		public void beforeCommit(boolean theReadOnly) {
+			myWritten = true;
+			if (!myRows.isEmpty()) {
+				try {
+					writeRows(myRows.values());
+				} catch (RuntimeException e) {
+					throw new InternalErrorException(Msg.code(2756) + "Failed to bulk insert index rows: " + e, e);
+				}
+				myRows.clear();
+			}
+		}
+
+		@Override
+		public void afterCompletion(int theStatus) {
+			TransactionSynchronizationManager.unbindResourceIfPossible(myPendingRowsResourceKey);
+		}
+	}
+}
@@ -0,0 +1,117 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.entity;
+
+import ca.uhn.fhir.jpa.model.entity.ResourceTable;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.Temporal;
+import jakarta.persistence.TemporalType;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+import org.hibernate.Length;
+
+import java.util.Date;
+
+/**
+ * Stores a Zstandard compression dictionary which has been trained for a specific
+ * resource type, and which is used to compress resource bodies stored using the
+ * {@link ca.uhn.fhir.jpa.model.entity.ResourceEncodingEnum#JSONZ} encoding.
+ * <p>
+ * Dictionaries are never modified once they have been stored, since any resource
+ * body compressed using them must remain readable.
+ * </p>
+ *
+ * @since 8.4.0
+ */
+@Entity
+@Table(
+		name = "HFJ_RES_ENC_DICT",
+		indexes = {@Index(name = "IDX_RES_ENC_DICT_RESTYPE", columnList = "RES_TYPE,CREATED")})
+public class ResourceEncodingDictionaryEntity {
+
+	/**
+	 * Note that unlike most PID columns in HAPI FHIR JPA, this one isn't auto assigned. It
+	 * holds the dictionary ID which is embedded in the trained dictionary itself, and in
+	 * the header of every frame compressed using it.
+	 */
+	@Id
+	@Column(name = "DICT_ID", nullable = false)
+	private Long myId;
+
+	@Column(name = "RES_TYPE", length = ResourceTable.RESTYPE_LEN, nullable = false)
+	private String myResourceType;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(name = "CREATED", nullable = false)
+	private Date myCreated;
+
+	@Column(name = "DICT_CONTENT", nullable = false, length = Length.LONG32)
+	private byte[] myContent;
+
+	public Long getId() {
+		return myId;
+	}
+
+	public ResourceEncodingDictionaryEntity setId(Long theId) {
+		myId = theId;
+		return this;
+	}
+
+	public String getResourceType() {
+		return myResourceType;
+	}
+
+	public ResourceEncodingDictionaryEntity setResourceType(String theResourceType) {
+		myResourceType = theResourceType;
+		return this;
+	}
+
+	public Date getCreated() {
+		return myCreated;
+	}
+
+	public ResourceEncodingDictionaryEntity setCreated(Date theCreated) {
+		myCreated = theCreated;
+		return this;
+	}
+
+	public byte[] getContent() {
+		return myContent;
+	}
+
+	public ResourceEncodingDictionaryEntity setContent(byte[] theContent) {
+		myContent = theContent;
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+				.append("id", myId)
+				.append("resourceType", myResourceType)
+				.append("created", myCreated)
+				.append("contentSize", myContent != null ? myContent.length : null)
+				.toString();
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.hibernate.Length;
+
+import java.io.Serializable;
+
+/**
+ * Stores a contiguous range of the results of a {@link Search} as a single encoded
+ * block, as an alternative to storing one {@link SearchResult} row per result.
+ *
+ * @see ca.uhn.fhir.jpa.search.cache.DatabaseBlockSearchResultCacheSvcImpl
+ * @since 8.4.0
+ */
+@Entity
+@Table(
+		name = "HFJ_SEARCH_RESULT_BLK",
+		uniqueConstraints = {
+			@UniqueConstraint(
+					name = "IDX_SEARCHRESBLK_ORDER",
+					columnNames = {"SEARCH_PID", "FIRST_ORDER"})
+		})
+public class SearchResultBlock implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	@GeneratedValue(strategy = GenerationType.AUTO, generator = "SEQ_SEARCH_RES_BLK")
+	@SequenceGenerator(name = "SEQ_SEARCH_RES_BLK", sequenceName = "SEQ_SEARCH_RES_BLK")
+	@Id
+	@Column(name = "PID")
+	private Long myId;
+
+	@Column(name = "SEARCH_PID", insertable = true, updatable = false, nullable = false)
+	private Long mySearchPid;
+
+	/**
+	 * The search order (index) of the first result in this block
+	 */
+	@Column(name = "FIRST_ORDER", insertable = true, updatable = false, nullable = false)
+	private int myFirstOrder;
+
+	@Column(name = "PID_COUNT", insertable = true, updatable = false, nullable = false)
+	private int myPidCount;
+
+	@Column(name = "RESULT_PIDS", insertable = true, updatable = false, nullable = false, length = Length.LONG32)
+	private byte[] myResultPids;
+
+	/**
+	 * Constructor
+	 */
+	public SearchResultBlock() {
+		// nothing
+	}
+
+	/**
+	 * Constructor
+	 */
+	public SearchResultBlock(Search theSearch) {
+		Validate.notNull(theSearch.getId());
+		mySearchPid = theSearch.getId();
+	}
+
+	public Long getSearchPid() {
+		return mySearchPid;
+	}
+
+	public int getFirstOrder() {
+		return myFirstOrder;
+	}
+
+	public void setFirstOrder(int theFirstOrder) {
+		myFirstOrder = theFirstOrder;
+	}
+
+	public int getPidCount() {
+		return myPidCount;
+	}
+
+	public void setPidCount(int thePidCount) {
+		myPidCount = thePidCount;
+	}
+
+	public byte[] getResultPids() {
+		return myResultPids;
+	}
+
+	public void setResultPids(byte[] theResultPids) {
+		myResultPids = theResultPids;
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringBuilder(this)
+				.append("search", mySearchPid)
+				.append("firstOrder", myFirstOrder)
+				.append("pidCount", myPidCount)
+				.toString();
+	}
+}
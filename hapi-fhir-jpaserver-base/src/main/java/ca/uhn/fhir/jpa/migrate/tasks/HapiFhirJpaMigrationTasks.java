@@ -169,6 +169,38 @@ public class HapiFhirJpaMigrationTasks extends BaseMigrationTasks<VersionEnum> {
 			resLink.addColumn("20250515.501", "SRC_RES_TYPE_ID").nullable().type(ColumnTypeEnum.SMALLINT);
 			resLink.addColumn("20250515.502", "TARGET_RES_TYPE_ID").nullable().type(ColumnTypeEnum.SMALLINT);
 		}
+
+		{
+			// Add HFJ_RES_ENC_DICT table
+			Builder.BuilderAddTableByColumns encodingDictionary =
+					version.addTableByColumns("20250601.1", "HFJ_RES_ENC_DICT", "DICT_ID");
+			encodingDictionary.addColumn("DICT_ID").nonNullable().type(ColumnTypeEnum.LONG);
+			encodingDictionary.addColumn("RES_TYPE").nonNullable().type(ColumnTypeEnum.STRING, 100);
+			encodingDictionary.addColumn("CREATED").nonNullable().type(ColumnTypeEnum.DATE_TIMESTAMP);
+			encodingDictionary.addColumn("DICT_CONTENT").nonNullable().type(ColumnTypeEnum.BINARY);
+
+			encodingDictionary
+					.addIndex("20250601.2", "IDX_RES_ENC_DICT_RESTYPE")
+					.unique(false)
+					.withColumns("RES_TYPE", "CREATED");
+		}
+
+		{
+			// Add HFJ_SEARCH_RESULT_BLK table
+			version.addIdGenerator("20250615.1", "SEQ_SEARCH_RES_BLK");
+			Builder.BuilderAddTableByColumns searchResultBlock =
+					version.addTableByColumns("20250615.2", "HFJ_SEARCH_RESULT_BLK", "PID");
+			searchResultBlock.addColumn("PID").nonNullable().type(ColumnTypeEnum.LONG);
+			searchResultBlock.addColumn("SEARCH_PID").nonNullable().type(ColumnTypeEnum.LONG);
+			searchResultBlock.addColumn("FIRST_ORDER").nonNullable().type(ColumnTypeEnum.INT);
+			searchResultBlock.addColumn("PID_COUNT").nonNullable().type(ColumnTypeEnum.INT);
+			searchResultBlock.addColumn("RESULT_PIDS").nonNullable().type(ColumnTypeEnum.BINARY);
+
+			searchResultBlock
+					.addIndex("20250615.3", "IDX_SEARCHRESBLK_ORDER")
+					.unique(true)
+					.withColumns("SEARCH_PID", "FIRST_ORDER");
+		}
 	}
 
 	protected void init820() {
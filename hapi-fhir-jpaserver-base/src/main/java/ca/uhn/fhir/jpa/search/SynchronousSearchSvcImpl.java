@@ -35,6 +35,7 @@ import ca.uhn.fhir.jpa.interceptor.JpaPreResourceAccessDetails;
 import ca.uhn.fhir.jpa.model.dao.JpaPid;
 import ca.uhn.fhir.jpa.model.search.SearchRuntimeDetails;
 import ca.uhn.fhir.jpa.partition.IRequestPartitionHelperSvc;
+import ca.uhn.fhir.jpa.search.builder.models.SearchAfterKey;
 import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
 import ca.uhn.fhir.model.api.IQueryParameterType;
 import ca.uhn.fhir.rest.api.Constants;
@@ -47,6 +48,7 @@ import ca.uhn.fhir.rest.server.interceptor.ServerInterceptorUtil;
 import ca.uhn.fhir.rest.server.servlet.ServletRequestDetails;
 import ca.uhn.fhir.rest.server.util.CompositeInterceptorBroadcaster;
 import jakarta.persistence.EntityManager;
+import org.hl7.fhir.instance.model.api.IAnyResource;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -179,6 +181,12 @@ public class SynchronousSearchSvcImpl implements ISynchronousSearchSvc {
 						pids = pids.subList(0, resourcesToReturn);
 					}
 
+					// keyset paging - remember where this page ended so the next page can seek past it
+					String nextSearchAfterKey = null;
+					if (theSb.isKeysetPaging() && receivedResourceCount > pids.size() && !pids.isEmpty()) {
+						nextSearchAfterKey = createNextSearchAfterKey(theParams, pids.get(pids.size() - 1));
+					}
+
 					JpaPreResourceAccessDetails accessDetails = new JpaPreResourceAccessDetails(pids, () -> theSb);
 					IInterceptorBroadcaster compositeBroadcaster =
 							CompositeInterceptorBroadcaster.newCompositeBroadcaster(
@@ -255,6 +263,7 @@ public class SynchronousSearchSvcImpl implements ISynchronousSearchSvc {
 					if (theParams.isOffsetQuery()) {
 						bundleProvider.setCurrentPageOffset(theParams.getOffset());
 						bundleProvider.setCurrentPageSize(theParams.getCount());
+						bundleProvider.setNextSearchAfterKey(nextSearchAfterKey);
 					}
 
 					if (wantCount) {
@@ -295,6 +304,31 @@ public class SynchronousSearchSvcImpl implements ISynchronousSearchSvc {
 				theRequestPartitionId);
 	}
 
+	private String createNextSearchAfterKey(SearchParameterMap theParams, JpaPid theLastPid) {
+		String sortParamName = theParams.getSort() != null ? theParams.getSort().getParamName() : null;
+		String sortAttribute = null;
+		if (IAnyResource.SP_RES_ID.equals(sortParamName)) {
+			sortAttribute = "myFhirId";
+		} else if (Constants.PARAM_LASTUPDATED.equals(sortParamName)) {
+			sortAttribute = "myUpdated";
+		}
+
+		// Only the sort column of the last result is needed, not the whole entity
+		Object lastSortValue = null;
+		if (sortAttribute != null) {
+			List<?> lastSortValues = myEntityManager
+					.createQuery("SELECT t." + sortAttribute + " FROM ResourceTable t WHERE t.myPid.myId = :pid")
+					.setParameter("pid", theLastPid.getId())
+					.getResultList();
+			if (lastSortValues.isEmpty()) {
+				return null;
+			}
+			lastSortValue = lastSortValues.get(0);
+		}
+		return SearchAfterKey.forLastResult(theParams, theLastPid.getId(), lastSortValue)
+				.toToken();
+	}
+
 	@Autowired
 	public void setContext(FhirContext theContext) {
 		myContext = theContext;
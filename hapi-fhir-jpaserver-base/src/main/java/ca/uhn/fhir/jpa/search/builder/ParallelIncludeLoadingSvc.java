@@ -0,0 +1,214 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.search.builder;
+
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.config.HibernatePropertiesProvider;
+import ca.uhn.fhir.jpa.config.util.ConnectionPoolInfoProvider;
+import ca.uhn.fhir.jpa.dao.tx.HapiTransactionService;
+import ca.uhn.fhir.jpa.dao.tx.IHapiTransactionService;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import ca.uhn.fhir.util.ThreadPoolUtil;
+import com.google.common.annotations.VisibleForTesting;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs the <code>_include</code> and <code>_revinclude</code> parameters belonging to a
+ * single include round concurrently, each one in its own read-only transaction.
+ * <p>
+ * Every worker holds its own database connection while the calling thread keeps holding the
+ * connection of the search transaction, so the number of workers shared by all searches is
+ * capped at half of the datasource connection pool size (when it can be determined). When no
+ * worker is free, a parameter is resolved on the calling thread using its existing transaction
+ * instead of waiting for one.
+ * </p>
+ *
+ * @see JpaStorageSettings#getIncludeParallelLoadingThreadCount()
+ * @since 8.4.0
+ */
+public class ParallelIncludeLoadingSvc {
+	private static final Logger ourLog = LoggerFactory.getLogger(ParallelIncludeLoadingSvc.class);
+
+	private final JpaStorageSettings myStorageSettings;
+	private final IHapiTransactionService myTransactionService;
+	private final HibernatePropertiesProvider myHibernatePropertiesProvider;
+	private WorkerPool myWorkerPool;
+	private int myWorkerPoolConfiguredThreadCount;
+
+	public ParallelIncludeLoadingSvc(
+			JpaStorageSettings theStorageSettings,
+			IHapiTransactionService theTransactionService,
+			HibernatePropertiesProvider theHibernatePropertiesProvider) {
+		myStorageSettings = theStorageSettings;
+		myTransactionService = theTransactionService;
+		myHibernatePropertiesProvider = theHibernatePropertiesProvider;
+	}
+
+	/**
+	 * Returns <code>true</code> if the given number of include parameters should be
+	 * loaded concurrently. The calling thread must be in a read-only transaction, since
+	 * the workers don't see any uncommitted changes made by it.
+	 */
+	public boolean isParallelLoadingEnabled(int theIncludeCount) {
+		return theIncludeCount > 1
+				&& myStorageSettings.getIncludeParallelLoadingThreadCount() > 0
+				&& TransactionSynchronizationManager.isActualTransactionActive()
+				&& TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+	}
+
+	/**
+	 * Executes the given tasks concurrently and returns their results in the same order.
+	 * The request partition associated with the calling thread (if any) is carried over
+	 * to the workers. Tasks for which no worker is free are executed on the calling thread.
+	 */
+	public <T> List<T> loadInParallel(RequestDetails theRequestDetails, List<Callable<T>> theTasks) {
+		RequestPartitionId requestPartitionId = HapiTransactionService.getRequestPartitionAssociatedWithThread();
+		WorkerPool workerPool = getWorkerPool();
+
+		List<Future<T>> futures = new ArrayList<>(theTasks.size());
+		List<Callable<T>> callerTasks = new ArrayList<>();
+		for (Callable<T> next : theTasks) {
+			Callable<T> task = () -> myTransactionService
+					.withRequest(theRequestDetails)
+					.withRequestPartitionId(requestPartitionId)
+					.readOnly()
+					.execute(next);
+			if (workerPool.myWorkerPermits.tryAcquire()) {
+				futures.add(workerPool.myExecutor.submit(() -> {
+					try {
+						return task.call();
+					} finally {
+						workerPool.myWorkerPermits.release();
+					}
+				}));
+			} else {
+				futures.add(null);
+				callerTasks.add(task);
+			}
+		}
+
+		List<T> retVal = new ArrayList<>(futures.size());
+		Iterator<Callable<T>> callerTaskIter = callerTasks.iterator();
+		for (Future<T> next : futures) {
+			if (next == null) {
+				retVal.add(executeOnCallingThread(callerTaskIter.next()));
+				continue;
+			}
+			try {
+				retVal.add(next.get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InternalErrorException(Msg.code(2760) + e, e);
+			} catch (CancellationException e) {
+				throw new InternalErrorException(Msg.code(2769) + "Include loading was cancelled", e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw new InternalErrorException(Msg.code(2761) + e.getCause(), e.getCause());
+			}
+		}
+		return retVal;
+	}
+
+	private <T> T executeOnCallingThread(Callable<T> theTask) {
+		try {
+			return theTask.call();
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new InternalErrorException(Msg.code(2761) + e, e);
+		}
+	}
+
+	private synchronized WorkerPool getWorkerPool() {
+		int threadCount = myStorageSettings.getIncludeParallelLoadingThreadCount();
+		if (myWorkerPool == null || myWorkerPoolConfiguredThreadCount != threadCount) {
+			if (myWorkerPool != null) {
+				// Other searches may still be waiting on this pool, so let it finish its work
+				myWorkerPool.myExecutor.shutdown();
+			}
+			int workerCount = capToConnectionPoolSize(threadCount);
+			myWorkerPool = new WorkerPool(workerCount);
+			myWorkerPoolConfiguredThreadCount = threadCount;
+		}
+		return myWorkerPool;
+	}
+
+	private int capToConnectionPoolSize(int theThreadCount) {
+		Optional<Integer> maxConnections =
+				new ConnectionPoolInfoProvider(myHibernatePropertiesProvider.getDataSource()).getTotalConnectionSize();
+		if (maxConnections.isEmpty()) {
+			return theThreadCount;
+		}
+		int retVal = Math.max(1, Math.min(theThreadCount, maxConnections.get() / 2));
+		if (retVal < theThreadCount) {
+			ourLog.info(
+					"Data source connection pool has {} connections, so parallel include loading will use {} workers instead of {}",
+					maxConnections.get(),
+					retVal,
+					theThreadCount);
+		}
+		return retVal;
+	}
+
+	@VisibleForTesting
+	synchronized int getWorkerCount() {
+		return myWorkerPool != null ? myWorkerPool.myWorkerCount : 0;
+	}
+
+	@PreDestroy
+	public synchronized void stop() {
+		if (myWorkerPool != null) {
+			myWorkerPool.myExecutor.shutdown();
+			myWorkerPool = null;
+		}
+	}
+
+	private static class WorkerPool {
+		private final ThreadPoolTaskExecutor myExecutor;
+		private final Semaphore myWorkerPermits;
+		private final int myWorkerCount;
+
+		private WorkerPool(int theWorkerCount) {
+			myWorkerCount = theWorkerCount;
+			myExecutor = ThreadPoolUtil.newThreadPool(theWorkerCount, theWorkerCount, "search-include-");
+			myExecutor.setWaitForTasksToCompleteOnShutdown(true);
+			myWorkerPermits = new Semaphore(theWorkerCount);
+		}
+	}
+}
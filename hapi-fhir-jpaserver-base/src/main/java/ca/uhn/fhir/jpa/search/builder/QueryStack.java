@@ -37,6 +37,7 @@ import ca.uhn.fhir.jpa.search.builder.models.MissingQueryParameterPredicateParam
 import ca.uhn.fhir.jpa.search.builder.models.PredicateBuilderCacheKey;
 import ca.uhn.fhir.jpa.search.builder.models.PredicateBuilderCacheLookupResult;
 import ca.uhn.fhir.jpa.search.builder.models.PredicateBuilderTypeEnum;
+import ca.uhn.fhir.jpa.search.builder.models.SearchAfterKey;
 import ca.uhn.fhir.jpa.search.builder.predicate.BaseJoiningPredicateBuilder;
 import ca.uhn.fhir.jpa.search.builder.predicate.BaseQuantityPredicateBuilder;
 import ca.uhn.fhir.jpa.search.builder.predicate.BaseSearchParamPredicateBuilder;
@@ -158,6 +159,7 @@ public class QueryStack {
 	// used for _offset queries with sort, should be removed once the fix is applied to the async path too.
 	private boolean myUseAggregate;
 	private boolean myGroupingAdded;
+	private ResourceTablePredicateBuilder mySortResourceTablePredicateBuilder;
 
 	/**
 	 * Constructor
@@ -248,14 +250,7 @@ public class QueryStack {
 	}
 
 	public void addSortOnLastUpdated(boolean theAscending) {
-		ResourceTablePredicateBuilder resourceTablePredicateBuilder;
-		BaseJoiningPredicateBuilder firstPredicateBuilder = mySqlBuilder.getOrCreateFirstPredicateBuilder();
-		if (firstPredicateBuilder instanceof ResourceTablePredicateBuilder) {
-			resourceTablePredicateBuilder = (ResourceTablePredicateBuilder) firstPredicateBuilder;
-		} else {
-			resourceTablePredicateBuilder =
-					mySqlBuilder.addResourceTablePredicateBuilder(firstPredicateBuilder.getJoinColumns());
-		}
+		ResourceTablePredicateBuilder resourceTablePredicateBuilder = getOrCreateSortResourceTablePredicateBuilder();
 		mySqlBuilder.addSortDate(resourceTablePredicateBuilder.getColumnLastUpdated(), theAscending, myUseAggregate);
 	}
 
@@ -285,14 +280,7 @@ public class QueryStack {
 	}
 
 	public void addSortOnResourceId(boolean theAscending) {
-		ResourceTablePredicateBuilder resourceTablePredicateBuilder;
-		BaseJoiningPredicateBuilder firstPredicateBuilder = mySqlBuilder.getOrCreateFirstPredicateBuilder();
-		if (firstPredicateBuilder instanceof ResourceTablePredicateBuilder) {
-			resourceTablePredicateBuilder = (ResourceTablePredicateBuilder) firstPredicateBuilder;
-		} else {
-			resourceTablePredicateBuilder =
-					mySqlBuilder.addResourceTablePredicateBuilder(firstPredicateBuilder.getJoinColumns());
-		}
+		ResourceTablePredicateBuilder resourceTablePredicateBuilder = getOrCreateSortResourceTablePredicateBuilder();
 		mySqlBuilder.addSortString(resourceTablePredicateBuilder.getColumnFhirId(), theAscending, myUseAggregate);
 	}
 
@@ -302,6 +290,55 @@ public class QueryStack {
 		mySqlBuilder.addSortString(predicateBuilder.getResourceIdColumn(), theAscending);
 	}
 
+	/**
+	 * Adds a keyset (seek) predicate which only matches resources sorting after the
+	 * given position. The search must be sorted by the same column as the key, followed
+	 * by RES_ID as a tie-breaker.
+	 */
+	public void addPredicateSearchAfter(SearchAfterKey theSearchAfterKey) {
+		boolean ascending = theSearchAfterKey.isAscending();
+		DbColumn resourceIdColumn =
+				mySqlBuilder.getOrCreateFirstPredicateBuilder().getResourceIdColumn();
+		Condition afterPid = createSearchAfterCondition(resourceIdColumn, theSearchAfterKey.getPid(), ascending);
+
+		Object sortValue = theSearchAfterKey.getSortValue();
+		if (sortValue == null) {
+			mySqlBuilder.addPredicate(afterPid);
+			return;
+		}
+
+		ResourceTablePredicateBuilder resourceTablePredicateBuilder = getOrCreateSortResourceTablePredicateBuilder();
+		DbColumn sortColumn = IAnyResource.SP_RES_ID.equals(theSearchAfterKey.getSortParamName())
+				? resourceTablePredicateBuilder.getColumnFhirId()
+				: resourceTablePredicateBuilder.getColumnLastUpdated();
+		Condition afterSortValue = createSearchAfterCondition(sortColumn, sortValue, ascending);
+		Condition sameSortValue = BinaryCondition.equalTo(sortColumn, mySqlBuilder.generatePlaceholder(sortValue));
+		mySqlBuilder.addPredicate(ComboCondition.or(afterSortValue, ComboCondition.and(sameSortValue, afterPid)));
+	}
+
+	private Condition createSearchAfterCondition(DbColumn theColumn, Object theValue, boolean theAscending) {
+		String placeholder = mySqlBuilder.generatePlaceholder(theValue);
+		return theAscending
+				? BinaryCondition.greaterThan(theColumn, placeholder)
+				: BinaryCondition.lessThan(theColumn, placeholder);
+	}
+
+	/**
+	 * Sorts on resource table columns share a single join to the resource table
+	 */
+	private ResourceTablePredicateBuilder getOrCreateSortResourceTablePredicateBuilder() {
+		if (mySortResourceTablePredicateBuilder == null) {
+			BaseJoiningPredicateBuilder firstPredicateBuilder = mySqlBuilder.getOrCreateFirstPredicateBuilder();
+			if (firstPredicateBuilder instanceof ResourceTablePredicateBuilder) {
+				mySortResourceTablePredicateBuilder = (ResourceTablePredicateBuilder) firstPredicateBuilder;
+			} else {
+				mySortResourceTablePredicateBuilder =
+						mySqlBuilder.addResourceTablePredicateBuilder(firstPredicateBuilder.getJoinColumns());
+			}
+		}
+		return mySortResourceTablePredicateBuilder;
+	}
+
 	public void addSortOnResourceLink(
 			String theResourceName,
 			String theReferenceTargetType,
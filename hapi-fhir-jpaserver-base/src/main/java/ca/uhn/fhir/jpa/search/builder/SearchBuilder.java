@@ -49,6 +49,7 @@ import ca.uhn.fhir.jpa.model.config.PartitionSettings;
 import ca.uhn.fhir.jpa.model.cross.IResourceLookup;
 import ca.uhn.fhir.jpa.model.dao.JpaPid;
 import ca.uhn.fhir.jpa.model.dao.JpaPidFk;
+import ca.uhn.fhir.jpa.model.dao.JpaPidSet;
 import ca.uhn.fhir.jpa.model.entity.BaseResourceIndexedSearchParam;
 import ca.uhn.fhir.jpa.model.entity.BaseTag;
 import ca.uhn.fhir.jpa.model.entity.ResourceHistoryTable;
@@ -56,6 +57,7 @@ import ca.uhn.fhir.jpa.model.entity.ResourceHistoryTablePk;
 import ca.uhn.fhir.jpa.model.entity.ResourceHistoryTag;
 import ca.uhn.fhir.jpa.model.entity.ResourceLink;
 import ca.uhn.fhir.jpa.model.entity.ResourceTag;
+import ca.uhn.fhir.jpa.model.search.IncludeLoadDetails;
 import ca.uhn.fhir.jpa.model.search.SearchBuilderLoadIncludesParameters;
 import ca.uhn.fhir.jpa.model.search.SearchRuntimeDetails;
 import ca.uhn.fhir.jpa.model.search.StorageProcessingMessage;
@@ -63,6 +65,7 @@ import ca.uhn.fhir.jpa.model.util.JpaConstants;
 import ca.uhn.fhir.jpa.partition.IRequestPartitionHelperSvc;
 import ca.uhn.fhir.jpa.search.SearchConstants;
 import ca.uhn.fhir.jpa.search.builder.models.ResolvedSearchQueryExecutor;
+import ca.uhn.fhir.jpa.search.builder.models.SearchAfterKey;
 import ca.uhn.fhir.jpa.search.builder.models.SearchQueryProperties;
 import ca.uhn.fhir.jpa.search.builder.sql.GeneratedSql;
 import ca.uhn.fhir.jpa.search.builder.sql.SearchQueryBuilder;
@@ -157,6 +160,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static ca.uhn.fhir.jpa.model.util.JpaConstants.UNDESIRED_RESOURCE_LINKAGES_FOR_EVERYTHING_ON_PATIENT_INSTANCE;
@@ -246,6 +251,9 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 	@Autowired(required = false)
 	private IElasticsearchSvc myIElasticsearchSvc;
 
+	@Autowired(required = false)
+	private ParallelIncludeLoadingSvc myParallelIncludeLoadingSvc;
+
 	@Autowired
 	private IResourceHistoryTagDao myResourceHistoryTagDao;
 
@@ -319,6 +327,11 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 		return myRequiresTotal;
 	}
 
+	@Override
+	public boolean isKeysetPaging() {
+		return mySearchProperties.isKeysetPaging();
+	}
+
 	private void searchForIdsWithAndOr(
 			SearchQueryBuilder theSearchSqlBuilder,
 			QueryStack theQueryStack,
@@ -401,6 +414,8 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 		properties.setSortSpec(null); // counts don't require sorts
 		properties.setMaxResultsRequested(null);
 		properties.setOffset(null);
+		properties.setKeysetPaging(false);
+		properties.setSearchAfterKey(null);
 		List<ISearchQueryExecutor> queries = createQuery(theParams.clone(), properties, theRequest, null);
 		if (queries.isEmpty()) {
 			return 0L;
@@ -415,7 +430,7 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 	 */
 	@Override
 	public void setPreviouslyAddedResourcePids(@Nonnull List<JpaPid> thePidSet) {
-		myPidSet = new HashSet<>(thePidSet);
+		myPidSet = new JpaPidSet(thePidSet);
 	}
 
 	@SuppressWarnings("ConstantConditions")
@@ -431,12 +446,35 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 		init(theParams, theSearchRuntimeDetails.getSearchUuid(), theRequestPartitionId);
 
 		if (myPidSet == null) {
-			myPidSet = new HashSet<>();
+			myPidSet = new JpaPidSet();
 		}
 
+		initKeysetPaging();
+
 		return new QueryIterator(theSearchRuntimeDetails, theRequest);
 	}
 
+	/**
+	 * Determines whether this search is keyset paged, and if so, whether the client supplied
+	 * a valid position to seek past. Tokens generated for a different sort or page offset are
+	 * ignored, in which case the page is fetched using the offset as normal.
+	 */
+	private void initKeysetPaging() {
+		boolean keysetPaging = myStorageSettings.isKeysetPagingEnabled()
+				&& SearchAfterKey.isSupported(myParams)
+				&& !checkUseHibernateSearch();
+		SearchAfterKey searchAfterKey = null;
+		if (keysetPaging) {
+			searchAfterKey = SearchAfterKey.fromToken(myParams.getSearchAfter());
+			if (searchAfterKey != null && !searchAfterKey.matches(myParams)) {
+				ourLog.debug("Ignoring {} token which does not match the current search", Constants.PARAM_SEARCH_AFTER);
+				searchAfterKey = null;
+			}
+		}
+		mySearchProperties.setKeysetPaging(keysetPaging);
+		mySearchProperties.setSearchAfterKey(searchAfterKey);
+	}
+
 	private void init(SearchParameterMap theParams, String theSearchUuid, RequestPartitionId theRequestPartitionId) {
 		myCriteriaBuilder = myEntityManager.getCriteriaBuilder();
 		// we mutate the params.  Make a private copy.
@@ -824,6 +862,21 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 			createSort(queryStack3, theSearchProperties.getSortSpec(), theParams);
 		}
 
+		/*
+		 * Keyset paging needs a deterministic order, so ties are broken using the
+		 * resource PID. On later pages we then seek directly past the last result
+		 * of the previous page instead of using an OFFSET.
+		 */
+		if (theSearchProperties.isKeysetPaging()) {
+			SortSpec sortSpec = theSearchProperties.getSortSpec();
+			if (sortSpec == null || !Constants.PARAM_PID.equals(sortSpec.getParamName())) {
+				queryStack3.addSortOnResourcePID(SearchAfterKey.isAscending(sortSpec));
+			}
+			if (theSearchProperties.hasSearchAfterKey()) {
+				queryStack3.addPredicateSearchAfter(theSearchProperties.getSearchAfterKey());
+			}
+		}
+
 		/*
 		 * Now perform the search
 		 */
@@ -1545,14 +1598,13 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 		String findPartitionIdFieldName =
 				reverseMode ? MY_SOURCE_RESOURCE_PARTITION_ID : MY_TARGET_RESOURCE_PARTITION_ID;
 		String findResourceTypeFieldName = reverseMode ? MY_SOURCE_RESOURCE_TYPE : MY_TARGET_RESOURCE_TYPE;
-		String findVersionFieldName = null;
-		if (!reverseMode && myStorageSettings.isRespectVersionsForSearchIncludes()) {
-			findVersionFieldName = MY_TARGET_RESOURCE_VERSION;
-		}
+		String findVersionFieldName = !reverseMode && myStorageSettings.isRespectVersionsForSearchIncludes()
+				? MY_TARGET_RESOURCE_VERSION
+				: null;
 
 		List<JpaPid> nextRoundMatches = new ArrayList<>(matches);
 		HashSet<JpaPid> allAdded = new HashSet<>();
-		HashSet<JpaPid> original = new HashSet<>(matches);
+		JpaPidSet original = new JpaPidSet(matches);
 		ArrayList<Include> includes = new ArrayList<>(currentIncludes);
 
 		int roundCounts = 0;
@@ -1562,13 +1614,25 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 		do {
 			roundCounts++;
 
-			HashSet<JpaPid> pidsToInclude = new HashSet<>();
+			List<Include> roundIncludes = new ArrayList<>(includes);
+			includes.removeIf(t -> !t.isRecurse());
 
-			for (Iterator<Include> iter = includes.iterator(); iter.hasNext(); ) {
-				Include nextInclude = iter.next();
-				if (!nextInclude.isRecurse()) {
-					iter.remove();
-				}
+			/*
+			 * The includes in a round are independent of each other, so they can be loaded
+			 * concurrently. We don't do this if raw SQL is being captured, since the capture
+			 * only sees queries issued on the current thread.
+			 */
+			boolean parallel = myParallelIncludeLoadingSvc != null
+					&& myParallelIncludeLoadingSvc.isParallelLoadingEnabled(roundIncludes.size())
+					&& !compositeBroadcaster.hasHooks(Pointcut.JPA_PERFTRACE_RAW_SQL);
+			EntityManager roundEntityManager = parallel ? myEntityManager : entityManager;
+			int round = roundCounts;
+
+			Function<Include, IncludeLoadResult> includeLoader = nextInclude -> {
+				StopWatch includeStopWatch = new StopWatch();
+				HashSet<JpaPid> pidsToInclude = new HashSet<>();
+				IncludeLoadDetails loadDetails = new IncludeLoadDetails(nextInclude.getValue(), reverseMode, round);
+				loadDetails.setParallel(parallel);
 
 				// Account for _include=*
 				boolean matchAll = "*".equals(nextInclude.getValue());
@@ -1594,10 +1658,11 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 							reverseMode,
 							hasDesiredResourceTypes,
 							nextRoundMatches,
-							entityManager,
+							roundEntityManager,
 							maxCount,
 							desiredResourceTypes,
 							pidsToInclude,
+							loadDetails,
 							request);
 				} else {
 					loadIncludesMatchSpecific(
@@ -1609,11 +1674,43 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 							searchPidFieldName,
 							reverseMode,
 							nextRoundMatches,
-							entityManager,
+							roundEntityManager,
 							maxCount,
 							pidsToInclude,
+							loadDetails,
 							request);
 				}
+
+				loadDetails.setElapsedMillis(includeStopWatch.getMillis());
+				return new IncludeLoadResult(pidsToInclude, loadDetails);
+			};
+
+			List<IncludeLoadResult> includeLoadResults;
+			if (parallel) {
+				List<Callable<IncludeLoadResult>> tasks = new ArrayList<>(roundIncludes.size());
+				for (Include nextInclude : roundIncludes) {
+					tasks.add(() -> includeLoader.apply(nextInclude));
+				}
+				includeLoadResults = myParallelIncludeLoadingSvc.loadInParallel(request, tasks);
+			} else {
+				includeLoadResults = new ArrayList<>(roundIncludes.size());
+				for (Include nextInclude : roundIncludes) {
+					includeLoadResults.add(includeLoader.apply(nextInclude));
+				}
+			}
+
+			HashSet<JpaPid> pidsToInclude = new HashSet<>();
+			for (IncludeLoadResult nextResult : includeLoadResults) {
+				pidsToInclude.addAll(nextResult.pids());
+
+				ourLog.debug("Loaded include: {}", nextResult.details());
+				if (compositeBroadcaster.hasHooks(Pointcut.JPA_PERFTRACE_INCLUDE_LOADED)) {
+					HookParams params = new HookParams()
+							.add(RequestDetails.class, request)
+							.addIfMatchesType(ServletRequestDetails.class, request)
+							.add(IncludeLoadDetails.class, nextResult.details());
+					compositeBroadcaster.callHooks(Pointcut.JPA_PERFTRACE_INCLUDE_LOADED, params);
+				}
 			}
 
 			nextRoundMatches.clear();
@@ -1688,6 +1785,7 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 			EntityManager entityManager,
 			Integer maxCount,
 			HashSet<JpaPid> pidsToInclude,
+			IncludeLoadDetails theLoadDetails,
 			RequestDetails theRequest) {
 		List<String> paths;
 
@@ -1826,10 +1924,12 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 				}
 				limitParams.forEach(q::setParameter);
 
+				theLoadDetails.incrementQueryCount();
 				try (ScrollableResultsIterator<Tuple> iter = new ScrollableResultsIterator<>(toScrollableResults(q))) {
 					Tuple result;
 					while (iter.hasNext()) {
 						result = iter.next();
+						theLoadDetails.incrementRowCount();
 						Long resourceId = NumberUtils.createLong(String.valueOf(result.get(RESOURCE_ID_ALIAS)));
 						Long resourceVersion = null;
 						if (findVersionFieldName != null && result.get(RESOURCE_VERSION_ALIAS) != null) {
@@ -1866,6 +1966,7 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 			Integer maxCount,
 			List<String> desiredResourceTypes,
 			HashSet<JpaPid> pidsToInclude,
+			IncludeLoadDetails theLoadDetails,
 			RequestDetails request) {
 
 		record IncludesRecord(
@@ -1962,11 +2063,13 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 
 			Set<String> canonicalUrls = null;
 
+			theLoadDetails.incrementQueryCount();
 			try (ScrollableResultsIterator<IncludesRecord> iter =
 					new ScrollableResultsIterator<>(toScrollableResults(q))) {
 				IncludesRecord nextRow;
 				while (iter.hasNext()) {
 					nextRow = iter.next();
+					theLoadDetails.incrementRowCount();
 					if (nextRow == null) {
 						// This can happen if there are outgoing references which are canonical or point to
 						// other servers
@@ -1993,7 +2096,7 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 			}
 
 			if (canonicalUrls != null) {
-				loadCanonicalUrls(request, canonicalUrls, entityManager, pidsToInclude, reverseMode);
+				loadCanonicalUrls(request, canonicalUrls, entityManager, pidsToInclude, theLoadDetails, reverseMode);
 			}
 		}
 	}
@@ -2003,6 +2106,7 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 			Set<String> theCanonicalUrls,
 			EntityManager theEntityManager,
 			HashSet<JpaPid> thePidsToInclude,
+			IncludeLoadDetails theLoadDetails,
 			boolean theReverse) {
 		StringBuilder sqlBuilder;
 		CanonicalUrlTargets canonicalUrlTargets =
@@ -2036,7 +2140,9 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 			canonicalResIdQuery.setParameter("hash_identity", canonicalUrlTargets.hashIdentityValues);
 			canonicalResIdQuery.setParameter("uris", nextCanonicalUrlList);
 			List<Object[]> results = canonicalResIdQuery.getResultList();
+			theLoadDetails.incrementQueryCount();
 			for (var next : results) {
+				theLoadDetails.incrementRowCount();
 				if (next != null) {
 					Integer partitionId = null;
 					Long pid;
@@ -2054,6 +2160,8 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 		}
 	}
 
+	private record IncludeLoadResult(Set<JpaPid> pids, IncludeLoadDetails details) {}
+
 	/**
 	 * Calls Performance Trace Hook
 	 *
@@ -2595,7 +2703,7 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 		private JpaPid myNext;
 
 		IncludesIterator(Set<JpaPid> thePidSet, RequestDetails theRequest) {
-			myCurrentPids = new HashSet<>(thePidSet);
+			myCurrentPids = new JpaPidSet(thePidSet);
 			myCurrentIterator = null;
 			myRequest = theRequest;
 		}
@@ -2923,6 +3031,15 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 						.setMaxResultsRequested(theMaxResultsToFetch)
 						.setDoCountOnlyFlag(false)
 						.setDeduplicateInDatabase(properties.isDeduplicateInDatabase() || offset != null);
+
+				// keyset paged searches seek past the previous page rather than skipping over it,
+				// so there is no need to fetch the rows which would otherwise have been skipped
+				if (properties.hasSearchAfterKey()) {
+					properties.setOffset(null);
+					if (myParams.getCount() != null && theMaxResultsToFetch != null) {
+						properties.setMaxResultsRequested(Math.min(theMaxResultsToFetch, myParams.getCount()));
+					}
+				}
 				myQueryList = createQuery(myParams, properties, myRequest, mySearchRuntimeDetails);
 			}
 
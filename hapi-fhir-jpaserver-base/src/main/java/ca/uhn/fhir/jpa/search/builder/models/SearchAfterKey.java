@@ -0,0 +1,223 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.search.builder.models;
+
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
+import ca.uhn.fhir.rest.api.Constants;
+import ca.uhn.fhir.rest.api.SortOrderEnum;
+import ca.uhn.fhir.rest.api.SortSpec;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.hl7.fhir.instance.model.api.IAnyResource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Objects;
+
+import static org.apache.commons.lang3.StringUtils.defaultString;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+/**
+ * The position of the last result on a page of a keyset (seek) paged offset search.
+ * The position is made up of the sort key of that result (if the search is sorted),
+ * plus its resource PID which is used as a tie-breaker. It is exchanged with the client
+ * as an opaque token in the {@link Constants#PARAM_SEARCH_AFTER _searchAfter} parameter.
+ * <p>
+ * The token also records the sort and the offset of the page that it leads to, and it is
+ * only honoured if these match the request it is supplied with. Otherwise the search
+ * falls back to normal offset paging.
+ *
+ * @see JpaStorageSettings#setKeysetPagingEnabled(boolean)
+ */
+public class SearchAfterKey {
+
+	private static final String VERSION = "1";
+	private static final String DELIMITER = "|";
+	private static final String ASCENDING = "a";
+	private static final String DESCENDING = "d";
+
+	private final String mySortParamName;
+	private final boolean myAscending;
+	private final int myOffset;
+	private final long myPid;
+	private final String mySortValue;
+
+	private SearchAfterKey(
+			String theSortParamName, boolean theAscending, int theOffset, long thePid, String theSortValue) {
+		mySortParamName = theSortParamName;
+		myAscending = theAscending;
+		myOffset = theOffset;
+		myPid = thePid;
+		mySortValue = theSortValue;
+	}
+
+	/**
+	 * Returns the sort parameter name, or an empty string if the search is not sorted
+	 */
+	@Nonnull
+	public String getSortParamName() {
+		return mySortParamName;
+	}
+
+	public boolean isAscending() {
+		return myAscending;
+	}
+
+	public long getPid() {
+		return myPid;
+	}
+
+	/**
+	 * Returns the value of the sort column for the last result, or <code>null</code>
+	 * if the search is not sorted or is sorted by PID.
+	 */
+	@Nullable
+	public Object getSortValue() {
+		switch (mySortParamName) {
+			case IAnyResource.SP_RES_ID:
+				return mySortValue;
+			case Constants.PARAM_LASTUPDATED:
+				return new Date(Long.parseLong(mySortValue));
+			default:
+				return null;
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> if this key was created for a page of a search with the
+	 * same sort as the given parameters, and leads to the page at the requested offset.
+	 */
+	public boolean matches(SearchParameterMap theParams) {
+		return mySortParamName.equals(getSortParamName(theParams.getSort()))
+				&& myAscending == isAscending(theParams.getSort())
+				&& Objects.equals(myOffset, theParams.getOffset());
+	}
+
+	/**
+	 * Encodes this key as an opaque URL-safe token
+	 */
+	public String toToken() {
+		String key = String.join(
+				DELIMITER,
+				VERSION,
+				mySortParamName,
+				myAscending ? ASCENDING : DESCENDING,
+				Integer.toString(myOffset),
+				Long.toString(myPid),
+				defaultString(mySortValue));
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Decodes a token created by {@link #toToken()}
+	 *
+	 * @return The decoded key, or <code>null</code> if the token is blank or is not valid
+	 */
+	@Nullable
+	public static SearchAfterKey fromToken(@Nullable String theToken) {
+		if (isBlank(theToken)) {
+			return null;
+		}
+		try {
+			String key = new String(Base64.getUrlDecoder().decode(theToken), StandardCharsets.UTF_8);
+			String[] parts = key.split("\\" + DELIMITER, 6);
+			if (parts.length != 6 || !VERSION.equals(parts[0])) {
+				return null;
+			}
+			String sortParamName = parts[1];
+			if (!isSupportedSortParamName(sortParamName)) {
+				return null;
+			}
+			boolean ascending;
+			if (ASCENDING.equals(parts[2])) {
+				ascending = true;
+			} else if (DESCENDING.equals(parts[2])) {
+				ascending = false;
+			} else {
+				return null;
+			}
+			int offset = Integer.parseInt(parts[3]);
+			long pid = Long.parseLong(parts[4]);
+			String sortValue = null;
+			if (IAnyResource.SP_RES_ID.equals(sortParamName)) {
+				sortValue = parts[5];
+			} else if (Constants.PARAM_LASTUPDATED.equals(sortParamName)) {
+				sortValue = Long.toString(Long.parseLong(parts[5]));
+			}
+			return new SearchAfterKey(sortParamName, ascending, offset, pid, sortValue);
+		} catch (IllegalArgumentException e) {
+			// Includes NumberFormatException
+			return null;
+		}
+	}
+
+	/**
+	 * Creates a key for the last result on the current page of a search
+	 *
+	 * @param theParams        The search parameters for the current page
+	 * @param theLastPid       The resource PID of the last result on the current page
+	 * @param theLastSortValue The value of the sort column for the last result: the FHIR ID
+	 *                         if sorted by <code>_id</code>, or the updated date if sorted by
+	 *                         <code>_lastUpdated</code>. Ignored for other sorts.
+	 */
+	public static SearchAfterKey forLastResult(
+			SearchParameterMap theParams, long theLastPid, @Nullable Object theLastSortValue) {
+		SortSpec sort = theParams.getSort();
+		String sortParamName = getSortParamName(sort);
+		String sortValue = null;
+		if (IAnyResource.SP_RES_ID.equals(sortParamName)) {
+			sortValue = (String) theLastSortValue;
+		} else if (Constants.PARAM_LASTUPDATED.equals(sortParamName)) {
+			sortValue = Long.toString(((Date) theLastSortValue).getTime());
+		}
+		int nextOffset = theParams.getOffset() + theParams.getCount();
+		return new SearchAfterKey(sortParamName, isAscending(sort), nextOffset, theLastPid, sortValue);
+	}
+
+	/**
+	 * Returns <code>true</code> if the given search can be keyset paged. This requires
+	 * an offset query which is either unsorted, or sorted by a single column of the
+	 * resource table.
+	 */
+	public static boolean isSupported(SearchParameterMap theParams) {
+		if (!theParams.isOffsetQuery() || theParams.getEverythingMode() != null || theParams.isLastN()) {
+			return false;
+		}
+		SortSpec sort = theParams.getSort();
+		return sort == null || (sort.getChain() == null && isSupportedSortParamName(getSortParamName(sort)));
+	}
+
+	private static boolean isSupportedSortParamName(String theSortParamName) {
+		return theSortParamName.isEmpty()
+				|| IAnyResource.SP_RES_ID.equals(theSortParamName)
+				|| Constants.PARAM_LASTUPDATED.equals(theSortParamName)
+				|| Constants.PARAM_PID.equals(theSortParamName);
+	}
+
+	private static String getSortParamName(@Nullable SortSpec theSort) {
+		return theSort != null ? defaultString(theSort.getParamName()) : "";
+	}
+
+	public static boolean isAscending(@Nullable SortSpec theSort) {
+		return theSort == null || theSort.getOrder() == null || theSort.getOrder() == SortOrderEnum.ASC;
+	}
+}
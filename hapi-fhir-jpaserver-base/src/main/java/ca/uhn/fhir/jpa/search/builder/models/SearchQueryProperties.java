@@ -56,6 +56,17 @@ public class SearchQueryProperties {
 	 */
 	private SortSpec mySortSpec;
 
+	/**
+	 * Whether results are ordered so that they can be keyset (seek) paged.
+	 * See {@link JpaStorageSettings#setKeysetPagingEnabled(boolean)}.
+	 */
+	private boolean myKeysetPaging;
+
+	/**
+	 * The position to seek past, if this is a later page of a keyset paged search.
+	 */
+	private SearchAfterKey mySearchAfterKey;
+
 	public boolean isDoCountOnlyFlag() {
 		return myDoCountOnlyFlag;
 	}
@@ -132,12 +143,36 @@ public class SearchQueryProperties {
 		return this;
 	}
 
+	public boolean isKeysetPaging() {
+		return myKeysetPaging;
+	}
+
+	public SearchQueryProperties setKeysetPaging(boolean theKeysetPaging) {
+		myKeysetPaging = theKeysetPaging;
+		return this;
+	}
+
+	public SearchAfterKey getSearchAfterKey() {
+		return mySearchAfterKey;
+	}
+
+	public boolean hasSearchAfterKey() {
+		return mySearchAfterKey != null;
+	}
+
+	public SearchQueryProperties setSearchAfterKey(SearchAfterKey theSearchAfterKey) {
+		mySearchAfterKey = theSearchAfterKey;
+		return this;
+	}
+
 	public SearchQueryProperties clone() {
 		return new SearchQueryProperties()
 				.setMaxResultsRequested(myMaxResultsRequested)
 				.setSortSpec(mySortSpec)
 				.setOffset(myOffset)
 				.setDoCountOnlyFlag(myDoCountOnlyFlag)
-				.setDeduplicateInDatabase(myDeduplicateInDB);
+				.setDeduplicateInDatabase(myDeduplicateInDB)
+				.setKeysetPaging(myKeysetPaging)
+				.setSearchAfterKey(mySearchAfterKey);
 	}
 }
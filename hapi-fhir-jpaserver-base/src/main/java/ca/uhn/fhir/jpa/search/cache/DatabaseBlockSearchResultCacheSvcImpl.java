@@ -0,0 +1,318 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.search.cache;
+
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.jpa.dao.data.ISearchResultBlockDao;
+import ca.uhn.fhir.jpa.dao.data.ISearchResultDao;
+import ca.uhn.fhir.jpa.dao.tx.IHapiTransactionService;
+import ca.uhn.fhir.jpa.entity.Search;
+import ca.uhn.fhir.jpa.entity.SearchResultBlock;
+import ca.uhn.fhir.jpa.model.dao.JpaPid;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import com.google.common.annotations.VisibleForTesting;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static ca.uhn.fhir.jpa.search.SearchCoordinatorSvcImpl.toPage;
+
+/**
+ * An alternative to {@link DatabaseSearchResultCacheSvcImpl} which stores the results of a search
+ * as a series of blocks (see {@link SearchResultBlock}) instead of as one row per result. Each block
+ * holds up to {@link #DEFAULT_BLOCK_SIZE} consecutive results, encoded as a single blob of
+ * delta/varint encoded partition ID and resource PID pairs. When a page of results is fetched, only
+ * the blocks which overlap the requested range are loaded and decoded.
+ * <p>
+ * Searches whose results were stored by {@link DatabaseSearchResultCacheSvcImpl} (e.g. before this
+ * implementation was enabled) are still readable, since this class falls back to reading individual
+ * result rows if no blocks are found for a search.
+ * </p>
+ *
+ * @see ca.uhn.fhir.jpa.api.config.JpaStorageSettings#setSearchResultBlockStorageEnabled(boolean)
+ * @since 8.4.0
+ */
+public class DatabaseBlockSearchResultCacheSvcImpl implements ISearchResultCacheSvc {
+
+	public static final int DEFAULT_BLOCK_SIZE = 1000;
+	private static final Logger ourLog = LoggerFactory.getLogger(DatabaseBlockSearchResultCacheSvcImpl.class);
+	private static final byte FORMAT_NO_PARTITIONS = 0;
+	private static final byte FORMAT_WITH_PARTITIONS = 1;
+
+	@Autowired
+	private ISearchResultBlockDao mySearchResultBlockDao;
+
+	@Autowired
+	private ISearchResultDao mySearchResultDao;
+
+	@Autowired
+	private IHapiTransactionService myTransactionService;
+
+	private int myBlockSize = DEFAULT_BLOCK_SIZE;
+
+	/**
+	 * Sets the maximum number of results which will be stored in a single block.
+	 * Defaults to {@link #DEFAULT_BLOCK_SIZE}.
+	 */
+	public void setBlockSize(int theBlockSize) {
+		Validate.isTrue(theBlockSize > 0, "Block size must be positive");
+		myBlockSize = theBlockSize;
+	}
+
+	@Override
+	public List<JpaPid> fetchResultPids(
+			Search theSearch,
+			int theFrom,
+			int theTo,
+			RequestDetails theRequestDetails,
+			RequestPartitionId theRequestPartitionId) {
+		if (theTo - theFrom < 1) {
+			return Collections.emptyList();
+		}
+		List<JpaPid> retVal = myTransactionService
+				.withRequest(theRequestDetails)
+				.withRequestPartitionId(theRequestPartitionId)
+				.execute(() -> {
+					List<SearchResultBlock> blocks =
+							mySearchResultBlockDao.findWithSearchPidInRange(theSearch.getId(), theFrom, theTo);
+
+					List<JpaPid> pids = new ArrayList<>(theTo - theFrom);
+					for (SearchResultBlock next : blocks) {
+						List<JpaPid> blockPids = decode(next.getResultPids(), next.getPidCount());
+						int start = Math.max(theFrom - next.getFirstOrder(), 0);
+						int end = Math.min(theTo - next.getFirstOrder(), blockPids.size());
+						pids.addAll(blockPids.subList(start, end));
+					}
+
+					ourLog.debug(
+							"fetchResultPids for range {}-{} decoded {} blocks and returned {} pids",
+							theFrom,
+							theTo,
+							blocks.size(),
+							pids.size());
+					return pids;
+				});
+
+		if (retVal.isEmpty() && theFrom < theSearch.getNumFound()) {
+			ourLog.debug("No result blocks found for search {}, falling back to individual results", theSearch.getId());
+			return fetchLegacyResultPids(theSearch, toPage(theFrom, theTo), theRequestDetails, theRequestPartitionId);
+		}
+		return retVal;
+	}
+
+	@Override
+	public List<JpaPid> fetchAllResultPids(
+			Search theSearch, RequestDetails theRequestDetails, RequestPartitionId theRequestPartitionId) {
+		List<JpaPid> retVal = myTransactionService
+				.withRequest(theRequestDetails)
+				.withRequestPartitionId(theRequestPartitionId)
+				.execute(() -> {
+					List<JpaPid> pids = new ArrayList<>();
+					for (SearchResultBlock next : mySearchResultBlockDao.findWithSearchPid(theSearch.getId())) {
+						pids.addAll(decode(next.getResultPids(), next.getPidCount()));
+					}
+					ourLog.trace("fetchAllResultPids returned {} pids", pids.size());
+					return pids;
+				});
+
+		if (retVal.isEmpty() && theSearch.getNumFound() > 0) {
+			return fetchLegacyResultPids(theSearch, null, theRequestDetails, theRequestPartitionId);
+		}
+		return retVal;
+	}
+
+	@Override
+	public void storeResults(
+			Search theSearch,
+			List<JpaPid> thePreviouslyStoredResourcePids,
+			List<JpaPid> theNewResourcePids,
+			RequestDetails theRequestDetails,
+			RequestPartitionId theRequestPartitionId) {
+		if (theNewResourcePids.isEmpty()) {
+			return;
+		}
+		myTransactionService
+				.withRequest(theRequestDetails)
+				.withRequestPartitionId(theRequestPartitionId)
+				.execute(() -> {
+					ourLog.debug(
+							"Storing {} results with {} previous for search",
+							theNewResourcePids.size(),
+							thePreviouslyStoredResourcePids.size());
+
+					int order = thePreviouslyStoredResourcePids.size();
+					List<SearchResultBlock> blocksToSave = new ArrayList<>();
+					for (int start = 0; start < theNewResourcePids.size(); start += myBlockSize) {
+						int end = Math.min(start + myBlockSize, theNewResourcePids.size());
+						List<JpaPid> blockPids = theNewResourcePids.subList(start, end);
+
+						SearchResultBlock block = new SearchResultBlock(theSearch);
+						block.setFirstOrder(order + start);
+						block.setPidCount(blockPids.size());
+						block.setResultPids(encode(blockPids));
+						blocksToSave.add(block);
+						ourLog.trace(
+								"Saving block with ORDER[{}] and {} PIDs", block.getFirstOrder(), blockPids.size());
+					}
+
+					mySearchResultBlockDao.saveAll(blocksToSave);
+				});
+	}
+
+	/**
+	 * Reads results stored as individual rows by {@link DatabaseSearchResultCacheSvcImpl}
+	 *
+	 * @param thePage The page to read, or <code>null</code> to read all results
+	 */
+	private List<JpaPid> fetchLegacyResultPids(
+			Search theSearch,
+			@Nullable Pageable thePage,
+			RequestDetails theRequestDetails,
+			RequestPartitionId theRequestPartitionId) {
+		return myTransactionService
+				.withRequest(theRequestDetails)
+				.withRequestPartitionId(theRequestPartitionId)
+				.execute(() -> {
+					List<Object[]> retVal;
+					if (thePage != null) {
+						retVal = mySearchResultDao
+								.findWithSearchPid(theSearch.getId(), thePage)
+								.getContent();
+					} else {
+						retVal = mySearchResultDao.findWithSearchPidOrderIndependent(theSearch.getId());
+					}
+					return ISearchResultDao.toJpaPidList(retVal);
+				});
+	}
+
+	@VisibleForTesting
+	void setSearchResultBlockDaoForUnitTest(ISearchResultBlockDao theSearchResultBlockDao) {
+		mySearchResultBlockDao = theSearchResultBlockDao;
+	}
+
+	@VisibleForTesting
+	void setSearchResultDaoForUnitTest(ISearchResultDao theSearchResultDao) {
+		mySearchResultDao = theSearchResultDao;
+	}
+
+	@VisibleForTesting
+	void setTransactionServiceForUnitTest(IHapiTransactionService theTransactionService) {
+		myTransactionService = theTransactionService;
+	}
+
+	/**
+	 * Encodes a list of PIDs as a header byte followed by a zigzag varint for the delta between
+	 * each resource PID and the previous one. If any PID has a partition ID, the partition IDs are
+	 * encoded the same way, interleaved with the resource PIDs.
+	 */
+	static byte[] encode(List<JpaPid> thePids) {
+		boolean hasPartitions = false;
+		for (JpaPid next : thePids) {
+			if (next.getPartitionId() != null) {
+				hasPartitions = true;
+				break;
+			}
+		}
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream(thePids.size() * 3 + 1);
+		out.write(hasPartitions ? FORMAT_WITH_PARTITIONS : FORMAT_NO_PARTITIONS);
+		long previousPartition = 0;
+		long previousPid = 0;
+		for (JpaPid next : thePids) {
+			if (hasPartitions) {
+				long partition = toPartitionKey(next.getPartitionId());
+				writeVarLong(out, partition - previousPartition);
+				previousPartition = partition;
+			}
+			long pid = next.getId();
+			writeVarLong(out, pid - previousPid);
+			previousPid = pid;
+		}
+		return out.toByteArray();
+	}
+
+	static List<JpaPid> decode(byte[] theBytes, int theCount) {
+		List<JpaPid> retVal = new ArrayList<>(theCount);
+		boolean hasPartitions;
+		switch (theBytes[0]) {
+			case FORMAT_NO_PARTITIONS -> hasPartitions = false;
+			case FORMAT_WITH_PARTITIONS -> hasPartitions = true;
+			default -> throw new InternalErrorException(
+					Msg.code(2752) + "Unknown search result block format: " + theBytes[0]);
+		}
+
+		int[] position = {1};
+		long partition = 0;
+		long pid = 0;
+		for (int i = 0; i < theCount; i++) {
+			if (hasPartitions) {
+				partition += readVarLong(theBytes, position);
+			}
+			pid += readVarLong(theBytes, position);
+			retVal.add(JpaPid.fromId(pid, fromPartitionKey(partition)));
+		}
+		return retVal;
+	}
+
+	/**
+	 * Maps a partition ID to a non-zero key, reserving zero for the <code>null</code> partition ID
+	 */
+	private static long toPartitionKey(Integer thePartitionId) {
+		return thePartitionId == null ? 0 : thePartitionId.longValue() - Integer.MIN_VALUE + 1;
+	}
+
+	private static Integer fromPartitionKey(long thePartitionKey) {
+		return thePartitionKey == 0 ? null : (int) (thePartitionKey - 1 + Integer.MIN_VALUE);
+	}
+
+	private static void writeVarLong(ByteArrayOutputStream theOut, long theValue) {
+		long zigZag = (theValue << 1) ^ (theValue >> 63);
+		while ((zigZag & ~0x7FL) != 0) {
+			theOut.write((int) ((zigZag & 0x7F) | 0x80));
+			zigZag >>>= 7;
+		}
+		theOut.write((int) zigZag);
+	}
+
+	private static long readVarLong(byte[] theBytes, int[] thePosition) {
+		long zigZag = 0;
+		int shift = 0;
+		byte next;
+		do {
+			if (thePosition[0] >= theBytes.length) {
+				throw new InternalErrorException(Msg.code(2753) + "Truncated search result block");
+			}
+			next = theBytes[thePosition[0]++];
+			zigZag |= (long) (next & 0x7F) << shift;
+			shift += 7;
+		} while ((next & 0x80) != 0);
+		return (zigZag >>> 1) ^ -(zigZag & 1);
+	}
+}
@@ -87,4 +87,15 @@ public interface ISearchCacheSvc {
 	 * and deleting them.
 	 */
 	void pollForStaleSearchesAndDeleteThem(RequestPartitionId theRequestPartitionId, Instant theDeadline);
+
+	/**
+	 * Discards any searches which are held in memory by this service. This is called when all
+	 * stored searches are being removed (e.g. by an expunge everything operation). The default
+	 * implementation does nothing.
+	 *
+	 * @since 8.4.0
+	 */
+	default void invalidateCaches() {
+		// nothing
+	}
 }
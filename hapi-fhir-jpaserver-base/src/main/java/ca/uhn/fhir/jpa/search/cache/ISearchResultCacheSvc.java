@@ -67,4 +67,15 @@ public interface ISearchResultCacheSvc {
 	@Nullable
 	List<JpaPid> fetchAllResultPids(
 			Search theSearch, RequestDetails theRequestDetails, RequestPartitionId theRequestPartitionId);
+
+	/**
+	 * Discards any results which are held in memory by this service. This is called when all
+	 * stored searches are being removed (e.g. by an expunge everything operation). The default
+	 * implementation does nothing.
+	 *
+	 * @since 8.4.0
+	 */
+	default void invalidateCaches() {
+		// nothing
+	}
 }
@@ -0,0 +1,275 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.search.cache;
+
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.entity.Search;
+import ca.uhn.fhir.jpa.model.search.SearchStatusEnum;
+import org.apache.commons.lang3.SerializationUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.apache.commons.lang3.ObjectUtils.defaultIfNull;
+
+/**
+ * A node-local {@link ISearchCacheSvc} which keeps {@link SearchStatusEnum#FINISHED finished}
+ * searches in a bounded off-heap store (see {@link OffHeapLruByteStore}), so that loading
+ * subsequent pages of those searches and checking them for reuse does not require querying the
+ * database.
+ * <p>
+ * Searches are only held locally once they have finished, since the status of a search which is
+ * still loading may be changed by other nodes in a cluster. All operations which modify searches
+ * are passed through to a delegate (normally {@link DatabaseSearchCacheSvcImpl}), which is also used
+ * whenever a search is not held locally. Each lookup which is served locally returns a new copy of
+ * the search, so callers may freely modify the returned entity.
+ * </p>
+ * <p>
+ * Locally held searches are discarded using the same expiry rules as
+ * {@link DatabaseSearchCacheSvcImpl#pollForStaleSearchesAndDeleteThem(RequestPartitionId, Instant)},
+ * so a search is never served locally after it would have been deleted from the database.
+ * </p>
+ *
+ * @see JpaStorageSettings#setLocalSearchCacheMaxSizeBytes(long)
+ * @since 8.4.0
+ */
+public class LocalSearchCacheSvcImpl implements ISearchCacheSvc {
+	private static final Logger ourLog = LoggerFactory.getLogger(LocalSearchCacheSvcImpl.class);
+
+	private final ISearchCacheSvc myDelegate;
+	private final JpaStorageSettings myStorageSettings;
+	private final OffHeapLruByteStore<String> myStore;
+	private final Map<String, LocalSearchDetails> myUuidToDetails = new ConcurrentHashMap<>();
+	private final Map<String, String> myReuseKeyToUuid = new ConcurrentHashMap<>();
+	private final AtomicLong myHitCount = new AtomicLong();
+	private final AtomicLong myMissCount = new AtomicLong();
+
+	/**
+	 * Constructor
+	 *
+	 * @param theDelegate        The cache service which all changes are written to, and which is used when a search is not available locally
+	 * @param theStorageSettings The storage settings, used to determine when searches expire
+	 * @param theMaxSizeBytes    The maximum number of off-heap bytes to use for holding searches
+	 */
+	public LocalSearchCacheSvcImpl(
+			ISearchCacheSvc theDelegate, JpaStorageSettings theStorageSettings, long theMaxSizeBytes) {
+		myDelegate = theDelegate;
+		myStorageSettings = theStorageSettings;
+		myStore = new OffHeapLruByteStore<>(theMaxSizeBytes, this::forget);
+	}
+
+	@Override
+	public Search save(Search theSearch, RequestPartitionId theRequestPartitionId) {
+		Search retVal = myDelegate.save(theSearch, theRequestPartitionId);
+		invalidate(retVal.getUuid());
+		return retVal;
+	}
+
+	@Override
+	public Optional<Search> fetchByUuid(String theUuid, RequestPartitionId theRequestPartitionId) {
+		Optional<Search> local = fetchLocal(theUuid);
+		if (local.isPresent()) {
+			myHitCount.incrementAndGet();
+			return local;
+		}
+
+		myMissCount.incrementAndGet();
+		Optional<Search> retVal = myDelegate.fetchByUuid(theUuid, theRequestPartitionId);
+		retVal.ifPresent(this::holdIfFinished);
+		return retVal;
+	}
+
+	@Override
+	public Optional<Search> tryToMarkSearchAsInProgress(Search theSearch, RequestPartitionId theRequestPartitionId) {
+		invalidate(theSearch.getUuid());
+		return myDelegate.tryToMarkSearchAsInProgress(theSearch, theRequestPartitionId);
+	}
+
+	@Override
+	public Optional<Search> findCandidatesForReuse(
+			String theResourceType,
+			String theQueryString,
+			Instant theCreatedAfter,
+			RequestPartitionId theRequestPartitionId) {
+		String queryString = Search.createSearchQueryStringForStorage(theQueryString, theRequestPartitionId);
+		String uuid = myReuseKeyToUuid.get(toReuseKey(theResourceType, queryString));
+		if (uuid != null) {
+			Optional<Search> local = fetchLocal(uuid);
+			if (local.isPresent()
+					&& queryString.equals(local.get().getSearchQueryString())
+					&& local.get().getCreated().toInstant().isAfter(theCreatedAfter)) {
+				myHitCount.incrementAndGet();
+				return local;
+			}
+		}
+
+		myMissCount.incrementAndGet();
+		return myDelegate.findCandidatesForReuse(
+				theResourceType, theQueryString, theCreatedAfter, theRequestPartitionId);
+	}
+
+	@Override
+	public void pollForStaleSearchesAndDeleteThem(RequestPartitionId theRequestPartitionId, Instant theDeadline) {
+		myDelegate.pollForStaleSearchesAndDeleteThem(theRequestPartitionId, theDeadline);
+
+		for (String next : myStore.keys()) {
+			LocalSearchDetails details = myUuidToDetails.get(next);
+			if (details == null || isExpired(details)) {
+				invalidate(next);
+			}
+		}
+
+		ourLog.debug(
+				"Local search cache holds {} searches using {} bytes - {} hits, {} misses, {} evictions",
+				myStore.size(),
+				myStore.getSizeBytes(),
+				getHitCount(),
+				getMissCount(),
+				getEvictionCount());
+	}
+
+	@Override
+	public void invalidateCaches() {
+		myStore.clear();
+		myUuidToDetails.clear();
+		myReuseKeyToUuid.clear();
+	}
+
+	/**
+	 * Returns the number of times that a search was served from the local store
+	 */
+	public long getHitCount() {
+		return myHitCount.get();
+	}
+
+	/**
+	 * Returns the number of times that a search was not available in the local store,
+	 * and was fetched from the delegate instead
+	 */
+	public long getMissCount() {
+		return myMissCount.get();
+	}
+
+	/**
+	 * Returns the number of searches which have been evicted from the local store
+	 * in order to stay within the maximum size
+	 */
+	public long getEvictionCount() {
+		return myStore.getEvictionCount();
+	}
+
+	/**
+	 * Returns the number of searches currently held in the local store
+	 */
+	public int getSize() {
+		return myStore.size();
+	}
+
+	private Optional<Search> fetchLocal(String theUuid) {
+		LocalSearchDetails details = myUuidToDetails.get(theUuid);
+		ByteBuffer stored = myStore.get(theUuid);
+		if (details == null || stored == null) {
+			return Optional.empty();
+		}
+		if (isExpired(details)) {
+			invalidate(theUuid);
+			return Optional.empty();
+		}
+
+		byte[] bytes = new byte[stored.remaining()];
+		stored.get(bytes);
+		return Optional.of(SerializationUtils.deserialize(bytes));
+	}
+
+	private void holdIfFinished(Search theSearch) {
+		if (theSearch.getStatus() != SearchStatusEnum.FINISHED || Boolean.TRUE.equals(theSearch.getDeleted())) {
+			return;
+		}
+
+		LocalSearchDetails details = new LocalSearchDetails(theSearch);
+		if (isExpired(details)) {
+			return;
+		}
+
+		myUuidToDetails.put(theSearch.getUuid(), details);
+		if (myStore.put(theSearch.getUuid(), SerializationUtils.serialize(theSearch))) {
+			if (details.reuseKey() != null) {
+				myReuseKeyToUuid.put(details.reuseKey(), theSearch.getUuid());
+			}
+		} else {
+			forget(theSearch.getUuid());
+		}
+	}
+
+	private void invalidate(String theUuid) {
+		myStore.remove(theUuid);
+		forget(theUuid);
+	}
+
+	private void forget(String theUuid) {
+		LocalSearchDetails details = myUuidToDetails.remove(theUuid);
+		if (details != null && details.reuseKey() != null) {
+			myReuseKeyToUuid.remove(details.reuseKey(), theUuid);
+		}
+	}
+
+	/**
+	 * Mirrors the criteria used by {@link DatabaseSearchCacheSvcImpl} to find searches to delete
+	 */
+	private boolean isExpired(LocalSearchDetails theDetails) {
+		if (!myStorageSettings.isExpireSearchResults()) {
+			return false;
+		}
+		long now = DatabaseSearchCacheSvcImpl.now();
+		if (theDetails.expiryOrNull() != null && theDetails.expiryOrNull().getTime() >= now) {
+			return false;
+		}
+		long cutoffMillis = myStorageSettings.getExpireSearchResultsAfterMillis()
+				+ defaultIfNull(myStorageSettings.getReuseCachedSearchResultsForMillis(), 0L);
+		return theDetails.created().getTime() < now - cutoffMillis;
+	}
+
+	private static String toReuseKey(String theResourceType, String theSearchQueryString) {
+		return theResourceType + " " + theSearchQueryString;
+	}
+
+	/**
+	 * The details about a locally held search which are needed without deserializing it
+	 */
+	private record LocalSearchDetails(Date created, Date expiryOrNull, String reuseKey) {
+
+		LocalSearchDetails(Search theSearch) {
+			this(
+					theSearch.getCreated(),
+					theSearch.getExpiryOrNull(),
+					theSearch.getSearchQueryStringHash() != null
+							? toReuseKey(theSearch.getResourceType(), theSearch.getSearchQueryString())
+							: null);
+		}
+	}
+}
@@ -0,0 +1,234 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.search.cache;
+
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.jpa.entity.Search;
+import ca.uhn.fhir.jpa.model.dao.JpaPid;
+import ca.uhn.fhir.jpa.model.search.SearchStatusEnum;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import jakarta.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A node-local {@link ISearchResultCacheSvc} which keeps the results of searches stored on this
+ * node in a bounded off-heap store (see {@link OffHeapLruByteStore}), so that subsequent pages of
+ * those searches can be served without querying the database.
+ * <p>
+ * All results are also written through to a delegate (normally a database-backed implementation),
+ * which is used whenever the requested results are not held locally. This happens if the search
+ * was performed by a different node in a cluster, or if the results were evicted from the local store.
+ * </p>
+ *
+ * @see ca.uhn.fhir.jpa.api.config.JpaStorageSettings#setLocalSearchCacheMaxSizeBytes(long)
+ * @since 8.4.0
+ */
+public class LocalSearchResultCacheSvcImpl implements ISearchResultCacheSvc {
+	private static final Logger ourLog = LoggerFactory.getLogger(LocalSearchResultCacheSvcImpl.class);
+
+	/**
+	 * Each stored block is prefixed with its first order, its PID count, and its encoded length
+	 */
+	private static final int BLOCK_HEADER_SIZE = Integer.BYTES * 3;
+
+	private final ISearchResultCacheSvc myDelegate;
+	private final OffHeapLruByteStore<String> myStore;
+	private final AtomicLong myHitCount = new AtomicLong();
+	private final AtomicLong myMissCount = new AtomicLong();
+
+	/**
+	 * Constructor
+	 *
+	 * @param theDelegate     The cache service which all results are written to, and which is used when results are not available locally
+	 * @param theMaxSizeBytes The maximum number of off-heap bytes to use for holding results
+	 */
+	public LocalSearchResultCacheSvcImpl(ISearchResultCacheSvc theDelegate, long theMaxSizeBytes) {
+		myDelegate = theDelegate;
+		myStore = new OffHeapLruByteStore<>(theMaxSizeBytes, t -> {});
+	}
+
+	@Override
+	public void storeResults(
+			Search theSearch,
+			List<JpaPid> thePreviouslyStoredResourcePids,
+			List<JpaPid> theNewResourcePids,
+			RequestDetails theRequestDetails,
+			RequestPartitionId theRequestPartitionId) {
+		myDelegate.storeResults(
+				theSearch,
+				thePreviouslyStoredResourcePids,
+				theNewResourcePids,
+				theRequestDetails,
+				theRequestPartitionId);
+
+		String searchUuid = theSearch.getUuid();
+		int firstOrder = thePreviouslyStoredResourcePids.size();
+		ByteBuffer existing = myStore.get(searchUuid);
+		int locallyStored = existing != null ? countResults(existing) : 0;
+		if (locallyStored != firstOrder) {
+			// We only hold a contiguous run of results starting at the first result, so if
+			// some results were stored elsewhere (e.g. by another node) we can't hold these
+			ourLog.debug(
+					"Not holding results for search {} locally, have {} but new results start at {}",
+					searchUuid,
+					locallyStored,
+					firstOrder);
+			myStore.remove(searchUuid);
+			return;
+		}
+		if (theNewResourcePids.isEmpty()) {
+			return;
+		}
+
+		byte[] encoded = DatabaseBlockSearchResultCacheSvcImpl.encode(theNewResourcePids);
+		ByteBuffer block = ByteBuffer.allocate(BLOCK_HEADER_SIZE + encoded.length);
+		block.putInt(firstOrder);
+		block.putInt(theNewResourcePids.size());
+		block.putInt(encoded.length);
+		block.put(encoded);
+		myStore.append(searchUuid, block.array());
+	}
+
+	@Nullable
+	@Override
+	public List<JpaPid> fetchResultPids(
+			Search theSearch,
+			int theFrom,
+			int theTo,
+			RequestDetails theRequestDetails,
+			RequestPartitionId theRequestPartitionId) {
+		if (theTo - theFrom < 1) {
+			return Collections.emptyList();
+		}
+
+		ByteBuffer stored = myStore.get(theSearch.getUuid());
+		if (stored != null && isHoldingResults(theSearch, stored, theTo)) {
+			myHitCount.incrementAndGet();
+			List<JpaPid> retVal = new ArrayList<>(theTo - theFrom);
+			while (stored.hasRemaining()) {
+				int firstOrder = stored.getInt();
+				int count = stored.getInt();
+				int length = stored.getInt();
+				if (firstOrder < theTo && firstOrder + count > theFrom) {
+					byte[] encoded = new byte[length];
+					stored.get(encoded);
+					List<JpaPid> blockPids = DatabaseBlockSearchResultCacheSvcImpl.decode(encoded, count);
+					int start = Math.max(theFrom - firstOrder, 0);
+					int end = Math.min(theTo - firstOrder, count);
+					retVal.addAll(blockPids.subList(start, end));
+				} else {
+					stored.position(stored.position() + length);
+				}
+			}
+			return retVal;
+		}
+
+		myMissCount.incrementAndGet();
+		return myDelegate.fetchResultPids(theSearch, theFrom, theTo, theRequestDetails, theRequestPartitionId);
+	}
+
+	@Nullable
+	@Override
+	public List<JpaPid> fetchAllResultPids(
+			Search theSearch, RequestDetails theRequestDetails, RequestPartitionId theRequestPartitionId) {
+		ByteBuffer stored = myStore.get(theSearch.getUuid());
+		if (stored != null && countResults(stored) >= theSearch.getNumFound()) {
+			myHitCount.incrementAndGet();
+			List<JpaPid> retVal = new ArrayList<>();
+			while (stored.hasRemaining()) {
+				stored.getInt();
+				int count = stored.getInt();
+				byte[] encoded = new byte[stored.getInt()];
+				stored.get(encoded);
+				retVal.addAll(DatabaseBlockSearchResultCacheSvcImpl.decode(encoded, count));
+			}
+			return retVal;
+		}
+
+		myMissCount.incrementAndGet();
+		return myDelegate.fetchAllResultPids(theSearch, theRequestDetails, theRequestPartitionId);
+	}
+
+	@Override
+	public void invalidateCaches() {
+		myStore.clear();
+	}
+
+	/**
+	 * Returns the number of times that results were served from the local store
+	 */
+	public long getHitCount() {
+		return myHitCount.get();
+	}
+
+	/**
+	 * Returns the number of times that results were not available in the local store,
+	 * and were fetched from the delegate instead
+	 */
+	public long getMissCount() {
+		return myMissCount.get();
+	}
+
+	/**
+	 * Returns the number of searches whose results have been evicted from the local store
+	 * in order to stay within the maximum size
+	 */
+	public long getEvictionCount() {
+		return myStore.getEvictionCount();
+	}
+
+	/**
+	 * Returns the number of off-heap bytes currently being used to hold results
+	 */
+	public long getSizeBytes() {
+		return myStore.getSizeBytes();
+	}
+
+	/**
+	 * We can serve a range locally if we hold every result up to the end of the range, or if the
+	 * search is finished and we hold all of its results.
+	 */
+	private static boolean isHoldingResults(Search theSearch, ByteBuffer theStored, int theTo) {
+		int count = countResults(theStored);
+		if (count >= theTo) {
+			return true;
+		}
+		return theSearch.getStatus() == SearchStatusEnum.FINISHED && count >= theSearch.getNumFound();
+	}
+
+	private static int countResults(ByteBuffer theStored) {
+		int retVal = 0;
+		ByteBuffer stored = theStored.duplicate();
+		while (stored.hasRemaining()) {
+			stored.getInt();
+			retVal += stored.getInt();
+			int length = stored.getInt();
+			stored.position(stored.position() + length);
+		}
+		return retVal;
+	}
+}
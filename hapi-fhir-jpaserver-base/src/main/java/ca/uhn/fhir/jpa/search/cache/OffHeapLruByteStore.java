@@ -0,0 +1,147 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.search.cache;
+
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.Validate;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * A bounded, least-recently-used map of byte values which are held in direct
+ * (off-heap) buffers, so that large cached values do not contribute to heap usage
+ * or garbage collection pressure. When the total size of the stored values exceeds
+ * the configured maximum, the least recently used entries are evicted.
+ */
+class OffHeapLruByteStore<K> {
+
+	private final long myMaxSizeBytes;
+	private final Consumer<K> myEvictionListener;
+	private final LinkedHashMap<K, ByteBuffer> myEntries = new LinkedHashMap<>(16, 0.75f, true);
+	private long mySizeBytes;
+	private long myEvictionCount;
+
+	/**
+	 * Constructor
+	 *
+	 * @param theMaxSizeBytes     The maximum number of bytes to hold across all entries
+	 * @param theEvictionListener Invoked with the key of each entry which is evicted to stay within the maximum size
+	 */
+	OffHeapLruByteStore(long theMaxSizeBytes, Consumer<K> theEvictionListener) {
+		Validate.isTrue(theMaxSizeBytes > 0, "Maximum size must be positive");
+		myMaxSizeBytes = theMaxSizeBytes;
+		myEvictionListener = theEvictionListener;
+	}
+
+	/**
+	 * Returns a read-only view of the value for the given key, or <code>null</code> if there is none
+	 */
+	@Nullable
+	synchronized ByteBuffer get(K theKey) {
+		ByteBuffer retVal = myEntries.get(theKey);
+		return retVal != null ? retVal.asReadOnlyBuffer() : null;
+	}
+
+	/**
+	 * Stores the given value, replacing any existing value for the key
+	 *
+	 * @return Returns <code>false</code> if the value is too large to be stored
+	 */
+	synchronized boolean put(K theKey, byte[] theValue) {
+		return store(theKey, null, theValue);
+	}
+
+	/**
+	 * Appends the given bytes to the existing value for the key, or stores them
+	 * as a new value if there is none
+	 *
+	 * @return Returns <code>false</code> if the resulting value is too large to be stored
+	 */
+	synchronized boolean append(K theKey, byte[] theValue) {
+		return store(theKey, myEntries.get(theKey), theValue);
+	}
+
+	synchronized void remove(K theKey) {
+		ByteBuffer existing = myEntries.remove(theKey);
+		if (existing != null) {
+			mySizeBytes -= existing.capacity();
+		}
+	}
+
+	synchronized void clear() {
+		myEntries.clear();
+		mySizeBytes = 0;
+	}
+
+	synchronized List<K> keys() {
+		return new ArrayList<>(myEntries.keySet());
+	}
+
+	synchronized int size() {
+		return myEntries.size();
+	}
+
+	synchronized long getSizeBytes() {
+		return mySizeBytes;
+	}
+
+	synchronized long getEvictionCount() {
+		return myEvictionCount;
+	}
+
+	private boolean store(K theKey, @Nullable ByteBuffer theExisting, byte[] theValue) {
+		int existingSize = theExisting != null ? theExisting.capacity() : 0;
+		long newSize = (long) existingSize + theValue.length;
+		if (newSize > myMaxSizeBytes) {
+			remove(theKey);
+			return false;
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocateDirect((int) newSize);
+		if (theExisting != null) {
+			buffer.put(theExisting.duplicate().clear());
+		}
+		buffer.put(theValue);
+		buffer.flip();
+
+		remove(theKey);
+		myEntries.put(theKey, buffer);
+		mySizeBytes += buffer.capacity();
+
+		Iterator<Map.Entry<K, ByteBuffer>> iterator = myEntries.entrySet().iterator();
+		while (mySizeBytes > myMaxSizeBytes && iterator.hasNext()) {
+			Map.Entry<K, ByteBuffer> eldest = iterator.next();
+			if (eldest.getKey().equals(theKey)) {
+				continue;
+			}
+			iterator.remove();
+			mySizeBytes -= eldest.getValue().capacity();
+			myEvictionCount++;
+			myEvictionListener.accept(eldest.getKey());
+		}
+		return true;
+	}
+}
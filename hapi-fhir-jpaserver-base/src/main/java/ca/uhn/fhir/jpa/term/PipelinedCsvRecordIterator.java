@@ -0,0 +1,233 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.term;
+
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import ca.uhn.fhir.util.ThreadPoolUtil;
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.commons.csv.CSVRecord;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Iterates over the records of a terminology distribution CSV file, parsing them on a
+ * separate thread so that parsing the next records overlaps with the handler processing
+ * the current ones. Records are handed over in small batches through a bounded queue, so
+ * the number of parsed records held in memory is capped regardless of the file size.
+ * Records which are not consistent with the header are skipped, and records are always
+ * returned in file order.
+ * <p>
+ * Parsing runs on the given executor, which should be bounded and owned by a component
+ * that shuts it down (see {@link #newParserExecutor()}). This iterator must be closed once the
+ * caller is finished with it, even if it has not been fully consumed. Closing it stops the
+ * parser and does not return until the parser has exited.
+ * </p>
+ */
+class PipelinedCsvRecordIterator implements Iterator<CSVRecord>, AutoCloseable {
+
+	static final int BATCH_SIZE = 500;
+	static final int MAX_QUEUED_BATCHES = 16;
+	static final int MAX_CONCURRENT_PARSERS = 4;
+	static final long DEFAULT_CLOSE_TIMEOUT_MILLIS = 30_000;
+	private static final List<CSVRecord> END_OF_FILE = Collections.emptyList();
+
+	private final BlockingQueue<List<CSVRecord>> myQueue = new ArrayBlockingQueue<>(MAX_QUEUED_BATCHES);
+	private final String myFilename;
+	private final long myCloseTimeoutMillis;
+	private final AtomicBoolean myParserClaimed = new AtomicBoolean();
+	private final CountDownLatch myParserExited = new CountDownLatch(1);
+	private final Future<?> myParserFuture;
+	private volatile Throwable myParserFailure;
+	private Iterator<CSVRecord> myCurrentBatch = Collections.emptyIterator();
+	private boolean myFinished;
+
+	/**
+	 * Constructor - Starts parsing immediately
+	 *
+	 * @param theRecords The parsed CSV file, e.g. a {@link org.apache.commons.csv.CSVParser}
+	 * @param theFilename The name of the file being parsed, used in log and error messages
+	 * @param theParserExecutor The executor to parse on
+	 */
+	PipelinedCsvRecordIterator(
+			Iterable<CSVRecord> theRecords, String theFilename, AsyncTaskExecutor theParserExecutor) {
+		this(theRecords, theFilename, theParserExecutor, DEFAULT_CLOSE_TIMEOUT_MILLIS);
+	}
+
+	@VisibleForTesting
+	PipelinedCsvRecordIterator(
+			Iterable<CSVRecord> theRecords,
+			String theFilename,
+			AsyncTaskExecutor theParserExecutor,
+			long theCloseTimeoutMillis) {
+		myFilename = theFilename;
+		myCloseTimeoutMillis = theCloseTimeoutMillis;
+		myParserFuture = theParserExecutor.submit(() -> parse(theRecords));
+	}
+
+	private void parse(Iterable<CSVRecord> theRecords) {
+		// If the iterator was closed before the parser got to run, there is nothing to do
+		if (!myParserClaimed.compareAndSet(false, true)) {
+			return;
+		}
+
+		try {
+			parseRecords(theRecords);
+		} finally {
+			myParserExited.countDown();
+		}
+	}
+
+	private void parseRecords(Iterable<CSVRecord> theRecords) {
+		try {
+			List<CSVRecord> batch = new ArrayList<>(BATCH_SIZE);
+			for (CSVRecord nextRecord : theRecords) {
+				if (!nextRecord.isConsistent()) {
+					continue;
+				}
+				batch.add(nextRecord);
+				if (batch.size() == BATCH_SIZE) {
+					myQueue.put(batch);
+					batch = new ArrayList<>(BATCH_SIZE);
+				}
+			}
+			if (!batch.isEmpty()) {
+				myQueue.put(batch);
+			}
+		} catch (InterruptedException e) {
+			// The iterator has been closed
+			Thread.currentThread().interrupt();
+			return;
+		} catch (Throwable t) {
+			myParserFailure = t;
+		}
+
+		try {
+			myQueue.put(END_OF_FILE);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		while (!myCurrentBatch.hasNext()) {
+			if (myFinished) {
+				return false;
+			}
+
+			List<CSVRecord> nextBatch;
+			try {
+				nextBatch = myQueue.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InternalErrorException(Msg.code(2764) + "Interrupted while parsing CSV file", e);
+			}
+
+			if (nextBatch == END_OF_FILE) {
+				myFinished = true;
+				rethrowParserFailure();
+			}
+			myCurrentBatch = nextBatch.iterator();
+		}
+		return true;
+	}
+
+	@Override
+	public CSVRecord next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return myCurrentBatch.next();
+	}
+
+	private void rethrowParserFailure() {
+		Throwable failure = myParserFailure;
+		if (failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		}
+		if (failure instanceof Error) {
+			throw (Error) failure;
+		}
+		if (failure != null) {
+			throw new InternalErrorException(Msg.code(2765) + "Failed to parse CSV file: " + failure, failure);
+		}
+	}
+
+	/**
+	 * Stops the parser if it is still running, and waits for it to exit
+	 *
+	 * @throws InternalErrorException If the parser did not exit within the close timeout
+	 */
+	@Override
+	public void close() {
+		if (myParserClaimed.compareAndSet(false, true)) {
+			// The parser never started, and now never will
+			myParserFuture.cancel(false);
+			myParserExited.countDown();
+			return;
+		}
+
+		myParserFuture.cancel(true);
+		try {
+			if (!myParserExited.await(myCloseTimeoutMillis, TimeUnit.MILLISECONDS)) {
+				throw new InternalErrorException(Msg.code(2767) + "Timed out after " + myCloseTimeoutMillis
+						+ "ms waiting for the parser of CSV file " + myFilename + " to stop");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InternalErrorException(
+					Msg.code(2768) + "Interrupted while waiting for the parser of CSV file " + myFilename + " to stop",
+					e);
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> if the parser is not running, and will not run
+	 */
+	@VisibleForTesting
+	boolean isParserStopped() {
+		return myParserExited.getCount() == 0;
+	}
+
+	/**
+	 * Creates a bounded executor for parsing, which allows up to {@link #MAX_CONCURRENT_PARSERS}
+	 * files to be parsed at once. The caller is responsible for shutting it down.
+	 */
+	static ThreadPoolTaskExecutor newParserExecutor() {
+		ThreadPoolTaskExecutor retVal =
+				ThreadPoolUtil.newThreadPool(1, MAX_CONCURRENT_PARSERS, "hapi-fhir-term-csv-parser-");
+		// Idle parser threads time out, and should never keep the JVM alive
+		retVal.setDaemon(true);
+		return retVal;
+	}
+}
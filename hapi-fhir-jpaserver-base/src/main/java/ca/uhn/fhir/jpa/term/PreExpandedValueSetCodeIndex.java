@@ -0,0 +1,238 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.term;
+
+import ca.uhn.fhir.jpa.entity.TermValueSetConcept;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.Validate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+
+import static org.apache.commons.lang3.StringUtils.defaultString;
+import static org.apache.commons.lang3.StringUtils.isEmpty;
+
+/**
+ * A compact, immutable, in-memory copy of the concepts in a pre-expanded ValueSet, used to
+ * validate codes without querying <code>TRM_VALUESET_CONCEPT</code>.
+ * <p>
+ * The code, system, system version and display of every concept are stored as UTF-8 in a
+ * single byte array, sorted by code, then system, then system version. Lookups are a binary
+ * search over that array, so no objects are held per concept other than one offset per field.
+ * Empty strings and <code>null</code> are not distinguished, and are both returned as
+ * <code>null</code>.
+ * </p>
+ *
+ * @since 8.4.0
+ */
+public class PreExpandedValueSetCodeIndex {
+
+	private static final int CODE = 0;
+	private static final int SYSTEM = 1;
+	private static final int SYSTEM_VERSION = 2;
+	private static final int DISPLAY = 3;
+	private static final int FIELD_COUNT = 4;
+
+	private final byte[] myData;
+	private final int[] myOffsets;
+	private final int mySize;
+	private final Long myExpansionTimestamp;
+
+	private PreExpandedValueSetCodeIndex(byte[] theData, int[] theOffsets, int theSize, Date theExpansionTimestamp) {
+		myData = theData;
+		myOffsets = theOffsets;
+		mySize = theSize;
+		myExpansionTimestamp = toMillis(theExpansionTimestamp);
+	}
+
+	/**
+	 * Returns the concepts with the given code, in any system
+	 */
+	@Nonnull
+	public List<TermValueSetConcept> findByCode(@Nonnull String theCode) {
+		return find(theCode, null, null);
+	}
+
+	/**
+	 * Returns the concepts with the given code in the given system
+	 *
+	 * @param theSystemVersion If not <code>null</code>, only concepts with this system version are returned
+	 */
+	@Nonnull
+	public List<TermValueSetConcept> findBySystemAndCode(
+			@Nonnull String theSystem, @Nullable String theSystemVersion, @Nonnull String theCode) {
+		return find(theCode, theSystem, theSystemVersion);
+	}
+
+	private List<TermValueSetConcept> find(String theCode, String theSystem, String theSystemVersion) {
+		byte[] code = toBytes(theCode);
+		byte[] system = theSystem != null ? toBytes(theSystem) : null;
+		byte[] systemVersion = theSystemVersion != null ? toBytes(theSystemVersion) : null;
+
+		// Find the first entry whose code (and system, if given) is not less than the one requested
+		int low = 0;
+		int high = mySize;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			int compare = compareField(mid, CODE, code);
+			if (compare == 0 && system != null) {
+				compare = compareField(mid, SYSTEM, system);
+			}
+			if (compare < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+
+		List<TermValueSetConcept> retVal = Collections.emptyList();
+		for (int i = low; i < mySize; i++) {
+			if (compareField(i, CODE, code) != 0 || (system != null && compareField(i, SYSTEM, system) != 0)) {
+				break;
+			}
+			if (systemVersion != null && compareField(i, SYSTEM_VERSION, systemVersion) != 0) {
+				continue;
+			}
+			if (retVal.isEmpty()) {
+				retVal = new ArrayList<>(1);
+			}
+			retVal.add(toConcept(i));
+		}
+		return retVal;
+	}
+
+	private TermValueSetConcept toConcept(int theIndex) {
+		TermValueSetConcept retVal = new TermValueSetConcept();
+		retVal.setCode(getField(theIndex, CODE));
+		retVal.setSystem(getField(theIndex, SYSTEM));
+		retVal.setSystemVersion(getField(theIndex, SYSTEM_VERSION));
+		retVal.setDisplay(getField(theIndex, DISPLAY));
+		return retVal;
+	}
+
+	private String getField(int theIndex, int theField) {
+		int start = myOffsets[theIndex * FIELD_COUNT + theField];
+		int end = myOffsets[theIndex * FIELD_COUNT + theField + 1];
+		if (start == end) {
+			return null;
+		}
+		return new String(myData, start, end - start, StandardCharsets.UTF_8);
+	}
+
+	private int compareField(int theIndex, int theField, byte[] theValue) {
+		int start = myOffsets[theIndex * FIELD_COUNT + theField];
+		int end = myOffsets[theIndex * FIELD_COUNT + theField + 1];
+		return Arrays.compareUnsigned(myData, start, end, theValue, 0, theValue.length);
+	}
+
+	/**
+	 * Returns the number of concepts in this index
+	 */
+	public int size() {
+		return mySize;
+	}
+
+	/**
+	 * Returns the approximate number of bytes of heap used by this index
+	 */
+	public long getSizeInBytes() {
+		return myData.length + (long) myOffsets.length * Integer.BYTES;
+	}
+
+	/**
+	 * Returns <code>true</code> if this index was built from a pre-expansion with the given
+	 * timestamp. An index whose timestamp differs from that of the current pre-expansion is stale.
+	 */
+	public boolean isBuiltFrom(@Nullable Date theExpansionTimestamp) {
+		return Objects.equals(myExpansionTimestamp, toMillis(theExpansionTimestamp));
+	}
+
+	// Compare by value, since Date and java.sql.Timestamp are not equal to each other
+	private static Long toMillis(Date theDate) {
+		return theDate != null ? theDate.getTime() : null;
+	}
+
+	private static byte[] toBytes(String theValue) {
+		return defaultString(theValue).getBytes(StandardCharsets.UTF_8);
+	}
+
+	public static Builder newBuilder() {
+		return new Builder();
+	}
+
+	public static class Builder {
+
+		private static final Comparator<byte[][]> ENTRY_COMPARATOR = Comparator.<byte[][], byte[]>comparing(
+						t -> t[CODE], Arrays::compareUnsigned)
+				.thenComparing(t -> t[SYSTEM], Arrays::compareUnsigned)
+				.thenComparing(t -> t[SYSTEM_VERSION], Arrays::compareUnsigned);
+
+		private final List<byte[][]> myEntries = new ArrayList<>();
+		private long myTotalBytes;
+
+		private Builder() {}
+
+		public Builder add(
+				@Nonnull String theCode,
+				@Nonnull String theSystem,
+				@Nullable String theSystemVersion,
+				@Nullable String theDisplay) {
+			Validate.isTrue(!isEmpty(theCode), "theCode must not be empty");
+			Validate.isTrue(!isEmpty(theSystem), "theSystem must not be empty");
+			byte[][] entry = new byte[FIELD_COUNT][];
+			entry[CODE] = toBytes(theCode);
+			entry[SYSTEM] = toBytes(theSystem);
+			entry[SYSTEM_VERSION] = toBytes(theSystemVersion);
+			entry[DISPLAY] = toBytes(theDisplay);
+			for (byte[] next : entry) {
+				myTotalBytes += next.length;
+			}
+			Validate.isTrue(myTotalBytes <= Integer.MAX_VALUE, "Index is too large");
+			myEntries.add(entry);
+			return this;
+		}
+
+		public PreExpandedValueSetCodeIndex build(@Nullable Date theExpansionTimestamp) {
+			myEntries.sort(ENTRY_COMPARATOR);
+
+			byte[] data = new byte[(int) myTotalBytes];
+			int[] offsets = new int[myEntries.size() * FIELD_COUNT + 1];
+			int position = 0;
+			int offsetIndex = 0;
+			for (byte[][] nextEntry : myEntries) {
+				for (byte[] nextField : nextEntry) {
+					offsets[offsetIndex++] = position;
+					System.arraycopy(nextField, 0, data, position, nextField.length);
+					position += nextField.length;
+				}
+			}
+			offsets[offsetIndex] = position;
+
+			return new PreExpandedValueSetCodeIndex(data, offsets, myEntries.size(), theExpansionTimestamp);
+		}
+	}
+}
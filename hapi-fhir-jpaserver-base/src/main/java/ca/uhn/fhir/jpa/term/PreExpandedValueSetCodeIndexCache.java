@@ -0,0 +1,173 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.term;
+
+import ca.uhn.fhir.sl.cache.Cache;
+import ca.uhn.fhir.sl.cache.CacheFactory;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Holds the {@link PreExpandedValueSetCodeIndex} for each pre-expanded ValueSet which has been
+ * used for code validation, keyed by the PID of its <code>TermValueSet</code>, along with
+ * the statistics reported by {@link PreExpandedValueSetCodeIndexMetrics}. Indexes which have
+ * not been rebuilt for an hour are discarded, and at most {@link #MAXIMUM_SIZE} are held.
+ *
+ * @since 8.4.0
+ */
+public class PreExpandedValueSetCodeIndexCache {
+
+	static final int MAXIMUM_SIZE = 1000;
+	private static final long EXPIRE_AFTER_WRITE_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+	private final Cache<Long, CompletableFuture<PreExpandedValueSetCodeIndex>> myIndexes =
+			CacheFactory.build(EXPIRE_AFTER_WRITE_MILLIS, MAXIMUM_SIZE);
+	/**
+	 * The cache can not be iterated, so the keys are tracked here for the size statistics
+	 */
+	private final Set<Long> myTermValueSetPids = ConcurrentHashMap.newKeySet();
+
+	private final LongAdder myHitCount = new LongAdder();
+	private final LongAdder myMissCount = new LongAdder();
+	private final LongAdder myBuildCount = new LongAdder();
+
+	/**
+	 * Returns the index for the given ValueSet, building it if none exists yet or if the
+	 * existing one was built from a different pre-expansion. Concurrent callers for the same
+	 * ValueSet wait for a single build instead of each building their own copy. The build
+	 * runs in the calling thread of the first caller, not while holding a lock on the cache.
+	 *
+	 * @param theTermValueSetPid     The PID of the <code>TermValueSet</code>
+	 * @param theExpansionTimestamp  The timestamp of the current pre-expansion
+	 * @param theBuilder             Builds the index from the current pre-expansion
+	 */
+	@Nonnull
+	public PreExpandedValueSetCodeIndex getOrBuild(
+			@Nonnull Long theTermValueSetPid,
+			@Nullable Date theExpansionTimestamp,
+			@Nonnull Supplier<PreExpandedValueSetCodeIndex> theBuilder) {
+		CompletableFuture<PreExpandedValueSetCodeIndex> newIndex = new CompletableFuture<>();
+		CompletableFuture<PreExpandedValueSetCodeIndex> current = myIndexes.get(theTermValueSetPid, t -> newIndex);
+		if (current != newIndex) {
+			PreExpandedValueSetCodeIndex existing = awaitIndex(current);
+			if (existing != null && existing.isBuiltFrom(theExpansionTimestamp)) {
+				return existing;
+			}
+
+			// The existing index is stale, or failed to build
+			myIndexes.put(theTermValueSetPid, newIndex);
+		}
+		myTermValueSetPids.add(theTermValueSetPid);
+
+		myBuildCount.increment();
+		try {
+			PreExpandedValueSetCodeIndex retVal = theBuilder.get();
+			newIndex.complete(retVal);
+			return retVal;
+		} catch (RuntimeException | Error e) {
+			// Waiting callers will retry the build themselves
+			if (myIndexes.getIfPresent(theTermValueSetPid) == newIndex) {
+				myIndexes.invalidate(theTermValueSetPid);
+			}
+			newIndex.completeExceptionally(e);
+			throw e;
+		}
+	}
+
+	/**
+	 * Waits for an index being built by another caller
+	 *
+	 * @return The index, or <code>null</code> if building it failed
+	 */
+	@Nullable
+	private static PreExpandedValueSetCodeIndex awaitIndex(CompletableFuture<PreExpandedValueSetCodeIndex> theIndex) {
+		try {
+			return theIndex.join();
+		} catch (CompletionException | CancellationException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Records code lookups which were answered using an index
+	 */
+	public void recordHits(int theCount) {
+		myHitCount.add(theCount);
+	}
+
+	/**
+	 * Records code lookups which required a database query because the ValueSet could not be indexed
+	 */
+	public void recordMisses(int theCount) {
+		myMissCount.add(theCount);
+	}
+
+	public void invalidate(@Nonnull Long theTermValueSetPid) {
+		myIndexes.invalidate(theTermValueSetPid);
+		myTermValueSetPids.remove(theTermValueSetPid);
+	}
+
+	public void invalidateAll() {
+		myIndexes.invalidateAll();
+		myTermValueSetPids.clear();
+	}
+
+	public long getHitCount() {
+		return myHitCount.sum();
+	}
+
+	public long getMissCount() {
+		return myMissCount.sum();
+	}
+
+	public long getBuildCount() {
+		return myBuildCount.sum();
+	}
+
+	public int getIndexCount() {
+		return (int) getBuiltIndexes().count();
+	}
+
+	/**
+	 * Returns the approximate number of bytes of heap used by all indexes
+	 */
+	public long getSizeInBytes() {
+		return getBuiltIndexes()
+				.mapToLong(PreExpandedValueSetCodeIndex::getSizeInBytes)
+				.sum();
+	}
+
+	private Stream<PreExpandedValueSetCodeIndex> getBuiltIndexes() {
+		return myIndexes.getAllPresent(myTermValueSetPids).values().stream()
+				.filter(t -> t.isDone() && !t.isCompletedExceptionally())
+				.map(CompletableFuture::join);
+	}
+}
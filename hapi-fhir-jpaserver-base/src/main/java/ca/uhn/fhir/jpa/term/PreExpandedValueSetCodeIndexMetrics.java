@@ -0,0 +1,101 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.term;
+
+import ca.uhn.fhir.rest.api.Constants;
+import io.opentelemetry.api.GlobalOpenTelemetry;
+import io.opentelemetry.api.metrics.BatchCallback;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.api.metrics.ObservableLongMeasurement;
+
+/**
+ * This class provides OpenTelemetry metrics for the {@link PreExpandedValueSetCodeIndexCache}.
+ *
+ * @since 8.4.0
+ */
+public class PreExpandedValueSetCodeIndexMetrics {
+
+	public static final String CLASS_OPENTELEMETRY_BASE_NAME =
+			Constants.OPENTELEMETRY_BASE_NAME + ".pre_expanded_value_set_code_index";
+	static final String INSTRUMENTATION_NAME = CLASS_OPENTELEMETRY_BASE_NAME;
+	public static final String HITS = CLASS_OPENTELEMETRY_BASE_NAME + ".hits";
+	public static final String MISSES = CLASS_OPENTELEMETRY_BASE_NAME + ".misses";
+	public static final String BUILDS = CLASS_OPENTELEMETRY_BASE_NAME + ".builds";
+	public static final String INDEXES = CLASS_OPENTELEMETRY_BASE_NAME + ".indexes";
+	public static final String SIZE = CLASS_OPENTELEMETRY_BASE_NAME + ".size";
+	private final PreExpandedValueSetCodeIndexCache myCache;
+	private BatchCallback myBatchCallback;
+
+	public PreExpandedValueSetCodeIndexMetrics(PreExpandedValueSetCodeIndexCache theCache) {
+		myCache = theCache;
+	}
+
+	public void start() {
+		Meter meter = GlobalOpenTelemetry.get()
+				.getMeterProvider()
+				.meterBuilder(INSTRUMENTATION_NAME)
+				.build();
+
+		ObservableLongMeasurement hits = meter.counterBuilder(HITS)
+				.setUnit("{lookups}")
+				.setDescription("The number of code validations answered using an in-memory index.")
+				.buildObserver();
+		ObservableLongMeasurement misses = meter.counterBuilder(MISSES)
+				.setUnit("{lookups}")
+				.setDescription(
+						"The number of code validations which queried the database because the ValueSet was too large to index.")
+				.buildObserver();
+		ObservableLongMeasurement builds = meter.counterBuilder(BUILDS)
+				.setUnit("{indexes}")
+				.setDescription("The number of indexes which have been built.")
+				.buildObserver();
+		ObservableLongMeasurement indexes = meter.gaugeBuilder(INDEXES)
+				.ofLongs()
+				.setUnit("{indexes}")
+				.setDescription("The current number of indexed ValueSets.")
+				.buildObserver();
+		ObservableLongMeasurement size = meter.gaugeBuilder(SIZE)
+				.ofLongs()
+				.setUnit("By")
+				.setDescription("The approximate heap size of all indexes.")
+				.buildObserver();
+
+		myBatchCallback = meter.batchCallback(
+				() -> {
+					hits.record(myCache.getHitCount());
+					misses.record(myCache.getMissCount());
+					builds.record(myCache.getBuildCount());
+					indexes.record(myCache.getIndexCount());
+					size.record(myCache.getSizeInBytes());
+				},
+				hits,
+				misses,
+				builds,
+				indexes,
+				size);
+	}
+
+	public void stop() {
+		if (myBatchCallback != null) {
+			myBatchCallback.close();
+			myBatchCallback = null;
+		}
+	}
+}
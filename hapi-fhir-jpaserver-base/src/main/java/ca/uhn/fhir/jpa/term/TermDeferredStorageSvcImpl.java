@@ -31,11 +31,13 @@ import ca.uhn.fhir.jpa.entity.TermCodeSystem;
 import ca.uhn.fhir.jpa.entity.TermCodeSystemVersion;
 import ca.uhn.fhir.jpa.entity.TermConcept;
 import ca.uhn.fhir.jpa.entity.TermConceptParentChildLink;
+import ca.uhn.fhir.jpa.model.entity.IdAndPartitionId;
 import ca.uhn.fhir.jpa.model.entity.ResourceTable;
 import ca.uhn.fhir.jpa.model.sched.HapiJob;
 import ca.uhn.fhir.jpa.model.sched.IHasScheduledJobs;
 import ca.uhn.fhir.jpa.model.sched.ISchedulerService;
 import ca.uhn.fhir.jpa.model.sched.ScheduledJobDefinition;
+import ca.uhn.fhir.jpa.search.builder.SearchBuilder;
 import ca.uhn.fhir.jpa.term.api.ITermDeferredStorageSvc;
 import ca.uhn.fhir.jpa.term.api.ITermVersionAdapterSvc;
 import ca.uhn.fhir.jpa.term.models.TermCodeSystemDeleteJobParameters;
@@ -44,6 +46,7 @@ import ca.uhn.fhir.rest.api.server.SystemRequestDetails;
 import ca.uhn.fhir.util.StopWatch;
 import ca.uhn.fhir.util.TimeoutManager;
 import com.google.common.annotations.VisibleForTesting;
+import org.apache.commons.collections4.ListUtils;
 import org.apache.commons.lang3.Validate;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.hl7.fhir.r4.model.ConceptMap;
@@ -62,10 +65,15 @@ import java.time.Duration;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
@@ -82,11 +90,10 @@ public class TermDeferredStorageSvcImpl implements ITermDeferredStorageSvc, IHas
 			List.of(TERM_CODE_SYSTEM_DELETE_JOB_NAME, TERM_CODE_SYSTEM_VERSION_DELETE_JOB_NAME);
 	private final List<TermCodeSystem> myDeferredCodeSystemsDeletions = Collections.synchronizedList(new ArrayList<>());
 	private final Queue<TermCodeSystemVersion> myDeferredCodeSystemVersionsDeletions = new ConcurrentLinkedQueue<>();
-	private final List<TermConcept> myDeferredConcepts = Collections.synchronizedList(new ArrayList<>());
+	private final Queue<TermConcept> myDeferredConcepts = new LinkedBlockingQueue<>();
 	private final List<ValueSet> myDeferredValueSets = Collections.synchronizedList(new ArrayList<>());
 	private final List<ConceptMap> myDeferredConceptMaps = Collections.synchronizedList(new ArrayList<>());
-	private final List<TermConceptParentChildLink> myConceptLinksToSaveLater =
-			Collections.synchronizedList(new ArrayList<>());
+	private final Queue<TermConceptParentChildLink> myConceptLinksToSaveLater = new LinkedBlockingQueue<>();
 
 	// TODO - why is this needed? it's cumbersome to maintain; consider removing it
 	/**
@@ -189,11 +196,16 @@ public class TermDeferredStorageSvcImpl implements ITermDeferredStorageSvc, IHas
 
 		int count = Math.min(1000, myDeferredConcepts.size());
 		ourLog.debug("Saving {} deferred concepts...", count);
-		while (codeCount < count && myDeferredConcepts.size() > 0) {
-			TermConcept next = myDeferredConcepts.remove(0);
-			if (myCodeSystemVersionDao
-					.findById(next.getCodeSystemVersion().getId())
-					.isPresent()) {
+		Map<IdAndPartitionId, Boolean> codeSystemVersionExists = new HashMap<>();
+		while (codeCount < count) {
+			TermConcept next = myDeferredConcepts.poll();
+			if (next == null) {
+				break;
+			}
+			IdAndPartitionId codeSystemVersionPid = next.getCodeSystemVersion().getId();
+			if (codeSystemVersionExists.computeIfAbsent(
+					codeSystemVersionPid,
+					t -> myCodeSystemVersionDao.findById(t).isPresent())) {
 				try {
 					codeCount += myTermConceptDaoSvc.saveConcept(next);
 				} catch (Exception theE) {
@@ -225,19 +237,22 @@ public class TermDeferredStorageSvcImpl implements ITermDeferredStorageSvc, IHas
 		if (codeCount == 0) {
 			count = Math.min(1000, myConceptLinksToSaveLater.size());
 			ourLog.info("Saving {} deferred concept relationships...", count);
-			while (relCount < count && myConceptLinksToSaveLater.size() > 0) {
-				TermConceptParentChildLink next = myConceptLinksToSaveLater.remove(0);
+			List<TermConceptParentChildLink> links = new ArrayList<>(count);
+			while (links.size() < count) {
+				TermConceptParentChildLink next = myConceptLinksToSaveLater.poll();
+				if (next == null) {
+					break;
+				}
+				links.add(next);
+			}
+
+			Set<Long> existingConceptPids = findExistingConceptPids(links);
+			for (TermConceptParentChildLink next : links) {
 				assert next.getChild() != null;
 				assert next.getParent() != null;
 
-				if ((next.getChild().getId() == null
-								|| !myConceptDao
-										.findById(next.getChild().getPid())
-										.isPresent())
-						|| (next.getParent().getId() == null
-								|| !myConceptDao
-										.findById(next.getParent().getPid())
-										.isPresent())) {
+				if (!existingConceptPids.contains(next.getChild().getId())
+						|| !existingConceptPids.contains(next.getParent().getId())) {
 					ourLog.warn(
 							"Not inserting link from child {} to parent {} because it appears to have been deleted",
 							next.getParent().getCode(),
@@ -264,6 +279,31 @@ public class TermDeferredStorageSvcImpl implements ITermDeferredStorageSvc, IHas
 		}
 	}
 
+	/**
+	 * Looks up which of the concepts on either side of the given links still exist, using
+	 * one query per chunk of links instead of one query per concept
+	 */
+	private Set<Long> findExistingConceptPids(List<TermConceptParentChildLink> theLinks) {
+		Set<TermConcept.TermConceptPk> pids = new HashSet<>();
+		for (TermConceptParentChildLink next : theLinks) {
+			if (next.getChild().getId() != null) {
+				pids.add(next.getChild().getPid());
+			}
+			if (next.getParent().getId() != null) {
+				pids.add(next.getParent().getPid());
+			}
+		}
+
+		Set<Long> retVal = new HashSet<>();
+		for (List<TermConcept.TermConceptPk> nextChunk :
+				ListUtils.partition(new ArrayList<>(pids), SearchBuilder.getMaximumPageSize())) {
+			for (TermConcept.TermConceptPk next : myConceptDao.findExistingPids(nextChunk)) {
+				retVal.add(next.getId());
+			}
+		}
+		return retVal;
+	}
+
 	private void processDeferredValueSets() {
 		int count = Math.min(myDeferredValueSets.size(), 200);
 		for (ValueSet nextValueSet : new ArrayList<>(myDeferredValueSets.subList(0, count))) {
@@ -63,10 +63,14 @@ import ca.uhn.fhir.rest.api.EncodingEnum;
 import ca.uhn.fhir.rest.api.server.RequestDetails;
 import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+import ca.uhn.fhir.util.StopWatch;
 import ca.uhn.fhir.util.ValidateUtil;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Charsets;
+import com.google.common.collect.Iterators;
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.annotation.PreDestroy;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
@@ -82,6 +86,8 @@ import org.hl7.fhir.r4.model.Enumerations;
 import org.hl7.fhir.r4.model.ValueSet;
 import org.springframework.aop.support.AopUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.xml.sax.SAXException;
 
 import java.io.IOException;
@@ -103,6 +109,7 @@ import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static ca.uhn.fhir.jpa.term.api.ITermCodeSystemStorageSvc.MAKE_LOADING_VERSION_CURRENT;
@@ -178,6 +185,7 @@ public class TermLoaderSvcImpl implements ITermLoaderSvc {
 	private final FhirContext myCtx = FhirContext.forR4Cached();
 	private final ITermDeferredStorageSvc myDeferredStorageSvc;
 	private final ITermCodeSystemStorageSvc myCodeSystemStorageSvc;
+	private final ThreadPoolTaskExecutor myCsvParserExecutor = PipelinedCsvRecordIterator.newParserExecutor();
 
 	@Autowired
 	public TermLoaderSvcImpl(
@@ -214,6 +222,11 @@ public class TermLoaderSvcImpl implements ITermLoaderSvc {
 		return new TermLoaderSvcImpl(theTermDeferredStorageSvc, theTermCodeSystemStorageSvc, false);
 	}
 
+	@PreDestroy
+	public void stop() {
+		myCsvParserExecutor.shutdown();
+	}
+
 	@Override
 	public UploadStatistics loadImgthla(List<FileDescriptor> theFiles, RequestDetails theRequestDetails) {
 		try (LoadedFileDescriptors descriptors = getLoadedFileDescriptors(theFiles)) {
@@ -702,7 +715,7 @@ public class TermLoaderSvcImpl implements ITermLoaderSvc {
 
 		// Part
 		handler = new LoincPartHandler(codeSystemVersion, code2concept);
-		iterateOverZipFileCsv(
+		processZipFileCsv(
 				theDescriptors,
 				theUploadProperties.getProperty(LOINC_PART_FILE.getCode(), LOINC_PART_FILE_DEFAULT.getCode()),
 				handler,
@@ -715,7 +728,7 @@ public class TermLoaderSvcImpl implements ITermLoaderSvc {
 		// LOINC string properties
 		handler = new LoincHandler(
 				codeSystemVersion, code2concept, propertyNamesToTypes, partTypeAndPartNameToPartNumber);
-		iterateOverZipFileCsv(
+		processZipFileCsv(
 				theDescriptors,
 				theUploadProperties.getProperty(LOINC_FILE.getCode(), LOINC_FILE_DEFAULT.getCode()),
 				handler,
@@ -725,7 +738,7 @@ public class TermLoaderSvcImpl implements ITermLoaderSvc {
 
 		// LOINC hierarchy
 		handler = new LoincHierarchyHandler(codeSystemVersion, code2concept);
-		iterateOverZipFileCsv(
+		processZipFileCsv(
 				theDescriptors,
 				theUploadProperties.getProperty(LOINC_HIERARCHY_FILE.getCode(), LOINC_HIERARCHY_FILE_DEFAULT.getCode()),
 				handler,
@@ -736,7 +749,7 @@ public class TermLoaderSvcImpl implements ITermLoaderSvc {
 		// Answer lists (ValueSets of potential answers/values for LOINC "questions")
 		handler = new LoincAnswerListHandler(
 				codeSystemVersion, code2concept, valueSets, conceptMaps, theUploadProperties, loincCs.getCopyright());
-		iterateOverZipFileCsv(
+		processZipFileCsv(
 				theDescriptors,
 				theUploadProperties.getProperty(
 						LOINC_ANSWERLIST_FILE.getCode(), LOINC_ANSWERLIST_FILE_DEFAULT.getCode()),
@@ -747,7 +760,7 @@ public class TermLoaderSvcImpl implements ITermLoaderSvc {
 
 		// Answer list links (connects LOINC observation codes to answer list codes)
 		handler = new LoincAnswerListLinkHandler(code2concept);
-		iterateOverZipFileCsv(
+		processZipFileCsv(
 				theDescriptors,
 				theUploadProperties.getProperty(
 						LOINC_ANSWERLIST_LINK_FILE.getCode(), LOINC_ANSWERLIST_LINK_FILE_DEFAULT.getCode()),
@@ -762,7 +775,7 @@ public class TermLoaderSvcImpl implements ITermLoaderSvc {
 		// two files, and the RSNA Playbook file has more metadata
 		handler = new LoincRsnaPlaybookHandler(
 				code2concept, valueSets, conceptMaps, theUploadProperties, loincCs.getCopyright());
-		iterateOverZipFileCsv(
+		processZipFileCsv(
 				theDescriptors,
 				theUploadProperties.getProperty(
 						LOINC_RSNA_PLAYBOOK_FILE.getCode(), LOINC_RSNA_PLAYBOOK_FILE_DEFAULT.getCode()),
@@ -774,7 +787,7 @@ public class TermLoaderSvcImpl implements ITermLoaderSvc {
 		// Part related code mapping
 		handler = new LoincPartRelatedCodeMappingHandler(
 				code2concept, valueSets, conceptMaps, theUploadProperties, loincCs.getCopyright());
-		iterateOverZipFileCsv(
+		processZipFileCsv(
 				theDescriptors,
 				theUploadProperties.getProperty(
 						LOINC_PART_RELATED_CODE_MAPPING_FILE.getCode(),
@@ -792,7 +805,7 @@ public class TermLoaderSvcImpl implements ITermLoaderSvc {
 				conceptMaps,
 				theUploadProperties,
 				loincCs.getCopyright());
-		iterateOverZipFileCsv(
+		processZipFileCsv(
 				theDescriptors,
 				theUploadProperties.getProperty(
 						LOINC_DOCUMENT_ONTOLOGY_FILE.getCode(), LOINC_DOCUMENT_ONTOLOGY_FILE_DEFAULT.getCode()),
@@ -804,7 +817,7 @@ public class TermLoaderSvcImpl implements ITermLoaderSvc {
 		// Top 2000 codes - US
 		handler = new LoincTop2000LabResultsUsHandler(
 				code2concept, valueSets, conceptMaps, theUploadProperties, loincCs.getCopyright());
-		iterateOverZipFileCsvOptional(
+		processZipFileCsvOptional(
 				theDescriptors,
 				theUploadProperties.getProperty(
 						LOINC_TOP2000_COMMON_LAB_RESULTS_US_FILE.getCode(),
@@ -817,7 +830,7 @@ public class TermLoaderSvcImpl implements ITermLoaderSvc {
 		// Top 2000 codes - SI
 		handler = new LoincTop2000LabResultsSiHandler(
 				code2concept, valueSets, conceptMaps, theUploadProperties, loincCs.getCopyright());
-		iterateOverZipFileCsvOptional(
+		processZipFileCsvOptional(
 				theDescriptors,
 				theUploadProperties.getProperty(
 						LOINC_TOP2000_COMMON_LAB_RESULTS_SI_FILE.getCode(),
@@ -829,7 +842,7 @@ public class TermLoaderSvcImpl implements ITermLoaderSvc {
 
 		// Universal lab order ValueSet
 		handler = new LoincUniversalOrderSetHandler(code2concept, valueSets, conceptMaps, theUploadProperties);
-		iterateOverZipFileCsv(
+		processZipFileCsv(
 				theDescriptors,
 				theUploadProperties.getProperty(
 						LOINC_UNIVERSAL_LAB_ORDER_VALUESET_FILE.getCode(),
@@ -842,7 +855,7 @@ public class TermLoaderSvcImpl implements ITermLoaderSvc {
 		// IEEE medical device codes
 		handler = new LoincIeeeMedicalDeviceCodeHandler(
 				code2concept, valueSets, conceptMaps, theUploadProperties, loincCs.getCopyright());
-		iterateOverZipFileCsv(
+		processZipFileCsv(
 				theDescriptors,
 				theUploadProperties.getProperty(
 						LOINC_IEEE_MEDICAL_DEVICE_CODE_MAPPING_TABLE_FILE.getCode(),
@@ -854,7 +867,7 @@ public class TermLoaderSvcImpl implements ITermLoaderSvc {
 
 		// Imaging document codes
 		handler = new LoincImagingDocumentCodeHandler(code2concept, valueSets, conceptMaps, theUploadProperties);
-		iterateOverZipFileCsv(
+		processZipFileCsv(
 				theDescriptors,
 				theUploadProperties.getProperty(
 						LOINC_IMAGING_DOCUMENT_CODES_FILE.getCode(),
@@ -867,7 +880,7 @@ public class TermLoaderSvcImpl implements ITermLoaderSvc {
 		// Group
 		handler = new LoincGroupFileHandler(
 				code2concept, valueSets, conceptMaps, theUploadProperties, loincCs.getCopyright());
-		iterateOverZipFileCsv(
+		processZipFileCsv(
 				theDescriptors,
 				theUploadProperties.getProperty(LOINC_GROUP_FILE.getCode(), LOINC_GROUP_FILE_DEFAULT.getCode()),
 				handler,
@@ -877,7 +890,7 @@ public class TermLoaderSvcImpl implements ITermLoaderSvc {
 
 		// Group terms
 		handler = new LoincGroupTermsFileHandler(code2concept, valueSets, conceptMaps, theUploadProperties);
-		iterateOverZipFileCsv(
+		processZipFileCsv(
 				theDescriptors,
 				theUploadProperties.getProperty(
 						LOINC_GROUP_TERMS_FILE.getCode(), LOINC_GROUP_TERMS_FILE_DEFAULT.getCode()),
@@ -888,7 +901,7 @@ public class TermLoaderSvcImpl implements ITermLoaderSvc {
 
 		// Parent group
 		handler = new LoincParentGroupFileHandler(code2concept, valueSets, conceptMaps, theUploadProperties);
-		iterateOverZipFileCsv(
+		processZipFileCsv(
 				theDescriptors,
 				theUploadProperties.getProperty(
 						LOINC_PARENT_GROUP_FILE.getCode(), LOINC_PARENT_GROUP_FILE_DEFAULT.getCode()),
@@ -899,14 +912,14 @@ public class TermLoaderSvcImpl implements ITermLoaderSvc {
 
 		// Part link
 		handler = new LoincPartLinkHandler(codeSystemVersion, code2concept, propertyNamesToTypes);
-		iterateOverZipFileCsvOptional(
+		processZipFileCsvOptional(
 				theDescriptors,
 				theUploadProperties.getProperty(LOINC_PART_LINK_FILE.getCode(), LOINC_PART_LINK_FILE_DEFAULT.getCode()),
 				handler,
 				',',
 				QuoteMode.NON_NUMERIC,
 				false);
-		iterateOverZipFileCsvOptional(
+		processZipFileCsvOptional(
 				theDescriptors,
 				theUploadProperties.getProperty(
 						LOINC_PART_LINK_FILE_PRIMARY.getCode(), LOINC_PART_LINK_FILE_PRIMARY_DEFAULT.getCode()),
@@ -914,7 +927,7 @@ public class TermLoaderSvcImpl implements ITermLoaderSvc {
 				',',
 				QuoteMode.NON_NUMERIC,
 				false);
-		iterateOverZipFileCsvOptional(
+		processZipFileCsvOptional(
 				theDescriptors,
 				theUploadProperties.getProperty(
 						LOINC_PART_LINK_FILE_SUPPLEMENTARY.getCode(),
@@ -926,7 +939,7 @@ public class TermLoaderSvcImpl implements ITermLoaderSvc {
 
 		// Consumer Name
 		handler = new LoincConsumerNameHandler(code2concept);
-		iterateOverZipFileCsvOptional(
+		processZipFileCsvOptional(
 				theDescriptors,
 				theUploadProperties.getProperty(
 						LOINC_CONSUMER_NAME_FILE.getCode(), LOINC_CONSUMER_NAME_FILE_DEFAULT.getCode()),
@@ -937,7 +950,7 @@ public class TermLoaderSvcImpl implements ITermLoaderSvc {
 
 		// LOINC coding properties (must run after all TermConcepts were created)
 		handler = new LoincCodingPropertiesHandler(code2concept, propertyNamesToTypes);
-		iterateOverZipFileCsv(
+		processZipFileCsv(
 				theDescriptors,
 				theUploadProperties.getProperty(LOINC_FILE.getCode(), LOINC_FILE_DEFAULT.getCode()),
 				handler,
@@ -947,7 +960,7 @@ public class TermLoaderSvcImpl implements ITermLoaderSvc {
 
 		// Linguistic Variants
 		handler = new LoincLinguisticVariantsHandler(linguisticVariants);
-		iterateOverZipFileCsvOptional(
+		processZipFileCsvOptional(
 				theDescriptors,
 				theUploadProperties.getProperty(
 						LOINC_LINGUISTIC_VARIANTS_FILE.getCode(), LOINC_LINGUISTIC_VARIANTS_FILE_DEFAULT.getCode()),
@@ -960,7 +973,7 @@ public class TermLoaderSvcImpl implements ITermLoaderSvc {
 		for (LoincLinguisticVariantsHandler.LinguisticVariant linguisticVariant : linguisticVariants) {
 			handler = new LoincLinguisticVariantHandler(code2concept, linguisticVariant.getLanguageCode());
 			langFileName = linguisticVariant.getLinguisticVariantFileName();
-			iterateOverZipFileCsvOptional(
+			processZipFileCsvOptional(
 					theDescriptors,
 					theUploadProperties.getProperty(
 							LOINC_LINGUISTIC_VARIANTS_PATH.getCode() + langFileName,
@@ -975,7 +988,7 @@ public class TermLoaderSvcImpl implements ITermLoaderSvc {
 				theUploadProperties.getProperty(LOINC_MAPTO_FILE.getCode(), LOINC_MAPTO_FILE_DEFAULT.getCode())))) {
 			// LOINC MapTo codes (last to make sure that all concepts were added to code2concept map)
 			handler = new LoincMapToHandler(code2concept);
-			iterateOverZipFileCsv(
+			processZipFileCsv(
 					theDescriptors,
 					theUploadProperties.getProperty(LOINC_MAPTO_FILE.getCode(), LOINC_MAPTO_FILE_DEFAULT.getCode()),
 					handler,
@@ -1048,18 +1061,18 @@ public class TermLoaderSvcImpl implements ITermLoaderSvc {
 		final Set<String> validConceptIds = new HashSet<>();
 
 		IZipContentsHandlerCsv handler = new SctHandlerConcept(validConceptIds);
-		iterateOverZipFileCsv(theDescriptors, SCT_FILE_CONCEPT, handler, '\t', null, true);
+		processZipFileCsv(theDescriptors, SCT_FILE_CONCEPT, handler, '\t', null, true);
 
 		ourLog.info("Have {} valid concept IDs", validConceptIds.size());
 
 		handler = new SctHandlerDescription(validConceptIds, code2concept, id2concept, codeSystemVersion);
-		iterateOverZipFileCsv(theDescriptors, SCT_FILE_DESCRIPTION, handler, '\t', null, true);
+		processZipFileCsv(theDescriptors, SCT_FILE_DESCRIPTION, handler, '\t', null, true);
 
 		ourLog.info("Got {} concepts, cloning map", code2concept.size());
 		final HashMap<String, TermConcept> rootConcepts = new HashMap<>(code2concept);
 
 		handler = new SctHandlerRelationship(codeSystemVersion, rootConcepts, code2concept);
-		iterateOverZipFileCsv(theDescriptors, SCT_FILE_RELATIONSHIP, handler, '\t', null, true);
+		processZipFileCsv(theDescriptors, SCT_FILE_RELATIONSHIP, handler, '\t', null, true);
 
 		IOUtils.closeQuietly(theDescriptors);
 
@@ -1116,6 +1129,46 @@ public class TermLoaderSvcImpl implements ITermLoaderSvc {
 		return retVal;
 	}
 
+	/**
+	 * Processes the matching CSV files, parsing each file on the CSV parser pool of this
+	 * service while the handler processes the previously parsed records
+	 */
+	private void processZipFileCsv(
+			LoadedFileDescriptors theDescriptors,
+			String theFileNamePart,
+			IZipContentsHandlerCsv theHandler,
+			char theDelimiter,
+			QuoteMode theQuoteMode,
+			boolean theIsPartialFilename) {
+		iterateOverZipFileCsv(
+				theDescriptors,
+				theFileNamePart,
+				theHandler,
+				theDelimiter,
+				theQuoteMode,
+				theIsPartialFilename,
+				true,
+				myCsvParserExecutor);
+	}
+
+	private void processZipFileCsvOptional(
+			LoadedFileDescriptors theDescriptors,
+			String theFileNamePart,
+			IZipContentsHandlerCsv theHandler,
+			char theDelimiter,
+			QuoteMode theQuoteMode,
+			boolean theIsPartialFilename) {
+		iterateOverZipFileCsv(
+				theDescriptors,
+				theFileNamePart,
+				theHandler,
+				theDelimiter,
+				theQuoteMode,
+				theIsPartialFilename,
+				false,
+				myCsvParserExecutor);
+	}
+
 	public static void iterateOverZipFileCsv(
 			LoadedFileDescriptors theDescriptors,
 			String theFileNamePart,
@@ -1124,7 +1177,14 @@ public class TermLoaderSvcImpl implements ITermLoaderSvc {
 			QuoteMode theQuoteMode,
 			boolean theIsPartialFilename) {
 		iterateOverZipFileCsv(
-				theDescriptors, theFileNamePart, theHandler, theDelimiter, theQuoteMode, theIsPartialFilename, true);
+				theDescriptors,
+				theFileNamePart,
+				theHandler,
+				theDelimiter,
+				theQuoteMode,
+				theIsPartialFilename,
+				true,
+				null);
 	}
 
 	public static void iterateOverZipFileCsvOptional(
@@ -1135,9 +1195,21 @@ public class TermLoaderSvcImpl implements ITermLoaderSvc {
 			QuoteMode theQuoteMode,
 			boolean theIsPartialFilename) {
 		iterateOverZipFileCsv(
-				theDescriptors, theFileNamePart, theHandler, theDelimiter, theQuoteMode, theIsPartialFilename, false);
+				theDescriptors,
+				theFileNamePart,
+				theHandler,
+				theDelimiter,
+				theQuoteMode,
+				theIsPartialFilename,
+				false,
+				null);
 	}
 
+	/**
+	 * @param theParserExecutor If not <code>null</code>, each file is parsed on this executor while
+	 *                          the handler processes the previously parsed records. Otherwise files
+	 *                          are parsed on the calling thread.
+	 */
 	private static void iterateOverZipFileCsv(
 			LoadedFileDescriptors theDescriptors,
 			String theFileNamePart,
@@ -1145,31 +1217,50 @@ public class TermLoaderSvcImpl implements ITermLoaderSvc {
 			char theDelimiter,
 			QuoteMode theQuoteMode,
 			boolean theIsPartialFilename,
-			boolean theRequireMatch) {
+			boolean theRequireMatch,
+			@Nullable AsyncTaskExecutor theParserExecutor) {
 		IZipContentsHandler handler = (reader, filename) -> {
 			CSVParser parsed = newCsvRecords(theDelimiter, theQuoteMode, reader);
-			Iterator<CSVRecord> iter = parsed.iterator();
 			ourLog.debug("Header map: {}", parsed.getHeaderMap());
 
-			int count = 0;
-			int nextLoggedCount = 0;
-			while (iter.hasNext()) {
-				CSVRecord nextRecord = iter.next();
-				if (!nextRecord.isConsistent()) {
-					continue;
-				}
-				theHandler.accept(nextRecord);
-				count++;
-				if (count >= nextLoggedCount) {
-					ourLog.info(" * Processed {} records in {}", count, filename);
-					nextLoggedCount += LOG_INCREMENT;
+			StopWatch sw = new StopWatch();
+			int count;
+			if (theParserExecutor != null) {
+				try (PipelinedCsvRecordIterator iter =
+						new PipelinedCsvRecordIterator(parsed, filename, theParserExecutor)) {
+					count = processCsvRecords(iter, theHandler, filename);
 				}
+			} else {
+				count = processCsvRecords(
+						Iterators.filter(parsed.iterator(), CSVRecord::isConsistent), theHandler, filename);
 			}
+			ourLog.info(
+					"Finished processing {} records in {} in {} ({} records/sec)",
+					count,
+					filename,
+					sw,
+					sw.formatThroughput(count, TimeUnit.SECONDS));
 		};
 
 		iterateOverZipFile(theDescriptors, theFileNamePart, theIsPartialFilename, theRequireMatch, handler);
 	}
 
+	private static int processCsvRecords(
+			Iterator<CSVRecord> theRecords, IZipContentsHandlerCsv theHandler, String theFilename) {
+		int count = 0;
+		int nextLoggedCount = 0;
+		while (theRecords.hasNext()) {
+			CSVRecord nextRecord = theRecords.next();
+			theHandler.accept(nextRecord);
+			count++;
+			if (count >= nextLoggedCount) {
+				ourLog.info(" * Processed {} records in {}", count, theFilename);
+				nextLoggedCount += LOG_INCREMENT;
+			}
+		}
+		return count;
+	}
+
 	private static void iterateOverZipFile(
 			LoadedFileDescriptors theDescriptors,
 			String theFileNamePart,
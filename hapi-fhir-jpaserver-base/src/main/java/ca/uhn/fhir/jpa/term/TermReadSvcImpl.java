@@ -24,6 +24,7 @@ import ca.uhn.fhir.context.FhirVersionEnum;
 import ca.uhn.fhir.context.support.ConceptValidationOptions;
 import ca.uhn.fhir.context.support.IValidationSupport;
 import ca.uhn.fhir.context.support.LookupCodeRequest;
+import ca.uhn.fhir.context.support.ValidateCodeRequest;
 import ca.uhn.fhir.context.support.ValidationSupportContext;
 import ca.uhn.fhir.context.support.ValueSetExpansionOptions;
 import ca.uhn.fhir.i18n.Msg;
@@ -93,6 +94,7 @@ import com.google.common.collect.ArrayListMultimap;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.NonUniqueResultException;
 import jakarta.persistence.PersistenceContext;
@@ -102,6 +104,7 @@ import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 import org.apache.commons.lang3.time.DateUtils;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.IndexSearcher;
 import org.hibernate.CacheMode;
@@ -176,6 +179,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static ca.uhn.fhir.jpa.entity.TermConceptPropertyBinder.CONCEPT_PROPERTY_PREFIX_NAME;
 import static ca.uhn.fhir.jpa.term.api.ITermLoaderSvc.LOINC_URI;
@@ -241,6 +245,9 @@ public class TermReadSvcImpl implements ITermReadSvc, IHasScheduledJobs {
 	private JpaStorageSettings myStorageSettings;
 
 	private TransactionTemplate myTxTemplate;
+	private final PreExpandedValueSetCodeIndexCache myPreExpandedValueSetCodeIndexCache =
+			new PreExpandedValueSetCodeIndexCache();
+	private PreExpandedValueSetCodeIndexMetrics myPreExpandedValueSetCodeIndexMetrics;
 
 	@Autowired
 	private PlatformTransactionManager myTransactionManager;
@@ -454,6 +461,7 @@ public class TermReadSvcImpl implements ITermReadSvc, IHasScheduledJobs {
 			TermValueSet existingTermValueSet = optionalExistingTermValueSetById.get();
 
 			ourLog.info("Deleting existing TermValueSet[{}] and its children...", existingTermValueSet.getId());
+			myPreExpandedValueSetCodeIndexCache.invalidate(existingTermValueSet.getId());
 			deletePreCalculatedValueSetContents(existingTermValueSet);
 			myTermValueSetDao.deleteById(existingTermValueSet.getPartitionedId());
 
@@ -2046,6 +2054,7 @@ public class TermReadSvcImpl implements ITermReadSvc, IHasScheduledJobs {
 
 		Long totalConcepts = termValueSet.getTotalConcepts();
 
+		myPreExpandedValueSetCodeIndexCache.invalidate(termValueSet.getId());
 		deletePreCalculatedValueSetContents(termValueSet);
 
 		termValueSet.setExpansionStatus(TermValueSetPreExpansionStatusEnum.NOT_EXPANDED);
@@ -2123,25 +2132,31 @@ public class TermReadSvcImpl implements ITermReadSvc, IHasScheduledJobs {
 
 		ValidateUtil.isNotNullOrThrowUnprocessableEntity(theValueSet.hasId(), "ValueSet.id is required");
 		JpaPid valueSetResourcePid = getValueSetResourcePersistentId(theValueSet);
+		PreExpandedValueSetCodeIndex index = fetchValueSetEntity(theValueSet)
+				.map(t -> getPreExpandedValueSetCodeIndex(t, 1))
+				.orElse(null);
 
 		List<TermValueSetConcept> concepts = new ArrayList<>();
 		if (isNotBlank(theCode)) {
 			if (theValidationOptions.isInferSystem()) {
 				concepts.addAll(
-						myValueSetConceptDao.findByValueSetResourcePidAndCode(valueSetResourcePid.getId(), theCode));
+						index != null
+								? index.findByCode(theCode)
+								: myValueSetConceptDao.findByValueSetResourcePidAndCode(
+										valueSetResourcePid.getId(), theCode));
 			} else if (isNotBlank(theSystem)) {
-				concepts.addAll(findByValueSetResourcePidSystemAndCode(valueSetResourcePid, theSystem, theCode));
+				concepts.addAll(findByValueSetResourcePidSystemAndCode(valueSetResourcePid, index, theSystem, theCode));
 			}
 		} else if (theCoding != null) {
 			if (theCoding.hasSystem() && theCoding.hasCode()) {
 				concepts.addAll(findByValueSetResourcePidSystemAndCode(
-						valueSetResourcePid, theCoding.getSystem(), theCoding.getCode()));
+						valueSetResourcePid, index, theCoding.getSystem(), theCoding.getCode()));
 			}
 		} else if (theCodeableConcept != null) {
 			for (Coding coding : theCodeableConcept.getCoding()) {
 				if (coding.hasSystem() && coding.hasCode()) {
 					concepts.addAll(findByValueSetResourcePidSystemAndCode(
-							valueSetResourcePid, coding.getSystem(), coding.getCode()));
+							valueSetResourcePid, index, coding.getSystem(), coding.getCode()));
 					if (!concepts.isEmpty()) {
 						break;
 					}
@@ -2221,13 +2236,19 @@ public class TermReadSvcImpl implements ITermReadSvc, IHasScheduledJobs {
 	}
 
 	private List<TermValueSetConcept> findByValueSetResourcePidSystemAndCode(
-			JpaPid theResourcePid, String theSystem, String theCode) {
+			JpaPid theResourcePid, @Nullable PreExpandedValueSetCodeIndex theIndex, String theSystem, String theCode) {
 		assert TransactionSynchronizationManager.isSynchronizationActive();
 
 		List<TermValueSetConcept> retVal = new ArrayList<>();
 		Optional<TermValueSetConcept> optionalTermValueSetConcept;
 		int versionIndex = theSystem.indexOf(OUR_PIPE_CHARACTER);
-		if (versionIndex >= 0) {
+		if (theIndex != null) {
+			if (versionIndex >= 0) {
+				return theIndex.findBySystemAndCode(
+						theSystem.substring(0, versionIndex), theSystem.substring(versionIndex + 1), theCode);
+			}
+			return theIndex.findBySystemAndCode(theSystem, null, theCode);
+		} else if (versionIndex >= 0) {
 			String systemUrl = theSystem.substring(0, versionIndex);
 			String systemVersion = theSystem.substring(versionIndex + 1);
 			optionalTermValueSetConcept = myValueSetConceptDao.findByValueSetResourcePidSystemAndCodeWithVersion(
@@ -2240,6 +2261,51 @@ public class TermReadSvcImpl implements ITermReadSvc, IHasScheduledJobs {
 		return retVal;
 	}
 
+	/**
+	 * Returns the in-memory code index for the given pre-expanded ValueSet, building it if
+	 * needed, or <code>null</code> if indexing is disabled or the ValueSet is too large to index.
+	 *
+	 * @param theLookupCount The number of codes about to be looked up, for metrics
+	 */
+	@Nullable
+	private PreExpandedValueSetCodeIndex getPreExpandedValueSetCodeIndex(
+			TermValueSet theValueSetEntity, int theLookupCount) {
+		int maxConcepts = myStorageSettings.getPreExpandedValueSetCodeIndexMaxConcepts();
+		if (maxConcepts <= 0 || theValueSetEntity.getExpansionStatus() != TermValueSetPreExpansionStatusEnum.EXPANDED) {
+			return null;
+		}
+
+		Long totalConcepts = theValueSetEntity.getTotalConcepts();
+		if (totalConcepts == null || totalConcepts > maxConcepts) {
+			myPreExpandedValueSetCodeIndexCache.recordMisses(theLookupCount);
+			return null;
+		}
+
+		PreExpandedValueSetCodeIndex retVal = myPreExpandedValueSetCodeIndexCache.getOrBuild(
+				theValueSetEntity.getId(),
+				theValueSetEntity.getExpansionTimestamp(),
+				() -> buildPreExpandedValueSetCodeIndex(theValueSetEntity));
+		myPreExpandedValueSetCodeIndexCache.recordHits(theLookupCount);
+		return retVal;
+	}
+
+	private PreExpandedValueSetCodeIndex buildPreExpandedValueSetCodeIndex(TermValueSet theValueSetEntity) {
+		StopWatch sw = new StopWatch();
+		PreExpandedValueSetCodeIndex.Builder builder = PreExpandedValueSetCodeIndex.newBuilder();
+		try (Stream<Object[]> concepts = myValueSetConceptDao.streamCodesByTermValueSetId(theValueSetEntity.getId())) {
+			concepts.forEach(t -> builder.add((String) t[0], (String) t[1], (String) t[2], (String) t[3]));
+		}
+		PreExpandedValueSetCodeIndex retVal = builder.build(theValueSetEntity.getExpansionTimestamp());
+
+		ourLog.info(
+				"Built in-memory code index for pre-expanded ValueSet {} with {} concepts using {} bytes in {}",
+				theValueSetEntity.getUrl(),
+				retVal.size(),
+				retVal.getSizeInBytes(),
+				sw);
+		return retVal;
+	}
+
 	private void fetchChildren(TermConcept theConcept, Set<TermConcept> theSetToPopulate) {
 		for (TermConceptParentChildLink nextChildLink : theConcept.getChildren()) {
 			TermConcept nextChild = nextChildLink.getChild();
@@ -2443,6 +2509,18 @@ public class TermReadSvcImpl implements ITermReadSvc, IHasScheduledJobs {
 		RuleBasedTransactionAttribute rules = new RuleBasedTransactionAttribute();
 		rules.getRollbackRules().add(new NoRollbackRuleAttribute(ExpansionTooCostlyException.class));
 		myTxTemplate = new TransactionTemplate(myTransactionManager, rules);
+
+		myPreExpandedValueSetCodeIndexMetrics =
+				new PreExpandedValueSetCodeIndexMetrics(myPreExpandedValueSetCodeIndexCache);
+		myPreExpandedValueSetCodeIndexMetrics.start();
+	}
+
+	@PreDestroy
+	public void stop() {
+		if (myPreExpandedValueSetCodeIndexMetrics != null) {
+			myPreExpandedValueSetCodeIndexMetrics.stop();
+			myPreExpandedValueSetCodeIndexMetrics = null;
+		}
 	}
 
 	@Override
@@ -2545,6 +2623,8 @@ public class TermReadSvcImpl implements ITermReadSvc, IHasScheduledJobs {
 	@SuppressWarnings("SynchronizationOnLocalVariableOrMethodParameter")
 	@Override
 	public void invalidateCaches() {
+		myPreExpandedValueSetCodeIndexCache.invalidateAll();
+
 		/*
 		 * Clear out anything left in the userdata caches. We do this mostly because it messes
 		 * up unit tests to have these things stick around between test runs, since many of
@@ -2910,6 +2990,196 @@ public class TermReadSvcImpl implements ITermReadSvc, IHasScheduledJobs {
 				theCodeSystemUrl, theCode, null, createMessageAppendForCodeNotFoundInCodeSystem(theCodeSystemUrl));
 	}
 
+	/**
+	 * Validates a batch of codes, resolving all of the codes belonging to the same CodeSystem (or to the
+	 * same CodeSystem within the same pre-expanded ValueSet) with a single query. Only successful
+	 * matches are produced by the batched queries; any code which is not found, has a display mismatch,
+	 * uses a versioned system, or belongs to a ValueSet which is not pre-expanded is validated
+	 * individually so that the outcome is identical to
+	 * {@link #validateCode(ValidationSupportContext, ConceptValidationOptions, String, String, String, String)}.
+	 */
+	@Nonnull
+	@Override
+	public List<CodeValidationResult> validateCodes(
+			@Nonnull ValidationSupportContext theValidationSupportContext,
+			@Nonnull ConceptValidationOptions theOptions,
+			@Nonnull List<ValidateCodeRequest> theRequests) {
+		CodeValidationResult[] retVal = new CodeValidationResult[theRequests.size()];
+
+		Map<String, List<Integer>> codeSystemRequests = new LinkedHashMap<>();
+		Map<Pair<String, String>, List<Integer>> valueSetRequests = new LinkedHashMap<>();
+		for (int i = 0; i < theRequests.size(); i++) {
+			ValidateCodeRequest next = theRequests.get(i);
+			if (isBlank(next.getSystem())
+					|| isBlank(next.getCode())
+					|| next.getSystem().contains(OUR_PIPE_CHARACTER)) {
+				continue;
+			}
+			if (isBlank(next.getValueSetUrl())) {
+				codeSystemRequests
+						.computeIfAbsent(next.getSystem(), t -> new ArrayList<>())
+						.add(i);
+			} else if (!theOptions.isInferSystem()) {
+				valueSetRequests
+						.computeIfAbsent(Pair.of(next.getValueSetUrl(), next.getSystem()), t -> new ArrayList<>())
+						.add(i);
+			}
+		}
+
+		codeSystemRequests.forEach((system, indexes) ->
+				validateCodesInCodeSystem(theValidationSupportContext, system, theRequests, indexes, retVal));
+		valueSetRequests.forEach((urlAndSystem, indexes) -> validateCodesInPreExpandedValueSet(
+				theValidationSupportContext,
+				urlAndSystem.getLeft(),
+				urlAndSystem.getRight(),
+				theRequests,
+				indexes,
+				retVal));
+
+		for (int i = 0; i < retVal.length; i++) {
+			if (retVal[i] == null) {
+				ValidateCodeRequest next = theRequests.get(i);
+				retVal[i] = validateCode(
+						theValidationSupportContext,
+						theOptions,
+						next.getSystem(),
+						next.getCode(),
+						next.getDisplay(),
+						next.getValueSetUrl());
+			}
+		}
+
+		return Arrays.asList(retVal);
+	}
+
+	private void validateCodesInCodeSystem(
+			ValidationSupportContext theValidationSupportContext,
+			String theCodeSystemUrl,
+			List<ValidateCodeRequest> theRequests,
+			List<Integer> theIndexes,
+			CodeValidationResult[] theResults) {
+		TermCodeSystemVersionDetails csv = getCurrentCodeSystemVersion(theValidationSupportContext, theCodeSystemUrl);
+		if (csv == null) {
+			return;
+		}
+
+		List<String> codes = theIndexes.stream()
+				.map(t -> theRequests.get(t).getCode())
+				.distinct()
+				.toList();
+		TransactionTemplate txTemplate = new TransactionTemplate(myTransactionManager);
+		txTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRED);
+		txTemplate.setReadOnly(true);
+		Map<String, TermConcept> concepts = txTemplate.execute(tx -> {
+			Map<String, TermConcept> found = new HashMap<>();
+			for (List<String> nextChunk : ListUtils.partition(codes, SearchBuilder.getMaximumPageSize())) {
+				for (TermConcept next : myConceptDao.findByCodeSystemAndCodeList(csv.myPid, nextChunk)) {
+					found.put(next.getCode(), next);
+				}
+			}
+			return found;
+		});
+		ourLog.debug(
+				"Found {} of {} codes in CodeSystem {} using a single batch",
+				concepts.size(),
+				codes.size(),
+				theCodeSystemUrl);
+
+		for (int index : theIndexes) {
+			ValidateCodeRequest request = theRequests.get(index);
+			TermConcept concept = concepts.get(request.getCode());
+			if (concept == null) {
+				continue;
+			}
+			String display = request.getDisplay();
+			if (isBlank(display)
+					|| isBlank(concept.getDisplay())
+					|| concept.getDisplay().equals(display)) {
+				theResults[index] =
+						new CodeValidationResult().setCode(concept.getCode()).setDisplay(concept.getDisplay());
+			} else {
+				theResults[index] = InMemoryTerminologyServerValidationSupport.createResultForDisplayMismatch(
+						myContext,
+						request.getCode(),
+						display,
+						concept.getDisplay(),
+						theCodeSystemUrl,
+						csv.myCodeSystemVersionId,
+						myStorageSettings.getIssueSeverityForCodeDisplayMismatch());
+			}
+		}
+	}
+
+	private void validateCodesInPreExpandedValueSet(
+			ValidationSupportContext theValidationSupportContext,
+			String theValueSetUrl,
+			String theSystem,
+			List<ValidateCodeRequest> theRequests,
+			List<Integer> theIndexes,
+			CodeValidationResult[] theResults) {
+		IBaseResource valueSet =
+				theValidationSupportContext.getRootValidationSupport().fetchValueSet(theValueSetUrl);
+		if (!(valueSet instanceof IAnyResource) || IDao.RESOURCE_PID.get(valueSet) == null) {
+			return;
+		}
+
+		List<String> codes = theIndexes.stream()
+				.map(t -> theRequests.get(t).getCode())
+				.distinct()
+				.toList();
+		TransactionTemplate txTemplate = new TransactionTemplate(myTxManager);
+		txTemplate.executeWithoutResult(tx -> {
+			if (!isValueSetPreExpandedForCodeValidation(valueSet)) {
+				return;
+			}
+
+			ValueSet valueSetR4 = myVersionCanonicalizer.valueSetToCanonical(valueSet);
+			TermValueSet valueSetEntity = fetchValueSetEntity(valueSetR4).orElseThrow(IllegalStateException::new);
+			PreExpandedValueSetCodeIndex codeIndex = getPreExpandedValueSetCodeIndex(valueSetEntity, codes.size());
+			Map<String, TermValueSetConcept> concepts = new HashMap<>();
+			if (codeIndex != null) {
+				for (String nextCode : codes) {
+					codeIndex.findBySystemAndCode(theSystem, null, nextCode).stream()
+							.findFirst()
+							.ifPresent(t -> concepts.put(nextCode, t));
+				}
+			} else {
+				JpaPid valueSetResourcePid = getValueSetResourcePersistentId(valueSetR4);
+				for (List<String> nextChunk : ListUtils.partition(codes, SearchBuilder.getMaximumPageSize())) {
+					for (TermValueSetConcept next : myValueSetConceptDao.findByValueSetResourcePidSystemAndCodes(
+							valueSetResourcePid.getId(), theSystem, nextChunk)) {
+						concepts.putIfAbsent(next.getCode(), next);
+					}
+				}
+			}
+
+			String preExpansionMessage = myContext
+					.getLocalizer()
+					.getMessage(
+							TermReadSvcImpl.class,
+							"validationPerformedAgainstPreExpansion",
+							toHumanReadableExpansionTimestamp(valueSetEntity));
+
+			for (int index : theIndexes) {
+				ValidateCodeRequest request = theRequests.get(index);
+				TermValueSetConcept concept = concepts.get(request.getCode());
+				if (concept == null) {
+					continue;
+				}
+				CodeValidationResult result = new CodeValidationResult()
+						.setCode(concept.getCode())
+						.setDisplay(concept.getDisplay())
+						.setCodeSystemVersion(concept.getSystemVersion());
+				String display = request.getDisplay();
+				if (isBlank(display)) {
+					theResults[index] = result.setMessage(preExpansionMessage);
+				} else if (isBlank(concept.getDisplay()) || display.equals(concept.getDisplay())) {
+					theResults[index] = result.setSourceDetails(preExpansionMessage);
+				}
+			}
+		});
+	}
+
 	IValidationSupport.CodeValidationResult validateCodeInValueSet(
 			ValidationSupportContext theValidationSupportContext,
 			ConceptValidationOptions theValidationOptions,
@@ -27,9 +27,7 @@ import org.apache.commons.csv.CSVRecord;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
 
 public final class SctHandlerRelationship implements IZipContentsHandlerCsv {
 	private final Map<String, TermConcept> myCode2concept;
@@ -47,17 +45,6 @@ public final class SctHandlerRelationship implements IZipContentsHandlerCsv {
 
 	@Override
 	public void accept(CSVRecord theRecord) {
-		Set<String> ignoredTypes = new HashSet<String>();
-		ignoredTypes.add("Method (attribute)");
-		ignoredTypes.add("Direct device (attribute)");
-		ignoredTypes.add("Has focus (attribute)");
-		ignoredTypes.add("Access instrument");
-		ignoredTypes.add("Procedure site (attribute)");
-		ignoredTypes.add("Causative agent (attribute)");
-		ignoredTypes.add("Course (attribute)");
-		ignoredTypes.add("Finding site (attribute)");
-		ignoredTypes.add("Has definitional manifestation (attribute)");
-
 		String sourceId = theRecord.get("sourceId");
 		String destinationId = theRecord.get("destinationId");
 		String typeId = theRecord.get("typeId");
@@ -72,12 +59,6 @@ public final class SctHandlerRelationship implements IZipContentsHandlerCsv {
 						TermConceptParentChildLink.RelationshipTypeEnum.ISA;
 				if (!sourceId.equals(destinationId)) {
 					if (active) {
-						TermConceptParentChildLink link = new TermConceptParentChildLink();
-						link.setChild(sourceConcept);
-						link.setParent(targetConcept);
-						link.setRelationshipType(relationshipType);
-						link.setCodeSystem(myCodeSystemVersion);
-
 						targetConcept.addChild(sourceConcept, relationshipType);
 					} else {
 						// not active, so we're removing any existing links
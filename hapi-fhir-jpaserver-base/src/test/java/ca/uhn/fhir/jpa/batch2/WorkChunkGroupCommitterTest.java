@@ -0,0 +1,118 @@
+package ca.uhn.fhir.jpa.batch2;
+
+import ca.uhn.fhir.jpa.dao.tx.NonTransactionalHapiTransactionService;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class WorkChunkGroupCommitterTest {
+
+	private final List<List<String>> myWrites = new CopyOnWriteArrayList<>();
+	private final ExecutorService myExecutor = Executors.newCachedThreadPool();
+
+	@AfterEach
+	public void after() {
+		myExecutor.shutdownNow();
+	}
+
+	@Test
+	public void testSingleCallerDoesNotWaitForWindow() {
+		WorkChunkGroupCommitter<String> committer = newCommitter(myWrites::add);
+
+		long start = System.currentTimeMillis();
+		committer.submit("A", 60000);
+
+		assertThat(System.currentTimeMillis() - start).isLessThan(10000);
+		assertThat(myWrites).containsExactly(List.of("A"));
+	}
+
+	@Test
+	public void testCallersArrivingDuringWriteAreGrouped() throws Exception {
+		CountDownLatch firstWriteStarted = new CountDownLatch(1);
+		CountDownLatch releaseFirstWrite = new CountDownLatch(1);
+		WorkChunkGroupCommitter<String> committer = newCommitter(items -> {
+			if (items.contains("A")) {
+				firstWriteStarted.countDown();
+				awaitLatch(releaseFirstWrite);
+			}
+			myWrites.add(items);
+		});
+
+		Future<?> first = myExecutor.submit(() -> committer.submit("A", 500));
+		awaitLatch(firstWriteStarted);
+
+		// A is still being written, so B and C wait for the window and are written together
+		List<Future<?>> others = new ArrayList<>();
+		others.add(myExecutor.submit(() -> committer.submit("B", 500)));
+		others.add(myExecutor.submit(() -> committer.submit("C", 500)));
+		await().atMost(10, TimeUnit.SECONDS).until(() -> committer.getSubmittingCount() == 3);
+		releaseFirstWrite.countDown();
+
+		first.get(10, TimeUnit.SECONDS);
+		for (Future<?> next : others) {
+			next.get(10, TimeUnit.SECONDS);
+		}
+		assertThat(myWrites).hasSize(2);
+		assertThat(myWrites.get(0)).containsExactly("A");
+		assertThat(myWrites.get(1)).containsExactlyInAnyOrder("B", "C");
+	}
+
+	@Test
+	public void testFailedWriteIsReportedToEveryCaller() throws Exception {
+		CountDownLatch firstWriteStarted = new CountDownLatch(1);
+		CountDownLatch releaseFirstWrite = new CountDownLatch(1);
+		WorkChunkGroupCommitter<String> committer = newCommitter(items -> {
+			if (items.contains("A")) {
+				firstWriteStarted.countDown();
+				awaitLatch(releaseFirstWrite);
+				return;
+			}
+			throw new IllegalStateException("Failed");
+		});
+
+		Future<?> first = myExecutor.submit(() -> committer.submit("A", 500));
+		awaitLatch(firstWriteStarted);
+		Future<?> second = myExecutor.submit(() -> committer.submit("B", 500));
+		Future<?> third = myExecutor.submit(() -> committer.submit("C", 500));
+		await().atMost(10, TimeUnit.SECONDS).until(() -> committer.getSubmittingCount() == 3);
+		releaseFirstWrite.countDown();
+
+		first.get(10, TimeUnit.SECONDS);
+		List<Throwable> failures = new ArrayList<>();
+		for (Future<?> next : List.of(second, third)) {
+			ExecutionException e = assertThrows(ExecutionException.class, () -> next.get(10, TimeUnit.SECONDS));
+			failures.add(e.getCause());
+		}
+		assertThat(failures)
+				.anySatisfy(t -> assertThat(t).isInstanceOf(IllegalStateException.class))
+				.allSatisfy(t -> assertThat(t).isInstanceOfAny(IllegalStateException.class, InternalErrorException.class));
+	}
+
+	private WorkChunkGroupCommitter<String> newCommitter(Consumer<List<String>> theWriter) {
+		return new WorkChunkGroupCommitter<>("items", new NonTransactionalHapiTransactionService(), theWriter);
+	}
+
+	private static void awaitLatch(CountDownLatch theLatch) {
+		try {
+			assertThat(theLatch.await(10, TimeUnit.SECONDS)).isTrue();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,160 @@
+package ca.uhn.fhir.jpa.dao;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.dao.data.IResourceEncodingDictionaryDao;
+import ca.uhn.fhir.jpa.dao.data.IResourceHistoryTableDao;
+import ca.uhn.fhir.jpa.dao.tx.IHapiTransactionService;
+import ca.uhn.fhir.jpa.dao.tx.NonTransactionalHapiTransactionService;
+import ca.uhn.fhir.jpa.entity.ResourceEncodingDictionaryEntity;
+import ca.uhn.fhir.jpa.model.entity.ResourceEncodingEnum;
+import ca.uhn.fhir.jpa.model.entity.ResourceHistoryTable;
+import ca.uhn.fhir.jpa.util.MemoryCacheService;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+import org.hl7.fhir.r4.model.Enumerations;
+import org.hl7.fhir.r4.model.InstantType;
+import org.hl7.fhir.r4.model.Patient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.SliceImpl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ResourceEncodingDictionarySvcTest {
+
+	private static final FhirContext ourCtx = FhirContext.forR4Cached();
+
+	@Mock
+	private IResourceEncodingDictionaryDao myDictionaryDao;
+	@Mock
+	private IResourceHistoryTableDao myResourceHistoryTableDao;
+
+	private final IHapiTransactionService myTransactionService = new NonTransactionalHapiTransactionService();
+	private final MemoryCacheService myMemoryCacheService = new MemoryCacheService(new JpaStorageSettings());
+	private final Map<Long, ResourceEncodingDictionaryEntity> myStoredDictionaries = new HashMap<>();
+	private ResourceEncodingDictionarySvc mySvc;
+
+	@BeforeEach
+	public void before() {
+		mySvc = new ResourceEncodingDictionarySvc(myDictionaryDao, myResourceHistoryTableDao, myTransactionService, myMemoryCacheService);
+
+		lenient().when(myDictionaryDao.save(any())).thenAnswer(t -> {
+			ResourceEncodingDictionaryEntity entity = t.getArgument(0);
+			myStoredDictionaries.put(entity.getId(), entity);
+			return entity;
+		});
+		lenient().when(myDictionaryDao.existsById(anyLong())).thenAnswer(t -> myStoredDictionaries.containsKey(t.<Long>getArgument(0)));
+		lenient().when(myDictionaryDao.findById(anyLong())).thenAnswer(t -> Optional.ofNullable(myStoredDictionaries.get(t.<Long>getArgument(0))));
+		lenient().when(myDictionaryDao.findNewestForResourceType(any(), eq("Patient"))).thenAnswer(t -> {
+			List<ResourceEncodingDictionaryEntity> retVal = new ArrayList<>(myStoredDictionaries.values());
+			retVal.sort((o1, o2) -> o2.getCreated().compareTo(o1.getCreated()));
+			return retVal;
+		});
+	}
+
+	@Test
+	public void testCompressWithoutDictionary() {
+		String encoded = encodePatient(0);
+
+		byte[] compressed = mySvc.compress("Patient", encoded);
+
+		assertEquals(0, ZstdUtil.getDictionaryId(compressed));
+		assertEquals(0, mySvc.getCurrentDictionaryId("Patient"));
+		assertEquals(encoded, mySvc.decompress(compressed));
+	}
+
+	@Test
+	public void testTrainDictionary() {
+		String encoded = encodePatient(9999);
+		byte[] compressedWithoutDictionary = mySvc.compress("Patient", encoded);
+
+		long dictionaryId = mySvc.trainDictionary("Patient", createSamples(500));
+
+		assertThat(dictionaryId).isNotZero();
+		assertThat(myStoredDictionaries).containsOnlyKeys(dictionaryId);
+		assertEquals(dictionaryId, mySvc.getCurrentDictionaryId("Patient"));
+
+		byte[] compressed = mySvc.compress("Patient", encoded);
+		assertEquals(dictionaryId, ZstdUtil.getDictionaryId(compressed));
+		assertThat(compressed.length).isLessThan(compressedWithoutDictionary.length);
+		assertEquals(encoded, mySvc.decompress(compressed));
+
+		// Content compressed before the dictionary existed is still readable
+		assertEquals(encoded, mySvc.decompress(compressedWithoutDictionary));
+	}
+
+	@Test
+	public void testTrainDictionary_SamplesLoadedFromHistory() {
+		List<ResourceHistoryTable> versions = new ArrayList<>();
+		for (String next : createSamples(200)) {
+			ResourceHistoryTable version = new ResourceHistoryTable();
+			version.setResourceType("Patient");
+			version.setEncoding(ResourceEncodingEnum.JSONC);
+			version.setResource(GZipUtil.compress(next));
+			versions.add(version);
+		}
+		when(myResourceHistoryTableDao.findNewestVersionsForResourceType(any(), eq("Patient"))).thenReturn(new SliceImpl<>(versions));
+
+		long dictionaryId = mySvc.trainDictionary("Patient", 200);
+
+		assertEquals(dictionaryId, mySvc.getCurrentDictionaryId("Patient"));
+	}
+
+	@Test
+	public void testTrainDictionary_NotEnoughSamples() {
+		List<String> samples = createSamples(5);
+
+		InvalidRequestException e = assertThrows(InvalidRequestException.class, () -> mySvc.trainDictionary("Patient", samples));
+		assertThat(e.getMessage()).startsWith(Msg.code(2747));
+	}
+
+	@Test
+	public void testDecompress_UnknownDictionary() {
+		long dictionaryId = mySvc.trainDictionary("Patient", createSamples(500));
+		byte[] compressed = mySvc.compress("Patient", encodePatient(1));
+		myStoredDictionaries.clear();
+		myMemoryCacheService.invalidateAllCaches();
+
+		InternalErrorException e = assertThrows(InternalErrorException.class, () -> mySvc.decompress(compressed));
+		assertEquals(Msg.code(2751) + "Unknown resource encoding dictionary ID: " + dictionaryId, e.getMessage());
+	}
+
+	private static List<String> createSamples(int theCount) {
+		List<String> retVal = new ArrayList<>(theCount);
+		for (int i = 0; i < theCount; i++) {
+			retVal.add(encodePatient(i));
+		}
+		return retVal;
+	}
+
+	private static String encodePatient(int theIndex) {
+		Patient patient = new Patient();
+		patient.setId("Patient/" + theIndex);
+		patient.getMeta().setVersionId("1").setLastUpdatedElement(new InstantType("2024-01-0" + (1 + theIndex % 9) + "T12:00:00Z"));
+		patient.addIdentifier().setSystem("http://example.org/mrn").setValue("MRN" + (theIndex * 7919));
+		patient.addName().setFamily("Family" + (theIndex % 37)).addGiven("Given" + (theIndex % 53));
+		patient.setGender(theIndex % 2 == 0 ? Enumerations.AdministrativeGender.MALE : Enumerations.AdministrativeGender.FEMALE);
+		patient.addAddress().setCity("City" + (theIndex % 11)).setPostalCode("K" + (theIndex % 97) + "A");
+		patient.setActive(true);
+		return ourCtx.newJsonParser().encodeResourceToString(patient);
+	}
+}
@@ -13,7 +13,9 @@ import org.hl7.fhir.r4.hapi.ctx.FhirR4;
 import org.hl7.fhir.r4.model.Patient;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.EnumSource;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
@@ -99,6 +101,56 @@ class ResourceHistoryCalculatorTest {
 	}
 
 
+	@ParameterizedTest
+	@ValueSource(booleans = {true, false})
+	void calculateResourceHistoryState_Zstd_storedAsBinaryOnAllDatabases(boolean theIsOracle) {
+		final IBaseResource patient = getPatient(CONTEXT);
+		final ResourceHistoryCalculator calculator = getCalculator(theIsOracle);
+
+		final ResourceHistoryState result = calculator.calculateResourceHistoryState(patient, ResourceEncodingEnum.JSONZ, EXCLUDED_ELEMENTS_1);
+
+		final String encoded = calculator.encodeResource(patient, ResourceEncodingEnum.JSONZ, EXCLUDED_ELEMENTS_1);
+		assertNull(result.getResourceText());
+		assertEquals(ResourceEncodingEnum.JSONZ, result.getEncoding());
+		assertEquals(encoded, ZstdUtil.decompress(result.getResourceBinary(), null));
+		// The hash is of the content rather than the compressed bytes, which depend on the dictionary
+		assertEquals(SHA_256.hashUnencodedChars(encoded), result.getHashCode());
+	}
+
+	@ParameterizedTest
+	@EnumSource(value = ResourceEncodingEnum.class, names = {"JSON", "JSONC", "JSONZ"})
+	void conditionallyReencodeHistoryEntity(ResourceEncodingEnum theExistingEncoding) {
+		final ResourceHistoryTable resourceHistoryTable = new ResourceHistoryTable();
+		resourceHistoryTable.setVersion(1);
+		resourceHistoryTable.setResourceType("Patient");
+		resourceHistoryTable.setEncoding(theExistingEncoding);
+		if (theExistingEncoding == ResourceEncodingEnum.JSON) {
+			resourceHistoryTable.setResourceTextVc(ENCODED_RESOURCE_1);
+		} else {
+			resourceHistoryTable.setResource(ResourceHistoryCalculator.getResourceBinary(theExistingEncoding, ENCODED_RESOURCE_1));
+		}
+
+		final boolean isChanged = CALCULATOR_NON_ORACLE.conditionallyReencodeHistoryEntity(resourceHistoryTable);
+
+		// Already encoded using the current (no) dictionary
+		assertEquals(theExistingEncoding != ResourceEncodingEnum.JSONZ, isChanged);
+		assertNull(resourceHistoryTable.getResourceTextVc());
+		assertEquals(ResourceEncodingEnum.JSONZ, resourceHistoryTable.getEncoding());
+		assertEquals(ENCODED_RESOURCE_1, ZstdUtil.decompress(resourceHistoryTable.getResource(), null));
+	}
+
+	@ParameterizedTest
+	@EnumSource(value = ResourceEncodingEnum.class, names = {"DEL", "ESR"})
+	void conditionallyReencodeHistoryEntity_notReencodable(ResourceEncodingEnum theExistingEncoding) {
+		final ResourceHistoryTable resourceHistoryTable = new ResourceHistoryTable();
+		resourceHistoryTable.setEncoding(theExistingEncoding);
+		resourceHistoryTable.setResourceTextVc(RESOURCE_TEXT_VC);
+
+		assertFalse(CALCULATOR_NON_ORACLE.conditionallyReencodeHistoryEntity(resourceHistoryTable));
+		assertEquals(RESOURCE_TEXT_VC, resourceHistoryTable.getResourceTextVc());
+		assertEquals(theExistingEncoding, resourceHistoryTable.getEncoding());
+	}
+
 	private static Stream<Arguments> conditionallyAlterHistoryEntityArguments() {
 		return Stream.of(
 			Arguments.of(true, ResourceEncodingEnum.JSONC, ENCODED_RESOURCE_1),
@@ -190,7 +242,9 @@ class ResourceHistoryCalculatorTest {
 			Arguments.of(ResourceEncodingEnum.ESR, ENCODED_RESOURCE_1),
 			Arguments.of(ResourceEncodingEnum.ESR, ENCODED_RESOURCE_2),
 			Arguments.of(ResourceEncodingEnum.JSON, ENCODED_RESOURCE_1),
-			Arguments.of(ResourceEncodingEnum.JSON, ENCODED_RESOURCE_2)
+			Arguments.of(ResourceEncodingEnum.JSON, ENCODED_RESOURCE_2),
+			Arguments.of(ResourceEncodingEnum.JSONZ, ENCODED_RESOURCE_1),
+			Arguments.of(ResourceEncodingEnum.JSONZ, ENCODED_RESOURCE_2)
 		);
 	}
 
@@ -206,6 +260,9 @@ class ResourceHistoryCalculatorTest {
 			case JSONC:
 				assertArrayEquals(GZipUtil.compress(theEncodedResource), resourceBinary);
 				break;
+			case JSONZ:
+				assertEquals(theEncodedResource, ZstdUtil.decompress(resourceBinary, null));
+				break;
 			case DEL :
 			case ESR :
 			default:
@@ -234,7 +291,7 @@ class ResourceHistoryCalculatorTest {
 		resourceHistoryTable.setResource(existingBytes);
 		resourceHistoryTable.setResourceTextVc(existngResourceText);
 
-		final boolean isChanged = getCalculator(theIsOracle).isResourceHistoryChanged(resourceHistoryTable, theNewBinary, theNewResourceText);
+		final boolean isChanged = getCalculator(theIsOracle).isResourceHistoryChanged(resourceHistoryTable, theNewBinary, theNewResourceText, ResourceEncodingEnum.JSONC);
 
 		if (theIsOracle) {
 			final boolean expectedResult = !Arrays.equals(existingBytes, theNewBinary);
@@ -245,6 +302,18 @@ class ResourceHistoryCalculatorTest {
 		}
 	}
 
+	@ParameterizedTest
+	@ValueSource(booleans = {true, false})
+	void isResourceHistoryChanged_Zstd(boolean theIsOracle) {
+		final ResourceHistoryTable resourceHistoryTable = new ResourceHistoryTable();
+		resourceHistoryTable.setEncoding(ResourceEncodingEnum.JSONZ);
+		resourceHistoryTable.setResource(ZstdUtil.compress(ENCODED_RESOURCE_1));
+
+		final ResourceHistoryCalculator calculator = getCalculator(theIsOracle);
+		assertFalse(calculator.isResourceHistoryChanged(resourceHistoryTable, ZstdUtil.compress(ENCODED_RESOURCE_1), null, ResourceEncodingEnum.JSONZ));
+		assertTrue(calculator.isResourceHistoryChanged(resourceHistoryTable, ZstdUtil.compress(ENCODED_RESOURCE_2), null, ResourceEncodingEnum.JSONZ));
+	}
+
 	private static Stream<Arguments> populateEncodedResourceArguments() {
 		return Stream.of(
 			Arguments.of(true, ResourceEncodingEnum.JSONC, ENCODED_RESOURCE_1),
@@ -0,0 +1,100 @@
+package ca.uhn.fhir.jpa.search.builder;
+
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.config.HibernatePropertiesProvider;
+import ca.uhn.fhir.jpa.dao.tx.NonTransactionalHapiTransactionService;
+import ca.uhn.fhir.rest.api.server.SystemRequestDetails;
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ParallelIncludeLoadingSvcTest {
+
+	private final JpaStorageSettings myStorageSettings = new JpaStorageSettings();
+	private final HibernatePropertiesProvider myHibernatePropertiesProvider = mock(HibernatePropertiesProvider.class);
+	private final CountDownLatch myStarted = new CountDownLatch(1);
+	private final CountDownLatch myRelease = new CountDownLatch(1);
+	private ParallelIncludeLoadingSvc mySvc;
+
+	@BeforeEach
+	public void before() {
+		when(myHibernatePropertiesProvider.getDataSource()).thenReturn(mock(DataSource.class));
+		mySvc = new ParallelIncludeLoadingSvc(
+				myStorageSettings, new NonTransactionalHapiTransactionService(), myHibernatePropertiesProvider);
+	}
+
+	@AfterEach
+	public void after() {
+		myRelease.countDown();
+		mySvc.stop();
+	}
+
+	@Test
+	public void testTasksRunOnCallingThreadWhenNoWorkerIsFree() throws Exception {
+		myStorageSettings.setIncludeParallelLoadingThreadCount(1);
+		CompletableFuture<List<String>> blocked = loadBlockingTaskInBackground();
+
+		List<String> threadNames = mySvc.loadInParallel(new SystemRequestDetails(), List.of(threadName(), threadName()));
+
+		String callingThread = Thread.currentThread().getName();
+		assertThat(threadNames).containsExactly(callingThread, callingThread);
+
+		myRelease.countDown();
+		assertThat(blocked.get(10, TimeUnit.SECONDS).get(0)).startsWith("search-include-");
+	}
+
+	@Test
+	public void testChangingThreadCountDoesNotCancelInFlightTasks() throws Exception {
+		myStorageSettings.setIncludeParallelLoadingThreadCount(1);
+		CompletableFuture<List<String>> blocked = loadBlockingTaskInBackground();
+
+		// Replaces the pool which is running the blocked task
+		myStorageSettings.setIncludeParallelLoadingThreadCount(2);
+		List<String> threadNames = mySvc.loadInParallel(new SystemRequestDetails(), List.of(threadName(), threadName()));
+		assertThat(threadNames).hasSize(2);
+
+		myRelease.countDown();
+		assertThat(blocked.get(10, TimeUnit.SECONDS).get(0)).startsWith("search-include-");
+	}
+
+	@Test
+	public void testWorkerCountCappedToConnectionPoolSize() {
+		BasicDataSource dataSource = new BasicDataSource();
+		dataSource.setMaxTotal(6);
+		when(myHibernatePropertiesProvider.getDataSource()).thenReturn(dataSource);
+		myStorageSettings.setIncludeParallelLoadingThreadCount(10);
+
+		mySvc.loadInParallel(new SystemRequestDetails(), List.of(threadName(), threadName()));
+
+		assertEquals(3, mySvc.getWorkerCount());
+	}
+
+	private CompletableFuture<List<String>> loadBlockingTaskInBackground() throws InterruptedException {
+		Callable<String> blockingTask = () -> {
+			myStarted.countDown();
+			assertThat(myRelease.await(10, TimeUnit.SECONDS)).isTrue();
+			return Thread.currentThread().getName();
+		};
+		CompletableFuture<List<String>> retVal = CompletableFuture.supplyAsync(
+				() -> mySvc.loadInParallel(new SystemRequestDetails(), List.of(blockingTask)));
+		assertThat(myStarted.await(10, TimeUnit.SECONDS)).isTrue();
+		return retVal;
+	}
+
+	private static Callable<String> threadName() {
+		return () -> Thread.currentThread().getName();
+	}
+}
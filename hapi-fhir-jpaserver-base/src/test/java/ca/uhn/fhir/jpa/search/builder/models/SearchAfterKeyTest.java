@@ -0,0 +1,91 @@
+package ca.uhn.fhir.jpa.search.builder.models;
+
+import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
+import ca.uhn.fhir.rest.api.Constants;
+import ca.uhn.fhir.rest.api.SortOrderEnum;
+import ca.uhn.fhir.rest.api.SortSpec;
+import ca.uhn.fhir.rest.param.TokenParam;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Base64;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SearchAfterKeyTest {
+
+	@Test
+	void testRoundTrip_LastUpdatedDescending() {
+		SearchParameterMap params = newOffsetParams(new SortSpec(Constants.PARAM_LASTUPDATED, SortOrderEnum.DESC), 10);
+		String token = SearchAfterKey.forLastResult(params, 123L, new Date(1700000000000L)).toToken();
+		SearchAfterKey key = SearchAfterKey.fromToken(token);
+
+		assertNotNull(key);
+		assertEquals(Constants.PARAM_LASTUPDATED, key.getSortParamName());
+		assertFalse(key.isAscending());
+		assertEquals(123L, key.getPid());
+		assertEquals(new Date(1700000000000L), key.getSortValue());
+		assertFalse(key.matches(params));
+		assertTrue(key.matches(newOffsetParams(new SortSpec(Constants.PARAM_LASTUPDATED, SortOrderEnum.DESC), 15)));
+		assertFalse(key.matches(newOffsetParams(new SortSpec(Constants.PARAM_LASTUPDATED, SortOrderEnum.ASC), 15)));
+		assertFalse(key.matches(newOffsetParams(new SortSpec("_id"), 15)));
+	}
+
+	@Test
+	void testRoundTrip_IdAscending() {
+		SearchParameterMap params = newOffsetParams(new SortSpec("_id"), 0);
+		SearchAfterKey key = SearchAfterKey.fromToken(SearchAfterKey.forLastResult(params, 7L, "my-id.1").toToken());
+
+		assertNotNull(key);
+		assertTrue(key.isAscending());
+		assertEquals("my-id.1", key.getSortValue());
+		assertTrue(key.matches(newOffsetParams(new SortSpec("_id"), 5)));
+	}
+
+	@Test
+	void testRoundTrip_Unsorted() {
+		SearchParameterMap params = newOffsetParams(null, 0);
+		SearchAfterKey key = SearchAfterKey.fromToken(SearchAfterKey.forLastResult(params, 7L, null).toToken());
+
+		assertNotNull(key);
+		assertEquals("", key.getSortParamName());
+		assertNull(key.getSortValue());
+		assertTrue(key.matches(newOffsetParams(null, 5)));
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"", "!!!", "Zm9v", "Mnx8YXw1fDd8", "MXxmYW1pbHl8YXw1fDd8"})
+	void testFromToken_Invalid(String theToken) {
+		// Includes a token with an unknown version, and one with an unsupported sort
+		assertNull(SearchAfterKey.fromToken(theToken));
+	}
+
+	@Test
+	void testFromToken_InvalidNumber() {
+		String token = Base64.getUrlEncoder().encodeToString("1|_lastUpdated|a|5|7|abc".getBytes());
+		assertNull(SearchAfterKey.fromToken(token));
+	}
+
+	@Test
+	void testIsSupported() {
+		assertTrue(SearchAfterKey.isSupported(newOffsetParams(null, 0)));
+		assertTrue(SearchAfterKey.isSupported(newOffsetParams(new SortSpec("_pid"), 0)));
+		assertFalse(SearchAfterKey.isSupported(newOffsetParams(new SortSpec("family"), 0)));
+		assertFalse(SearchAfterKey.isSupported(newOffsetParams(new SortSpec("_id").setChain(new SortSpec("_lastUpdated")), 0)));
+		assertFalse(SearchAfterKey.isSupported(SearchParameterMap.newSynchronous("active", new TokenParam("true"))));
+	}
+
+	private static SearchParameterMap newOffsetParams(SortSpec theSort, int theOffset) {
+		SearchParameterMap retVal = new SearchParameterMap();
+		retVal.setSort(theSort);
+		retVal.setOffset(theOffset);
+		retVal.setCount(5);
+		return retVal;
+	}
+}
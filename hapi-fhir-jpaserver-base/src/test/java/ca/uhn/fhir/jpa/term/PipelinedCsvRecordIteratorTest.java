@@ -0,0 +1,163 @@
+package ca.uhn.fhir.jpa.term;
+
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PipelinedCsvRecordIteratorTest {
+
+	private final ThreadPoolTaskExecutor myParserExecutor = PipelinedCsvRecordIterator.newParserExecutor();
+
+	@AfterEach
+	public void after() {
+		myParserExecutor.shutdown();
+	}
+
+	@Test
+	public void testRecordsReturnedInOrder() throws IOException {
+		int recordCount = PipelinedCsvRecordIterator.BATCH_SIZE * PipelinedCsvRecordIterator.MAX_QUEUED_BATCHES * 3 + 7;
+		StringBuilder input = new StringBuilder("CODE\tDISPLAY\n");
+		for (int i = 0; i < recordCount; i++) {
+			input.append("code").append(i).append("\tDisplay ").append(i).append('\n');
+			if (i == 10) {
+				input.append("inconsistent\n");
+			}
+		}
+
+		List<String> codes = new ArrayList<>();
+		try (PipelinedCsvRecordIterator iter = new PipelinedCsvRecordIterator(newParser(input.toString()), "test.csv", myParserExecutor)) {
+			while (iter.hasNext()) {
+				codes.add(iter.next().get("CODE"));
+			}
+			assertFalse(iter.hasNext());
+		}
+
+		assertEquals(recordCount, codes.size());
+		assertEquals("code0", codes.get(0));
+		assertEquals("code11", codes.get(11));
+		assertEquals("code" + (recordCount - 1), codes.get(recordCount - 1));
+	}
+
+	@Test
+	public void testEmptyFile() throws IOException {
+		try (PipelinedCsvRecordIterator iter = new PipelinedCsvRecordIterator(newParser("CODE\tDISPLAY\n"), "test.csv", myParserExecutor)) {
+			assertFalse(iter.hasNext());
+		}
+	}
+
+	@Test
+	public void testParserFailureIsRethrown() {
+		Iterable<CSVRecord> failing = () -> new Iterator<>() {
+			@Override
+			public boolean hasNext() {
+				return true;
+			}
+
+			@Override
+			public CSVRecord next() {
+				throw new UncheckedIOException(new IOException("Corrupt file"));
+			}
+		};
+
+		try (PipelinedCsvRecordIterator iter = new PipelinedCsvRecordIterator(failing, "test.csv", myParserExecutor)) {
+			UncheckedIOException e = assertThrows(UncheckedIOException.class, iter::hasNext);
+			assertThat(e.getMessage()).contains("Corrupt file");
+		}
+	}
+
+	@Test
+	public void testCloseWaitsForParserToStopBeforeEndOfFile() {
+		AtomicInteger parsedCount = new AtomicInteger();
+		Iterable<CSVRecord> endless = newEndlessRecords(() -> parsedCount.incrementAndGet());
+
+		PipelinedCsvRecordIterator iter = new PipelinedCsvRecordIterator(endless, "test.csv", myParserExecutor);
+		assertEquals("A", iter.next().get("CODE"));
+		iter.close();
+
+		// close() only returns once the parser has exited, so nothing more is parsed
+		assertTrue(iter.isParserStopped());
+		int countAfterClose = parsedCount.get();
+		await().during(100, TimeUnit.MILLISECONDS).atMost(1, TimeUnit.SECONDS)
+				.until(() -> parsedCount.get() == countAfterClose);
+	}
+
+	@Test
+	public void testCloseTimesOutIfParserDoesNotStop() {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Iterable<CSVRecord> stuck = newEndlessRecords(() -> {
+			started.countDown();
+			// Doesn't respond to interruption until released
+			boolean interrupted = false;
+			while (release.getCount() > 0) {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		});
+
+		PipelinedCsvRecordIterator iter = new PipelinedCsvRecordIterator(stuck, "test.csv", myParserExecutor, 200);
+		try {
+			await().atMost(5, TimeUnit.SECONDS).until(() -> started.getCount() == 0);
+			InternalErrorException e = assertThrows(InternalErrorException.class, iter::close);
+			assertThat(e.getMessage()).contains("Timed out after 200ms waiting for the parser of CSV file test.csv to stop");
+			assertFalse(iter.isParserStopped());
+		} finally {
+			release.countDown();
+		}
+
+		await().atMost(5, TimeUnit.SECONDS).until(iter::isParserStopped);
+	}
+
+	private static Iterable<CSVRecord> newEndlessRecords(Runnable theOnNext) {
+		CSVRecord record = newParser("CODE\nA\n").iterator().next();
+		return () -> new Iterator<>() {
+			@Override
+			public boolean hasNext() {
+				return true;
+			}
+
+			@Override
+			public CSVRecord next() {
+				theOnNext.run();
+				return record;
+			}
+		};
+	}
+
+	private static CSVParser newParser(String theInput) {
+		try {
+			return new CSVParser(
+					new StringReader(theInput),
+					CSVFormat.newFormat('\t').withFirstRecordAsHeader().withTrim());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
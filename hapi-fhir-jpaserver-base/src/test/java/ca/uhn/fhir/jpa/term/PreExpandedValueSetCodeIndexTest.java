@@ -0,0 +1,144 @@
+package ca.uhn.fhir.jpa.term;
+
+import ca.uhn.fhir.jpa.entity.TermValueSetConcept;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PreExpandedValueSetCodeIndexTest {
+
+	@Test
+	public void testLookups() {
+		PreExpandedValueSetCodeIndex index = PreExpandedValueSetCodeIndex.newBuilder()
+			.add("B", "http://b", null, "B in b")
+			.add("A", "http://b", "2", "A in b v2")
+			.add("A", "http://a", null, "A in a")
+			.add("A", "http://b", "1", null)
+			.add("ä", "http://a", null, "Umlaut")
+			.build(null);
+
+		assertEquals(5, index.size());
+		assertThat(index.findByCode("A")).extracting(TermValueSetConcept::getSystem)
+			.containsExactly("http://a", "http://b", "http://b");
+		assertThat(index.findBySystemAndCode("http://b", null, "A")).extracting(TermValueSetConcept::getSystemVersion)
+			.containsExactly("1", "2");
+
+		TermValueSetConcept concept = index.findBySystemAndCode("http://b", "2", "A").get(0);
+		assertEquals("A", concept.getCode());
+		assertEquals("A in b v2", concept.getDisplay());
+		assertNull(index.findBySystemAndCode("http://b", "1", "A").get(0).getDisplay());
+
+		assertEquals("Umlaut", index.findBySystemAndCode("http://a", null, "ä").get(0).getDisplay());
+		assertThat(index.findByCode("C")).isEmpty();
+		assertThat(index.findBySystemAndCode("http://a", null, "B")).isEmpty();
+		assertThat(index.findBySystemAndCode("http://b", "3", "A")).isEmpty();
+		assertThat(index.getSizeInBytes()).isPositive();
+	}
+
+	@Test
+	public void testEmptyIndex() {
+		PreExpandedValueSetCodeIndex index = PreExpandedValueSetCodeIndex.newBuilder().build(null);
+
+		assertEquals(0, index.size());
+		assertThat(index.findByCode("A")).isEmpty();
+	}
+
+	@Test
+	public void testCacheRebuildsStaleIndex() {
+		PreExpandedValueSetCodeIndexCache cache = new PreExpandedValueSetCodeIndexCache();
+		AtomicInteger builds = new AtomicInteger();
+		Date expansion1 = new Date(1000L);
+		Date expansion2 = new Date(2000L);
+
+		PreExpandedValueSetCodeIndex first = cache.getOrBuild(1L, expansion1, () -> newIndex(builds, expansion1));
+		assertSame(first, cache.getOrBuild(1L, new java.sql.Timestamp(1000L), () -> newIndex(builds, expansion1)));
+		assertEquals(1, builds.get());
+		assertTrue(first.isBuiltFrom(expansion1));
+
+		PreExpandedValueSetCodeIndex second = cache.getOrBuild(1L, expansion2, () -> newIndex(builds, expansion2));
+		assertEquals(2, builds.get());
+		assertFalse(second.isBuiltFrom(expansion1));
+		assertEquals(1, cache.getIndexCount());
+		assertEquals(second.getSizeInBytes(), cache.getSizeInBytes());
+
+		cache.invalidate(1L);
+		assertEquals(0, cache.getIndexCount());
+		assertEquals(2, cache.getBuildCount());
+	}
+
+	@Test
+	public void testCacheBuildsOnceForConcurrentCallers() throws Exception {
+		PreExpandedValueSetCodeIndexCache cache = new PreExpandedValueSetCodeIndexCache();
+		AtomicInteger builds = new AtomicInteger();
+		CountDownLatch buildStarted = new CountDownLatch(1);
+		CountDownLatch releaseBuild = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<PreExpandedValueSetCodeIndex> first = executor.submit(() -> cache.getOrBuild(1L, null, () -> {
+				buildStarted.countDown();
+				awaitLatch(releaseBuild);
+				return newIndex(builds, null);
+			}));
+			assertTrue(buildStarted.await(10, TimeUnit.SECONDS));
+
+			// Another ValueSet is not blocked by the build in progress
+			cache.getOrBuild(2L, null, () -> newIndex(builds, null));
+			assertEquals(1, builds.get());
+
+			Future<PreExpandedValueSetCodeIndex> second =
+				executor.submit(() -> cache.getOrBuild(1L, null, () -> newIndex(builds, null)));
+			releaseBuild.countDown();
+
+			assertSame(first.get(10, TimeUnit.SECONDS), second.get(10, TimeUnit.SECONDS));
+			assertEquals(2, builds.get());
+			assertEquals(2, cache.getIndexCount());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testCacheRetriesFailedBuild() {
+		PreExpandedValueSetCodeIndexCache cache = new PreExpandedValueSetCodeIndexCache();
+		AtomicInteger builds = new AtomicInteger();
+
+		assertThrows(IllegalStateException.class, () -> cache.getOrBuild(1L, null, () -> {
+			throw new IllegalStateException("Failed");
+		}));
+		assertEquals(0, cache.getIndexCount());
+
+		cache.getOrBuild(1L, null, () -> newIndex(builds, null));
+		assertEquals(1, builds.get());
+		assertEquals(1, cache.getIndexCount());
+	}
+
+	private static void awaitLatch(CountDownLatch theLatch) {
+		try {
+			assertTrue(theLatch.await(10, TimeUnit.SECONDS));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static PreExpandedValueSetCodeIndex newIndex(AtomicInteger theBuilds, Date theExpansionTimestamp) {
+		theBuilds.incrementAndGet();
+		return PreExpandedValueSetCodeIndex.newBuilder()
+			.add("A", "http://a", null, "A")
+			.build(theExpansionTimestamp);
+	}
+}
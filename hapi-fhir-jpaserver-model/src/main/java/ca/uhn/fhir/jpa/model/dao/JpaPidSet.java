@@ -0,0 +1,202 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Model
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.model.dao;
+
+import jakarta.annotation.Nonnull;
+import org.roaringbitmap.longlong.LongIterator;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * A compact set of {@link JpaPid resource PIDs}, backed by one compressed bitmap per
+ * partition ID. This uses a few bytes per PID instead of the ~50 bytes needed to hold
+ * a {@link JpaPid} in a {@link java.util.HashSet}, which matters for searches which
+ * track hundreds of thousands of PIDs in memory.
+ * <p>
+ * Like {@link JpaPid#equals(Object)}, membership only considers the resource ID. Only the
+ * ID and partition ID of each PID is stored, so the PIDs returned by the iterator never
+ * carry a version or resource type. Iteration order is ascending ID within each partition.
+ * </p>
+ * <p>
+ * This class is not thread safe, and its iterator does not support removal.
+ * </p>
+ *
+ * @since 8.4.0
+ */
+public class JpaPidSet extends AbstractSet<JpaPid> {
+
+	/**
+	 * Keyed by partition ID, which may be <code>null</code>
+	 */
+	private final Map<Integer, Roaring64NavigableMap> myPartitionToIds = new LinkedHashMap<>();
+
+	private int mySize;
+
+	/**
+	 * Constructor for an empty set
+	 */
+	public JpaPidSet() {
+		super();
+	}
+
+	/**
+	 * Constructor for a set containing the given PIDs
+	 */
+	public JpaPidSet(Collection<JpaPid> thePids) {
+		this();
+		addAll(thePids);
+	}
+
+	@Override
+	public boolean add(@Nonnull JpaPid thePid) {
+		long id = thePid.getId();
+		if (containsId(id)) {
+			return false;
+		}
+		myPartitionToIds
+				.computeIfAbsent(thePid.getPartitionId(), t -> new Roaring64NavigableMap())
+				.addLong(id);
+		mySize++;
+		return true;
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends JpaPid> thePids) {
+		if (thePids instanceof JpaPidSet && isEmpty()) {
+			JpaPidSet other = (JpaPidSet) thePids;
+			for (Map.Entry<Integer, Roaring64NavigableMap> next : other.myPartitionToIds.entrySet()) {
+				Roaring64NavigableMap copy = new Roaring64NavigableMap();
+				copy.or(next.getValue());
+				myPartitionToIds.put(next.getKey(), copy);
+			}
+			mySize = other.mySize;
+			return mySize > 0;
+		}
+		return super.addAll(thePids);
+	}
+
+	@Override
+	public boolean contains(Object theObject) {
+		if (!(theObject instanceof JpaPid)) {
+			return false;
+		}
+		Long id = ((JpaPid) theObject).getId();
+		return id != null && containsId(id);
+	}
+
+	private boolean containsId(long theId) {
+		for (Roaring64NavigableMap next : myPartitionToIds.values()) {
+			if (next.contains(theId)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public boolean remove(Object theObject) {
+		if (!(theObject instanceof JpaPid)) {
+			return false;
+		}
+		Long id = ((JpaPid) theObject).getId();
+		if (id == null) {
+			return false;
+		}
+		for (Roaring64NavigableMap next : myPartitionToIds.values()) {
+			if (next.contains(id)) {
+				next.removeLong(id);
+				mySize--;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public boolean removeAll(Collection<?> theObjects) {
+		Objects.requireNonNull(theObjects);
+		boolean retVal = false;
+		for (Object next : theObjects) {
+			retVal |= remove(next);
+		}
+		return retVal;
+	}
+
+	@Override
+	public void clear() {
+		myPartitionToIds.clear();
+		mySize = 0;
+	}
+
+	@Override
+	public int size() {
+		return mySize;
+	}
+
+	@Nonnull
+	@Override
+	public Iterator<JpaPid> iterator() {
+		Iterator<Map.Entry<Integer, Roaring64NavigableMap>> partitionIterator =
+				myPartitionToIds.entrySet().iterator();
+		return new Iterator<>() {
+			private Integer myPartitionId;
+			private LongIterator myIdIterator;
+
+			@Override
+			public boolean hasNext() {
+				while (myIdIterator == null || !myIdIterator.hasNext()) {
+					if (!partitionIterator.hasNext()) {
+						return false;
+					}
+					Map.Entry<Integer, Roaring64NavigableMap> next = partitionIterator.next();
+					myPartitionId = next.getKey();
+					myIdIterator = next.getValue().getLongIterator();
+				}
+				return true;
+			}
+
+			@Override
+			public JpaPid next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return JpaPid.fromId(myIdIterator.next(), myPartitionId);
+			}
+		};
+	}
+
+	/**
+	 * Returns the approximate number of bytes used to hold the PIDs in this set
+	 */
+	public long getSizeInBytes() {
+		long retVal = 0;
+		for (Roaring64NavigableMap next : myPartitionToIds.values()) {
+			retVal += next.getLongSizeInBytes();
+		}
+		return retVal;
+	}
+}
@@ -40,6 +40,15 @@ public enum ResourceEncodingEnum {
 	 */
 	JSONC,
 
+	/**
+	 * Json Compressed using Zstandard, optionally using a dictionary trained for
+	 * the resource type. The ID of the dictionary (if any) is stored in the
+	 * compressed frame header.
+	 *
+	 * @since 8.4.0
+	 */
+	JSONZ,
+
 	/**
 	 * Resource was deleted - No contents expected
 	 */
@@ -245,6 +245,15 @@ public class JpaConstants {
 	 */
 	public static final String PARAM_EXPORT_MDM = "_mdm";
 
+	/**
+	 * Parameter for the $export operation requesting that the generated NDJSON files be compressed
+	 * using the given HTTP content coding (<code>gzip</code> or <code>zstd</code>). This is a HAPI FHIR
+	 * extension to the Bulk Data specification.
+	 *
+	 * @since 8.4.0
+	 */
+	public static final String PARAM_EXPORT_OUTPUT_COMPRESSION = "_outputCompression";
+
 	/**
 	 * Parameter for delete to indicate the deleted resources should also be expunged
 	 */
@@ -289,6 +298,15 @@ public class JpaConstants {
 	public static final String HEADER_REWRITE_HISTORY = "X-Rewrite-History";
 
 	public static final String SKIP_REINDEX_ON_UPDATE = "SKIP-REINDEX-ON-UPDATE";
+
+	/**
+	 * If this key is present in the request user data with a value of {@link Boolean#TRUE},
+	 * new index rows may be written using bulk inserts if this is enabled using
+	 * {@literal JpaStorageSettings#setIndexRowBulkInsertEnabled(boolean)}.
+	 *
+	 * @since 8.4.0
+	 */
+	public static final String BULK_INDEX_ROW_INSERT = "BULK-INDEX-ROW-INSERT";
 	/**
 	 * IPS Generation operation name
 	 */
@@ -0,0 +1,89 @@
+package ca.uhn.fhir.jpa.model.dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static ca.uhn.fhir.jpa.model.dao.JpaPid.fromId;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JpaPidSetTest {
+
+	@Test
+	void testAddAndContains() {
+		JpaPidSet set = new JpaPidSet();
+		assertTrue(set.isEmpty());
+
+		assertTrue(set.add(fromId(1L)));
+		assertTrue(set.add(fromId(5_000_000_000L)));
+		assertFalse(set.add(fromId(1L)));
+
+		assertEquals(2, set.size());
+		assertTrue(set.contains(fromId(1L)));
+		assertTrue(set.contains(JpaPid.fromIdAndVersion(5_000_000_000L, 3L)));
+		assertFalse(set.contains(fromId(2L)));
+		assertFalse(set.contains("1"));
+	}
+
+	@Test
+	void testMembershipIgnoresPartition() {
+		JpaPidSet set = new JpaPidSet();
+		set.add(fromId(1L, 1));
+
+		// Consistent with JpaPid#equals
+		assertTrue(set.contains(fromId(1L, 2)));
+		assertFalse(set.add(fromId(1L, (Integer) null)));
+		assertEquals(1, set.size());
+	}
+
+	@Test
+	void testIteratorPreservesPartition() {
+		JpaPidSet set = new JpaPidSet(List.of(fromId(3L, 1), fromId(2L, (Integer) null), fromId(1L, 1)));
+
+		List<JpaPid> pids = new ArrayList<>(set);
+		assertThat(pids).extracting(JpaPid::getId).containsExactly(1L, 3L, 2L);
+		assertThat(pids).extracting(JpaPid::getPartitionId).containsExactly(1, 1, null);
+	}
+
+	@Test
+	void testRemove() {
+		JpaPidSet set = new JpaPidSet(List.of(fromId(1L), fromId(2L), fromId(3L)));
+
+		assertTrue(set.remove(fromId(2L)));
+		assertFalse(set.remove(fromId(2L)));
+		assertTrue(set.removeAll(List.of(fromId(1L), fromId(4L))));
+
+		assertEquals(Set.of(fromId(3L)), new HashSet<>(set));
+		set.clear();
+		assertTrue(set.isEmpty());
+	}
+
+	@Test
+	void testEqualsHashSet() {
+		List<JpaPid> pids = List.of(fromId(1L), fromId(2L, 5), fromId(300_000L));
+		JpaPidSet set = new JpaPidSet(pids);
+
+		assertEquals(new HashSet<>(pids), set);
+		assertEquals(set, new HashSet<>(pids));
+		assertEquals(new HashSet<>(pids).hashCode(), set.hashCode());
+	}
+
+	@Test
+	void testAddAllCopiesOtherSet() {
+		JpaPidSet source = new JpaPidSet(List.of(fromId(1L, 1), fromId(2L)));
+		JpaPidSet copy = new JpaPidSet(source);
+		copy.add(fromId(3L));
+
+		assertEquals(3, copy.size());
+		assertEquals(2, source.size());
+		assertTrue(copy.containsAll(source));
+		assertThat(copy.getSizeInBytes()).isPositive();
+	}
+
+}
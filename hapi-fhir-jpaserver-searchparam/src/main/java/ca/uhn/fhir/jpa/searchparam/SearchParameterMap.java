@@ -71,6 +71,7 @@ public class SearchParameterMap implements Serializable {
 	private final HashMap<String, List<List<IQueryParameterType>>> mySearchParameterMap = new LinkedHashMap<>();
 	private Integer myCount;
 	private Integer myOffset;
+	private String mySearchAfter;
 	private EverythingModeEnum myEverythingMode = null;
 	private Set<Include> myIncludes;
 	private DateRangeParam myLastUpdated;
@@ -122,6 +123,7 @@ public class SearchParameterMap implements Serializable {
 		map.setNearDistanceParam(getNearDistanceParam());
 		map.setLoadSynchronousUpTo(getLoadSynchronousUpTo());
 		map.setOffset(getOffset());
+		map.setSearchAfter(getSearchAfter());
 		map.setSearchContainedMode(getSearchContainedMode());
 
 		for (Map.Entry<String, List<List<IQueryParameterType>>> entry : mySearchParameterMap.entrySet()) {
@@ -280,6 +282,20 @@ public class SearchParameterMap implements Serializable {
 		myOffset = theOffset;
 	}
 
+	/**
+	 * The keyset paging continuation token supplied by the client in the
+	 * {@link Constants#PARAM_SEARCH_AFTER _searchAfter} parameter, if any. This
+	 * token is only honoured for offset queries and only if it was generated
+	 * for the same sort and offset as the current request.
+	 */
+	public String getSearchAfter() {
+		return mySearchAfter;
+	}
+
+	public void setSearchAfter(String theSearchAfter) {
+		mySearchAfter = theSearchAfter;
+	}
+
 	public EverythingModeEnum getEverythingMode() {
 		return myEverythingMode;
 	}
@@ -0,0 +1,123 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA - Search Parameters
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.searchparam.extractor;
+
+import ca.uhn.fhir.rest.api.server.storage.TransactionDetails;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds the search index values extracted from a resource ahead of time by
+ * {@link SearchParamExtractorService#preExtractSearchParams(IBaseResource)}, so that
+ * the CPU-intensive FHIRPath evaluation for many resources can be performed in
+ * parallel (e.g. for the entries of a large FHIR transaction) before the resources
+ * are stored one at a time.
+ * <p>
+ * Instances are registered against a {@link TransactionDetails} using
+ * {@link #store(TransactionDetails, IBaseResource, PreExtractedSearchParams)} and are
+ * consumed (at most once) by
+ * {@link SearchParamExtractorService#extractFromResource}.
+ * The resource must not be modified between the two calls, other than by
+ * replacing the values of existing references.
+ * </p>
+ *
+ * @since 8.4.0
+ */
+public class PreExtractedSearchParams {
+
+	private static final String USER_DATA_KEY = PreExtractedSearchParams.class.getName();
+
+	private final ResourceIndexedSearchParams myParams;
+	private final ISearchParamExtractor.SearchParamSet<PathAndRef> myIndexedReferences;
+	private final List<ISearchParamExtractor.SearchParamSet<?>> mySetsWithWarnings = new ArrayList<>();
+
+	PreExtractedSearchParams(
+			ResourceIndexedSearchParams theParams,
+			ISearchParamExtractor.SearchParamSet<PathAndRef> theIndexedReferences) {
+		myParams = theParams;
+		myIndexedReferences = theIndexedReferences;
+	}
+
+	/**
+	 * All extracted search parameters except for references
+	 */
+	ResourceIndexedSearchParams getParams() {
+		return myParams;
+	}
+
+	/**
+	 * The references which will be resolved into resource links
+	 */
+	ISearchParamExtractor.SearchParamSet<PathAndRef> getIndexedReferences() {
+		return myIndexedReferences;
+	}
+
+	/**
+	 * Extracted sets which contain warnings that must be reported when the
+	 * values are used
+	 */
+	List<ISearchParamExtractor.SearchParamSet<?>> getSetsWithWarnings() {
+		return mySetsWithWarnings;
+	}
+
+	void addSetIfItHasWarnings(ISearchParamExtractor.SearchParamSet<?> theSet) {
+		if (!theSet.getWarnings().isEmpty()) {
+			mySetsWithWarnings.add(theSet);
+		}
+	}
+
+	/**
+	 * Registers pre-extracted values for the given resource. This method is not thread safe
+	 * and should be called from the thread processing the transaction.
+	 */
+	public static void store(
+			@Nonnull TransactionDetails theTransactionDetails,
+			@Nonnull IBaseResource theResource,
+			@Nonnull PreExtractedSearchParams thePreExtractedSearchParams) {
+		getMap(theTransactionDetails).put(theResource, thePreExtractedSearchParams);
+	}
+
+	/**
+	 * Removes and returns the pre-extracted values for the given resource (matched by
+	 * object identity), or returns <code>null</code> if there are none
+	 */
+	@Nullable
+	public static PreExtractedSearchParams remove(
+			@Nullable TransactionDetails theTransactionDetails, @Nonnull IBaseResource theResource) {
+		if (theTransactionDetails == null) {
+			return null;
+		}
+		Map<IBaseResource, PreExtractedSearchParams> map = theTransactionDetails.getUserData(USER_DATA_KEY);
+		if (map == null) {
+			return null;
+		}
+		return map.remove(theResource);
+	}
+
+	private static Map<IBaseResource, PreExtractedSearchParams> getMap(TransactionDetails theTransactionDetails) {
+		return theTransactionDetails.getOrCreateUserData(USER_DATA_KEY, IdentityHashMap::new);
+	}
+}
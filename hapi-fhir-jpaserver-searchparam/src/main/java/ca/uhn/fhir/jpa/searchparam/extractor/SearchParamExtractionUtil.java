@@ -37,6 +37,8 @@ import ca.uhn.fhir.rest.api.server.RequestDetails;
 import jakarta.annotation.Nonnull;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 
+import java.util.function.Consumer;
+
 import static ca.uhn.fhir.jpa.searchparam.extractor.SearchParamExtractorService.handleWarnings;
 
 public class SearchParamExtractionUtil {
@@ -62,23 +64,42 @@ public class SearchParamExtractionUtil {
 			ResourceIndexedSearchParams theParams,
 			IBaseResource theResource,
 			@Nonnull ISearchParamExtractor.ISearchParamFilter theSearchParamFilter) {
+		extractSearchIndexParameters(
+				theParams,
+				theResource,
+				theSearchParamFilter,
+				t -> handleWarnings(theRequestDetails, myInterceptorBroadcaster, t));
+	}
+
+	/**
+	 * Extracts all search parameter types except references. This method does not
+	 * invoke any interceptors, and passes every extracted set to
+	 * <code>theWarningHandler</code> so that any extraction warnings can be reported.
+	 *
+	 * @since 8.4.0
+	 */
+	public void extractSearchIndexParameters(
+			ResourceIndexedSearchParams theParams,
+			IBaseResource theResource,
+			@Nonnull ISearchParamExtractor.ISearchParamFilter theSearchParamFilter,
+			@Nonnull Consumer<ISearchParamExtractor.SearchParamSet<?>> theWarningHandler) {
 
 		// Strings
 		ISearchParamExtractor.SearchParamSet<ResourceIndexedSearchParamString> strings =
 				extractSearchParamStrings(theResource, theSearchParamFilter);
-		handleWarnings(theRequestDetails, myInterceptorBroadcaster, strings);
+		theWarningHandler.accept(strings);
 		theParams.myStringParams.addAll(strings);
 
 		// Numbers
 		ISearchParamExtractor.SearchParamSet<ResourceIndexedSearchParamNumber> numbers =
 				extractSearchParamNumber(theResource, theSearchParamFilter);
-		handleWarnings(theRequestDetails, myInterceptorBroadcaster, numbers);
+		theWarningHandler.accept(numbers);
 		theParams.myNumberParams.addAll(numbers);
 
 		// Quantities
 		ISearchParamExtractor.SearchParamSet<ResourceIndexedSearchParamQuantity> quantities =
 				extractSearchParamQuantity(theResource, theSearchParamFilter);
-		handleWarnings(theRequestDetails, myInterceptorBroadcaster, quantities);
+		theWarningHandler.accept(quantities);
 		theParams.myQuantityParams.addAll(quantities);
 
 		if (myStorageSettings
@@ -89,20 +110,20 @@ public class SearchParamExtractionUtil {
 						.equals(NormalizedQuantitySearchLevel.NORMALIZED_QUANTITY_SEARCH_SUPPORTED)) {
 			ISearchParamExtractor.SearchParamSet<ResourceIndexedSearchParamQuantityNormalized> quantitiesNormalized =
 					extractSearchParamQuantityNormalized(theResource, theSearchParamFilter);
-			handleWarnings(theRequestDetails, myInterceptorBroadcaster, quantitiesNormalized);
+			theWarningHandler.accept(quantitiesNormalized);
 			theParams.myQuantityNormalizedParams.addAll(quantitiesNormalized);
 		}
 
 		// Dates
 		ISearchParamExtractor.SearchParamSet<ResourceIndexedSearchParamDate> dates =
 				extractSearchParamDates(theResource, theSearchParamFilter);
-		handleWarnings(theRequestDetails, myInterceptorBroadcaster, dates);
+		theWarningHandler.accept(dates);
 		theParams.myDateParams.addAll(dates);
 
 		// URIs
 		ISearchParamExtractor.SearchParamSet<ResourceIndexedSearchParamUri> uris =
 				extractSearchParamUri(theResource, theSearchParamFilter);
-		handleWarnings(theRequestDetails, myInterceptorBroadcaster, uris);
+		theWarningHandler.accept(uris);
 		theParams.myUriParams.addAll(uris);
 
 		// Tokens (can result in both Token and String, as we index the display name for
@@ -124,7 +145,7 @@ public class SearchParamExtractionUtil {
 		if (myFhirContext.getVersion().getVersion().isEqualOrNewerThan(FhirVersionEnum.DSTU3)) {
 			ISearchParamExtractor.SearchParamSet<ResourceIndexedSearchParamComposite> composites =
 					extractSearchParamComposites(theResource, theSearchParamFilter);
-			handleWarnings(theRequestDetails, myInterceptorBroadcaster, composites);
+			theWarningHandler.accept(composites);
 			theParams.myCompositeParams.addAll(composites);
 		}
 
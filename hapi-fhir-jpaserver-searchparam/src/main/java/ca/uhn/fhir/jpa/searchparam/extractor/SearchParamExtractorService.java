@@ -139,17 +139,34 @@ public class SearchParamExtractorService {
 		 */
 		myContext.newTerser().containResources(theResource, null, true);
 
+		PreExtractedSearchParams preExtracted = null;
+		if (theSearchParamFilter == ISearchParamExtractor.ALL_PARAMS) {
+			preExtracted = PreExtractedSearchParams.remove(theTransactionDetails, theResource);
+		}
+
 		// All search parameter types except Reference
-		ResourceIndexedSearchParams normalParams = ResourceIndexedSearchParams.withSets();
-		getExtractionUtil()
-				.extractSearchIndexParameters(theRequestDetails, normalParams, theResource, theSearchParamFilter);
+		ResourceIndexedSearchParams normalParams;
+		if (preExtracted != null) {
+			normalParams = preExtracted.getParams();
+			for (ISearchParamExtractor.SearchParamSet<?> next : preExtracted.getSetsWithWarnings()) {
+				handleWarnings(theRequestDetails, myInterceptorBroadcaster, next);
+			}
+		} else {
+			normalParams = ResourceIndexedSearchParams.withSets();
+			getExtractionUtil()
+					.extractSearchIndexParameters(theRequestDetails, normalParams, theResource, theSearchParamFilter);
+		}
 		mergeParams(normalParams, theNewParams);
 
 		// Reference search parameters
 		boolean indexOnContainedResources = myStorageSettings.isIndexOnContainedResources();
-		ISearchParamExtractor.SearchParamSet<PathAndRef> indexedReferences =
-				mySearchParamExtractor.extractResourceLinks(theResource, indexOnContainedResources);
-		SearchParamExtractorService.handleWarnings(theRequestDetails, myInterceptorBroadcaster, indexedReferences);
+		ISearchParamExtractor.SearchParamSet<PathAndRef> indexedReferences;
+		if (preExtracted != null) {
+			indexedReferences = preExtracted.getIndexedReferences();
+		} else {
+			indexedReferences = mySearchParamExtractor.extractResourceLinks(theResource, indexOnContainedResources);
+			SearchParamExtractorService.handleWarnings(theRequestDetails, myInterceptorBroadcaster, indexedReferences);
+		}
 
 		if (indexOnContainedResources) {
 			ResourceIndexedSearchParams containedParams = ResourceIndexedSearchParams.withSets();
@@ -227,6 +244,38 @@ public class SearchParamExtractorService {
 		theNewParams.setUpdatedTime(theTransactionDetails.getTransactionDate());
 	}
 
+	/**
+	 * Performs the part of {@link #extractFromResource} which depends only on the contents
+	 * of the resource: FHIRPath evaluation of every active search parameter, and extraction of
+	 * the references which will later be resolved into resource links. No database access
+	 * is performed and no interceptors are invoked (any extraction warnings are reported
+	 * when the results are used), so this method may be called from any thread.
+	 * <p>
+	 * The caller must first clean up the contained resources of the resource by calling
+	 * <code>FhirTerser#containResources(theResource, null, true)</code> on the thread processing
+	 * the request, since doing so may modify the resource.
+	 * </p>
+	 *
+	 * @see PreExtractedSearchParams
+	 * @since 8.4.0
+	 */
+	public PreExtractedSearchParams preExtractSearchParams(IBaseResource theResource) {
+		ResourceIndexedSearchParams params = ResourceIndexedSearchParams.withSets();
+		List<ISearchParamExtractor.SearchParamSet<?>> extractedSets = new ArrayList<>();
+		getExtractionUtil()
+				.extractSearchIndexParameters(
+						params, theResource, ISearchParamExtractor.ALL_PARAMS, extractedSets::add);
+
+		ISearchParamExtractor.SearchParamSet<PathAndRef> indexedReferences =
+				mySearchParamExtractor.extractResourceLinks(
+						theResource, myStorageSettings.isIndexOnContainedResources());
+		extractedSets.add(indexedReferences);
+
+		PreExtractedSearchParams retVal = new PreExtractedSearchParams(params, indexedReferences);
+		extractedSets.forEach(retVal::addSetIfItHasWarnings);
+		return retVal;
+	}
+
 	private SearchParamExtractionUtil getExtractionUtil() {
 		if (mySearchParamExtractionUtil == null) {
 			mySearchParamExtractionUtil = new SearchParamExtractionUtil(
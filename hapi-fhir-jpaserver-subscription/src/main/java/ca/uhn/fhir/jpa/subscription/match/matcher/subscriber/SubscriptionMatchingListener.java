@@ -41,6 +41,7 @@ import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Optional;
 
 import static ca.uhn.fhir.rest.server.messaging.BaseResourceMessage.OperationTypeEnum.DELETE;
@@ -128,7 +129,7 @@ public class SubscriptionMatchingListener implements IMessageListener<ResourceMo
 	private void doMatchActiveSubscriptionsAndDeliver(ResourceModifiedMessage theMsg) {
 		IIdType resourceId = theMsg.getPayloadId(myFhirContext);
 
-		Collection<ActiveSubscription> subscriptions = mySubscriptionRegistry.getAllNonTopicSubscriptions();
+		Collection<ActiveSubscription> subscriptions = getCandidateSubscriptions(theMsg, resourceId);
 
 		ourLog.trace("Testing {} subscriptions for applicability", subscriptions.size());
 		boolean anySubscriptionsMatchedResource = false;
@@ -145,6 +146,31 @@ public class SubscriptionMatchingListener implements IMessageListener<ResourceMo
 		}
 	}
 
+	/**
+	 * Returns the subscriptions that could match the modified resource, using the registry index
+	 * rather than testing every active subscription. If the message targets a specific subscription,
+	 * only that subscription is a candidate.
+	 */
+	private Collection<ActiveSubscription> getCandidateSubscriptions(
+			ResourceModifiedMessage theMsg, IIdType theResourceId) {
+		if (isNotBlank(theMsg.getSubscriptionId())) {
+			ActiveSubscription activeSubscription = mySubscriptionRegistry.get(theMsg.getSubscriptionId());
+			if (activeSubscription == null
+					|| activeSubscription.getSubscription().isTopicSubscription()) {
+				ourLog.debug("No active non-topic subscription with ID {}", theMsg.getSubscriptionId());
+				return Collections.emptyList();
+			}
+			return Collections.singletonList(activeSubscription);
+		}
+
+		if (theResourceId == null || theResourceId.getResourceType() == null) {
+			return Collections.emptyList();
+		}
+
+		return mySubscriptionRegistry.getCandidateNonTopicSubscriptions(
+				theResourceId.getResourceType(), theMsg.getResource(myFhirContext));
+	}
+
 	/**
 	 * Returns ISendResult.isSuccessful() if subscription matched, and processing completed successfully, and the message was sent to the delivery channel. False otherwise.
 	 */
@@ -165,7 +191,6 @@ public class SubscriptionMatchingListener implements IMessageListener<ResourceMo
 
 		if (isNotBlank(theMsg.getSubscriptionId())) {
 			if (!theMsg.getSubscriptionId().equals(nextSubscriptionId)) {
-				// TODO KHS we should use a hash to look it up instead of this full table scan
 				ourLog.debug(
 						"Ignoring subscription {} because it is not {}",
 						nextSubscriptionId,
@@ -38,6 +38,7 @@ public class ActiveSubscription {
 
 	private ChannelRetryConfiguration myRetryConfigurationParameters;
 	private final AtomicLong myDeliveriesCount = new AtomicLong();
+	private SubscriptionCandidateIndex.IndexKey myIndexKey;
 
 	public ActiveSubscription(CanonicalSubscription theSubscription, String theChannelName) {
 		myChannelName = theChannelName;
@@ -94,6 +95,18 @@ public class ActiveSubscription {
 		return myDeliveriesCount.incrementAndGet();
 	}
 
+	/**
+	 * @return The key used to file this subscription in the candidate index, or <code>null</code>
+	 * 		if the subscription is only indexed by resource type
+	 */
+	SubscriptionCandidateIndex.IndexKey getIndexKey() {
+		return myIndexKey;
+	}
+
+	void setIndexKey(SubscriptionCandidateIndex.IndexKey theIndexKey) {
+		myIndexKey = theIndexKey;
+	}
+
 	public IdDt getIdDt() {
 		return new IdDt("Subscription", myId);
 	}
@@ -40,6 +40,7 @@ class ActiveSubscriptionCache {
 	private static final Logger ourLog = LoggerFactory.getLogger(ActiveSubscriptionCache.class);
 
 	private final Map<String, ActiveSubscription> myCache = new HashMap<>();
+	private volatile SubscriptionCandidateIndex myCandidateIndex;
 
 	public synchronized ActiveSubscription get(String theIdPart) {
 		return myCache.get(theIdPart);
@@ -55,6 +56,7 @@ class ActiveSubscriptionCache {
 
 	public synchronized void put(String theSubscriptionId, ActiveSubscription theActiveSubscription) {
 		myCache.put(theSubscriptionId, theActiveSubscription);
+		myCandidateIndex = null;
 	}
 
 	public synchronized ActiveSubscription remove(String theSubscriptionId) {
@@ -66,9 +68,35 @@ class ActiveSubscriptionCache {
 		}
 
 		myCache.remove(theSubscriptionId);
+		myCandidateIndex = null;
 		return activeSubscription;
 	}
 
+	/**
+	 * Must be called if the criteria of a cached subscription are changed in place
+	 */
+	public synchronized void invalidateCandidateIndex() {
+		myCandidateIndex = null;
+	}
+
+	/**
+	 * Returns an index over all non-topic subscriptions. The index is rebuilt on first use after
+	 * any change to the cache, and the returned instance is never modified.
+	 */
+	public SubscriptionCandidateIndex getCandidateIndex() {
+		SubscriptionCandidateIndex retVal = myCandidateIndex;
+		if (retVal == null) {
+			synchronized (this) {
+				retVal = myCandidateIndex;
+				if (retVal == null) {
+					retVal = new SubscriptionCandidateIndex(getAllNonTopicSubscriptions());
+					myCandidateIndex = retVal;
+				}
+			}
+		}
+		return retVal;
+	}
+
 	synchronized List<String> markAllSubscriptionsNotInCollectionForDeletionAndReturnIdsToDelete(
 			Collection<String> theAllIds) {
 		List<String> retval = new ArrayList<>();
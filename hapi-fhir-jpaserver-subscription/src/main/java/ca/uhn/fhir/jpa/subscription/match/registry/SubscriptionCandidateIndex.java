@@ -0,0 +1,191 @@
+/*-
+ * #%L
+ * HAPI FHIR Subscription Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.subscription.match.registry;
+
+import ca.uhn.fhir.jpa.subscription.match.matcher.subscriber.SubscriptionCriteriaParser;
+import ca.uhn.fhir.rest.api.RestSearchParameterTypeEnum;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable index over the active non-topic subscriptions, used to find the subscriptions
+ * which could plausibly match a given resource without evaluating every active subscription.
+ * <p>
+ * Subscriptions are first grouped by the resource type(s) their criteria apply to. Within a
+ * resource type, subscriptions whose criteria contain a simple equality test on a token or
+ * reference search parameter (e.g. <code>Observation?code=http://loinc.org|1234-5</code> or
+ * <code>Observation?subject=Patient/123</code>) are further keyed by the value(s) being tested
+ * for, since a resource can only match such a subscription if it contains one of those values.
+ * All other subscriptions for the type are always returned as candidates.
+ * </p>
+ * <p>
+ * The index only narrows down the candidates - every candidate must still be fully evaluated
+ * by the subscription matcher.
+ * </p>
+ */
+final class SubscriptionCandidateIndex {
+
+	static final SubscriptionCandidateIndex EMPTY = new SubscriptionCandidateIndex(Collections.emptyList());
+
+	private final List<ActiveSubscription> myAllTypeSubscriptions = new ArrayList<>();
+	private final Map<String, ResourceTypeEntry> myResourceTypeEntries = new HashMap<>();
+	private final int mySize;
+
+	SubscriptionCandidateIndex(Collection<ActiveSubscription> theSubscriptions) {
+		int size = 0;
+		for (ActiveSubscription next : theSubscriptions) {
+			SubscriptionCriteriaParser.SubscriptionCriteria criteria = next.getCriteria();
+			if (criteria == null) {
+				// Subscriptions without parseable criteria can never match anything
+				continue;
+			}
+
+			size++;
+			switch (criteria.getType()) {
+				case STARTYPE_EXPRESSION:
+					myAllTypeSubscriptions.add(next);
+					break;
+				case MULTITYPE_EXPRESSION:
+					for (String nextType : criteria.getApplicableResourceTypes()) {
+						getOrCreateEntry(nextType).myUnkeyed.add(next);
+					}
+					break;
+				case SEARCH_EXPRESSION:
+				default:
+					IndexKey indexKey = next.getIndexKey();
+					for (String nextType : criteria.getApplicableResourceTypes()) {
+						ResourceTypeEntry entry = getOrCreateEntry(nextType);
+						if (indexKey == null) {
+							entry.myUnkeyed.add(next);
+						} else {
+							entry.getOrCreateParamEntry(indexKey).add(indexKey, next);
+						}
+					}
+					break;
+			}
+		}
+		mySize = size;
+	}
+
+	private ResourceTypeEntry getOrCreateEntry(String theResourceType) {
+		return myResourceTypeEntries.computeIfAbsent(theResourceType, t -> new ResourceTypeEntry());
+	}
+
+	/**
+	 * @return The number of subscriptions in the index
+	 */
+	int size() {
+		return mySize;
+	}
+
+	/**
+	 * Returns the subscriptions which could match a resource of the given type
+	 *
+	 * @param theResourceType The resource type
+	 * @param theValueKeyProvider Supplies the index keys present in the resource for a given search parameter
+	 */
+	@Nonnull
+	List<ActiveSubscription> getCandidates(
+			@Nonnull String theResourceType, @Nonnull IResourceValueKeyProvider theValueKeyProvider) {
+		Set<ActiveSubscription> retVal = new LinkedHashSet<>();
+		if (!"Subscription".equals(theResourceType)) {
+			retVal.addAll(myAllTypeSubscriptions);
+		}
+
+		ResourceTypeEntry entry = myResourceTypeEntries.get(theResourceType);
+		if (entry != null) {
+			retVal.addAll(entry.myUnkeyed);
+			for (ParamEntry nextParamEntry : entry.myParamEntries.values()) {
+				Set<String> valueKeys =
+						theValueKeyProvider.getValueKeys(nextParamEntry.myParamName, nextParamEntry.myParamType);
+				if (valueKeys == null) {
+					retVal.addAll(nextParamEntry.myAll);
+				} else {
+					for (String nextValueKey : valueKeys) {
+						retVal.addAll(nextParamEntry.myByValueKey.getOrDefault(nextValueKey, Collections.emptyList()));
+					}
+				}
+			}
+		}
+
+		return new ArrayList<>(retVal);
+	}
+
+	/**
+	 * Supplies the index keys found in the resource being matched
+	 */
+	@FunctionalInterface
+	interface IResourceValueKeyProvider {
+
+		/**
+		 * @return The value keys for the given search parameter in the resource being matched, or
+		 * 		<code>null</code> if these can't be determined (in which case all subscriptions keyed on
+		 * 		this parameter are treated as candidates)
+		 */
+		@Nullable
+		Set<String> getValueKeys(String theParamName, RestSearchParameterTypeEnum theParamType);
+	}
+
+	/**
+	 * Identifies a search parameter in a subscription's criteria which tests for equality against
+	 * one of a set of values. Value keys are produced by {@link SubscriptionCandidateKeyResolver}.
+	 */
+	record IndexKey(String paramName, RestSearchParameterTypeEnum paramType, Set<String> valueKeys) {}
+
+	private static class ResourceTypeEntry {
+		private final List<ActiveSubscription> myUnkeyed = new ArrayList<>();
+		private final Map<String, ParamEntry> myParamEntries = new HashMap<>();
+
+		private ParamEntry getOrCreateParamEntry(IndexKey theIndexKey) {
+			return myParamEntries.computeIfAbsent(
+					theIndexKey.paramName(), t -> new ParamEntry(theIndexKey.paramName(), theIndexKey.paramType()));
+		}
+	}
+
+	private static class ParamEntry {
+		private final String myParamName;
+		private final RestSearchParameterTypeEnum myParamType;
+		private final List<ActiveSubscription> myAll = new ArrayList<>();
+		private final Map<String, List<ActiveSubscription>> myByValueKey = new HashMap<>();
+
+		private ParamEntry(String theParamName, RestSearchParameterTypeEnum theParamType) {
+			myParamName = theParamName;
+			myParamType = theParamType;
+		}
+
+		private void add(IndexKey theIndexKey, ActiveSubscription theSubscription) {
+			myAll.add(theSubscription);
+			for (String nextValueKey : theIndexKey.valueKeys()) {
+				myByValueKey
+						.computeIfAbsent(nextValueKey, t -> new ArrayList<>())
+						.add(theSubscription);
+			}
+		}
+	}
+}
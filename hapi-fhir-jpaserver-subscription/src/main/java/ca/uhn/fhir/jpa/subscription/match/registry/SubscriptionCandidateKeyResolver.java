@@ -0,0 +1,284 @@
+/*-
+ * #%L
+ * HAPI FHIR Subscription Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.subscription.match.registry;
+
+import ca.uhn.fhir.context.RuntimeSearchParam;
+import ca.uhn.fhir.jpa.model.entity.BaseResourceIndexedSearchParam;
+import ca.uhn.fhir.jpa.model.entity.ResourceIndexedSearchParamToken;
+import ca.uhn.fhir.jpa.searchparam.extractor.ISearchParamExtractor;
+import ca.uhn.fhir.jpa.searchparam.extractor.PathAndRef;
+import ca.uhn.fhir.jpa.subscription.match.matcher.subscriber.SubscriptionCriteriaParser;
+import ca.uhn.fhir.rest.api.RestSearchParameterTypeEnum;
+import ca.uhn.fhir.rest.server.util.ISearchParamRegistry;
+import ca.uhn.fhir.util.UrlUtil;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.hl7.fhir.instance.model.api.IBaseReference;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.instance.model.api.IIdType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+
+/**
+ * Computes the keys used by {@link SubscriptionCandidateIndex}, both for subscription criteria
+ * and for resources being matched against those criteria.
+ * <p>
+ * Value keys take the following forms:
+ * </p>
+ * <ul>
+ *    <li>Token with system and code: <code>[system]|[code]</code></li>
+ *    <li>Token with code only (any system): <code>*|[code]</code></li>
+ *    <li>Reference: <code>[resource type]/[id]</code></li>
+ * </ul>
+ */
+class SubscriptionCandidateKeyResolver {
+	private static final Logger ourLog = LoggerFactory.getLogger(SubscriptionCandidateKeyResolver.class);
+	private static final String ANY_SYSTEM_PREFIX = "*|";
+
+	private final ISearchParamRegistry mySearchParamRegistry;
+	private final ISearchParamExtractor mySearchParamExtractor;
+
+	SubscriptionCandidateKeyResolver(
+			@Nonnull ISearchParamRegistry theSearchParamRegistry,
+			@Nonnull ISearchParamExtractor theSearchParamExtractor) {
+		mySearchParamRegistry = theSearchParamRegistry;
+		mySearchParamExtractor = theSearchParamExtractor;
+	}
+
+	/**
+	 * Returns the index key for the given criteria, or <code>null</code> if the criteria don't contain
+	 * a simple token or reference equality test that can be indexed. Since all parameters in a search
+	 * expression must match, it is sufficient to index on any one of them.
+	 */
+	@Nullable
+	SubscriptionCandidateIndex.IndexKey resolveIndexKey(
+			@Nullable SubscriptionCriteriaParser.SubscriptionCriteria theCriteria) {
+		if (theCriteria == null
+				|| theCriteria.getType() != SubscriptionCriteriaParser.TypeEnum.SEARCH_EXPRESSION
+				|| theCriteria.getApplicableResourceTypes().size() != 1) {
+			return null;
+		}
+
+		String criteria = theCriteria.getCriteria();
+		int questionMarkIdx = criteria.indexOf('?');
+		if (questionMarkIdx == -1) {
+			return null;
+		}
+
+		String resourceType =
+				theCriteria.getApplicableResourceTypes().iterator().next();
+		Map<String, String[]> parameters = UrlUtil.parseQueryString(criteria.substring(questionMarkIdx + 1));
+
+		// Sorted so that the choice of indexed parameter is deterministic
+		for (String nextParamName : new TreeSet<>(parameters.keySet())) {
+			if (nextParamName.startsWith("_") || nextParamName.indexOf(':') != -1 || nextParamName.indexOf('.') != -1) {
+				// Special parameters, modifiers and chains are never indexed
+				continue;
+			}
+
+			RuntimeSearchParam searchParam = mySearchParamRegistry.getActiveSearchParam(
+					resourceType, nextParamName, ISearchParamRegistry.SearchParamLookupContextEnum.SEARCH);
+			if (searchParam == null) {
+				continue;
+			}
+
+			RestSearchParameterTypeEnum paramType = searchParam.getParamType();
+			if (paramType != RestSearchParameterTypeEnum.TOKEN && paramType != RestSearchParameterTypeEnum.REFERENCE) {
+				continue;
+			}
+
+			Set<String> valueKeys = toCriteriaValueKeys(paramType, parameters.get(nextParamName)[0]);
+			if (valueKeys != null) {
+				return new SubscriptionCandidateIndex.IndexKey(nextParamName, paramType, valueKeys);
+			}
+		}
+
+		return null;
+	}
+
+	@Nullable
+	private static Set<String> toCriteriaValueKeys(RestSearchParameterTypeEnum theParamType, String theValue) {
+		if (isBlank(theValue) || theValue.indexOf('\\') != -1) {
+			return null;
+		}
+
+		Set<String> retVal = new HashSet<>();
+		for (String nextValue : theValue.split(",")) {
+			String valueKey;
+			if (theParamType == RestSearchParameterTypeEnum.TOKEN) {
+				valueKey = toCriteriaTokenValueKey(nextValue);
+			} else {
+				valueKey = toCriteriaReferenceValueKey(nextValue);
+			}
+			if (valueKey == null) {
+				return null;
+			}
+			retVal.add(valueKey);
+		}
+		return retVal;
+	}
+
+	@Nullable
+	private static String toCriteriaTokenValueKey(String theValue) {
+		int pipeIdx = theValue.indexOf('|');
+		if (pipeIdx == -1) {
+			return isBlank(theValue) ? null : ANY_SYSTEM_PREFIX + theValue;
+		}
+
+		String system = theValue.substring(0, pipeIdx);
+		String code = theValue.substring(pipeIdx + 1);
+		if (isBlank(code) || code.indexOf('|') != -1) {
+			// System-only tokens can't be indexed
+			return null;
+		}
+		if (isBlank(system)) {
+			// An empty system is treated as "any system" since this is always a superset of the
+			// resources which can actually match
+			return ANY_SYSTEM_PREFIX + code;
+		}
+		return system + "|" + code;
+	}
+
+	@Nullable
+	private static String toCriteriaReferenceValueKey(String theValue) {
+		if (theValue.contains("://")) {
+			return null;
+		}
+		String[] parts = theValue.split("/");
+		if (parts.length != 2 || isBlank(parts[0]) || isBlank(parts[1]) || !Character.isUpperCase(parts[0].charAt(0))) {
+			return null;
+		}
+		return theValue;
+	}
+
+	/**
+	 * Creates a provider which lazily extracts the index value keys from the given resource
+	 */
+	SubscriptionCandidateIndex.IResourceValueKeyProvider newValueKeyProvider(
+			@Nonnull String theResourceType, @Nullable IBaseResource theResource) {
+		if (theResource == null) {
+			return (theParamName, theParamType) -> null;
+		}
+		return new ResourceValueKeyProvider(theResourceType, theResource);
+	}
+
+	private class ResourceValueKeyProvider implements SubscriptionCandidateIndex.IResourceValueKeyProvider {
+		private final String myResourceType;
+		private final IBaseResource myResource;
+		private Set<PathAndRef> myResourceLinks;
+
+		private ResourceValueKeyProvider(String theResourceType, IBaseResource theResource) {
+			myResourceType = theResourceType;
+			myResource = theResource;
+		}
+
+		@Nullable
+		@Override
+		public Set<String> getValueKeys(String theParamName, RestSearchParameterTypeEnum theParamType) {
+			try {
+				if (theParamType == RestSearchParameterTypeEnum.TOKEN) {
+					return getTokenValueKeys(theParamName);
+				}
+				return getReferenceValueKeys(theParamName);
+			} catch (Exception e) {
+				ourLog.debug(
+						"Failed to extract {} values for subscription candidate lookup: {}",
+						theParamName,
+						e.toString());
+				return null;
+			}
+		}
+
+		@Nullable
+		private Set<String> getTokenValueKeys(String theParamName) {
+			RuntimeSearchParam searchParam = mySearchParamRegistry.getActiveSearchParam(
+					myResourceType, theParamName, ISearchParamRegistry.SearchParamLookupContextEnum.SEARCH);
+			if (searchParam == null) {
+				return null;
+			}
+
+			Set<String> retVal = new HashSet<>();
+			for (BaseResourceIndexedSearchParam next :
+					mySearchParamExtractor.extractSearchParamTokens(myResource, searchParam)) {
+				if (next instanceof ResourceIndexedSearchParamToken token
+						&& theParamName.equals(token.getParamName())
+						&& isNotBlank(token.getValue())) {
+					retVal.add(ANY_SYSTEM_PREFIX + token.getValue());
+					if (isNotBlank(token.getSystem())) {
+						retVal.add(token.getSystem() + "|" + token.getValue());
+					}
+				}
+			}
+			return retVal;
+		}
+
+		@Nullable
+		private Set<String> getReferenceValueKeys(String theParamName) {
+			if (myResourceLinks == null) {
+				myResourceLinks = mySearchParamExtractor.extractResourceLinks(myResource, false);
+			}
+
+			Set<String> retVal = new HashSet<>();
+			for (PathAndRef next : myResourceLinks) {
+				if (!theParamName.equals(next.getSearchParamName())) {
+					continue;
+				}
+				if (next.isCanonical()) {
+					return null;
+				}
+
+				IIdType targetId = getTargetId(next);
+				if (targetId == null
+						|| targetId.isLocal()
+						|| targetId.hasBaseUrl()
+						|| !targetId.hasResourceType()
+						|| !targetId.hasIdPart()) {
+					// We can't reliably tell what this points to, so all subscriptions using
+					// this parameter are candidates
+					return null;
+				}
+				retVal.add(targetId.getResourceType() + "/" + targetId.getIdPart());
+			}
+			return retVal;
+		}
+
+		@Nullable
+		private IIdType getTargetId(PathAndRef thePathAndRef) {
+			IBaseReference ref = thePathAndRef.getRef();
+			if (ref == null) {
+				IBaseResource resource = thePathAndRef.getResource();
+				return resource != null ? resource.getIdElement() : null;
+			}
+			IIdType retVal = ref.getReferenceElement();
+			if ((retVal == null || retVal.isEmpty()) && ref.getResource() != null) {
+				retVal = ref.getResource().getIdElement();
+			}
+			return retVal;
+		}
+	}
+}
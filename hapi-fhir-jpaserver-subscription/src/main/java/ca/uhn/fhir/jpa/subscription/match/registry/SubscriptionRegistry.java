@@ -22,11 +22,15 @@ package ca.uhn.fhir.jpa.subscription.match.registry;
 import ca.uhn.fhir.interceptor.api.HookParams;
 import ca.uhn.fhir.interceptor.api.IInterceptorBroadcaster;
 import ca.uhn.fhir.interceptor.api.Pointcut;
+import ca.uhn.fhir.jpa.searchparam.extractor.ISearchParamExtractor;
 import ca.uhn.fhir.jpa.subscription.channel.subscription.ISubscriptionDeliveryChannelNamer;
 import ca.uhn.fhir.jpa.subscription.channel.subscription.SubscriptionChannelRegistry;
 import ca.uhn.fhir.jpa.subscription.model.CanonicalSubscription;
 import ca.uhn.fhir.jpa.subscription.model.ChannelRetryConfiguration;
+import ca.uhn.fhir.rest.server.util.ISearchParamRegistry;
 import ca.uhn.fhir.util.HapiExtensions;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 import jakarta.annotation.PreDestroy;
 import org.apache.commons.lang3.Validate;
 import org.hl7.fhir.instance.model.api.IBaseResource;
@@ -49,6 +53,8 @@ import java.util.Optional;
 public class SubscriptionRegistry {
 	private static final Logger ourLog = LoggerFactory.getLogger(SubscriptionRegistry.class);
 	private final ActiveSubscriptionCache myActiveSubscriptionCache = new ActiveSubscriptionCache();
+	private final SubscriptionRegistryMetrics myMetrics = new SubscriptionRegistryMetrics();
+	private SubscriptionCandidateKeyResolver myCandidateKeyResolver;
 
 	@Autowired
 	private SubscriptionCanonicalizer mySubscriptionCanonicalizer;
@@ -62,6 +68,12 @@ public class SubscriptionRegistry {
 	@Autowired
 	private IInterceptorBroadcaster myInterceptorBroadcaster;
 
+	@Autowired(required = false)
+	private ISearchParamRegistry mySearchParamRegistry;
+
+	@Autowired(required = false)
+	private ISearchParamExtractor mySearchParamExtractor;
+
 	/**
 	 * Constructor
 	 */
@@ -127,6 +139,7 @@ public class SubscriptionRegistry {
 
 		ActiveSubscription activeSubscription = new ActiveSubscription(theCanonicalSubscription, channelName);
 		activeSubscription.setRetryConfiguration(configuration);
+		activeSubscription.setIndexKey(resolveIndexKey(activeSubscription));
 
 		// add to our registries
 		mySubscriptionChannelRegistry.add(activeSubscription);
@@ -213,6 +226,8 @@ public class SubscriptionRegistry {
 		Validate.notNull(activeSubscription, "Subscription with ID %s not found in cache", theId.getIdPart());
 		CanonicalSubscription canonicalized = mySubscriptionCanonicalizer.canonicalize(theSubscription);
 		activeSubscription.setSubscription(canonicalized);
+		activeSubscription.setIndexKey(resolveIndexKey(activeSubscription));
+		myActiveSubscriptionCache.invalidateCandidateIndex();
 
 		// Interceptor call: SUBSCRIPTION_AFTER_ACTIVE_SUBSCRIPTION_REGISTERED
 		HookParams params = new HookParams().add(CanonicalSubscription.class, canonicalized);
@@ -231,4 +246,65 @@ public class SubscriptionRegistry {
 	public List<ActiveSubscription> getAllNonTopicSubscriptions() {
 		return myActiveSubscriptionCache.getAllNonTopicSubscriptions();
 	}
+
+	/**
+	 * Returns the active non-topic subscriptions which could match the given resource. Subscriptions
+	 * are indexed by the resource type(s) their criteria apply to, and where the criteria test for
+	 * a specific token (e.g. <code>code=http://loinc.org|1234-5</code>) or reference
+	 * (e.g. <code>subject=Patient/123</code>) value, by that value too. Subscriptions which
+	 * can't possibly match the resource are not returned, but every returned subscription still
+	 * needs to be evaluated against the resource.
+	 *
+	 * @param theResourceType The type of the modified resource
+	 * @param theResource     The modified resource. If this is <code>null</code>, candidates are
+	 *                        selected using only the resource type.
+	 * @since 8.4.0
+	 */
+	@Nonnull
+	public List<ActiveSubscription> getCandidateNonTopicSubscriptions(
+			@Nonnull String theResourceType, @Nullable IBaseResource theResource) {
+		SubscriptionCandidateIndex index = myActiveSubscriptionCache.getCandidateIndex();
+
+		SubscriptionCandidateIndex.IResourceValueKeyProvider valueKeyProvider;
+		SubscriptionCandidateKeyResolver candidateKeyResolver = getCandidateKeyResolver();
+		if (candidateKeyResolver != null) {
+			valueKeyProvider = candidateKeyResolver.newValueKeyProvider(theResourceType, theResource);
+		} else {
+			valueKeyProvider = (theParamName, theParamType) -> null;
+		}
+
+		List<ActiveSubscription> retVal = index.getCandidates(theResourceType, valueKeyProvider);
+		myMetrics.recordCandidateLookup(theResourceType, retVal.size(), index.size());
+		ourLog.trace(
+				"Found {} candidate subscriptions for {} out of {} active",
+				retVal.size(),
+				theResourceType,
+				index.size());
+		return retVal;
+	}
+
+	/**
+	 * @since 8.4.0
+	 */
+	public SubscriptionRegistryMetrics getMetrics() {
+		return myMetrics;
+	}
+
+	@Nullable
+	private SubscriptionCandidateIndex.IndexKey resolveIndexKey(ActiveSubscription theActiveSubscription) {
+		SubscriptionCandidateKeyResolver candidateKeyResolver = getCandidateKeyResolver();
+		if (candidateKeyResolver == null) {
+			return null;
+		}
+		return candidateKeyResolver.resolveIndexKey(theActiveSubscription.getCriteria());
+	}
+
+	@Nullable
+	private SubscriptionCandidateKeyResolver getCandidateKeyResolver() {
+		if (myCandidateKeyResolver == null && mySearchParamRegistry != null && mySearchParamExtractor != null) {
+			myCandidateKeyResolver =
+					new SubscriptionCandidateKeyResolver(mySearchParamRegistry, mySearchParamExtractor);
+		}
+		return myCandidateKeyResolver;
+	}
 }
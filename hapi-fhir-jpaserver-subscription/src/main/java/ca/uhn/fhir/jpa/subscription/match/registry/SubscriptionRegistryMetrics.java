@@ -0,0 +1,116 @@
+/*-
+ * #%L
+ * HAPI FHIR Subscription Server
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.subscription.match.registry;
+
+import ca.uhn.fhir.rest.api.Constants;
+import io.opentelemetry.api.GlobalOpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.LongHistogram;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.opentelemetry.api.common.AttributeKey.stringKey;
+
+/**
+ * Records the size of the candidate subscription sets produced by the {@link SubscriptionRegistry}
+ * index. Values are published as OpenTelemetry metrics, and running totals are also available
+ * directly from this object.
+ */
+public class SubscriptionRegistryMetrics {
+
+	public static final String CLASS_OPENTELEMETRY_BASE_NAME =
+			Constants.OPENTELEMETRY_BASE_NAME + ".subscription_registry";
+	public static final String CANDIDATE_SET_SIZE = CLASS_OPENTELEMETRY_BASE_NAME + ".candidate_set_size";
+	static final String INSTRUMENTATION_NAME = CLASS_OPENTELEMETRY_BASE_NAME;
+	private static final AttributeKey<String> RESOURCE_TYPE = stringKey(INSTRUMENTATION_NAME + ".resource_type");
+
+	private volatile LongHistogram myCandidateSetSize;
+	private final AtomicLong myLookupCount = new AtomicLong();
+	private final AtomicLong myCandidateCount = new AtomicLong();
+	private final AtomicLong myActiveSubscriptionCount = new AtomicLong();
+	private final AtomicLong myMaxCandidateSetSize = new AtomicLong();
+
+	void recordCandidateLookup(String theResourceType, int theCandidateCount, int theActiveSubscriptionCount) {
+		myLookupCount.incrementAndGet();
+		myCandidateCount.addAndGet(theCandidateCount);
+		myActiveSubscriptionCount.addAndGet(theActiveSubscriptionCount);
+		myMaxCandidateSetSize.accumulateAndGet(theCandidateCount, Math::max);
+		getCandidateSetSizeHistogram().record(theCandidateCount, Attributes.of(RESOURCE_TYPE, theResourceType));
+	}
+
+	/**
+	 * The histogram is created on first use rather than at construction time, so that
+	 * the global OpenTelemetry instance isn't initialized before the application has had
+	 * a chance to configure it.
+	 */
+	private LongHistogram getCandidateSetSizeHistogram() {
+		LongHistogram retVal = myCandidateSetSize;
+		if (retVal == null) {
+			retVal = GlobalOpenTelemetry.get()
+					.getMeter(INSTRUMENTATION_NAME)
+					.histogramBuilder(CANDIDATE_SET_SIZE)
+					.ofLongs()
+					.setUnit("{subscriptions}")
+					.setDescription("The number of subscriptions evaluated for a modified resource.")
+					.build();
+			myCandidateSetSize = retVal;
+		}
+		return retVal;
+	}
+
+	/**
+	 * @return The number of candidate lookups performed
+	 */
+	public long getLookupCount() {
+		return myLookupCount.get();
+	}
+
+	/**
+	 * @return The total number of candidate subscriptions returned across all lookups
+	 */
+	public long getCandidateCount() {
+		return myCandidateCount.get();
+	}
+
+	/**
+	 * @return The total number of active non-topic subscriptions at the time of each lookup, summed
+	 * 		across all lookups. Comparing this with {@link #getCandidateCount()} shows how many
+	 * 		subscription evaluations the index avoided.
+	 */
+	public long getActiveSubscriptionCount() {
+		return myActiveSubscriptionCount.get();
+	}
+
+	/**
+	 * @return The largest candidate set returned by any lookup
+	 */
+	public long getMaxCandidateSetSize() {
+		return myMaxCandidateSetSize.get();
+	}
+
+	/**
+	 * @return The mean candidate set size, or 0 if no lookups have been performed
+	 */
+	public double getMeanCandidateSetSize() {
+		long lookups = myLookupCount.get();
+		return lookups == 0 ? 0 : (double) myCandidateCount.get() / lookups;
+	}
+}
@@ -0,0 +1,173 @@
+package ca.uhn.fhir.jpa.subscription.match.registry;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.interceptor.api.IInterceptorBroadcaster;
+import ca.uhn.fhir.jpa.model.config.PartitionSettings;
+import ca.uhn.fhir.jpa.model.config.SubscriptionSettings;
+import ca.uhn.fhir.jpa.model.entity.StorageSettings;
+import ca.uhn.fhir.jpa.searchparam.extractor.ISearchParamExtractor;
+import ca.uhn.fhir.jpa.searchparam.extractor.SearchParamExtractorR4;
+import ca.uhn.fhir.jpa.subscription.channel.subscription.ISubscriptionDeliveryChannelNamer;
+import ca.uhn.fhir.jpa.subscription.channel.subscription.SubscriptionChannelRegistry;
+import ca.uhn.fhir.jpa.subscription.model.CanonicalSubscription;
+import ca.uhn.fhir.rest.server.util.FhirContextSearchParamRegistry;
+import ca.uhn.fhir.rest.server.util.ISearchParamRegistry;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.Reference;
+import org.hl7.fhir.r4.model.Subscription;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@ExtendWith(MockitoExtension.class)
+public class SubscriptionRegistryCandidateIndexTest {
+	private static final FhirContext ourFhirContext = FhirContext.forR4Cached();
+	private static final FhirContextSearchParamRegistry ourSearchParamRegistry = new FhirContextSearchParamRegistry(ourFhirContext);
+
+	@Spy
+	SubscriptionCanonicalizer mySubscriptionCanonicalizer = new SubscriptionCanonicalizer(ourFhirContext, new SubscriptionSettings(), new PartitionSettings());
+
+	@Spy
+	ISubscriptionDeliveryChannelNamer mySubscriptionDeliveryChannelNamer = new TestChannelNamer();
+
+	@Spy
+	ISearchParamRegistry mySearchParamRegistry = ourSearchParamRegistry;
+
+	@Spy
+	ISearchParamExtractor mySearchParamExtractor = new SearchParamExtractorR4(new StorageSettings(), new PartitionSettings(), ourFhirContext, ourSearchParamRegistry);
+
+	@Mock
+	SubscriptionChannelRegistry mySubscriptionChannelRegistry;
+
+	@Mock
+	IInterceptorBroadcaster myInterceptorBroadcaster;
+
+	@InjectMocks
+	SubscriptionRegistry mySubscriptionRegistry;
+
+	@Test
+	public void testTokenCriteria() {
+		register("loinc-1234", "Observation?code=http://loinc.org|1234-5");
+		register("any-system-1234", "Observation?code=1234-5");
+		register("loinc-9999", "Observation?status=final&code=http://loinc.org|9999-9");
+		register("system-only", "Observation?code=http://loinc.org|");
+		register("modifier", "Observation?code:not=http://loinc.org|1234-5");
+		register("special-param", "Observation?_id=123");
+		register("patient", "Patient?active=true");
+		register("star", "[*]");
+		register("multitype", "[Observation,Patient]");
+
+		Observation obs = new Observation();
+		obs.setStatus(Observation.ObservationStatus.FINAL);
+		obs.getCode().addCoding().setSystem("http://loinc.org").setCode("1234-5");
+
+		List<String> candidates = getCandidateIds("Observation", obs);
+		assertThat(candidates).containsExactlyInAnyOrder("loinc-1234", "any-system-1234", "system-only", "modifier", "special-param", "star", "multitype");
+		assertEquals(9, mySubscriptionRegistry.size());
+	}
+
+	@Test
+	public void testReferenceCriteria() {
+		register("patient-123", "Observation?subject=Patient/123");
+		register("patient-456", "Observation?subject=Patient/456,Patient/789");
+		register("untyped", "Observation?subject=123");
+
+		Observation obs = new Observation();
+		obs.setSubject(new Reference("Patient/789/_history/2"));
+		assertThat(getCandidateIds("Observation", obs)).containsExactlyInAnyOrder("patient-456", "untyped");
+
+		obs.setSubject(new Reference("http://example.com/fhir/Patient/123"));
+		assertThat(getCandidateIds("Observation", obs)).containsExactlyInAnyOrder("patient-123", "patient-456", "untyped");
+
+		obs.setSubject(null);
+		assertThat(getCandidateIds("Observation", obs)).containsExactlyInAnyOrder("untyped");
+	}
+
+	@Test
+	public void testNoResource() {
+		register("loinc-1234", "Observation?code=http://loinc.org|1234-5");
+		register("patient-123", "Observation?subject=Patient/123");
+		register("patient", "Patient?active=true");
+
+		assertThat(getCandidateIds("Observation", null)).containsExactlyInAnyOrder("loinc-1234", "patient-123");
+	}
+
+	@Test
+	public void testSubscriptionResourceNotMatchedByStar() {
+		register("star", "[*]");
+		register("patient", "Patient?active=true");
+
+		assertThat(getCandidateIds("Subscription", new Subscription())).isEmpty();
+		assertThat(getCandidateIds("Patient", new Patient().setActive(true))).containsExactlyInAnyOrder("star", "patient");
+		assertThat(getCandidateIds("Patient", new Patient().setActive(false))).containsExactlyInAnyOrder("star");
+	}
+
+	@Test
+	public void testIndexUpdatedWhenSubscriptionChangesOrIsRemoved() {
+		register("sub", "Observation?code=http://loinc.org|1234-5");
+
+		Observation obs = new Observation();
+		obs.getCode().addCoding().setSystem("http://loinc.org").setCode("9999-9");
+		assertThat(getCandidateIds("Observation", obs)).isEmpty();
+
+		register("sub", "Observation?code=http://loinc.org|9999-9");
+		assertThat(getCandidateIds("Observation", obs)).containsExactly("sub");
+
+		mySubscriptionRegistry.unregisterSubscriptionIfRegistered("sub");
+		assertThat(getCandidateIds("Observation", obs)).isEmpty();
+	}
+
+	@Test
+	public void testMetrics() {
+		register("loinc-1234", "Observation?code=http://loinc.org|1234-5");
+		register("loinc-9999", "Observation?code=http://loinc.org|9999-9");
+		register("patient", "Patient?active=true");
+
+		Observation obs = new Observation();
+		obs.getCode().addCoding().setSystem("http://loinc.org").setCode("1234-5");
+		getCandidateIds("Observation", obs);
+		getCandidateIds("Observation", null);
+
+		SubscriptionRegistryMetrics metrics = mySubscriptionRegistry.getMetrics();
+		assertEquals(2, metrics.getLookupCount());
+		assertEquals(3, metrics.getCandidateCount());
+		assertEquals(6, metrics.getActiveSubscriptionCount());
+		assertEquals(2, metrics.getMaxCandidateSetSize());
+		assertEquals(1.5, metrics.getMeanCandidateSetSize());
+	}
+
+	private List<String> getCandidateIds(String theResourceType, IBaseResource theResource) {
+		return mySubscriptionRegistry.getCandidateNonTopicSubscriptions(theResourceType, theResource)
+			.stream()
+			.map(ActiveSubscription::getId)
+			.toList();
+	}
+
+	private void register(String theId, String theCriteria) {
+		Subscription subscription = new Subscription();
+		subscription.setId(theId);
+		subscription.setCriteria(theCriteria);
+		subscription.setStatus(Subscription.SubscriptionStatus.ACTIVE);
+		subscription.getChannel().setType(Subscription.SubscriptionChannelType.RESTHOOK);
+		subscription.getChannel().setPayload("application/json");
+		subscription.getChannel().setEndpoint("http://unused.test.endpoint/");
+		mySubscriptionRegistry.registerSubscriptionUnlessAlreadyRegistered(subscription);
+	}
+
+	private static class TestChannelNamer implements ISubscriptionDeliveryChannelNamer {
+		@Override
+		public String nameFromSubscription(CanonicalSubscription theCanonicalSubscription) {
+			return "subscription-test";
+		}
+	}
+}
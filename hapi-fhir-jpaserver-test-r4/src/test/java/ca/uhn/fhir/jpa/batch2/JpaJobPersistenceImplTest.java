@@ -21,6 +21,7 @@ import ca.uhn.fhir.batch2.model.WorkChunkStatusEnum;
 import ca.uhn.fhir.batch2.models.JobInstanceFetchRequest;
 import ca.uhn.fhir.interceptor.api.IAnonymousInterceptor;
 import ca.uhn.fhir.interceptor.api.Pointcut;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
 import ca.uhn.fhir.jpa.dao.data.IBatch2JobInstanceRepository;
 import ca.uhn.fhir.jpa.dao.data.IBatch2WorkChunkRepository;
 import ca.uhn.fhir.jpa.entity.Batch2JobInstanceEntity;
@@ -28,6 +29,7 @@ import ca.uhn.fhir.jpa.entity.Batch2WorkChunkEntity;
 import ca.uhn.fhir.jpa.test.BaseJpaR4Test;
 import ca.uhn.fhir.jpa.test.Batch2JobHelper;
 import ca.uhn.fhir.jpa.test.config.Batch2FastSchedulerConfig;
+import ca.uhn.fhir.jpa.util.SqlQuery;
 import ca.uhn.fhir.testjob.TestJobDefinitionUtils;
 import ca.uhn.fhir.testjob.models.FirstStepOutput;
 import ca.uhn.fhir.util.JsonUtil;
@@ -38,6 +40,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterators;
 import jakarta.annotation.Nonnull;
 import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.MethodOrderer;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -67,6 +70,10 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -544,6 +551,116 @@ public class JpaJobPersistenceImplTest extends BaseJpaR4Test {
 		}
 	}
 
+	/**
+	 * Runs the specification tests again with work chunk group commit enabled.
+	 */
+	@Nested
+	class Batch2SpecWithGroupCommitTest extends AbstractIJobPersistenceSpecificationTest {
+
+		@BeforeEach
+		public void enableGroupCommit() {
+			myStorageSettings.setWorkChunkGroupCommitWindowMillis(10);
+		}
+
+		@AfterEach
+		public void disableGroupCommit() {
+			myStorageSettings.setWorkChunkGroupCommitWindowMillis(new JpaStorageSettings().getWorkChunkGroupCommitWindowMillis());
+		}
+
+		@Override
+		public PlatformTransactionManager getTxManager() {
+			return JpaJobPersistenceImplTest.this.getTxManager();
+		}
+
+		@Override
+		public WorkChunk freshFetchWorkChunk(String chunkId) {
+			return JpaJobPersistenceImplTest.this.freshFetchWorkChunk(chunkId);
+		}
+
+		@Override
+		public void runMaintenancePass() {
+			myBatch2JobHelper.forceRunMaintenancePass();
+		}
+	}
+
+	@Test
+	public void testGroupCommit_ConcurrentCreationsAndCompletionsAreBatched() throws Exception {
+		// Setup
+		myStorageSettings.setWorkChunkGroupCommitWindowMillis(500);
+		JobInstance instance = createInstance();
+		String instanceId = mySvc.storeNewInstance(instance);
+		int chunkCount = 8;
+		ExecutorService executor = Executors.newFixedThreadPool(chunkCount);
+		// A caller with nobody else submitting is written straight away, so start every caller together
+		CyclicBarrier barrier = new CyclicBarrier(chunkCount);
+		try {
+
+			// Test
+			myCaptureQueriesListener.clear();
+			List<Future<String>> createFutures = new ArrayList<>();
+			for (int i = 0; i < chunkCount; i++) {
+				int sequence = i;
+				createFutures.add(executor.submit(() -> {
+					barrier.await();
+					return storeWorkChunk(JOB_DEFINITION_ID, FIRST_STEP_ID, instanceId, sequence, CHUNK_DATA, false);
+				}));
+			}
+			List<String> chunkIds = new ArrayList<>();
+			for (Future<String> next : createFutures) {
+				chunkIds.add(next.get());
+			}
+			List<SqlQuery> inserts = myCaptureQueriesListener.getInsertQueries(t -> t.getSql(false, false).toUpperCase().contains("BT2_WORK_CHUNK"));
+
+			myCaptureQueriesListener.clear();
+			List<Future<?>> completeFutures = new ArrayList<>();
+			for (String chunkId : chunkIds) {
+				completeFutures.add(executor.submit(() -> {
+					barrier.await();
+					mySvc.onWorkChunkCompletion(new WorkChunkCompletionEvent(chunkId, 5, 0));
+					return null;
+				}));
+			}
+			for (Future<?> next : completeFutures) {
+				next.get();
+			}
+			List<SqlQuery> updates = myCaptureQueriesListener.getUpdateQueries(t -> t.getSql(false, false).toUpperCase().contains("BT2_WORK_CHUNK"));
+
+			// Verify
+			assertEquals(chunkCount, inserts.stream().mapToInt(SqlQuery::getSize).sum());
+			assertThat(inserts.size()).isLessThan(chunkCount);
+			assertEquals(chunkCount, updates.stream().mapToInt(SqlQuery::getSize).sum());
+			assertThat(updates.size()).isLessThan(chunkCount);
+			for (String chunkId : chunkIds) {
+				WorkChunk chunk = freshFetchWorkChunk(chunkId);
+				assertEquals(WorkChunkStatusEnum.COMPLETED, chunk.getStatus());
+				assertEquals(5, chunk.getRecordsProcessed());
+			}
+		} finally {
+			executor.shutdownNow();
+			myStorageSettings.setWorkChunkGroupCommitWindowMillis(new JpaStorageSettings().getWorkChunkGroupCommitWindowMillis());
+		}
+	}
+
+	@Test
+	public void testGroupCommit_WithinExistingTransaction_NotGrouped() {
+		// Setup
+		myStorageSettings.setWorkChunkGroupCommitWindowMillis(60000);
+		try {
+			JobInstance instance = createInstance();
+
+			// Test
+			String chunkId = runInTransaction(() -> {
+				String instanceId = mySvc.storeNewInstance(instance);
+				return storeWorkChunk(JOB_DEFINITION_ID, FIRST_STEP_ID, instanceId, 0, CHUNK_DATA, false);
+			});
+
+			// Verify
+			assertEquals(WorkChunkStatusEnum.READY, freshFetchWorkChunk(chunkId).getStatus());
+		} finally {
+			myStorageSettings.setWorkChunkGroupCommitWindowMillis(new JpaStorageSettings().getWorkChunkGroupCommitWindowMillis());
+		}
+	}
+
 	@Test
 	public void testUpdateTime() {
 		// Setup
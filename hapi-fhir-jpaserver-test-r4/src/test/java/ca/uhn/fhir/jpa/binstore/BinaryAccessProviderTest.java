@@ -12,11 +12,15 @@ import ca.uhn.fhir.jpa.api.model.DaoMethodOutcome;
 import ca.uhn.fhir.jpa.binary.api.IBinaryStorageSvc;
 import ca.uhn.fhir.jpa.binary.api.StoredDetails;
 import ca.uhn.fhir.jpa.binary.provider.BinaryAccessProvider;
+import ca.uhn.fhir.rest.api.Constants;
 import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.rest.api.server.bulk.BulkExportOutputCompressionEnum;
 import ca.uhn.fhir.rest.server.RestfulServer;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import ca.uhn.fhir.rest.server.servlet.ServletRequestDetails;
+import ca.uhn.fhir.util.BinaryUtil;
 import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.Binary;
 import org.hl7.fhir.r4.model.DocumentReference;
 import org.hl7.fhir.r4.model.StringType;
 import org.junit.jupiter.api.AfterEach;
@@ -29,18 +33,26 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -330,6 +342,140 @@ public class BinaryAccessProviderTest {
 		}
 	}
 
+	@Test
+	public void testBinaryAccessRead_CompressedBinary_EncodingAccepted() throws IOException {
+		byte[] compressed = compress(BulkExportOutputCompressionEnum.ZSTD, SOME_BYTES);
+		Binary binary = createCompressedBinary(BulkExportOutputCompressionEnum.ZSTD, compressed);
+		ServletRequestDetails requestDetails = createRequestDetailsWithAcceptEncoding("gzip, zstd");
+
+		ByteArrayOutputStream written = new ByteArrayOutputStream();
+		when(myDaoRegistry.getResourceDao(eq("Binary"))).thenReturn(myResourceDao);
+		when(myResourceDao.read(any(), any(), anyBoolean())).thenReturn(binary);
+		when(theServletResponse.getOutputStream()).thenReturn(newServletOutputStream(written));
+
+		myBinaryAccessProvider.binaryAccessRead(binary.getIdElement(), new StringType("Binary"), requestDetails, theServletRequest, theServletResponse);
+
+		verify(theServletResponse, times(1)).addHeader(Constants.HEADER_CONTENT_ENCODING, "zstd");
+		verify(theServletResponse, times(1)).setContentLength(compressed.length);
+		assertThat(written.toByteArray()).containsExactly(compressed);
+	}
+
+	@Test
+	public void testBinaryAccessRead_CompressedBinary_EncodingNotAccepted() throws IOException {
+		byte[] compressed = compress(BulkExportOutputCompressionEnum.ZSTD, SOME_BYTES);
+		Binary binary = createCompressedBinary(BulkExportOutputCompressionEnum.ZSTD, compressed);
+		ServletRequestDetails requestDetails = createRequestDetailsWithAcceptEncoding("gzip");
+
+		ByteArrayOutputStream written = new ByteArrayOutputStream();
+		when(myDaoRegistry.getResourceDao(eq("Binary"))).thenReturn(myResourceDao);
+		when(myResourceDao.read(any(), any(), anyBoolean())).thenReturn(binary);
+		when(theServletResponse.getOutputStream()).thenReturn(newServletOutputStream(written));
+
+		myBinaryAccessProvider.binaryAccessRead(binary.getIdElement(), new StringType("Binary"), requestDetails, theServletRequest, theServletResponse);
+
+		verify(theServletResponse, never()).addHeader(eq(Constants.HEADER_CONTENT_ENCODING), any());
+		verify(theServletResponse, times(1)).setContentLength(SOME_BYTES.length);
+		assertThat(written.toByteArray()).containsExactly(SOME_BYTES);
+	}
+
+	@Test
+	public void testBinaryAccessRead_CompressedBinaryBlob_EncodingAccepted() throws IOException {
+		Binary binary = createCompressedBinary(BulkExportOutputCompressionEnum.GZIP, null);
+		ServletRequestDetails requestDetails = createRequestDetailsWithAcceptEncoding("gzip");
+
+		StoredDetails blobDetails = new StoredDetails();
+		blobDetails.setBytes(20);
+		blobDetails.setPublished(new Date());
+		when(myDaoRegistry.getResourceDao(eq("Binary"))).thenReturn(myResourceDao);
+		when(myResourceDao.read(any(), any(), anyBoolean())).thenReturn(binary);
+		when(myBinaryStorageSvc.fetchBinaryContentDetails(any(), any())).thenReturn(blobDetails);
+		when(theServletResponse.getOutputStream()).thenReturn(newServletOutputStream(new ByteArrayOutputStream()));
+		myBinaryAccessProvider.setTargetAttachmentIdForUnitTest(true);
+
+		myBinaryAccessProvider.binaryAccessRead(binary.getIdElement(), new StringType("Binary"), requestDetails, theServletRequest, theServletResponse);
+
+		verify(theServletResponse, times(1)).addHeader(Constants.HEADER_CONTENT_ENCODING, "gzip");
+		verify(theServletResponse, times(1)).setContentLength(20);
+		verify(myBinaryStorageSvc, times(1)).writeBinaryContent(any(), eq("1"), any());
+		verify(myBinaryStorageSvc, never()).fetchBinaryContent(any(), any());
+	}
+
+	@Test
+	public void testBinaryAccessRead_CompressedBinaryBlob_EncodingNotAccepted() throws IOException {
+		byte[] compressed = compress(BulkExportOutputCompressionEnum.GZIP, SOME_BYTES);
+		Binary binary = createCompressedBinary(BulkExportOutputCompressionEnum.GZIP, null);
+		ServletRequestDetails requestDetails = createRequestDetailsWithAcceptEncoding(null);
+
+		StoredDetails blobDetails = new StoredDetails();
+		blobDetails.setBytes(compressed.length);
+		blobDetails.setPublished(new Date());
+		ByteArrayOutputStream written = new ByteArrayOutputStream();
+		when(myDaoRegistry.getResourceDao(eq("Binary"))).thenReturn(myResourceDao);
+		when(myResourceDao.read(any(), any(), anyBoolean())).thenReturn(binary);
+		when(myBinaryStorageSvc.fetchBinaryContentDetails(any(), any())).thenReturn(blobDetails);
+		when(myBinaryStorageSvc.fetchBinaryContent(any(), eq("1"))).thenReturn(compressed);
+		when(theServletResponse.getOutputStream()).thenReturn(newServletOutputStream(written));
+		myBinaryAccessProvider.setTargetAttachmentIdForUnitTest(true);
+
+		myBinaryAccessProvider.binaryAccessRead(binary.getIdElement(), new StringType("Binary"), requestDetails, theServletRequest, theServletResponse);
+
+		verify(theServletResponse, never()).addHeader(eq(Constants.HEADER_CONTENT_ENCODING), any());
+		verify(theServletResponse, never()).setContentLength(anyInt());
+		verify(myBinaryStorageSvc, never()).writeBinaryContent(any(), any(), any());
+		assertThat(written.toByteArray()).containsExactly(SOME_BYTES);
+	}
+
+	private Binary createCompressedBinary(BulkExportOutputCompressionEnum theCompression, byte[] theContent) {
+		Binary binary = new Binary();
+		binary.setId("Binary/123");
+		binary.setContentType(Constants.CT_FHIR_NDJSON);
+		binary.setData(theContent);
+		BinaryUtil.setContentEncoding(myCtx, binary, theCompression.getContentEncoding());
+		return binary;
+	}
+
+	private ServletRequestDetails createRequestDetailsWithAcceptEncoding(String theAcceptEncoding) {
+		HttpServletRequest servletRequest = mock(HttpServletRequest.class);
+		ServletRequestDetails retVal = new ServletRequestDetails(myInterceptorBroadcaster);
+		retVal.setServletRequest(servletRequest);
+
+		List<String> acceptEncoding = theAcceptEncoding == null ? List.of() : List.of(theAcceptEncoding);
+		when(servletRequest.getHeaders(Constants.HEADER_ACCEPT_ENCODING))
+			.thenAnswer(t -> Collections.enumeration(acceptEncoding));
+
+		RestfulServer server = spy(RestfulServer.class);
+		server.setFhirContext(myCtx);
+		retVal.setServer(server);
+		return retVal;
+	}
+
+	private static byte[] compress(BulkExportOutputCompressionEnum theCompression, byte[] theContent) throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		try (OutputStream compressingStream = theCompression.newCompressingStream(outputStream)) {
+			compressingStream.write(theContent);
+		}
+		return outputStream.toByteArray();
+	}
+
+	private static ServletOutputStream newServletOutputStream(ByteArrayOutputStream theTarget) {
+		return new ServletOutputStream() {
+			@Override
+			public boolean isReady() {
+				return true;
+			}
+
+			@Override
+			public void setWriteListener(WriteListener theWriteListener) {
+				// nothing
+			}
+
+			@Override
+			public void write(int theByte) {
+				theTarget.write(theByte);
+			}
+		};
+	}
+
 	private DocumentReference createDocRef() {
 		DocumentReference docRef = new DocumentReference();
 		DocumentReference.DocumentReferenceContentComponent content = docRef.addContent();
@@ -2,9 +2,11 @@ package ca.uhn.fhir.jpa.binstore;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.i18n.Msg;
 import ca.uhn.fhir.interceptor.executor.InterceptorService;
+import ca.uhn.fhir.jpa.binary.api.BinaryContentOutputStream;
 import ca.uhn.fhir.jpa.binary.api.StoredDetails;
 import ca.uhn.fhir.rest.server.exceptions.PayloadTooLargeException;
 import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
@@ -121,6 +123,53 @@ public class FilesystemBinaryStorageSvcImplTest {
 	}
 
 
+	@Test
+	public void testStoreAndRetrieveStreamed() throws IOException {
+		IIdType id = new IdType("Binary/123");
+		String contentType = "image/png";
+		StoredDetails outcome;
+		try (BinaryContentOutputStream stream = mySvc.newBinaryContentOutputStream(id, null, contentType, new ServletRequestDetails())) {
+			stream.write(SOME_BYTES, 0, 8);
+			stream.write(SOME_BYTES, 8, 8);
+			assertEquals(16L, stream.getByteCount());
+			outcome = stream.complete();
+		}
+
+		StoredDetails details = mySvc.fetchBinaryContentDetails(id, outcome.getBinaryContentId());
+		assertEquals(16L, details.getBytes());
+		assertEquals("image/png", details.getContentType());
+		assertEquals("dc7197cfab936698bef7818975c185a9b88b71a0a0a2493deea487706ddf20cb", details.getHash());
+		assertNotNull(details.getPublished());
+		assertThat(mySvc.fetchBinaryContent(id, outcome.getBinaryContentId())).containsExactly(SOME_BYTES);
+	}
+
+	@Test
+	public void testStreamedClosedWithoutCompleteIsDiscarded() throws IOException {
+		IIdType id = new IdType("Binary/123");
+		String blobId = "ABCDEFGHIJKLMNOPQRSTUV";
+		try (BinaryContentOutputStream stream = mySvc.newBinaryContentOutputStream(id, blobId, "image/png", new ServletRequestDetails())) {
+			stream.write(SOME_BYTES);
+		}
+
+		assertNull(mySvc.fetchBinaryContentDetails(id, blobId));
+		ByteArrayOutputStream capture = new ByteArrayOutputStream();
+		mySvc.writeBinaryContent(id, blobId, capture);
+		assertEquals(0, capture.size());
+	}
+
+	@Test
+	public void testRejectOversizedStreamed() throws IOException {
+		mySvc.setMaximumBinarySize(5);
+
+		IIdType id = new IdType("Binary/123");
+		try (BinaryContentOutputStream stream = mySvc.newBinaryContentOutputStream(id, null, "image/png", new ServletRequestDetails())) {
+			stream.write(SOME_BYTES);
+			fail();
+		} catch (PayloadTooLargeException e) {
+			assertThat(e.getMessage()).startsWith(Msg.code(2743));
+		}
+	}
+
 	@Test
 	public void testFetchBinaryContentUnknown() throws IOException {
 		try {
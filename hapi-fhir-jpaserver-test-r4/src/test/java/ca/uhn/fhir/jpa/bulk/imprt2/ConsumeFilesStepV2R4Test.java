@@ -2,8 +2,10 @@ package ca.uhn.fhir.jpa.bulk.imprt2;
 
 import ca.uhn.fhir.batch2.jobs.imprt.ConsumeFilesStepV2;
 import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
 import ca.uhn.fhir.jpa.dao.TransactionUtil;
 import ca.uhn.fhir.jpa.dao.r4.BasePartitioningR4Test;
+import ca.uhn.fhir.jpa.model.entity.ResourceIndexedSearchParamToken;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.r4.model.IdType;
 import org.hl7.fhir.r4.model.Patient;
@@ -18,6 +20,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -208,6 +211,49 @@ public class ConsumeFilesStepV2R4Test extends BasePartitioningR4Test {
 
 	}
 
+	@ParameterizedTest
+	@ValueSource(booleans = {false, true})
+	public void testNotAlreadyExisting_IndexRowBulkInsertEnabled(boolean partitionEnabled) {
+		// Setup
+		myStorageSettings.setIndexRowBulkInsertEnabled(true);
+		if (partitionEnabled) {
+			myPartitionSettings.setPartitioningEnabled(true);
+		}
+
+		List<IBaseResource> resources = new ArrayList<>();
+		for (String id : List.of("A", "B")) {
+			Patient patient = new Patient();
+			patient.setId(id);
+			patient.setActive(true);
+			patient.addName().setFamily("Family " + id);
+			patient.addIdentifier().setSystem("http://foo").setValue(id);
+			resources.add(patient);
+		}
+
+		// Execute
+		myCaptureQueriesListener.clear();
+		try {
+			mySvc.storeResources(resources, partitionEnabled ? myRequestPartitionId : null);
+		} finally {
+			myStorageSettings.setIndexRowBulkInsertEnabled(new JpaStorageSettings().isIndexRowBulkInsertEnabled());
+		}
+
+		// Validate
+		String tokenInserts = myCaptureQueriesListener.getInsertQueriesForCurrentThread().stream()
+			.map(t -> t.getSql(false, false))
+			.filter(t -> t.contains("HFJ_SPIDX_TOKEN"))
+			.collect(Collectors.joining("\n"));
+		assertThat(tokenInserts).containsOnlyOnce("INSERT INTO").contains("), (");
+
+		Integer expectedPartitionId = partitionEnabled ? 1 : null;
+		runInTransaction(() -> {
+			List<ResourceIndexedSearchParamToken> tokens = myResourceIndexedSearchParamTokenDao.findAll();
+			assertThat(tokens).isNotEmpty();
+			assertThat(tokens).allMatch(t -> Objects.equals(expectedPartitionId, t.getPartitionId().getPartitionId()));
+			assertThat(tokens).extracting(t -> t.getResourcePid()).doesNotContainNull();
+		});
+	}
+
 	@Test
 	public void testNotAlreadyExisting_InvalidIdForStorage() {
 		// Setup
@@ -17,6 +17,7 @@ import ca.uhn.fhir.jpa.model.config.PartitionSettings;
 import ca.uhn.fhir.jpa.partition.IRequestPartitionHelperSvc;
 import ca.uhn.fhir.jpa.search.ResourceSearchUrlSvc;
 import ca.uhn.fhir.jpa.searchparam.MatchUrlService;
+import ca.uhn.fhir.jpa.searchparam.extractor.SearchParamExtractorService;
 import ca.uhn.fhir.jpa.searchparam.matcher.InMemoryResourceMatcher;
 import ca.uhn.fhir.jpa.searchparam.matcher.SearchParamMatcher;
 import ca.uhn.fhir.jpa.util.MemoryCacheService;
@@ -110,6 +111,10 @@ public class TransactionProcessorTest {
 	private ResourceSearchUrlSvc myResourceSearchUrlSvc;
 	@MockBean
 	private MemoryCacheService myMemoryCacheService;
+	@MockBean
+	private SearchParamExtractorService mySearchParamExtractorService;
+	@MockBean
+	private ResourceHistoryCalculator myResourceHistoryCalculator;
 	@Autowired
 	private IFhirResourceDao<Patient> myPatientDao;
 	@Autowired
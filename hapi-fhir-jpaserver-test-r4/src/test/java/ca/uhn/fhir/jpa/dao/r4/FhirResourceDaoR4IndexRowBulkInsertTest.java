@@ -0,0 +1,198 @@
+package ca.uhn.fhir.jpa.dao.r4;
+
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.model.util.JpaConstants;
+import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
+import ca.uhn.fhir.jpa.test.BaseJpaR4Test;
+import ca.uhn.fhir.jpa.util.SqlQuery;
+import ca.uhn.fhir.model.api.IQueryParameterType;
+import ca.uhn.fhir.rest.api.server.SystemRequestDetails;
+import ca.uhn.fhir.rest.param.DateParam;
+import ca.uhn.fhir.rest.param.QuantityParam;
+import ca.uhn.fhir.rest.param.ReferenceParam;
+import ca.uhn.fhir.rest.param.StringParam;
+import ca.uhn.fhir.rest.param.TokenParam;
+import org.hl7.fhir.instance.model.api.IIdType;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.DateTimeType;
+import org.hl7.fhir.r4.model.Enumerations;
+import org.hl7.fhir.r4.model.IdType;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.Quantity;
+import org.hl7.fhir.r4.model.Reference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class FhirResourceDaoR4IndexRowBulkInsertTest extends BaseJpaR4Test {
+
+	@BeforeEach
+	public void beforeEach() {
+		myStorageSettings.setIndexRowBulkInsertEnabled(true);
+	}
+
+	@AfterEach
+	public void afterEach() {
+		myStorageSettings.setIndexRowBulkInsertEnabled(new JpaStorageSettings().isIndexRowBulkInsertEnabled());
+	}
+
+	@Test
+	public void testCreate_BulkInsertEnabled() {
+		// Setup
+		IIdType patientId = createPatient(withFamily("Simpson"), withActiveTrue());
+		SystemRequestDetails requestDetails = newBulkRequestDetails();
+
+		// Test
+		myCaptureQueriesListener.clear();
+		List<IIdType> ids = runInTransaction(() -> List.of(
+			myObservationDao.create(newObservation(patientId, "1"), requestDetails).getId(),
+			myObservationDao.create(newObservation(patientId, "2"), requestDetails).getId(),
+			myObservationDao.create(newObservation(patientId, "3"), requestDetails).getId(),
+			myPatientDao.create(newPatient("Quote \"value\", with comma"), requestDetails).getId()));
+
+		// Verify
+		List<SqlQuery> tokenInserts = getInsertQueries("HFJ_SPIDX_TOKEN");
+		assertEquals(1, tokenInserts.size());
+		assertThat(tokenInserts.get(0).getSql(false, false)).contains("VALUES (?").contains("), (?");
+		assertEquals(1, getInsertQueries("HFJ_RES_LINK").size());
+		assertEquals(1, getInsertQueries("HFJ_SPIDX_DATE").size());
+		assertEquals(1, getInsertQueries("HFJ_SPIDX_QUANTITY").size());
+
+		runInTransaction(() -> {
+			// Observation.subject is indexed by both the subject and patient search parameters
+			assertEquals(6, myResourceLinkDao.findAll().size());
+			assertThat(myResourceIndexedSearchParamTokenDao.findAll())
+				.allMatch(t -> t.getId() != null && t.getResourcePid() != null);
+		});
+
+		assertThat(searchObservations("code", new TokenParam("http://loinc.org", "2"))).containsExactly(ids.get(1).toUnqualifiedVersionless().getValue());
+		assertThat(searchObservations("subject", new ReferenceParam(patientId.getValue()))).hasSize(3);
+		assertThat(searchObservations("date", new DateParam("2024-02-03"))).hasSize(3);
+		assertThat(searchObservations("value-quantity", new QuantityParam("gt1.0"))).hasSize(3);
+		SearchParameterMap map = SearchParameterMap.newSynchronous(Patient.SP_FAMILY, new StringParam("Quote \"value\", with comma", true));
+		assertThat(toUnqualifiedVersionlessIdValues(myPatientDao.search(map, mySrd))).containsExactly(ids.get(3).toUnqualifiedVersionless().getValue());
+	}
+
+	@Test
+	public void testCreate_RequestNotFlagged() {
+		// Setup
+		IIdType patientId = createPatient(withFamily("Simpson"));
+
+		// Test
+		myCaptureQueriesListener.clear();
+		runInTransaction(() -> {
+			myObservationDao.create(newObservation(patientId, "1"), new SystemRequestDetails());
+			myObservationDao.create(newObservation(patientId, "2"), new SystemRequestDetails());
+		});
+
+		// Verify
+		List<SqlQuery> tokenInserts = getInsertQueries("HFJ_SPIDX_TOKEN");
+		assertThat(tokenInserts).isNotEmpty();
+		assertThat(tokenInserts).noneMatch(t -> t.getSql(false, false).contains("), ("));
+		assertThat(searchObservations("subject", new ReferenceParam(patientId.getValue()))).hasSize(2);
+	}
+
+	@Test
+	public void testCreateThenUpdateInSameTransaction() {
+		// Setup
+		IIdType patientId = createPatient(withFamily("Simpson"));
+		SystemRequestDetails requestDetails = newBulkRequestDetails();
+
+		// Test
+		IIdType id = runInTransaction(() -> {
+			Observation obs = newObservation(patientId, "1");
+			obs.setId("Observation/A");
+			myObservationDao.update(obs, requestDetails);
+			obs = newObservation(patientId, "2");
+			obs.setId("Observation/A");
+			return myObservationDao.update(obs, requestDetails).getId();
+		});
+
+		// Verify
+		assertEquals("2", id.getVersionIdPart());
+		assertThat(searchObservations("code", new TokenParam("http://loinc.org", "1"))).isEmpty();
+		assertThat(searchObservations("code", new TokenParam("http://loinc.org", "2"))).containsExactly("Observation/A");
+		assertThat(searchObservations("subject", new ReferenceParam(patientId.getValue()))).containsExactly("Observation/A");
+	}
+
+	@Test
+	public void testCreateThenDeleteInSameTransaction() {
+		// Setup
+		IIdType patientId = createPatient(withFamily("Simpson"));
+		SystemRequestDetails requestDetails = newBulkRequestDetails();
+
+		// Test
+		runInTransaction(() -> {
+			IIdType id = myObservationDao.create(newObservation(patientId, "1"), requestDetails).getId();
+			myObservationDao.delete(id.toUnqualifiedVersionless(), requestDetails);
+		});
+
+		// Verify
+		assertThat(searchObservations("subject", new ReferenceParam(patientId.getValue()))).isEmpty();
+		runInTransaction(() -> assertEquals(0, myResourceLinkDao.findAll().size()));
+	}
+
+	@Test
+	public void testTransactionBundle() {
+		// Setup
+		Bundle bundle = new Bundle();
+		bundle.setType(Bundle.BundleType.TRANSACTION);
+		Patient patient = newPatient("Simpson");
+		patient.setId("urn:uuid:patient");
+		bundle.addEntry().setFullUrl(patient.getId()).setResource(patient).getRequest().setMethod(Bundle.HTTPVerb.POST).setUrl("Patient");
+		for (int i = 0; i < 5; i++) {
+			Observation obs = new Observation();
+			obs.getCode().addCoding().setSystem("http://loinc.org").setCode("code" + i);
+			obs.setSubject(new Reference("urn:uuid:patient"));
+			bundle.addEntry().setResource(obs).getRequest().setMethod(Bundle.HTTPVerb.POST).setUrl("Observation");
+		}
+
+		// Test
+		myCaptureQueriesListener.clear();
+		Bundle response = mySystemDao.transaction(newBulkRequestDetails(), bundle);
+
+		// Verify
+		String patientId = new IdType(response.getEntry().get(0).getResponse().getLocation()).toUnqualifiedVersionless().getValue();
+		assertThat(searchObservations("subject", new ReferenceParam(patientId))).hasSize(5);
+		assertThat(searchObservations("subject", new ReferenceParam("name", "Simpson"))).hasSize(5);
+		assertEquals(1, getInsertQueries("HFJ_RES_LINK").size());
+	}
+
+	private List<SqlQuery> getInsertQueries(String theTable) {
+		return myCaptureQueriesListener.getInsertQueries(t -> t.getSql(false, false).contains(" " + theTable + " "));
+	}
+
+	private List<String> searchObservations(String theParamName, IQueryParameterType theParam) {
+		SearchParameterMap map = SearchParameterMap.newSynchronous(theParamName, theParam);
+		return toUnqualifiedVersionlessIdValues(myObservationDao.search(map, mySrd));
+	}
+
+	private static SystemRequestDetails newBulkRequestDetails() {
+		SystemRequestDetails retVal = new SystemRequestDetails();
+		retVal.getUserData().put(JpaConstants.BULK_INDEX_ROW_INSERT, Boolean.TRUE);
+		return retVal;
+	}
+
+	private static Patient newPatient(String theFamily) {
+		Patient patient = new Patient();
+		patient.addName().setFamily(theFamily);
+		patient.setGender(Enumerations.AdministrativeGender.FEMALE);
+		return patient;
+	}
+
+	private static Observation newObservation(IIdType thePatientId, String theCode) {
+		Observation obs = new Observation();
+		obs.setStatus(Observation.ObservationStatus.FINAL);
+		obs.getCode().addCoding().setSystem("http://loinc.org").setCode(theCode);
+		obs.setSubject(new Reference(thePatientId.toUnqualifiedVersionless()));
+		obs.setEffective(new DateTimeType("2024-02-03T10:11:12Z"));
+		obs.setValue(new Quantity().setValue(Double.parseDouble("1." + theCode)).setSystem("http://unitsofmeasure.org").setCode("mg"));
+		return obs;
+	}
+}
@@ -0,0 +1,162 @@
+package ca.uhn.fhir.jpa.dao.r4;
+
+import ca.uhn.fhir.interceptor.api.Hook;
+import ca.uhn.fhir.interceptor.api.Interceptor;
+import ca.uhn.fhir.interceptor.api.Pointcut;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.model.search.IncludeLoadDetails;
+import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
+import ca.uhn.fhir.jpa.test.BaseJpaR4Test;
+import ca.uhn.fhir.model.api.Include;
+import ca.uhn.fhir.rest.api.server.IBundleProvider;
+import ca.uhn.fhir.rest.param.TokenParam;
+import org.hl7.fhir.instance.model.api.IIdType;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Organization;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.Practitioner;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FhirResourceDaoR4SearchIncludeParallelTest extends BaseJpaR4Test {
+
+	private final IncludeLoadedInterceptor myIncludeLoadedInterceptor = new IncludeLoadedInterceptor();
+	private IIdType myOrgId;
+	private IIdType myParentOrgId;
+	private IIdType myPractitionerId;
+	private IIdType myPatientId;
+	private IIdType myObservationId;
+
+	@BeforeEach
+	public void beforeEach() {
+		myInterceptorRegistry.registerInterceptor(myIncludeLoadedInterceptor);
+
+		Organization parentOrg = new Organization();
+		parentOrg.setName("Parent");
+		myParentOrgId = myOrganizationDao.create(parentOrg, mySrd).getId().toUnqualifiedVersionless();
+
+		Organization org = new Organization();
+		org.setName("Child");
+		org.getPartOf().setReferenceElement(myParentOrgId);
+		myOrgId = myOrganizationDao.create(org, mySrd).getId().toUnqualifiedVersionless();
+
+		Practitioner practitioner = new Practitioner();
+		practitioner.addName().setFamily("Smith");
+		myPractitionerId = myPractitionerDao.create(practitioner, mySrd).getId().toUnqualifiedVersionless();
+
+		Patient patient = new Patient();
+		patient.setActive(true);
+		patient.getManagingOrganization().setReferenceElement(myOrgId);
+		patient.addGeneralPractitioner().setReferenceElement(myPractitionerId);
+		myPatientId = myPatientDao.create(patient, mySrd).getId().toUnqualifiedVersionless();
+
+		Observation obs = new Observation();
+		obs.getSubject().setReferenceElement(myPatientId);
+		myObservationId = myObservationDao.create(obs, mySrd).getId().toUnqualifiedVersionless();
+	}
+
+	@AfterEach
+	public void afterEach() {
+		myInterceptorRegistry.unregisterInterceptor(myIncludeLoadedInterceptor);
+		myStorageSettings.setIncludeParallelLoadingThreadCount(
+				new JpaStorageSettings().getIncludeParallelLoadingThreadCount());
+	}
+
+	@Test
+	public void testIncludesLoadedInParallel() {
+		List<String> serialIds = searchPatientsWithIncludes();
+		assertThat(myIncludeLoadedInterceptor.myDetails).noneMatch(IncludeLoadDetails::isParallel);
+
+		myStorageSettings.setIncludeParallelLoadingThreadCount(4);
+		myIncludeLoadedInterceptor.myDetails.clear();
+		List<String> parallelIds = searchPatientsWithIncludes();
+
+		assertThat(parallelIds).containsExactlyInAnyOrderElementsOf(serialIds);
+		assertThat(parallelIds)
+				.containsExactlyInAnyOrder(
+						myPatientId.getValue(),
+						myOrgId.getValue(),
+						myPractitionerId.getValue(),
+						myObservationId.getValue());
+		assertThat(myIncludeLoadedInterceptor.myDetails)
+				.extracting(IncludeLoadDetails::getInclude)
+				.containsExactlyInAnyOrder(
+						"Patient:organization", "Patient:general-practitioner", "Observation:subject");
+
+		// The _revinclude is resolved on its own so there is nothing to run it alongside
+		assertThat(myIncludeLoadedInterceptor.myDetails)
+				.filteredOn(IncludeLoadDetails::isParallel)
+				.extracting(IncludeLoadDetails::getInclude)
+				.containsExactlyInAnyOrder("Patient:organization", "Patient:general-practitioner");
+	}
+
+	@Test
+	public void testIterateIncludesLoadedInParallel() {
+		myStorageSettings.setIncludeParallelLoadingThreadCount(4);
+
+		SearchParameterMap map = SearchParameterMap.newSynchronous();
+		map.add(Observation.SP_RES_ID, new TokenParam(myObservationId.getIdPart()));
+		map.addInclude(new Include("Observation:subject"));
+		map.addInclude(new Include("Patient:organization", true));
+		map.addInclude(new Include("Organization:partof", true));
+		IBundleProvider outcome = myObservationDao.search(map, mySrd);
+
+		assertThat(toUnqualifiedVersionlessIdValues(outcome))
+				.containsExactlyInAnyOrder(
+						myObservationId.getValue(),
+						myPatientId.getValue(),
+						myOrgId.getValue(),
+						myParentOrgId.getValue());
+
+		// Every include is tried in the first round, then the iterate ones in later rounds
+		assertThat(myIncludeLoadedInterceptor.myDetails)
+				.filteredOn(t -> t.getRound() == 1)
+				.hasSize(3)
+				.allMatch(IncludeLoadDetails::isParallel);
+		assertThat(myIncludeLoadedInterceptor.myDetails)
+				.filteredOn(t -> t.getRound() > 1)
+				.extracting(IncludeLoadDetails::getInclude)
+				.containsOnly("Patient:organization", "Organization:partof");
+	}
+
+	@Test
+	public void testIncludeLoadDetails() {
+		searchPatientsWithIncludes();
+
+		Optional<IncludeLoadDetails> details = myIncludeLoadedInterceptor.myDetails.stream()
+				.filter(t -> t.getInclude().equals("Observation:subject"))
+				.findFirst();
+		assertThat(details).isPresent();
+		assertThat(details.get().isReverse()).isTrue();
+		assertThat(details.get().getRound()).isEqualTo(1);
+		assertThat(details.get().getQueryCount()).isEqualTo(1);
+		assertThat(details.get().getRowCount()).isEqualTo(1);
+	}
+
+	private List<String> searchPatientsWithIncludes() {
+		SearchParameterMap map = SearchParameterMap.newSynchronous();
+		map.addInclude(new Include("Patient:organization"));
+		map.addInclude(new Include("Patient:general-practitioner"));
+		map.addRevInclude(new Include("Observation:subject"));
+		IBundleProvider outcome = myPatientDao.search(map, mySrd);
+		return toUnqualifiedVersionlessIdValues(outcome);
+	}
+
+	@Interceptor
+	public static class IncludeLoadedInterceptor {
+
+		private final List<IncludeLoadDetails> myDetails = new CopyOnWriteArrayList<>();
+
+		@Hook(Pointcut.JPA_PERFTRACE_INCLUDE_LOADED)
+		public void includeLoaded(IncludeLoadDetails theDetails) {
+			myDetails.add(theDetails);
+		}
+	}
+}
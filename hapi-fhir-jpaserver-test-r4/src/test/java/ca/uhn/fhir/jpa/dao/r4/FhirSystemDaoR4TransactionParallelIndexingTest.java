@@ -0,0 +1,180 @@
+package ca.uhn.fhir.jpa.dao.r4;
+
+import ca.uhn.fhir.interceptor.api.IAnonymousInterceptor;
+import ca.uhn.fhir.interceptor.api.Pointcut;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.model.entity.ResourceHistoryTable;
+import ca.uhn.fhir.jpa.model.entity.ResourceTable;
+import ca.uhn.fhir.jpa.model.search.StorageProcessingMessage;
+import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
+import ca.uhn.fhir.jpa.test.BaseJpaR4Test;
+import ca.uhn.fhir.model.api.IQueryParameterType;
+import ca.uhn.fhir.rest.param.ReferenceParam;
+import ca.uhn.fhir.rest.param.StringParam;
+import ca.uhn.fhir.rest.param.TokenParam;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.IdType;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Organization;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.Reference;
+import org.hl7.fhir.r4.model.StringType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class FhirSystemDaoR4TransactionParallelIndexingTest extends BaseJpaR4Test {
+
+	private final List<String> myPerfTraceMessages = new ArrayList<>();
+	private final IAnonymousInterceptor myPerfTraceInterceptor = (thePointcut, theArgs) ->
+		myPerfTraceMessages.add(theArgs.get(StorageProcessingMessage.class).getMessage());
+
+	@BeforeEach
+	public void beforeEach() {
+		myStorageSettings.setTransactionParallelIndexingThreadCount(2);
+		myStorageSettings.setTransactionParallelIndexingMinimumResourceCount(5);
+		myInterceptorRegistry.registerAnonymousInterceptor(Pointcut.JPA_PERFTRACE_INFO, myPerfTraceInterceptor);
+	}
+
+	@AfterEach
+	public void afterEach() {
+		JpaStorageSettings defaults = new JpaStorageSettings();
+		myStorageSettings.setTransactionParallelIndexingThreadCount(defaults.getTransactionParallelIndexingThreadCount());
+		myStorageSettings.setTransactionParallelIndexingMinimumResourceCount(defaults.getTransactionParallelIndexingMinimumResourceCount());
+		myStorageSettings.setAllowInlineMatchUrlReferences(defaults.isAllowInlineMatchUrlReferences());
+		myInterceptorRegistry.unregisterInterceptor(myPerfTraceInterceptor);
+	}
+
+	@Test
+	public void testTransaction_ParallelIndexing() {
+		// Test
+		Bundle response = mySystemDao.transaction(mySrd, createBundle("A", 20));
+
+		// Verify
+		assertThat(myPerfTraceMessages).anyMatch(t -> t.contains("Pre-index 21 resources"));
+		String patientId = getLocation(response, 0);
+		assertThat(searchObservations("subject", new ReferenceParam(patientId))).hasSize(20);
+		assertThat(searchObservations("subject", new ReferenceParam("family", "FAMILY-A"))).hasSize(20);
+		assertThat(searchObservations("code", new TokenParam("http://foo", "code-7"))).containsExactly(getLocation(response, 8));
+		assertThat(searchObservations("value-string", new StringParam("value-7"))).containsExactly(getLocation(response, 8));
+
+		Observation obs = myObservationDao.read(new IdType(getLocation(response, 8)), mySrd);
+		assertEquals(patientId, obs.getSubject().getReference());
+		assertEquals("contained-7", ((Organization) obs.getContained().get(0)).getName());
+	}
+
+	@Test
+	public void testTransaction_ParallelIndexing_StoredResourcesMatchSequentialIndexing() {
+		// Setup
+		myStorageSettings.setTransactionParallelIndexingThreadCount(0);
+		Bundle sequentialResponse = mySystemDao.transaction(mySrd, createBundle("A", 10));
+		myStorageSettings.setTransactionParallelIndexingThreadCount(2);
+
+		// Test
+		Bundle parallelResponse = mySystemDao.transaction(mySrd, createBundle("A", 10));
+
+		// Verify
+		assertThat(myPerfTraceMessages).anyMatch(t -> t.contains("Pre-index 11 resources"));
+		for (int i = 1; i <= 10; i++) {
+			IdType sequentialId = new IdType(getLocation(sequentialResponse, i));
+			IdType parallelId = new IdType(getLocation(parallelResponse, i));
+			int finalI = i;
+			runInTransaction(() -> {
+				ResourceHistoryTable sequential = getCurrentVersion(sequentialId);
+				ResourceHistoryTable parallel = getCurrentVersion(parallelId);
+				// The subject reference differs, so compare everything else
+				String sequentialText = sequential.getResourceTextVc().replace(getLocation(sequentialResponse, 0), "");
+				String parallelText = parallel.getResourceTextVc().replace(getLocation(parallelResponse, 0), "");
+				assertThat(parallelText).contains("code-" + (finalI - 1));
+				assertEquals(sequentialText, parallelText);
+				assertEquals(sequential.getEncoding(), parallel.getEncoding());
+				assertEquals(getTokenIndexCount(sequentialId), getTokenIndexCount(parallelId));
+			});
+		}
+	}
+
+	@Test
+	public void testTransaction_BelowMinimumResourceCount() {
+		// Test
+		Bundle response = mySystemDao.transaction(mySrd, createBundle("A", 3));
+
+		// Verify
+		assertThat(myPerfTraceMessages).noneMatch(t -> t.contains("Pre-index"));
+		assertThat(searchObservations("subject", new ReferenceParam(getLocation(response, 0)))).hasSize(3);
+	}
+
+	@Test
+	public void testTransaction_InlineMatchUrlReference() {
+		// Setup
+		myStorageSettings.setAllowInlineMatchUrlReferences(true);
+		createPatient(withId("B"), withFamily("FAMILY-B"));
+		Bundle bundle = createBundle("A", 10);
+		Observation obs = (Observation) bundle.getEntry().get(5).getResource();
+		obs.setSubject(new Reference("Patient?family=FAMILY-B"));
+
+		// Test
+		Bundle response = mySystemDao.transaction(mySrd, bundle);
+
+		// Verify
+		assertThat(myPerfTraceMessages).anyMatch(t -> t.contains("Pre-index 11 resources"));
+		assertThat(searchObservations("subject", new ReferenceParam("Patient/B"))).containsExactly(getLocation(response, 5));
+		assertThat(searchObservations("subject", new ReferenceParam(getLocation(response, 0)))).hasSize(9);
+	}
+
+	private long getTokenIndexCount(IdType theId) {
+		Long pid = ((ResourceTable) myObservationDao.readEntity(theId, mySrd)).getId().getId();
+		return myResourceIndexedSearchParamTokenDao.findAll().stream()
+			.filter(t -> t.getResourcePid().equals(pid))
+			.count();
+	}
+
+	private ResourceHistoryTable getCurrentVersion(IdType theId) {
+		return myResourceHistoryTableDao.findForIdAndVersion(
+			((ResourceTable) myObservationDao.readEntity(theId, mySrd)).getId().toFk(), 1L);
+	}
+
+	private List<String> searchObservations(String theParamName, IQueryParameterType theParam) {
+		SearchParameterMap map = SearchParameterMap.newSynchronous(theParamName, theParam);
+		return toUnqualifiedVersionlessIdValues(myObservationDao.search(map, mySrd));
+	}
+
+	private static String getLocation(Bundle theResponse, int theIndex) {
+		return new IdType(theResponse.getEntry().get(theIndex).getResponse().getLocation())
+			.toUnqualifiedVersionless()
+			.getValue();
+	}
+
+	private static Bundle createBundle(String thePatientFamily, int theObservationCount) {
+		Bundle bundle = new Bundle();
+		bundle.setType(Bundle.BundleType.TRANSACTION);
+
+		Patient patient = new Patient();
+		patient.setId("urn:uuid:patient");
+		patient.addName().setFamily("FAMILY-" + thePatientFamily);
+		bundle.addEntry().setFullUrl(patient.getId()).setResource(patient).getRequest().setMethod(Bundle.HTTPVerb.POST).setUrl("Patient");
+
+		for (int i = 0; i < theObservationCount; i++) {
+			Organization org = new Organization();
+			org.setId("#org");
+			org.setName("contained-" + i);
+
+			Observation obs = new Observation();
+			obs.setStatus(Observation.ObservationStatus.FINAL);
+			obs.getCode().addCoding().setSystem("http://foo").setCode("code-" + i);
+			obs.setValue(new StringType("value-" + i));
+			obs.setSubject(new Reference("urn:uuid:patient"));
+			obs.getContained().add(org);
+			obs.addPerformer().setReference("#org");
+			bundle.addEntry().setResource(obs).getRequest().setMethod(Bundle.HTTPVerb.POST).setUrl("Observation");
+		}
+
+		return bundle;
+	}
+
+}
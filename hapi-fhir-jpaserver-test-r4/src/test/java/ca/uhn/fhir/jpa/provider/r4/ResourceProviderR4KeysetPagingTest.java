@@ -0,0 +1,157 @@
+package ca.uhn.fhir.jpa.provider.r4;
+
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.provider.BaseResourceProviderR4Test;
+import ca.uhn.fhir.rest.api.Constants;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Patient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class ResourceProviderR4KeysetPagingTest extends BaseResourceProviderR4Test {
+
+	@Override
+	@BeforeEach
+	public void before() throws Exception {
+		super.before();
+		myStorageSettings.setKeysetPagingEnabled(true);
+	}
+
+	@Override
+	@AfterEach
+	public void after() throws Exception {
+		super.after();
+		myStorageSettings.setKeysetPagingEnabled(new JpaStorageSettings().isKeysetPagingEnabled());
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"", "&_sort=_id", "&_sort=-_id", "&_sort=_lastUpdated", "&_sort=-_lastUpdated", "&_sort=_pid"})
+	public void testPaging(String theSort) {
+		// Setup
+		createPatientsInTransaction(12);
+		for (int i = 0; i < 3; i++) {
+			createPatient(withId("B" + i), withActiveTrue());
+		}
+		List<String> expected = searchForIds("Patient?active=true&_offset=0&_count=100" + theSort);
+		assertThat(expected).hasSize(15);
+
+		// Test
+		List<String> actual = new ArrayList<>();
+		Bundle page = myClient.search().byUrl("Patient?active=true&_offset=0&_count=4" + theSort).returnBundle(Bundle.class).execute();
+		actual.addAll(toUnqualifiedVersionlessIdValues(page));
+		while (page.getLink("next") != null) {
+			assertThat(page.getLink("next").getUrl()).contains(Constants.PARAM_SEARCH_AFTER + "=");
+			myCaptureQueriesListener.clear();
+			page = myClient.loadPage().next(page).execute();
+			actual.addAll(toUnqualifiedVersionlessIdValues(page));
+
+			// Verify that the database seeks to the page rather than skipping over earlier results
+			String sql = myCaptureQueriesListener.getSelectQueries().get(0).getSql(true, false);
+			assertThat(sql).doesNotContain("offset '");
+			assertThat(sql).containsAnyOf("RES_ID > '", "RES_ID < '");
+			assertThat(sql).contains("fetch first '5' rows only");
+		}
+
+		// Verify
+		assertEquals(expected, actual);
+		assertThat(page.getLink("previous").getUrl()).doesNotContain(Constants.PARAM_SEARCH_AFTER);
+	}
+
+	@Test
+	public void testPaging_TokenForDifferentOffsetIsIgnored() {
+		// Setup
+		createPatientsInTransaction(12);
+		Bundle firstPage = myClient.search().byUrl("Patient?_sort=_lastUpdated&_offset=0&_count=5").returnBundle(Bundle.class).execute();
+		String nextUrl = firstPage.getLink("next").getUrl();
+		List<String> expected = searchForIds("Patient?_sort=_lastUpdated&_offset=10&_count=5");
+
+		// Test
+		myCaptureQueriesListener.clear();
+		List<String> actual = searchForIds(nextUrl.replace("_offset=5", "_offset=10"));
+
+		// Verify
+		assertThat(myCaptureQueriesListener.getSelectQueries().get(0).getSql(true, false)).contains("offset '10'");
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	public void testPaging_InvalidToken() {
+		// Setup
+		createPatientsInTransaction(12);
+		List<String> expected = searchForIds("Patient?_sort=_id&_offset=5&_count=5");
+
+		// Test
+		List<String> actual = searchForIds("Patient?_sort=_id&_offset=5&_count=5&_searchAfter=abc");
+
+		// Verify
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	public void testPaging_UnsupportedSort() {
+		// Setup
+		createPatientsInTransaction(12);
+
+		// Test
+		Bundle outcome = myClient.search().byUrl("Patient?_sort=family&_offset=0&_count=5").returnBundle(Bundle.class).execute();
+
+		// Verify
+		assertThat(outcome.getLink("next").getUrl()).doesNotContain(Constants.PARAM_SEARCH_AFTER);
+	}
+
+	@Test
+	public void testPaging_Disabled() {
+		// Setup
+		myStorageSettings.setKeysetPagingEnabled(false);
+		createPatientsInTransaction(12);
+
+		// Test
+		Bundle outcome = myClient.search().byUrl("Patient?_sort=_id&_offset=0&_count=5").returnBundle(Bundle.class).execute();
+
+		// Verify
+		assertThat(outcome.getLink("next").getUrl()).doesNotContain(Constants.PARAM_SEARCH_AFTER);
+	}
+
+	@Test
+	public void testPaging_LastPageHasNoNextLink() {
+		// Setup
+		createPatientsInTransaction(4);
+
+		// Test
+		Bundle outcome = myClient.search().byUrl("Patient?_sort=_id&_offset=0&_count=4").returnBundle(Bundle.class).execute();
+
+		// Verify
+		assertThat(outcome.getEntry()).hasSize(4);
+		assertNull(outcome.getLink("next"));
+	}
+
+	private List<String> searchForIds(String theUrl) {
+		return toUnqualifiedVersionlessIdValues(myClient.search().byUrl(theUrl).returnBundle(Bundle.class).execute());
+	}
+
+	/**
+	 * Resources created in a single transaction share the same last updated time,
+	 * so this tests that ties are broken consistently across pages
+	 */
+	private void createPatientsInTransaction(int theCount) {
+		Bundle bundle = new Bundle();
+		bundle.setType(Bundle.BundleType.TRANSACTION);
+		for (int i = 0; i < theCount; i++) {
+			Patient patient = new Patient();
+			patient.setActive(true);
+			patient.addName().setFamily("FAMILY-" + (i % 3));
+			bundle.addEntry().setResource(patient).getRequest().setMethod(Bundle.HTTPVerb.POST).setUrl("Patient");
+		}
+		mySystemDao.transaction(mySrd, bundle);
+	}
+}
@@ -1,14 +1,18 @@
 package ca.uhn.fhir.jpa.provider.r4;
 
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
 import ca.uhn.fhir.jpa.dao.data.ISearchDao;
+import ca.uhn.fhir.jpa.dao.data.ISearchResultBlockDao;
 import ca.uhn.fhir.jpa.dao.data.ISearchResultDao;
 import ca.uhn.fhir.jpa.entity.Search;
 import ca.uhn.fhir.jpa.entity.SearchResult;
 import ca.uhn.fhir.jpa.entity.SearchTypeEnum;
+import ca.uhn.fhir.jpa.model.dao.JpaPid;
 import ca.uhn.fhir.jpa.model.entity.ResourceTable;
 import ca.uhn.fhir.jpa.model.search.SearchStatusEnum;
 import ca.uhn.fhir.jpa.provider.BaseResourceProviderR4Test;
+import ca.uhn.fhir.jpa.search.cache.DatabaseBlockSearchResultCacheSvcImpl;
 import ca.uhn.fhir.jpa.search.cache.DatabaseSearchCacheSvcImpl;
 import ca.uhn.fhir.rest.gclient.IClientExecutable;
 import ca.uhn.fhir.rest.gclient.IQuery;
@@ -23,7 +27,9 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.util.AopTestUtils;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.UUID;
 
 import static ca.uhn.fhir.util.TestUtil.sleepAtLeast;
@@ -39,6 +45,8 @@ public class StaleSearchDeletingSvcR4Test extends BaseResourceProviderR4Test {
 	private ISearchDao mySearchEntityDao;
 	@Autowired
 	private ISearchResultDao mySearchResultDao;
+	@Autowired
+	private ISearchResultBlockDao mySearchResultBlockDao;
 
 	@Override
 	@AfterEach()
@@ -140,6 +148,37 @@ public class StaleSearchDeletingSvcR4Test extends BaseResourceProviderR4Test {
 
 	}
 
+	@Test
+	public void testDeleteSearchWithResultBlocks() {
+		DatabaseBlockSearchResultCacheSvcImpl blockSvc = myApplicationContext.getAutowireCapableBeanFactory().createBean(DatabaseBlockSearchResultCacheSvcImpl.class);
+		blockSvc.setBlockSize(10);
+
+		Search search = new Search();
+		search.setStatus(SearchStatusEnum.FINISHED);
+		search.setUuid(UUID.randomUUID().toString());
+		search.setCreated(DateUtils.addDays(new Date(), -10000));
+		search.setSearchType(SearchTypeEnum.SEARCH);
+		search.setResourceType("Patient");
+		search.setNumFound(25);
+		Search savedSearch = runInTransaction(() -> mySearchEntityDao.save(search));
+
+		List<JpaPid> pids = new ArrayList<>();
+		for (int i = 0; i < 25; i++) {
+			pids.add(JpaPid.fromId(1000L + i));
+		}
+		blockSvc.storeResults(savedSearch, List.of(), pids, mySrd, RequestPartitionId.allPartitions());
+
+		runInTransaction(() -> assertEquals(3, mySearchResultBlockDao.count()));
+		List<JpaPid> page = blockSvc.fetchResultPids(savedSearch, 5, 15, mySrd, RequestPartitionId.allPartitions());
+		assertThat(page).extracting(JpaPid::getId).containsExactly(1005L, 1006L, 1007L, 1008L, 1009L, 1010L, 1011L, 1012L, 1013L, 1014L);
+
+		myStaleSearchDeletingSvc.pollForStaleSearchesAndDeleteThem();
+		runInTransaction(() -> {
+			assertEquals(0, mySearchEntityDao.count());
+			assertEquals(0, mySearchResultBlockDao.count());
+		});
+	}
+
 	@Test
 	public void testDeleteVerySmallSearch() {
 		DatabaseSearchCacheSvcImpl.setMaximumResultsToDeleteInOneStatement(10);
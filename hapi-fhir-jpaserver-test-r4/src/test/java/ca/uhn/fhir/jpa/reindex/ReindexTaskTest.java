@@ -12,8 +12,11 @@ import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
 import ca.uhn.fhir.jpa.api.dao.ReindexParameters;
 import ca.uhn.fhir.jpa.api.model.DaoMethodOutcome;
 import ca.uhn.fhir.jpa.batch.models.Batch2JobStartResponse;
+import ca.uhn.fhir.jpa.dao.ResourceEncodingDictionarySvc;
+import ca.uhn.fhir.jpa.dao.ZstdUtil;
 import ca.uhn.fhir.jpa.model.dao.JpaPid;
 import ca.uhn.fhir.jpa.model.dao.JpaPidFk;
+import ca.uhn.fhir.jpa.model.entity.ResourceEncodingEnum;
 import ca.uhn.fhir.jpa.model.entity.ResourceHistoryProvenanceEntity;
 import ca.uhn.fhir.jpa.model.entity.ResourceHistoryTable;
 import ca.uhn.fhir.jpa.model.entity.ResourceIndexedComboStringUnique;
@@ -55,6 +58,8 @@ public class ReindexTaskTest extends BaseJpaR4Test {
 	private IJobCoordinator myJobCoordinator;
 	@Autowired
 	private IJobPersistence myJobPersistence;
+	@Autowired
+	private ResourceEncodingDictionarySvc myResourceEncodingDictionarySvc;
 
 	private ReindexTestHelper myReindexTestHelper;
 	private PatientReindexTestHelper myPatientReindexTestHelper;
@@ -73,6 +78,7 @@ public class ReindexTaskTest extends BaseJpaR4Test {
 		myStorageSettings.setStoreMetaSourceInformation(defaults.getStoreMetaSourceInformation());
 		myStorageSettings.setPreserveRequestIdInResourceBody(defaults.isPreserveRequestIdInResourceBody());
 		myStorageSettings.setAccessMetaSourceInformationFromProvenanceTable(defaults.isAccessMetaSourceInformationFromProvenanceTable());
+		myStorageSettings.setResourceEncoding(defaults.getResourceEncoding());
 	}
 
 	@Test
@@ -184,6 +190,68 @@ public class ReindexTaskTest extends BaseJpaR4Test {
 
 	}
 
+	@Test
+	public void testOptimizeStorage_AllVersions_ReencodeAsZstd() {
+		// Setup
+		IIdType patientId = createPatient(withActiveTrue(), withFamily("Simpson"), withGiven("Homer"));
+		for (int i = 0; i < 10; i++) {
+			Patient p = new Patient();
+			p.setId(patientId.toUnqualifiedVersionless());
+			p.setActive(true);
+			p.addName().setFamily("Simpson").addGiven("Homer");
+			p.addIdentifier().setSystem("http://example.org/mrn").setValue(String.valueOf(i));
+			myPatientDao.update(p, mySrd);
+		}
+		for (int i = 0; i < 49; i++) {
+			createPatient(withActiveTrue(), withFamily("Family" + i), withGiven("Given" + i), withIdentifier("http://example.org/mrn", "MRN" + i));
+		}
+		runInTransaction(()->{
+			assertEquals(60, myResourceHistoryTableDao.count());
+			for (ResourceHistoryTable history : myResourceHistoryTableDao.findAll()) {
+				assertEquals(ResourceEncodingEnum.JSON, history.getEncoding());
+				assertNotNull(history.getResourceTextVc());
+			}
+		});
+
+		long dictionaryId = myResourceEncodingDictionarySvc.trainDictionary("Patient", 100);
+		myStorageSettings.setResourceEncoding(ResourceEncodingEnum.JSONZ);
+
+		// execute
+		JobInstanceStartRequest startRequest = new JobInstanceStartRequest();
+		startRequest.setJobDefinitionId(JOB_REINDEX);
+		startRequest.setParameters(
+			new ReindexJobParameters()
+				.setOptimizeStorage(ReindexParameters.OptimizeStorageModeEnum.ALL_VERSIONS)
+				.setReindexSearchParameters(ReindexParameters.ReindexSearchParametersEnum.NONE)
+		);
+		Batch2JobStartResponse startResponse = myJobCoordinator.startInstance(mySrd, startRequest);
+		myBatch2JobHelper.awaitJobCompletion(startResponse);
+
+		// validate
+		runInTransaction(()->{
+			assertEquals(60, myResourceHistoryTableDao.count());
+			for (ResourceHistoryTable history : myResourceHistoryTableDao.findAll()) {
+				assertEquals(ResourceEncodingEnum.JSONZ, history.getEncoding(), ()->"Wrong encoding on: " + history);
+				assertNull(history.getResourceTextVc());
+				assertEquals(dictionaryId, ZstdUtil.getDictionaryId(history.getResource()));
+			}
+		});
+		Patient patient = myPatientDao.read(patientId, mySrd);
+		assertTrue(patient.getActive());
+		assertEquals("Simpson", patient.getNameFirstRep().getFamily());
+		Patient version1 = myPatientDao.read(patientId.withVersion("1"), mySrd);
+		assertThat(version1.getIdentifier()).isEmpty();
+
+		// An update with no changes doesn't create a new version
+		Patient unchanged = new Patient();
+		unchanged.setId(patientId.toUnqualifiedVersionless());
+		unchanged.setActive(true);
+		unchanged.addName().setFamily("Simpson").addGiven("Homer");
+		unchanged.addIdentifier().setSystem("http://example.org/mrn").setValue("9");
+		DaoMethodOutcome outcome = myPatientDao.update(unchanged, mySrd);
+		assertEquals("11", outcome.getId().getVersionIdPart());
+	}
+
 	@Test
 	public void testOptimizeStorage_AllVersions_SingleResourceWithMultipleVersion() {
 
@@ -408,6 +408,11 @@ public class GiantTransactionPerfTest {
 			throw new UnsupportedOperationException();
 		}
 
+		@Override
+		public Slice<ResourceHistoryTable> findNewestVersionsForResourceType(Pageable thePage, String theResourceName) {
+			throw new UnsupportedOperationException();
+		}
+
 		@Override
 		public void updateVersion(JpaPidFk theId, long theOldVersion, long theNewVersion) {
 			throw new UnsupportedOperationException();
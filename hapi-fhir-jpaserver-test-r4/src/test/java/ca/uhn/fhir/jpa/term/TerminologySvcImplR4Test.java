@@ -4,6 +4,7 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import ca.uhn.fhir.context.support.ConceptValidationOptions;
 import ca.uhn.fhir.context.support.IValidationSupport;
+import ca.uhn.fhir.context.support.ValidateCodeRequest;
 import ca.uhn.fhir.context.support.ValidationSupportContext;
 import ca.uhn.fhir.i18n.Msg;
 import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
@@ -63,6 +64,7 @@ public class TerminologySvcImplR4Test extends BaseTermR4Test {
 	public void after() {
 		super.after();
 		myStorageSettings.setDeferIndexingForCodesystemsOfSize(new JpaStorageSettings().getDeferIndexingForCodesystemsOfSize());
+		myStorageSettings.setPreExpandedValueSetCodeIndexMaxConcepts(new JpaStorageSettings().getPreExpandedValueSetCodeIndexMaxConcepts());
 		TermCodeSystemDeleteJobSvcWithUniTestFailures.setFailNextDeleteCodeSystemVersion(false);
 	}
 
@@ -259,6 +261,46 @@ public class TerminologySvcImplR4Test extends BaseTermR4Test {
 		assertFalse(validation.isOk());
 	}
 
+	@Test
+	public void testValidateCodes() throws Exception {
+		myStorageSettings.setPreExpandValueSets(true);
+		loadAndPersistCodeSystemAndValueSetWithDesignations(HttpVerb.POST);
+		myTermSvc.preExpandDeferredValueSetsToTerminologyTables();
+
+		String display = "Systolic blood pressure at First encounter";
+		String vsUrl = "http://www.healthintersections.com.au/fhir/ValueSet/extensional-case-2";
+		List<ValidateCodeRequest> requests = List.of(
+			new ValidateCodeRequest("http://acme.org", "11378-7", null, null),
+			new ValidateCodeRequest("http://acme.org", "11378-7", display, null),
+			new ValidateCodeRequest("http://acme.org", "11378-7", "Wrong display", null),
+			new ValidateCodeRequest("http://acme.org", "BOGUS", null, null),
+			new ValidateCodeRequest("http://acme.org", "11378-7", null, vsUrl),
+			new ValidateCodeRequest("http://acme.org", "11378-7", display, vsUrl),
+			new ValidateCodeRequest("http://acme.org", "BOGUS", null, vsUrl));
+		ValidationSupportContext valCtx = new ValidationSupportContext(myValidationSupport);
+
+		List<IValidationSupport.CodeValidationResult> results = myTermSvc.validateCodes(valCtx, new ConceptValidationOptions(), requests);
+
+		assertThat(results).hasSize(requests.size());
+		assertTrue(results.get(0).isOk());
+		assertEquals(display, results.get(1).getDisplay());
+		assertFalse(results.get(3).isOk());
+		assertTrue(results.get(4).isOk());
+		assertFalse(results.get(6).isOk());
+
+		// Every outcome should be identical to validating the code on its own
+		for (int i = 0; i < requests.size(); i++) {
+			ValidateCodeRequest request = requests.get(i);
+			IValidationSupport.CodeValidationResult single = myTermSvc.validateCode(valCtx, new ConceptValidationOptions(), request.getSystem(), request.getCode(), request.getDisplay(), request.getValueSetUrl());
+			assertEquals(toComparableString(single), toComparableString(results.get(i)), request.toString());
+		}
+	}
+
+	private static String toComparableString(IValidationSupport.CodeValidationResult theResult) {
+		return theResult.getCode() + " " + theResult.getDisplay() + " " + theResult.getSeverity() + " "
+			+ theResult.getMessage() + " " + theResult.getSourceDetails() + " " + theResult.getIssues().size();
+	}
+
 	@Test
 	public void testValidateCodeIsInPreExpandedValueSet() throws Exception {
 		myStorageSettings.setPreExpandValueSets(true);
@@ -308,6 +350,49 @@ public class TerminologySvcImplR4Test extends BaseTermR4Test {
 		assertEquals("Systolic blood pressure at First encounter", result.getDisplay());
 	}
 
+	@Test
+	public void testValidateCodeIsInPreExpandedValueSetUsingCodeIndex() throws Exception {
+		myStorageSettings.setPreExpandValueSets(true);
+		loadAndPersistCodeSystemAndValueSetWithDesignations(HttpVerb.POST);
+		myTermSvc.preExpandDeferredValueSetsToTerminologyTables();
+		ValueSet valueSet = myValueSetDao.read(myExtensionalVsId);
+
+		List<String> fromDatabase = validateCodesAgainstPreExpansion(valueSet);
+		myStorageSettings.setPreExpandedValueSetCodeIndexMaxConcepts(1000);
+		List<String> fromIndex = validateCodesAgainstPreExpansion(valueSet);
+		assertEquals(fromDatabase, fromIndex);
+
+		// Once the index is built, codes which are found don't need to query the pre-expansion
+		myCaptureQueriesListener.clear();
+		ValidationSupportContext valCtx = new ValidationSupportContext(myValidationSupport);
+		IValidationSupport.CodeValidationResult result = myTermSvc.validateCodeIsInPreExpandedValueSet(valCtx, optsNoGuess, valueSet, "http://acme.org", "11378-7", null, null, null);
+		assertTrue(result.isOk());
+		assertThat(myCaptureQueriesListener.getSelectQueriesForCurrentThread())
+			.noneMatch(t -> t.getSql(false, false).contains("TRM_VALUESET_CONCEPT"));
+
+		// ValueSets larger than the limit are not indexed
+		myStorageSettings.setPreExpandedValueSetCodeIndexMaxConcepts(1);
+		myCaptureQueriesListener.clear();
+		result = myTermSvc.validateCodeIsInPreExpandedValueSet(valCtx, optsNoGuess, valueSet, "http://acme.org", "11378-7", null, null, null);
+		assertTrue(result.isOk());
+		assertThat(myCaptureQueriesListener.getSelectQueriesForCurrentThread())
+			.anyMatch(t -> t.getSql(false, false).contains("TRM_VALUESET_CONCEPT"));
+	}
+
+	private List<String> validateCodesAgainstPreExpansion(ValueSet theValueSet) {
+		ValidationSupportContext valCtx = new ValidationSupportContext(myValidationSupport);
+		ConceptValidationOptions validateDisplay = new ConceptValidationOptions().setValidateDisplay(true);
+		String display = "Systolic blood pressure at First encounter";
+		List<String> retVal = new ArrayList<>();
+		retVal.add(toComparableString(myTermSvc.validateCodeIsInPreExpandedValueSet(valCtx, optsNoGuess, theValueSet, "http://acme.org", "11378-7", null, null, null)));
+		retVal.add(toComparableString(myTermSvc.validateCodeIsInPreExpandedValueSet(valCtx, optsGuess, theValueSet, null, "11378-7", display, null, null)));
+		retVal.add(toComparableString(myTermSvc.validateCodeIsInPreExpandedValueSet(valCtx, validateDisplay, theValueSet, "http://acme.org", "11378-7", display, null, null)));
+		retVal.add(toComparableString(myTermSvc.validateCodeIsInPreExpandedValueSet(valCtx, validateDisplay, theValueSet, "http://acme.org", "11378-7", "Wrong display", null, null)));
+		retVal.add(toComparableString(myTermSvc.validateCodeIsInPreExpandedValueSet(valCtx, optsNoGuess, theValueSet, "http://acme.org", "BOGUS", null, null, null)));
+		retVal.add(toComparableString(myTermSvc.validateCodeIsInPreExpandedValueSet(valCtx, optsNoGuess, theValueSet, null, null, null, new Coding("http://acme.org", "11378-7", null), null)));
+		return retVal;
+	}
+
 	@Test
 	public void testValidateCodeIsInPreExpandedValueSetWithClientAssignedId() throws Exception {
 		myStorageSettings.setPreExpandValueSets(true);
@@ -0,0 +1,158 @@
+package ca.uhn.fhir.jpa.search.cache;
+
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.jpa.dao.data.ISearchResultBlockDao;
+import ca.uhn.fhir.jpa.dao.data.ISearchResultDao;
+import ca.uhn.fhir.jpa.dao.tx.NonTransactionalHapiTransactionService;
+import ca.uhn.fhir.jpa.entity.Search;
+import ca.uhn.fhir.jpa.entity.SearchResultBlock;
+import ca.uhn.fhir.jpa.model.dao.JpaPid;
+import ca.uhn.fhir.rest.api.server.SystemRequestDetails;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.SliceImpl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DatabaseBlockSearchResultCacheSvcImplTest {
+
+	private static final long SEARCH_PID = 123L;
+
+	@Mock
+	private ISearchResultBlockDao mySearchResultBlockDao;
+	@Mock
+	private ISearchResultDao mySearchResultDao;
+	@Mock
+	private Search mySearch;
+
+	private final List<SearchResultBlock> myStoredBlocks = new ArrayList<>();
+	private DatabaseBlockSearchResultCacheSvcImpl mySvc;
+
+	@BeforeEach
+	public void before() {
+		mySvc = new DatabaseBlockSearchResultCacheSvcImpl();
+		mySvc.setSearchResultBlockDaoForUnitTest(mySearchResultBlockDao);
+		mySvc.setSearchResultDaoForUnitTest(mySearchResultDao);
+		mySvc.setTransactionServiceForUnitTest(new NonTransactionalHapiTransactionService());
+		mySvc.setBlockSize(10);
+
+		lenient().when(mySearch.getId()).thenReturn(SEARCH_PID);
+		lenient().when(mySearchResultBlockDao.saveAll(any())).thenAnswer(t -> {
+			t.<List<SearchResultBlock>>getArgument(0).forEach(myStoredBlocks::add);
+			return t.getArgument(0);
+		});
+		lenient().when(mySearchResultBlockDao.findWithSearchPid(eq(SEARCH_PID))).thenAnswer(t -> myStoredBlocks);
+		lenient().when(mySearchResultBlockDao.findWithSearchPidInRange(eq(SEARCH_PID), anyInt(), anyInt())).thenAnswer(t -> {
+			int from = t.getArgument(1);
+			int to = t.getArgument(2);
+			return myStoredBlocks.stream()
+				.filter(b -> b.getFirstOrder() < to && b.getFirstOrder() + b.getPidCount() > from)
+				.toList();
+		});
+	}
+
+	@ParameterizedTest
+	@ValueSource(booleans = {true, false})
+	public void testEncodeAndDecode(boolean thePartitioned) {
+		List<JpaPid> pids = new ArrayList<>();
+		pids.add(JpaPid.fromId(1000L, thePartitioned ? Integer.valueOf(1) : null));
+		pids.add(JpaPid.fromId(5L, thePartitioned ? Integer.valueOf(0) : null));
+		pids.add(JpaPid.fromId(Long.MAX_VALUE, (Integer) null));
+		pids.add(JpaPid.fromId(-3L, thePartitioned ? Integer.valueOf(-1) : null));
+		pids.add(JpaPid.fromId(1001L, thePartitioned ? Integer.valueOf(Integer.MAX_VALUE) : null));
+
+		byte[] encoded = DatabaseBlockSearchResultCacheSvcImpl.encode(pids);
+		List<JpaPid> decoded = DatabaseBlockSearchResultCacheSvcImpl.decode(encoded, pids.size());
+
+		assertEquals(toStrings(pids), toStrings(decoded));
+	}
+
+	@Test
+	public void testEncode_SequentialPidsAreCompact() {
+		List<JpaPid> pids = IntStream.range(0, 1000).mapToObj(i -> JpaPid.fromId(100_000L + i * 2)).toList();
+
+		byte[] encoded = DatabaseBlockSearchResultCacheSvcImpl.encode(pids);
+
+		// 1 header byte, 3 bytes for the first PID, 1 byte for each following delta
+		assertEquals(1 + 3 + 999, encoded.length);
+		assertEquals(toStrings(pids), toStrings(DatabaseBlockSearchResultCacheSvcImpl.decode(encoded, 1000)));
+	}
+
+	@Test
+	public void testStoreAndFetch() {
+		List<JpaPid> firstPass = createPids(0, 25);
+		List<JpaPid> secondPass = createPids(25, 12);
+		mySvc.storeResults(mySearch, List.of(), firstPass, new SystemRequestDetails(), RequestPartitionId.allPartitions());
+		mySvc.storeResults(mySearch, firstPass, secondPass, new SystemRequestDetails(), RequestPartitionId.allPartitions());
+
+		assertThat(myStoredBlocks).extracting(SearchResultBlock::getFirstOrder).containsExactly(0, 10, 20, 25, 35);
+		assertThat(myStoredBlocks).extracting(SearchResultBlock::getPidCount).containsExactly(10, 10, 5, 10, 2);
+
+		List<JpaPid> all = new ArrayList<>(firstPass);
+		all.addAll(secondPass);
+
+		List<JpaPid> page = mySvc.fetchResultPids(mySearch, 8, 22, new SystemRequestDetails(), RequestPartitionId.allPartitions());
+		assertEquals(toStrings(all.subList(8, 22)), toStrings(page));
+
+		page = mySvc.fetchResultPids(mySearch, 30, 50, new SystemRequestDetails(), RequestPartitionId.allPartitions());
+		assertEquals(toStrings(all.subList(30, 37)), toStrings(page));
+
+		List<JpaPid> fetchedAll = mySvc.fetchAllResultPids(mySearch, new SystemRequestDetails(), RequestPartitionId.allPartitions());
+		assertEquals(toStrings(all), toStrings(fetchedAll));
+
+		verify(mySearchResultDao, never()).findWithSearchPid(anyLong(), any());
+	}
+
+	@Test
+	public void testFetch_FallBackToIndividualResults() {
+		when(mySearch.getNumFound()).thenReturn(5);
+		List<Object[]> rows = new ArrayList<>();
+		rows.add(new Object[]{null, 1L});
+		rows.add(new Object[]{2, 2L});
+		when(mySearchResultDao.findWithSearchPid(eq(SEARCH_PID), any())).thenReturn(new SliceImpl<>(rows));
+
+		List<JpaPid> page = mySvc.fetchResultPids(mySearch, 0, 2, new SystemRequestDetails(), RequestPartitionId.allPartitions());
+
+		assertEquals(List.of("1", "2/2"), toStrings(page));
+	}
+
+	@Test
+	public void testFetch_PastEndOfResults() {
+		when(mySearch.getNumFound()).thenReturn(5);
+
+		List<JpaPid> page = mySvc.fetchResultPids(mySearch, 5, 10, new SystemRequestDetails(), RequestPartitionId.allPartitions());
+
+		assertEquals(Collections.emptyList(), page);
+		verify(mySearchResultDao, never()).findWithSearchPid(anyLong(), any());
+	}
+
+	private static List<JpaPid> createPids(int theStart, int theCount) {
+		return IntStream.range(theStart, theStart + theCount)
+			.mapToObj(i -> JpaPid.fromId(1000L - i * 7L, i % 3 == 0 ? null : i % 3))
+			.toList();
+	}
+
+	private static List<String> toStrings(List<JpaPid> thePids) {
+		return thePids.stream().map(p -> p.getPartitionId() == null ? String.valueOf(p.getId()) : p.getPartitionId() + "/" + p.getId()).toList();
+	}
+}
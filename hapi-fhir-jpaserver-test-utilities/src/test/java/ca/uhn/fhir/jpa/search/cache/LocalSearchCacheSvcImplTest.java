@@ -0,0 +1,170 @@
+package ca.uhn.fhir.jpa.search.cache;
+
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.entity.Search;
+import ca.uhn.fhir.jpa.model.search.SearchStatusEnum;
+import org.apache.commons.lang3.time.DateUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class LocalSearchCacheSvcImplTest {
+
+	@Mock
+	private ISearchCacheSvc myDelegate;
+	private final JpaStorageSettings myStorageSettings = new JpaStorageSettings();
+	private LocalSearchCacheSvcImpl mySvc;
+
+	@BeforeEach
+	public void before() {
+		mySvc = new LocalSearchCacheSvcImpl(myDelegate, myStorageSettings, 100_000);
+	}
+
+	@Test
+	public void testFetchByUuid_FinishedSearchIsHeldLocally() {
+		Search search = createSearch(SearchStatusEnum.FINISHED, new Date());
+		when(myDelegate.fetchByUuid(eq(search.getUuid()), any())).thenReturn(Optional.of(search));
+
+		Optional<Search> first = mySvc.fetchByUuid(search.getUuid(), RequestPartitionId.allPartitions());
+		Optional<Search> second = mySvc.fetchByUuid(search.getUuid(), RequestPartitionId.allPartitions());
+		Optional<Search> third = mySvc.fetchByUuid(search.getUuid(), RequestPartitionId.allPartitions());
+
+		assertThat(second).isPresent();
+		assertEquals(search.getUuid(), second.get().getUuid());
+		assertEquals(25, second.get().getNumFound());
+		assertNotSame(second.get(), third.orElseThrow());
+		assertThat(first).containsSame(search);
+		verify(myDelegate, times(1)).fetchByUuid(any(), any());
+		assertEquals(2, mySvc.getHitCount());
+		assertEquals(1, mySvc.getMissCount());
+	}
+
+	@Test
+	public void testFetchByUuid_LoadingSearchIsNotHeldLocally() {
+		Search search = createSearch(SearchStatusEnum.LOADING, new Date());
+		when(myDelegate.fetchByUuid(eq(search.getUuid()), any())).thenReturn(Optional.of(search));
+
+		mySvc.fetchByUuid(search.getUuid(), RequestPartitionId.allPartitions());
+		mySvc.fetchByUuid(search.getUuid(), RequestPartitionId.allPartitions());
+
+		verify(myDelegate, times(2)).fetchByUuid(any(), any());
+		assertEquals(0, mySvc.getHitCount());
+		assertEquals(0, mySvc.getSize());
+	}
+
+	@Test
+	public void testFetchByUuid_UnknownSearchFallsBackToDelegate() {
+		when(myDelegate.fetchByUuid(any(), any())).thenReturn(Optional.empty());
+
+		assertThat(mySvc.fetchByUuid("123", RequestPartitionId.allPartitions())).isEmpty();
+
+		assertEquals(1, mySvc.getMissCount());
+	}
+
+	@Test
+	public void testSave_InvalidatesLocalCopy() {
+		Search search = createSearch(SearchStatusEnum.FINISHED, new Date());
+		when(myDelegate.fetchByUuid(eq(search.getUuid()), any())).thenReturn(Optional.of(search));
+		when(myDelegate.save(any(), any())).thenAnswer(t -> t.getArgument(0));
+
+		mySvc.fetchByUuid(search.getUuid(), RequestPartitionId.allPartitions());
+		assertEquals(1, mySvc.getSize());
+
+		mySvc.save(search, RequestPartitionId.allPartitions());
+		assertEquals(0, mySvc.getSize());
+
+		mySvc.fetchByUuid(search.getUuid(), RequestPartitionId.allPartitions());
+		verify(myDelegate, times(2)).fetchByUuid(any(), any());
+	}
+
+	@Test
+	public void testFindCandidatesForReuse() {
+		Search search = createSearch(SearchStatusEnum.FINISHED, new Date());
+		when(myDelegate.fetchByUuid(eq(search.getUuid()), any())).thenReturn(Optional.of(search));
+		mySvc.fetchByUuid(search.getUuid(), RequestPartitionId.allPartitions());
+
+		Instant cutoff = Instant.now().minus(1, ChronoUnit.MINUTES);
+		Optional<Search> outcome = mySvc.findCandidatesForReuse("Patient", "Patient?name=smith", cutoff, RequestPartitionId.allPartitions());
+		assertThat(outcome).isPresent();
+		assertEquals(search.getUuid(), outcome.get().getUuid());
+		verify(myDelegate, never()).findCandidatesForReuse(any(), any(), any(), any());
+
+		// Different query, and a search created before the cutoff
+		mySvc.findCandidatesForReuse("Patient", "Patient?name=jones", cutoff, RequestPartitionId.allPartitions());
+		mySvc.findCandidatesForReuse("Patient", "Patient?name=smith", Instant.now().plus(1, ChronoUnit.MINUTES), RequestPartitionId.allPartitions());
+		verify(myDelegate, times(2)).findCandidatesForReuse(any(), any(), any(), any());
+	}
+
+	@Test
+	public void testExpiredSearchIsNotServedLocally() {
+		myStorageSettings.setExpireSearchResultsAfterMillis(DateUtils.MILLIS_PER_HOUR);
+		Search search = createSearch(SearchStatusEnum.FINISHED, new Date());
+		when(myDelegate.fetchByUuid(eq(search.getUuid()), any())).thenReturn(Optional.of(search));
+		mySvc.fetchByUuid(search.getUuid(), RequestPartitionId.allPartitions());
+		assertEquals(1, mySvc.getSize());
+
+		myStorageSettings.setExpireSearchResultsAfterMillis(-DateUtils.MILLIS_PER_HOUR);
+		mySvc.pollForStaleSearchesAndDeleteThem(RequestPartitionId.allPartitions(), Instant.now().plusSeconds(60));
+
+		assertEquals(0, mySvc.getSize());
+		verify(myDelegate).pollForStaleSearchesAndDeleteThem(any(), any());
+	}
+
+	@Test
+	public void testInvalidateCaches() {
+		Search search = createSearch(SearchStatusEnum.FINISHED, new Date());
+		when(myDelegate.fetchByUuid(eq(search.getUuid()), any())).thenReturn(Optional.of(search));
+		mySvc.fetchByUuid(search.getUuid(), RequestPartitionId.allPartitions());
+		assertEquals(1, mySvc.getSize());
+
+		mySvc.invalidateCaches();
+
+		assertEquals(0, mySvc.getSize());
+		mySvc.findCandidatesForReuse("Patient", "Patient?name=smith", Instant.now().minusSeconds(60), RequestPartitionId.allPartitions());
+		verify(myDelegate).findCandidatesForReuse(any(), any(), any(), any());
+	}
+
+	@Test
+	public void testEviction() {
+		mySvc = new LocalSearchCacheSvcImpl(myDelegate, myStorageSettings, 6000);
+		for (int i = 0; i < 10; i++) {
+			Search search = createSearch(SearchStatusEnum.FINISHED, new Date());
+			when(myDelegate.fetchByUuid(eq(search.getUuid()), any())).thenReturn(Optional.of(search));
+			mySvc.fetchByUuid(search.getUuid(), RequestPartitionId.allPartitions());
+		}
+
+		assertThat(mySvc.getSize()).isBetween(1, 9);
+		assertEquals(10 - mySvc.getSize(), mySvc.getEvictionCount());
+	}
+
+	private static Search createSearch(SearchStatusEnum theStatus, Date theCreated) {
+		Search search = new Search();
+		search.setUuid(UUID.randomUUID().toString());
+		search.setStatus(theStatus);
+		search.setCreated(theCreated);
+		search.setResourceType("Patient");
+		search.setSearchQueryString("Patient?name=smith", RequestPartitionId.allPartitions());
+		search.setNumFound(25);
+		return search;
+	}
+}
@@ -0,0 +1,131 @@
+package ca.uhn.fhir.jpa.search.cache;
+
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.jpa.entity.Search;
+import ca.uhn.fhir.jpa.model.dao.JpaPid;
+import ca.uhn.fhir.jpa.model.search.SearchStatusEnum;
+import ca.uhn.fhir.rest.api.server.SystemRequestDetails;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class LocalSearchResultCacheSvcImplTest {
+
+	@Mock
+	private ISearchResultCacheSvc myDelegate;
+	@Mock
+	private Search mySearch;
+	private LocalSearchResultCacheSvcImpl mySvc;
+
+	@BeforeEach
+	public void before() {
+		mySvc = new LocalSearchResultCacheSvcImpl(myDelegate, 100_000);
+		lenient().when(mySearch.getUuid()).thenReturn("1");
+	}
+
+	@Test
+	public void testStoreAndFetchLocally() {
+		List<JpaPid> first = createPids(0, 20);
+		List<JpaPid> second = createPids(20, 15);
+		mySvc.storeResults(mySearch, List.of(), first, new SystemRequestDetails(), RequestPartitionId.allPartitions());
+		mySvc.storeResults(mySearch, first, second, new SystemRequestDetails(), RequestPartitionId.allPartitions());
+
+		// Everything is written through to the delegate
+		verify(myDelegate).storeResults(eq(mySearch), eq(List.of()), eq(first), any(), any());
+		verify(myDelegate).storeResults(eq(mySearch), eq(first), eq(second), any(), any());
+
+		List<JpaPid> page = mySvc.fetchResultPids(mySearch, 10, 30, new SystemRequestDetails(), RequestPartitionId.allPartitions());
+		assertThat(page).extracting(JpaPid::getId).containsExactlyElementsOf(createPids(10, 20).stream().map(JpaPid::getId).toList());
+
+		when(mySearch.getNumFound()).thenReturn(35);
+		List<JpaPid> all = mySvc.fetchAllResultPids(mySearch, new SystemRequestDetails(), RequestPartitionId.allPartitions());
+		assertEquals(35, all.size());
+		assertEquals(Integer.valueOf(2), all.get(2).getPartitionId());
+
+		verify(myDelegate, never()).fetchResultPids(any(), anyInt(), anyInt(), any(), any());
+		verify(myDelegate, never()).fetchAllResultPids(any(), any(), any());
+		assertEquals(2, mySvc.getHitCount());
+		assertEquals(0, mySvc.getMissCount());
+	}
+
+	@Test
+	public void testFetchPastLocalResults() {
+		mySvc.storeResults(mySearch, List.of(), createPids(0, 20), new SystemRequestDetails(), RequestPartitionId.allPartitions());
+
+		// Search is still loading, so the remaining results may be stored elsewhere
+		when(mySearch.getStatus()).thenReturn(SearchStatusEnum.LOADING);
+		mySvc.fetchResultPids(mySearch, 10, 30, new SystemRequestDetails(), RequestPartitionId.allPartitions());
+		verify(myDelegate, times(1)).fetchResultPids(any(), anyInt(), anyInt(), any(), any());
+
+		// Search is finished and we hold everything
+		when(mySearch.getStatus()).thenReturn(SearchStatusEnum.FINISHED);
+		when(mySearch.getNumFound()).thenReturn(20);
+		List<JpaPid> page = mySvc.fetchResultPids(mySearch, 10, 30, new SystemRequestDetails(), RequestPartitionId.allPartitions());
+		assertEquals(10, page.size());
+		verify(myDelegate, times(1)).fetchResultPids(any(), anyInt(), anyInt(), any(), any());
+	}
+
+	@Test
+	public void testResultsStoredElsewhereAreNotHeldLocally() {
+		// Results 0-19 were stored by another node
+		List<JpaPid> first = createPids(0, 20);
+		mySvc.storeResults(mySearch, first, createPids(20, 10), new SystemRequestDetails(), RequestPartitionId.allPartitions());
+		assertEquals(0, mySvc.getSizeBytes());
+
+		mySvc.fetchResultPids(mySearch, 20, 30, new SystemRequestDetails(), RequestPartitionId.allPartitions());
+		verify(myDelegate).fetchResultPids(eq(mySearch), eq(20), eq(30), any(), any());
+		assertEquals(1, mySvc.getMissCount());
+	}
+
+	@Test
+	public void testEviction() {
+		mySvc = new LocalSearchResultCacheSvcImpl(myDelegate, 500);
+		for (long i = 0; i < 5; i++) {
+			Search search = mock(Search.class);
+			when(search.getUuid()).thenReturn(Long.toString(i));
+			mySvc.storeResults(search, List.of(), createPids(0, 100), new SystemRequestDetails(), RequestPartitionId.allPartitions());
+		}
+
+		assertThat(mySvc.getSizeBytes()).isLessThanOrEqualTo(500);
+		assertThat(mySvc.getEvictionCount()).isGreaterThan(0);
+
+		mySvc.fetchResultPids(mySearch, 0, 10, new SystemRequestDetails(), RequestPartitionId.allPartitions());
+		verify(myDelegate).fetchResultPids(eq(mySearch), eq(0), eq(10), any(), any());
+	}
+
+	@Test
+	public void testInvalidateCaches() {
+		mySvc.storeResults(mySearch, List.of(), createPids(0, 20), new SystemRequestDetails(), RequestPartitionId.allPartitions());
+		assertThat(mySvc.getSizeBytes()).isGreaterThan(0);
+
+		mySvc.invalidateCaches();
+
+		assertEquals(0, mySvc.getSizeBytes());
+		mySvc.fetchResultPids(mySearch, 0, 10, new SystemRequestDetails(), RequestPartitionId.allPartitions());
+		verify(myDelegate).fetchResultPids(eq(mySearch), eq(0), eq(10), any(), any());
+	}
+
+	private static List<JpaPid> createPids(int theStart, int theCount) {
+		return IntStream.range(theStart, theStart + theCount)
+			.mapToObj(i -> JpaPid.fromId(1000L + i, i % 3 == 0 ? null : i % 3))
+			.toList();
+	}
+}
@@ -5,6 +5,7 @@ import ca.uhn.fhir.batch2.model.JobInstance;
 import ca.uhn.fhir.batch2.model.StatusEnum;
 import ca.uhn.fhir.jpa.dao.data.ITermCodeSystemVersionDao;
 import ca.uhn.fhir.jpa.dao.data.ITermConceptDao;
+import ca.uhn.fhir.jpa.dao.data.ITermConceptParentChildLinkDao;
 import ca.uhn.fhir.jpa.entity.TermCodeSystemVersion;
 import ca.uhn.fhir.jpa.entity.TermConcept;
 import ca.uhn.fhir.jpa.entity.TermConceptParentChildLink;
@@ -45,6 +46,8 @@ public class TermDeferredStorageSvcImplTest {
 	private ITermConceptDao myConceptDao;
 	@Mock
 	private ITermCodeSystemVersionDao myTermCodeSystemVersionDao;
+	@Mock
+	private ITermConceptParentChildLinkDao myConceptParentChildLinkDao;
 
 	@Mock
 	private IJobCoordinator myJobCoordinator;
@@ -110,6 +113,30 @@ public class TermDeferredStorageSvcImplTest {
 
 	}
 
+	@Test
+	public void testSaveDeferred_Concepts_CodeSystemVersionLookedUpOnce() {
+		TermCodeSystemVersion myTermCodeSystemVersion = new TermCodeSystemVersion();
+		myTermCodeSystemVersion.setId(1L);
+
+		TermDeferredStorageSvcImpl svc = new TermDeferredStorageSvcImpl();
+		svc.setTransactionManagerForUnitTest(myTxManager);
+		svc.setTermConceptDaoSvc(myTermConceptDaoSvc);
+
+		when(myTermCodeSystemVersionDao.findById(any())).thenReturn(Optional.of(myTermCodeSystemVersion));
+		svc.setCodeSystemVersionDaoForUnitTest(myTermCodeSystemVersionDao);
+		svc.setProcessDeferred(true);
+		for (int i = 0; i < 3; i++) {
+			TermConcept concept = new TermConcept();
+			concept.setCode("CODE_" + i);
+			concept.setCodeSystemVersion(myTermCodeSystemVersion);
+			svc.addConceptToStorageQueue(concept);
+		}
+		svc.saveDeferred();
+
+		verify(myTermConceptDaoSvc, times(3)).saveConcept(any());
+		verify(myTermCodeSystemVersionDao, times(1)).findById(any());
+	}
+
 	@Test
 	public void testSaveDeferred_Concept_StaleCodeSystemVersion() {
 		TermConcept concept = new TermConcept();
@@ -178,4 +205,32 @@ public class TermDeferredStorageSvcImplTest {
 		verifyNoMoreInteractions(myTermConceptDaoSvc);
 	}
 
+	@Test
+	public void testSaveDeferred_ConceptParentChildLinks() {
+		TermConcept parent = new TermConcept().setId(1L);
+		TermConceptParentChildLink existingLink = new TermConceptParentChildLink();
+		existingLink.setChild(new TermConcept().setId(2L));
+		existingLink.setParent(parent);
+		TermConceptParentChildLink missingLink = new TermConceptParentChildLink();
+		missingLink.setChild(new TermConcept().setId(3L));
+		missingLink.setParent(parent);
+
+		TermDeferredStorageSvcImpl svc = new TermDeferredStorageSvcImpl();
+		svc.setTransactionManagerForUnitTest(myTxManager);
+		svc.setTermConceptDaoSvc(myTermConceptDaoSvc);
+		svc.setConceptDaoForUnitTest(myConceptDao);
+		ReflectionTestUtils.setField(svc, "myConceptParentChildLinkDao", myConceptParentChildLinkDao);
+
+		// Concept 3 has been deleted in the meantime
+		when(myConceptDao.findExistingPids(any())).thenReturn(List.of(parent.getPid(), existingLink.getChild().getPid()));
+		svc.setProcessDeferred(true);
+		svc.addConceptLinkToStorageQueue(existingLink);
+		svc.addConceptLinkToStorageQueue(missingLink);
+		svc.saveDeferred();
+
+		verify(myConceptDao, times(1)).findExistingPids(any());
+		verify(myConceptParentChildLinkDao, times(1)).save(same(existingLink));
+		verifyNoMoreInteractions(myConceptParentChildLinkDao);
+	}
+
 }
@@ -0,0 +1,278 @@
+package ca.uhn.fhir.jpa.util;
+
+import ca.uhn.fhir.broker.api.IChannelNamer;
+import ca.uhn.fhir.broker.api.IChannelSettings;
+import ca.uhn.fhir.broker.impl.LinkedBlockingBrokerClient;
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.model.dao.JpaPid;
+import ca.uhn.fhir.jpa.model.entity.TagTypeEnum;
+import ca.uhn.fhir.jpa.subscription.channel.impl.LinkedBlockingChannelFactory;
+import ca.uhn.fhir.jpa.subscription.channel.impl.RetryPolicyProvider;
+import ca.uhn.fhir.jpa.util.MemoryCacheService.CacheEnum;
+import ca.uhn.fhir.util.JsonUtil;
+import org.apache.commons.lang3.time.DateUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Simulates a cluster of several nodes in a single JVM. Each node has its own
+ * {@link MemoryCacheService} and {@link LinkedBlockingBrokerClient}, and all of the
+ * broker clients share a single {@link LinkedBlockingChannelFactory} so that a message
+ * sent by any node is delivered to every node.
+ */
+public class MemoryCacheInvalidationBusTest {
+
+	private static final int NODE_COUNT = 3;
+	private LinkedBlockingChannelFactory myChannelFactory;
+	private List<Node> myNodes;
+
+	@BeforeEach
+	public void before() {
+		IChannelNamer channelNamer = (String theNameComponent, IChannelSettings theChannelSettings) -> theNameComponent;
+		myChannelFactory = new LinkedBlockingChannelFactory(channelNamer, new RetryPolicyProvider());
+
+		myNodes = new ArrayList<>();
+		for (int i = 0; i < NODE_COUNT; i++) {
+			JpaStorageSettings storageSettings = new JpaStorageSettings();
+			storageSettings.setMemoryCacheExpireAfterWriteMillis(6 * DateUtils.MILLIS_PER_HOUR);
+			MemoryCacheService memoryCacheService = new MemoryCacheService(storageSettings);
+
+			LinkedBlockingBrokerClient brokerClient = new LinkedBlockingBrokerClient(channelNamer);
+			brokerClient.setLinkedBlockingChannelFactory(myChannelFactory);
+
+			MemoryCacheInvalidationBus bus = new MemoryCacheInvalidationBus(memoryCacheService);
+			bus.start(brokerClient);
+			myNodes.add(new Node(memoryCacheService, bus));
+		}
+	}
+
+	@AfterEach
+	public void after() {
+		myNodes.forEach(t -> t.bus().stop());
+		myChannelFactory.stop();
+	}
+
+	@Test
+	public void testInvalidateAfterCommit_PropagatedToOtherNodesOnCommit() {
+		MemoryCacheService.ForcedIdCacheKey forcedIdKey = new MemoryCacheService.ForcedIdCacheKey(
+				"Patient", "A", RequestPartitionId.fromPartitionIds(Arrays.asList(null, 1)));
+		JpaPid pid = JpaPid.fromId(123L, 1);
+		for (Node next : myNodes) {
+			next.cache().put(CacheEnum.MATCH_URL, "Patient?identifier=foo|bar", JpaPid.fromId(1L));
+			next.cache().put(CacheEnum.RESOURCE_LOOKUP_BY_FORCED_ID, forcedIdKey, List.of());
+			next.cache().put(CacheEnum.PID_TO_FORCED_ID, pid, "Patient/A");
+		}
+
+		Node node0 = myNodes.get(0);
+		runInTransaction(true, () -> {
+			node0.cache().invalidateAfterCommit(CacheEnum.MATCH_URL, "Patient?identifier=foo|bar");
+			node0.cache().invalidateAfterCommit(CacheEnum.RESOURCE_LOOKUP_BY_FORCED_ID, forcedIdKey);
+			node0.cache().invalidateAfterCommit(CacheEnum.PID_TO_FORCED_ID, pid);
+
+			// Nothing happens until the transaction commits
+			assertThat((Object) node0.cache().getIfPresent(CacheEnum.MATCH_URL, "Patient?identifier=foo|bar")).isNotNull();
+			assertEquals(0, node0.bus().getPublishedCount());
+		});
+
+		// All of the keys are published as a single message
+		assertEquals(1, node0.bus().getPublishedCount());
+		for (Node next : myNodes) {
+			await().until(() -> next.cache().getIfPresent(CacheEnum.MATCH_URL, "Patient?identifier=foo|bar") == null);
+			await().until(() -> next.cache().getIfPresent(CacheEnum.RESOURCE_LOOKUP_BY_FORCED_ID, forcedIdKey) == null);
+			await().until(() -> next.cache().getIfPresent(CacheEnum.PID_TO_FORCED_ID, pid) == null);
+		}
+		assertEquals(0, node0.bus().getReceivedCount());
+		await().until(() -> myNodes.get(1).bus().getReceivedCount() == 1);
+		await().until(() -> myNodes.get(2).bus().getReceivedCount() == 1);
+	}
+
+	@Test
+	public void testInvalidateAfterCommit_NothingPublishedOnRollback() {
+		for (Node next : myNodes) {
+			next.cache().put(CacheEnum.MATCH_URL, "Patient?identifier=foo|bar", JpaPid.fromId(1L));
+		}
+
+		Node node0 = myNodes.get(0);
+		runInTransaction(false, () -> node0.cache().invalidateAfterCommit(CacheEnum.MATCH_URL, "Patient?identifier=foo|bar"));
+
+		assertEquals(0, node0.bus().getPublishedCount());
+		for (Node next : myNodes) {
+			assertThat((Object) next.cache().getIfPresent(CacheEnum.MATCH_URL, "Patient?identifier=foo|bar")).isNotNull();
+		}
+	}
+
+	@Test
+	public void testInvalidateAfterCommit_RequiresNewTransactionAppliedOnItsOwnCommit() {
+		Node node0 = myNodes.get(0);
+		node0.cache().put(CacheEnum.MATCH_URL, "Patient?identifier=foo|outer", JpaPid.fromId(1L));
+		node0.cache().put(CacheEnum.MATCH_URL, "Patient?identifier=foo|inner", JpaPid.fromId(2L));
+
+		runInTransaction(false, () -> {
+			node0.cache().invalidateAfterCommit(CacheEnum.MATCH_URL, "Patient?identifier=foo|outer");
+			runInNewTransaction(() -> node0.cache().invalidateAfterCommit(CacheEnum.MATCH_URL, "Patient?identifier=foo|inner"));
+
+			// Only the nested transaction has committed so far
+			assertThat((Object) node0.cache().getIfPresent(CacheEnum.MATCH_URL, "Patient?identifier=foo|inner")).isNull();
+			assertThat((Object) node0.cache().getIfPresent(CacheEnum.MATCH_URL, "Patient?identifier=foo|outer")).isNotNull();
+		});
+
+		// The outer transaction rolled back, so its invalidation is never applied
+		assertThat((Object) node0.cache().getIfPresent(CacheEnum.MATCH_URL, "Patient?identifier=foo|outer")).isNotNull();
+		assertEquals(1, node0.bus().getPublishedCount());
+	}
+
+	@Test
+	public void testInvalidateAfterCommit_PutAfterCommitReplacesValueLocally() {
+		for (Node next : myNodes) {
+			next.cache().put(CacheEnum.MATCH_URL, "Patient?identifier=foo|bar", JpaPid.fromId(1L));
+		}
+
+		Node node0 = myNodes.get(0);
+		runInTransaction(true, () -> {
+			// Register the put first, the invalidation should still be applied before it
+			node0.cache().putAfterCommit(CacheEnum.MATCH_URL, "Patient?identifier=foo|bar", JpaPid.fromId(2L));
+			node0.cache().invalidateAfterCommit(CacheEnum.MATCH_URL, "Patient?identifier=foo|bar");
+		});
+
+		assertEquals(JpaPid.fromId(2L), node0.cache().getIfPresent(CacheEnum.MATCH_URL, "Patient?identifier=foo|bar"));
+		await().until(() -> myNodes.get(1).cache().getIfPresent(CacheEnum.MATCH_URL, "Patient?identifier=foo|bar") == null);
+		await().until(() -> myNodes.get(2).cache().getIfPresent(CacheEnum.MATCH_URL, "Patient?identifier=foo|bar") == null);
+	}
+
+	@Test
+	public void testInvalidate_OutsideTransaction() {
+		for (Node next : myNodes) {
+			next.cache().put(CacheEnum.ID_TO_PARTITION, 1, "PART-1");
+			next.cache().put(CacheEnum.ID_TO_PARTITION, 2, "PART-2");
+		}
+
+		myNodes.get(2).cache().invalidateAfterCommit(CacheEnum.ID_TO_PARTITION, 1);
+
+		for (Node next : myNodes) {
+			await().until(() -> next.cache().getIfPresent(CacheEnum.ID_TO_PARTITION, 1) == null);
+			assertEquals("PART-2", next.cache().getIfPresent(CacheEnum.ID_TO_PARTITION, 2));
+		}
+	}
+
+	@Test
+	public void testInvalidateCaches_PropagatedToOtherNodes() {
+		for (Node next : myNodes) {
+			next.cache().put(CacheEnum.NAME_TO_PARTITION, "PART-1", 1);
+			next.cache().put(CacheEnum.TAG_DEFINITION, newTagKey(), "tag");
+		}
+
+		myNodes.get(1).cache().invalidateCaches(CacheEnum.NAME_TO_PARTITION);
+
+		for (Node next : myNodes) {
+			await().until(() -> next.cache().getEstimatedSize(CacheEnum.NAME_TO_PARTITION) == 0);
+			assertEquals("tag", next.cache().getIfPresent(CacheEnum.TAG_DEFINITION, newTagKey()));
+		}
+	}
+
+	@Test
+	public void testStoppedNodeDoesNotPublish() {
+		for (Node next : myNodes) {
+			next.cache().put(CacheEnum.MATCH_URL, "Patient?identifier=foo|bar", JpaPid.fromId(1L));
+		}
+
+		Node node0 = myNodes.get(0);
+		node0.bus().stop();
+		node0.cache().invalidateAfterCommit(CacheEnum.MATCH_URL, "Patient?identifier=foo|bar");
+
+		assertNull(node0.cache().getIfPresent(CacheEnum.MATCH_URL, "Patient?identifier=foo|bar"));
+		assertEquals(0, node0.bus().getPublishedCount());
+		assertThat((Object) myNodes.get(1).cache().getIfPresent(CacheEnum.MATCH_URL, "Patient?identifier=foo|bar")).isNotNull();
+	}
+
+	@Test
+	public void testKeySerializationRoundTrip() {
+		Map<CacheEnum, List<Object>> keys = Map.of(
+				CacheEnum.MATCH_URL, List.of("Patient?identifier=foo|bar"),
+				CacheEnum.ID_TO_PARTITION, List.of(1),
+				CacheEnum.HASH_IDENTITY_TO_SEARCH_PARAM_IDENTITY, List.of(-1234567890123L),
+				CacheEnum.PID_TO_FORCED_ID, List.of(JpaPid.fromId(1L), JpaPid.fromId(2L, 3)),
+				CacheEnum.RESOURCE_LOOKUP_BY_FORCED_ID, List.of(
+						new MemoryCacheService.ForcedIdCacheKey("Patient", "A", RequestPartitionId.allPartitions()),
+						new MemoryCacheService.ForcedIdCacheKey(null, "123", RequestPartitionId.fromPartitionIds(Arrays.asList(null, 1)))),
+				CacheEnum.TAG_DEFINITION, List.of(
+						newTagKey(),
+						new MemoryCacheService.TagDefinitionCacheKey(TagTypeEnum.PROFILE, null, "http://profile", null, null)),
+				CacheEnum.HISTORY_COUNT, List.of(
+						MemoryCacheService.HistoryCountKey.forSystem(),
+						MemoryCacheService.HistoryCountKey.forType("Patient"),
+						MemoryCacheService.HistoryCountKey.forInstance(JpaPid.fromId(5L, 2))));
+
+		keys.forEach((cache, cacheKeys) -> {
+			for (Object next : cacheKeys) {
+				List<String> parts = MemoryCacheService.keyToParts(next);
+
+				// Make sure the parts survive a trip through JSON the way a real broker would send them
+				MemoryCacheInvalidation invalidation = new MemoryCacheInvalidation("node");
+				invalidation.getInvalidatedKeys().put(cache.name(), List.of(parts));
+				String json = JsonUtil.serialize(new MemoryCacheInvalidationJsonMessage(invalidation));
+				MemoryCacheInvalidationJsonMessage message = JsonUtil.deserialize(json, MemoryCacheInvalidationJsonMessage.class);
+				List<String> receivedParts = message.getPayload().getInvalidatedKeys().get(cache.name()).get(0);
+
+				Object actual = MemoryCacheService.keyFromParts(cache, receivedParts);
+				assertEquals(next, actual, cache + " " + parts);
+				assertEquals(next.hashCode(), actual.hashCode(), cache + " " + parts);
+			}
+		});
+	}
+
+	private static MemoryCacheService.TagDefinitionCacheKey newTagKey() {
+		return new MemoryCacheService.TagDefinitionCacheKey(TagTypeEnum.TAG, "http://system", "code", "1.0", true);
+	}
+
+	/**
+	 * Runs the given task with transaction synchronization active, and then invokes
+	 * the registered synchronizations as a transaction manager would on commit or rollback
+	 */
+	private static void runInTransaction(boolean theCommit, Runnable theTask) {
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			theTask.run();
+			List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+			if (theCommit) {
+				TransactionSynchronizationUtils.invokeAfterCommit(synchronizations);
+			}
+			TransactionSynchronizationUtils.invokeAfterCompletion(
+					synchronizations,
+					theCommit ? TransactionSynchronization.STATUS_COMMITTED : TransactionSynchronization.STATUS_ROLLED_BACK);
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	/**
+	 * Runs the given task in a new transaction which commits, suspending the synchronizations
+	 * of the current one as a transaction manager would for REQUIRES_NEW
+	 */
+	private static void runInNewTransaction(Runnable theTask) {
+		List<TransactionSynchronization> suspended = TransactionSynchronizationManager.getSynchronizations();
+		TransactionSynchronizationManager.clearSynchronization();
+		try {
+			runInTransaction(true, theTask);
+		} finally {
+			TransactionSynchronizationManager.initSynchronization();
+			suspended.forEach(TransactionSynchronizationManager::registerSynchronization);
+		}
+	}
+
+	private record Node(MemoryCacheService cache, MemoryCacheInvalidationBus bus) {}
+}
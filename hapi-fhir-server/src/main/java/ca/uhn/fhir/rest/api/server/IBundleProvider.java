@@ -107,6 +107,19 @@ public interface IBundleProvider {
 		return null;
 	}
 
+	/**
+	 * If {@link #getCurrentPageOffset()} returns a non-null value, this method may return an
+	 * opaque keyset paging token identifying the last result on the current page. If present,
+	 * the server will include it in the <code>next</code> link using the
+	 * {@link ca.uhn.fhir.rest.api.Constants#PARAM_SEARCH_AFTER _searchAfter} parameter so
+	 * that the next page can be fetched without scanning past the preceding results.
+	 *
+	 * @since 8.4.0
+	 */
+	default String getNextSearchAfterKey() {
+		return null;
+	}
+
 	/**
 	 * Returns the instant as of which this result was created. The
 	 * result of this value is used to populate the <code>lastUpdated</code>
@@ -81,6 +81,13 @@ public class BulkExportJobParameters extends BaseBatchJobParameters {
 	@JsonProperty("outputFormat")
 	private String myOutputFormat;
 
+	/**
+	 * HTTP content coding (e.g. <code>gzip</code>) used to compress the output files,
+	 * or <code>null</code> for uncompressed output
+	 */
+	@JsonProperty("outputCompression")
+	private String myOutputCompression;
+
 	/**
 	 * Export style - Patient, Group or Everything
 	 */
@@ -198,6 +205,23 @@ public class BulkExportJobParameters extends BaseBatchJobParameters {
 		myOutputFormat = theOutputFormat;
 	}
 
+	/**
+	 * @since 8.4.0
+	 */
+	public String getOutputCompression() {
+		return myOutputCompression;
+	}
+
+	/**
+	 * Sets the HTTP content coding (<code>gzip</code> or <code>zstd</code>) used to compress
+	 * the generated NDJSON files, or <code>null</code> (the default) for uncompressed output.
+	 *
+	 * @since 8.4.0
+	 */
+	public void setOutputCompression(String theOutputCompression) {
+		myOutputCompression = theOutputCompression;
+	}
+
 	public ExportStyle getExportStyle() {
 		return myExportStyle;
 	}
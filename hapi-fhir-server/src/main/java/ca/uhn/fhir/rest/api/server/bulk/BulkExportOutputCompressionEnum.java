@@ -0,0 +1,122 @@
+/*-
+ * #%L
+ * HAPI FHIR - Server Framework
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.rest.api.server.bulk;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import jakarta.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compression codecs which may be applied to bulk export NDJSON output files, identified
+ * by their HTTP content coding. Compressed files are stored as-is, and are served with a
+ * matching <code>Content-Encoding</code> header when downloaded by a client which accepts
+ * that coding (and are decompressed by the server for clients which don't).
+ * <p>
+ * The zstd codec requires <code>com.github.luben:zstd-jni</code>, which is an optional
+ * dependency of this module.
+ * </p>
+ *
+ * @see BulkExportJobParameters#setOutputCompression(String)
+ * @since 8.4.0
+ */
+public enum BulkExportOutputCompressionEnum {
+	GZIP("gzip") {
+		@Override
+		public OutputStream newCompressingStream(OutputStream theOutputStream) throws IOException {
+			return new GZIPOutputStream(theOutputStream, BUFFER_SIZE);
+		}
+
+		@Override
+		public InputStream newDecompressingStream(InputStream theInputStream) throws IOException {
+			return new GZIPInputStream(theInputStream, BUFFER_SIZE);
+		}
+	},
+
+	ZSTD("zstd") {
+		@Override
+		public OutputStream newCompressingStream(OutputStream theOutputStream) throws IOException {
+			return ZstdCodec.newCompressingStream(theOutputStream);
+		}
+
+		@Override
+		public InputStream newDecompressingStream(InputStream theInputStream) throws IOException {
+			return ZstdCodec.newDecompressingStream(theInputStream);
+		}
+	};
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final String myContentEncoding;
+
+	BulkExportOutputCompressionEnum(String theContentEncoding) {
+		myContentEncoding = theContentEncoding;
+	}
+
+	/**
+	 * Returns the HTTP content coding for this codec, e.g. <code>gzip</code>
+	 */
+	public String getContentEncoding() {
+		return myContentEncoding;
+	}
+
+	/**
+	 * Returns a stream which compresses everything written to it into the given stream.
+	 * Closing the returned stream finishes the compressed content and closes the given stream.
+	 */
+	public abstract OutputStream newCompressingStream(OutputStream theOutputStream) throws IOException;
+
+	/**
+	 * Returns a stream which decompresses content read from the given stream
+	 */
+	public abstract InputStream newDecompressingStream(InputStream theInputStream) throws IOException;
+
+	/**
+	 * Returns the codec for the given HTTP content coding (case insensitive), or
+	 * <code>null</code> if the content coding is not supported
+	 */
+	@Nullable
+	public static BulkExportOutputCompressionEnum fromContentEncoding(@Nullable String theContentEncoding) {
+		for (BulkExportOutputCompressionEnum next : values()) {
+			if (next.getContentEncoding().equalsIgnoreCase(theContentEncoding)) {
+				return next;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Holds the references to zstd-jni, so that it is only loaded if the zstd codec is actually used
+	 */
+	private static class ZstdCodec {
+		static OutputStream newCompressingStream(OutputStream theOutputStream) throws IOException {
+			return new ZstdOutputStream(theOutputStream);
+		}
+
+		static InputStream newDecompressingStream(InputStream theInputStream) throws IOException {
+			return new ZstdInputStream(theInputStream);
+		}
+	}
+}
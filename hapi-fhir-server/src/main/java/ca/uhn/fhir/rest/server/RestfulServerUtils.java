@@ -42,8 +42,10 @@ import ca.uhn.fhir.rest.api.SummaryEnum;
 import ca.uhn.fhir.rest.api.server.IRestfulResponse;
 import ca.uhn.fhir.rest.api.server.IRestfulServer;
 import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.rest.api.server.bulk.BulkExportOutputCompressionEnum;
 import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+import ca.uhn.fhir.rest.server.exceptions.UnclassifiedServerFailureException;
 import ca.uhn.fhir.rest.server.method.ElementsParameter;
 import ca.uhn.fhir.rest.server.method.SummaryEnumParameter;
 import ca.uhn.fhir.rest.server.servlet.ServletRequestDetails;
@@ -65,7 +67,9 @@ import org.hl7.fhir.instance.model.api.IDomainResource;
 import org.hl7.fhir.instance.model.api.IIdType;
 import org.hl7.fhir.instance.model.api.IPrimitiveType;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Writer;
 import java.util.Arrays;
@@ -252,6 +256,25 @@ public class RestfulServerUtils {
 			Integer theOffset,
 			Integer theCount,
 			Map<String, String[]> theRequestParameters) {
+		return createOffsetPagingLink(
+				theBundleLinks, requestPath, tenantId, theOffset, theCount, theRequestParameters, null);
+	}
+
+	/**
+	 * Creates an offset paging link. Any {@link Constants#PARAM_SEARCH_AFTER _searchAfter} token
+	 * in the original request is only valid for the page which follows the current one, so it
+	 * is always removed and replaced by <code>theSearchAfterKey</code> if one is supplied.
+	 *
+	 * @since 8.4.0
+	 */
+	public static String createOffsetPagingLink(
+			BundleLinks theBundleLinks,
+			String requestPath,
+			String tenantId,
+			Integer theOffset,
+			Integer theCount,
+			Map<String, String[]> theRequestParameters,
+			@Nullable String theSearchAfterKey) {
 		StringBuilder b = new StringBuilder();
 		b.append(theBundleLinks.serverBase);
 
@@ -267,6 +290,10 @@ public class RestfulServerUtils {
 		Map<String, String[]> params = Maps.newLinkedHashMap(theRequestParameters);
 		params.put(Constants.PARAM_OFFSET, new String[] {String.valueOf(theOffset)});
 		params.put(Constants.PARAM_COUNT, new String[] {String.valueOf(theCount)});
+		params.remove(Constants.PARAM_SEARCH_AFTER);
+		if (isNotBlank(theSearchAfterKey)) {
+			params.put(Constants.PARAM_SEARCH_AFTER, new String[] {theSearchAfterKey});
+		}
 
 		boolean first = true;
 		for (String nextParamName : new TreeSet<>(params.keySet())) {
@@ -738,6 +765,113 @@ public class RestfulServerUtils {
 		return parser;
 	}
 
+	/**
+	 * Returns <code>true</code> if the <code>Accept-Encoding</code> header(s) of the given request
+	 * accept the given content coding (e.g. <code>gzip</code>), either by naming it or through a
+	 * <code>*</code> wildcard. A coding with a quality value of <code>0</code> is not acceptable.
+	 * If the request has no <code>Accept-Encoding</code> header, no coding is considered acceptable,
+	 * since clients which do not declare the codings they support generally can't decode any.
+	 *
+	 * @since 8.4.0
+	 */
+	public static boolean isContentEncodingAccepted(RequestDetails theRequestDetails, String theContentEncoding) {
+		Float quality = getAcceptedContentEncodingQuality(theRequestDetails, theContentEncoding);
+		return quality != null && quality > 0.0f;
+	}
+
+	/**
+	 * Returns <code>true</code> unless the <code>Accept-Encoding</code> header(s) of the given request
+	 * rule out the <code>identity</code> coding (i.e. no content coding at all), either explicitly
+	 * or through a <code>*</code> wildcard with a quality value of <code>0</code>.
+	 *
+	 * @since 8.4.0
+	 */
+	public static boolean isIdentityContentEncodingAccepted(RequestDetails theRequestDetails) {
+		Float quality = getAcceptedContentEncodingQuality(theRequestDetails, "identity");
+		return quality == null || quality > 0.0f;
+	}
+
+	/**
+	 * Chooses how content which was stored using the given content coding (e.g. a compressed
+	 * bulk export file) is served. If the coding is supported and the client accepts it, the
+	 * stored content is served as-is and <code>null</code> is returned, in which case the caller
+	 * must declare the coding in a <code>Content-Encoding</code> header. Otherwise the content must
+	 * be decoded using the returned codec and served without a <code>Content-Encoding</code> header.
+	 *
+	 * @throws UnclassifiedServerFailureException A HTTP 406 Not Acceptable if the content can't be
+	 * 	served in any coding the client accepts
+	 * @since 8.4.0
+	 */
+	@Nullable
+	public static BulkExportOutputCompressionEnum negotiateStoredContentEncoding(
+			RequestDetails theRequestDetails, String theStoredContentEncoding) {
+		BulkExportOutputCompressionEnum compression =
+				BulkExportOutputCompressionEnum.fromContentEncoding(theStoredContentEncoding);
+		if (compression != null && isContentEncodingAccepted(theRequestDetails, theStoredContentEncoding)) {
+			return null;
+		}
+		if (compression == null || !isIdentityContentEncodingAccepted(theRequestDetails)) {
+			throw new UnclassifiedServerFailureException(
+					Constants.STATUS_HTTP_406_NOT_ACCEPTABLE,
+					Msg.code(2770) + "Content is stored with content coding \"" + theStoredContentEncoding
+							+ "\" and can not be served in a coding accepted by this request");
+		}
+		return compression;
+	}
+
+	/**
+	 * Returns the quality value the <code>Accept-Encoding</code> header(s) of the given request
+	 * assign to the given content coding, either by naming it or through a <code>*</code> wildcard,
+	 * or <code>null</code> if neither applies to it.
+	 */
+	@Nullable
+	private static Float getAcceptedContentEncodingQuality(
+			RequestDetails theRequestDetails, String theContentEncoding) {
+		List<String> acceptEncodingValues = theRequestDetails.getHeaders(Constants.HEADER_ACCEPT_ENCODING);
+		if (acceptEncodingValues == null) {
+			return null;
+		}
+
+		Float wildcardQuality = null;
+		for (String nextAcceptEncodingValue : acceptEncodingValues) {
+			for (String nextCodingAndParams : StringUtils.split(nextAcceptEncodingValue, ',')) {
+				String[] parts = StringUtils.split(nextCodingAndParams, ';');
+				if (parts.length == 0) {
+					continue;
+				}
+
+				String coding = trim(parts[0]);
+				float q = 1.0f;
+				for (int i = 1; i < parts.length; i++) {
+					String nextParam = trim(parts[i]);
+					if (StringUtils.startsWithIgnoreCase(nextParam, "q=")) {
+						try {
+							q = Float.parseFloat(nextParam.substring(2));
+						} catch (NumberFormatException e) {
+							ourLog.debug("Invalid Accept-Encoding header q value: {}", nextParam);
+						}
+					}
+				}
+
+				if ("*".equals(coding)) {
+					wildcardQuality = q;
+				} else if (isSameContentCoding(coding, theContentEncoding)) {
+					// An explicitly listed coding takes precedence over the wildcard
+					return q;
+				}
+			}
+		}
+
+		return wildcardQuality;
+	}
+
+	private static boolean isSameContentCoding(String theCoding, String theOtherCoding) {
+		// x-gzip is an alias for gzip, see RFC 9110 section 8.4.1.3
+		String coding = "x-gzip".equalsIgnoreCase(theCoding) ? Constants.ENCODING_GZIP : theCoding;
+		String otherCoding = "x-gzip".equalsIgnoreCase(theOtherCoding) ? Constants.ENCODING_GZIP : theOtherCoding;
+		return coding.equalsIgnoreCase(otherCoding);
+	}
+
 	public static Set<String> parseAcceptHeaderAndReturnHighestRankedOptions(HttpServletRequest theRequest) {
 		Set<String> retVal = new HashSet<String>();
 
@@ -968,14 +1102,32 @@ public class RestfulServerUtils {
 				contentType = getBinaryContentTypeOrDefault(bin);
 				response.addHeader(Constants.HEADER_CONTENT_DISPOSITION, "Attachment;");
 
+				byte[] content = bin.hasData() ? bin.getContent() : null;
+
+				// If the content was stored compressed, serve it as-is and declare the coding if the
+				// client accepts it, and otherwise decompress it if the client accepts that
+				String contentEncoding = BinaryUtil.getContentEncoding(bin);
+				if (isNotBlank(contentEncoding)) {
+					BulkExportOutputCompressionEnum compression =
+							negotiateStoredContentEncoding(theRequestDetails, contentEncoding);
+					if (compression == null) {
+						response.addHeader(Constants.HEADER_CONTENT_ENCODING, contentEncoding);
+					} else if (content != null) {
+						try (InputStream inputStream =
+								compression.newDecompressingStream(new ByteArrayInputStream(content))) {
+							content = inputStream.readAllBytes();
+						}
+					}
+				}
+
 				Integer contentLength = null;
-				if (bin.hasData()) {
-					contentLength = bin.getContent().length;
+				if (content != null) {
+					contentLength = content.length;
 				}
 
 				OutputStream outputStream = response.getResponseOutputStream(theStatusCode, contentType, contentLength);
-				if (bin.hasData()) {
-					outputStream.write(bin.getContent());
+				if (content != null) {
+					outputStream.write(content);
 				}
 				return response.commitResponse(outputStream);
 			}
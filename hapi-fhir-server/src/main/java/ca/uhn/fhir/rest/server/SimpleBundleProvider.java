@@ -41,6 +41,7 @@ public class SimpleBundleProvider implements IBundleProvider {
 	private IPrimitiveType<Date> myPublished = InstantDt.withCurrentTime();
 	private Integer myCurrentPageOffset;
 	private Integer myCurrentPageSize;
+	private String myNextSearchAfterKey;
 	private ResponsePage.ResponsePageBuilder myPageBuilder;
 
 	/**
@@ -127,6 +128,21 @@ public class SimpleBundleProvider implements IBundleProvider {
 		myCurrentPageSize = theCurrentPageSize;
 	}
 
+	/**
+	 * @since 8.4.0
+	 */
+	@Override
+	public String getNextSearchAfterKey() {
+		return myNextSearchAfterKey;
+	}
+
+	/**
+	 * @since 8.4.0
+	 */
+	public void setNextSearchAfterKey(String theNextSearchAfterKey) {
+		myNextSearchAfterKey = theNextSearchAfterKey;
+	}
+
 	/**
 	 * Returns the results stored in this provider
 	 */
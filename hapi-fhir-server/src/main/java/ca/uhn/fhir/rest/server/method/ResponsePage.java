@@ -291,7 +291,8 @@ public class ResponsePage {
 							myResponseBundleRequest.requestDetails.getTenantId(),
 							ObjectUtils.defaultIfNull(myRequestedPage.offset, 0) + myNumToReturn,
 							myNumToReturn,
-							myResponseBundleRequest.getRequestParameters());
+							myResponseBundleRequest.getRequestParameters(),
+							myBundleProvider.getNextSearchAfterKey());
 					break;
 				case BUNDLE_PROVIDER_PAGE_IDS:
 					next = RestfulServerUtils.createPagingLink(
@@ -6,7 +6,9 @@ import ca.uhn.fhir.rest.api.PreferHandlingEnum;
 import ca.uhn.fhir.rest.api.PreferHeader;
 import ca.uhn.fhir.rest.api.PreferReturnEnum;
 import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.rest.api.server.bulk.BulkExportOutputCompressionEnum;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+import ca.uhn.fhir.rest.server.exceptions.UnclassifiedServerFailureException;
 import ca.uhn.fhir.rest.server.servlet.ServletRequestDetails;
 import org.apache.commons.lang3.StringUtils;
 import org.hl7.fhir.instance.model.api.IBaseBinary;
@@ -32,6 +34,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.Mockito.when;
@@ -223,6 +226,79 @@ public class RestfulServerUtilsTest {
 		assertTrue(shouldStream);
 	}
 
+	@ParameterizedTest
+	@CsvSource(delimiter = '|', nullValues = "NULL", textBlock = """
+		NULL                 | zstd | false
+		gzip, deflate        | zstd | false
+		gzip, deflate        | gzip | true
+		GZIP                 | gzip | true
+		x-gzip               | gzip | true
+		zstd;q=0.5           | zstd | true
+		zstd;q=0             | zstd | false
+		*                    | zstd | true
+		*;q=0                | zstd | false
+		zstd;q=0, *          | zstd | false
+		gzip, *;q=0          | gzip | true
+		""")
+	public void testIsContentEncodingAccepted(String theAcceptEncoding, String theContentEncoding, boolean theExpected) {
+		when(myRequestDetails.getHeaders(Constants.HEADER_ACCEPT_ENCODING))
+			.thenReturn(theAcceptEncoding == null ? null : List.of(theAcceptEncoding));
+
+		assertEquals(theExpected, RestfulServerUtils.isContentEncodingAccepted(myRequestDetails, theContentEncoding));
+	}
+
+	@ParameterizedTest
+	@CsvSource(delimiter = '|', nullValues = "NULL", textBlock = """
+		NULL                    | true
+		gzip                    | true
+		identity                | true
+		identity;q=0            | false
+		*;q=0                   | false
+		identity, *;q=0         | true
+		gzip, identity;q=0, *   | false
+		""")
+	public void testIsIdentityContentEncodingAccepted(String theAcceptEncoding, boolean theExpected) {
+		when(myRequestDetails.getHeaders(Constants.HEADER_ACCEPT_ENCODING))
+			.thenReturn(theAcceptEncoding == null ? null : List.of(theAcceptEncoding));
+
+		assertEquals(theExpected, RestfulServerUtils.isIdentityContentEncodingAccepted(myRequestDetails));
+	}
+
+	@ParameterizedTest
+	@CsvSource(delimiter = '|', nullValues = "NULL", textBlock = """
+		gzip, zstd           | zstd   | NULL
+		gzip                 | zstd   | ZSTD
+		NULL                 | gzip   | GZIP
+		""")
+	public void testNegotiateStoredContentEncoding(String theAcceptEncoding, String theStoredContentEncoding, BulkExportOutputCompressionEnum theExpected) {
+		when(myRequestDetails.getHeaders(Constants.HEADER_ACCEPT_ENCODING))
+			.thenReturn(theAcceptEncoding == null ? null : List.of(theAcceptEncoding));
+
+		assertEquals(theExpected, RestfulServerUtils.negotiateStoredContentEncoding(myRequestDetails, theStoredContentEncoding));
+	}
+
+	@ParameterizedTest
+	@CsvSource(delimiter = '|', textBlock = """
+		gzip, identity;q=0   | zstd
+		*;q=0                | gzip
+		""")
+	public void testNegotiateStoredContentEncoding_NotAcceptable(String theAcceptEncoding, String theStoredContentEncoding) {
+		when(myRequestDetails.getHeaders(Constants.HEADER_ACCEPT_ENCODING)).thenReturn(List.of(theAcceptEncoding));
+
+		UnclassifiedServerFailureException e = assertThrows(UnclassifiedServerFailureException.class,
+			() -> RestfulServerUtils.negotiateStoredContentEncoding(myRequestDetails, theStoredContentEncoding));
+		assertEquals(Constants.STATUS_HTTP_406_NOT_ACCEPTABLE, e.getStatusCode());
+		assertThat(e.getMessage()).startsWith("HAPI-2770: ");
+	}
+
+	@Test
+	public void testNegotiateStoredContentEncoding_UnsupportedCoding() {
+		// Content in a coding we can't decode is never served, even if the client accepts the coding
+		UnclassifiedServerFailureException e = assertThrows(UnclassifiedServerFailureException.class,
+			() -> RestfulServerUtils.negotiateStoredContentEncoding(myRequestDetails, "brotli"));
+		assertEquals(Constants.STATUS_HTTP_406_NOT_ACCEPTABLE, e.getStatusCode());
+	}
+
 	@ParameterizedTest
 	@MethodSource("testParameters")
 	public void testCreateSelfLinks_withDifferentResourcePathAndTenantId(String theServerBaseUrl, String theRequestPath,
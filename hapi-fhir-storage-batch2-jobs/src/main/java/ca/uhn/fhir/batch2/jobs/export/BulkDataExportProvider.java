@@ -130,12 +130,15 @@ public class BulkDataExportProvider {
 					List<IPrimitiveType<String>> theTypePostFetchFilterUrl,
 			@OperationParam(name = JpaConstants.PARAM_EXPORT_IDENTIFIER, min = 0, max = 1, typeName = "string")
 					IPrimitiveType<String> theExportId,
+			@OperationParam(name = JpaConstants.PARAM_EXPORT_OUTPUT_COMPRESSION, min = 0, max = 1, typeName = "string")
+					IPrimitiveType<String> theOutputCompression,
 			ServletRequestDetails theRequestDetails) {
 		// JPA export provider
 		BulkDataExportUtil.validatePreferAsyncHeader(theRequestDetails, ProviderConstants.OPERATION_EXPORT);
 
 		BulkExportJobParameters bulkExportJobParameters = new BulkExportJobParametersBuilder()
 				.outputFormat(theOutputFormat)
+				.outputCompression(theOutputCompression)
 				.resourceTypes(theType)
 				.since(theSince)
 				.until(theUntil)
@@ -183,6 +186,8 @@ public class BulkDataExportProvider {
 					IPrimitiveType<Boolean> theMdm,
 			@OperationParam(name = JpaConstants.PARAM_EXPORT_IDENTIFIER, min = 0, max = 1, typeName = "string")
 					IPrimitiveType<String> theExportIdentifier,
+			@OperationParam(name = JpaConstants.PARAM_EXPORT_OUTPUT_COMPRESSION, min = 0, max = 1, typeName = "string")
+					IPrimitiveType<String> theOutputCompression,
 			ServletRequestDetails theRequestDetails) {
 		ourLog.debug("Received Group Bulk Export Request for Group {}", theIdParam);
 		ourLog.debug("_type={}", theType);
@@ -198,6 +203,7 @@ public class BulkDataExportProvider {
 
 		final BulkExportJobParameters bulkExportJobParameters = new BulkExportJobParametersBuilder()
 				.outputFormat(theOutputFormat)
+				.outputCompression(theOutputCompression)
 				.resourceTypes(theType)
 				.since(theSince)
 				.until(theUntil)
@@ -256,6 +262,8 @@ public class BulkDataExportProvider {
 					List<IPrimitiveType<String>> thePatient,
 			@OperationParam(name = JpaConstants.PARAM_EXPORT_IDENTIFIER, min = 0, max = 1, typeName = "string")
 					IPrimitiveType<String> theExportIdentifier,
+			@OperationParam(name = JpaConstants.PARAM_EXPORT_OUTPUT_COMPRESSION, min = 0, max = 1, typeName = "string")
+					IPrimitiveType<String> theOutputCompression,
 			ServletRequestDetails theRequestDetails) {
 
 		List<IPrimitiveType<String>> patientIds = thePatient != null ? thePatient : new ArrayList<>();
@@ -267,6 +275,7 @@ public class BulkDataExportProvider {
 				theSince,
 				theUntil,
 				theExportIdentifier,
+				theOutputCompression,
 				theTypeFilter,
 				theTypePostFetchFilterUrl,
 				patientIds);
@@ -304,6 +313,8 @@ public class BulkDataExportProvider {
 					List<IPrimitiveType<String>> theTypePostFetchFilterUrl,
 			@OperationParam(name = JpaConstants.PARAM_EXPORT_IDENTIFIER, min = 0, max = 1, typeName = "string")
 					IPrimitiveType<String> theExportIdentifier,
+			@OperationParam(name = JpaConstants.PARAM_EXPORT_OUTPUT_COMPRESSION, min = 0, max = 1, typeName = "string")
+					IPrimitiveType<String> theOutputCompression,
 			ServletRequestDetails theRequestDetails) {
 
 		// call the type-level export to ensure spec compliance
@@ -316,6 +327,7 @@ public class BulkDataExportProvider {
 				theTypePostFetchFilterUrl,
 				List.of(theIdParam),
 				theExportIdentifier,
+				theOutputCompression,
 				theRequestDetails);
 	}
 
@@ -326,6 +338,7 @@ public class BulkDataExportProvider {
 			IPrimitiveType<Date> theSince,
 			IPrimitiveType<Date> theUntil,
 			IPrimitiveType<String> theExportIdentifier,
+			IPrimitiveType<String> theOutputCompression,
 			List<IPrimitiveType<String>> theTypeFilter,
 			List<IPrimitiveType<String>> theTypePostFetchFilterUrl,
 			List<IPrimitiveType<String>> thePatientIds) {
@@ -346,6 +359,7 @@ public class BulkDataExportProvider {
 
 		BulkExportJobParameters bulkExportJobParameters = new BulkExportJobParametersBuilder()
 				.outputFormat(theOutputFormat)
+				.outputCompression(theOutputCompression)
 				.resourceTypes(resourceTypes)
 				.since(theSince)
 				.until(theUntil)
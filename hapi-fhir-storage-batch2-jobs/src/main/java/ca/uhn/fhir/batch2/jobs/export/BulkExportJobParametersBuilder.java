@@ -49,6 +49,7 @@ public class BulkExportJobParametersBuilder {
 	private Date myUntil;
 	private Set<String> myFilters;
 	private String myOutputFormat;
+	private String myOutputCompression;
 	private BulkExportJobParameters.ExportStyle myExportStyle;
 	private List<String> myPatientIds = new ArrayList<>();
 	private String myGroupId;
@@ -84,6 +85,11 @@ public class BulkExportJobParametersBuilder {
 		return this;
 	}
 
+	public BulkExportJobParametersBuilder outputCompression(IPrimitiveType<String> theOutputCompression) {
+		myOutputCompression = DatatypeUtil.toStringValue(theOutputCompression);
+		return this;
+	}
+
 	public BulkExportJobParametersBuilder exportStyle(BulkExportJobParameters.ExportStyle theExportStyle) {
 		myExportStyle = theExportStyle;
 		return this;
@@ -140,6 +146,7 @@ public class BulkExportJobParametersBuilder {
 		result.setFilters(myFilters);
 		result.setGroupId(myGroupId);
 		result.setOutputFormat(myOutputFormat);
+		result.setOutputCompression(myOutputCompression);
 		result.setPartitionId(myPartitionId);
 		result.setPatientIds(myPatientIds);
 		result.setResourceTypes(myResourceTypes);
@@ -27,6 +27,7 @@ import ca.uhn.fhir.jpa.searchparam.matcher.InMemoryResourceMatcher;
 import ca.uhn.fhir.rest.api.Constants;
 import ca.uhn.fhir.rest.api.server.RequestDetails;
 import ca.uhn.fhir.rest.api.server.bulk.BulkExportJobParameters;
+import ca.uhn.fhir.rest.api.server.bulk.BulkExportOutputCompressionEnum;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
@@ -34,9 +35,12 @@ import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
 public class BulkExportJobParametersValidator implements IJobParametersValidator<BulkExportJobParameters> {
 
@@ -74,6 +78,16 @@ public class BulkExportJobParametersValidator implements IJobParametersValidator
 		if (!Constants.CT_FHIR_NDJSON.equalsIgnoreCase(theParameters.getOutputFormat())) {
 			errorMsgs.add("The only allowed format for Bulk Export is currently " + Constants.CT_FHIR_NDJSON);
 		}
+
+		// validate the output compression
+		String outputCompression = theParameters.getOutputCompression();
+		if (isNotBlank(outputCompression)
+				&& BulkExportOutputCompressionEnum.fromContentEncoding(outputCompression) == null) {
+			errorMsgs.add("Unsupported output compression \"" + outputCompression + "\", valid values are: "
+					+ Arrays.stream(BulkExportOutputCompressionEnum.values())
+							.map(BulkExportOutputCompressionEnum::getContentEncoding)
+							.collect(Collectors.joining(", ")));
+		}
 		// validate the exportId
 		if (!StringUtils.isBlank(theParameters.getExportIdentifier())) {
 
@@ -41,6 +41,7 @@ import ca.uhn.fhir.jpa.api.dao.IFhirResourceDao;
 import ca.uhn.fhir.jpa.api.model.DaoMethodOutcome;
 import ca.uhn.fhir.jpa.api.model.PersistentIdToForcedIdMap;
 import ca.uhn.fhir.jpa.api.svc.IIdHelperService;
+import ca.uhn.fhir.jpa.binary.api.IBinaryStorageSvc;
 import ca.uhn.fhir.jpa.bulk.export.api.IBulkExportProcessor;
 import ca.uhn.fhir.jpa.dao.tx.IHapiTransactionService;
 import ca.uhn.fhir.jpa.model.util.JpaConstants;
@@ -60,9 +61,12 @@ import ca.uhn.fhir.rest.server.interceptor.ResponseTerminologyTranslationSvc;
 import ca.uhn.fhir.util.BinaryUtil;
 import ca.uhn.fhir.util.FhirTerser;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Utf8;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ListMultimap;
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.hl7.fhir.instance.model.api.IBaseBinary;
 import org.hl7.fhir.instance.model.api.IBaseExtension;
@@ -120,6 +124,9 @@ public class ExpandResourceAndWriteBinaryStep
 	@Autowired
 	private IHapiTransactionService myTransactionService;
 
+	@Autowired(required = false)
+	private IBinaryStorageSvc myBinaryStorageSvc;
+
 	private volatile ResponseTerminologyTranslationSvc myResponseTerminologyTranslationSvc;
 
 	/**
@@ -137,7 +144,9 @@ public class ExpandResourceAndWriteBinaryStep
 	 * The {@link #fetchResourcesByIdAndConsumeThem(ResourceIdList, RequestPartitionId, Consumer)}
 	 * method loads the resources by ID, {@link ExpandResourcesConsumer} handles
 	 * the filtering and whatnot, then the {@link NdJsonResourceWriter}
-	 * ultimately writes them.
+	 * ultimately writes them. If streaming binary writes or output compression
+	 * are enabled, each resource is written to its output file as soon as it
+	 * has been encoded, so the memory used does not grow with the file size.
 	 */
 	@Nonnull
 	@Override
@@ -149,15 +158,19 @@ public class ExpandResourceAndWriteBinaryStep
 		// Currently only NDJSON output format is supported, but we could add other
 		// kinds of writers here for other formats if needed
 		NdJsonResourceWriter resourceWriter = new NdJsonResourceWriter(theStepExecutionDetails, theDataSink);
-
-		expandResourcesFromList(theStepExecutionDetails, resourceWriter);
+		try {
+			expandResourcesFromList(theStepExecutionDetails, resourceWriter);
+			resourceWriter.completeOpenFiles();
+		} finally {
+			resourceWriter.closeOpenFiles();
+		}
 
 		return new RunOutcome(resourceWriter.getNumResourcesProcessed());
 	}
 
 	private void expandResourcesFromList(
 			StepExecutionDetails<BulkExportJobParameters, ResourceIdList> theStepExecutionDetails,
-			Consumer<ExpandedResourcesList> theResourceWriter) {
+			NdJsonResourceWriter theResourceWriter) {
 
 		ResourceIdList idList = theStepExecutionDetails.getData();
 		BulkExportJobParameters parameters = theStepExecutionDetails.getParameters();
@@ -219,7 +232,7 @@ public class ExpandResourceAndWriteBinaryStep
 	 */
 	private void addMetadataExtensionsToBinary(
 			@Nonnull StepExecutionDetails<BulkExportJobParameters, ResourceIdList> theStepExecutionDetails,
-			ExpandedResourcesList expandedResources,
+			String theResourceType,
 			IBaseBinary binary) {
 		// Note that this applies only to hl7.org structures, so these extensions will not be added
 		// to DSTU2 structures
@@ -243,7 +256,7 @@ public class ExpandResourceAndWriteBinaryStep
 			// resource type
 			IBaseExtension<?, ?> typeExtension = meta.addExtension();
 			typeExtension.setUrl(JpaConstants.BULK_META_EXTENSION_RESOURCE_TYPE);
-			typeExtension.setValue(myFhirContext.newPrimitiveString(expandedResources.getResourceType()));
+			typeExtension.setValue(myFhirContext.newPrimitiveString(theResourceType));
 		} else {
 			ourLog.warn(
 					"Could not attach metadata extensions to binary resource, as this binary metadata does not support extensions");
@@ -271,16 +284,17 @@ public class ExpandResourceAndWriteBinaryStep
 	 * size defined in
 	 * {@link JpaStorageSettings#getBulkExportFileMaximumSize()}
 	 * so we will do our best to emit multiple lists in favour of emitting
-	 * a list that exceeds that threshold.
+	 * a list that exceeds that threshold. If the resource writer is streaming,
+	 * each resource is instead handed to it as soon as it has been encoded.
 	 */
 	private class ExpandResourcesConsumer implements Consumer<List<IBaseResource>> {
 
-		private final Consumer<ExpandedResourcesList> myResourceWriter;
+		private final NdJsonResourceWriter myResourceWriter;
 		private final StepExecutionDetails<BulkExportJobParameters, ResourceIdList> myStepExecutionDetails;
 
 		public ExpandResourcesConsumer(
 				StepExecutionDetails<BulkExportJobParameters, ResourceIdList> theStepExecutionDetails,
-				Consumer<ExpandedResourcesList> theResourceWriter) {
+				NdJsonResourceWriter theResourceWriter) {
 			myStepExecutionDetails = theStepExecutionDetails;
 			myResourceWriter = theResourceWriter;
 		}
@@ -337,9 +351,19 @@ public class ExpandResourceAndWriteBinaryStep
 				}
 			}
 
-			// encode them - Key is resource type, Value is a collection of serialized resources of that type
 			IParser parser = getParser(parameters);
 
+			// Write each resource to the output file for its type as soon as it is encoded
+			if (myResourceWriter.isStreaming()) {
+				for (IBaseResource resource : theResources) {
+					String type = myFhirContext.getResourceType(resource);
+					myResourceWriter.writeResource(type, parser.encodeResourceToString(resource));
+				}
+				return;
+			}
+
+			// encode them - Key is resource type, Value is a collection of serialized resources of that type
+
 			ListMultimap<String, String> resourceTypeToStringifiedResources = ArrayListMultimap.create();
 			Map<String, Integer> resourceTypeToTotalSize = new HashMap<>();
 			for (IBaseResource resource : theResources) {
@@ -453,11 +477,19 @@ public class ExpandResourceAndWriteBinaryStep
 	/**
 	 * This class takes a collection of expanded resources, and expands it to
 	 * an NDJSON file, which is written to a Binary resource.
+	 * <p>
+	 * If streaming binary writes or output compression are enabled, resources are
+	 * instead written one at a time through {@link #writeResource(String, String)}
+	 * to an open output file for their type, which is stored as soon as it reaches
+	 * the maximum file size, and otherwise when {@link #completeOpenFiles()} is called.
+	 * </p>
 	 */
 	private class NdJsonResourceWriter implements Consumer<ExpandedResourcesList> {
 
 		private final StepExecutionDetails<BulkExportJobParameters, ResourceIdList> myStepExecutionDetails;
 		private final IJobDataSink<BulkExportBinaryFileId> myDataSink;
+		private final boolean myStreaming;
+		private final Map<String, OutputFile> myOpenFiles = new HashMap<>();
 		private int myNumResourcesProcessed = 0;
 
 		public NdJsonResourceWriter(
@@ -465,12 +497,109 @@ public class ExpandResourceAndWriteBinaryStep
 				IJobDataSink<BulkExportBinaryFileId> theDataSink) {
 			this.myStepExecutionDetails = theStepExecutionDetails;
 			this.myDataSink = theDataSink;
+			this.myStreaming = NdJsonBinaryContentWriter.isEnabledForBulkExport(
+					myStorageSettings, theStepExecutionDetails.getParameters());
 		}
 
 		public int getNumResourcesProcessed() {
 			return myNumResourcesProcessed;
 		}
 
+		public boolean isStreaming() {
+			return myStreaming;
+		}
+
+		/**
+		 * Appends a single encoded resource to the open output file for its type. If adding it
+		 * would exceed the configured maximum file size, the open file is stored first and a new
+		 * one is started. Note that if a single resource exceeds the configured maximum then we
+		 * have no choice but to write it anyway.
+		 */
+		public void writeResource(String theResourceType, String theEncodedResource) {
+			long bulkExportFileMaximumSize = myStorageSettings.getBulkExportFileMaximumSize();
+			// The encoded resource plus its trailing newline, as written to the file
+			long resourceByteCount = Utf8.encodedLength(theEncodedResource) + 1L;
+
+			OutputFile outputFile = myOpenFiles.get(theResourceType);
+			if (outputFile != null
+					&& outputFile.myWriter.getByteCount() + resourceByteCount > bulkExportFileMaximumSize) {
+				myOpenFiles.remove(theResourceType);
+				completeFile(outputFile);
+				outputFile = null;
+			}
+
+			if (outputFile == null) {
+				if (resourceByteCount > bulkExportFileMaximumSize) {
+					ourLog.warn(
+							"Single resource size {} exceeds allowable maximum of {}, so will ignore maximum",
+							resourceByteCount,
+							bulkExportFileMaximumSize);
+				}
+				outputFile = openFile(theResourceType);
+				myOpenFiles.put(theResourceType, outputFile);
+			}
+
+			try {
+				outputFile.myWriter.writeResource(theEncodedResource);
+			} catch (IOException ex) {
+				throw newWriteFailure(theResourceType, ex);
+			}
+			myNumResourcesProcessed++;
+		}
+
+		/**
+		 * Stores all output files which are still open
+		 */
+		public void completeOpenFiles() {
+			for (Iterator<OutputFile> iter = myOpenFiles.values().iterator(); iter.hasNext(); ) {
+				OutputFile next = iter.next();
+				iter.remove();
+				completeFile(next);
+			}
+		}
+
+		/**
+		 * Releases any output files which are still open without storing them
+		 */
+		public void closeOpenFiles() {
+			for (OutputFile next : myOpenFiles.values()) {
+				IOUtils.closeQuietly(next.myWriter);
+			}
+			myOpenFiles.clear();
+		}
+
+		private OutputFile openFile(String theResourceType) {
+			IBaseBinary binary = newBinary(theResourceType);
+			try {
+				NdJsonBinaryContentWriter writer = NdJsonBinaryContentWriter.newForBulkExport(
+						myFhirContext,
+						myStorageSettings,
+						myBinaryStorageSvc,
+						binary,
+						myStepExecutionDetails.getParameters(),
+						newRequestDetails());
+				return new OutputFile(theResourceType, binary, writer);
+			} catch (IOException ex) {
+				throw newWriteFailure(theResourceType, ex);
+			}
+		}
+
+		private void completeFile(OutputFile theOutputFile) {
+			ourLog.info("Writing {} resources to binary file", theOutputFile.myWriter.getResourceCount());
+
+			try (NdJsonBinaryContentWriter writer = theOutputFile.myWriter) {
+				writer.complete(theOutputFile.myBinary);
+			} catch (IOException ex) {
+				throw newWriteFailure(theOutputFile.myResourceType, ex);
+			}
+
+			storeBinary(
+					theOutputFile.myBinary,
+					theOutputFile.myResourceType,
+					theOutputFile.myWriter.getResourceCount(),
+					theOutputFile.myWriter);
+		}
+
 		@Override
 		public void accept(ExpandedResourcesList theExpandedResourcesList) throws JobExecutionFailedException {
 			int batchSize = theExpandedResourcesList.getStringifiedResources().size();
@@ -478,14 +607,7 @@ public class ExpandResourceAndWriteBinaryStep
 
 			myNumResourcesProcessed += batchSize;
 
-			@SuppressWarnings("unchecked")
-			IFhirResourceDao<IBaseBinary> binaryDao = myDaoRegistry.getResourceDao("Binary");
-
-			IBaseBinary binary = BinaryUtil.newBinary(myFhirContext);
-
-			addMetadataExtensionsToBinary(myStepExecutionDetails, theExpandedResourcesList, binary);
-
-			binary.setContentType(Constants.CT_FHIR_NDJSON);
+			IBaseBinary binary = newBinary(theExpandedResourcesList.getResourceType());
 
 			int processedRecordsCount = 0;
 			try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
@@ -500,25 +622,26 @@ public class ExpandResourceAndWriteBinaryStep
 				}
 				binary.setContent(outputStream.toByteArray());
 			} catch (IOException ex) {
-				String errorMsg = String.format(
-						"Failure to process resource of type %s : %s",
-						theExpandedResourcesList.getResourceType(), ex.getMessage());
-				ourLog.error(errorMsg);
-
-				throw new JobExecutionFailedException(Msg.code(2431) + errorMsg);
+				throw newWriteFailure(theExpandedResourcesList.getResourceType(), ex);
 			}
 
-			SystemRequestDetails srd = new SystemRequestDetails();
-			BulkExportJobParameters jobParameters = myStepExecutionDetails.getParameters();
-			RequestPartitionId partitionId = jobParameters.getPartitionId();
-			if (partitionId == null) {
-				srd.setRequestPartitionId(RequestPartitionId.defaultPartition());
-			} else {
-				srd.setRequestPartitionId(partitionId);
-			}
+			storeBinary(binary, theExpandedResourcesList.getResourceType(), processedRecordsCount, null);
+		}
+
+		private IBaseBinary newBinary(String theResourceType) {
+			@SuppressWarnings("unchecked")
+			IFhirResourceDao<IBaseBinary> binaryDao = myDaoRegistry.getResourceDao("Binary");
+
+			IBaseBinary binary = BinaryUtil.newBinary(myFhirContext);
+
+			addMetadataExtensionsToBinary(myStepExecutionDetails, theResourceType, binary);
+
+			binary.setContentType(Constants.CT_FHIR_NDJSON);
 
 			// Pick a unique ID and retry until we get one that isn't already used. This is just to
 			// avoid any possibility of people guessing the IDs of these Binaries and fishing for them.
+			// The ID is assigned before the content is written, since streamed content is stored
+			// against it as it is written.
 			while (true) {
 				// Use a random ID to make it harder to guess IDs - 32 characters of a-zA-Z0-9
 				// has 190 bts of entropy according to https://www.omnicalculator.com/other/password-entropy
@@ -539,33 +662,91 @@ public class ExpandResourceAndWriteBinaryStep
 				break;
 			}
 
+			return binary;
+		}
+
+		private SystemRequestDetails newRequestDetails() {
+			SystemRequestDetails srd = new SystemRequestDetails();
+			RequestPartitionId partitionId =
+					myStepExecutionDetails.getParameters().getPartitionId();
+			if (partitionId == null) {
+				srd.setRequestPartitionId(RequestPartitionId.defaultPartition());
+			} else {
+				srd.setRequestPartitionId(partitionId);
+			}
+			return srd;
+		}
+
+		/**
+		 * Stores the given Binary, whose content has already been populated, and emits its ID
+		 *
+		 * @param theContentWriter The writer that streamed the content, if any, so that the stored
+		 *                         content can be expunged if the Binary itself can't be stored
+		 */
+		private void storeBinary(
+				IBaseBinary theBinary,
+				String theResourceType,
+				int theResourceCount,
+				@Nullable NdJsonBinaryContentWriter theContentWriter) {
+			BulkExportJobParameters jobParameters = myStepExecutionDetails.getParameters();
 			if (myFhirContext.getVersion().getVersion().isNewerThan(FhirVersionEnum.DSTU2)) {
 				if (isNotBlank(jobParameters.getBinarySecurityContextIdentifierSystem())
 						|| isNotBlank(jobParameters.getBinarySecurityContextIdentifierValue())) {
 					FhirTerser terser = myFhirContext.newTerser();
 					terser.setElement(
-							binary,
+							theBinary,
 							"securityContext.identifier.system",
 							jobParameters.getBinarySecurityContextIdentifierSystem());
 					terser.setElement(
-							binary,
+							theBinary,
 							"securityContext.identifier.value",
 							jobParameters.getBinarySecurityContextIdentifierValue());
 				}
 			}
 
-			DaoMethodOutcome outcome = binaryDao.update(binary, srd);
+			@SuppressWarnings("unchecked")
+			IFhirResourceDao<IBaseBinary> binaryDao = myDaoRegistry.getResourceDao("Binary");
+
+			DaoMethodOutcome outcome;
+			try {
+				outcome = binaryDao.update(theBinary, newRequestDetails());
+			} catch (RuntimeException e) {
+				if (theContentWriter != null) {
+					theContentWriter.expungeStoredContent();
+				}
+				throw e;
+			}
 			IIdType id = outcome.getId();
 
 			BulkExportBinaryFileId bulkExportBinaryFileId = new BulkExportBinaryFileId();
 			bulkExportBinaryFileId.setBinaryId(id.getValueAsString());
-			bulkExportBinaryFileId.setResourceType(theExpandedResourcesList.getResourceType());
+			bulkExportBinaryFileId.setResourceType(theResourceType);
 			myDataSink.accept(bulkExportBinaryFileId);
 
-			ourLog.info(
-					"Binary writing complete for {} resources of type {}.",
-					processedRecordsCount,
-					theExpandedResourcesList.getResourceType());
+			ourLog.info("Binary writing complete for {} resources of type {}.", theResourceCount, theResourceType);
+		}
+
+		private JobExecutionFailedException newWriteFailure(String theResourceType, IOException theException) {
+			String errorMsg = String.format(
+					"Failure to process resource of type %s : %s", theResourceType, theException.getMessage());
+			ourLog.error(errorMsg);
+
+			return new JobExecutionFailedException(Msg.code(2431) + errorMsg);
+		}
+	}
+
+	/**
+	 * An output file which is still being written
+	 */
+	private static class OutputFile {
+		private final String myResourceType;
+		private final IBaseBinary myBinary;
+		private final NdJsonBinaryContentWriter myWriter;
+
+		private OutputFile(String theResourceType, IBaseBinary theBinary, NdJsonBinaryContentWriter theWriter) {
+			myResourceType = theResourceType;
+			myBinary = theBinary;
+			myWriter = theWriter;
 		}
 	}
 }
@@ -0,0 +1,330 @@
+/*-
+ * #%L
+ * hapi-fhir-storage-batch2-jobs
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.batch2.jobs.export;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.FhirVersionEnum;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.binary.api.BinaryContentOutputStream;
+import ca.uhn.fhir.jpa.binary.api.IBinaryStorageSvc;
+import ca.uhn.fhir.jpa.binary.api.StoredDetails;
+import ca.uhn.fhir.jpa.model.util.JpaConstants;
+import ca.uhn.fhir.rest.api.Constants;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.rest.api.server.bulk.BulkExportJobParameters;
+import ca.uhn.fhir.rest.api.server.bulk.BulkExportOutputCompressionEnum;
+import ca.uhn.fhir.util.BinaryUtil;
+import ca.uhn.fhir.util.HapiExtensions;
+import com.google.common.annotations.VisibleForTesting;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.io.IOUtils;
+import org.hl7.fhir.instance.model.api.IBaseBinary;
+import org.hl7.fhir.instance.model.api.IBaseExtension;
+import org.hl7.fhir.instance.model.api.IBaseHasExtensions;
+import org.hl7.fhir.instance.model.api.IIdType;
+import org.hl7.fhir.instance.model.api.IPrimitiveType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+
+/**
+ * Writes the NDJSON content for a single bulk export output file, optionally compressing it
+ * as it is written. Content is held in memory until it is large enough to be externalized by
+ * the {@link IBinaryStorageSvc}, and from that point on is written straight through a
+ * {@link BinaryContentOutputStream} obtained from the storage service, so the memory used
+ * does not grow with the size of the file. If no storage service is available, or it declines
+ * to store the content, the content stays in memory and is stored inline in the Binary resource.
+ */
+class NdJsonBinaryContentWriter implements Closeable {
+	private static final Logger ourLog = LoggerFactory.getLogger(NdJsonBinaryContentWriter.class);
+	private static final int COMPRESSION_BUFFER_SIZE = 64 * 1024;
+
+	private final FhirContext myFhirContext;
+	private final IBinaryStorageSvc myBinaryStorageSvc;
+	private final IIdType myBinaryId;
+	private final RequestDetails myRequestDetails;
+	private final BulkExportOutputCompressionEnum myCompression;
+	private final ContentSink myContentSink = new ContentSink();
+	private final OutputStream myOutputStream;
+	private StoredDetails myStoredDetails;
+	private long myByteCount;
+	private int myResourceCount;
+	private boolean myCompleted;
+
+	/**
+	 * Constructor
+	 *
+	 * @param theBinaryStorageSvc The storage service to stream content to, or <code>null</code> to always store content inline
+	 * @param theBinaryId         The ID of the Binary resource the content will belong to, including the resource type
+	 * @param theCompression      The codec to compress the content with, or <code>null</code> to leave it uncompressed
+	 */
+	NdJsonBinaryContentWriter(
+			@Nonnull FhirContext theFhirContext,
+			@Nullable IBinaryStorageSvc theBinaryStorageSvc,
+			@Nonnull IIdType theBinaryId,
+			@Nonnull RequestDetails theRequestDetails,
+			@Nullable BulkExportOutputCompressionEnum theCompression)
+			throws IOException {
+		myFhirContext = theFhirContext;
+		myBinaryStorageSvc = theBinaryStorageSvc;
+		myBinaryId = theBinaryId;
+		myRequestDetails = theRequestDetails;
+		myCompression = theCompression;
+
+		// Externalized binary references can't be attached to DSTU2 structures
+		myContentSink.myStorageDeclined = theBinaryStorageSvc == null
+				|| !theFhirContext.getVersion().getVersion().isNewerThan(FhirVersionEnum.DSTU2);
+
+		if (theCompression != null) {
+			myOutputStream = new BufferedOutputStream(
+					theCompression.newCompressingStream(myContentSink), COMPRESSION_BUFFER_SIZE);
+		} else {
+			myOutputStream = myContentSink;
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> if the output of the given bulk export job should be written
+	 * through this writer, i.e. if streaming binary writes are enabled or the job requested
+	 * compressed output
+	 */
+	static boolean isEnabledForBulkExport(
+			JpaStorageSettings theStorageSettings, BulkExportJobParameters theJobParameters) {
+		return theStorageSettings.isBulkExportStreamingBinaryWriteEnabled()
+				|| isNotBlank(theJobParameters.getOutputCompression());
+	}
+
+	/**
+	 * Creates a writer for a bulk export output file which will be stored in the given Binary.
+	 * Content is only streamed through the storage service if streaming binary writes are
+	 * enabled, and is compressed with the codec requested by the job (if any).
+	 *
+	 * @param theBinary The Binary the content will be stored in, which must already have its ID assigned
+	 */
+	static NdJsonBinaryContentWriter newForBulkExport(
+			@Nonnull FhirContext theFhirContext,
+			@Nonnull JpaStorageSettings theStorageSettings,
+			@Nullable IBinaryStorageSvc theBinaryStorageSvc,
+			@Nonnull IBaseBinary theBinary,
+			@Nonnull BulkExportJobParameters theJobParameters,
+			@Nonnull RequestDetails theRequestDetails)
+			throws IOException {
+		IIdType binaryId = theBinary.getIdElement().withResourceType("Binary");
+		IBinaryStorageSvc binaryStorageSvc =
+				theStorageSettings.isBulkExportStreamingBinaryWriteEnabled() ? theBinaryStorageSvc : null;
+		BulkExportOutputCompressionEnum compression =
+				BulkExportOutputCompressionEnum.fromContentEncoding(theJobParameters.getOutputCompression());
+		return new NdJsonBinaryContentWriter(
+				theFhirContext, binaryStorageSvc, binaryId, theRequestDetails, compression);
+	}
+
+	/**
+	 * Writes the given resources as a complete bulk export output file, and populates the
+	 * content of the given Binary accordingly
+	 *
+	 * @return The (closed) writer, which can be used to expunge the stored content if the Binary can't be stored
+	 * @see #newForBulkExport(FhirContext, JpaStorageSettings, IBinaryStorageSvc, IBaseBinary, BulkExportJobParameters, RequestDetails)
+	 */
+	static NdJsonBinaryContentWriter writeBulkExportContent(
+			@Nonnull FhirContext theFhirContext,
+			@Nonnull JpaStorageSettings theStorageSettings,
+			@Nullable IBinaryStorageSvc theBinaryStorageSvc,
+			@Nonnull Iterable<String> theStringifiedResources,
+			@Nonnull IBaseBinary theBinary,
+			@Nonnull BulkExportJobParameters theJobParameters,
+			@Nonnull RequestDetails theRequestDetails)
+			throws IOException {
+		try (NdJsonBinaryContentWriter writer = newForBulkExport(
+				theFhirContext,
+				theStorageSettings,
+				theBinaryStorageSvc,
+				theBinary,
+				theJobParameters,
+				theRequestDetails)) {
+			for (String stringified : theStringifiedResources) {
+				writer.writeResource(stringified);
+			}
+			writer.complete(theBinary);
+			return writer;
+		}
+	}
+
+	/**
+	 * Appends a single encoded resource, followed by a newline
+	 */
+	void writeResource(String theEncodedResource) throws IOException {
+		byte[] bytes = theEncodedResource.getBytes(StandardCharsets.UTF_8);
+		myOutputStream.write(bytes);
+		myOutputStream.write('\n');
+		myByteCount += bytes.length + 1;
+		myResourceCount++;
+	}
+
+	/**
+	 * Returns the number of (uncompressed) bytes written so far
+	 */
+	long getByteCount() {
+		return myByteCount;
+	}
+
+	/**
+	 * Returns the number of resources written so far
+	 */
+	int getResourceCount() {
+		return myResourceCount;
+	}
+
+	/**
+	 * Returns the number of (possibly compressed) bytes currently held in memory by this writer.
+	 * Once the content is being streamed to the storage service this is always <code>0</code>.
+	 */
+	@VisibleForTesting
+	int getBufferedByteCount() {
+		ByteArrayOutputStream buffer = myContentSink.myBuffer;
+		return buffer != null ? buffer.size() : 0;
+	}
+
+	/**
+	 * Finishes writing and populates the content of the given Binary, either as a reference
+	 * to the externalized blob or as inline data
+	 */
+	void complete(IBaseBinary theBinary) throws IOException {
+		myCompleted = true;
+
+		// Finishes the compressed content, but leaves the content sink open
+		myOutputStream.close();
+
+		theBinary.setContentType(Constants.CT_FHIR_NDJSON);
+		if (myCompression != null) {
+			BinaryUtil.setContentEncoding(myFhirContext, theBinary, myCompression.getContentEncoding());
+		}
+
+		if (myContentSink.myStorageStream == null) {
+			theBinary.setContent(myContentSink.myBuffer.toByteArray());
+			return;
+		}
+
+		myStoredDetails = myContentSink.myStorageStream.complete();
+
+		IPrimitiveType<byte[]> data = BinaryUtil.getOrCreateData(myFhirContext, theBinary);
+		data.setValue(null);
+		IBaseExtension<?, ?> ext = ((IBaseHasExtensions) data).addExtension();
+		ext.setUrl(HapiExtensions.EXT_EXTERNALIZED_BINARY_ID);
+		ext.setUserData(JpaConstants.EXTENSION_EXT_SYSTEMDEFINED, Boolean.TRUE);
+		ext.setValue(myFhirContext.newPrimitiveString(myStoredDetails.getBinaryContentId()));
+
+		ourLog.debug(
+				"Streamed {} resources ({} bytes, {} stored) to binary content {} for {}",
+				myResourceCount,
+				myByteCount,
+				myStoredDetails.getBytes(),
+				myStoredDetails.getBinaryContentId(),
+				myBinaryId.getValue());
+	}
+
+	/**
+	 * If the content was externalized, removes it from the storage service. This should be called
+	 * if the Binary resource referencing the content could not be stored.
+	 */
+	void expungeStoredContent() {
+		if (myStoredDetails != null) {
+			myBinaryStorageSvc.expungeBinaryContent(myBinaryId, myStoredDetails.getBinaryContentId());
+			myStoredDetails = null;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (!myCompleted) {
+			// Releases any resources held by the compressor
+			IOUtils.closeQuietly(myOutputStream);
+		}
+		myContentSink.myBuffer = null;
+		if (myContentSink.myStorageStream != null) {
+			myContentSink.myStorageStream.close();
+		}
+	}
+
+	/**
+	 * Receives the (possibly compressed) content, and directs it either to the in-memory
+	 * buffer or to the storage service
+	 */
+	private class ContentSink extends OutputStream {
+		private ByteArrayOutputStream myBuffer = new ByteArrayOutputStream();
+		private BinaryContentOutputStream myStorageStream;
+		private boolean myStorageDeclined;
+		private long mySinkByteCount;
+
+		@Override
+		public void write(int theByte) throws IOException {
+			getTarget(1).write(theByte);
+			mySinkByteCount++;
+		}
+
+		@Override
+		public void write(@Nonnull byte[] theBytes, int theOffset, int theLength) throws IOException {
+			getTarget(theLength).write(theBytes, theOffset, theLength);
+			mySinkByteCount += theLength;
+		}
+
+		@Override
+		public void flush() throws IOException {
+			if (myStorageStream != null) {
+				myStorageStream.flush();
+			}
+		}
+
+		@Override
+		public void close() {
+			// The underlying storage stream is completed or closed by the writer
+		}
+
+		private OutputStream getTarget(int theAdditionalBytes) throws IOException {
+			if (myStorageStream != null) {
+				return myStorageStream;
+			}
+
+			if (!myStorageDeclined) {
+				long size = mySinkByteCount + theAdditionalBytes;
+				if (size >= myBinaryStorageSvc.getMinimumBinarySize()) {
+					if (myBinaryStorageSvc.shouldStoreBinaryContent(size, myBinaryId, Constants.CT_FHIR_NDJSON)) {
+						myStorageStream = myBinaryStorageSvc.newBinaryContentOutputStream(
+								myBinaryId, null, Constants.CT_FHIR_NDJSON, myRequestDetails);
+						myBuffer.writeTo(myStorageStream);
+						myBuffer = null;
+						return myStorageStream;
+					}
+					myStorageDeclined = true;
+				}
+			}
+
+			return myBuffer;
+		}
+	}
+}
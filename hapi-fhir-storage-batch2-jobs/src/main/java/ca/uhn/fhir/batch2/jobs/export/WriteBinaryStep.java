@@ -30,9 +30,11 @@ import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.context.FhirVersionEnum;
 import ca.uhn.fhir.i18n.Msg;
 import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
 import ca.uhn.fhir.jpa.api.dao.DaoRegistry;
 import ca.uhn.fhir.jpa.api.dao.IFhirResourceDao;
 import ca.uhn.fhir.jpa.api.model.DaoMethodOutcome;
+import ca.uhn.fhir.jpa.binary.api.IBinaryStorageSvc;
 import ca.uhn.fhir.jpa.model.util.JpaConstants;
 import ca.uhn.fhir.jpa.util.RandomTextUtils;
 import ca.uhn.fhir.rest.api.Constants;
@@ -67,6 +69,12 @@ public class WriteBinaryStep
 	@Autowired
 	private DaoRegistry myDaoRegistry;
 
+	@Autowired
+	private JpaStorageSettings myStorageSettings;
+
+	@Autowired(required = false)
+	private IBinaryStorageSvc myBinaryStorageSvc;
+
 	@Nonnull
 	@Override
 	public RunOutcome run(
@@ -94,27 +102,6 @@ public class WriteBinaryStep
 		// but for now, only NDJSON is supported
 		binary.setContentType(Constants.CT_FHIR_NDJSON);
 
-		int processedRecordsCount = 0;
-		try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-			try (OutputStreamWriter streamWriter = getStreamWriter(outputStream)) {
-				for (String stringified : expandedResources.getStringifiedResources()) {
-					streamWriter.append(stringified);
-					streamWriter.append("\n");
-					processedRecordsCount++;
-				}
-				streamWriter.flush();
-				outputStream.flush();
-			}
-			binary.setContent(outputStream.toByteArray());
-		} catch (IOException ex) {
-			String errorMsg = String.format(
-					"Failure to process resource of type %s : %s",
-					expandedResources.getResourceType(), ex.getMessage());
-			ourLog.error(errorMsg);
-
-			throw new JobExecutionFailedException(Msg.code(2238) + errorMsg);
-		}
-
 		SystemRequestDetails srd = new SystemRequestDetails();
 		BulkExportJobParameters jobParameters = theStepExecutionDetails.getParameters();
 		RequestPartitionId partitionId = jobParameters.getPartitionId();
@@ -126,6 +113,8 @@ public class WriteBinaryStep
 
 		// Pick a unique ID and retry until we get one that isn't already used. This is just to
 		// avoid any possibility of people guessing the IDs of these Binaries and fishing for them.
+		// The ID is assigned before the content is written, since streamed content is stored
+		// against it as it is written.
 		while (true) {
 			// Use a random ID to make it harder to guess IDs - 32 characters of a-zA-Z0-9
 			// has 190 bts of entropy according to https://www.omnicalculator.com/other/password-entropy
@@ -146,6 +135,42 @@ public class WriteBinaryStep
 			break;
 		}
 
+		int processedRecordsCount = 0;
+		NdJsonBinaryContentWriter streamedContentWriter = null;
+		try {
+			if (NdJsonBinaryContentWriter.isEnabledForBulkExport(myStorageSettings, jobParameters)) {
+				streamedContentWriter = NdJsonBinaryContentWriter.writeBulkExportContent(
+						myFhirContext,
+						myStorageSettings,
+						myBinaryStorageSvc,
+						expandedResources.getStringifiedResources(),
+						binary,
+						jobParameters,
+						srd);
+				processedRecordsCount = streamedContentWriter.getResourceCount();
+			} else {
+				try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
+					try (OutputStreamWriter streamWriter = getStreamWriter(outputStream)) {
+						for (String stringified : expandedResources.getStringifiedResources()) {
+							streamWriter.append(stringified);
+							streamWriter.append("\n");
+							processedRecordsCount++;
+						}
+						streamWriter.flush();
+						outputStream.flush();
+					}
+					binary.setContent(outputStream.toByteArray());
+				}
+			}
+		} catch (IOException ex) {
+			String errorMsg = String.format(
+					"Failure to process resource of type %s : %s",
+					expandedResources.getResourceType(), ex.getMessage());
+			ourLog.error(errorMsg);
+
+			throw new JobExecutionFailedException(Msg.code(2238) + errorMsg);
+		}
+
 		if (myFhirContext.getVersion().getVersion().isNewerThan(FhirVersionEnum.DSTU2)) {
 			if (isNotBlank(jobParameters.getBinarySecurityContextIdentifierSystem())
 					|| isNotBlank(jobParameters.getBinarySecurityContextIdentifierValue())) {
@@ -161,7 +186,15 @@ public class WriteBinaryStep
 			}
 		}
 
-		DaoMethodOutcome outcome = binaryDao.update(binary, srd);
+		DaoMethodOutcome outcome;
+		try {
+			outcome = binaryDao.update(binary, srd);
+		} catch (RuntimeException e) {
+			if (streamedContentWriter != null) {
+				streamedContentWriter.expungeStoredContent();
+			}
+			throw e;
+		}
 		IIdType id = outcome.getId();
 
 		BulkExportBinaryFileId bulkExportBinaryFileId = new BulkExportBinaryFileId();
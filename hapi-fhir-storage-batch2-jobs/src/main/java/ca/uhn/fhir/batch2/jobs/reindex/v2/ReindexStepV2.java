@@ -35,6 +35,7 @@ import ca.uhn.fhir.jpa.api.dao.DaoRegistry;
 import ca.uhn.fhir.jpa.api.dao.IFhirSystemDao;
 import ca.uhn.fhir.jpa.api.svc.IIdHelperService;
 import ca.uhn.fhir.jpa.dao.tx.HapiTransactionService;
+import ca.uhn.fhir.jpa.model.util.JpaConstants;
 import ca.uhn.fhir.rest.api.server.RequestDetails;
 import ca.uhn.fhir.rest.api.server.SystemRequestDetails;
 import ca.uhn.fhir.rest.api.server.storage.IResourcePersistentId;
@@ -115,6 +116,7 @@ public class ReindexStepV2
 		RequestDetails requestDetails = new SystemRequestDetails();
 		requestDetails.setRetry(true);
 		requestDetails.setMaxRetries(REINDEX_MAX_RETRIES);
+		requestDetails.getUserData().put(JpaConstants.BULK_INDEX_ROW_INSERT, Boolean.TRUE);
 
 		TransactionDetails transactionDetails = new TransactionDetails();
 		ReindexTaskV2.JobParameters jp = new ReindexTaskV2.JobParameters();
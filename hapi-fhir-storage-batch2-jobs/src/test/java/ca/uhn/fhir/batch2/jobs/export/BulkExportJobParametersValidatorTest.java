@@ -3,11 +3,14 @@ package ca.uhn.fhir.batch2.jobs.export;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import ca.uhn.fhir.rest.api.server.bulk.BulkExportJobParameters;
+import ca.uhn.fhir.rest.api.server.bulk.BulkExportOutputCompressionEnum;
 import ca.uhn.fhir.jpa.api.dao.DaoRegistry;
 import ca.uhn.fhir.jpa.binary.api.IBinaryStorageSvc;
 import ca.uhn.fhir.rest.api.Constants;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -206,4 +209,39 @@ public class BulkExportJobParametersValidatorTest {
 		assertThat(errors).isNotEmpty();
 		assertThat(errors).contains("The only allowed format for Bulk Export is currently " + Constants.CT_FHIR_NDJSON);
 	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"gzip", "zstd", "GZIP"})
+	public void validate_supportedOutputCompression_returnsEmptyList(String theOutputCompression) {
+		// setup
+		BulkExportJobParameters parameters = createSystemExportParameters();
+		parameters.setOutputCompression(theOutputCompression);
+
+		// when
+		when(myDaoRegistry.isResourceTypeSupported(anyString()))
+			.thenReturn(true);
+
+		// test
+		List<String> errors = myValidator.validate(null, parameters);
+
+		// verify
+		assertThat(errors).isEmpty();
+	}
+
+	@Test
+	public void validate_unsupportedOutputCompression_returnsErrors() {
+		// setup
+		BulkExportJobParameters parameters = createSystemExportParameters();
+		parameters.setOutputCompression("brotli");
+
+		// when
+		when(myDaoRegistry.isResourceTypeSupported(anyString()))
+			.thenReturn(true);
+
+		// test
+		List<String> errors = myValidator.validate(null, parameters);
+
+		// verify
+		assertThat(errors).containsExactly("Unsupported output compression \"brotli\", valid values are: gzip, zstd");
+	}
 }
@@ -20,6 +20,7 @@ import ca.uhn.fhir.jpa.api.dao.IFhirResourceDao;
 import ca.uhn.fhir.jpa.api.model.DaoMethodOutcome;
 import ca.uhn.fhir.jpa.api.model.PersistentIdToForcedIdMap;
 import ca.uhn.fhir.jpa.api.svc.IIdHelperService;
+import ca.uhn.fhir.jpa.binstore.MemoryBinaryStorageSvcImpl;
 import ca.uhn.fhir.jpa.dao.tx.IHapiTransactionService;
 import ca.uhn.fhir.jpa.dao.tx.NonTransactionalHapiTransactionService;
 import ca.uhn.fhir.jpa.model.dao.JpaPid;
@@ -28,6 +29,7 @@ import ca.uhn.fhir.rest.api.server.SystemRequestDetails;
 import ca.uhn.fhir.rest.api.server.bulk.BulkExportJobParameters;
 import ca.uhn.fhir.rest.api.server.storage.IResourcePersistentId;
 import ca.uhn.fhir.rest.server.SimpleBundleProvider;
+import ca.uhn.fhir.util.HapiExtensions;
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.spi.ILoggingEvent;
@@ -35,6 +37,7 @@ import ch.qos.logback.core.read.ListAppender;
 import org.hl7.fhir.instance.model.api.IBaseBinary;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.instance.model.api.IIdType;
+import org.hl7.fhir.r4.model.Binary;
 import org.hl7.fhir.r4.model.IdType;
 import org.hl7.fhir.r4.model.Patient;
 import jakarta.annotation.Nonnull;
@@ -55,10 +58,12 @@ import org.springframework.util.StringUtils;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -70,8 +75,10 @@ import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -120,6 +127,9 @@ public class ExpandResourceAndWriteBinaryStepTest {
 	@Spy
 	private IHapiTransactionService myTransactionService = new NonTransactionalHapiTransactionService();
 
+	@Spy
+	private MemoryBinaryStorageSvcImpl myBinaryStorageSvc = new MemoryBinaryStorageSvcImpl();
+
 	@InjectMocks
 	private TestExpandResourceAndWriteBinaryStep myFinalStep;
 
@@ -127,6 +137,8 @@ public class ExpandResourceAndWriteBinaryStepTest {
 	public void init() {
 		ourLog.addAppender(myAppender);
 		myFinalStep.setIdHelperServiceForUnitTest(myIdHelperService);
+		myBinaryStorageSvc.setFhirContextForTests(myFhirContext);
+		myBinaryStorageSvc.setInterceptorBroadcasterForTests(new InterceptorService());
 	}
 
 	@AfterEach
@@ -254,6 +266,76 @@ public class ExpandResourceAndWriteBinaryStepTest {
 		return resources;
 	}
 
+	@Test
+	public void run_streamingEnabled_writesEachResourceAndRollsOverAtMaximumFileSize() throws IOException {
+		// setup
+		myStorageSettings.setBulkExportStreamingBinaryWriteEnabled(true);
+		myStorageSettings.setBulkExportFileMaximumSize(1000);
+		myBinaryStorageSvc.setMinimumBinarySize(10);
+
+		JobInstance instance = new JobInstance();
+		instance.setInstanceId("1");
+		IFhirResourceDao<IBaseBinary> binaryDao = mock(IFhirResourceDao.class);
+		IFhirResourceDao<?> patientDao = mockOutDaoRegistry();
+		IJobDataSink<BulkExportBinaryFileId> sink = mock(IJobDataSink.class);
+
+		ResourceIdList idList = new ResourceIdList();
+		ArrayList<IBaseResource> resources = createResourceList(idList);
+		for (IBaseResource next : resources) {
+			// Multi-byte characters, so the file size in bytes exceeds its length in characters
+			((Patient) next).addName().setFamily("Ωμέγα Ωμέγα Ωμέγα");
+		}
+
+		StepExecutionDetails<BulkExportJobParameters, ResourceIdList> input = createInput(
+			idList,
+			createParameters(false),
+			instance
+		);
+
+		when(patientDao.search(any(), any())).thenReturn(new SimpleBundleProvider(resources));
+		when(myIdHelperService.newPidFromStringIdAndResourceName(any(), anyString(), anyString())).thenReturn(JpaPid.fromId(1L));
+		when(myIdHelperService.translatePidsToForcedIds(any())).thenAnswer(t->{
+			Set<IResourcePersistentId<JpaPid>> inputSet = t.getArgument(0, Set.class);
+			Map<IResourcePersistentId<?>, Optional<String>> map = new HashMap<>();
+			for (var next : inputSet) {
+				map.put(next, Optional.empty());
+			}
+			return new PersistentIdToForcedIdMap<>(map);
+		});
+		when(myDaoRegistry.getResourceDao(eq("Binary")))
+			.thenReturn(binaryDao);
+		when(binaryDao.update(any(IBaseBinary.class), any(RequestDetails.class)))
+			.thenAnswer(t -> {
+				DaoMethodOutcome methodOutcome = new DaoMethodOutcome();
+				methodOutcome.setId(t.getArgument(0, IBaseBinary.class).getIdElement());
+				return methodOutcome;
+			});
+
+		// test
+		RunOutcome outcome = myFinalStep.run(input, sink);
+
+		// verify
+		assertEquals(resources.size(), outcome.getRecordsProcessed());
+
+		ArgumentCaptor<IBaseBinary> binaryCaptor = ArgumentCaptor.forClass(IBaseBinary.class);
+		verify(binaryDao, atLeast(2)).update(binaryCaptor.capture(), any(RequestDetails.class));
+		List<IBaseBinary> binaries = binaryCaptor.getAllValues();
+
+		int totalLines = 0;
+		for (IBaseBinary next : binaries) {
+			Binary binary = (Binary) next;
+			assertThat(binary.getData()).isNull();
+			String blobId = binary.getDataElement().getExtensionString(HapiExtensions.EXT_EXTERNALIZED_BINARY_ID);
+			IIdType storedId = new IdType("Binary", binary.getIdElement().getIdPart());
+			byte[] bytes = myBinaryStorageSvc.fetchBinaryContent(storedId, blobId);
+			assertThat(bytes.length).isLessThanOrEqualTo(1000);
+			String content = new String(bytes, StandardCharsets.UTF_8);
+			totalLines += StringUtils.countOccurrencesOf(content, "\n");
+		}
+		assertEquals(resources.size(), totalLines);
+		verify(sink, times(binaries.size())).accept(any(BulkExportBinaryFileId.class));
+	}
+
 	@Test
 	public void run_withIOException_throws() throws IOException {
 		// setup
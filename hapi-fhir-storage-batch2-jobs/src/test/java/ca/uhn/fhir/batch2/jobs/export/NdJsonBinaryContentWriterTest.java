@@ -0,0 +1,88 @@
+package ca.uhn.fhir.batch2.jobs.export;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.interceptor.executor.InterceptorService;
+import ca.uhn.fhir.jpa.binstore.MemoryBinaryStorageSvcImpl;
+import ca.uhn.fhir.rest.api.server.SystemRequestDetails;
+import ca.uhn.fhir.rest.api.server.bulk.BulkExportOutputCompressionEnum;
+import ca.uhn.fhir.util.HapiExtensions;
+import org.hl7.fhir.r4.model.Binary;
+import org.hl7.fhir.r4.model.IdType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class NdJsonBinaryContentWriterTest {
+
+	private static final int MINIMUM_BINARY_SIZE = 1000;
+
+	private final FhirContext myFhirContext = FhirContext.forR4Cached();
+	private final MemoryBinaryStorageSvcImpl myBinaryStorageSvc = new MemoryBinaryStorageSvcImpl();
+
+	@BeforeEach
+	public void before() {
+		myBinaryStorageSvc.setFhirContextForTests(myFhirContext);
+		myBinaryStorageSvc.setInterceptorBroadcasterForTests(new InterceptorService());
+		myBinaryStorageSvc.setMinimumBinarySize(MINIMUM_BINARY_SIZE);
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = {100, 10000})
+	public void testBufferedContentDoesNotGrowWithResourceCount(int theResourceCount) throws IOException {
+		IdType binaryId = new IdType("Binary/A");
+		Binary binary = new Binary();
+		binary.setId(binaryId);
+
+		int maxBufferedByteCount = 0;
+		try (NdJsonBinaryContentWriter writer = new NdJsonBinaryContentWriter(
+			myFhirContext, myBinaryStorageSvc, binaryId, new SystemRequestDetails(), null)) {
+			for (int i = 0; i < theResourceCount; i++) {
+				writer.writeResource("{\"resourceType\":\"Patient\",\"id\":\"" + i + "\"}");
+				maxBufferedByteCount = Math.max(maxBufferedByteCount, writer.getBufferedByteCount());
+			}
+			writer.complete(binary);
+		}
+
+		// Only the content written before it was handed to the storage service is ever buffered
+		assertThat(maxBufferedByteCount).isLessThan(MINIMUM_BINARY_SIZE);
+
+		String blobId = binary.getDataElement().getExtensionString(HapiExtensions.EXT_EXTERNALIZED_BINARY_ID);
+		String content = new String(myBinaryStorageSvc.fetchBinaryContent(binaryId, blobId), StandardCharsets.UTF_8);
+		assertEquals(theResourceCount, content.lines().count());
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = {100, 10000})
+	public void testBufferedCompressedContentDoesNotGrowWithResourceCount(int theResourceCount) throws IOException {
+		IdType binaryId = new IdType("Binary/A");
+		Binary binary = new Binary();
+		binary.setId(binaryId);
+
+		int maxBufferedByteCount = 0;
+		try (NdJsonBinaryContentWriter writer = new NdJsonBinaryContentWriter(
+			myFhirContext, myBinaryStorageSvc, binaryId, new SystemRequestDetails(), BulkExportOutputCompressionEnum.GZIP)) {
+			for (int i = 0; i < theResourceCount; i++) {
+				writer.writeResource("{\"resourceType\":\"Patient\",\"id\":\"" + i + "\"}");
+				maxBufferedByteCount = Math.max(maxBufferedByteCount, writer.getBufferedByteCount());
+			}
+			writer.complete(binary);
+		}
+
+		assertThat(maxBufferedByteCount).isLessThan(MINIMUM_BINARY_SIZE);
+
+		byte[] stored = binary.getData() != null
+			? binary.getData()
+			: myBinaryStorageSvc.fetchBinaryContent(binaryId, binary.getDataElement().getExtensionString(HapiExtensions.EXT_EXTERNALIZED_BINARY_ID));
+		String content = new String(
+			BulkExportOutputCompressionEnum.GZIP.newDecompressingStream(new ByteArrayInputStream(stored)).readAllBytes(),
+			StandardCharsets.UTF_8);
+		assertEquals(theResourceCount, content.lines().count());
+	}
+}
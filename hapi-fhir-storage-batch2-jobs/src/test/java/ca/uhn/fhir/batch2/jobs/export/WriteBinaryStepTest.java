@@ -9,13 +9,20 @@ import ca.uhn.fhir.batch2.api.StepExecutionDetails;
 import ca.uhn.fhir.batch2.jobs.export.models.BulkExportBinaryFileId;
 import ca.uhn.fhir.batch2.model.WorkChunk;
 import ca.uhn.fhir.rest.api.server.bulk.BulkExportJobParameters;
+import ca.uhn.fhir.rest.api.server.bulk.BulkExportOutputCompressionEnum;
 import ca.uhn.fhir.batch2.jobs.export.models.ExpandedResourcesList;
 import ca.uhn.fhir.batch2.model.JobInstance;
 import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.interceptor.executor.InterceptorService;
 import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
 import ca.uhn.fhir.jpa.api.dao.DaoRegistry;
 import ca.uhn.fhir.jpa.api.dao.IFhirResourceDao;
 import ca.uhn.fhir.jpa.api.model.DaoMethodOutcome;
+import ca.uhn.fhir.jpa.binstore.MemoryBinaryStorageSvcImpl;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import ca.uhn.fhir.util.BinaryUtil;
+import ca.uhn.fhir.util.HapiExtensions;
 import ca.uhn.fhir.rest.api.server.RequestDetails;
 import ca.uhn.fhir.rest.api.server.SystemRequestDetails;
 import ch.qos.logback.classic.Level;
@@ -24,12 +31,14 @@ import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.core.read.ListAppender;
 import org.hl7.fhir.instance.model.api.IBaseBinary;
 import org.hl7.fhir.instance.model.api.IIdType;
+import org.hl7.fhir.r4.model.Binary;
 import org.hl7.fhir.r4.model.IdType;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
@@ -38,14 +47,17 @@ import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -54,6 +66,7 @@ import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -90,12 +103,20 @@ public class WriteBinaryStepTest {
 	@Mock
 	private DaoRegistry myDaoRegistry;
 
+	@Spy
+	private JpaStorageSettings myStorageSettings = new JpaStorageSettings();
+
+	@Spy
+	private MemoryBinaryStorageSvcImpl myBinaryStorageSvc = new MemoryBinaryStorageSvcImpl();
+
 	@InjectMocks
 	private TestWriteBinaryStep myFinalStep;
 
 	@BeforeEach
 	public void init() {
 		ourLog.addAppender(myAppender);
+		myBinaryStorageSvc.setFhirContextForTests(myFhirContext);
+		myBinaryStorageSvc.setInterceptorBroadcasterForTests(new InterceptorService());
 	}
 
 	@AfterEach
@@ -219,4 +240,146 @@ public class WriteBinaryStepTest {
 		verify(sink, never())
 			.accept(any(BulkExportBinaryFileId.class));
 	}
+
+	@Test
+	public void run_streamingEnabled_storesContentExternally() throws IOException {
+		// setup
+		myStorageSettings.setBulkExportStreamingBinaryWriteEnabled(true);
+		myBinaryStorageSvc.setMinimumBinarySize(10);
+
+		JobInstance instance = new JobInstance();
+		instance.setInstanceId("1");
+		ExpandedResourcesList expandedResources = new ExpandedResourcesList();
+		List<String> stringified = Arrays.asList("first", "second", "third", "forth");
+		expandedResources.setStringifiedResources(stringified);
+		expandedResources.setResourceType("Patient");
+		IFhirResourceDao<IBaseBinary> binaryDao = mock(IFhirResourceDao.class);
+		IJobDataSink<BulkExportBinaryFileId> sink = mock(IJobDataSink.class);
+		StepExecutionDetails<BulkExportJobParameters, ExpandedResourcesList> input = createInput(expandedResources, instance, false);
+		DaoMethodOutcome methodOutcome = new DaoMethodOutcome();
+		methodOutcome.setId(new IdType("Binary/123"));
+
+		when(myDaoRegistry.getResourceDao(eq("Binary")))
+			.thenReturn(binaryDao);
+		when(binaryDao.update(any(IBaseBinary.class), any(RequestDetails.class)))
+			.thenReturn(methodOutcome);
+
+		// test
+		RunOutcome outcome = myFinalStep.run(input, sink);
+
+		// verify
+		assertEquals(stringified.size(), outcome.getRecordsProcessed());
+
+		ArgumentCaptor<IBaseBinary> binaryCaptor = ArgumentCaptor.forClass(IBaseBinary.class);
+		verify(binaryDao).update(binaryCaptor.capture(), any(RequestDetails.class));
+		Binary binary = (Binary) binaryCaptor.getValue();
+		assertThat(binary.getData()).isNull();
+		String blobId = binary.getDataElement().getExtensionString(HapiExtensions.EXT_EXTERNALIZED_BINARY_ID);
+		assertThat(blobId).isNotBlank();
+
+		IIdType storedId = new IdType("Binary", binary.getIdElement().getIdPart());
+		String expected = String.join("\n", stringified) + "\n";
+		assertEquals(expected, new String(myBinaryStorageSvc.fetchBinaryContent(storedId, blobId)));
+		verify(sink).accept(any(BulkExportBinaryFileId.class));
+	}
+
+	@Test
+	public void run_streamingEnabledBelowMinimumSize_storesContentInline() throws IOException {
+		// setup
+		myStorageSettings.setBulkExportStreamingBinaryWriteEnabled(true);
+		myBinaryStorageSvc.setMinimumBinarySize(1000);
+
+		JobInstance instance = new JobInstance();
+		instance.setInstanceId("1");
+		ExpandedResourcesList expandedResources = new ExpandedResourcesList();
+		List<String> stringified = Arrays.asList("first", "second");
+		expandedResources.setStringifiedResources(stringified);
+		expandedResources.setResourceType("Patient");
+		IFhirResourceDao<IBaseBinary> binaryDao = mock(IFhirResourceDao.class);
+		IJobDataSink<BulkExportBinaryFileId> sink = mock(IJobDataSink.class);
+		StepExecutionDetails<BulkExportJobParameters, ExpandedResourcesList> input = createInput(expandedResources, instance, false);
+		DaoMethodOutcome methodOutcome = new DaoMethodOutcome();
+		methodOutcome.setId(new IdType("Binary/123"));
+
+		when(myDaoRegistry.getResourceDao(eq("Binary")))
+			.thenReturn(binaryDao);
+		when(binaryDao.update(any(IBaseBinary.class), any(RequestDetails.class)))
+			.thenReturn(methodOutcome);
+
+		// test
+		myFinalStep.run(input, sink);
+
+		// verify
+		ArgumentCaptor<IBaseBinary> binaryCaptor = ArgumentCaptor.forClass(IBaseBinary.class);
+		verify(binaryDao).update(binaryCaptor.capture(), any(RequestDetails.class));
+		assertEquals("first\nsecond\n", new String(binaryCaptor.getValue().getContent()));
+		verify(myBinaryStorageSvc, never()).newBinaryContentOutputStream(any(), any(), any(), any());
+	}
+
+	@Test
+	public void run_streamingEnabledAndUpdateFails_expungesStoredContent() {
+		// setup
+		myStorageSettings.setBulkExportStreamingBinaryWriteEnabled(true);
+		myBinaryStorageSvc.setMinimumBinarySize(10);
+
+		JobInstance instance = new JobInstance();
+		instance.setInstanceId("1");
+		ExpandedResourcesList expandedResources = new ExpandedResourcesList();
+		expandedResources.setStringifiedResources(Arrays.asList("first", "second", "third", "forth"));
+		expandedResources.setResourceType("Patient");
+		IFhirResourceDao<IBaseBinary> binaryDao = mock(IFhirResourceDao.class);
+		IJobDataSink<BulkExportBinaryFileId> sink = mock(IJobDataSink.class);
+		StepExecutionDetails<BulkExportJobParameters, ExpandedResourcesList> input = createInput(expandedResources, instance, false);
+
+		when(myDaoRegistry.getResourceDao(eq("Binary")))
+			.thenReturn(binaryDao);
+		when(binaryDao.update(any(IBaseBinary.class), any(RequestDetails.class)))
+			.thenThrow(new InternalErrorException("failed"));
+
+		// test
+		assertThrows(InternalErrorException.class, () -> myFinalStep.run(input, sink));
+
+		// verify
+		verify(myBinaryStorageSvc, times(1)).expungeBinaryContent(any(), anyString());
+		verify(sink, never()).accept(any(BulkExportBinaryFileId.class));
+	}
+
+	@ParameterizedTest
+	@EnumSource(BulkExportOutputCompressionEnum.class)
+	public void run_withOutputCompression_storesCompressedContent(BulkExportOutputCompressionEnum theCompression) throws IOException {
+		// setup
+		JobInstance instance = new JobInstance();
+		instance.setInstanceId("1");
+		ExpandedResourcesList expandedResources = new ExpandedResourcesList();
+		List<String> stringified = Arrays.asList("first", "second", "third", "forth");
+		expandedResources.setStringifiedResources(stringified);
+		expandedResources.setResourceType("Patient");
+		IFhirResourceDao<IBaseBinary> binaryDao = mock(IFhirResourceDao.class);
+		IJobDataSink<BulkExportBinaryFileId> sink = mock(IJobDataSink.class);
+		StepExecutionDetails<BulkExportJobParameters, ExpandedResourcesList> input = createInput(expandedResources, instance, false);
+		input.getParameters().setOutputCompression(theCompression.getContentEncoding());
+		DaoMethodOutcome methodOutcome = new DaoMethodOutcome();
+		methodOutcome.setId(new IdType("Binary/123"));
+
+		when(myDaoRegistry.getResourceDao(eq("Binary")))
+			.thenReturn(binaryDao);
+		when(binaryDao.update(any(IBaseBinary.class), any(RequestDetails.class)))
+			.thenReturn(methodOutcome);
+
+		// test
+		RunOutcome outcome = myFinalStep.run(input, sink);
+
+		// verify
+		assertEquals(stringified.size(), outcome.getRecordsProcessed());
+
+		ArgumentCaptor<IBaseBinary> binaryCaptor = ArgumentCaptor.forClass(IBaseBinary.class);
+		verify(binaryDao).update(binaryCaptor.capture(), any(RequestDetails.class));
+		IBaseBinary binary = binaryCaptor.getValue();
+		assertEquals(theCompression.getContentEncoding(), BinaryUtil.getContentEncoding(binary));
+
+		byte[] decompressed = theCompression
+			.newDecompressingStream(new ByteArrayInputStream(binary.getContent()))
+			.readAllBytes();
+		assertEquals(String.join("\n", stringified) + "\n", new String(decompressed, StandardCharsets.UTF_8));
+	}
 }
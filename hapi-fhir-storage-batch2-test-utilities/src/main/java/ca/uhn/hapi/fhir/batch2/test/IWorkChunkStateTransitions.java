@@ -21,6 +21,7 @@ package ca.uhn.hapi.fhir.batch2.test;
 
 import ca.uhn.fhir.batch2.model.JobDefinition;
 import ca.uhn.fhir.batch2.model.WorkChunk;
+import ca.uhn.fhir.batch2.model.WorkChunkCompletionEvent;
 import ca.uhn.fhir.batch2.model.WorkChunkStatusEnum;
 import ca.uhn.hapi.fhir.batch2.test.support.JobMaintenanceStateInformation;
 import ca.uhn.hapi.fhir.batch2.test.support.TestJobParameters;
@@ -38,7 +39,10 @@ import org.slf4j.LoggerFactory;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -86,6 +90,56 @@ public interface IWorkChunkStateTransitions extends IWorkChunkCommon, WorkChunkT
 		assertEquals(WorkChunkStatusEnum.READY, fetchedWorkChunk.getStatus(), "New chunks are " + WorkChunkStatusEnum.READY);
 	}
 
+	/**
+	 * Persistence implementations may group concurrent creations and completions together,
+	 * but each call must still only return once its own chunk has been stored.
+	 */
+	@Test
+	default void chunkCreationAndCompletion_concurrentChunks_eachVisibleOnReturn() throws ExecutionException, InterruptedException {
+		String jobInstanceId = getTestManager().createAndStoreJobInstance(null);
+		int chunkCount = 20;
+		List<String> chunkIds = new ArrayList<>();
+
+		ExecutorService workerThreads = Executors.newFixedThreadPool(4, new BasicThreadFactory.Builder().namingPattern("Concurrent-chunk-%d").build());
+		try {
+			List<Future<String>> createResults = new ArrayList<>();
+			for (int i = 0; i < chunkCount; i++) {
+				createResults.add(workerThreads.submit(() -> {
+					String chunkId = getTestManager().createChunk(jobInstanceId);
+					assertEquals(WorkChunkStatusEnum.READY, getTestManager().freshFetchWorkChunk(chunkId).getStatus());
+					return chunkId;
+				}));
+			}
+			for (Future<String> next : createResults) {
+				chunkIds.add(next.get());
+			}
+			assertEquals(chunkCount, new HashSet<>(chunkIds).size());
+
+			List<Future<?>> completeResults = new ArrayList<>();
+			for (int i = 0; i < chunkCount; i++) {
+				String chunkId = chunkIds.get(i);
+				int recordsProcessed = i;
+				completeResults.add(workerThreads.submit(() -> {
+					getTestManager().getSvc().onWorkChunkCompletion(new WorkChunkCompletionEvent(chunkId, recordsProcessed, 1));
+					assertEquals(WorkChunkStatusEnum.COMPLETED, getTestManager().freshFetchWorkChunk(chunkId).getStatus());
+				}));
+			}
+			for (Future<?> next : completeResults) {
+				next.get();
+			}
+		} finally {
+			workerThreads.shutdownNow();
+		}
+
+		for (int i = 0; i < chunkCount; i++) {
+			WorkChunk chunk = getTestManager().freshFetchWorkChunk(chunkIds.get(i));
+			assertEquals(WorkChunkStatusEnum.COMPLETED, chunk.getStatus());
+			assertEquals(i, chunk.getRecordsProcessed());
+			assertEquals(1, chunk.getErrorCount());
+			assertNull(chunk.getData());
+		}
+	}
+
 	@Test
 	default void chunkReceived_forNongatedJob_queuedToInProgress() throws InterruptedException {
 		PointcutLatch sendLatch = getTestManager().disableWorkChunkMessageHandler();
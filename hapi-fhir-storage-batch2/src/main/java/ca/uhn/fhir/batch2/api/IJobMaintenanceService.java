@@ -30,6 +30,18 @@ public interface IJobMaintenanceService {
 
 	void runMaintenancePass();
 
+	/**
+	 * Reports that a work chunk belonging to the given job instance has finished processing, so
+	 * that maintenance can be performed for that instance without waiting for the next scheduled
+	 * maintenance pass (if enabled). Requests for the same instance arriving close together are
+	 * combined into a single evaluation.
+	 *
+	 * @since 8.4.0
+	 */
+	default void triggerInstanceMaintenance(String theInstanceId) {
+		// nothing by default
+	}
+
 	/**
 	 * Forces a second maintenance run.
 	 * Only to be used in tests to simulate a long running maintenance step
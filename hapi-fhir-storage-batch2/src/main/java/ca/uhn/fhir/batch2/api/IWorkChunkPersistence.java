@@ -112,7 +112,7 @@ public interface IWorkChunkPersistence {
 	 *
 	 * @param theEvent with record and error count
 	 */
-	@Transactional(propagation = Propagation.REQUIRED)
+	// on impl - opens its own transaction, which may be shared with other completions
 	void onWorkChunkCompletion(WorkChunkCompletionEvent theEvent);
 
 	/**
@@ -35,6 +35,7 @@ import ca.uhn.fhir.util.Logs;
 import jakarta.annotation.Nonnull;
 import org.slf4j.Logger;
 import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
@@ -89,10 +90,17 @@ class JobDataSink<PT extends IModelJson, IT extends IModelJson, OT extends IMode
 				sequence,
 				dataValueString,
 				myGatedExecution);
-		String chunkId = myHapiTransactionService
-				.withSystemRequestOnDefaultPartition()
-				.withPropagation(Propagation.REQUIRES_NEW)
-				.execute(() -> myJobPersistence.onWorkChunkCreate(batchWorkChunk));
+		String chunkId;
+		if (TransactionSynchronizationManager.isActualTransactionActive()) {
+			chunkId = myHapiTransactionService
+					.withSystemRequestOnDefaultPartition()
+					.withPropagation(Propagation.REQUIRES_NEW)
+					.execute(() -> myJobPersistence.onWorkChunkCreate(batchWorkChunk));
+		} else {
+			// The persistence layer opens its own transaction, which also lets it group
+			// chunk creations from concurrent steps together
+			chunkId = myJobPersistence.onWorkChunkCreate(batchWorkChunk);
+		}
 
 		myLastChunkId.set(chunkId);
 
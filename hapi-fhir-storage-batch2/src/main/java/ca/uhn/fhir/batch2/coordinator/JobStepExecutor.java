@@ -88,6 +88,9 @@ public class JobStepExecutor<PT extends IModelJson, IT extends IModelJson, OT ex
 			return;
 		}
 
+		// The step may have completed the last chunk of a gated step, or created new READY chunks
+		myJobMaintenanceService.triggerInstanceMaintenance(myInstanceId);
+
 		/**
 		 * Jobs are completed in {@link ca.uhn.fhir.batch2.progress.JobInstanceProgressCalculator#calculateInstanceProgress}
 		 * We determine if the job is complete based on if there are *any* completed work chunks.
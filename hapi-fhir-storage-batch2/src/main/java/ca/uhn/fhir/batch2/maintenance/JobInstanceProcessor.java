@@ -62,6 +62,7 @@ public class JobInstanceProcessor {
 	private final JobDefinitionRegistry myJobDefinitionegistry;
 
 	private long myPurgeThreshold = PURGE_THRESHOLD;
+	private String myAdvancedToStepId;
 
 	public JobInstanceProcessor(
 			IJobPersistence theJobPersistence,
@@ -85,6 +86,16 @@ public class JobInstanceProcessor {
 		myPurgeThreshold = thePurgeThreshold;
 	}
 
+	/**
+	 * Returns the ID of the step that a gated job instance was advanced to by {@link #process()},
+	 * or <code>null</code> if the instance was not advanced
+	 *
+	 * @since 8.4.0
+	 */
+	public String getAdvancedToStepId() {
+		return myAdvancedToStepId;
+	}
+
 	public void process() {
 		ourLog.debug("Starting job processing: {}", myInstanceId);
 		StopWatch stopWatch = new StopWatch();
@@ -382,7 +393,10 @@ public class JobInstanceProcessor {
 
 		// update the job step so the workers will process them.
 		// Sets all chunks from QUEUED/GATE_WAITING -> READY (REDUCTION_READY for reduction jobs)
-		myJobPersistence.advanceJobStepAndUpdateChunkStatus(instanceId, nextStepId, jobWorkCursor.isReductionStep());
+		if (myJobPersistence.advanceJobStepAndUpdateChunkStatus(
+				instanceId, nextStepId, jobWorkCursor.isReductionStep())) {
+			myAdvancedToStepId = nextStepId;
+		}
 	}
 
 	/**
@@ -35,7 +35,9 @@ import ca.uhn.fhir.jpa.model.sched.ScheduledJobDefinition;
 import ca.uhn.fhir.util.Logs;
 import com.google.common.annotations.VisibleForTesting;
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.PreDestroy;
 import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.commons.lang3.time.DateUtils;
 import org.quartz.JobExecutionContext;
 import org.slf4j.Logger;
@@ -44,6 +46,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
@@ -75,6 +80,11 @@ import java.util.concurrent.TimeUnit;
  *    The maintenance pass is run once per minute.  However if a gated job is fast-tracking (i.e. every step produced
  *    exactly one chunk, then the maintenance task will be triggered earlier than scheduled by the step executor.
  * </p>
+ * <p>
+ *    If {@link JpaStorageSettings#isJobMaintenanceOnChunkCompletionEnabled()} is enabled, the step executor also
+ *    reports each work chunk completion using {@link #triggerInstanceMaintenance(String)}, and the affected
+ *    instance is evaluated on its own shortly afterwards. In this mode the scheduled pass only acts as a safety net.
+ * </p>
  */
 public class JobMaintenanceServiceImpl implements IJobMaintenanceService, IHasScheduledJobs {
 	static final Logger ourLog = Logs.getBatchTroubleshootingLog();
@@ -82,6 +92,7 @@ public class JobMaintenanceServiceImpl implements IJobMaintenanceService, IHasSc
 	public static final int INSTANCES_PER_PASS = 100;
 	public static final String SCHEDULED_JOB_ID = JobMaintenanceScheduledJob.class.getName();
 	public static final int MAINTENANCE_TRIGGER_RUN_WITHOUT_SCHEDULER_TIMEOUT = 5;
+	public static final long DEFAULT_INSTANCE_MAINTENANCE_DEBOUNCE_MILLIS = 250;
 
 	private long myFailedJobLifetimeOverride = -1;
 
@@ -101,6 +112,16 @@ public class JobMaintenanceServiceImpl implements IJobMaintenanceService, IHasSc
 
 	private boolean myEnabledBool = true;
 
+	private final JobStepTransitionMetrics myStepTransitionMetrics = new JobStepTransitionMetrics();
+	/**
+	 * Instance ID -> time that the first work chunk completion not yet seen by a maintenance evaluation was reported
+	 */
+	private final ConcurrentHashMap<String, Long> myInstanceIdToFirstUnprocessedCompletion = new ConcurrentHashMap<>();
+
+	private final Set<String> myInstanceIdsPendingMaintenance = ConcurrentHashMap.newKeySet();
+	private long myInstanceMaintenanceDebounceMillis = DEFAULT_INSTANCE_MAINTENANCE_DEBOUNCE_MILLIS;
+	private ScheduledExecutorService myInstanceMaintenanceExecutor;
+
 	/**
 	 * Constructor
 	 */
@@ -143,6 +164,85 @@ public class JobMaintenanceServiceImpl implements IJobMaintenanceService, IHasSc
 		myScheduledJobFrequencyMillis = theScheduledJobFrequencyMillis;
 	}
 
+	/**
+	 * Sets the delay between a work chunk completion being reported by {@link #triggerInstanceMaintenance(String)}
+	 * and its instance being evaluated. Any other completions reported for the same instance within this
+	 * window are handled by the same evaluation.
+	 *
+	 * @since 8.4.0
+	 */
+	public void setInstanceMaintenanceDebounceMillis(long theInstanceMaintenanceDebounceMillis) {
+		myInstanceMaintenanceDebounceMillis = theInstanceMaintenanceDebounceMillis;
+	}
+
+	/**
+	 * Returns the latency statistics for gated step transitions performed on this server
+	 *
+	 * @since 8.4.0
+	 */
+	public JobStepTransitionMetrics getStepTransitionMetrics() {
+		return myStepTransitionMetrics;
+	}
+
+	@Override
+	public void triggerInstanceMaintenance(String theInstanceId) {
+		if (!myStorageSettings.isJobMaintenanceOnChunkCompletionEnabled() || !myEnabledBool) {
+			return;
+		}
+
+		myInstanceIdToFirstUnprocessedCompletion.putIfAbsent(theInstanceId, System.currentTimeMillis());
+		if (myInstanceIdsPendingMaintenance.add(theInstanceId)) {
+			getInstanceMaintenanceExecutor()
+					.schedule(
+							() -> runInstanceMaintenance(theInstanceId),
+							myInstanceMaintenanceDebounceMillis,
+							TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private void runInstanceMaintenance(String theInstanceId) {
+		// Completions reported from now on need a new evaluation
+		myInstanceIdsPendingMaintenance.remove(theInstanceId);
+		try {
+			JobInstance instance = myJobPersistence.fetchInstance(theInstanceId).orElse(null);
+			if (instance == null
+					|| myJobDefinitionRegistry
+							.getJobDefinition(instance.getJobDefinitionId(), instance.getJobDefinitionVersion())
+							.isEmpty()) {
+				myInstanceIdToFirstUnprocessedCompletion.remove(theInstanceId);
+				return;
+			}
+			/*
+			 * This can overlap with a scheduled pass processing the same instance. That's safe
+			 * since instance updates are made under a pessimistic lock, and work chunk state
+			 * transitions only apply if the chunk is still in the expected state.
+			 */
+			ourLog.debug("Running maintenance for instance {} after work chunk completion", theInstanceId);
+			processInstance(instance, new JobChunkProgressAccumulator());
+		} catch (Exception e) {
+			ourLog.error("Maintenance for instance {} failed", theInstanceId, e);
+		}
+	}
+
+	private synchronized ScheduledExecutorService getInstanceMaintenanceExecutor() {
+		if (myInstanceMaintenanceExecutor == null) {
+			BasicThreadFactory threadFactory = new BasicThreadFactory.Builder()
+					.namingPattern("batch2-instance-maintenance-%d")
+					.daemon(true)
+					.build();
+			myInstanceMaintenanceExecutor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+		}
+		return myInstanceMaintenanceExecutor;
+	}
+
+	@PreDestroy
+	public synchronized void stop() {
+		if (myInstanceMaintenanceExecutor != null) {
+			myInstanceMaintenanceExecutor.shutdownNow();
+			myInstanceMaintenanceExecutor = null;
+		}
+	}
+
 	/**
 	 * @return true if a request to run a maintance pass was submitted
 	 */
@@ -238,14 +338,11 @@ public class JobMaintenanceServiceImpl implements IJobMaintenanceService, IHasSc
 						.getJobDefinition(instance.getJobDefinitionId(), instance.getJobDefinitionVersion())
 						.isPresent()) {
 					if (processedInstanceIds.add(instanceId)) {
-						myJobDefinitionRegistry.setJobDefinition(instance);
-						JobInstanceProcessor jobInstanceProcessor =
-								createJobInstanceProcessor(instanceId, progressAccumulator);
 						ourLog.debug(
 								"Triggering maintenance process for instance {} in status {}",
 								instanceId,
 								instance.getStatus());
-						jobInstanceProcessor.process();
+						processInstance(instance, progressAccumulator);
 					}
 				} else {
 					ourLog.warn(
@@ -262,6 +359,26 @@ public class JobMaintenanceServiceImpl implements IJobMaintenanceService, IHasSc
 		myMaintenanceJobFinishedCallback.run();
 	}
 
+	private void processInstance(JobInstance theInstance, JobChunkProgressAccumulator theAccumulator) {
+		String instanceId = theInstance.getInstanceId();
+		myJobDefinitionRegistry.setJobDefinition(theInstance);
+		Long firstUnprocessedCompletion = myInstanceIdToFirstUnprocessedCompletion.remove(instanceId);
+
+		JobInstanceProcessor jobInstanceProcessor = createJobInstanceProcessor(instanceId, theAccumulator);
+		jobInstanceProcessor.process();
+
+		String advancedToStepId = jobInstanceProcessor.getAdvancedToStepId();
+		if (advancedToStepId != null && firstUnprocessedCompletion != null) {
+			long latency = System.currentTimeMillis() - firstUnprocessedCompletion;
+			myStepTransitionMetrics.recordTransition(theInstance.getJobDefinitionId(), advancedToStepId, latency);
+			ourLog.debug(
+					"Instance {} advanced to step {} {}ms after work chunk completion",
+					instanceId,
+					advancedToStepId,
+					latency);
+		}
+	}
+
 	private JobInstanceProcessor createJobInstanceProcessor(
 			String theInstanceId, JobChunkProgressAccumulator theAccumulator) {
 		JobInstanceProcessor processor = new JobInstanceProcessor(
@@ -0,0 +1,96 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server - Batch2 Task Processor
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.batch2.maintenance;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects latency statistics for gated batch2 job step transitions, measured from the
+ * time that the first work chunk completion which had not yet been seen by a maintenance
+ * evaluation was reported for the instance, to the time that the instance was advanced
+ * to its next step. Completions are only tracked while maintenance on work chunk
+ * completion is enabled.
+ *
+ * @since 8.4.0
+ */
+public class JobStepTransitionMetrics {
+
+	private final ConcurrentHashMap<String, StepTransitionStatistics> myStatistics = new ConcurrentHashMap<>();
+
+	void recordTransition(String theJobDefinitionId, String theNextStepId, long theLatencyMillis) {
+		myStatistics
+				.computeIfAbsent(theJobDefinitionId + "/" + theNextStepId, t -> new StepTransitionStatistics())
+				.record(theLatencyMillis);
+	}
+
+	/**
+	 * Returns the statistics collected so far, keyed by <code>[job definition ID]/[step ID]</code>
+	 * where the step ID is the step which was transitioned to
+	 */
+	public Map<String, StepTransitionStatistics> getStatistics() {
+		return new TreeMap<>(myStatistics);
+	}
+
+	/**
+	 * Discards all statistics collected so far
+	 */
+	public void clear() {
+		myStatistics.clear();
+	}
+
+	public static class StepTransitionStatistics {
+
+		private final AtomicLong myCount = new AtomicLong();
+		private final AtomicLong myTotalLatencyMillis = new AtomicLong();
+		private final AtomicLong myMaxLatencyMillis = new AtomicLong();
+
+		private void record(long theLatencyMillis) {
+			myCount.incrementAndGet();
+			myTotalLatencyMillis.addAndGet(theLatencyMillis);
+			myMaxLatencyMillis.accumulateAndGet(theLatencyMillis, Math::max);
+		}
+
+		public long getCount() {
+			return myCount.get();
+		}
+
+		public long getTotalLatencyMillis() {
+			return myTotalLatencyMillis.get();
+		}
+
+		public long getMaxLatencyMillis() {
+			return myMaxLatencyMillis.get();
+		}
+
+		public long getMeanLatencyMillis() {
+			long count = getCount();
+			return count > 0 ? getTotalLatencyMillis() / count : 0;
+		}
+
+		@Override
+		public String toString() {
+			return "count=" + getCount() + ", meanMillis=" + getMeanLatencyMillis() + ", maxMillis="
+					+ getMaxLatencyMillis();
+		}
+	}
+}
@@ -171,6 +171,7 @@ public class JobCoordinatorImplTest extends BaseBatch2Test {
 		assertEquals(PASSWORD_VALUE, params.getPassword());
 
 		verify(myJobInstancePersister, times(1)).onWorkChunkCompletion(new WorkChunkCompletionEvent(CHUNK_ID, 50, 0));
+		verify(myJobMaintenanceService).triggerInstanceMaintenance(eq(INSTANCE_ID));
 	}
 
 	private void setupMocks(JobDefinition<TestJobParameters> theJobDefinition, WorkChunk theWorkChunk) {
@@ -252,6 +253,7 @@ public class JobCoordinatorImplTest extends BaseBatch2Test {
 
 		verify(myJobInstancePersister, times(1)).onWorkChunkCompletion(new WorkChunkCompletionEvent(CHUNK_ID, 50, 0));
 		verify(myBatchJobSender, times(0)).sendWorkChannelMessage(any());
+		verify(myJobMaintenanceService).triggerInstanceMaintenance(eq(INSTANCE_ID));
 	}
 
 	@Test
@@ -277,6 +279,7 @@ public class JobCoordinatorImplTest extends BaseBatch2Test {
 		assertEquals(PASSWORD_VALUE, params.getPassword());
 
 		verify(myJobInstancePersister, times(1)).onWorkChunkCompletion(new WorkChunkCompletionEvent(CHUNK_ID, 50, 0));
+		verify(myJobMaintenanceService).triggerInstanceMaintenance(eq(INSTANCE_ID));
 	}
 
 	@Test
@@ -314,7 +317,7 @@ public class JobCoordinatorImplTest extends BaseBatch2Test {
 		assertEquals("This is an error message", capturedParams.getErrorMsg());
 
 		verify(myJobInstancePersister, times(1)).onWorkChunkCompletion(new WorkChunkCompletionEvent(CHUNK_ID, 0, 0));
-
+		verify(myJobMaintenanceService).triggerInstanceMaintenance(eq(INSTANCE_ID));
 	}
 
 	@Test
@@ -345,6 +348,7 @@ public class JobCoordinatorImplTest extends BaseBatch2Test {
 		assertEquals(PASSWORD_VALUE, params.getPassword());
 
 		verify(myJobInstancePersister, times(1)).onWorkChunkCompletion(eq(new WorkChunkCompletionEvent(CHUNK_ID, 50, 2)));
+		verify(myJobMaintenanceService).triggerInstanceMaintenance(eq(INSTANCE_ID));
 	}
 
 	@Test
@@ -370,6 +374,7 @@ public class JobCoordinatorImplTest extends BaseBatch2Test {
 		assertEquals(PASSWORD_VALUE, params.getPassword());
 
 		verify(myJobInstancePersister, times(1)).onWorkChunkCompletion(new WorkChunkCompletionEvent(CHUNK_ID, 50, 0));
+		verify(myJobMaintenanceService).triggerInstanceMaintenance(eq(INSTANCE_ID));
 	}
 
 	@SuppressWarnings("unchecked")
@@ -28,6 +28,7 @@ import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import com.google.common.collect.Lists;
 import org.hl7.fhir.r4.model.DateTimeType;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -54,6 +55,7 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -122,6 +124,11 @@ public class JobMaintenanceServiceImplTest extends BaseBatch2Test {
 		myStorageSettings.setJobFastTrackingEnabled(true);
 	}
 
+	@AfterEach
+	public void afterEach() {
+		mySvc.stop();
+	}
+
 	@Test
 	public void testInProgress_CalculateProgress_FirstCompleteButNoOtherStepsYetComplete() {
 		List<WorkChunk> chunks = List.of(
@@ -295,6 +302,70 @@ public class JobMaintenanceServiceImplTest extends BaseBatch2Test {
 		assertEquals(CHUNK_ID_2, payload1.getChunkId());
 	}
 
+	@Test
+	public void testTriggerInstanceMaintenance_GatedStepAdvancedWithoutMaintenancePass() {
+		// Setup
+		myStorageSettings.setJobMaintenanceOnChunkCompletionEnabled(true);
+		mySvc.setInstanceMaintenanceDebounceMillis(50);
+		setupGatedInstanceReadyToAdvance();
+
+		// Execute
+		mySvc.triggerInstanceMaintenance(INSTANCE_ID);
+		mySvc.triggerInstanceMaintenance(INSTANCE_ID);
+		mySvc.triggerInstanceMaintenance(INSTANCE_ID);
+
+		// Verify
+		await().until(() -> mySvc.getStepTransitionMetrics().getStatistics().containsKey(JOB_DEFINITION_ID + "/" + STEP_2));
+		verify(myJobPersistence, times(1)).advanceJobStepAndUpdateChunkStatus(eq(INSTANCE_ID), eq(STEP_2), eq(false));
+		verify(myJobPersistence, never()).fetchInstances(anyInt(), anyInt());
+		verify(myWorkChannelProducer, times(1)).send(any());
+		assertEquals(1, mySvc.getStepTransitionMetrics().getStatistics().get(JOB_DEFINITION_ID + "/" + STEP_2).getCount());
+	}
+
+	@Test
+	public void testTriggerInstanceMaintenance_Disabled() {
+		// Setup
+		mySvc.setInstanceMaintenanceDebounceMillis(0);
+		JobInstance instance = setupGatedInstanceReadyToAdvance();
+		when(myJobPersistence.fetchInstances(anyInt(), eq(0))).thenReturn(List.of(instance));
+
+		// Execute
+		mySvc.triggerInstanceMaintenance(INSTANCE_ID);
+		await().during(100, TimeUnit.MILLISECONDS).atMost(1, TimeUnit.SECONDS).untilAsserted(() ->
+			verify(myJobPersistence, never()).advanceJobStepAndUpdateChunkStatus(any(), any(), anyBoolean()));
+		mySvc.runMaintenancePass();
+
+		// Verify
+		verify(myJobPersistence, times(1)).advanceJobStepAndUpdateChunkStatus(eq(INSTANCE_ID), eq(STEP_2), eq(false));
+		// The completion wasn't tracked, so there is no latency to report
+		assertThat(mySvc.getStepTransitionMetrics().getStatistics()).isEmpty();
+	}
+
+	private JobInstance setupGatedInstanceReadyToAdvance() {
+		List<WorkChunk> chunks = List.of(JobCoordinatorImplTest.createWorkChunkStep2().setStatus(WorkChunkStatusEnum.GATE_WAITING).setId(CHUNK_ID));
+		myJobDefinitionRegistry.addJobDefinition(createJobDefinition(JobDefinition.Builder::gatedExecution));
+
+		when(myJobPersistence.fetchAllWorkChunksIterator(eq(INSTANCE_ID), eq(false)))
+			.thenReturn(chunks.iterator());
+		when(myJobPersistence.getDistinctWorkChunkStatesForJobAndStep(anyString(), anyString()))
+			.thenReturn(Set.of(WorkChunkStatusEnum.COMPLETED));
+		when(myJobPersistence.advanceJobStepAndUpdateChunkStatus(eq(INSTANCE_ID), eq(STEP_2), eq(false)))
+			.thenReturn(true);
+
+		JobInstance instance = createInstance();
+		instance.setCurrentGatedStepId(STEP_1);
+		when(myJobPersistence.fetchInstance(INSTANCE_ID)).thenReturn(Optional.of(instance));
+		when(myJobPersistence.fetchAllWorkChunkMetadataForJobInStates(any(Pageable.class), anyString(), eq(Set.of(WorkChunkStatusEnum.READY))))
+			.thenAnswer(args -> getPageOfData(new ArrayList<>(chunks)));
+		doAnswer(a -> {
+			Consumer<Integer> callback = a.getArgument(1);
+			callback.accept(1);
+			return null;
+		}).when(myJobPersistence).enqueueWorkChunkForProcessing(anyString(), any());
+		stubUpdateInstanceCallback(instance);
+		return instance;
+	}
+
 	@Test
 	public void testFailed_PurgeOldInstance() {
 		myJobDefinitionRegistry.addJobDefinition(createJobDefinition());
@@ -133,6 +133,11 @@ public class JpaStorageSettings extends StorageSettings {
 	public static final int DEFAULT_TRANSACTION_ENTRIES_FOR_WRITE =
 			Integer.parseInt(DEFAULT_TRANSACTION_ENTRIES_FOR_WRITE_STRING);
 
+	/**
+	 * @since 8.4.0
+	 */
+	public static final int DEFAULT_TRANSACTION_PARALLEL_INDEXING_MINIMUM_RESOURCE_COUNT = 20;
+
 	public static final List<Integer> DEFAULT_SEARCH_PRE_FETCH_THRESHOLDS = Arrays.asList(13, 503, 2003, 1000003, -1);
 
 	/**
@@ -174,6 +179,55 @@ public class JpaStorageSettings extends StorageSettings {
 	 * update setter javadoc if default changes
 	 */
 	private long myExpireSearchResultsAfterMillis = DateUtils.MILLIS_PER_HOUR;
+	/**
+	 * Since 8.4.0
+	 */
+	private boolean mySearchResultBlockStorageEnabled = false;
+	/**
+	 * Since 8.4.0
+	 */
+	private long myLocalSearchCacheMaxSizeBytes = 0;
+	/**
+	 * Since 8.4.0
+	 */
+	private boolean myMemoryCacheInvalidationBusEnabled = false;
+	/**
+	 * Since 8.4.0
+	 */
+	private Long myMemoryCacheExpireAfterWriteMillis = null;
+	/**
+	 * Since 8.4.0
+	 */
+	private boolean myIndexRowBulkInsertEnabled = false;
+	/**
+	 * Since 8.4.0
+	 */
+	private int myTransactionParallelIndexingThreadCount = 0;
+	/**
+	 * Since 8.4.0
+	 */
+	private int myTransactionParallelIndexingMinimumResourceCount =
+			DEFAULT_TRANSACTION_PARALLEL_INDEXING_MINIMUM_RESOURCE_COUNT;
+	/**
+	 * Since 8.4.0
+	 */
+	private boolean myJobMaintenanceOnChunkCompletionEnabled = false;
+	/**
+	 * Since 8.4.0
+	 */
+	private long myWorkChunkGroupCommitWindowMillis = 0;
+	/**
+	 * Since 8.4.0
+	 */
+	private boolean myKeysetPagingEnabled = false;
+	/**
+	 * Since 8.4.0
+	 */
+	private int myIncludeParallelLoadingThreadCount = 0;
+	/**
+	 * Since 8.4.0
+	 */
+	private int myPreExpandedValueSetCodeIndexMaxConcepts = 0;
 	/**
 	 * update setter javadoc if default changes
 	 */
@@ -340,6 +394,10 @@ public class JpaStorageSettings extends StorageSettings {
 	 * Since 7.2.0
 	 */
 	private long myBulkExportFileMaximumSize = DEFAULT_BULK_EXPORT_MAXIMUM_WORK_CHUNK_SIZE;
+	/**
+	 * Since 8.4.0
+	 */
+	private boolean myBulkExportStreamingBinaryWriteEnabled = false;
 	/**
 	 * Since 6.4.0
 	 */
@@ -927,6 +985,423 @@ public class JpaStorageSettings extends StorageSettings {
 		myExpireSearchResultsAfterMillis = theExpireSearchResultsAfterMillis;
 	}
 
+	/**
+	 * If enabled, the results of searches which are cached in the database are stored as blocks
+	 * of many results encoded together (in the <code>HFJ_SEARCH_RESULT_BLK</code> table) instead of as one
+	 * row per result (in the <code>HFJ_SEARCH_RESULT</code> table). This substantially reduces the
+	 * number of rows which need to be written, read and deleted for large searches. Search results
+	 * which were stored before this setting was enabled remain readable.
+	 * <p>
+	 * This setting is read when the server starts, so changing it afterwards has no effect.
+	 * Default is <code>false</code>.
+	 * </p>
+	 *
+	 * @since 8.4.0
+	 */
+	public boolean isSearchResultBlockStorageEnabled() {
+		return mySearchResultBlockStorageEnabled;
+	}
+
+	/**
+	 * If enabled, the results of searches which are cached in the database are stored as blocks
+	 * of many results encoded together (in the <code>HFJ_SEARCH_RESULT_BLK</code> table) instead of as one
+	 * row per result (in the <code>HFJ_SEARCH_RESULT</code> table). This substantially reduces the
+	 * number of rows which need to be written, read and deleted for large searches. Search results
+	 * which were stored before this setting was enabled remain readable.
+	 * <p>
+	 * This setting is read when the server starts, so changing it afterwards has no effect.
+	 * Default is <code>false</code>.
+	 * </p>
+	 *
+	 * @since 8.4.0
+	 */
+	public void setSearchResultBlockStorageEnabled(boolean theSearchResultBlockStorageEnabled) {
+		mySearchResultBlockStorageEnabled = theSearchResultBlockStorageEnabled;
+	}
+
+	/**
+	 * If set to a value greater than zero, searches and their results are additionally held in a
+	 * node-local off-heap cache of up to this many bytes (this limit applies separately to the
+	 * cache of searches and to the cache of search results). Loading further pages of a search
+	 * which was performed on this node, and checking for cached searches which can be reused,
+	 * can then be served without querying the database. Everything is still written to the
+	 * database, which is used for any search which is not held locally (for example, because it
+	 * was performed by a different node in a cluster).
+	 * <p>
+	 * This setting is read when the server starts, so changing it afterwards has no effect.
+	 * Default is <code>0</code>, meaning that no local cache is used.
+	 * </p>
+	 *
+	 * @since 8.4.0
+	 */
+	public long getLocalSearchCacheMaxSizeBytes() {
+		return myLocalSearchCacheMaxSizeBytes;
+	}
+
+	/**
+	 * If set to a value greater than zero, searches and their results are additionally held in a
+	 * node-local off-heap cache of up to this many bytes (this limit applies separately to the
+	 * cache of searches and to the cache of search results). Loading further pages of a search
+	 * which was performed on this node, and checking for cached searches which can be reused,
+	 * can then be served without querying the database. Everything is still written to the
+	 * database, which is used for any search which is not held locally (for example, because it
+	 * was performed by a different node in a cluster).
+	 * <p>
+	 * This setting is read when the server starts, so changing it afterwards has no effect.
+	 * Default is <code>0</code>, meaning that no local cache is used.
+	 * </p>
+	 *
+	 * @since 8.4.0
+	 */
+	public void setLocalSearchCacheMaxSizeBytes(long theLocalSearchCacheMaxSizeBytes) {
+		Validate.isTrue(theLocalSearchCacheMaxSizeBytes >= 0, "Size must not be negative");
+		myLocalSearchCacheMaxSizeBytes = theLocalSearchCacheMaxSizeBytes;
+	}
+
+	/**
+	 * If enabled, whenever an entry in the {@literal MemoryCacheService} becomes stale on this
+	 * node (for example because a resource was deleted or a partition was renamed), an
+	 * invalidation message is published to all other nodes in the cluster using the configured
+	 * {@literal IBrokerClient}. Key-level invalidations are published once the database transaction
+	 * which caused them commits. Note that the channel used must deliver each message to every
+	 * node in the cluster.
+	 * <p>
+	 * Enabling this setting makes it safe to increase the memory cache expiry using
+	 * {@link #setMemoryCacheExpireAfterWriteMillis(Long)}.
+	 * </p>
+	 * <p>
+	 * This setting is read when the server starts, so changing it afterwards has no effect.
+	 * Default is <code>false</code>.
+	 * </p>
+	 *
+	 * @since 8.4.0
+	 */
+	public boolean isMemoryCacheInvalidationBusEnabled() {
+		return myMemoryCacheInvalidationBusEnabled;
+	}
+
+	/**
+	 * If enabled, whenever an entry in the {@literal MemoryCacheService} becomes stale on this
+	 * node (for example because a resource was deleted or a partition was renamed), an
+	 * invalidation message is published to all other nodes in the cluster using the configured
+	 * {@literal IBrokerClient}. Key-level invalidations are published once the database transaction
+	 * which caused them commits. Note that the channel used must deliver each message to every
+	 * node in the cluster.
+	 * <p>
+	 * Enabling this setting makes it safe to increase the memory cache expiry using
+	 * {@link #setMemoryCacheExpireAfterWriteMillis(Long)}.
+	 * </p>
+	 * <p>
+	 * This setting is read when the server starts, so changing it afterwards has no effect.
+	 * Default is <code>false</code>.
+	 * </p>
+	 *
+	 * @since 8.4.0
+	 */
+	public void setMemoryCacheInvalidationBusEnabled(boolean theMemoryCacheInvalidationBusEnabled) {
+		myMemoryCacheInvalidationBusEnabled = theMemoryCacheInvalidationBusEnabled;
+	}
+
+	/**
+	 * If set, overrides the time after which entries in the {@literal MemoryCacheService} caches
+	 * which are not permanent (such as the resource ID, match URL, tag definition and partition
+	 * caches) expire. Long expiry times should only be used on a single server, or on a cluster
+	 * where {@link #setMemoryCacheInvalidationBusEnabled(boolean) the invalidation bus} is enabled,
+	 * since otherwise nodes may use stale values until they expire.
+	 * <p>
+	 * This setting is read when the server starts, so changing it afterwards has no effect.
+	 * Default is <code>null</code>, meaning that entries expire after one minute (or 50 minutes
+	 * if {@link #isMassIngestionMode() mass ingestion mode} is enabled).
+	 * </p>
+	 *
+	 * @since 8.4.0
+	 */
+	@Nullable
+	public Long getMemoryCacheExpireAfterWriteMillis() {
+		return myMemoryCacheExpireAfterWriteMillis;
+	}
+
+	/**
+	 * If set, overrides the time after which entries in the {@literal MemoryCacheService} caches
+	 * which are not permanent (such as the resource ID, match URL, tag definition and partition
+	 * caches) expire. Long expiry times should only be used on a single server, or on a cluster
+	 * where {@link #setMemoryCacheInvalidationBusEnabled(boolean) the invalidation bus} is enabled,
+	 * since otherwise nodes may use stale values until they expire.
+	 * <p>
+	 * This setting is read when the server starts, so changing it afterwards has no effect.
+	 * Default is <code>null</code>, meaning that entries expire after one minute (or 50 minutes
+	 * if {@link #isMassIngestionMode() mass ingestion mode} is enabled).
+	 * </p>
+	 *
+	 * @since 8.4.0
+	 */
+	public void setMemoryCacheExpireAfterWriteMillis(@Nullable Long theMemoryCacheExpireAfterWriteMillis) {
+		Validate.isTrue(
+				theMemoryCacheExpireAfterWriteMillis == null || theMemoryCacheExpireAfterWriteMillis > 0,
+				"Expiry must be greater than zero");
+		myMemoryCacheExpireAfterWriteMillis = theMemoryCacheExpireAfterWriteMillis;
+	}
+
+	/**
+	 * If enabled (default is <code>false</code>), index rows created for new resources by bulk import
+	 * and reindex jobs are written to the database using multi-row <code>INSERT</code> statements
+	 * (or <code>COPY</code> on Postgres) just before the transaction commits, instead of being
+	 * persisted one row at a time by Hibernate. This can greatly reduce the time spent writing
+	 * indexes when loading large volumes of data.
+	 * <p>
+	 * Rows are only written this way for index tables where the resource has no existing rows,
+	 * and only when the request has opted in using the
+	 * {@literal JpaConstants#BULK_INDEX_ROW_INSERT} request user data key. Other rows are
+	 * persisted normally.
+	 * </p>
+	 *
+	 * @since 8.4.0
+	 */
+	public boolean isIndexRowBulkInsertEnabled() {
+		return myIndexRowBulkInsertEnabled;
+	}
+
+	/**
+	 * If enabled (default is <code>false</code>), index rows created for new resources by bulk import
+	 * and reindex jobs are written to the database using multi-row <code>INSERT</code> statements
+	 * (or <code>COPY</code> on Postgres) just before the transaction commits, instead of being
+	 * persisted one row at a time by Hibernate. This can greatly reduce the time spent writing
+	 * indexes when loading large volumes of data.
+	 * <p>
+	 * Rows are only written this way for index tables where the resource has no existing rows,
+	 * and only when the request has opted in using the
+	 * {@literal JpaConstants#BULK_INDEX_ROW_INSERT} request user data key. Other rows are
+	 * persisted normally.
+	 * </p>
+	 *
+	 * @since 8.4.0
+	 */
+	public void setIndexRowBulkInsertEnabled(boolean theIndexRowBulkInsertEnabled) {
+		myIndexRowBulkInsertEnabled = theIndexRowBulkInsertEnabled;
+	}
+
+	/**
+	 * If set to a value greater than zero (default is <code>0</code>), FHIR transactions will
+	 * extract the search parameter indexes for, and encode, the resources they create using
+	 * a pool with the given number of threads before writing them to the database. This can
+	 * substantially reduce the time taken to process large transaction bundles on servers
+	 * with several CPU cores. Resources are still written to the database in bundle order
+	 * by the thread processing the transaction.
+	 *
+	 * @see #getTransactionParallelIndexingMinimumResourceCount()
+	 * @since 8.4.0
+	 */
+	public int getTransactionParallelIndexingThreadCount() {
+		return myTransactionParallelIndexingThreadCount;
+	}
+
+	/**
+	 * If set to a value greater than zero (default is <code>0</code>), FHIR transactions will
+	 * extract the search parameter indexes for, and encode, the resources they create using
+	 * a pool with the given number of threads before writing them to the database. This can
+	 * substantially reduce the time taken to process large transaction bundles on servers
+	 * with several CPU cores. Resources are still written to the database in bundle order
+	 * by the thread processing the transaction.
+	 *
+	 * @see #getTransactionParallelIndexingMinimumResourceCount()
+	 * @since 8.4.0
+	 */
+	public void setTransactionParallelIndexingThreadCount(int theTransactionParallelIndexingThreadCount) {
+		Validate.isTrue(theTransactionParallelIndexingThreadCount >= 0, "Thread count must not be negative");
+		myTransactionParallelIndexingThreadCount = theTransactionParallelIndexingThreadCount;
+	}
+
+	/**
+	 * The minimum number of resources which must be written by a FHIR transaction in
+	 * order for {@link #getTransactionParallelIndexingThreadCount() parallel indexing}
+	 * to be used. Smaller transactions are always indexed by the thread processing the
+	 * transaction. Default is {@value #DEFAULT_TRANSACTION_PARALLEL_INDEXING_MINIMUM_RESOURCE_COUNT}.
+	 *
+	 * @since 8.4.0
+	 */
+	public int getTransactionParallelIndexingMinimumResourceCount() {
+		return myTransactionParallelIndexingMinimumResourceCount;
+	}
+
+	/**
+	 * The minimum number of resources which must be written by a FHIR transaction in
+	 * order for {@link #getTransactionParallelIndexingThreadCount() parallel indexing}
+	 * to be used. Smaller transactions are always indexed by the thread processing the
+	 * transaction. Default is {@value #DEFAULT_TRANSACTION_PARALLEL_INDEXING_MINIMUM_RESOURCE_COUNT}.
+	 *
+	 * @since 8.4.0
+	 */
+	public void setTransactionParallelIndexingMinimumResourceCount(
+			int theTransactionParallelIndexingMinimumResourceCount) {
+		myTransactionParallelIndexingMinimumResourceCount = theTransactionParallelIndexingMinimumResourceCount;
+	}
+
+	/**
+	 * If enabled (default is <code>false</code>), whenever a batch2 work chunk finishes processing, a
+	 * maintenance evaluation is performed for its job instance shortly afterwards (requests arriving close
+	 * together are combined). This advances gated jobs to their next step and queues newly created work chunks
+	 * without waiting for the next scheduled maintenance pass, which greatly reduces the duration of small jobs.
+	 * The scheduled maintenance pass continues to run as a safety net.
+	 *
+	 * @since 8.4.0
+	 */
+	public boolean isJobMaintenanceOnChunkCompletionEnabled() {
+		return myJobMaintenanceOnChunkCompletionEnabled;
+	}
+
+	/**
+	 * If enabled (default is <code>false</code>), whenever a batch2 work chunk finishes processing, a
+	 * maintenance evaluation is performed for its job instance shortly afterwards (requests arriving close
+	 * together are combined). This advances gated jobs to their next step and queues newly created work chunks
+	 * without waiting for the next scheduled maintenance pass, which greatly reduces the duration of small jobs.
+	 * The scheduled maintenance pass continues to run as a safety net.
+	 *
+	 * @since 8.4.0
+	 */
+	public void setJobMaintenanceOnChunkCompletionEnabled(boolean theJobMaintenanceOnChunkCompletionEnabled) {
+		myJobMaintenanceOnChunkCompletionEnabled = theJobMaintenanceOnChunkCompletionEnabled;
+	}
+
+	/**
+	 * If set to a value greater than zero (default is <code>0</code>), batch2 work chunk creations
+	 * and completions which arrive within this many milliseconds of each other are written to the
+	 * database together, using one transaction and batched statements. Each caller still only
+	 * returns once its own chunk has been committed. This reduces row-level churn on the work
+	 * chunk table for jobs which fan out to very large numbers of chunks, at the cost of adding
+	 * up to this much latency to chunk state transitions which are made while others are in
+	 * progress. A transition made while no others are in progress is written straight away.
+	 * Calls made within an existing transaction are never grouped.
+	 *
+	 * @since 8.4.0
+	 */
+	public long getWorkChunkGroupCommitWindowMillis() {
+		return myWorkChunkGroupCommitWindowMillis;
+	}
+
+	/**
+	 * If set to a value greater than zero (default is <code>0</code>), batch2 work chunk creations
+	 * and completions which arrive within this many milliseconds of each other are written to the
+	 * database together, using one transaction and batched statements. Each caller still only
+	 * returns once its own chunk has been committed. This reduces row-level churn on the work
+	 * chunk table for jobs which fan out to very large numbers of chunks, at the cost of adding
+	 * up to this much latency to chunk state transitions which are made while others are in
+	 * progress. A transition made while no others are in progress is written straight away.
+	 * Calls made within an existing transaction are never grouped.
+	 *
+	 * @since 8.4.0
+	 */
+	public void setWorkChunkGroupCommitWindowMillis(long theWorkChunkGroupCommitWindowMillis) {
+		myWorkChunkGroupCommitWindowMillis = theWorkChunkGroupCommitWindowMillis;
+	}
+
+	/**
+	 * If enabled (default is <code>false</code>), offset searches (i.e. searches using the
+	 * <code>_offset</code> parameter) which are sorted by <code>_id</code> or <code>_lastUpdated</code>,
+	 * or which are not sorted at all, use keyset (seek) paging. Results are ordered with the
+	 * resource PID as a tie-breaker, and the <code>next</code> link carries an opaque
+	 * <code>_searchAfter</code> token identifying the last result on the page. When that link is
+	 * followed, the database seeks directly past that result instead of reading and discarding
+	 * every preceding row, so deep pages cost about the same as the first one. Requests with a
+	 * missing or mismatched token fall back to normal offset paging.
+	 *
+	 * @since 8.4.0
+	 */
+	public boolean isKeysetPagingEnabled() {
+		return myKeysetPagingEnabled;
+	}
+
+	/**
+	 * If enabled (default is <code>false</code>), offset searches (i.e. searches using the
+	 * <code>_offset</code> parameter) which are sorted by <code>_id</code> or <code>_lastUpdated</code>,
+	 * or which are not sorted at all, use keyset (seek) paging. Results are ordered with the
+	 * resource PID as a tie-breaker, and the <code>next</code> link carries an opaque
+	 * <code>_searchAfter</code> token identifying the last result on the page. When that link is
+	 * followed, the database seeks directly past that result instead of reading and discarding
+	 * every preceding row, so deep pages cost about the same as the first one. Requests with a
+	 * missing or mismatched token fall back to normal offset paging.
+	 *
+	 * @since 8.4.0
+	 */
+	public void setKeysetPagingEnabled(boolean theKeysetPagingEnabled) {
+		myKeysetPagingEnabled = theKeysetPagingEnabled;
+	}
+
+	/**
+	 * If set to a value greater than zero (default is <code>0</code>), searches with more than one
+	 * <code>_include</code> or <code>_revinclude</code> parameter resolve the parameters belonging to
+	 * each include round concurrently, using a pool with the given number of threads. Each
+	 * parameter is resolved in its own read-only database transaction, and the results of all
+	 * parameters are merged and de-duplicated before the next round (for <code>:iterate</code>
+	 * includes) begins. Parallel loading is only used when the search itself is running in a
+	 * read-only transaction.
+	 * <p>
+	 * Each busy worker holds its own database connection in addition to the connection held by
+	 * the search itself, and the workers are shared by all searches, so this setting adds up to
+	 * this many connections to the peak connection usage of the server. The number of workers is
+	 * capped at half of the datasource connection pool size when that size can be determined, and
+	 * parameters for which no worker is free are resolved by the search thread itself.
+	 * </p>
+	 *
+	 * @since 8.4.0
+	 */
+	public int getIncludeParallelLoadingThreadCount() {
+		return myIncludeParallelLoadingThreadCount;
+	}
+
+	/**
+	 * If set to a value greater than zero (default is <code>0</code>), searches with more than one
+	 * <code>_include</code> or <code>_revinclude</code> parameter resolve the parameters belonging to
+	 * each include round concurrently, using a pool with the given number of threads. Each
+	 * parameter is resolved in its own read-only database transaction, and the results of all
+	 * parameters are merged and de-duplicated before the next round (for <code>:iterate</code>
+	 * includes) begins. Parallel loading is only used when the search itself is running in a
+	 * read-only transaction.
+	 * <p>
+	 * Each busy worker holds its own database connection in addition to the connection held by
+	 * the search itself, and the workers are shared by all searches, so this setting adds up to
+	 * this many connections to the peak connection usage of the server. The number of workers is
+	 * capped at half of the datasource connection pool size when that size can be determined, and
+	 * parameters for which no worker is free are resolved by the search thread itself.
+	 * </p>
+	 *
+	 * @since 8.4.0
+	 */
+	public void setIncludeParallelLoadingThreadCount(int theIncludeParallelLoadingThreadCount) {
+		Validate.isTrue(theIncludeParallelLoadingThreadCount >= 0, "Thread count must not be negative");
+		myIncludeParallelLoadingThreadCount = theIncludeParallelLoadingThreadCount;
+	}
+
+	/**
+	 * If set to a value greater than zero (default is <code>0</code>), code validation against a
+	 * pre-expanded ValueSet containing no more than this number of concepts is performed using a
+	 * compact in-memory index of the pre-expansion instead of a database query per code. The index
+	 * for a ValueSet is built the first time a code is validated against it after pre-expansion
+	 * completes, and is discarded when the pre-expansion is invalidated or the ValueSet changes.
+	 * Each index uses roughly the UTF-8 size of the codes, systems and displays it holds plus 16
+	 * bytes per concept, so this setting also limits the memory used by any single index.
+	 *
+	 * @since 8.4.0
+	 */
+	public int getPreExpandedValueSetCodeIndexMaxConcepts() {
+		return myPreExpandedValueSetCodeIndexMaxConcepts;
+	}
+
+	/**
+	 * If set to a value greater than zero (default is <code>0</code>), code validation against a
+	 * pre-expanded ValueSet containing no more than this number of concepts is performed using a
+	 * compact in-memory index of the pre-expansion instead of a database query per code. The index
+	 * for a ValueSet is built the first time a code is validated against it after pre-expansion
+	 * completes, and is discarded when the pre-expansion is invalidated or the ValueSet changes.
+	 * Each index uses roughly the UTF-8 size of the codes, systems and displays it holds plus 16
+	 * bytes per concept, so this setting also limits the memory used by any single index.
+	 *
+	 * @since 8.4.0
+	 */
+	public void setPreExpandedValueSetCodeIndexMaxConcepts(int thePreExpandedValueSetCodeIndexMaxConcepts) {
+		Validate.isTrue(thePreExpandedValueSetCodeIndexMaxConcepts >= 0, "Concept count must not be negative");
+		myPreExpandedValueSetCodeIndexMaxConcepts = thePreExpandedValueSetCodeIndexMaxConcepts;
+	}
+
 	/**
 	 * Gets the default maximum number of results to load in a query.
 	 * <p>
@@ -1063,6 +1538,18 @@ public class JpaStorageSettings extends StorageSettings {
 		return myResourceEncoding;
 	}
 
+	/**
+	 * Sets the encoding used to store resource bodies. Note that when a database other than Oracle is
+	 * being used, resource bodies are stored uncompressed unless {@link ResourceEncodingEnum#JSONZ} is
+	 * selected.
+	 * <p>
+	 * When {@link ResourceEncodingEnum#JSONZ} is selected, resource bodies are compressed using Zstandard.
+	 * If a dictionary has been trained for the resource type (see
+	 * <code>ResourceEncodingDictionarySvc#trainDictionary</code>), it will be used. Existing resource
+	 * versions can be re-encoded using a <code>$reindex</code> with the <code>optimizeStorage</code>
+	 * parameter set.
+	 * </p>
+	 */
 	public void setResourceEncoding(ResourceEncodingEnum theResourceEncoding) {
 		myResourceEncoding = theResourceEncoding;
 	}
@@ -2478,6 +2965,36 @@ public class JpaStorageSettings extends StorageSettings {
 		myBulkExportFileMaximumSize = theBulkExportFileMaximumSize;
 	}
 
+	/**
+	 * If enabled, bulk export output files are written directly to the binary storage
+	 * service as they are produced instead of being assembled in memory first, so that
+	 * the memory used to write a file does not depend on its size. This only has an effect
+	 * if a binary storage service is configured, and only for files which are large enough
+	 * to be externalized by that service (see {@link ca.uhn.fhir.jpa.binary.api.IBinaryStorageSvc#getMinimumBinarySize()}).
+	 * Default is <code>false</code>.
+	 *
+	 * @since 8.4.0
+	 * @see #setBulkExportFileMaximumSize(long)
+	 */
+	public boolean isBulkExportStreamingBinaryWriteEnabled() {
+		return myBulkExportStreamingBinaryWriteEnabled;
+	}
+
+	/**
+	 * If enabled, bulk export output files are written directly to the binary storage
+	 * service as they are produced instead of being assembled in memory first, so that
+	 * the memory used to write a file does not depend on its size. This only has an effect
+	 * if a binary storage service is configured, and only for files which are large enough
+	 * to be externalized by that service (see {@link ca.uhn.fhir.jpa.binary.api.IBinaryStorageSvc#getMinimumBinarySize()}).
+	 * Default is <code>false</code>.
+	 *
+	 * @since 8.4.0
+	 * @see #setBulkExportFileMaximumSize(long)
+	 */
+	public void setBulkExportStreamingBinaryWriteEnabled(boolean theBulkExportStreamingBinaryWriteEnabled) {
+		myBulkExportStreamingBinaryWriteEnabled = theBulkExportStreamingBinaryWriteEnabled;
+	}
+
 	/**
 	 * If this setting is enabled, then gated batch jobs that produce only one chunk will immediately trigger a batch
 	 * maintenance job.  This may be useful for testing, but is not recommended for production use.
@@ -143,6 +143,19 @@ public interface IIdHelperService<T extends IResourcePersistentId<?>> {
 			@Nonnull String theFhirId,
 			@Nullable Date theDeletedAt);
 
+	/**
+	 * This method should be called by DAO methods if they are changing the deleted status
+	 * of a resource. Any cached resolutions of the given ID are discarded when the current DB
+	 * transaction successfully commits, both on this server and (if the memory cache
+	 * invalidation bus is enabled) on any other servers in the cluster.
+	 *
+	 * @since 8.4.0
+	 */
+	void invalidateResolvedFhirIdAfterCommit(
+			@Nonnull RequestPartitionId theRequestPartitionId,
+			@Nonnull String theResourceType,
+			@Nonnull String theFhirId);
+
 	@Nullable
 	T getPidOrNull(RequestPartitionId theRequestPartitionId, IBaseResource theResource);
 
@@ -0,0 +1,53 @@
+/*-
+ * #%L
+ * HAPI FHIR Storage api
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.binary.api;
+
+import jakarta.annotation.Nonnull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An output stream which stores the bytes written to it as a new binary blob in an
+ * {@link IBinaryStorageSvc}. Instances are obtained from
+ * {@link IBinaryStorageSvc#newBinaryContentOutputStream(org.hl7.fhir.instance.model.api.IIdType, String, String, ca.uhn.fhir.rest.api.server.RequestDetails)}.
+ * <p>
+ * The blob is only stored once {@link #complete()} has been called. Closing the
+ * stream without completing it discards anything that has been written.
+ * </p>
+ *
+ * @since 8.4.0
+ */
+public abstract class BinaryContentOutputStream extends OutputStream {
+
+	/**
+	 * Returns the number of bytes written to this stream so far
+	 */
+	public abstract long getByteCount();
+
+	/**
+	 * Finishes writing and stores the blob. No further bytes may be written after
+	 * this method has been called.
+	 *
+	 * @return Returns details about the stored data
+	 */
+	@Nonnull
+	public abstract StoredDetails complete() throws IOException;
+}
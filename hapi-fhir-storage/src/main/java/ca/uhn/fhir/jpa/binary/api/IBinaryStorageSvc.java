@@ -19,6 +19,7 @@
  */
 package ca.uhn.fhir.jpa.binary.api;
 
+import ca.uhn.fhir.jpa.binary.svc.SpoolingBinaryContentOutputStream;
 import ca.uhn.fhir.rest.api.server.RequestDetails;
 import ca.uhn.fhir.rest.server.servlet.ServletRequestDetails;
 import jakarta.annotation.Nonnull;
@@ -124,6 +125,37 @@ public interface IBinaryStorageSvc {
 			RequestDetails theRequestDetails)
 			throws IOException;
 
+	/**
+	 * Opens a stream which stores a new binary blob from the bytes written to it. This
+	 * allows large content to be stored without first assembling it in memory. The blob
+	 * is stored when {@link BinaryContentOutputStream#complete()} is called, and closing
+	 * the stream without completing it discards the content.
+	 * <p>
+	 * The default implementation spools the content to a temporary file and then passes
+	 * it to {@link #storeBinaryContent(IIdType, String, String, InputStream, RequestDetails)}.
+	 * Implementations which are able to write directly to their backing storage should
+	 * override this method.
+	 * </p>
+	 *
+	 * @param theResourceId     The resource ID that owns this blob
+	 * @param theBlobIdOrNull   If set, forces the blob ID
+	 * @param theContentType    The content type to associate with this blob
+	 * @param theRequestDetails The operation request details
+	 * @since 8.4.0
+	 */
+	@Nonnull
+	default BinaryContentOutputStream newBinaryContentOutputStream(
+			IIdType theResourceId, String theBlobIdOrNull, String theContentType, RequestDetails theRequestDetails)
+			throws IOException {
+		return new SpoolingBinaryContentOutputStream(
+				this,
+				theResourceId,
+				theBlobIdOrNull,
+				theContentType,
+				theRequestDetails,
+				SpoolingBinaryContentOutputStream.DEFAULT_MEMORY_THRESHOLD);
+	}
+
 	StoredDetails fetchBinaryContentDetails(IIdType theResourceId, String theBlobId) throws IOException;
 
 	/**
@@ -34,7 +34,9 @@ import ca.uhn.fhir.rest.annotation.Operation;
 import ca.uhn.fhir.rest.annotation.OperationParam;
 import ca.uhn.fhir.rest.api.Constants;
 import ca.uhn.fhir.rest.api.EncodingEnum;
+import ca.uhn.fhir.rest.api.server.bulk.BulkExportOutputCompressionEnum;
 import ca.uhn.fhir.rest.server.RestfulServer;
+import ca.uhn.fhir.rest.server.RestfulServerUtils;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import ca.uhn.fhir.rest.server.servlet.ServletRequestDetails;
 import ca.uhn.fhir.util.AttachmentUtil;
@@ -43,6 +45,7 @@ import ca.uhn.fhir.util.DateUtils;
 import ca.uhn.fhir.util.HapiExtensions;
 import com.google.common.annotations.VisibleForTesting;
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.apache.commons.lang3.StringUtils;
@@ -61,10 +64,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Optional;
 
 import static ca.uhn.fhir.util.UrlUtil.sanitizeUrlPart;
 import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
 /**
  * This plain provider class can be registered with a JPA RestfulServer
@@ -124,9 +129,12 @@ public class BinaryAccessProvider {
 				throw new InvalidRequestException(Msg.code(1331) + msg);
 			}
 
+			BulkExportOutputCompressionEnum compressionToDecode =
+					addContentEncodingHeaderOrGetCompressionToDecode(resource, theRequestDetails, theServletResponse);
+
 			theServletResponse.setStatus(200);
 			theServletResponse.setContentType(blobDetails.getContentType());
-			if (blobDetails.getBytes() <= Integer.MAX_VALUE) {
+			if (compressionToDecode == null && blobDetails.getBytes() <= Integer.MAX_VALUE) {
 				theServletResponse.setContentLength((int) blobDetails.getBytes());
 			}
 
@@ -138,7 +146,16 @@ public class BinaryAccessProvider {
 			theServletResponse.addHeader(
 					Constants.HEADER_LAST_MODIFIED, DateUtils.formatDate(blobDetails.getPublished()));
 
-			myBinaryStorageSvc.writeBinaryContent(theResourceId, blobId, theServletResponse.getOutputStream());
+			if (compressionToDecode == null) {
+				myBinaryStorageSvc.writeBinaryContent(theResourceId, blobId, theServletResponse.getOutputStream());
+			} else {
+				// Only the compressed content is held in memory, it is decompressed as it is written
+				byte[] compressed = myBinaryStorageSvc.fetchBinaryContent(theResourceId, blobId);
+				try (InputStream inputStream =
+						compressionToDecode.newDecompressingStream(new ByteArrayInputStream(compressed))) {
+					inputStream.transferTo(theServletResponse.getOutputStream());
+				}
+			}
 			theServletResponse.getOutputStream().close();
 
 		} else {
@@ -156,6 +173,15 @@ public class BinaryAccessProvider {
 				throw new InvalidRequestException(Msg.code(1332) + msg);
 			}
 
+			BulkExportOutputCompressionEnum compressionToDecode =
+					addContentEncodingHeaderOrGetCompressionToDecode(resource, theRequestDetails, theServletResponse);
+			if (compressionToDecode != null) {
+				try (InputStream inputStream =
+						compressionToDecode.newDecompressingStream(new ByteArrayInputStream(data))) {
+					data = inputStream.readAllBytes();
+				}
+			}
+
 			theServletResponse.setStatus(200);
 			theServletResponse.setContentType(contentType);
 			theServletResponse.setContentLength(data.length);
@@ -168,6 +194,31 @@ public class BinaryAccessProvider {
 		}
 	}
 
+	/**
+	 * If the target is a Binary whose content was stored compressed (e.g. a compressed bulk
+	 * export file) and the client accepts that coding, the content is served as-is along with
+	 * the matching Content-Encoding. Otherwise the codec the content must be decompressed with
+	 * is returned, or a HTTP 406 is thrown if the client doesn't accept uncompressed content.
+	 */
+	@Nullable
+	private BulkExportOutputCompressionEnum addContentEncodingHeaderOrGetCompressionToDecode(
+			IBaseResource theResource,
+			ServletRequestDetails theRequestDetails,
+			HttpServletResponse theServletResponse) {
+		if (theResource instanceof IBaseBinary) {
+			String contentEncoding = BinaryUtil.getContentEncoding((IBaseBinary) theResource);
+			if (isNotBlank(contentEncoding)) {
+				BulkExportOutputCompressionEnum compression =
+						RestfulServerUtils.negotiateStoredContentEncoding(theRequestDetails, contentEncoding);
+				if (compression != null) {
+					return compression;
+				}
+				theServletResponse.addHeader(Constants.HEADER_CONTENT_ENCODING, contentEncoding);
+			}
+		}
+		return null;
+	}
+
 	/**
 	 * $binary-access-write
 	 */
@@ -0,0 +1,143 @@
+/*-
+ * #%L
+ * HAPI FHIR Storage api
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.binary.svc;
+
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.jpa.binary.api.BinaryContentOutputStream;
+import ca.uhn.fhir.jpa.binary.api.IBinaryStorageSvc;
+import ca.uhn.fhir.jpa.binary.api.StoredDetails;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import jakarta.annotation.Nonnull;
+import org.apache.commons.io.output.DeferredFileOutputStream;
+import org.apache.commons.lang3.Validate;
+import org.hl7.fhir.instance.model.api.IIdType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Default {@link BinaryContentOutputStream} implementation for binary storage services
+ * which can only store content supplied as an {@link InputStream}. Content is held in
+ * memory up to a small threshold and spooled to a temporary file beyond that, then
+ * passed to {@link IBinaryStorageSvc#storeBinaryContent(IIdType, String, String, InputStream, RequestDetails)}
+ * when the stream is completed.
+ *
+ * @since 8.4.0
+ */
+public class SpoolingBinaryContentOutputStream extends BinaryContentOutputStream {
+	/**
+	 * Content up to this size is held in memory rather than spooled to disk
+	 */
+	public static final int DEFAULT_MEMORY_THRESHOLD = 1024 * 1024;
+
+	private static final Logger ourLog = LoggerFactory.getLogger(SpoolingBinaryContentOutputStream.class);
+	private final IBinaryStorageSvc myBinaryStorageSvc;
+	private final IIdType myResourceId;
+	private final String myBlobIdOrNull;
+	private final String myContentType;
+	private final RequestDetails myRequestDetails;
+	private final DeferredFileOutputStream mySpool;
+	private boolean myCompleted;
+	private boolean myClosed;
+
+	/**
+	 * Constructor
+	 */
+	public SpoolingBinaryContentOutputStream(
+			@Nonnull IBinaryStorageSvc theBinaryStorageSvc,
+			@Nonnull IIdType theResourceId,
+			String theBlobIdOrNull,
+			@Nonnull String theContentType,
+			@Nonnull RequestDetails theRequestDetails,
+			int theMemoryThreshold) {
+		myBinaryStorageSvc = theBinaryStorageSvc;
+		myResourceId = theResourceId;
+		myBlobIdOrNull = theBlobIdOrNull;
+		myContentType = theContentType;
+		myRequestDetails = theRequestDetails;
+		mySpool = DeferredFileOutputStream.builder()
+				.setThreshold(theMemoryThreshold)
+				.setPrefix("hapi-binary-")
+				.setSuffix(".tmp")
+				.get();
+	}
+
+	@Override
+	public void write(int theByte) throws IOException {
+		validateWritable();
+		mySpool.write(theByte);
+	}
+
+	@Override
+	public void write(@Nonnull byte[] theBytes, int theOffset, int theLength) throws IOException {
+		validateWritable();
+		mySpool.write(theBytes, theOffset, theLength);
+	}
+
+	@Override
+	public long getByteCount() {
+		return mySpool.getByteCount();
+	}
+
+	@Nonnull
+	@Override
+	public StoredDetails complete() throws IOException {
+		validateWritable();
+		myCompleted = true;
+		mySpool.close();
+		try (InputStream inputStream = mySpool.toInputStream()) {
+			return myBinaryStorageSvc.storeBinaryContent(
+					myResourceId, myBlobIdOrNull, myContentType, inputStream, myRequestDetails);
+		} finally {
+			deleteSpoolFile();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (myClosed) {
+			return;
+		}
+		myClosed = true;
+		if (!myCompleted) {
+			mySpool.close();
+			deleteSpoolFile();
+		}
+	}
+
+	private void validateWritable() {
+		Validate.validState(!myCompleted && !myClosed, Msg.code(2741) + "Binary content stream is no longer writable");
+	}
+
+	private void deleteSpoolFile() {
+		Path spoolFile = mySpool.getPath();
+		if (spoolFile != null) {
+			try {
+				Files.deleteIfExists(spoolFile);
+			} catch (IOException e) {
+				ourLog.warn("Failed to delete temporary binary content file {}: {}", spoolFile, e.toString());
+			}
+		}
+	}
+}
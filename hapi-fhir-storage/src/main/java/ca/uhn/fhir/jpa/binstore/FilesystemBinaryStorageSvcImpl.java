@@ -21,15 +21,19 @@ package ca.uhn.fhir.jpa.binstore;
 
 import ca.uhn.fhir.context.ConfigurationException;
 import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.jpa.binary.api.BinaryContentOutputStream;
 import ca.uhn.fhir.jpa.binary.api.StoredDetails;
 import ca.uhn.fhir.jpa.binary.svc.BaseBinaryStorageSvcImpl;
 import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.rest.server.exceptions.PayloadTooLargeException;
 import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
 import com.google.common.hash.HashingInputStream;
+import com.google.common.hash.HashingOutputStream;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
 import org.apache.commons.io.FileUtils;
@@ -41,6 +45,7 @@ import org.hl7.fhir.instance.model.api.IIdType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -125,6 +130,24 @@ public class FilesystemBinaryStorageSvcImpl extends BaseBinaryStorageSvcImpl {
 		return details;
 	}
 
+	/**
+	 * Writes the content directly to its final location in the filesystem, instead of
+	 * spooling it to a temporary file first
+	 */
+	@Nonnull
+	@Override
+	public BinaryContentOutputStream newBinaryContentOutputStream(
+			IIdType theResourceId, String theBlobIdOrNull, String theContentType, RequestDetails theRequestDetails)
+			throws IOException {
+		String id = super.provideIdForNewBinaryContent(theBlobIdOrNull, null, theRequestDetails, theContentType);
+		File storagePath = getStoragePath(id, true);
+		File storageFilename = getStorageFilename(storagePath, theResourceId, id);
+		File descriptorFilename = getDescriptorFilename(storagePath, theResourceId, id);
+		ourLog.info("Writing to file: {}", storageFilename.getAbsolutePath());
+		return new FilesystemBinaryContentOutputStream(
+				theResourceId, id, theContentType, storageFilename, descriptorFilename);
+	}
+
 	@Override
 	public StoredDetails fetchBinaryContentDetails(IIdType theResourceId, String theBlobId) throws IOException {
 		StoredDetails retVal = null;
@@ -238,6 +261,104 @@ public class FilesystemBinaryStorageSvcImpl extends BaseBinaryStorageSvcImpl {
 		return path;
 	}
 
+	private class FilesystemBinaryContentOutputStream extends BinaryContentOutputStream {
+
+		private final IIdType myResourceId;
+		private final String myBlobId;
+		private final String myContentType;
+		private final File myStorageFilename;
+		private final File myDescriptorFilename;
+		private final HashingOutputStream myOutputStream;
+		private long myByteCount;
+		private boolean myCompleted;
+		private boolean myClosed;
+
+		@SuppressWarnings("UnstableApiUsage")
+		private FilesystemBinaryContentOutputStream(
+				IIdType theResourceId,
+				String theBlobId,
+				String theContentType,
+				File theStorageFilename,
+				File theDescriptorFilename)
+				throws IOException {
+			myResourceId = theResourceId;
+			myBlobId = theBlobId;
+			myContentType = theContentType;
+			myStorageFilename = theStorageFilename;
+			myDescriptorFilename = theDescriptorFilename;
+			myOutputStream = new HashingOutputStream(
+					Hashing.sha256(), new BufferedOutputStream(new FileOutputStream(theStorageFilename)));
+		}
+
+		@Override
+		public void write(int theByte) throws IOException {
+			validateWritable(1);
+			myOutputStream.write(theByte);
+			myByteCount++;
+		}
+
+		@Override
+		public void write(@Nonnull byte[] theBytes, int theOffset, int theLength) throws IOException {
+			validateWritable(theLength);
+			myOutputStream.write(theBytes, theOffset, theLength);
+			myByteCount += theLength;
+		}
+
+		@Override
+		public long getByteCount() {
+			return myByteCount;
+		}
+
+		@SuppressWarnings("UnstableApiUsage")
+		@Nonnull
+		@Override
+		public StoredDetails complete() throws IOException {
+			validateWritable(0);
+			myCompleted = true;
+			myOutputStream.close();
+
+			StoredDetails details = new StoredDetails()
+					.setBinaryContentId(myBlobId)
+					.setBytes(myByteCount)
+					.setContentType(myContentType)
+					.setHash(myOutputStream.hash().toString())
+					.setPublished(new Date());
+			ourLog.info("Writing to file: {}", myDescriptorFilename.getAbsolutePath());
+			try (FileWriter writer = new FileWriter(myDescriptorFilename)) {
+				myJsonSerializer.writeValue(writer, details);
+			}
+
+			ourLog.info(
+					"Stored binary blob with {} bytes and ContentType {} for resource {}",
+					myByteCount,
+					myContentType,
+					myResourceId);
+
+			return details;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (myClosed) {
+				return;
+			}
+			myClosed = true;
+			if (!myCompleted) {
+				myOutputStream.close();
+				delete(myStorageFilename, myBlobId);
+			}
+		}
+
+		private void validateWritable(int theAdditionalBytes) {
+			Validate.validState(
+					!myCompleted && !myClosed, Msg.code(2742) + "Binary content stream is no longer writable");
+			if (myByteCount + theAdditionalBytes > getMaximumBinarySize()) {
+				throw new PayloadTooLargeException(
+						Msg.code(2743) + "Binary size exceeds maximum: " + getMaximumBinarySize());
+			}
+		}
+	}
+
 	private void mkdir(File theBasePath) {
 		try {
 			FileUtils.forceMkdir(theBasePath);
@@ -1864,6 +1864,8 @@ public abstract class BaseTransactionProcessor {
 		FhirTerser terser = myContext.newTerser();
 		theTransactionStopWatch.startTask("Index " + theIdToPersistedOutcome.size() + " resources");
 		IdentityHashMap<DaoMethodOutcome, Set<IBaseReference>> deferredIndexesForAutoVersioning = null;
+		boolean preIndex = isPreIndexingEnabled(theRequest, theIdToPersistedOutcome.size());
+		List<DaoMethodOutcome> outcomesToSaveAfterPreIndexing = new ArrayList<>();
 		int i = 0;
 		for (DaoMethodOutcome nextOutcome : theIdToPersistedOutcome.values()) {
 
@@ -1888,7 +1890,18 @@ public abstract class BaseTransactionProcessor {
 			Set<IBaseReference> referencesToKeepClientSuppliedVersion =
 					BaseStorageDao.extractReferencesToAvoidReplacement(myContext, nextResource);
 
-			if (referencesToAutoVersion.isEmpty()) {
+			if (referencesToAutoVersion.isEmpty() && preIndex) {
+				// resolve now, and save once all resources have been pre-indexed
+				resolveReferences(
+						theTransactionDetails,
+						theIdSubstitutions,
+						theIdToPersistedOutcome,
+						terser,
+						nextResource,
+						referencesToAutoVersion, // this is empty
+						referencesToKeepClientSuppliedVersion);
+				outcomesToSaveAfterPreIndexing.add(nextOutcome);
+			} else if (referencesToAutoVersion.isEmpty()) {
 				// no references to autoversion - we can do the resolve and save now
 				resolveReferencesThenSaveAndIndexResource(
 						theRequest,
@@ -1912,6 +1925,35 @@ public abstract class BaseTransactionProcessor {
 			}
 		}
 
+		if (!outcomesToSaveAfterPreIndexing.isEmpty()) {
+			/*
+			 * Resources which are saved using updateEntity (i.e. not ones which are
+			 * updates of existing resources, since those invoke interceptors which
+			 * may modify the resource before it is indexed) can be pre-indexed
+			 */
+			List<IBaseResource> resourcesToPreIndex = outcomesToSaveAfterPreIndexing.stream()
+					.filter(t -> !theUpdatedEntities.contains(t.getEntity()))
+					.filter(t -> !theNonUpdatedEntities.contains(t.getId()))
+					.map(DaoMethodOutcome::getResource)
+					.collect(Collectors.toList());
+			theTransactionStopWatch.startTask("Pre-index " + resourcesToPreIndex.size() + " resources");
+			preIndexResources(theRequest, theTransactionDetails, resourcesToPreIndex);
+			theTransactionStopWatch.startTask("Index " + outcomesToSaveAfterPreIndexing.size() + " resources");
+
+			for (DaoMethodOutcome nextOutcome : outcomesToSaveAfterPreIndexing) {
+				saveAndIndexResource(
+						theRequest,
+						theTransactionDetails,
+						theIdSubstitutions,
+						theEntriesToProcess,
+						theNonUpdatedEntities,
+						theUpdatedEntities,
+						nextOutcome,
+						nextOutcome.getResource(),
+						Set.of());
+			}
+		}
+
 		// If we have any resources we'll be auto-versioning, index these next
 		if (deferredIndexesForAutoVersioning != null) {
 			for (Map.Entry<DaoMethodOutcome, Set<IBaseReference>> nextEntry :
@@ -1952,6 +1994,34 @@ public abstract class BaseTransactionProcessor {
 			IBaseResource theResource,
 			Set<IBaseReference> theReferencesToAutoVersion,
 			Set<IBaseReference> theReferencesToKeepClientSuppliedVersion) {
+		resolveReferences(
+				theTransactionDetails,
+				theIdSubstitutions,
+				theIdToPersistedOutcome,
+				theTerser,
+				theResource,
+				theReferencesToAutoVersion,
+				theReferencesToKeepClientSuppliedVersion);
+		saveAndIndexResource(
+				theRequest,
+				theTransactionDetails,
+				theIdSubstitutions,
+				theEntriesToProcess,
+				theNonUpdatedEntities,
+				theUpdatedEntities,
+				theDaoMethodOutcome,
+				theResource,
+				theReferencesToAutoVersion);
+	}
+
+	private void resolveReferences(
+			TransactionDetails theTransactionDetails,
+			IdSubstitutionMap theIdSubstitutions,
+			Map<IIdType, DaoMethodOutcome> theIdToPersistedOutcome,
+			FhirTerser theTerser,
+			IBaseResource theResource,
+			Set<IBaseReference> theReferencesToAutoVersion,
+			Set<IBaseReference> theReferencesToKeepClientSuppliedVersion) {
 		// References
 		List<ResourceReferenceInfo> allRefs = theTerser.getAllResourceReferences(theResource);
 		for (ResourceReferenceInfo nextRef : allRefs) {
@@ -2064,7 +2134,18 @@ public abstract class BaseTransactionProcessor {
 				}
 			}
 		}
+	}
 
+	private void saveAndIndexResource(
+			RequestDetails theRequest,
+			TransactionDetails theTransactionDetails,
+			IdSubstitutionMap theIdSubstitutions,
+			EntriesToProcessMap theEntriesToProcess,
+			Set<IIdType> theNonUpdatedEntities,
+			Set<IBasePersistedResource> theUpdatedEntities,
+			DaoMethodOutcome theDaoMethodOutcome,
+			IBaseResource theResource,
+			Set<IBaseReference> theReferencesToAutoVersion) {
 		IPrimitiveType<Date> deletedInstantOrNull = ResourceMetadataKeyEnum.DELETED_AT.get(theResource);
 		Date deletedTimestampOrNull = deletedInstantOrNull != null ? deletedInstantOrNull.getValue() : null;
 
@@ -2241,6 +2322,34 @@ public abstract class BaseTransactionProcessor {
 
 	protected abstract void flushSession(Map<IIdType, DaoMethodOutcome> theIdToPersistedOutcome);
 
+	/**
+	 * Subclasses may return <code>true</code> in order to have
+	 * {@link #preIndexResources(RequestDetails, TransactionDetails, List)} called for the
+	 * resources in a transaction once all references in them have been resolved, before
+	 * any of them are indexed and saved.
+	 *
+	 * @param theResourceCount The number of resources being written by the transaction
+	 * @since 8.4.0
+	 */
+	protected boolean isPreIndexingEnabled(RequestDetails theRequestDetails, int theResourceCount) {
+		return false;
+	}
+
+	/**
+	 * Called if {@link #isPreIndexingEnabled(RequestDetails, int)} returns <code>true</code>,
+	 * in order to perform any work required to index the given resources ahead of time
+	 * (e.g. in parallel). The resources are subsequently saved in bundle order. The
+	 * results of any work should be stored in the {@link TransactionDetails}.
+	 *
+	 * @since 8.4.0
+	 */
+	protected void preIndexResources(
+			RequestDetails theRequestDetails,
+			TransactionDetails theTransactionDetails,
+			List<IBaseResource> theResources) {
+		// nothing by default
+	}
+
 	private void validateResourcePresent(IBaseResource theResource, Integer theOrder, String theVerb) {
 		if (theResource == null) {
 			String msg = myContext
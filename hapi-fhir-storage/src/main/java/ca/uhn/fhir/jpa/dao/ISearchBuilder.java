@@ -86,6 +86,16 @@ public interface ISearchBuilder<T extends IResourcePersistentId<?>> {
 	 */
 	boolean requiresTotal();
 
+	/**
+	 * True if the most recent query created by this builder orders its results so that
+	 * the following page can be fetched using keyset (seek) paging
+	 *
+	 * @since 8.4.0
+	 */
+	default boolean isKeysetPaging() {
+		return false;
+	}
+
 	void loadResourcesByPid(
 			Collection<T> thePids,
 			Collection<T> theIncludedPids,
@@ -0,0 +1,105 @@
+/*
+ * #%L
+ * HAPI FHIR Storage api
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.dao;
+
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.parser.DataFormatException;
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import com.github.luben.zstd.ZstdException;
+import jakarta.annotation.Nullable;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Zstandard equivalent of {@link GZipUtil}, with support for compressing using
+ * a pre-trained dictionary.
+ *
+ * @since 8.4.0
+ */
+public class ZstdUtil {
+
+	/**
+	 * The compression level used when no dictionary is supplied, and when creating dictionaries
+	 */
+	public static final int DEFAULT_COMPRESSION_LEVEL = 3;
+
+	/**
+	 * Non instantiable
+	 */
+	private ZstdUtil() {
+		// nothing
+	}
+
+	public static byte[] compress(String theEncoded) {
+		return compress(theEncoded, null);
+	}
+
+	/**
+	 * Compresses the given string
+	 *
+	 * @param theDictionary If not <code>null</code>, the dictionary to compress with. The ID of the dictionary is
+	 *                      recorded in the frame header, and can be retrieved using {@link #getDictionaryId(byte[])}.
+	 */
+	public static byte[] compress(String theEncoded, @Nullable ZstdDictCompress theDictionary) {
+		byte[] bytes = theEncoded.getBytes(StandardCharsets.UTF_8);
+		try {
+			if (theDictionary != null) {
+				return Zstd.compress(bytes, theDictionary);
+			}
+			return Zstd.compress(bytes, DEFAULT_COMPRESSION_LEVEL);
+		} catch (ZstdException e) {
+			throw new DataFormatException(Msg.code(2744) + "Failed to compress contents", e);
+		}
+	}
+
+	/**
+	 * Decompresses the given bytes
+	 *
+	 * @param theDictionary The dictionary that was used to compress the contents, or <code>null</code> if
+	 *                      no dictionary was used (i.e. {@link #getDictionaryId(byte[])} returns 0)
+	 */
+	public static String decompress(byte[] theResource, @Nullable ZstdDictDecompress theDictionary) {
+		try {
+			long size = Zstd.decompressedSize(theResource);
+			if (size < 0 || size > Integer.MAX_VALUE) {
+				throw new DataFormatException(
+						Msg.code(2745) + "Failed to decompress contents, invalid frame size: " + size);
+			}
+			byte[] decompressed;
+			if (theDictionary != null) {
+				decompressed = Zstd.decompress(theResource, theDictionary, (int) size);
+			} else {
+				decompressed = Zstd.decompress(theResource, (int) size);
+			}
+			return new String(decompressed, StandardCharsets.UTF_8);
+		} catch (ZstdException e) {
+			throw new DataFormatException(Msg.code(2746) + "Failed to decompress contents", e);
+		}
+	}
+
+	/**
+	 * Returns the ID of the dictionary used to compress the given bytes, or 0 if no dictionary was used
+	 */
+	public static long getDictionaryId(byte[] theCompressed) {
+		return Zstd.getDictIdFromFrame(theCompressed);
+	}
+}
@@ -0,0 +1,124 @@
+/*-
+ * #%L
+ * HAPI FHIR Storage api
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.model.search;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * This class contains a runtime in-memory description of the work done to resolve
+ * a single <code>_include</code> or <code>_revinclude</code> parameter during one
+ * include round of a search.
+ *
+ * @since 8.4.0
+ */
+public class IncludeLoadDetails {
+	private final String myInclude;
+	private final boolean myReverse;
+	private final int myRound;
+	private boolean myParallel;
+	private int myQueryCount;
+	private int myRowCount;
+	private long myElapsedMillis;
+
+	public IncludeLoadDetails(String theInclude, boolean theReverse, int theRound) {
+		myInclude = theInclude;
+		myReverse = theReverse;
+		myRound = theRound;
+	}
+
+	/**
+	 * The include parameter value, e.g. <code>Observation:subject</code>
+	 */
+	public String getInclude() {
+		return myInclude;
+	}
+
+	/**
+	 * Returns <code>true</code> for a <code>_revinclude</code>
+	 */
+	public boolean isReverse() {
+		return myReverse;
+	}
+
+	/**
+	 * The include round, starting at 1. Only <code>:iterate</code> parameters are
+	 * processed in rounds after the first one.
+	 */
+	public int getRound() {
+		return myRound;
+	}
+
+	/**
+	 * Returns <code>true</code> if this parameter was resolved on a worker thread,
+	 * concurrently with the other parameters of the same round
+	 */
+	public boolean isParallel() {
+		return myParallel;
+	}
+
+	public void setParallel(boolean theParallel) {
+		myParallel = theParallel;
+	}
+
+	/**
+	 * The number of database queries issued to resolve this parameter
+	 */
+	public int getQueryCount() {
+		return myQueryCount;
+	}
+
+	public void incrementQueryCount() {
+		myQueryCount++;
+	}
+
+	/**
+	 * The number of rows read from the database for this parameter, including rows
+	 * pointing to resources which had already been loaded
+	 */
+	public int getRowCount() {
+		return myRowCount;
+	}
+
+	public void incrementRowCount() {
+		myRowCount++;
+	}
+
+	public long getElapsedMillis() {
+		return myElapsedMillis;
+	}
+
+	public void setElapsedMillis(long theElapsedMillis) {
+		myElapsedMillis = theElapsedMillis;
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+				.append("include", myInclude)
+				.append("reverse", myReverse)
+				.append("round", myRound)
+				.append("parallel", myParallel)
+				.append("queryCount", myQueryCount)
+				.append("rowCount", myRowCount)
+				.append("elapsedMillis", myElapsedMillis)
+				.toString();
+	}
+}
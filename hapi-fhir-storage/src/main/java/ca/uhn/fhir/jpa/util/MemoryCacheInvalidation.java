@@ -0,0 +1,89 @@
+/*-
+ * #%L
+ * HAPI FHIR Storage api
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.util;
+
+import ca.uhn.fhir.model.api.IModelJson;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A set of {@link MemoryCacheService} invalidations published by one node in a
+ * cluster to all of the others by the {@link MemoryCacheInvalidationBus}.
+ *
+ * @since 8.4.0
+ */
+public class MemoryCacheInvalidation implements IModelJson {
+
+	@JsonProperty(value = "originNodeId")
+	private String myOriginNodeId;
+
+	/**
+	 * Caches which should be completely cleared
+	 */
+	@JsonProperty(value = "invalidatedCaches")
+	private List<String> myInvalidatedCaches;
+
+	/**
+	 * Keys which should be removed, by cache name. Each key is represented as a list of
+	 * its component values.
+	 */
+	@JsonProperty(value = "invalidatedKeys")
+	private Map<String, List<List<String>>> myInvalidatedKeys;
+
+	public MemoryCacheInvalidation() {}
+
+	public MemoryCacheInvalidation(String theOriginNodeId) {
+		setOriginNodeId(theOriginNodeId);
+	}
+
+	public String getOriginNodeId() {
+		return myOriginNodeId;
+	}
+
+	public void setOriginNodeId(String theOriginNodeId) {
+		myOriginNodeId = theOriginNodeId;
+	}
+
+	public List<String> getInvalidatedCaches() {
+		if (myInvalidatedCaches == null) {
+			myInvalidatedCaches = new ArrayList<>();
+		}
+		return myInvalidatedCaches;
+	}
+
+	public void setInvalidatedCaches(List<String> theInvalidatedCaches) {
+		myInvalidatedCaches = theInvalidatedCaches;
+	}
+
+	public Map<String, List<List<String>>> getInvalidatedKeys() {
+		if (myInvalidatedKeys == null) {
+			myInvalidatedKeys = new LinkedHashMap<>();
+		}
+		return myInvalidatedKeys;
+	}
+
+	public void setInvalidatedKeys(Map<String, List<List<String>>> theInvalidatedKeys) {
+		myInvalidatedKeys = theInvalidatedKeys;
+	}
+}
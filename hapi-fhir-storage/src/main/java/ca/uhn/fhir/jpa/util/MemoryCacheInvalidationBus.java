@@ -0,0 +1,201 @@
+/*-
+ * #%L
+ * HAPI FHIR Storage api
+ * %%
+ * Copyright (C) 2014 - 2025 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.util;
+
+import ca.uhn.fhir.broker.api.ChannelConsumerSettings;
+import ca.uhn.fhir.broker.api.ChannelProducerSettings;
+import ca.uhn.fhir.broker.api.IBrokerClient;
+import ca.uhn.fhir.broker.api.IChannelConsumer;
+import ca.uhn.fhir.broker.api.IChannelProducer;
+import ca.uhn.fhir.broker.api.IMessageListener;
+import ca.uhn.fhir.rest.server.messaging.IMessage;
+import com.google.common.annotations.VisibleForTesting;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.PreDestroy;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the {@link MemoryCacheService} caches on multiple nodes in a cluster coherent by
+ * publishing any invalidations performed on this node to all other nodes using an
+ * {@link IBrokerClient} channel, and applying invalidations received from other nodes
+ * to the local caches.
+ * <p>
+ * Invalidations registered using {@link MemoryCacheService#invalidateAfterCommit(MemoryCacheService.CacheEnum, Object)}
+ * are published as a single message once the transaction which registered them commits. Whole-cache
+ * invalidations (e.g. {@link MemoryCacheService#invalidateCaches(MemoryCacheService.CacheEnum...)})
+ * are published immediately.
+ * </p>
+ * <p>
+ * The channel must deliver every message to every node (i.e. it must behave as a topic with
+ * a separate subscription for each node, as opposed to a work queue). Messages published by a
+ * node are ignored by that same node.
+ * </p>
+ *
+ * @since 8.4.0
+ */
+public class MemoryCacheInvalidationBus implements IMessageListener<MemoryCacheInvalidation> {
+
+	public static final String CHANNEL_NAME = "memory-cache-invalidation";
+	private static final Logger ourLog = LoggerFactory.getLogger(MemoryCacheInvalidationBus.class);
+
+	private final MemoryCacheService myMemoryCacheService;
+	private final String myNodeId = UUID.randomUUID().toString();
+	private final AtomicLong myPublishedCount = new AtomicLong();
+	private final AtomicLong myReceivedCount = new AtomicLong();
+	private IChannelProducer<MemoryCacheInvalidation> myProducer;
+	private IChannelConsumer<MemoryCacheInvalidation> myConsumer;
+
+	/**
+	 * Constructor
+	 */
+	public MemoryCacheInvalidationBus(@Nonnull MemoryCacheService theMemoryCacheService) {
+		Validate.notNull(theMemoryCacheService, "theMemoryCacheService must not be null");
+		myMemoryCacheService = theMemoryCacheService;
+	}
+
+	/**
+	 * Connects to the invalidation channel and starts publishing local invalidations
+	 * and applying remote ones
+	 */
+	public synchronized void start(@Nonnull IBrokerClient theBrokerClient) {
+		Validate.isTrue(myConsumer == null, "Invalidation bus has already been started");
+		myProducer = theBrokerClient.getOrCreateProducer(
+				CHANNEL_NAME, MemoryCacheInvalidationJsonMessage.class, new ChannelProducerSettings());
+		myConsumer = theBrokerClient.getOrCreateConsumer(
+				CHANNEL_NAME,
+				MemoryCacheInvalidationJsonMessage.class,
+				this,
+				new ChannelConsumerSettings().setConcurrentConsumers(1));
+		myMemoryCacheService.setInvalidationBus(this);
+		ourLog.info("Memory cache invalidation bus started with node ID {}", myNodeId);
+	}
+
+	@PreDestroy
+	public synchronized void stop() {
+		myMemoryCacheService.setInvalidationBus(null);
+		if (myConsumer != null) {
+			myConsumer.close();
+			myConsumer = null;
+		}
+		myProducer = null;
+	}
+
+	public boolean isStarted() {
+		return myConsumer != null;
+	}
+
+	void publishKeyInvalidations(Map<MemoryCacheService.CacheEnum, ? extends Collection<?>> theKeys) {
+		MemoryCacheInvalidation invalidation = new MemoryCacheInvalidation(myNodeId);
+		theKeys.forEach((cache, keys) -> {
+			List<List<String>> keyParts = new ArrayList<>(keys.size());
+			for (Object next : keys) {
+				keyParts.add(MemoryCacheService.keyToParts(next));
+			}
+			invalidation.getInvalidatedKeys().put(cache.name(), keyParts);
+		});
+		publish(invalidation);
+	}
+
+	void publishCacheInvalidations(Collection<MemoryCacheService.CacheEnum> theCaches) {
+		MemoryCacheInvalidation invalidation = new MemoryCacheInvalidation(myNodeId);
+		theCaches.forEach(t -> invalidation.getInvalidatedCaches().add(t.name()));
+		publish(invalidation);
+	}
+
+	private void publish(MemoryCacheInvalidation theInvalidation) {
+		IChannelProducer<MemoryCacheInvalidation> producer = myProducer;
+		if (producer == null) {
+			return;
+		}
+		try {
+			producer.send(new MemoryCacheInvalidationJsonMessage(theInvalidation));
+			myPublishedCount.incrementAndGet();
+		} catch (Exception e) {
+			// The change has already been committed so there is nothing to roll back, other
+			// nodes will pick up the change once their entries expire
+			ourLog.error("Failed to publish memory cache invalidation", e);
+		}
+	}
+
+	@Override
+	public void handleMessage(@Nonnull IMessage<MemoryCacheInvalidation> theMessage) {
+		MemoryCacheInvalidation invalidation = theMessage.getPayload();
+		if (myNodeId.equals(invalidation.getOriginNodeId())) {
+			return;
+		}
+		myReceivedCount.incrementAndGet();
+
+		List<MemoryCacheService.CacheEnum> caches = invalidation.getInvalidatedCaches().stream()
+				.map(MemoryCacheService.CacheEnum::valueOf)
+				.toList();
+		if (!caches.isEmpty()) {
+			ourLog.debug("Invalidating caches {} at request of node {}", caches, invalidation.getOriginNodeId());
+			myMemoryCacheService.invalidateCachesLocally(caches);
+		}
+
+		invalidation.getInvalidatedKeys().forEach((cacheName, keyParts) -> {
+			MemoryCacheService.CacheEnum cache = MemoryCacheService.CacheEnum.valueOf(cacheName);
+			List<Object> keys = new ArrayList<>(keyParts.size());
+			for (List<String> next : keyParts) {
+				keys.add(MemoryCacheService.keyFromParts(cache, next));
+			}
+			ourLog.debug(
+					"Invalidating {} keys in cache {} at request of node {}",
+					keys.size(),
+					cache,
+					invalidation.getOriginNodeId());
+			myMemoryCacheService.invalidateLocally(cache, keys);
+		});
+	}
+
+	@Override
+	public Class<MemoryCacheInvalidation> getPayloadType() {
+		return MemoryCacheInvalidation.class;
+	}
+
+	public String getNodeId() {
+		return myNodeId;
+	}
+
+	/**
+	 * Returns the number of invalidation messages published by this node
+	 */
+	@VisibleForTesting
+	public long getPublishedCount() {
+		return myPublishedCount.get();
+	}
+
+	/**
+	 * Returns the number of invalidation messages received from other nodes
+	 */
+	@VisibleForTesting
+	public long getReceivedCount() {
+		return myReceivedCount.get();
+	}
+}
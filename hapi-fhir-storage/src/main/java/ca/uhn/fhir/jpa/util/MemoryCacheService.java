@@ -20,6 +20,7 @@
 package ca.uhn.fhir.jpa.util;
 
 import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.i18n.Msg;
 import ca.uhn.fhir.interceptor.model.RequestPartitionId;
 import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
 import ca.uhn.fhir.jpa.model.dao.JpaPid;
@@ -33,14 +34,20 @@ import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 import org.hl7.fhir.instance.model.api.IIdType;
+import org.springframework.core.Ordered;
 import org.springframework.transaction.support.TransactionSynchronization;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.function.Function;
 
 import static java.util.concurrent.TimeUnit.MINUTES;
@@ -58,6 +65,7 @@ public class MemoryCacheService {
 
 	private final JpaStorageSettings myStorageSettings;
 	private final EnumMap<CacheEnum, Cache<?, ?>> myCaches = new EnumMap<>(CacheEnum.class);
+	private volatile MemoryCacheInvalidationBus myInvalidationBus;
 
 	public MemoryCacheService(JpaStorageSettings theStorageSettings) {
 		myStorageSettings = theStorageSettings;
@@ -79,6 +87,10 @@ public class MemoryCacheService {
 				case HASH_IDENTITY_TO_SEARCH_PARAM_IDENTITY:
 					nextCache = CacheFactory.buildEternal(5_000, 50_000);
 					break;
+				case ENCODING_DICTIONARY_ID_TO_DICTIONARY:
+					// Dictionaries are immutable once stored
+					nextCache = CacheFactory.buildEternal(50, 1_000);
+					break;
 				case NAME_TO_PARTITION:
 				case ID_TO_PARTITION:
 				case PID_TO_FORCED_ID:
@@ -95,7 +107,11 @@ public class MemoryCacheService {
 						timeoutSeconds = SECONDS.convert(50, MINUTES);
 						maximumSize = 100000;
 					}
-					nextCache = CacheFactory.build(SECONDS.toMillis(timeoutSeconds), maximumSize);
+					long timeoutMillis = SECONDS.toMillis(timeoutSeconds);
+					if (myStorageSettings.getMemoryCacheExpireAfterWriteMillis() != null) {
+						timeoutMillis = myStorageSettings.getMemoryCacheExpireAfterWriteMillis();
+					}
+					nextCache = CacheFactory.build(timeoutMillis, maximumSize);
 					break;
 			}
 
@@ -186,8 +202,87 @@ public class MemoryCacheService {
 		return (Map<K, V>) getCache(theCache).getAllPresent(theKeys);
 	}
 
+	/**
+	 * Removes a single entry from the cache. If an {@link MemoryCacheInvalidationBus invalidation bus}
+	 * is active, the entry is also removed from the caches on all other nodes.
+	 */
+	public <K> void invalidate(CacheEnum theCache, K theKey) {
+		assert theCache.getKeyType().isAssignableFrom(theKey.getClass());
+		doInvalidate(theCache, List.of(theKey));
+		MemoryCacheInvalidationBus invalidationBus = myInvalidationBus;
+		if (invalidationBus != null) {
+			invalidationBus.publishKeyInvalidations(Map.of(theCache, List.of(theKey)));
+		}
+	}
+
+	/**
+	 * This method registers a transaction synchronization that removes an entry from the cache
+	 * if and when the current database transaction successfully commits. If an
+	 * {@link MemoryCacheInvalidationBus invalidation bus} is active, all of the entries
+	 * invalidated by a given transaction are also removed from the caches on all other nodes
+	 * using a single message.
+	 * <p>
+	 * Entries are invalidated before any entries added using {@link #putAfterCommit(CacheEnum, Object, Object)}
+	 * are stored, so it is safe to call both methods for the same key in order to replace a
+	 * stale value on this node while evicting it everywhere else.
+	 * </p>
+	 */
+	public <K> void invalidateAfterCommit(CacheEnum theCache, K theKey) {
+		assert theCache.getKeyType().isAssignableFrom(theKey.getClass())
+				: "Key type " + theKey.getClass() + " doesn't match expected " + theCache.getKeyType() + " for cache "
+						+ theCache;
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			PendingInvalidations pending = getPendingInvalidationsForCurrentTransaction();
+			if (pending == null) {
+				pending = new PendingInvalidations();
+				TransactionSynchronizationManager.registerSynchronization(pending);
+			}
+			pending.add(theCache, theKey);
+		} else {
+			invalidate(theCache, theKey);
+		}
+	}
+
+	/**
+	 * The pending invalidations are looked up among the synchronizations of the current
+	 * transaction, rather than being bound to the thread, since a transaction's
+	 * synchronizations are suspended while a nested REQUIRES_NEW transaction runs.
+	 */
+	@Nullable
+	private PendingInvalidations getPendingInvalidationsForCurrentTransaction() {
+		for (TransactionSynchronization next : TransactionSynchronizationManager.getSynchronizations()) {
+			if (next instanceof PendingInvalidations pending && pending.getMemoryCacheService() == this) {
+				return pending;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Removes the given entries from the cache on this node only. This is called when an
+	 * invalidation is received from another node.
+	 */
+	public void invalidateLocally(CacheEnum theCache, Collection<?> theKeys) {
+		doInvalidate(theCache, theKeys);
+	}
+
+	/**
+	 * Removes all entries from the given caches on this node only. This is called when an
+	 * invalidation is received from another node.
+	 */
+	public void invalidateCachesLocally(Collection<CacheEnum> theCaches) {
+		for (CacheEnum next : theCaches) {
+			getCache(next).invalidateAll();
+		}
+	}
+
+	protected <K> void doInvalidate(CacheEnum theCache, Collection<K> theKeys) {
+		Cache<K, ?> cache = getCache(theCache);
+		cache.invalidateAll(theKeys);
+	}
+
 	public void invalidateAllCaches() {
-		myCaches.values().forEach(Cache::invalidateAll);
+		invalidateCaches(CacheEnum.values());
 	}
 
 	private <K, T> Cache<K, T> getCache(CacheEnum theCache) {
@@ -199,8 +294,146 @@ public class MemoryCacheService {
 	}
 
 	public void invalidateCaches(CacheEnum... theCaches) {
-		for (CacheEnum next : theCaches) {
-			getCache(next).invalidateAll();
+		List<CacheEnum> caches = Arrays.asList(theCaches);
+		invalidateCachesLocally(caches);
+		MemoryCacheInvalidationBus invalidationBus = myInvalidationBus;
+		if (invalidationBus != null) {
+			invalidationBus.publishCacheInvalidations(caches);
+		}
+	}
+
+	/**
+	 * Registers (or if <code>null</code>, removes) the bus used to publish invalidations
+	 * to other nodes. This is called by {@link MemoryCacheInvalidationBus} itself when it
+	 * is started and stopped.
+	 */
+	void setInvalidationBus(@Nullable MemoryCacheInvalidationBus theInvalidationBus) {
+		myInvalidationBus = theInvalidationBus;
+	}
+
+	/**
+	 * Converts a cache key into a list of strings which can be transmitted to another
+	 * node and converted back into an equal key using {@link #keyFromParts(CacheEnum, List)}
+	 */
+	static List<String> keyToParts(Object theKey) {
+		List<String> retVal = new ArrayList<>();
+		if (theKey instanceof String || theKey instanceof Integer || theKey instanceof Long) {
+			retVal.add(theKey.toString());
+		} else if (theKey instanceof JpaPid) {
+			JpaPid key = (JpaPid) theKey;
+			retVal.add(toStringOrNull(key.getId()));
+			retVal.add(toStringOrNull(key.getPartitionId()));
+		} else if (theKey instanceof ForcedIdCacheKey) {
+			ForcedIdCacheKey key = (ForcedIdCacheKey) theKey;
+			retVal.add(key.myResourceType);
+			retVal.add(key.myResourceId);
+			if (key.myRequestPartitionIds != null) {
+				key.myRequestPartitionIds.forEach(t -> retVal.add(toStringOrNull(t)));
+			}
+		} else if (theKey instanceof TagDefinitionCacheKey) {
+			TagDefinitionCacheKey key = (TagDefinitionCacheKey) theKey;
+			retVal.add(key.myType.name());
+			retVal.add(key.mySystem);
+			retVal.add(key.myCode);
+			retVal.add(key.myVersion);
+			retVal.add(toStringOrNull(key.myUserSelected));
+		} else if (theKey instanceof HistoryCountKey) {
+			HistoryCountKey key = (HistoryCountKey) theKey;
+			retVal.add(key.myTypeName);
+			retVal.add(toStringOrNull(key.myInstanceId));
+			retVal.add(toStringOrNull(key.myPartitionId));
+		} else {
+			throw new IllegalArgumentException(
+					Msg.code(2754) + "Unable to serialize cache key of type: " + theKey.getClass());
+		}
+		return retVal;
+	}
+
+	/**
+	 * Converts a list of strings created by {@link #keyToParts(Object)} back into a cache key
+	 */
+	static Object keyFromParts(CacheEnum theCache, List<String> theParts) {
+		Class<?> keyType = theCache.getKeyType();
+		if (keyType.equals(String.class)) {
+			return theParts.get(0);
+		} else if (keyType.equals(Integer.class)) {
+			return Integer.valueOf(theParts.get(0));
+		} else if (keyType.equals(Long.class)) {
+			return Long.valueOf(theParts.get(0));
+		} else if (keyType.equals(JpaPid.class)) {
+			return JpaPid.fromId(toLongOrNull(theParts.get(0)), toIntegerOrNull(theParts.get(1)));
+		} else if (keyType.equals(ForcedIdCacheKey.class)) {
+			List<Integer> partitionIds = null;
+			if (theParts.size() > 2) {
+				partitionIds = new ArrayList<>(theParts.size() - 2);
+				for (String next : theParts.subList(2, theParts.size())) {
+					partitionIds.add(toIntegerOrNull(next));
+				}
+			}
+			return new ForcedIdCacheKey(theParts.get(0), theParts.get(1), partitionIds);
+		} else if (keyType.equals(TagDefinitionCacheKey.class)) {
+			String userSelected = theParts.get(4);
+			return new TagDefinitionCacheKey(
+					TagTypeEnum.valueOf(theParts.get(0)),
+					theParts.get(1),
+					theParts.get(2),
+					theParts.get(3),
+					userSelected != null ? Boolean.valueOf(userSelected) : null);
+		} else if (keyType.equals(HistoryCountKey.class)) {
+			Long instanceId = toLongOrNull(theParts.get(1));
+			JpaPid instancePid =
+					instanceId != null ? JpaPid.fromId(instanceId, toIntegerOrNull(theParts.get(2))) : null;
+			return new HistoryCountKey(theParts.get(0), instancePid);
+		}
+		throw new IllegalArgumentException(Msg.code(2755) + "Unable to deserialize cache key of type: " + keyType);
+	}
+
+	@Nullable
+	private static String toStringOrNull(@Nullable Object theValue) {
+		return theValue != null ? theValue.toString() : null;
+	}
+
+	@Nullable
+	private static Long toLongOrNull(@Nullable String theValue) {
+		return theValue != null ? Long.valueOf(theValue) : null;
+	}
+
+	@Nullable
+	private static Integer toIntegerOrNull(@Nullable String theValue) {
+		return theValue != null ? Integer.valueOf(theValue) : null;
+	}
+
+	/**
+	 * Collects the keys invalidated by a single database transaction so that they can
+	 * be applied (and published to other nodes) together once it commits
+	 */
+	private class PendingInvalidations implements TransactionSynchronization {
+
+		private final Map<CacheEnum, Set<Object>> myKeys = new LinkedHashMap<>();
+
+		void add(CacheEnum theCache, Object theKey) {
+			myKeys.computeIfAbsent(theCache, t -> new HashSet<>()).add(theKey);
+		}
+
+		MemoryCacheService getMemoryCacheService() {
+			return MemoryCacheService.this;
+		}
+
+		/**
+		 * Run before the synchronizations registered by {@link #putAfterCommit(CacheEnum, Object, Object)}
+		 */
+		@Override
+		public int getOrder() {
+			return Ordered.HIGHEST_PRECEDENCE;
+		}
+
+		@Override
+		public void afterCommit() {
+			myKeys.forEach(MemoryCacheService.this::doInvalidate);
+			MemoryCacheInvalidationBus invalidationBus = myInvalidationBus;
+			if (invalidationBus != null) {
+				invalidationBus.publishKeyInvalidations(myKeys);
+			}
 		}
 	}
 
@@ -223,7 +456,17 @@ public class MemoryCacheService {
 		NAME_TO_PARTITION(String.class),
 		ID_TO_PARTITION(Integer.class),
 		HASH_IDENTITY_TO_SEARCH_PARAM_IDENTITY(Long.class),
-		RES_TYPE_TO_RES_TYPE_ID(String.class);
+		RES_TYPE_TO_RES_TYPE_ID(String.class),
+		/**
+		 * Key type: {@literal String} (the resource type)
+		 * Value type: {@literal Optional<ResourceEncodingDictionarySvc.CompressionDictionary>}
+		 */
+		RES_TYPE_TO_ENCODING_DICTIONARY(String.class),
+		/**
+		 * Key type: {@literal Long} (the dictionary ID)
+		 * Value type: {@literal ZstdDictDecompress}
+		 */
+		ENCODING_DICTIONARY_ID_TO_DICTIONARY(Long.class);
 
 		private final Class<?> myKeyType;
 
@@ -347,13 +590,19 @@ public class MemoryCacheService {
 				@Nullable String theResourceType,
 				@Nonnull String theResourceId,
 				@Nonnull RequestPartitionId theRequestPartitionId) {
+			this(
+					theResourceType,
+					theResourceId,
+					theRequestPartitionId.hasPartitionIds() ? theRequestPartitionId.getPartitionIds() : null);
+		}
+
+		private ForcedIdCacheKey(
+				@Nullable String theResourceType,
+				@Nonnull String theResourceId,
+				@Nullable List<Integer> theRequestPartitionIds) {
 			myResourceType = theResourceType;
 			myResourceId = theResourceId;
-			if (theRequestPartitionId.hasPartitionIds()) {
-				myRequestPartitionIds = theRequestPartitionId.getPartitionIds();
-			} else {
-				myRequestPartitionIds = null;
-			}
+			myRequestPartitionIds = theRequestPartitionIds;
 			myHashCode = Objects.hash(myResourceType, myResourceId, myRequestPartitionIds);
 		}
 
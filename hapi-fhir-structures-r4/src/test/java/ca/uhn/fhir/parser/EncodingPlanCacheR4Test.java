@@ -0,0 +1,111 @@
+package ca.uhn.fhir.parser;
+
+import ca.uhn.fhir.context.FhirContext;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.CapabilityStatement;
+import org.hl7.fhir.r4.model.Enumerations;
+import org.hl7.fhir.r4.model.Extension;
+import org.hl7.fhir.r4.model.Narrative;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.Reference;
+import org.hl7.fhir.r4.model.StringType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class EncodingPlanCacheR4Test {
+	private static final FhirContext ourCtx = FhirContext.forR4();
+
+	@AfterEach
+	public void afterEach() {
+		ourCtx.getParserOptions().setEncodingPlanCacheEnabled(true);
+	}
+
+	@Test
+	public void testEncode_PlainAndContained() {
+		Observation obs = createObservation();
+
+		assertCachedMatchesUncached(obs, t -> t);
+		assertThat(ourCtx.getEncodingPlanCache().size()).isGreaterThan(0);
+	}
+
+	@Test
+	public void testEncode_SummaryMode() {
+		Observation obs = createObservation();
+
+		String encoded = assertCachedMatchesUncached(obs, t -> t.setSummaryMode(true));
+		assertThat(encoded).doesNotContain("narrative text");
+		assertThat(encoded).doesNotContain("note text");
+	}
+
+	@Test
+	public void testEncode_SuppressNarratives() {
+		Observation obs = createObservation();
+
+		String encoded = assertCachedMatchesUncached(obs, t -> t.setSuppressNarratives(true));
+		assertThat(encoded).doesNotContain("narrative text");
+		assertThat(encoded).contains("note text");
+	}
+
+	@Test
+	public void testEncode_ElementFilters() {
+		Observation obs = createObservation();
+
+		String encoded = assertCachedMatchesUncached(obs, t -> t.setEncodeElements(Set.of("Observation.status")));
+		assertThat(encoded).contains("final");
+		assertThat(encoded).doesNotContain("note text");
+
+		encoded = assertCachedMatchesUncached(obs, t -> t.setDontEncodeElements(Set.of("Observation.note")));
+		assertThat(encoded).contains("narrative text");
+		assertThat(encoded).doesNotContain("note text");
+	}
+
+	@Test
+	public void testEncode_SummaryModeCapabilityStatementKeepsExtensions() {
+		CapabilityStatement cs = new CapabilityStatement();
+		cs.setStatus(Enumerations.PublicationStatus.ACTIVE);
+		cs.addExtension(new Extension("http://foo", new StringType("ext value")));
+		cs.addRest().addResource().setType("Patient").addExtension(new Extension("http://bar", new StringType("nested ext")));
+
+		String encoded = assertCachedMatchesUncached(cs, t -> t.setSummaryMode(true));
+		assertThat(encoded).contains("ext value");
+		assertThat(encoded).contains("nested ext");
+	}
+
+	private String assertCachedMatchesUncached(IBaseResource theResource, Function<IParser, IParser> theConfigurer) {
+		ourCtx.getParserOptions().setEncodingPlanCacheEnabled(false);
+		String uncachedJson = theConfigurer.apply(ourCtx.newJsonParser()).encodeResourceToString(theResource);
+		String uncachedXml = theConfigurer.apply(ourCtx.newXmlParser()).encodeResourceToString(theResource);
+
+		ourCtx.getParserOptions().setEncodingPlanCacheEnabled(true);
+		for (int i = 0; i < 2; i++) {
+			assertEquals(uncachedJson, theConfigurer.apply(ourCtx.newJsonParser()).encodeResourceToString(theResource));
+			assertEquals(uncachedXml, theConfigurer.apply(ourCtx.newXmlParser()).encodeResourceToString(theResource));
+		}
+		return uncachedJson;
+	}
+
+	private static Observation createObservation() {
+		Patient patient = new Patient();
+		patient.setId("#p1");
+		patient.setActive(true);
+		patient.getText().setStatus(Narrative.NarrativeStatus.GENERATED).setDivAsString("<div>contained narrative</div>");
+
+		Observation obs = new Observation();
+		obs.setId("Observation/123");
+		obs.getText().setStatus(Narrative.NarrativeStatus.GENERATED).setDivAsString("<div>narrative text</div>");
+		obs.setStatus(Observation.ObservationStatus.FINAL);
+		obs.getCode().setText("code text");
+		obs.getContained().add(patient);
+		obs.setSubject(new Reference("#p1"));
+		obs.addNote().setText("note text");
+		obs.getStatusElement().addExtension(new Extension("http://status", new StringType("status ext")));
+		return obs;
+	}
+}
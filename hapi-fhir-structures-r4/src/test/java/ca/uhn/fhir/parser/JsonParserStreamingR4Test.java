@@ -0,0 +1,261 @@
+package ca.uhn.fhir.parser;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.util.ClasspathUtil;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.HumanName;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Patient;
+import org.intellij.lang.annotations.Language;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class JsonParserStreamingR4Test {
+	private static final FhirContext ourCtx = FhirContext.forR4();
+
+	@AfterEach
+	public void afterEach() {
+		ourCtx.getParserOptions().setStreamingJsonParsingEnabled(false);
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {
+		"/bundle-circ-ref.json",
+		"/bundle-with-two-patient-resources.json",
+		"/entities-from-cerner.json",
+		"/multi-thread-parsing-issue-bundle.json",
+		"/observation-decimal-element-with-leading-plus.json"
+	})
+	public void testParseFile_StreamingMatchesTree(String theFile) {
+		String input = ClasspathUtil.loadResource(theFile);
+		assertStreamingMatchesTree(input);
+	}
+
+	@Test
+	public void testParse_PrimitiveExtensionsInAnyOrder() {
+		@Language("JSON")
+		String input = """
+			{
+			  "resourceType": "Patient",
+			  "_birthDate": { "id": "bd", "extension": [ { "url": "http://foo", "valueString": "bar" } ] },
+			  "birthDate": "2020-01-01",
+			  "active": true,
+			  "_active": { "extension": [ { "url": "http://active", "valueBoolean": false } ] },
+			  "name": [ {
+			    "given": [ "A", null, "C" ],
+			    "_given": [ null, { "extension": [ { "url": "http://given", "valueCode": "B" } ] }, { "id": "c" } ]
+			  } ],
+			  "_gender": { "extension": [ { "url": "http://gender", "valueCode": "unknown" } ] }
+			}""";
+
+		Patient patient = assertStreamingMatchesTree(input);
+		assertEquals("bd", patient.getBirthDateElement().getId());
+		assertEquals("http://active", patient.getActiveElement().getExtensionFirstRep().getUrl());
+		HumanName name = patient.getNameFirstRep();
+		assertThat(name.getGiven()).hasSize(3);
+		assertEquals("B", name.getGiven().get(1).getExtensionFirstRep().getValueAsPrimitive().getValueAsString());
+		assertEquals("c", name.getGiven().get(2).getId());
+		assertEquals("http://gender", patient.getGenderElement().getExtensionFirstRep().getUrl());
+	}
+
+	@Test
+	public void testParse_PrimitiveAlternateBeforeValue_StrictErrorHandler() {
+		@Language("JSON")
+		String input = """
+			{
+			  "resourceType": "Patient",
+			  "_birthDate": { "id": "bd", "extension": [ { "url": "http://foo", "valueString": "bar" } ] },
+			  "birthDate": "2020-01-01"
+			}""";
+
+		Patient patient = assertStreamingMatchesTreeStrict(input);
+		assertEquals("2020-01-01", patient.getBirthDateElement().getValueAsString());
+		assertEquals("bd", patient.getBirthDateElement().getId());
+		assertEquals("http://foo", patient.getBirthDateElement().getExtensionFirstRep().getUrl());
+	}
+
+	@Test
+	public void testParse_PrimitiveAlternateAfterValue_StrictErrorHandler() {
+		@Language("JSON")
+		String input = """
+			{
+			  "resourceType": "Patient",
+			  "birthDate": "2020-01-01",
+			  "_birthDate": { "id": "bd", "extension": [ { "url": "http://foo", "valueString": "bar" } ] }
+			}""";
+
+		Patient patient = assertStreamingMatchesTreeStrict(input);
+		assertEquals("2020-01-01", patient.getBirthDateElement().getValueAsString());
+		assertEquals("bd", patient.getBirthDateElement().getId());
+		assertEquals("http://foo", patient.getBirthDateElement().getExtensionFirstRep().getUrl());
+	}
+
+	@Test
+	public void testParse_ComplexAlternateBeforeValue_StrictErrorHandler() {
+		@Language("JSON")
+		String input = """
+			{
+			  "resourceType": "Patient",
+			  "_maritalStatus": { "id": "ms", "extension": [ { "url": "http://ms", "valueString": "x" } ] },
+			  "maritalStatus": { "text": "Married" },
+			  "_name": [ { "id": "n0" }, null ],
+			  "name": [ { "family": "A" }, { "family": "B" } ]
+			}""";
+
+		Patient patient = assertStreamingMatchesTreeStrict(input);
+		assertEquals("ms", patient.getMaritalStatus().getId());
+		assertEquals("http://ms", patient.getMaritalStatus().getExtensionFirstRep().getUrl());
+		assertEquals("Married", patient.getMaritalStatus().getText());
+		assertEquals("n0", patient.getName().get(0).getId());
+		assertEquals("B", patient.getName().get(1).getFamily());
+	}
+
+	@Test
+	public void testParse_ComplexAlternateAfterValue_StrictErrorHandler() {
+		@Language("JSON")
+		String input = """
+			{
+			  "resourceType": "Patient",
+			  "maritalStatus": { "text": "Married" },
+			  "_maritalStatus": { "id": "ms", "extension": [ { "url": "http://ms", "valueString": "x" } ] },
+			  "name": [ { "family": "A" }, { "family": "B" } ],
+			  "_name": [ { "id": "n0" }, null ]
+			}""";
+
+		Patient patient = assertStreamingMatchesTreeStrict(input);
+		assertEquals("ms", patient.getMaritalStatus().getId());
+		assertEquals("http://ms", patient.getMaritalStatus().getExtensionFirstRep().getUrl());
+		assertEquals("Married", patient.getMaritalStatus().getText());
+		assertEquals("n0", patient.getName().get(0).getId());
+		assertEquals("B", patient.getName().get(1).getFamily());
+	}
+
+	@Test
+	public void testParse_ContainedAndBundleResources() {
+		@Language("JSON")
+		String input = """
+			{
+			  "resourceType": "Bundle",
+			  "type": "transaction",
+			  "entry": [ {
+			    "fullUrl": "urn:uuid:0001",
+			    "resource": {
+			      "resourceType": "Observation",
+			      "contained": [ { "resourceType": "Patient", "id": "p1", "active": true } ],
+			      "status": "final",
+			      "subject": { "reference": "#p1" },
+			      "valueQuantity": { "value": 1.500, "unit": "mg" }
+			    },
+			    "request": { "method": "POST", "url": "Observation" }
+			  }, {
+			    "resource": {
+			      "status": "final",
+			      "resourceType": "Observation",
+			      "valueDecimal": 12.10
+			    },
+			    "request": { "method": "POST", "url": "Observation" }
+			  } ]
+			}""";
+
+		Bundle bundle = assertStreamingMatchesTree(input);
+		Observation obs = (Observation) bundle.getEntry().get(0).getResource();
+		assertEquals("1.500", obs.getValueQuantity().getValueElement().getValueAsString());
+		assertThat(obs.getContained()).hasSize(1);
+		assertEquals("urn:uuid:0001", obs.getIdElement().getValue());
+	}
+
+	@Test
+	public void testParse_ResourceTypeNotFirst() {
+		@Language("JSON")
+		String input = """
+			{
+			  "id": "123",
+			  "active": true,
+			  "resourceType": "Patient"
+			}""";
+
+		Patient patient = assertStreamingMatchesTree(input);
+		assertEquals("123", patient.getIdElement().getIdPart());
+	}
+
+	@Test
+	public void testParse_MissingResourceType() {
+		ourCtx.getParserOptions().setStreamingJsonParsingEnabled(true);
+		IParser parser = ourCtx.newJsonParser();
+
+		DataFormatException e = assertThrows(DataFormatException.class, () -> parser.parseResource("{\"active\": true}"));
+		assertThat(e.getMessage()).startsWith(Msg.code(1838));
+	}
+
+	@Test
+	public void testParse_TrailingTokens() {
+		ourCtx.getParserOptions().setStreamingJsonParsingEnabled(true);
+		IParser parser = ourCtx.newJsonParser();
+
+		DataFormatException e = assertThrows(DataFormatException.class, () -> parser.parseResource("{\"resourceType\": \"Patient\"} {}"));
+		assertThat(e.getMessage()).startsWith(Msg.code(2739) + "Failed to parse JSON encoded FHIR content: Trailing token");
+	}
+
+	@Test
+	public void testParse_InvalidJson() {
+		ourCtx.getParserOptions().setStreamingJsonParsingEnabled(true);
+		IParser parser = ourCtx.newJsonParser();
+
+		DataFormatException e = assertThrows(DataFormatException.class, () -> parser.parseResource("{\"resourceType\": \"Patient\", \"active\": }"));
+		assertThat(e.getMessage()).startsWith(Msg.code(1861) + "Failed to parse JSON encoded FHIR content: Unexpected character");
+
+		e = assertThrows(DataFormatException.class, () -> parser.parseResource("[]"));
+		assertThat(e.getMessage()).contains(Msg.code(1859) + "Content does not appear to be FHIR JSON");
+	}
+
+	@Test
+	public void testParse_UnknownElementReportedToErrorHandler() {
+		@Language("JSON")
+		String input = """
+			{
+			  "resourceType": "Patient",
+			  "foo": { "bar": "baz" },
+			  "active": true
+			}""";
+
+		ourCtx.getParserOptions().setStreamingJsonParsingEnabled(true);
+		IParser parser = ourCtx.newJsonParser().setParserErrorHandler(new StrictErrorHandler());
+		assertThrows(DataFormatException.class, () -> parser.parseResource(Patient.class, input));
+	}
+
+	private <T extends IBaseResource> T assertStreamingMatchesTree(String theInput) {
+		return assertStreamingMatchesTree(theInput, new LenientErrorHandler());
+	}
+
+	private <T extends IBaseResource> T assertStreamingMatchesTreeStrict(String theInput) {
+		return assertStreamingMatchesTree(theInput, new StrictErrorHandler());
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T extends IBaseResource> T assertStreamingMatchesTree(String theInput, IParserErrorHandler theErrorHandler) {
+		ourCtx.getParserOptions().setStreamingJsonParsingEnabled(false);
+		IBaseResource treeParsed = ourCtx.newJsonParser().setParserErrorHandler(theErrorHandler).parseResource(theInput);
+		String treeEncoded = ourCtx.newJsonParser().setPrettyPrint(true).encodeResourceToString(treeParsed);
+
+		ourCtx.getParserOptions().setStreamingJsonParsingEnabled(true);
+		IBaseResource streamParsed = ourCtx.newJsonParser().setParserErrorHandler(theErrorHandler).parseResource(theInput);
+		String streamEncoded = ourCtx.newJsonParser().setPrettyPrint(true).encodeResourceToString(streamParsed);
+
+		assertEquals(treeEncoded, streamEncoded);
+		assertEquals(treeParsed.getIdElement().getValue(), streamParsed.getIdElement().getValue());
+
+		String treeXml = ourCtx.newXmlParser().encodeResourceToString(treeParsed);
+		String streamXml = ourCtx.newXmlParser().encodeResourceToString(streamParsed);
+		assertEquals(treeXml, streamXml);
+
+		return (T) streamParsed;
+	}
+}
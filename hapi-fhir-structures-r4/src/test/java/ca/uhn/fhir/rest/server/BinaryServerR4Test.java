@@ -9,8 +9,10 @@ import ca.uhn.fhir.rest.annotation.Update;
 import ca.uhn.fhir.rest.api.Constants;
 import ca.uhn.fhir.rest.api.EncodingEnum;
 import ca.uhn.fhir.rest.api.MethodOutcome;
+import ca.uhn.fhir.rest.api.server.bulk.BulkExportOutputCompressionEnum;
 import ca.uhn.fhir.test.utilities.HttpClientExtension;
 import ca.uhn.fhir.test.utilities.server.RestfulServerExtension;
+import ca.uhn.fhir.util.BinaryUtil;
 import ca.uhn.fhir.util.TestUtil;
 import com.google.common.base.Charsets;
 import org.apache.commons.io.IOUtils;
@@ -29,6 +31,13 @@ import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -89,6 +98,93 @@ public class 	BinaryServerR4Test {
 	}
 
 
+	@Test
+	public void testGetWithContentEncoding_Accepted() throws Exception {
+		byte[] compressed = zstd("{\"resourceType\":\"Patient\"}\n");
+
+		ourNextBinary = new Binary();
+		ourNextBinary.setId("Binary/A/_history/222");
+		ourNextBinary.setContent(compressed);
+		ourNextBinary.setContentType(Constants.CT_FHIR_NDJSON);
+		BinaryUtil.setContentEncoding(ourCtx, ourNextBinary, "zstd");
+
+		HttpGet get = new HttpGet(ourServer.getBaseUrl() + "/Binary/A");
+		get.addHeader("Accept", Constants.CT_FHIR_NDJSON);
+		get.addHeader(Constants.HEADER_ACCEPT_ENCODING, "gzip, zstd");
+		CloseableHttpResponse status = ourClient.execute(get);
+		try {
+			assertEquals(200, status.getStatusLine().getStatusCode());
+			assertEquals(Constants.CT_FHIR_NDJSON, status.getEntity().getContentType().getValue());
+			assertEquals("zstd", status.getFirstHeader(Constants.HEADER_CONTENT_ENCODING).getValue());
+
+			byte[] content = IOUtils.toByteArray(status.getEntity().getContent());
+			assertThat(content).containsExactly(compressed);
+		} finally {
+			IOUtils.closeQuietly(status);
+		}
+	}
+
+	@Test
+	public void testGetWithContentEncoding_NotAccepted() throws Exception {
+		String ndjson = "{\"resourceType\":\"Patient\"}\n";
+
+		ourNextBinary = new Binary();
+		ourNextBinary.setId("Binary/A/_history/222");
+		ourNextBinary.setContent(zstd(ndjson));
+		ourNextBinary.setContentType(Constants.CT_FHIR_NDJSON);
+		BinaryUtil.setContentEncoding(ourCtx, ourNextBinary, "zstd");
+
+		HttpGet get = new HttpGet(ourServer.getBaseUrl() + "/Binary/A");
+		get.addHeader("Accept", Constants.CT_FHIR_NDJSON);
+		get.addHeader(Constants.HEADER_ACCEPT_ENCODING, "identity");
+		CloseableHttpResponse status = ourClient.execute(get);
+		try {
+			assertEquals(200, status.getStatusLine().getStatusCode());
+			assertEquals(Constants.CT_FHIR_NDJSON, status.getEntity().getContentType().getValue());
+			assertNull(status.getFirstHeader(Constants.HEADER_CONTENT_ENCODING));
+
+			String content = IOUtils.toString(status.getEntity().getContent(), StandardCharsets.UTF_8);
+			assertEquals(ndjson, content);
+		} finally {
+			IOUtils.closeQuietly(status);
+		}
+	}
+
+	@ParameterizedTest
+	@CsvSource(delimiter = '|', textBlock = """
+		zstd   | gzip, identity;q=0
+		zstd   | gzip, *;q=0
+		brotli | brotli
+		""")
+	public void testGetWithContentEncoding_NotAcceptable(String theStoredContentEncoding, String theAcceptEncoding) throws Exception {
+		ourNextBinary = new Binary();
+		ourNextBinary.setId("Binary/A/_history/222");
+		ourNextBinary.setContent(zstd("{\"resourceType\":\"Patient\"}\n"));
+		ourNextBinary.setContentType(Constants.CT_FHIR_NDJSON);
+		BinaryUtil.setContentEncoding(ourCtx, ourNextBinary, theStoredContentEncoding);
+
+		HttpGet get = new HttpGet(ourServer.getBaseUrl() + "/Binary/A");
+		get.addHeader("Accept", Constants.CT_FHIR_NDJSON);
+		get.addHeader(Constants.HEADER_ACCEPT_ENCODING, theAcceptEncoding);
+		CloseableHttpResponse status = ourClient.execute(get);
+		try {
+			assertEquals(406, status.getStatusLine().getStatusCode());
+			assertNull(status.getFirstHeader(Constants.HEADER_CONTENT_ENCODING));
+			String content = IOUtils.toString(status.getEntity().getContent(), StandardCharsets.UTF_8);
+			assertThat(content).contains("HAPI-2770");
+		} finally {
+			IOUtils.closeQuietly(status);
+		}
+	}
+
+	private static byte[] zstd(String theContent) throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		try (OutputStream compressingStream = BulkExportOutputCompressionEnum.ZSTD.newCompressingStream(outputStream)) {
+			compressingStream.write(theContent.getBytes(StandardCharsets.UTF_8));
+		}
+		return outputStream.toByteArray();
+	}
+
 	@Test
 	public void testGetWithAccept() throws Exception {
 
@@ -5,6 +5,7 @@ import ca.uhn.fhir.context.support.ConceptValidationOptions;
 import ca.uhn.fhir.context.support.IValidationSupport;
 import ca.uhn.fhir.context.support.LookupCodeRequest;
 import ca.uhn.fhir.context.support.TranslateConceptResults;
+import ca.uhn.fhir.context.support.ValidateCodeRequest;
 import ca.uhn.fhir.context.support.ValidationSupportContext;
 import ca.uhn.fhir.context.support.ValueSetExpansionOptions;
 import jakarta.annotation.Nonnull;
@@ -85,6 +86,15 @@ public abstract class BaseValidationSupportWrapper extends BaseValidationSupport
 				theValidationSupportContext, theOptions, theCodeSystem, theCode, theDisplay, theValueSetUrl);
 	}
 
+	@Nonnull
+	@Override
+	public List<CodeValidationResult> validateCodes(
+			ValidationSupportContext theValidationSupportContext,
+			ConceptValidationOptions theOptions,
+			@Nonnull List<ValidateCodeRequest> theRequests) {
+		return myWrap.validateCodes(theValidationSupportContext, theOptions, theRequests);
+	}
+
 	@Override
 	public IValidationSupport.CodeValidationResult validateCodeInValueSet(
 			ValidationSupportContext theValidationSupportContext,
@@ -0,0 +1,279 @@
+package org.hl7.fhir.common.hapi.validation.support;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.support.DefaultProfileValidationSupport;
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import ca.uhn.fhir.util.Logs;
+import ca.uhn.fhir.util.VersionUtil;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.Validate;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r5.formats.JsonParser;
+import org.hl7.fhir.r5.model.StructureDefinition;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.apache.commons.lang3.StringUtils.defaultIfBlank;
+import static org.apache.commons.lang3.StringUtils.defaultString;
+
+/**
+ * An on-disk cache of StructureDefinition snapshots generated by
+ * {@link SnapshotGeneratingValidationSupport}. Because snapshot generation is expensive,
+ * storing the generated snapshots in a directory which survives a restart means that
+ * profiles from large implementation guides only need to be processed once per package
+ * version, instead of once per JVM.
+ * <p>
+ * Each entry is keyed by a hash of the input StructureDefinition, the full content of its
+ * base definition, the URL, web URL and profile name passed to the snapshot generator, the
+ * FHIR version, and the HAPI FHIR version. A changed profile, a base definition which has
+ * been re-published or edited under the same URL and version, or a HAPI FHIR upgrade
+ * therefore never returns a stale snapshot. Entries are grouped in one
+ * subdirectory per source package and version (see {@link #SOURCE_PACKAGE_USERDATA_KEY}),
+ * so that {@link #invalidatePackage(String, String)} can discard the entries belonging to a
+ * package which has been replaced. Entries which can no longer be reached because their
+ * base definition has changed are not removed automatically, and can be discarded using
+ * {@link #invalidateAll()}.
+ * </p>
+ * <p>
+ * To use this cache, register it on the chain using
+ * {@link ValidationSupportChain#setSnapshotCache(FileSystemSnapshotCache)}. Note that
+ * {@link ValidationSupportChain#invalidateCaches()} does not clear this cache.
+ * </p>
+ *
+ * @since 8.4.0
+ */
+public class FileSystemSnapshotCache {
+
+	/**
+	 * Resource user data key holding the source package of a conformance resource, in the
+	 * form <code>[package name]#[package version]</code>. This is populated by
+	 * {@link NpmPackageValidationSupport} for every resource it loads.
+	 */
+	public static final String SOURCE_PACKAGE_USERDATA_KEY =
+			FileSystemSnapshotCache.class.getName() + "_SOURCE_PACKAGE";
+
+	static final String NO_PACKAGE_DIRECTORY = "_no_package";
+	private static final String FILE_SUFFIX = ".json";
+	private static final Logger ourLog = Logs.getTerminologyTroubleshootingLog();
+	private final FhirContext myFhirContext;
+	private final Path myDirectory;
+
+	/**
+	 * Constructor
+	 *
+	 * @param theFhirContext The FHIR context for the StructureDefinitions being cached
+	 * @param theDirectory   The directory to store the cache in. It will be created if it does not exist.
+	 */
+	public FileSystemSnapshotCache(@Nonnull FhirContext theFhirContext, @Nonnull Path theDirectory) {
+		Validate.notNull(theFhirContext, "theFhirContext must not be null");
+		Validate.notNull(theDirectory, "theDirectory must not be null");
+		myFhirContext = theFhirContext;
+		myDirectory = theDirectory;
+	}
+
+	/**
+	 * Computes the key of the entry for the given snapshot generation. The key can be used to
+	 * {@link #fetchSnapshot(CacheKey) fetch} a previously stored snapshot and to
+	 * {@link #storeSnapshot(CacheKey, IBaseResource) store} a newly generated one, so that the
+	 * input and base only need to be hashed once.
+	 *
+	 * @param theInput       The StructureDefinition a snapshot is being generated for
+	 * @param theBase        The base definition the snapshot will be generated from
+	 * @param theUrl         The URL passed to the snapshot generator
+	 * @param theWebUrl      The web URL passed to the snapshot generator
+	 * @param theProfileName The profile name passed to the snapshot generator
+	 */
+	@Nonnull
+	public CacheKey getCacheKey(
+			@Nonnull IBaseResource theInput,
+			@Nonnull StructureDefinition theBase,
+			@Nullable String theUrl,
+			@Nullable String theWebUrl,
+			@Nullable String theProfileName) {
+		String sourcePackage = (String) theInput.getUserData(SOURCE_PACKAGE_USERDATA_KEY);
+		if (sourcePackage == null) {
+			sourcePackage = (String) theInput.getUserData(DefaultProfileValidationSupport.SOURCE_PACKAGE_ID);
+		}
+		String directoryName = sourcePackage != null ? toDirectoryName(sourcePackage) : NO_PACKAGE_DIRECTORY;
+
+		// The URLs and profile name end up in the generated snapshot (e.g. in element links),
+		// so snapshots generated with different values are not interchangeable
+		Hasher hasher = Hashing.sha256().newHasher();
+		hasher.putString(VersionUtil.getVersion(), StandardCharsets.UTF_8);
+		hasher.putString(myFhirContext.getVersion().getVersion().name(), StandardCharsets.UTF_8);
+		putNullableString(hasher, theUrl);
+		putNullableString(hasher, theWebUrl);
+		putNullableString(hasher, theProfileName);
+		hasher.putString(defaultString(theBase.getUrl()), StandardCharsets.UTF_8);
+		hasher.putString(defaultString(theBase.getVersion()), StandardCharsets.UTF_8);
+		hasher.putString(encodeBase(theBase), StandardCharsets.UTF_8);
+		hasher.putString(myFhirContext.newJsonParser().encodeResourceToString(theInput), StandardCharsets.UTF_8);
+
+		return new CacheKey(myDirectory.resolve(directoryName).resolve(hasher.hash() + FILE_SUFFIX));
+	}
+
+	/**
+	 * Returns the previously stored snapshot for the given key, or <code>null</code> if none
+	 * is stored. Entries which can not be read are deleted.
+	 *
+	 * @param theKey The key returned by {@link #getCacheKey(IBaseResource, StructureDefinition, String, String, String)}
+	 */
+	@Nullable
+	public IBaseResource fetchSnapshot(@Nonnull CacheKey theKey) {
+		Path file = theKey.getFile();
+		if (!Files.isRegularFile(file)) {
+			return null;
+		}
+
+		try {
+			String contents = Files.readString(file, StandardCharsets.UTF_8);
+			IBaseResource retVal = myFhirContext.newJsonParser().parseResource(contents);
+			ourLog.debug("Loaded cached snapshot from {}", file);
+			return retVal;
+		} catch (Exception e) {
+			ourLog.warn("Failed to read cached snapshot from {}, discarding it: {}", file, e.toString());
+			deleteQuietly(file);
+			return null;
+		}
+	}
+
+	/**
+	 * Stores a generated snapshot. Failures are logged and otherwise ignored, since a cache
+	 * which can not be written to should not cause validation to fail.
+	 *
+	 * @param theKey      The key returned by {@link #getCacheKey(IBaseResource, StructureDefinition, String, String, String)}
+	 * @param theSnapshot The StructureDefinition including the generated snapshot
+	 */
+	public void storeSnapshot(@Nonnull CacheKey theKey, @Nonnull IBaseResource theSnapshot) {
+		Path file = theKey.getFile();
+		Path tempFile = null;
+		try {
+			Files.createDirectories(file.getParent());
+
+			// Write to a temporary file first so that concurrent readers never see a partial entry
+			tempFile = Files.createTempFile(file.getParent(), null, ".tmp");
+			Files.writeString(tempFile, myFhirContext.newJsonParser().encodeResourceToString(theSnapshot));
+			try {
+				Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+			}
+			ourLog.debug("Stored generated snapshot in {}", file);
+		} catch (IOException e) {
+			ourLog.warn("Failed to store generated snapshot in {}: {}", file, e.toString());
+			if (tempFile != null) {
+				deleteQuietly(tempFile);
+			}
+		}
+	}
+
+	/**
+	 * Removes all cached snapshots for profiles belonging to the given package version
+	 *
+	 * @param thePackageName    The package name, e.g. <code>hl7.fhir.us.core</code>
+	 * @param thePackageVersion The package version, e.g. <code>6.1.0</code>
+	 */
+	public void invalidatePackage(@Nonnull String thePackageName, @Nonnull String thePackageVersion) {
+		Validate.notBlank(thePackageName, "thePackageName must not be blank");
+		Validate.notBlank(thePackageVersion, "thePackageVersion must not be blank");
+		deleteRecursively(myDirectory.resolve(toDirectoryName(thePackageName + "#" + thePackageVersion)));
+	}
+
+	/**
+	 * Removes all cached snapshots
+	 */
+	public void invalidateAll() {
+		if (Files.isDirectory(myDirectory)) {
+			try (Stream<Path> children = Files.list(myDirectory)) {
+				children.forEach(FileSystemSnapshotCache::deleteRecursively);
+			} catch (IOException e) {
+				throw new InternalErrorException(Msg.code(2762) + "Failed to clear snapshot cache: " + e, e);
+			}
+		}
+	}
+
+	public Path getDirectory() {
+		return myDirectory;
+	}
+
+	private static void putNullableString(Hasher theHasher, @Nullable String theValue) {
+		// Distinguishes null from an empty string, and keeps adjacent values from running together
+		theHasher.putBoolean(theValue != null);
+		theHasher.putInt(defaultString(theValue).length());
+		theHasher.putString(defaultString(theValue), StandardCharsets.UTF_8);
+	}
+
+	private static String encodeBase(StructureDefinition theBase) {
+		try {
+			return new JsonParser().composeString(theBase);
+		} catch (IOException e) {
+			throw new InternalErrorException(
+					Msg.code(2766) + "Failed to encode base definition " + theBase.getUrl() + ": " + e, e);
+		}
+	}
+
+	static String toDirectoryName(String theSourcePackage) {
+		return defaultIfBlank(theSourcePackage.replaceAll("[^a-zA-Z0-9._-]", "-"), NO_PACKAGE_DIRECTORY);
+	}
+
+	private static void deleteRecursively(Path thePath) {
+		if (!Files.exists(thePath)) {
+			return;
+		}
+		try (Stream<Path> paths = Files.walk(thePath)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(t -> {
+				try {
+					Files.delete(t);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (IOException | UncheckedIOException e) {
+			throw new InternalErrorException(Msg.code(2763) + "Failed to delete " + thePath + ": " + e, e);
+		}
+	}
+
+	private static void deleteQuietly(Path theFile) {
+		try {
+			Files.deleteIfExists(theFile);
+		} catch (IOException e) {
+			ourLog.debug("Failed to delete {}: {}", theFile, e.toString());
+		}
+	}
+
+	/**
+	 * Identifies an entry in a {@link FileSystemSnapshotCache}
+	 *
+	 * @see #getCacheKey(IBaseResource, StructureDefinition, String, String, String)
+	 */
+	public static final class CacheKey {
+
+		private final Path myFile;
+
+		private CacheKey(Path theFile) {
+			myFile = theFile;
+		}
+
+		Path getFile() {
+			return myFile;
+		}
+
+		@Override
+		public String toString() {
+			return myFile.toString();
+		}
+	}
+}
@@ -56,6 +56,9 @@ public class NpmPackageValidationSupport extends PrePopulatedValidationSupport {
 				IParser parser = getFhirContext().newJsonParser();
 				parser.setParserErrorHandler(new LenientErrorHandler(false));
 				IBaseResource resource = parser.parseResource(input);
+				resource.setUserData(
+						FileSystemSnapshotCache.SOURCE_PACKAGE_USERDATA_KEY,
+						thePackage.name() + "#" + thePackage.version());
 				super.addResource(resource);
 			}
 		}
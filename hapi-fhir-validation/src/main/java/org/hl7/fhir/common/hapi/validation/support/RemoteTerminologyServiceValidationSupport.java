@@ -7,21 +7,27 @@ import ca.uhn.fhir.context.support.DefaultProfileValidationSupport;
 import ca.uhn.fhir.context.support.IValidationSupport;
 import ca.uhn.fhir.context.support.LookupCodeRequest;
 import ca.uhn.fhir.context.support.TranslateConceptResults;
+import ca.uhn.fhir.context.support.ValidateCodeRequest;
 import ca.uhn.fhir.context.support.ValidationSupportContext;
 import ca.uhn.fhir.i18n.Msg;
 import ca.uhn.fhir.rest.api.SummaryEnum;
 import ca.uhn.fhir.rest.client.api.IGenericClient;
 import ca.uhn.fhir.rest.client.api.IRestfulClientFactory;
 import ca.uhn.fhir.rest.gclient.IQuery;
+import ca.uhn.fhir.rest.server.exceptions.BaseServerResponseException;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
+import ca.uhn.fhir.util.BundleBuilder;
 import ca.uhn.fhir.util.BundleUtil;
+import ca.uhn.fhir.util.FhirTerser;
 import ca.uhn.fhir.util.Logs;
 import ca.uhn.fhir.util.ParametersUtil;
+import ca.uhn.fhir.util.bundle.BundleEntryParts;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
+import org.hl7.fhir.instance.model.api.IBase;
 import org.hl7.fhir.instance.model.api.IBaseBundle;
 import org.hl7.fhir.instance.model.api.IBaseDatatype;
 import org.hl7.fhir.instance.model.api.IBaseOperationOutcome;
@@ -43,6 +49,7 @@ import org.slf4j.Logger;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -121,6 +128,92 @@ public class RemoteTerminologyServiceValidationSupport extends BaseValidationSup
 		return invokeRemoteValidateCode(theCodeSystem, theCode, theDisplay, theValueSetUrl, null);
 	}
 
+	/**
+	 * Validates all of the given codes using a single <code>batch</code> Bundle sent to the remote
+	 * terminology server, containing one <code>$validate-code</code> invocation per code. If the server
+	 * rejects the batch, or does not return a usable response for an individual entry, the affected
+	 * codes are validated individually instead.
+	 */
+	@Nonnull
+	@Override
+	public List<CodeValidationResult> validateCodes(
+			ValidationSupportContext theValidationSupportContext,
+			ConceptValidationOptions theOptions,
+			@Nonnull List<ValidateCodeRequest> theRequests) {
+		if (theRequests.size() < 2) {
+			return super.validateCodes(theValidationSupportContext, theOptions, theRequests);
+		}
+
+		FhirTerser terser = myCtx.newTerser();
+		BundleBuilder bundleBuilder = new BundleBuilder(myCtx);
+		bundleBuilder.setType("batch");
+		List<Integer> requestIndexes = new ArrayList<>();
+		for (int i = 0; i < theRequests.size(); i++) {
+			ValidateCodeRequest next = theRequests.get(i);
+			if (isBlank(next.getCode())) {
+				continue;
+			}
+			String resourceType = isBlank(next.getValueSetUrl()) ? "CodeSystem" : "ValueSet";
+			IBaseParameters input = buildValidateCodeInputParameters(
+					next.getSystem(), next.getCode(), next.getDisplay(), next.getValueSetUrl(), null);
+
+			IBase entry = bundleBuilder.addEntry();
+			bundleBuilder.addToEntry(entry, "resource", input);
+			terser.setElement(entry, "request.method", "POST");
+			terser.setElement(entry, "request.url", resourceType + "/$validate-code");
+			requestIndexes.add(i);
+		}
+
+		List<CodeValidationResult> retVal = new ArrayList<>(Collections.nCopies(theRequests.size(), null));
+		if (requestIndexes.isEmpty()) {
+			return retVal;
+		}
+
+		List<BundleEntryParts> responseEntries;
+		try {
+			IBaseBundle response = provideClient()
+					.transaction()
+					.withBundle(bundleBuilder.getBundle())
+					.execute();
+			responseEntries = BundleUtil.toListOfEntries(myCtx, response);
+		} catch (BaseServerResponseException e) {
+			ourLog.warn(
+					"Remote terminology server at {} failed to process a batch of {} $validate-code requests, validating them individually: {}",
+					getBaseUrl(),
+					requestIndexes.size(),
+					e.getMessage());
+			return super.validateCodes(theValidationSupportContext, theOptions, theRequests);
+		}
+
+		for (int i = 0; i < requestIndexes.size(); i++) {
+			int requestIndex = requestIndexes.get(i);
+			ValidateCodeRequest request = theRequests.get(requestIndex);
+			IBaseResource output =
+					i < responseEntries.size() ? responseEntries.get(i).getResource() : null;
+
+			CodeValidationResult result;
+			if (output instanceof IBaseParameters outputParameters) {
+				result = createCodeValidationResult(
+						outputParameters,
+						newValidationErrorMessageBuilder(
+								request.getSystem(), request.getCode(), request.getValueSetUrl(), null),
+						request.getCode());
+			} else {
+				// Individual failures are retried on their own so that errors are reported consistently
+				result = validateCode(
+						theValidationSupportContext,
+						theOptions,
+						request.getSystem(),
+						request.getCode(),
+						request.getDisplay(),
+						request.getValueSetUrl());
+			}
+			retVal.set(requestIndex, result);
+		}
+
+		return retVal;
+	}
+
 	@Override
 	public CodeValidationResult validateCodeInValueSet(
 			ValidationSupportContext theValidationSupportContext,
@@ -619,20 +712,8 @@ public class RemoteTerminologyServiceValidationSupport extends BaseValidationSup
 
 		IGenericClient client = provideClient();
 
-		// this message builder can be removed once we introduce a parameter object like CodeValidationRequest
-		ValidationErrorMessageBuilder errorMessageBuilder = theServerMessage -> {
-			if (theValueSetUrl == null && theValueSet == null) {
-				return getErrorMessage(
-						ERROR_CODE_UNKNOWN_CODE_IN_CODE_SYSTEM, theCodeSystem, theCode, getBaseUrl(), theServerMessage);
-			}
-			return getErrorMessage(
-					ERROR_CODE_UNKNOWN_CODE_IN_VALUE_SET,
-					theCodeSystem,
-					theCode,
-					theValueSetUrl,
-					getBaseUrl(),
-					theServerMessage);
-		};
+		ValidationErrorMessageBuilder errorMessageBuilder =
+				newValidationErrorMessageBuilder(theCodeSystem, theCode, theValueSetUrl, theValueSet);
 
 		IBaseParameters input =
 				buildValidateCodeInputParameters(theCodeSystem, theCode, theDisplay, theValueSetUrl, theValueSet);
@@ -659,6 +740,24 @@ public class RemoteTerminologyServiceValidationSupport extends BaseValidationSup
 		}
 	}
 
+	// this message builder can be removed once we introduce a parameter object like CodeValidationRequest
+	private ValidationErrorMessageBuilder newValidationErrorMessageBuilder(
+			String theCodeSystem, String theCode, String theValueSetUrl, IBaseResource theValueSet) {
+		return theServerMessage -> {
+			if (theValueSetUrl == null && theValueSet == null) {
+				return getErrorMessage(
+						ERROR_CODE_UNKNOWN_CODE_IN_CODE_SYSTEM, theCodeSystem, theCode, getBaseUrl(), theServerMessage);
+			}
+			return getErrorMessage(
+					ERROR_CODE_UNKNOWN_CODE_IN_VALUE_SET,
+					theCodeSystem,
+					theCode,
+					theValueSetUrl,
+					getBaseUrl(),
+					theServerMessage);
+		};
+	}
+
 	private CodeValidationResult createErrorCodeValidationResult(
 			CodeValidationIssueCode theIssueCode, String theMessage) {
 		IssueSeverity severity = IssueSeverity.ERROR;
@@ -10,6 +10,7 @@ import ca.uhn.fhir.rest.server.exceptions.PreconditionFailedException;
 import ca.uhn.fhir.util.Logs;
 import ca.uhn.hapi.converters.canonical.VersionCanonicalizer;
 import com.google.common.annotations.VisibleForTesting;
+import jakarta.annotation.Nullable;
 import org.apache.commons.lang3.Validate;
 import org.hl7.fhir.common.hapi.validation.validator.ProfileKnowledgeWorkerR5;
 import org.hl7.fhir.common.hapi.validation.validator.WorkerContextValidationSupportAdapter;
@@ -45,6 +46,7 @@ public class SnapshotGeneratingValidationSupport implements IValidationSupport {
 	private final FhirContext myCtx;
 	private final VersionCanonicalizer myVersionCanonicalizer;
 	private final IWorkerContext myWorkerContext;
+	private FileSystemSnapshotCache mySnapshotCache;
 
 	/**
 	 * Constructor
@@ -132,6 +134,16 @@ public class SnapshotGeneratingValidationSupport implements IValidationSupport {
 					throw new PreconditionFailedException(Msg.code(705) + "Unknown base definition: " + baseDefinition);
 				}
 
+				FileSystemSnapshotCache snapshotCache = getSnapshotCache(theValidationSupportContext);
+				FileSystemSnapshotCache.CacheKey snapshotCacheKey = null;
+				if (snapshotCache != null) {
+					snapshotCacheKey = snapshotCache.getCacheKey(theInput, base, theUrl, theWebUrl, theProfileName);
+					IBaseResource cached = snapshotCache.fetchSnapshot(snapshotCacheKey);
+					if (cached != null) {
+						return cached;
+					}
+				}
+
 				ArrayList<ValidationMessage> messages = new ArrayList<>();
 				ProfileKnowledgeProvider profileKnowledgeProvider = new ProfileKnowledgeWorkerR5(myCtx);
 				ProfileUtilities profileUtilities =
@@ -140,7 +152,11 @@ public class SnapshotGeneratingValidationSupport implements IValidationSupport {
 				ourLog.info(GENERATING_SNAPSHOT_LOG_MSG, inputCanonical.getUrl());
 				profileUtilities.generateSnapshot(base, inputCanonical, theUrl, theWebUrl, theProfileName);
 
-				return myVersionCanonicalizer.structureDefinitionFromCanonical(inputCanonical);
+				IBaseResource retVal = myVersionCanonicalizer.structureDefinitionFromCanonical(inputCanonical);
+				if (snapshotCache != null) {
+					snapshotCache.storeSnapshot(snapshotCacheKey, retVal);
+				}
+				return retVal;
 
 			} catch (BaseServerResponseException e) {
 				throw e;
@@ -152,6 +168,28 @@ public class SnapshotGeneratingValidationSupport implements IValidationSupport {
 		}
 	}
 
+	/**
+	 * Sets an on-disk cache to store generated snapshots in. If not set, the cache configured
+	 * on the root validation support (if it is a {@link ValidationSupportChain}) is used.
+	 *
+	 * @since 8.4.0
+	 */
+	public SnapshotGeneratingValidationSupport setSnapshotCache(@Nullable FileSystemSnapshotCache theSnapshotCache) {
+		mySnapshotCache = theSnapshotCache;
+		return this;
+	}
+
+	@Nullable
+	private FileSystemSnapshotCache getSnapshotCache(ValidationSupportContext theValidationSupportContext) {
+		if (mySnapshotCache != null) {
+			return mySnapshotCache;
+		}
+		if (theValidationSupportContext.getRootValidationSupport() instanceof ValidationSupportChain chain) {
+			return chain.getSnapshotCache();
+		}
+		return null;
+	}
+
 	@Override
 	public FhirContext getFhirContext() {
 		return myCtx;
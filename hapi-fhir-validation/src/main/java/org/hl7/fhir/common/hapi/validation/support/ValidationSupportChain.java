@@ -8,6 +8,7 @@ import ca.uhn.fhir.context.support.ConceptValidationOptions;
 import ca.uhn.fhir.context.support.IValidationSupport;
 import ca.uhn.fhir.context.support.LookupCodeRequest;
 import ca.uhn.fhir.context.support.TranslateConceptResults;
+import ca.uhn.fhir.context.support.ValidateCodeRequest;
 import ca.uhn.fhir.context.support.ValidationSupportContext;
 import ca.uhn.fhir.context.support.ValueSetExpansionOptions;
 import ca.uhn.fhir.i18n.Msg;
@@ -33,6 +34,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -96,7 +98,8 @@ import static org.apache.commons.lang3.StringUtils.isNotBlank;
  * <li>
  *     Results of {@link #generateSnapshot(ValidationSupportContext, IBaseResource, String, String, String)}
  *     are not cached, since this method is generally called in contexts where the results
- *     are cached.
+ *     are cached. Snapshots can however be persisted across restarts by configuring a
+ *     {@link FileSystemSnapshotCache} using {@link #setSnapshotCache(FileSystemSnapshotCache)}.
  * </li>
  * <li>
  *     Results of all other methods are stored in an expiring cache.
@@ -147,6 +150,9 @@ public class ValidationSupportChain implements IValidationSupport {
 	private ValidationSupportChainMetrics myMetrics;
 	private volatile boolean myHaveFetchedAllStructureDefinitions = false;
 
+	@Nullable
+	private FileSystemSnapshotCache mySnapshotCache;
+
 	/**
 	 * Constructor which initializes the chain with no modules (modules
 	 * must subsequently be registered using {@link #addValidationSupport(IValidationSupport)}).
@@ -375,6 +381,28 @@ public class ValidationSupportChain implements IValidationSupport {
 		}
 	}
 
+	/**
+	 * Sets an on-disk cache which {@link SnapshotGeneratingValidationSupport} will use to store
+	 * the StructureDefinition snapshots it generates, so that they do not need to be generated
+	 * again after a restart. The cache is not cleared by {@link #invalidateCaches()}, since its
+	 * entries are keyed by the contents of the profile they were generated for.
+	 *
+	 * @since 8.4.0
+	 */
+	public ValidationSupportChain setSnapshotCache(@Nullable FileSystemSnapshotCache theSnapshotCache) {
+		mySnapshotCache = theSnapshotCache;
+		return this;
+	}
+
+	/**
+	 * @see #setSnapshotCache(FileSystemSnapshotCache)
+	 * @since 8.4.0
+	 */
+	@Nullable
+	public FileSystemSnapshotCache getSnapshotCache() {
+		return mySnapshotCache;
+	}
+
 	/**
 	 * Invalidate the expiring cache, but not the permanent StructureDefinition cache
 	 *
@@ -817,6 +845,98 @@ public class ValidationSupportChain implements IValidationSupport {
 		return retVal.getValue();
 	}
 
+	@Nonnull
+	@Override
+	public List<CodeValidationResult> validateCodes(
+			@Nonnull ValidationSupportContext theValidationSupportContext,
+			@Nonnull ConceptValidationOptions theOptions,
+			@Nonnull List<ValidateCodeRequest> theRequests) {
+
+		/*
+		 * Anything already in the cache is served from there. The remaining requests are
+		 * de-duplicated and then offered to each module in the chain in turn, as a single
+		 * batch containing every request the module claims to support, until every request
+		 * has been resolved or the chain has been exhausted.
+		 */
+		Map<ValidateCodeKey, CacheValue<CodeValidationResult>> resolved = new HashMap<>();
+		Map<ValidateCodeKey, ValidateCodeRequest> pending = new LinkedHashMap<>();
+		List<ValidateCodeKey> keys = new ArrayList<>(theRequests.size());
+		for (ValidateCodeRequest next : theRequests) {
+			ValidateCodeKey key = new ValidateCodeKey(
+					theOptions, next.getSystem(), next.getCode(), next.getDisplay(), next.getValueSetUrl());
+			keys.add(key);
+			if (!resolved.containsKey(key) && !pending.containsKey(key)) {
+				CacheValue<CodeValidationResult> cached = getFromCache(key);
+				if (cached != null) {
+					resolved.put(key, cached);
+				} else {
+					pending.put(key, next);
+				}
+			}
+		}
+
+		for (IValidationSupport next : myChain) {
+			if (pending.isEmpty()) {
+				break;
+			}
+
+			List<ValidateCodeKey> supportedKeys = new ArrayList<>();
+			List<ValidateCodeRequest> supportedRequests = new ArrayList<>();
+			for (Map.Entry<ValidateCodeKey, ValidateCodeRequest> nextPending : pending.entrySet()) {
+				ValidateCodeRequest request = nextPending.getValue();
+				if ((isBlank(request.getValueSetUrl())
+								&& isCodeSystemSupported(theValidationSupportContext, next, request.getSystem()))
+						|| (isNotBlank(request.getValueSetUrl())
+								&& isValueSetSupported(theValidationSupportContext, next, request.getValueSetUrl()))) {
+					supportedKeys.add(nextPending.getKey());
+					supportedRequests.add(request);
+				}
+			}
+			if (supportedRequests.isEmpty()) {
+				continue;
+			}
+
+			List<CodeValidationResult> outcomes =
+					next.validateCodes(theValidationSupportContext, theOptions, supportedRequests);
+			for (int i = 0; i < supportedKeys.size(); i++) {
+				CodeValidationResult outcome = outcomes.get(i);
+				if (outcome != null) {
+					ValidateCodeKey key = supportedKeys.get(i);
+					CacheValue<CodeValidationResult> value = new CacheValue<>(outcome);
+					pending.remove(key);
+					resolved.put(key, value);
+					putInCache(key, value);
+				}
+			}
+			ourLog.debug(
+					"{} of {} codes validated by {}",
+					supportedKeys.size() - countNulls(outcomes),
+					supportedKeys.size(),
+					next.getName());
+		}
+
+		for (ValidateCodeKey next : pending.keySet()) {
+			resolved.put(next, CacheValue.empty());
+			putInCache(next, CacheValue.empty());
+		}
+
+		List<CodeValidationResult> retVal = new ArrayList<>(keys.size());
+		for (ValidateCodeKey next : keys) {
+			retVal.add(resolved.get(next).getValue());
+		}
+		return retVal;
+	}
+
+	private static int countNulls(List<?> theList) {
+		int retVal = 0;
+		for (Object next : theList) {
+			if (next == null) {
+				retVal++;
+			}
+		}
+		return retVal;
+	}
+
 	@Override
 	public CodeValidationResult validateCodeInValueSet(
 			ValidationSupportContext theValidationSupportContext,
@@ -2,15 +2,23 @@ package org.hl7.fhir.common.hapi.validation.validator;
 
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.context.FhirVersionEnum;
+import ca.uhn.fhir.context.support.ConceptValidationOptions;
 import ca.uhn.fhir.context.support.DefaultProfileValidationSupport;
 import ca.uhn.fhir.context.support.IValidationSupport;
+import ca.uhn.fhir.context.support.ValidateCodeRequest;
+import ca.uhn.fhir.context.support.ValidationSupportContext;
+import ca.uhn.fhir.util.FhirTerser;
 import ca.uhn.fhir.validation.IInstanceValidatorModule;
 import ca.uhn.fhir.validation.IValidationContext;
+import ca.uhn.fhir.validation.ValidationContext;
 import com.google.common.annotations.VisibleForTesting;
 import jakarta.annotation.Nonnull;
 import org.apache.commons.lang3.Validate;
 import org.hl7.fhir.exceptions.FHIRException;
 import org.hl7.fhir.exceptions.PathEngineException;
+import org.hl7.fhir.instance.model.api.IBaseCoding;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r5.context.IWorkerContext;
 import org.hl7.fhir.r5.fhirpath.FHIRPathEngine;
 import org.hl7.fhir.r5.fhirpath.FHIRPathUtilityClasses.FunctionDetails;
 import org.hl7.fhir.r5.fhirpath.TypeDetails;
@@ -20,10 +28,18 @@ import org.hl7.fhir.r5.utils.validation.IValidationPolicyAdvisor;
 import org.hl7.fhir.r5.utils.validation.IValidatorResourceFetcher;
 import org.hl7.fhir.r5.utils.validation.constants.BestPracticeWarningLevel;
 import org.hl7.fhir.utilities.validation.ValidationMessage;
+import org.hl7.fhir.validation.instance.InstanceValidator;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
 @SuppressWarnings({"PackageAccessibility", "Duplicates"})
 public class FhirInstanceValidator extends BaseValidatorBridge implements IInstanceValidatorModule {
@@ -42,6 +58,9 @@ public class FhirInstanceValidator extends BaseValidatorBridge implements IInsta
 	private IValidatorResourceFetcher validatorResourceFetcher;
 	private IValidationPolicyAdvisor validatorPolicyAdvisor = new FhirDefaultPolicyAdvisor();
 	private boolean myAllowExamples;
+	private boolean myValidatorPoolingEnabled;
+	private boolean myCodingPrefetchEnabled;
+	private final Deque<PooledInstanceValidator> myValidatorPool = new ConcurrentLinkedDeque<>();
 
 	/**
 	 * Constructor
@@ -241,7 +260,7 @@ public class FhirInstanceValidator extends BaseValidatorBridge implements IInsta
 	protected List<ValidationMessage> validate(IValidationContext<?> theValidationCtx) {
 		WorkerContextValidationSupportAdapter wrappedWorkerContext = provideWorkerContext();
 
-		return new ValidatorWrapper()
+		ValidatorWrapper validatorWrapper = new ValidatorWrapper()
 				.setAnyExtensionsAllowed(isAnyExtensionsAllowed())
 				.setBestPracticeWarningLevel(getBestPracticeWarningLevel())
 				.setErrorForUnknownProfiles(isErrorForUnknownProfiles())
@@ -252,8 +271,61 @@ public class FhirInstanceValidator extends BaseValidatorBridge implements IInsta
 				.setNoBindingMsgSuppressed(isNoBindingMsgSuppressed())
 				.setValidatorResourceFetcher(getValidatorResourceFetcher())
 				.setAssumeValidRestReferences(isAssumeValidRestReferences())
-				.setAllowExamples(isAllowExamples())
-				.validate(wrappedWorkerContext, theValidationCtx);
+				.setAllowExamples(isAllowExamples());
+
+		if (myCodingPrefetchEnabled && !isNoTerminologyChecks()) {
+			prefetchCodings(theValidationCtx);
+		}
+
+		if (!myValidatorPoolingEnabled) {
+			return validatorWrapper.validate(wrappedWorkerContext, theValidationCtx);
+		}
+
+		/*
+		 * The lookup caches of a pooled validator are cleared before it is reused, since
+		 * the resources they hold may have changed since its last run
+		 */
+		PooledInstanceValidator pooled = myValidatorPool.pollFirst();
+		if (pooled == null
+				|| pooled.workerContext() != wrappedWorkerContext
+				|| !ValidatorWrapper.clearLookupCaches(pooled.validator())) {
+			pooled = new PooledInstanceValidator(
+					wrappedWorkerContext, ValidatorWrapper.newInstanceValidator(wrappedWorkerContext));
+		}
+		List<ValidationMessage> retVal =
+				validatorWrapper.validate(pooled.validator(), wrappedWorkerContext, theValidationCtx);
+
+		// Only validators which completed normally are returned to the pool
+		myValidatorPool.offerFirst(pooled);
+		return retVal;
+	}
+
+	/**
+	 * Validates every coding in the resource against its code system using a single
+	 * {@link IValidationSupport#validateCodes(ValidationSupportContext, ConceptValidationOptions, List)}
+	 * call, so that the individual lookups made by the validator are served from the
+	 * validation support cache.
+	 */
+	private void prefetchCodings(IValidationContext<?> theValidationCtx) {
+		if (!(theValidationCtx instanceof ValidationContext)
+				|| !(theValidationCtx.getResource() instanceof IBaseResource resource)) {
+			return;
+		}
+
+		FhirTerser terser = theValidationCtx.getFhirContext().newTerser();
+		Set<ValidateCodeRequest> requests = new LinkedHashSet<>();
+		for (IBaseCoding next : terser.getAllPopulatedChildElementsOfType(resource, IBaseCoding.class)) {
+			if (isNotBlank(next.getSystem()) && isNotBlank(next.getCode())) {
+				requests.add(new ValidateCodeRequest(next.getSystem(), next.getCode(), next.getDisplay(), null));
+			}
+		}
+
+		if (!requests.isEmpty()) {
+			myValidationSupport.validateCodes(
+					new ValidationSupportContext(myValidationSupport),
+					new ConceptValidationOptions(),
+					new ArrayList<>(requests));
+		}
 	}
 
 	@Nonnull
@@ -301,6 +373,7 @@ public class FhirInstanceValidator extends BaseValidatorBridge implements IInsta
 	 * for unit tests, but could be used for production uses too.
 	 */
 	public void invalidateCaches() {
+		myValidatorPool.clear();
 		myValidationSupport.invalidateCaches();
 		if (myWrappedWorkerContext != null) {
 			myWrappedWorkerContext.invalidateCaches();
@@ -321,6 +394,68 @@ public class FhirInstanceValidator extends BaseValidatorBridge implements IInsta
 		return myAllowExamples;
 	}
 
+	/**
+	 * If set to {@literal true} (default is {@literal false}), the underlying validator instances are
+	 * kept in a pool and reused for subsequent validations instead of being created for every
+	 * validated resource. Each validator instance is only ever used by one thread at a time, and
+	 * keeps its FHIRPath engine and profile utilities between uses. Its resource lookup caches
+	 * are cleared before every use, so changes to profiles, ValueSets and other resources are
+	 * seen exactly as they would be by a new instance. This substantially reduces the cost of validating many small resources, such
+	 * as when the validator is used by a request validating interceptor.
+	 * <p>
+	 * The pool holds at most one validator per concurrently validating thread. It is emptied
+	 * when {@link #invalidateCaches()} is called.
+	 * </p>
+	 *
+	 * @since 8.4.0
+	 */
+	public void setValidatorPoolingEnabled(boolean theValidatorPoolingEnabled) {
+		myValidatorPoolingEnabled = theValidatorPoolingEnabled;
+		if (!theValidatorPoolingEnabled) {
+			myValidatorPool.clear();
+		}
+	}
+
+	/**
+	 * @see #setValidatorPoolingEnabled(boolean)
+	 * @since 8.4.0
+	 */
+	public boolean isValidatorPoolingEnabled() {
+		return myValidatorPoolingEnabled;
+	}
+
+	/**
+	 * If set to {@literal true} (default is {@literal false}), all of the codings found in a
+	 * resource are validated against their code systems using a single
+	 * {@link IValidationSupport#validateCodes(ValidationSupportContext, ConceptValidationOptions, List) bulk call}
+	 * before the resource itself is validated. Validation support modules which can resolve
+	 * many codes at once, such as the JPA terminology service or a remote terminology server,
+	 * can then do so in one round trip, and the individual code lookups performed by the
+	 * validator are answered from the {@link org.hl7.fhir.common.hapi.validation.support.ValidationSupportChain}
+	 * cache. This only helps when the validation support is a chain with caching enabled, and
+	 * only applies to resources which are supplied to the validator in parsed form.
+	 *
+	 * @since 8.4.0
+	 */
+	public void setCodingPrefetchEnabled(boolean theCodingPrefetchEnabled) {
+		myCodingPrefetchEnabled = theCodingPrefetchEnabled;
+	}
+
+	/**
+	 * @see #setCodingPrefetchEnabled(boolean)
+	 * @since 8.4.0
+	 */
+	public boolean isCodingPrefetchEnabled() {
+		return myCodingPrefetchEnabled;
+	}
+
+	@VisibleForTesting
+	int getPooledValidatorCount() {
+		return myValidatorPool.size();
+	}
+
+	private record PooledInstanceValidator(IWorkerContext workerContext, InstanceValidator validator) {}
+
 	public static class NullEvaluationContext implements FHIRPathEngine.IEvaluationContext {
 
 		@Override
@@ -6,13 +6,16 @@ import ca.uhn.fhir.rest.api.EncodingEnum;
 import ca.uhn.fhir.util.Logs;
 import ca.uhn.fhir.util.XmlUtil;
 import ca.uhn.fhir.validation.IValidationContext;
+import ca.uhn.fhir.validation.ValidationContext;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import org.apache.commons.io.input.ReaderInputStream;
+import org.apache.commons.lang3.reflect.FieldUtils;
 import org.hl7.fhir.exceptions.FHIRException;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.instance.model.api.IPrimitiveType;
 import org.hl7.fhir.r5.context.IWorkerContext;
 import org.hl7.fhir.r5.elementmodel.Manager;
 import org.hl7.fhir.r5.fhirpath.FHIRPathEngine;
@@ -31,18 +34,22 @@ import org.slf4j.Logger;
 import org.w3c.dom.Document;
 import org.w3c.dom.NodeList;
 
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
-import java.io.Reader;
-import java.io.StringReader;
+import java.lang.reflect.Field;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+
 class ValidatorWrapper {
 
 	private static final Logger ourLog = Logs.getTerminologyTroubleshootingLog();
+	private static final List<Field> ourInstanceValidatorLookupCacheFields = findInstanceValidatorLookupCacheFields();
 	private BestPracticeWarningLevel myBestPracticeWarningLevel;
 	private boolean myAnyExtensionsAllowed;
 	private boolean myErrorForUnknownProfiles;
@@ -124,16 +131,89 @@ class ValidatorWrapper {
 
 	public List<ValidationMessage> validate(
 			IWorkerContext theWorkerContext, IValidationContext<?> theValidationContext) {
-		InstanceValidator v;
+		return doValidate(newInstanceValidator(theWorkerContext), theWorkerContext, theValidationContext, false);
+	}
+
+	/**
+	 * Creates a new validator instance. Instances are not thread safe, but can be used
+	 * for any number of sequential {@link #validate(InstanceValidator, IWorkerContext, IValidationContext)}
+	 * calls against the same worker context, since each validation resets the per-run state
+	 * of the validator.
+	 */
+	static InstanceValidator newInstanceValidator(IWorkerContext theWorkerContext) {
 		FHIRPathEngine.IEvaluationContext evaluationCtx = new FhirInstanceValidator.NullEvaluationContext();
 		XVerExtensionManager xverManager = new XVerExtensionManager(theWorkerContext);
 		try {
-			v = new InstanceValidator(
+			return new InstanceValidator(
 					theWorkerContext, evaluationCtx, xverManager, new ValidatorSession(), new ValidatorSettings());
 		} catch (Exception e) {
 			throw new ConfigurationException(Msg.code(648) + e.getMessage(), e);
 		}
+	}
+
+	/**
+	 * Clears the lookup caches which a validator instance keeps between validations (resolved
+	 * canonical resources and fetched referenced resources), so that a reused instance sees the
+	 * same content as a new instance would.
+	 *
+	 * @return Returns <code>false</code> if the caches could not be cleared, in which case the
+	 * 	instance must not be reused
+	 */
+	static boolean clearLookupCaches(InstanceValidator theValidator) {
+		if (ourInstanceValidatorLookupCacheFields.isEmpty()) {
+			return false;
+		}
+		try {
+			for (Field next : ourInstanceValidatorLookupCacheFields) {
+				Map<?, ?> cache = (Map<?, ?>) next.get(theValidator);
+				if (cache != null) {
+					cache.clear();
+				}
+			}
+			return true;
+		} catch (IllegalAccessException e) {
+			return false;
+		}
+	}
 
+	private static List<Field> findInstanceValidatorLookupCacheFields() {
+		List<Field> retVal = new ArrayList<>();
+		for (String next : List.of("crLookups", "fetchCache")) {
+			Field field;
+			try {
+				field = FieldUtils.getField(InstanceValidator.class, next, true);
+			} catch (RuntimeException e) {
+				field = null;
+			}
+			if (field == null || !Map.class.isAssignableFrom(field.getType())) {
+				ourLog.warn("Unable to access InstanceValidator#{}, validator instances will not be reused", next);
+				return List.of();
+			}
+			retVal.add(field);
+		}
+		return retVal;
+	}
+
+	/**
+	 * Validates using the given validator instance, which must have been created using
+	 * {@link #newInstanceValidator(IWorkerContext)} for the same worker context and must
+	 * have had its lookup caches cleared using {@link #clearLookupCaches(InstanceValidator)}.
+	 * The settings of this wrapper are applied to the validator before it is used.
+	 * <p>
+	 * If the validation context holds an already parsed resource, the profiles it declares
+	 * are read from that resource instead of parsing the input a second time to find them.
+	 * </p>
+	 */
+	public List<ValidationMessage> validate(
+			InstanceValidator v, IWorkerContext theWorkerContext, IValidationContext<?> theValidationContext) {
+		return doValidate(v, theWorkerContext, theValidationContext, true);
+	}
+
+	private List<ValidationMessage> doValidate(
+			InstanceValidator v,
+			IWorkerContext theWorkerContext,
+			IValidationContext<?> theValidationContext,
+			boolean theReadProfilesFromParsedResource) {
 		v.setAssumeValidRestReferences(isAssumeValidRestReferences());
 		v.setBestPracticeWarningLevel(myBestPracticeWarningLevel);
 		v.setAnyExtensionsAllowed(myAnyExtensionsAllowed);
@@ -142,6 +222,7 @@ class ValidatorWrapper {
 		v.setErrorForUnknownProfiles(myErrorForUnknownProfiles);
 		/* setUnknownCodeSystemsCauseErrors interacts with UnknownCodeSystemWarningValidationSupport. Until this interaction is resolved, the value here should remain fixed. */
 		v.setUnknownCodeSystemsCauseErrors(true);
+		v.getExtensionDomains().clear();
 		v.getExtensionDomains().addAll(myExtensionDomains);
 		v.setFetcher(myValidatorResourceFetcher);
 		v.setPolicyAdvisor(myValidationPolicyAdvisor);
@@ -160,9 +241,27 @@ class ValidatorWrapper {
 
 		String input = theValidationContext.getResourceAsString();
 		EncodingEnum encoding = theValidationContext.getResourceAsStringEncoding();
-		InputStream inputStream = constructNewReaderInputStream(new StringReader(input));
+		InputStream inputStream = new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8));
+
+		/*
+		 * If the context was created from an already parsed resource, we can read the declared
+		 * profiles from it instead of parsing the input a second time just to find them
+		 */
+		if (theReadProfilesFromParsedResource
+				&& theValidationContext instanceof ValidationContext
+				&& (encoding == EncodingEnum.XML || encoding == EncodingEnum.JSON)) {
+			IBaseResource resource = (IBaseResource) theValidationContext.getResource();
+			for (IPrimitiveType<String> nextProfile : resource.getMeta().getProfile()) {
+				String nextProfileUrl = nextProfile.getValueAsString();
+				if (isNotBlank(nextProfileUrl)) {
+					fetchAndAddProfile(theWorkerContext, profiles, nextProfileUrl, invalidProfileValidationMessages);
+				}
+			}
+
+			Manager.FhirFormat format = encoding == EncodingEnum.XML ? Manager.FhirFormat.XML : Manager.FhirFormat.JSON;
+			v.validate(null, messages, inputStream, format, profiles);
 
-		if (encoding == EncodingEnum.XML) {
+		} else if (encoding == EncodingEnum.XML) {
 			Document document;
 			try {
 				document = XmlUtil.parseDocument(input);
@@ -233,19 +332,6 @@ class ValidatorWrapper {
 		return messages;
 	}
 
-	private ReaderInputStream constructNewReaderInputStream(Reader theReader) {
-		try {
-			return ReaderInputStream.builder()
-					.setCharset(StandardCharsets.UTF_8)
-					.setReader(theReader)
-					.get();
-		} catch (Exception ex) {
-			// we don't expect this ever
-			throw new IllegalArgumentException(
-					Msg.code(2596) + "Error constructing input reader stream while validating resource.", ex);
-		}
-	}
-
 	private void fetchAndAddProfile(
 			IWorkerContext theWorkerContext,
 			List<StructureDefinition> theProfileStructureDefinitions,
@@ -0,0 +1,198 @@
+package org.hl7.fhir.common.hapi.validation.support;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.support.DefaultProfileValidationSupport;
+import ca.uhn.fhir.context.support.ValidationSupportContext;
+import ca.uhn.fhir.util.Logs;
+import ca.uhn.test.util.LogbackTestExtension;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.StructureDefinition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hl7.fhir.common.hapi.validation.support.SnapshotGeneratingValidationSupport.GENERATING_SNAPSHOT_LOG_MSG;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class FileSystemSnapshotCacheTest {
+
+	private static final FhirContext ourCtx = FhirContext.forR4Cached();
+
+	@RegisterExtension
+	private final LogbackTestExtension myLogCapture = new LogbackTestExtension(Logs.getTerminologyTroubleshootingLog());
+
+	@TempDir
+	private Path myCacheDirectory;
+
+	@Test
+	public void testSnapshotReusedAfterRestart() throws IOException {
+		StructureDefinition first = generateSnapshot(newProfile("1"));
+		assertThat(first.getSnapshot().getElement()).isNotEmpty();
+		assertEquals(1, countSnapshotGenerations());
+		assertThat(listCachedFiles()).singleElement().satisfies(t -> assertEquals("test.package-1.0.0",
+				t.getParent().getFileName().toString()));
+
+		// A new chain and cache, as though the server had been restarted
+		StructureDefinition second = generateSnapshot(newProfile("1"));
+		assertEquals(1, countSnapshotGenerations());
+		assertEquals(encode(first), encode(second));
+	}
+
+	@Test
+	public void testChangedProfileIsNotServedFromCache() throws IOException {
+		generateSnapshot(newProfile("1"));
+		StructureDefinition changed = generateSnapshot(newProfile("2"));
+
+		assertEquals(2, countSnapshotGenerations());
+		assertThat(listCachedFiles()).hasSize(2);
+		assertThat(changed.getSnapshot().getElement())
+				.anyMatch(t -> t.getPath().equals("HumanName.family") && t.getMin() == 2);
+	}
+
+	@Test
+	public void testInvalidatePackage() throws IOException {
+		generateSnapshot(newProfile("1"));
+		FileSystemSnapshotCache cache = new FileSystemSnapshotCache(ourCtx, myCacheDirectory);
+
+		cache.invalidatePackage("other.package", "1.0.0");
+		assertThat(listCachedFiles()).hasSize(1);
+
+		cache.invalidatePackage("test.package", "1.0.0");
+		assertThat(listCachedFiles()).isEmpty();
+
+		generateSnapshot(newProfile("1"));
+		assertEquals(2, countSnapshotGenerations());
+	}
+
+	@Test
+	public void testUnreadableEntryIsRegenerated() throws IOException {
+		generateSnapshot(newProfile("1"));
+		Path file = listCachedFiles().get(0);
+		Files.writeString(file, "{ this is not json");
+
+		StructureDefinition regenerated = generateSnapshot(newProfile("1"));
+
+		assertEquals(2, countSnapshotGenerations());
+		assertThat(regenerated.getSnapshot().getElement()).isNotEmpty();
+		assertEquals(encode(regenerated), Files.readString(file));
+	}
+
+	@Test
+	public void testInvalidateAll() throws IOException {
+		generateSnapshot(newProfile("1"));
+
+		new FileSystemSnapshotCache(ourCtx, myCacheDirectory).invalidateAll();
+
+		assertThat(listCachedFiles()).isEmpty();
+		assertFalse(Files.exists(myCacheDirectory.resolve("test.package-1.0.0")));
+	}
+
+	@Test
+	public void testChangedBaseWithSameUrlAndVersionIsNotServedFromCache() throws IOException {
+		StructureDefinition base = generateSnapshot(newProfile("1"));
+		StructureDefinition derived = newDerivedProfile();
+		generateSnapshot(derived.copy(), base);
+		assertEquals(2, countSnapshotGenerations());
+
+		generateSnapshot(derived.copy(), base);
+		assertEquals(2, countSnapshotGenerations());
+
+		// The base is edited and re-published without changing its URL or version
+		StructureDefinition changedBase = generateSnapshot(newProfile("2"));
+		assertEquals(3, countSnapshotGenerations());
+		StructureDefinition regenerated = generateSnapshot(derived.copy(), changedBase);
+
+		assertEquals(4, countSnapshotGenerations());
+		assertThat(regenerated.getSnapshot().getElement())
+				.anyMatch(t -> t.getPath().equals("HumanName.family") && t.getMin() == 2);
+	}
+
+	@Test
+	public void testDifferentGeneratorArgumentsAreNotServedFromCache() throws IOException {
+		generateSnapshot(newProfile("1"));
+		generateSnapshot(newProfile("1"), "http://example.com", "Other");
+		generateSnapshot(newProfile("1"), "http://example.org", "Example");
+		assertEquals(3, countSnapshotGenerations());
+		assertThat(listCachedFiles()).hasSize(3);
+
+		generateSnapshot(newProfile("1"), "http://example.com", "Other");
+		assertEquals(3, countSnapshotGenerations());
+	}
+
+	private StructureDefinition generateSnapshot(StructureDefinition theProfile, IBaseResource... theResources) {
+		return generateSnapshot(theProfile, "http://example.com", "Example", theResources);
+	}
+
+	private StructureDefinition generateSnapshot(
+			StructureDefinition theProfile, String theUrl, String theProfileName, IBaseResource... theResources) {
+		PrePopulatedValidationSupport prePopulated = new PrePopulatedValidationSupport(ourCtx);
+		for (IBaseResource next : theResources) {
+			prePopulated.addResource(next);
+		}
+		ValidationSupportChain chain = new ValidationSupportChain(
+				new DefaultProfileValidationSupport(ourCtx),
+				prePopulated,
+				new SnapshotGeneratingValidationSupport(ourCtx));
+		chain.setSnapshotCache(new FileSystemSnapshotCache(ourCtx, myCacheDirectory));
+		return (StructureDefinition) chain.generateSnapshot(
+				new ValidationSupportContext(chain), theProfile, theUrl, null, theProfileName);
+	}
+
+	private long countSnapshotGenerations() {
+		return myLogCapture.getLogEvents().stream()
+				.filter(t -> GENERATING_SNAPSHOT_LOG_MSG.equals(t.getMessage()))
+				.count();
+	}
+
+	private List<Path> listCachedFiles() throws IOException {
+		try (Stream<Path> files = Files.walk(myCacheDirectory)) {
+			return files.filter(Files::isRegularFile).toList();
+		}
+	}
+
+	private static String encode(StructureDefinition theStructureDefinition) {
+		return ourCtx.newJsonParser().encodeResourceToString(theStructureDefinition);
+	}
+
+	private static StructureDefinition newDerivedProfile() {
+		StructureDefinition sd = new StructureDefinition();
+		sd.setUrl("http://example.com/StructureDefinition/derived-name-profile");
+		sd.setName("DerivedNameProfile");
+		sd.setType("HumanName");
+		sd.setKind(StructureDefinition.StructureDefinitionKind.COMPLEXTYPE);
+		sd.setDerivation(StructureDefinition.TypeDerivationRule.CONSTRAINT);
+		sd.setBaseDefinition("http://example.com/StructureDefinition/name-profile");
+		sd.getDifferential()
+				.addElement()
+				.setPath("HumanName.given")
+				.setMin(1)
+				.setId("HumanName.given");
+		sd.setUserData(FileSystemSnapshotCache.SOURCE_PACKAGE_USERDATA_KEY, "derived.package#1.0.0");
+		return sd;
+	}
+
+	private static StructureDefinition newProfile(String theMinFamily) {
+		StructureDefinition sd = new StructureDefinition();
+		sd.setUrl("http://example.com/StructureDefinition/name-profile");
+		sd.setName("NameProfile");
+		sd.setType("HumanName");
+		sd.setKind(StructureDefinition.StructureDefinitionKind.COMPLEXTYPE);
+		sd.setDerivation(StructureDefinition.TypeDerivationRule.CONSTRAINT);
+		sd.setBaseDefinition("http://hl7.org/fhir/StructureDefinition/HumanName");
+		sd.getDifferential()
+				.addElement()
+				.setPath("HumanName.family")
+				.setMin(Integer.parseInt(theMinFamily))
+				.setId("HumanName.family");
+		sd.setUserData(FileSystemSnapshotCache.SOURCE_PACKAGE_USERDATA_KEY, "test.package#1.0.0");
+		return sd;
+	}
+}
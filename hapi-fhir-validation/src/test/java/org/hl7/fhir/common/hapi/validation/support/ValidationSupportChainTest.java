@@ -8,6 +8,7 @@ import ca.uhn.fhir.context.support.IValidationSupport;
 import ca.uhn.fhir.context.support.LookupCodeRequest;
 import ca.uhn.fhir.context.support.TranslateConceptResult;
 import ca.uhn.fhir.context.support.TranslateConceptResults;
+import ca.uhn.fhir.context.support.ValidateCodeRequest;
 import ca.uhn.fhir.context.support.ValidationSupportContext;
 import ca.uhn.fhir.context.support.ValueSetExpansionOptions;
 import ca.uhn.fhir.i18n.Msg;
@@ -224,6 +225,48 @@ public class ValidationSupportChainTest extends BaseTest {
 		}
 	}
 
+	@ParameterizedTest
+	@ValueSource(booleans = {true, false})
+	public void testValidateCodes(boolean theUseCache) {
+		// Setup
+		prepareMock(myValidationSupport0, myValidationSupport1, myValidationSupport2);
+		ValidationSupportChain chain = new ValidationSupportChain(newCacheConfiguration(theUseCache), myValidationSupport0, myValidationSupport1, myValidationSupport2);
+
+		String codeSystemUrl1 = "http://code-system-url-1";
+		when(myValidationSupport0.isCodeSystemSupported(any(), eq(CODE_SYSTEM_URL_0))).thenReturn(true);
+		when(myValidationSupport1.isCodeSystemSupported(any(), any())).thenReturn(true);
+		IValidationSupport.CodeValidationResult result0 = new IValidationSupport.CodeValidationResult().setCode(CODE_0);
+		IValidationSupport.CodeValidationResult result1 = new IValidationSupport.CodeValidationResult().setCode("code-1");
+		IValidationSupport.CodeValidationResult result2 = new IValidationSupport.CodeValidationResult().setCode(CODE_0);
+		when(myValidationSupport0.validateCodes(any(), any(), any())).thenAnswer(t -> Lists.newArrayList(result0, null));
+		when(myValidationSupport1.validateCodes(any(), any(), any())).thenAnswer(t -> List.of(result1, result2));
+
+		List<ValidateCodeRequest> requests = List.of(
+			new ValidateCodeRequest(CODE_SYSTEM_URL_0, CODE_0, DISPLAY_0, null),
+			new ValidateCodeRequest(CODE_SYSTEM_URL_0, "code-1", null, null),
+			new ValidateCodeRequest(codeSystemUrl1, CODE_0, null, null),
+			new ValidateCodeRequest(CODE_SYSTEM_URL_0, CODE_0, DISPLAY_0, null));
+
+		// Test
+		List<IValidationSupport.CodeValidationResult> results = chain.validateCodes(newValidationCtx(chain), new ConceptValidationOptions(), requests);
+
+		// Verify
+		assertThat(results).containsExactly(result0, result1, result2, result0);
+		verify(myValidationSupport0, times(1)).validateCodes(any(), any(), eq(List.of(requests.get(0), requests.get(1))));
+		verify(myValidationSupport1, times(1)).validateCodes(any(), any(), eq(List.of(requests.get(1), requests.get(2))));
+		verify(myValidationSupport2, never()).validateCodes(any(), any(), any());
+
+		// Individual validation of a code from the batch should use the cache
+		prepareMock(myValidationSupport0, myValidationSupport1, myValidationSupport2);
+		IValidationSupport.CodeValidationResult single = chain.validateCode(newValidationCtx(chain), new ConceptValidationOptions(), codeSystemUrl1, CODE_0, null, null);
+		if (theUseCache) {
+			assertSame(result2, single);
+			verifyNoInteractions(myValidationSupport0, myValidationSupport1, myValidationSupport2);
+		} else {
+			assertNull(single);
+		}
+	}
+
 	@ParameterizedTest
 	@CsvSource({
 		"true,  true",
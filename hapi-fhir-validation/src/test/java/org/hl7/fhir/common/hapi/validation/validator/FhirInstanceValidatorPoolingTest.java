@@ -0,0 +1,218 @@
+package org.hl7.fhir.common.hapi.validation.validator;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.validation.FhirValidator;
+import ca.uhn.fhir.validation.SingleValidationMessage;
+import ca.uhn.fhir.validation.ValidationResult;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.hl7.fhir.common.hapi.validation.support.CommonCodeSystemsTerminologyService;
+import org.hl7.fhir.common.hapi.validation.support.InMemoryTerminologyServerValidationSupport;
+import org.hl7.fhir.common.hapi.validation.support.PrePopulatedValidationSupport;
+import org.hl7.fhir.common.hapi.validation.support.SnapshotGeneratingValidationSupport;
+import org.hl7.fhir.common.hapi.validation.support.ValidationSupportChain;
+import org.hl7.fhir.r4.model.Enumerations;
+import org.hl7.fhir.r4.model.Narrative;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.StructureDefinition;
+import org.hl7.fhir.validation.instance.InstanceValidator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FhirInstanceValidatorPoolingTest {
+
+	private static final FhirContext ourCtx = FhirContext.forR4Cached();
+	private static final String PROFILE_URL = "http://example.com/StructureDefinition/RequiredElementPatient";
+	private PrePopulatedValidationSupport myPrePopulatedSupport;
+	private ValidationSupportChain myValidationSupport;
+	private FhirInstanceValidator myInstanceValidator;
+	private FhirValidator myValidator;
+
+	@BeforeEach
+	public void before() {
+		myPrePopulatedSupport = new PrePopulatedValidationSupport(ourCtx);
+		myValidationSupport = new ValidationSupportChain(
+				ourCtx.getValidationSupport(),
+				myPrePopulatedSupport,
+				new CommonCodeSystemsTerminologyService(ourCtx),
+				new InMemoryTerminologyServerValidationSupport(ourCtx),
+				new SnapshotGeneratingValidationSupport(ourCtx));
+		myInstanceValidator = new FhirInstanceValidator(myValidationSupport);
+		myValidator = ourCtx.newValidator().registerValidatorModule(myInstanceValidator);
+	}
+
+	@Test
+	public void testPooledValidatorIsReused() {
+		myInstanceValidator.setValidatorPoolingEnabled(true);
+
+		List<String> first = validate(newInvalidPatient());
+		List<String> second = validate(newInvalidPatient());
+		List<String> valid = validate(newValidPatient());
+
+		assertThat(first).anyMatch(t -> t.contains("pat-1"));
+		assertEquals(first, second);
+		assertThat(valid).noneMatch(t -> t.startsWith("ERROR"));
+		assertEquals(1, myInstanceValidator.getPooledValidatorCount());
+	}
+
+	@Test
+	public void testPooledResultsMatchUnpooled() {
+		List<String> unpooled = validate(newInvalidPatient());
+		assertEquals(0, myInstanceValidator.getPooledValidatorCount());
+
+		myInstanceValidator.setValidatorPoolingEnabled(true);
+		List<String> pooled = validate(newInvalidPatient());
+
+		assertEquals(unpooled, pooled);
+	}
+
+	@Test
+	public void testProfileDeclaredOnParsedResource() {
+		myInstanceValidator.setValidatorPoolingEnabled(true);
+		Patient patient = newValidPatient();
+		patient.getMeta().addProfile("http://example.com/StructureDefinition/unknown");
+
+		List<String> fromResource = validate(patient);
+		List<String> fromString = toMessages(
+				myValidator.validateWithResult(ourCtx.newJsonParser().encodeResourceToString(patient)));
+
+		assertThat(fromResource).anyMatch(t -> t.contains("http://example.com/StructureDefinition/unknown"));
+		assertEquals(fromString, fromResource);
+	}
+
+	@Test
+	public void testProfileDeclaredOnParsedResource_Unpooled() {
+		Patient patient = newValidPatient();
+		patient.getMeta().addProfile("http://example.com/StructureDefinition/unknown");
+
+		List<String> fromResource = validate(patient);
+		List<String> fromString = toMessages(
+				myValidator.validateWithResult(ourCtx.newJsonParser().encodeResourceToString(patient)));
+
+		assertThat(fromResource).anyMatch(t -> t.contains("http://example.com/StructureDefinition/unknown"));
+		assertEquals(fromString, fromResource);
+	}
+
+	@Test
+	public void testPooledValidatorSeesChangedProfile() {
+		myInstanceValidator.setValidatorPoolingEnabled(true);
+		Patient patient = newValidPatient();
+		patient.getMeta().addProfile(PROFILE_URL);
+
+		myPrePopulatedSupport.addStructureDefinition(newPatientProfile("Patient.birthDate"));
+		assertThat(validate(patient)).anyMatch(t -> t.contains("Patient.birthDate"));
+
+		// Only the support chain's caches are invalidated, so the pooled validator is reused
+		myPrePopulatedSupport.addStructureDefinition(newPatientProfile("Patient.gender"));
+		myValidationSupport.invalidateCaches();
+		List<String> messages = validate(patient);
+
+		assertThat(messages).anyMatch(t -> t.contains("Patient.gender"));
+		assertThat(messages).noneMatch(t -> t.contains("Patient.birthDate"));
+		assertEquals(1, myInstanceValidator.getPooledValidatorCount());
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testClearLookupCaches() throws IllegalAccessException {
+		InstanceValidator validator = ValidatorWrapper.newInstanceValidator(
+				WorkerContextValidationSupportAdapter.newVersionSpecificWorkerContextWrapper(myValidationSupport));
+		Map<String, Object> crLookups = (Map<String, Object>) FieldUtils.readField(validator, "crLookups", true);
+		Map<String, Object> fetchCache = (Map<String, Object>) FieldUtils.readField(validator, "fetchCache", true);
+		crLookups.put(PROFILE_URL, null);
+		fetchCache.put("Patient/123", null);
+
+		assertTrue(ValidatorWrapper.clearLookupCaches(validator));
+
+		assertThat(crLookups).isEmpty();
+		assertThat(fetchCache).isEmpty();
+	}
+
+	@Test
+	public void testConcurrentValidation() throws Exception {
+		myInstanceValidator.setValidatorPoolingEnabled(true);
+		List<String> expected = validate(newInvalidPatient());
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<List<String>>> futures = new ArrayList<>();
+			for (int i = 0; i < 20; i++) {
+				futures.add(executor.submit(() -> validate(newInvalidPatient())));
+			}
+			for (Future<List<String>> next : futures) {
+				assertEquals(expected, next.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		assertThat(myInstanceValidator.getPooledValidatorCount()).isBetween(1, 4);
+	}
+
+	@Test
+	public void testInvalidateCachesEmptiesPool() {
+		myInstanceValidator.setValidatorPoolingEnabled(true);
+		validate(newValidPatient());
+		assertEquals(1, myInstanceValidator.getPooledValidatorCount());
+
+		myInstanceValidator.invalidateCaches();
+		assertEquals(0, myInstanceValidator.getPooledValidatorCount());
+	}
+
+	private List<String> validate(Patient thePatient) {
+		return toMessages(myValidator.validateWithResult(thePatient));
+	}
+
+	private static List<String> toMessages(ValidationResult theResult) {
+		List<String> retVal = new ArrayList<>();
+		for (SingleValidationMessage next : theResult.getMessages()) {
+			retVal.add(next.getSeverity() + " " + next.getLocationString() + " " + next.getMessage());
+		}
+		return retVal;
+	}
+
+	private static StructureDefinition newPatientProfile(String theRequiredPath) {
+		StructureDefinition retVal = new StructureDefinition();
+		retVal.setUrl(PROFILE_URL);
+		retVal.setName("RequiredElementPatient");
+		retVal.setStatus(Enumerations.PublicationStatus.ACTIVE);
+		retVal.setKind(StructureDefinition.StructureDefinitionKind.RESOURCE);
+		retVal.setAbstract(false);
+		retVal.setType("Patient");
+		retVal.setBaseDefinition("http://hl7.org/fhir/StructureDefinition/Patient");
+		retVal.setDerivation(StructureDefinition.TypeDerivationRule.CONSTRAINT);
+		retVal.getDifferential().addElement().setPath("Patient").setId("Patient");
+		retVal.getDifferential()
+				.addElement()
+				.setPath(theRequiredPath)
+				.setMin(1)
+				.setId(theRequiredPath);
+		return retVal;
+	}
+
+	private static Patient newValidPatient() {
+		Patient patient = new Patient();
+		patient.getText().setStatus(Narrative.NarrativeStatus.GENERATED);
+		patient.getText().setDivAsString("<div xmlns=\"http://www.w3.org/1999/xhtml\">Patient</div>");
+		patient.setActive(true);
+		patient.addName().setFamily("Smith");
+		return patient;
+	}
+
+	private static Patient newInvalidPatient() {
+		Patient patient = newValidPatient();
+		// Violates pat-1, since the contact has no details and no organization
+		patient.addContact().setGender(Enumerations.AdministrativeGender.MALE);
+		return patient;
+	}
+}
@@ -3,8 +3,11 @@ package org.hl7.fhir.r4.validation;
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.context.support.ConceptValidationOptions;
 import ca.uhn.fhir.context.support.IValidationSupport.CodeValidationResult;
+import ca.uhn.fhir.context.support.ValidateCodeRequest;
 import ca.uhn.fhir.jpa.model.util.JpaConstants;
 import ca.uhn.fhir.parser.IJsonLikeParser;
+import ca.uhn.fhir.rest.annotation.Transaction;
+import ca.uhn.fhir.rest.annotation.TransactionParam;
 import ca.uhn.fhir.rest.client.api.IClientInterceptor;
 import ca.uhn.fhir.rest.client.api.IHttpRequest;
 import ca.uhn.fhir.rest.client.api.IHttpResponse;
@@ -21,6 +24,7 @@ import org.hl7.fhir.common.hapi.validation.IRemoteTerminologyValidateCodeTest;
 import org.hl7.fhir.common.hapi.validation.support.RemoteTerminologyServiceValidationSupport;
 import org.hl7.fhir.instance.model.api.IBaseOperationOutcome;
 import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.Bundle;
 import org.hl7.fhir.r4.model.OperationOutcome;
 import org.hl7.fhir.r4.model.Parameters;
 import org.hl7.fhir.r4.model.Resource;
@@ -35,6 +39,7 @@ import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.stream.Stream;
@@ -150,6 +155,50 @@ public class RemoteTerminologyValidateCodeR4Test implements IRemoteTerminologyVa
 		assertNull(outcome.getMessage());
 	}
 
+	@Test
+	void validateCodes_sentAsSingleBatch() {
+		MyBatchProvider batchProvider = new MyBatchProvider();
+		ourRestfulServerExtension.getRestfulServer().registerProvider(batchProvider);
+		try {
+			List<ValidateCodeRequest> requests = List.of(
+					new ValidateCodeRequest(CODE_SYSTEM, CODE, DISPLAY, null),
+					new ValidateCodeRequest(CODE_SYSTEM, null, DISPLAY, null),
+					new ValidateCodeRequest(CODE_SYSTEM, "OTHER", null, VALUE_SET_URL));
+
+			List<CodeValidationResult> outcomes = mySvc.validateCodes(null, new ConceptValidationOptions(), requests);
+
+			assertEquals(1, batchProvider.myRequests.size());
+			assertThat(batchProvider.myRequests.get(0).getEntry())
+					.extracting(t -> t.getRequest().getUrl())
+					.containsExactly("CodeSystem/$validate-code", "ValueSet/$validate-code");
+			assertThat(outcomes).hasSize(3);
+			assertEquals(CODE, outcomes.get(0).getCode());
+			assertEquals("Display for " + CODE, outcomes.get(0).getDisplay());
+			assertNull(outcomes.get(1));
+			assertEquals("OTHER", outcomes.get(2).getCode());
+		} finally {
+			ourRestfulServerExtension.getRestfulServer().unregisterProvider(batchProvider);
+		}
+	}
+
+	@Test
+	void validateCodes_batchNotSupported_validatesIndividually() {
+		createCodeSystemReturnParameters(true, DISPLAY, null, null);
+		createValueSetReturnParameters(false, null, ERROR_MESSAGE, null);
+
+		List<ValidateCodeRequest> requests = List.of(
+				new ValidateCodeRequest(CODE_SYSTEM, CODE, DISPLAY, null),
+				new ValidateCodeRequest(CODE_SYSTEM, CODE, null, VALUE_SET_URL));
+
+		List<CodeValidationResult> outcomes = mySvc.validateCodes(null, new ConceptValidationOptions(), requests);
+
+		assertThat(outcomes).hasSize(2);
+		assertEquals(CODE, outcomes.get(0).getCode());
+		assertEquals(DISPLAY, outcomes.get(0).getDisplay());
+		assertNull(outcomes.get(1).getCode());
+		assertEquals(myValueSetError, outcomes.get(1).getMessage());
+	}
+
 	@Override
 	public Parameters createParameters(Boolean theResult, String theDisplay, String theMessage, IBaseResource theIssuesResource) {
 		Parameters parameters = new Parameters()
@@ -335,4 +384,23 @@ public class RemoteTerminologyValidateCodeR4Test implements IRemoteTerminologyVa
 			public String getCapturedSystemParameter() { return capturedSystemParameter; }
 		}
 	}
+
+	public static class MyBatchProvider {
+		private final List<Bundle> myRequests = new ArrayList<>();
+
+		@Transaction
+		public Bundle batch(@TransactionParam Bundle theInput) {
+			myRequests.add(theInput);
+			Bundle retVal = new Bundle();
+			retVal.setType(Bundle.BundleType.BATCHRESPONSE);
+			for (Bundle.BundleEntryComponent next : theInput.getEntry()) {
+				String code = ((Parameters) next.getResource()).getParameterValue("code").primitiveValue();
+				Parameters response = new Parameters()
+						.addParameter("result", true)
+						.addParameter("display", "Display for " + code);
+				retVal.addEntry().setResource(response).getResponse().setStatus("200 OK");
+			}
+			return retVal;
+		}
+	}
 }